@@ -48,6 +48,7 @@ import org.neo4j.bolt.v1.runtime.BoltWorker;
 import org.neo4j.bolt.v1.runtime.LifecycleManagedBoltFactory;
 import org.neo4j.bolt.v1.runtime.MonitoredWorkerFactory;
 import org.neo4j.bolt.v1.runtime.WorkerFactory;
+import org.neo4j.bolt.v1.runtime.concurrent.PooledWorkerFactory;
 import org.neo4j.bolt.v1.runtime.concurrent.ThreadedWorkerFactory;
 import org.neo4j.bolt.v1.transport.BoltProtocolV1;
 import org.neo4j.graphdb.GraphDatabaseService;
@@ -80,9 +81,12 @@ import org.neo4j.udc.UsageData;
 import static java.lang.String.format;
 import static java.util.stream.Collectors.toList;
 import static org.neo4j.graphdb.factory.GraphDatabaseSettings.boltConnectors;
+import static org.neo4j.kernel.configuration.Settings.INTEGER;
 import static org.neo4j.kernel.configuration.Settings.PATH;
 import static org.neo4j.kernel.configuration.Settings.derivedSetting;
+import static org.neo4j.kernel.configuration.Settings.min;
 import static org.neo4j.kernel.configuration.Settings.pathSetting;
+import static org.neo4j.kernel.configuration.Settings.setting;
 import static org.neo4j.kernel.impl.util.JobScheduler.Groups.boltNetworkIO;
 
 /**
@@ -108,6 +112,21 @@ public class BoltKernelExtension extends KernelExtensionFactory<BoltKernelExtens
         public static final Setting<File> tls_key_file =
                 derivedSetting( "unsupported.dbms.security.tls_key_file", certificates_directory,
                         ( certificates ) -> new File( certificates, "neo4j.key" ), PATH );
+
+        @Internal
+        @Description( "Maximum number of threads executing requests of Bolt sessions. Sessions only occupy a " +
+                "thread while they have requests queued or an explicit transaction open. `0` means that " +
+                "every session gets a thread of its own for as long as it's connected." )
+        public static final Setting<Integer> worker_pool_size =
+                setting( "unsupported.dbms.bolt.worker_pool_size", INTEGER, "0", min( 0 ) );
+
+        @Internal
+        @Description( "Maximum number of Bolt sessions with requests queued waiting for a thread of the worker " +
+                "pool. Sessions beyond that stop reading requests from their connections until a thread is " +
+                "available for them. Only used when the worker pool is enabled, see " +
+                "`unsupported.dbms.bolt.worker_pool_size`." )
+        public static final Setting<Integer> worker_queue_size =
+                setting( "unsupported.dbms.bolt.worker_queue_size", INTEGER, "1000", min( 1 ) );
     }
 
     public interface Dependencies
@@ -158,8 +177,12 @@ public class BoltKernelExtension extends KernelExtensionFactory<BoltKernelExtens
         BoltFactory boltConnectionManagerFactory = life.add(
                 new LifecycleManagedBoltFactory( api, dependencies.usageData(), logService, dependencies.txBridge(),
                         authentication, dependencies.sessionTracker() ) );
-        ThreadedWorkerFactory threadedSessions = new ThreadedWorkerFactory( boltConnectionManagerFactory, scheduler, logService );
-        WorkerFactory workerFactory = new MonitoredWorkerFactory( dependencies.monitors(), threadedSessions,
+        int workerPoolSize = config.get( Settings.worker_pool_size );
+        WorkerFactory sessions = workerPoolSize > 0
+                ? life.add( new PooledWorkerFactory( boltConnectionManagerFactory, scheduler, logService,
+                        workerPoolSize, config.get( Settings.worker_queue_size ) ) )
+                : new ThreadedWorkerFactory( boltConnectionManagerFactory, scheduler, logService );
+        WorkerFactory workerFactory = new MonitoredWorkerFactory( dependencies.monitors(), sessions,
                 Clocks.systemClock() );
 
         List<ProtocolInitializer> connectors = boltConnectors( config ).stream()
@@ -238,7 +261,7 @@ public class BoltKernelExtension extends KernelExtensionFactory<BoltKernelExtens
                 (long) BoltProtocolV1.VERSION,
                 ( channel, isEncrypted ) -> {
                     String descriptor = format( "\tclient%s\tserver%s", channel.remoteAddress(), channel.localAddress() );
-                    BoltWorker worker = workerFactory.newWorker( descriptor, channel::close );
+                    BoltWorker worker = workerFactory.newWorker( descriptor, channel::close, channel );
                     return new BoltProtocolV1( worker, channel, logging );
                 }
         );
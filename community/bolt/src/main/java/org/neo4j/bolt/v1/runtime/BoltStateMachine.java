@@ -82,6 +82,14 @@ public class BoltStateMachine implements AutoCloseable, ManagedBoltStateMachine
         return ctx.statementProcessor;
     }
 
+    /**
+     * @return whether or not this session currently has an explicit transaction open.
+     */
+    public boolean hasOpenTransaction()
+    {
+        return ctx.statementProcessor.hasTransaction();
+    }
+
     private void before( BoltResponseHandler handler ) throws BoltConnectionFatality
     {
         if ( ctx.interruptCounter.get() > 0 )
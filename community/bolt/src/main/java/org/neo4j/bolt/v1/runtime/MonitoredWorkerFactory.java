@@ -19,6 +19,8 @@
  */
 package org.neo4j.bolt.v1.runtime;
 
+import io.netty.channel.Channel;
+
 import org.neo4j.kernel.monitoring.Monitors;
 
 import java.time.Clock;
@@ -46,12 +48,19 @@ public class MonitoredWorkerFactory implements WorkerFactory
 
     @Override
     public BoltWorker newWorker( String connectionDescriptor, Runnable onClose )
+    {
+        return newWorker( connectionDescriptor, onClose, null );
+    }
+
+    @Override
+    public BoltWorker newWorker( String connectionDescriptor, Runnable onClose, Channel channel )
     {
         if( monitors.hasListeners( SessionMonitor.class ) )
         {
-            return new MonitoredBoltWorker( monitor, delegate.newWorker( connectionDescriptor, onClose ), clock );
+            return new MonitoredBoltWorker( monitor, delegate.newWorker( connectionDescriptor, onClose, channel ),
+                    clock );
         }
-        return delegate.newWorker( connectionDescriptor, onClose );
+        return delegate.newWorker( connectionDescriptor, onClose, channel );
     }
 
     static class MonitoredBoltWorker implements BoltWorker
@@ -20,6 +20,8 @@
 
 package org.neo4j.bolt.v1.runtime;
 
+import io.netty.channel.Channel;
+
 /**
  * Creates {@link BoltWorker}s. Implementations of this interface can decorate queues and their jobs
  * to monitor activity and enforce constraints.
@@ -37,4 +39,14 @@ public interface WorkerFactory
      * @return a new job queue
      */
     BoltWorker newWorker( String connectionDescriptor, Runnable onClose );
+
+    /**
+     * @param channel the channel requests are read from, which the worker may stop reading from while it can't
+     * keep up with them.
+     * @see #newWorker(String, Runnable)
+     */
+    default BoltWorker newWorker( String connectionDescriptor, Runnable onClose, Channel channel )
+    {
+        return newWorker( connectionDescriptor, onClose );
+    }
 }
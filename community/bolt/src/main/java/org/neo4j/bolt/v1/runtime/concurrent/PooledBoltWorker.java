@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.bolt.v1.runtime.concurrent;
+
+import io.netty.channel.Channel;
+
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.neo4j.bolt.v1.runtime.BoltConnectionAuthFatality;
+import org.neo4j.bolt.v1.runtime.BoltConnectionFatality;
+import org.neo4j.bolt.v1.runtime.BoltProtocolBreachFatality;
+import org.neo4j.bolt.v1.runtime.BoltStateMachine;
+import org.neo4j.bolt.v1.runtime.BoltWorker;
+import org.neo4j.bolt.v1.runtime.Job;
+import org.neo4j.kernel.impl.logging.LogService;
+import org.neo4j.logging.Log;
+
+/**
+ * Executes incoming Bolt requests for a given connection on an {@link Executor} shared with other connections.
+ * <p>
+ * The worker occupies a thread while it has queued jobs, or while its session has an explicit transaction open,
+ * after which the thread goes back to the pool. Keeping the thread while a transaction is open makes sure that the
+ * transaction, and the locks it holds, never waits for a thread behind sessions that are blocked on those locks.
+ * <p>
+ * To keep scheduling fair, a worker without an open transaction gives up its thread after {@code jobsPerTurn} jobs
+ * and is resubmitted to the back of the executor queue, unless the executor rejects it, in which case it keeps its
+ * thread.
+ * <p>
+ * Backpressure: when the job queue of a worker is full, {@link #enqueue(Job)} blocks the calling network thread.
+ * When the executor rejects a worker that needs a thread, because all threads are busy and its queue is full, the
+ * worker stops reading from its channel and joins the stalled workers. Every pool thread done with a worker submits
+ * stalled workers again, which then start reading from their channels again.
+ * <p>
+ * The state machine is only ever touched by the thread currently executing the worker. {@link #halt()} therefore
+ * doesn't close the session itself, it makes sure the worker is scheduled and leaves closing to the pool thread.
+ */
+class PooledBoltWorker implements Runnable, BoltWorker
+{
+    /** Poison pill for closing the session and shutting down the worker */
+    static final Job SHUTDOWN = RunnableBoltWorker.SHUTDOWN;
+
+    private static final int workQueueSize = Integer.getInteger( "org.neo4j.bolt.workQueueSize", 100 );
+    private static final long transactionIdleWaitSeconds = 10;
+
+    private final ArrayBlockingQueue<Job> jobQueue = new ArrayBlockingQueue<>( workQueueSize );
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final BoltStateMachine machine;
+    private final Channel channel;
+    private final Executor executor;
+    private final Deque<PooledBoltWorker> stalled;
+    private final int jobsPerTurn;
+    private final Log log;
+    private final Log userLog;
+    private volatile boolean keepRunning = true;
+    private volatile boolean halted;
+
+    /**
+     * @param channel the channel requests of this session are read from, or {@code null} if there's none to pause.
+     * @param stalled workers rejected by the executor, shared by all workers of that executor.
+     */
+    PooledBoltWorker( BoltStateMachine machine, Channel channel, Executor executor, Deque<PooledBoltWorker> stalled,
+            int jobsPerTurn, LogService logging )
+    {
+        this.machine = machine;
+        this.channel = channel;
+        this.executor = executor;
+        this.stalled = stalled;
+        this.jobsPerTurn = jobsPerTurn;
+        this.log = logging.getInternalLog( getClass() );
+        this.userLog = logging.getUserLog( getClass() );
+    }
+
+    /**
+     * Accept a command to be executed at some point in the future. This will get queued and the worker will be
+     * scheduled for execution, unless it already is.
+     * @param job an operation to be performed on the session
+     */
+    @Override
+    public void enqueue( Job job )
+    {
+        if ( !keepRunning || halted )
+        {
+            // The session is closed, nothing is going to execute this job
+            return;
+        }
+        try
+        {
+            jobQueue.put( job );
+        }
+        catch ( InterruptedException e )
+        {
+            throw new RuntimeException( "Worker interrupted while queueing request, the session may have been " +
+                    "forcibly closed, or the database may be shutting down." );
+        }
+        schedule();
+    }
+
+    private void schedule()
+    {
+        if ( scheduled.compareAndSet( false, true ) )
+        {
+            submit();
+        }
+    }
+
+    /**
+     * Submits this worker to the executor, or has it wait among the stalled workers, not reading any more
+     * requests from its channel, if the executor rejects it.
+     */
+    private void submit()
+    {
+        try
+        {
+            executor.execute( this );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            setAutoRead( false );
+            stalled.addLast( this );
+            // A thread may have become available before this worker was added, with nobody left to submit it
+            submitStalled();
+        }
+    }
+
+    /**
+     * Submits stalled workers, in the order they were stalled, for as long as the executor accepts them.
+     */
+    private void submitStalled()
+    {
+        PooledBoltWorker worker;
+        while ( (worker = stalled.pollFirst()) != null )
+        {
+            try
+            {
+                executor.execute( worker );
+            }
+            catch ( RejectedExecutionException e )
+            {
+                stalled.addFirst( worker );
+                return;
+            }
+            worker.setAutoRead( true );
+        }
+    }
+
+    private void setAutoRead( boolean autoRead )
+    {
+        if ( channel != null )
+        {
+            channel.config().setAutoRead( autoRead );
+        }
+    }
+
+    @Override
+    public void run()
+    {
+        try
+        {
+            if ( executeJobs() )
+            {
+                return;
+            }
+        }
+        catch ( BoltConnectionAuthFatality e )
+        {
+            // this is logged in the SecurityLog
+        }
+        catch ( BoltProtocolBreachFatality e )
+        {
+            log.error( "Bolt protocol breach in session '" + machine.key() + "'" );
+        }
+        catch ( InterruptedException e )
+        {
+            log.info( "Worker for session '" + machine.key() + "' interrupted, probably because the database " +
+                      "is shutting down." );
+        }
+        catch ( Throwable t )
+        {
+            userLog.error( "Fatal, worker for session '" + machine.key() + "' crashed. Please" +
+                           " contact your support representative if you are unable to resolve this.", t );
+        }
+        finally
+        {
+            // This thread is about to become available
+            submitStalled();
+        }
+
+        // Attempt to close the session, as an effort to release locks and other resources held by the session
+        keepRunning = false;
+        machine.close();
+        // Unblock any network thread waiting for room in the queue, the jobs are never going to be executed
+        jobQueue.clear();
+    }
+
+    /**
+     * Executes queued jobs until the queue is drained and no transaction is open, or this worker has had its turn.
+     *
+     * @return {@code true} if the session is still open and the thread was given back, {@code false} if
+     * the session has been shut down or halted.
+     */
+    private boolean executeJobs() throws BoltConnectionFatality, InterruptedException
+    {
+        int executed = 0;
+        while ( keepRunning && !halted )
+        {
+            Job job = jobQueue.poll();
+            if ( job == null && machine.hasOpenTransaction() )
+            {
+                // Hold on to this thread for as long as the transaction is open
+                job = jobQueue.poll( transactionIdleWaitSeconds, TimeUnit.SECONDS );
+                executed = 0;
+                if ( job == null || halted )
+                {
+                    continue;
+                }
+            }
+            if ( job == null )
+            {
+                scheduled.set( false );
+                // A job may have been queued, or the worker halted, after we polled but before the flag was
+                // cleared, in which case whoever did that saw us as still being scheduled
+                if ( (jobQueue.isEmpty() && !halted) || !scheduled.compareAndSet( false, true ) )
+                {
+                    return true;
+                }
+                continue;
+            }
+
+            execute( job );
+            if ( ++executed >= jobsPerTurn && keepRunning && !halted && !machine.hasOpenTransaction() &&
+                 resubmit() )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lets other sessions have a go by queueing this worker up behind them. It stays scheduled meanwhile.
+     *
+     * @return whether or not the worker was resubmitted, if not it should carry on executing jobs.
+     */
+    private boolean resubmit()
+    {
+        try
+        {
+            executor.execute( this );
+            return true;
+        }
+        catch ( RejectedExecutionException e )
+        {
+            return false;
+        }
+    }
+
+    private void execute( Job job ) throws BoltConnectionFatality
+    {
+        if ( job == SHUTDOWN )
+        {
+            keepRunning = false;
+        }
+        else
+        {
+            job.perform( machine );
+        }
+    }
+
+    @Override
+    public void interrupt()
+    {
+        machine.interrupt();
+    }
+
+    /**
+     * Stops this worker from accepting and executing any more jobs and has the session closed by the pool thread
+     * that owns it, after the job it may currently be executing.
+     */
+    @Override
+    public void halt()
+    {
+        halted = true;
+        // Wakes the worker up if it's waiting for the next statement of an open transaction
+        jobQueue.offer( SHUTDOWN );
+        schedule();
+    }
+}
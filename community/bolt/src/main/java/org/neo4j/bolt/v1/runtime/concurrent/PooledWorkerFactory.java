@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.bolt.v1.runtime.concurrent;
+
+import io.netty.channel.Channel;
+
+import java.time.Clock;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.bolt.v1.runtime.BoltFactory;
+import org.neo4j.bolt.v1.runtime.BoltStateMachine;
+import org.neo4j.bolt.v1.runtime.BoltWorker;
+import org.neo4j.bolt.v1.runtime.WorkerFactory;
+import org.neo4j.kernel.impl.logging.LogService;
+import org.neo4j.kernel.impl.util.JobScheduler;
+import org.neo4j.kernel.lifecycle.LifecycleAdapter;
+
+import static org.neo4j.kernel.impl.util.JobScheduler.Groups.sessionWorker;
+
+/**
+ * A {@link WorkerFactory} implementation that multiplexes sessions onto a bounded pool of threads, rather than
+ * creating one thread for every session started like {@link ThreadedWorkerFactory} does. Idle sessions without
+ * an open transaction don't occupy a thread, which lets a single instance serve many more connected clients.
+ * <p>
+ * Sessions waiting for a thread queue up in a bounded queue. A session which doesn't fit in there anymore stops
+ * reading from its connection until a thread has become available, see {@link PooledBoltWorker}.
+ */
+public class PooledWorkerFactory extends LifecycleAdapter implements WorkerFactory
+{
+    /** Number of jobs a session gets to execute before giving way to other sessions waiting for a thread */
+    private static final int JOBS_PER_TURN = 16;
+
+    private final BoltFactory connector;
+    private final LogService logging;
+    private final ThreadPoolExecutor executor;
+    private final Deque<PooledBoltWorker> stalled = new ConcurrentLinkedDeque<>();
+
+    /**
+     * @param maxThreads maximum number of threads executing session requests.
+     * @param maxQueuedSessions maximum number of sessions waiting for a thread, beyond which sessions stop reading.
+     */
+    public PooledWorkerFactory( BoltFactory connector, JobScheduler scheduler, LogService logging, int maxThreads,
+            int maxQueuedSessions )
+    {
+        this.connector = connector;
+        this.logging = logging;
+        this.executor = new ThreadPoolExecutor( maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>( maxQueuedSessions ), scheduler.threadFactory( sessionWorker ),
+                new ThreadPoolExecutor.AbortPolicy() );
+        this.executor.allowCoreThreadTimeOut( true );
+    }
+
+    @Override
+    public BoltWorker newWorker( String connectionDescriptor, Runnable onClose )
+    {
+        return newWorker( connectionDescriptor, onClose, null );
+    }
+
+    @Override
+    public BoltWorker newWorker( String connectionDescriptor, Runnable onClose, Channel channel )
+    {
+        BoltStateMachine machine = connector.newMachine( connectionDescriptor, onClose, Clock.systemUTC() );
+        return new PooledBoltWorker( machine, channel, executor, stalled, JOBS_PER_TURN, logging );
+    }
+
+    @Override
+    public void shutdown() throws Throwable
+    {
+        executor.shutdownNow();
+        executor.awaitTermination( 10, TimeUnit.SECONDS );
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.bolt.v1.runtime.concurrent;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.neo4j.bolt.v1.runtime.BoltStateMachine;
+import org.neo4j.kernel.impl.logging.NullLogService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PooledBoltWorkerTest
+{
+    private final Queue<Runnable> scheduled = new ConcurrentLinkedQueue<>();
+    private final Executor executor = scheduled::add;
+    private final Deque<PooledBoltWorker> stalled = new ConcurrentLinkedDeque<>();
+    private BoltStateMachine machine;
+    private boolean running;
+
+    @Before
+    public void setup()
+    {
+        machine = mock( BoltStateMachine.class );
+        when( machine.key() ).thenReturn( "test-session" );
+    }
+
+    @Test
+    public void shouldExecuteQueuedWorkAndKeepSessionOpen() throws Throwable
+    {
+        // Given
+        PooledBoltWorker worker = new PooledBoltWorker( machine, null, executor, stalled, 10, NullLogService.getInstance() );
+        worker.enqueue( s -> s.run( "Hello, world!", null, null ) );
+
+        // When
+        runScheduled();
+
+        // Then
+        verify( machine ).run( "Hello, world!", null, null );
+        verify( machine, never() ).close();
+    }
+
+    @Test
+    public void shouldOnlyScheduleWorkerOnceForMultipleJobs() throws Throwable
+    {
+        // Given
+        PooledBoltWorker worker = new PooledBoltWorker( machine, null, executor, stalled, 10, NullLogService.getInstance() );
+
+        // When
+        worker.enqueue( s -> s.run( "1", null, null ) );
+        worker.enqueue( s -> s.run( "2", null, null ) );
+
+        // Then
+        assertEquals( 1, scheduled.size() );
+        runScheduled();
+        verify( machine ).run( "1", null, null );
+        verify( machine ).run( "2", null, null );
+    }
+
+    @Test
+    public void shouldScheduleAgainWhenNewWorkArrivesAfterQueueDrained() throws Throwable
+    {
+        // Given
+        PooledBoltWorker worker = new PooledBoltWorker( machine, null, executor, stalled, 10, NullLogService.getInstance() );
+        worker.enqueue( s -> s.run( "1", null, null ) );
+        runScheduled();
+
+        // When
+        worker.enqueue( s -> s.run( "2", null, null ) );
+
+        // Then
+        assertEquals( 1, scheduled.size() );
+        runScheduled();
+        verify( machine ).run( "2", null, null );
+    }
+
+    @Test
+    public void shouldGiveWayToOtherSessionsAfterItsTurn() throws Throwable
+    {
+        // Given
+        PooledBoltWorker worker = new PooledBoltWorker( machine, null, executor, stalled, 2, NullLogService.getInstance() );
+        worker.enqueue( s -> s.run( "1", null, null ) );
+        worker.enqueue( s -> s.run( "2", null, null ) );
+        worker.enqueue( s -> s.run( "3", null, null ) );
+
+        // When
+        scheduled.poll().run();
+
+        // Then
+        verify( machine ).run( "2", null, null );
+        verify( machine, never() ).run( "3", null, null );
+        assertEquals( 1, scheduled.size() );
+        runScheduled();
+        verify( machine ).run( "3", null, null );
+    }
+
+    @Test
+    public void shouldCloseSessionOnShutdown() throws Throwable
+    {
+        // Given
+        PooledBoltWorker worker = new PooledBoltWorker( machine, null, executor, stalled, 10, NullLogService.getInstance() );
+        worker.enqueue( PooledBoltWorker.SHUTDOWN );
+        worker.enqueue( s -> s.run( "Hello, world!", null, null ) );
+
+        // When
+        runScheduled();
+
+        // Then
+        verify( machine ).close();
+        verify( machine, never() ).run( "Hello, world!", null, null );
+    }
+
+    @Test
+    public void errorThrownDuringExecutionShouldCauseSessionClose() throws Throwable
+    {
+        // Given
+        PooledBoltWorker worker = new PooledBoltWorker( machine, null, executor, stalled, 10, NullLogService.getInstance() );
+        worker.enqueue( s -> {
+            throw new RuntimeException( "It didn't work out." );
+        } );
+
+        // When
+        runScheduled();
+
+        // Then
+        verify( machine ).close();
+    }
+
+    @Test
+    public void shouldIgnoreWorkQueuedAfterHalt() throws Throwable
+    {
+        // Given
+        PooledBoltWorker worker = new PooledBoltWorker( machine, null, executor, stalled, 10, NullLogService.getInstance() );
+        worker.halt();
+
+        // When
+        worker.enqueue( s -> s.run( "Hello, world!", null, null ) );
+        runScheduled();
+
+        // Then
+        verify( machine, never() ).run( "Hello, world!", null, null );
+        verify( machine, times( 1 ) ).close();
+    }
+
+    @Test
+    public void shouldLeaveClosingHaltedSessionToPoolThread() throws Throwable
+    {
+        // Given
+        PooledBoltWorker worker = new PooledBoltWorker( machine, null, executor, stalled, 10, NullLogService.getInstance() );
+        worker.enqueue( s -> s.run( "1", null, null ) );
+        worker.enqueue( s -> s.run( "2", null, null ) );
+
+        // When
+        worker.halt();
+
+        // Then
+        verify( machine, never() ).close();
+        assertEquals( 1, scheduled.size() );
+        runScheduled();
+        verify( machine, never() ).run( "1", null, null );
+        verify( machine, times( 1 ) ).close();
+    }
+
+    @Test
+    public void shouldKeepThreadWhileIdleInTransaction() throws Throwable
+    {
+        // Given
+        AtomicBoolean inTransaction = new AtomicBoolean();
+        when( machine.hasOpenTransaction() ).thenAnswer( invocation -> inTransaction.get() );
+        PooledBoltWorker worker = new PooledBoltWorker( machine, null, executor, stalled, 10,
+                NullLogService.getInstance() );
+        worker.enqueue( s ->
+        {
+            s.run( "BEGIN", null, null );
+            inTransaction.set( true );
+        } );
+
+        // When
+        Thread poolThread = new Thread( this::runScheduled );
+        poolThread.start();
+        verify( machine, timeout( 10_000 ) ).run( "BEGIN", null, null );
+        worker.enqueue( s ->
+        {
+            s.run( "COMMIT", null, null );
+            inTransaction.set( false );
+        } );
+        poolThread.join();
+
+        // Then
+        verify( machine ).run( "COMMIT", null, null );
+        verify( machine, never() ).close();
+        assertEquals( 0, scheduled.size() );
+    }
+
+    @Test
+    public void shouldKeepThreadWhenResubmissionIsRejected() throws Throwable
+    {
+        // Given
+        Executor rejectingWhenBusy = job ->
+        {
+            if ( !scheduled.isEmpty() || running )
+            {
+                throw new RejectedExecutionException();
+            }
+            scheduled.add( job );
+        };
+        PooledBoltWorker worker = new PooledBoltWorker( machine, null, rejectingWhenBusy, stalled, 1, NullLogService.getInstance() );
+        worker.enqueue( s -> s.run( "1", null, null ) );
+        worker.enqueue( s -> s.run( "2", null, null ) );
+
+        // When
+        running = true;
+        scheduled.poll().run();
+        running = false;
+
+        // Then
+        verify( machine ).run( "1", null, null );
+        verify( machine ).run( "2", null, null );
+        verify( machine, never() ).close();
+        assertEquals( 0, scheduled.size() );
+    }
+
+    @Test
+    public void shouldStopReadingWhileRejectedByExecutor() throws Throwable
+    {
+        // Given
+        AtomicBoolean full = new AtomicBoolean( true );
+        Executor rejectingWhileFull = job ->
+        {
+            if ( full.get() )
+            {
+                throw new RejectedExecutionException();
+            }
+            scheduled.add( job );
+        };
+        Channel channel = mock( Channel.class );
+        ChannelConfig config = mock( ChannelConfig.class );
+        when( channel.config() ).thenReturn( config );
+        PooledBoltWorker worker = new PooledBoltWorker( machine, channel, rejectingWhileFull, stalled, 10,
+                NullLogService.getInstance() );
+        PooledBoltWorker other = new PooledBoltWorker( mock( BoltStateMachine.class ), null, rejectingWhileFull,
+                stalled, 10, NullLogService.getInstance() );
+
+        // When
+        worker.enqueue( s -> s.run( "Hello, world!", null, null ) );
+
+        // Then
+        verify( config ).setAutoRead( false );
+        assertTrue( stalled.contains( worker ) );
+        verify( machine, never() ).close();
+
+        // And when a thread becomes available
+        full.set( false );
+        other.enqueue( s -> s.run( "Hello", null, null ) );
+        runScheduled();
+
+        // Then
+        verify( machine ).run( "Hello, world!", null, null );
+        verify( config ).setAutoRead( true );
+        assertTrue( stalled.isEmpty() );
+        verify( machine, never() ).close();
+    }
+
+    private void runScheduled()
+    {
+        Runnable job;
+        while ( (job = scheduled.poll()) != null )
+        {
+            job.run();
+        }
+    }
+}
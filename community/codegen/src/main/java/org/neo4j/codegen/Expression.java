@@ -368,6 +368,18 @@ public abstract class Expression extends ExpressionTemplate
         };
     }
 
+    public static Expression toLong( final Expression expression )
+    {
+        return new Expression()
+        {
+            @Override
+            public void accept( ExpressionVisitor visitor )
+            {
+                visitor.intToLong( expression );
+            }
+        };
+    }
+
     public static Expression pop( Expression expression )
     {
         return new Expression()
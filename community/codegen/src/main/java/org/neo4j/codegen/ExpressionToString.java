@@ -304,6 +304,13 @@ class ExpressionToString implements ExpressionVisitor
         expression.accept( this );
     }
 
+    @Override
+    public void intToLong( Expression expression )
+    {
+        result.append( "(long)" );
+        expression.accept( this );
+    }
+
     @Override
     public void pop( Expression expression )
     {
@@ -75,5 +75,7 @@ public interface ExpressionVisitor
 
     void longToDouble( Expression expression );
 
+    void intToLong( Expression expression );
+
     void pop( Expression expression );
 }
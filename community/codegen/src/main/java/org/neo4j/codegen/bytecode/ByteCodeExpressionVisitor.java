@@ -55,6 +55,7 @@ import static org.objectweb.asm.Opcodes.FLOAD;
 import static org.objectweb.asm.Opcodes.GETFIELD;
 import static org.objectweb.asm.Opcodes.GETSTATIC;
 import static org.objectweb.asm.Opcodes.GOTO;
+import static org.objectweb.asm.Opcodes.I2L;
 import static org.objectweb.asm.Opcodes.IADD;
 import static org.objectweb.asm.Opcodes.IASTORE;
 import static org.objectweb.asm.Opcodes.ICONST_0;
@@ -482,6 +483,13 @@ class ByteCodeExpressionVisitor implements ExpressionVisitor
         methodVisitor.visitInsn( L2D );
     }
 
+    @Override
+    public void intToLong( Expression expression )
+    {
+        expression.accept( this );
+        methodVisitor.visitInsn( I2L );
+    }
+
     @Override
     public void pop( Expression expression )
     {
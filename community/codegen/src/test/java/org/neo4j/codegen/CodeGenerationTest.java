@@ -69,6 +69,7 @@ import static org.neo4j.codegen.Expression.or;
 import static org.neo4j.codegen.Expression.subtractDoubles;
 import static org.neo4j.codegen.Expression.subtractLongs;
 import static org.neo4j.codegen.Expression.ternary;
+import static org.neo4j.codegen.Expression.toLong;
 import static org.neo4j.codegen.ExpressionTemplate.cast;
 import static org.neo4j.codegen.ExpressionTemplate.load;
 import static org.neo4j.codegen.ExpressionTemplate.self;
@@ -1077,6 +1078,31 @@ public class CodeGenerationTest
         assertThat( conditional.invoke( false ), equalTo( true ) );
     }
 
+    @Test
+    public void shouldHandleIntToLongConversion() throws Throwable
+    {
+        // given
+        ClassHandle handle;
+        try ( ClassGenerator simple = generateClass( "SimpleClass" ) )
+        {
+            try ( CodeBlock widen = simple.generateMethod( long.class, "widen",
+                    param( int.class, "value" ) ) )
+            {
+                widen.returns( toLong( widen.load( "value" ) ) );
+            }
+
+            handle = simple.handle();
+        }
+
+        // when
+        MethodHandle widen =
+                instanceMethod( handle.newInstance(), "widen", int.class );
+
+        // then
+        assertThat( widen.invoke( 42 ), equalTo( 42L ) );
+        assertThat( widen.invoke( -1 ), equalTo( -1L ) );
+    }
+
     @Test
     public void shouldHandleTernaryOperator() throws Throwable
     {
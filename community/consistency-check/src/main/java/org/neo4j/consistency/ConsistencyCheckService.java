@@ -22,6 +22,7 @@ package org.neo4j.consistency;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
@@ -50,6 +51,8 @@ import org.neo4j.kernel.api.labelscan.LabelScanStore;
 import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.configuration.Settings;
 import org.neo4j.kernel.impl.api.index.IndexStoreView;
+import org.neo4j.kernel.impl.index.labelscan.NativeLabelScanStore;
+import org.neo4j.kernel.impl.index.labelscan.NativeLabelScanStoreExtension;
 import org.neo4j.kernel.impl.factory.OperationalMode;
 import org.neo4j.kernel.impl.locking.LockService;
 import org.neo4j.kernel.impl.pagecache.ConfiguringPageCacheFactory;
@@ -147,9 +150,8 @@ public class ConsistencyCheckService
             {
                 IndexStoreView indexStoreView = new NeoStoreIndexStoreView( LockService.NO_LOCK_SERVICE, neoStores );
                 OperationalMode operationalMode = OperationalMode.single;
-                labelScanStore = new LuceneLabelScanStoreBuilder(
-                        storeDir, fullStoreLabelUpdateStream( () -> indexStoreView ),
-                        fileSystem, consistencyCheckerConfig, operationalMode, logProvider ).build();
+                labelScanStore = createLabelScanStore( storeDir, consistencyCheckerConfig, logProvider, fileSystem,
+                        pageCache, indexStoreView, operationalMode );
                 SchemaIndexProvider indexes = new LuceneSchemaIndexProvider(
                         fileSystem,
                         DirectoryFactory.PERSISTENT,
@@ -198,6 +200,31 @@ public class ConsistencyCheckService
         return Result.SUCCESS;
     }
 
+    private static LabelScanStore createLabelScanStore( File storeDir, Config config, LogProvider logProvider,
+            FileSystemAbstraction fileSystem, PageCache pageCache, IndexStoreView indexStoreView,
+            OperationalMode operationalMode )
+    {
+        if ( !NativeLabelScanStoreExtension.NAME.equals( config.get( GraphDatabaseSettings.label_scan_store ) ) )
+        {
+            return new LuceneLabelScanStoreBuilder( storeDir, fullStoreLabelUpdateStream( () -> indexStoreView ),
+                    fileSystem, config, operationalMode, logProvider ).build();
+        }
+
+        LabelScanStore labelScanStore = new NativeLabelScanStore( pageCache, fileSystem, storeDir,
+                fullStoreLabelUpdateStream( () -> indexStoreView ), true, logProvider,
+                NativeLabelScanStore.Monitor.EMPTY );
+        try
+        {
+            labelScanStore.init();
+            labelScanStore.start();
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+        return labelScanStore;
+    }
+
     public File chooseReportPath( Config tuningConfiguration, File storeDir )
     {
         if ( tuningConfiguration.get( GraphDatabaseSettings.neo4j_home ) == null )
@@ -20,6 +20,7 @@
 package org.neo4j.cypher.internal.compiler.v3_1
 
 import java.time.Clock
+import java.util.concurrent.Executor
 
 import org.neo4j.cypher.internal.compiler.v3_1.CompilationPhaseTracer.CompilationPhase.{AST_REWRITE, PARSING, SEMANTIC_CHECK}
 import org.neo4j.cypher.internal.compiler.v3_1.ast.ResolvedCall
@@ -69,7 +70,14 @@ case class CypherCompilerConfiguration(queryCacheSize: Int,
                                        idpMaxTableSize: Int,
                                        idpIterationDuration: Long,
                                        errorIfShortestPathFallbackUsedAtRuntime: Boolean,
-                                       nonIndexedLabelWarningThreshold: Long)
+                                       nonIndexedLabelWarningThreshold: Long,
+                                       maxMaterializedRows: Long = 0,
+                                       cardinalityDivergenceThreshold: Double = 0,
+                                       interpretedBatchSize: Int = 0,
+                                       loadCsvParseAheadRows: Int = 0,
+                                       loadCsvParser: Option[Executor] = None,
+                                       parallelWorkers: Int = 0,
+                                       parallelExecutor: Option[Executor] = None)
 
 object CypherCompilerFactory {
   val monitorTag = "cypher3.1"
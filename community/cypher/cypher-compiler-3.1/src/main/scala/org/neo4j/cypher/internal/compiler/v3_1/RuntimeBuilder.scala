@@ -29,6 +29,7 @@ import org.neo4j.cypher.internal.compiler.v3_1.executionplan.ExecutionPlanBuilde
 import org.neo4j.cypher.internal.compiler.v3_1.executionplan.InterpretedExecutionPlanBuilder.interpretedToExecutionPlan
 import org.neo4j.cypher.internal.compiler.v3_1.executionplan._
 import org.neo4j.cypher.internal.compiler.v3_1.helpers._
+import org.neo4j.cypher.internal.compiler.v3_1.parallel.ParallelPipeRewriter
 import org.neo4j.cypher.internal.compiler.v3_1.planDescription.InternalPlanDescription
 import org.neo4j.cypher.internal.compiler.v3_1.planDescription.InternalPlanDescription.Arguments
 import org.neo4j.cypher.internal.compiler.v3_1.planner.execution.{PipeExecutionBuilderContext, PipeExecutionPlanBuilder}
@@ -44,6 +45,7 @@ object RuntimeBuilder {
     case None | Some(InterpretedRuntimeName) => InterpretedRuntimeBuilder(interpretedProducer)
     case Some(CompiledRuntimeName) if useErrorsOverWarnings => ErrorReportingRuntimeBuilder(compiledProducer)
     case Some(CompiledRuntimeName) => WarningFallbackRuntimeBuilder(interpretedProducer, compiledProducer)
+    case Some(ParallelRuntimeName) => ParallelRuntimeBuilder(interpretedProducer, useErrorsOverWarnings)
   }
 }
 trait RuntimeBuilder {
@@ -110,6 +112,34 @@ case class ErrorReportingRuntimeBuilder(compiledProducer: CompiledPlanBuilder) e
     throw new InvalidArgumentException("The given query is not currently supported in the selected runtime")
 }
 
+case class ParallelRuntimeBuilder(interpretedProducer: InterpretedPlanBuilder, useErrorsOverWarnings: Boolean)
+  extends RuntimeBuilder {
+
+  override def apply(periodicCommit: Option[PeriodicCommit], logicalPlan: LogicalPlan, pipeBuildContext: PipeExecutionBuilderContext,
+                     planContext: PlanContext, tracer: CompilationPhaseTracer, semanticTable: SemanticTable,
+                     monitor: NewRuntimeSuccessRateMonitor, plannerName: PlannerName,
+                     preparedQuery: PreparedQuerySemantics,
+                     createFingerprintReference: Option[PlanFingerprint] => PlanFingerprintReference,
+                     config: CypherCompilerConfiguration): ExecutionPlan =
+    try {
+      interpretedProducer.parallel(periodicCommit, logicalPlan, pipeBuildContext, planContext, tracer, preparedQuery,
+                                   createFingerprintReference, config)
+    } catch {
+      case e: CantCompileQueryException =>
+        fallback(preparedQuery, planContext.notificationLogger())
+        interpretedProducer(periodicCommit, logicalPlan, pipeBuildContext, planContext, tracer, preparedQuery,
+                            createFingerprintReference, config)
+    }
+
+  override def compiledProducer = throw new InternalException("This should never be called")
+
+  override def fallback(preparedQuery: PreparedQuerySemantics, notificationLogger: InternalNotificationLogger): Unit =
+    if (useErrorsOverWarnings)
+      throw new InvalidArgumentException("The given query is not currently supported in the selected runtime")
+    else
+      notificationLogger.log(RuntimeUnsupportedNotification)
+}
+
 case class InterpretedPlanBuilder(clock: Clock, monitors: Monitors,typeConverter: RuntimeTypeConverter) {
 
   def apply(periodicCommit: Option[PeriodicCommit], logicalPlan: LogicalPlan, pipeBuildContext: PipeExecutionBuilderContext,
@@ -121,6 +151,26 @@ case class InterpretedPlanBuilder(clock: Clock, monitors: Monitors,typeConverter
                                    .build(periodicCommit, logicalPlan)(pipeBuildContext, planContext),
                                  planContext, preparedQuery, createFingerprintReference, config, typeConverter)
     }
+
+  /*
+   * Splits the scan of the plan across workers, for read-only queries whose plan has a sort or an aggregation over
+   * rows streaming from a scan.
+   */
+  def parallel(periodicCommit: Option[PeriodicCommit], logicalPlan: LogicalPlan, pipeBuildContext: PipeExecutionBuilderContext,
+               planContext: PlanContext, tracer: CompilationPhaseTracer, preparedQuery: PreparedQuerySemantics,
+               createFingerprintReference: Option[PlanFingerprint] => PlanFingerprintReference,
+               config: CypherCompilerConfiguration) =
+    closing(tracer.beginPhase(PIPE_BUILDING)) {
+      val pipeInfo = new PipeExecutionPlanBuilder(clock, monitors).build(periodicCommit, logicalPlan)(pipeBuildContext, planContext)
+      if (pipeInfo.updating || pipeInfo.periodicCommit.isDefined)
+        throw new CantCompileQueryException("Only read-only queries can run in the parallel runtime")
+      val executor = config.parallelExecutor.getOrElse(
+        throw new CantCompileQueryException("There are no threads to run the workers of the parallel runtime on"))
+      val workers = if (config.parallelWorkers > 0) config.parallelWorkers else Runtime.getRuntime.availableProcessors()
+      val pipe = ParallelPipeRewriter(pipeInfo.pipe, workers, executor, config.maxMaterializedRows)
+      interpretedToExecutionPlan(pipeInfo.copy(pipe = pipe), planContext, preparedQuery, createFingerprintReference,
+                                 config, typeConverter, ParallelRuntimeName)
+    }
 }
 
 case class CompiledPlanBuilder(clock: Clock, structure:CodeStructure[GeneratedQuery]) {
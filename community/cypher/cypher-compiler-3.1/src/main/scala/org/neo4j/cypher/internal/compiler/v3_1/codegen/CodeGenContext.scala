@@ -32,6 +32,7 @@ case class Variable(name: String, codeGenType: CodeGenType, nullable: Boolean =
 class CodeGenContext(val semanticTable: SemanticTable, idMap: Map[LogicalPlan, Id], val namer: Namer = Namer()) {
 
   private val variables: mutable.Map[String, Variable] = mutable.Map()
+  private val aggregationResults: mutable.Set[String] = mutable.Set()
   private val probeTables: mutable.Map[CodeGenPlan, JoinData] = mutable.Map()
   private val parents: mutable.Stack[CodeGenPlan] = mutable.Stack()
   val operatorIds: mutable.Map[Id, String] = mutable.Map()
@@ -42,6 +43,14 @@ class CodeGenContext(val semanticTable: SemanticTable, idMap: Map[LogicalPlan, I
 
   def getVariable(queryVariable: String): Variable = variables(queryVariable)
 
+  // variables holding the computed value of an aggregation function, which are projected as they are
+  def addAggregationResult(queryVariable: String, variable: Variable) {
+    addVariable(queryVariable, variable)
+    aggregationResults += queryVariable
+  }
+
+  def isAggregationResult(queryVariable: String): Boolean = aggregationResults.contains(queryVariable)
+
   def variableQueryVariables(): Set[String] = variables.keySet.toSet
 
   def addProbeTable(plan: CodeGenPlan, codeThunk: JoinData) {
@@ -44,6 +44,32 @@ case object LongToCountTable extends CountingJoinTableType
 case object LongsToCountTable extends CountingJoinTableType
 case class LongToListTable(structure: Map[String, CodeGenType], localMap: Map[String, String]) extends RecordingJoinTableType
 case class LongsToListTable(structure: Map[String, CodeGenType], localMap: Map[String, String]) extends RecordingJoinTableType
+// not used for joins, but built in a method of its own just like the join tables
+case class AggregationTable(numberOfKeys: Int, functions: Seq[AggregationFunction]) extends JoinTableType
+
+sealed trait AggregationFunction {
+  // whether the result is a primitive count rather than an object
+  def isCount: Boolean = false
+  // whether the result is null when there were no values to aggregate
+  def nullable: Boolean = false
+}
+case object CountRowsAggregation extends AggregationFunction {
+  override def isCount = true
+}
+case object CountAggregation extends AggregationFunction {
+  override def isCount = true
+}
+case object SumAggregation extends AggregationFunction
+case object AvgAggregation extends AggregationFunction {
+  override def nullable = true
+}
+case object MinAggregation extends AggregationFunction {
+  override def nullable = true
+}
+case object MaxAggregation extends AggregationFunction {
+  override def nullable = true
+}
+case object CollectAggregation extends AggregationFunction
 
 /**
   * Describes the SPI for generating a method.
@@ -73,6 +99,8 @@ trait MethodStructure[E] {
   def updateProbeTable(structure: Map[String, CodeGenType], tableVar: String, tableType: RecordingJoinTableType, keyVars: Seq[String], element: E): Unit
   def probe(tableVar: String, tableType: JoinTableType, keyVars: Seq[String])(block: MethodStructure[E]=>Unit): Unit
   def updateProbeTableCount(tableVar: String, tableType: CountingJoinTableType, keyVar: Seq[String]): Unit
+  def updateAggregationTable(tableVar: String, tableType: AggregationTable, keyVars: Seq[String], values: Seq[E]): Unit
+  def iterateAggregationTable(tableVar: String, tableType: AggregationTable, keyVars: Seq[String], resultVars: Seq[String])(block: MethodStructure[E]=>Unit): Unit
   def allocateProbeTable(tableVar: String, tableType: JoinTableType): Unit
   def invokeMethod(resultType: JoinTableType, resultVar: String, methodName: String)(block: MethodStructure[E]=>Unit): Unit
   def coerceToBoolean(propertyExpression: E): E
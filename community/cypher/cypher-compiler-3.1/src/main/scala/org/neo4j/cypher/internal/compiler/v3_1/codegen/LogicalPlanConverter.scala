@@ -47,6 +47,7 @@ object LogicalPlanConverter {
     case p: plans.Limit => limitAsCodeGenPlan(p)
     case p: ProduceResult => produceResultsAsCodeGenPlan(p)
     case p: plans.Projection => projectionAsCodeGenPlan(p)
+    case p: Aggregation => aggregationAsCodeGenPlan(p)
 
     case _ =>
       throw new CantCompileQueryException(s"$logicalPlan is not yet supported")
@@ -465,6 +466,73 @@ object LogicalPlanConverter {
     }
   }
 
+  private def aggregationAsCodeGenPlan(aggregation: Aggregation) = new CodeGenPlan {
+
+    override val logicalPlan: LogicalPlan = aggregation
+
+    // aggregations ordered by name, so that the table is built and read with the same function order
+    private val aggregations: Seq[(String, AggregationFunction, Option[ast.Expression])] =
+      aggregation.aggregationExpression.toSeq.sortBy(_._1).map {
+        case (name, _: ast.CountStar) => (name, CountRowsAggregation, None)
+        case (name, f: ast.FunctionInvocation) if !f.distinct && f.args.size == 1 =>
+          val function = f.function match {
+            case ast.functions.Count => CountAggregation
+            case ast.functions.Sum => SumAggregation
+            case ast.functions.Avg => AvgAggregation
+            case ast.functions.Min => MinAggregation
+            case ast.functions.Max => MaxAggregation
+            case ast.functions.Collect => CollectAggregation
+            case _ => throw new CantCompileQueryException(s"Aggregation of $f is not yet supported")
+          }
+          (name, function, Some(f.args.head))
+        case (_, e) =>
+          throw new CantCompileQueryException(s"Aggregation of $e is not yet supported")
+      }
+
+    override def produce(context: CodeGenContext): (Option[JoinTableMethod], Seq[Instruction]) = {
+      context.pushParent(this)
+      val (Some(table), tableInstructions) = asCodeGenPlan(aggregation.left).produce(context)
+      val opName = context.registerOperator(aggregation)
+      val buildMethod = MethodInvocation(Set(opName), table, context.namer.newMethodName(), tableInstructions)
+
+      // the incoming variables are still in scope here, re-bind the grouping keys to the table keys
+      val groupingKeys = groupingNodes(context)
+      val keys = groupingKeys.map(_._2).distinct
+      val tableKeys = keys.map(key => key -> Variable(context.namer.newVarName(), CodeGenType.primitiveNode)).toMap
+      groupingKeys.foreach { case (name, key) => context.addVariable(name, tableKeys(key)) }
+      val results = aggregations.map {
+        case (name, function, _) =>
+          val codeGenType = if (function.isCount) CodeGenType.primitiveInt else CodeGenType.Any
+          val result = Variable(context.namer.newVarName(), codeGenType, function.nullable)
+          context.addAggregationResult(name, result)
+          result
+      }
+
+      val (methodHandle, action) = context.popParent().consume(context, this)
+      (methodHandle, Seq(buildMethod, AggregationTableScan(opName, table, keys.map(tableKeys), results, action)))
+    }
+
+    override def consume(context: CodeGenContext, child: CodeGenPlan): (Option[JoinTableMethod], Instruction) = {
+      val opName = context.registerOperator(aggregation)
+      val keys = groupingNodes(context).map(_._2).distinct
+      val arguments = aggregations.map {
+        case (_, function, argument) => function -> argument.map(ExpressionConverter.createProjection(_)(context))
+      }
+      val buildTable = BuildAggregationTable(opName, context.namer.newVarName(), keys, arguments)
+
+      (Some(JoinTableMethod(buildTable.name, buildTable.tableType)), buildTable)
+    }
+
+    // grouping keys ordered by name, so that the table is built and read with the same key order
+    private def groupingNodes(context: CodeGenContext): Seq[(String, Variable)] =
+      aggregation.groupingExpressions.toSeq.sortBy(_._1).map {
+        case (name, node@ast.Variable(key)) if context.semanticTable.isNode(node) && !context.getVariable(key).nullable =>
+          name -> context.getVariable(key)
+        case (_, e) =>
+          throw new CantCompileQueryException(s"Grouping on $e is not yet supported")
+      }
+  }
+
   trait SingleChildPlan extends CodeGenPlan {
 
     final override def produce(context: CodeGenContext): (Option[JoinTableMethod], Seq[Instruction]) = {
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.codegen.ir
+
+import org.neo4j.cypher.internal.compiler.v3_1.codegen._
+import org.neo4j.cypher.internal.compiler.v3_1.codegen.ir.expressions.CodeGenExpression
+import org.neo4j.cypher.internal.frontend.v3_1.InternalException
+
+case class BuildAggregationTable(opName: String, name: String, keys: Seq[Variable],
+                                 aggregations: Seq[(AggregationFunction, Option[CodeGenExpression])]) extends Instruction {
+
+  val tableType = AggregationTable(keys.size, aggregations.map(_._1))
+
+  override def init[E](generator: MethodStructure[E])(implicit context: CodeGenContext) = {
+    aggregations.foreach {
+      case (_, argument) => argument.foreach(_.init(generator))
+    }
+    generator.allocateProbeTable(name, tableType)
+  }
+
+  override def body[E](generator: MethodStructure[E])(implicit context: CodeGenContext) = {
+    val values = aggregations.map {
+      case (_, Some(argument)) => generator.box(argument.generateExpression(generator), argument.codeGenType)
+      case (_, None) => generator.constantExpression(null)
+    }
+    generator.updateAggregationTable(name, tableType, keys.map(_.name), values)
+  }
+
+  override protected def operatorId = Set(opName)
+
+  override protected def children = Seq.empty
+}
+
+case class AggregationTableScan(opName: String, table: JoinTableMethod, keys: Seq[Variable], results: Seq[Variable],
+                                action: Instruction) extends Instruction {
+
+  override def body[E](generator: MethodStructure[E])(implicit context: CodeGenContext) = table.tableType match {
+    case tableType: AggregationTable =>
+      generator.trace(opName) { traced =>
+        traced.iterateAggregationTable(table.name, tableType, keys.map(_.name), results.map(_.name)) { body =>
+          body.incrementRows()
+          action.body(body)
+        }
+      }
+    case tableType =>
+      throw new InternalException(s"Expected an aggregation table, got $tableType")
+  }
+
+  override protected def operatorId = Set(opName)
+
+  override protected def children = Seq(action)
+}
@@ -96,7 +96,8 @@ object ExpressionConverter {
     variable.codeGenType.ct match {
       case CTNode => NodeProjection(variable)
       case CTRelationship => RelationshipProjection(variable)
-      case _ => throw new InternalException("The compiled runtime only handles variables pointing to rels and nodes at this time")
+      case _ if context.isAggregationResult(variableQueryVariable) => LoadVariable(variable)
+      case _ => throw new InternalException("The compiled runtime only handles variables pointing to rels, nodes and aggregation results at this time")
     }
   }
 
@@ -110,6 +111,9 @@ object ExpressionConverter {
       case rel@ast.Variable(name) if context.semanticTable.isRelationship(rel) =>
         RelationshipExpression(context.getVariable(name))
 
+      case ast.Variable(name) if context.isAggregationResult(name) =>
+        LoadVariable(context.getVariable(name))
+
       case ast.Property(node@ast.Variable(name), propKey) if context.semanticTable.isNode(node) =>
         val token = propKey.id(context.semanticTable).map(_.id)
         NodeProperty(token, propKey.name, context.getVariable(name), context.namer.newVarName())
@@ -19,9 +19,12 @@
  */
 package org.neo4j.cypher.internal.compiler.v3_1.executionplan
 
+import java.util.concurrent.Executor
+
 import org.neo4j.cypher.internal.compiler.v3_1.helpers.RuntimeTypeConverter
 import org.neo4j.cypher.internal.compiler.v3_1.pipes._
 import org.neo4j.cypher.internal.compiler.v3_1.planDescription.InternalPlanDescription
+import org.neo4j.cypher.internal.compiler.v3_1.profiler.CardinalityFeedback
 import org.neo4j.cypher.internal.compiler.v3_1.spi.{CSVResources, QueryContext}
 import org.neo4j.cypher.internal.compiler.v3_1.{ExecutionMode, ExplainMode, _}
 import org.neo4j.cypher.internal.frontend.v3_1.CypherException
@@ -29,13 +32,18 @@ import org.neo4j.cypher.internal.frontend.v3_1.CypherException
 import scala.collection.mutable
 
 case class DefaultExecutionResultBuilderFactory(pipeInfo: PipeInfo, columns: List[String],
-                                                typeConverter: RuntimeTypeConverter) extends ExecutionResultBuilderFactory {
+                                                typeConverter: RuntimeTypeConverter,
+                                                maxMaterializedRows: Long = 0,
+                                                batchSize: Int = 0,
+                                                csvParseAheadRows: Int = 0,
+                                                csvParser: Option[Executor] = None)
+  extends ExecutionResultBuilderFactory {
   def create(): ExecutionResultBuilder =
     ExecutionWorkflowBuilder()
 
   case class ExecutionWorkflowBuilder() extends ExecutionResultBuilder {
     private val taskCloser = new TaskCloser
-    private var externalResource: ExternalCSVResource = new CSVResources(taskCloser)
+    private var externalResource: ExternalCSVResource = new CSVResources(taskCloser, csvParseAheadRows, csvParser)
     private var maybeQueryContext: Option[QueryContext] = None
     private var pipeDecorator: PipeDecorator = NullPipeDecorator
     private var exceptionDecorator: CypherException => CypherException = identity
@@ -58,11 +66,20 @@ case class DefaultExecutionResultBuilderFactory(pipeInfo: PipeInfo, columns: Lis
       exceptionDecorator = newDecorator
     }
 
+    def setCardinalityFeedback(feedback: CardinalityFeedback) {
+      pipeDecorator = feedback
+      taskCloser.addTask(success => if (success) feedback.report())
+    }
+
     def build(queryId: AnyRef, planType: ExecutionMode, params: Map[String, Any], notificationLogger: InternalNotificationLogger): InternalExecutionResult = {
       taskCloser.addTask(queryContext.transactionalContext.close)
+      val spillFiles = new SpillFiles(maxMaterializedRows)
+      taskCloser.addTask(_ => spillFiles.close())
       val state = new QueryState(queryContext, externalResource, params, pipeDecorator, queryId = queryId,
                                  triadicState = mutable.Map.empty, repeatableReads = mutable.Map.empty,
-                                 typeConverter = typeConverter)
+                                 typeConverter = typeConverter,
+                                 materialization = MaterializationBudget(maxMaterializedRows, spillFiles),
+                                 batchSize = batchSize)
       try {
         try {
           createResults(state, planType, notificationLogger)
@@ -31,7 +31,7 @@ import org.neo4j.cypher.internal.compiler.v3_1.planDescription.InternalPlanDescr
 import org.neo4j.cypher.internal.compiler.v3_1.planDescription.InternalPlanDescription.Arguments
 import org.neo4j.cypher.internal.compiler.v3_1.planner.logical.plans.LogicalPlan
 import org.neo4j.cypher.internal.compiler.v3_1.planner.{CantCompileQueryException, CantHandleQueryException}
-import org.neo4j.cypher.internal.compiler.v3_1.profiler.Profiler
+import org.neo4j.cypher.internal.compiler.v3_1.profiler.{CardinalityFeedback, Profiler}
 import org.neo4j.cypher.internal.compiler.v3_1.spi._
 import org.neo4j.cypher.internal.compiler.v3_1.{ExecutionMode, ProfileMode, _}
 import org.neo4j.cypher.internal.frontend.v3_1.PeriodicCommitInOpenTransactionException
@@ -111,13 +111,22 @@ object InterpretedExecutionPlanBuilder {
   def interpretedToExecutionPlan(pipeInfo: PipeInfo, planContext: PlanContext, inputQuery: PreparedQuerySemantics,
                                  createFingerprintReference: Option[PlanFingerprint] => PlanFingerprintReference,
                                  config: CypherCompilerConfiguration,
-                                 typeConverter: RuntimeTypeConverter) = {
+                                 typeConverter: RuntimeTypeConverter,
+                                 runtimeName: RuntimeName = InterpretedRuntimeName) = {
     val PipeInfo(pipe, updating, periodicCommitInfo, fp, planner) = pipeInfo
     val columns = inputQuery.statement.returnColumns
-    val resultBuilderFactory = DefaultExecutionResultBuilderFactory(pipeInfo, columns, typeConverter)
-    val func = getExecutionPlanFunction(periodicCommitInfo, inputQuery.queryText, updating, resultBuilderFactory, planContext.notificationLogger())
+    // batches read ahead of the rows that are consumed, so updating queries keep executing a row at a time
+    val batchSize = if (updating) 0 else config.interpretedBatchSize
+    val resultBuilderFactory = DefaultExecutionResultBuilderFactory(pipeInfo, columns, typeConverter,
+                                                                    config.maxMaterializedRows, batchSize,
+                                                                    config.loadCsvParseAheadRows, config.loadCsvParser)
+    val fingerprint = createFingerprintReference(fp)
+    // the rows of the pipes that the workers of the parallel runtime run never make it to the decorator of the query
+    val cardinalityFeedback =
+      if (runtimeName == ParallelRuntimeName) None else createCardinalityFeedback(pipe, fp, fingerprint, config)
+    val func = getExecutionPlanFunction(periodicCommitInfo, inputQuery.queryText, updating, resultBuilderFactory,
+                                        planContext.notificationLogger(), cardinalityFeedback)
     new ExecutionPlan {
-      private val fingerprint = createFingerprintReference(fp)
 
       override def run(queryContext: QueryContext, planType: ExecutionMode, params: Map[String, Any]) =
         func(queryContext, planType, params)
@@ -126,12 +135,27 @@ object InterpretedExecutionPlanBuilder {
       override def plannerUsed = planner
       override def isStale(lastTxId: () => Long, statistics: GraphStatistics) = fingerprint.isStale(lastTxId, statistics)
 
-      override def runtimeUsed = InterpretedRuntimeName
+      override def runtimeUsed = runtimeName
 
       override def notifications(planContext: PlanContext) = checkForNotifications(pipe, planContext, config)
     }
   }
 
+  /*
+   * Plans without a fingerprint are never replanned, so there is no point in collecting feedback for them
+   */
+  private def createCardinalityFeedback(pipe: Pipe, fp: Option[PlanFingerprint], fingerprint: PlanFingerprintReference,
+                                        config: CypherCompilerConfiguration): Option[() => CardinalityFeedback] =
+    if (config.cardinalityDivergenceThreshold <= 0 || fp.isEmpty)
+      None
+    else {
+      val estimates = CardinalityFeedback.estimatesAlongLeftmostPath(pipe)
+      if (estimates.isEmpty)
+        None
+      else
+        Some(() => new CardinalityFeedback(estimates, config.cardinalityDivergenceThreshold, fingerprint.recordExecution))
+    }
+
   private def checkForNotifications(pipe: Pipe, planContext: PlanContext, config: CypherCompilerConfiguration): Seq[InternalNotification] = {
     val notificationCheckers = Seq(checkForEagerLoadCsv,
       CheckForLoadCsvAndMatchOnLargeLabel(planContext, config.nonIndexedLabelWarningThreshold))
@@ -143,7 +167,8 @@ object InterpretedExecutionPlanBuilder {
                                        queryId: AnyRef,
                                        updating: Boolean,
                                        resultBuilderFactory: ExecutionResultBuilderFactory,
-                                       notificationLogger: InternalNotificationLogger):
+                                       notificationLogger: InternalNotificationLogger,
+                                       cardinalityFeedback: Option[() => CardinalityFeedback]):
   (QueryContext, ExecutionMode, Map[String, Any]) => InternalExecutionResult =
     (queryContext: QueryContext, planType: ExecutionMode, params: Map[String, Any]) => {
       val builder = resultBuilderFactory.create()
@@ -160,6 +185,8 @@ object InterpretedExecutionPlanBuilder {
 
       if (profiling)
         builder.setPipeDecorator(new Profiler())
+      else if (planType == NormalMode)
+        cardinalityFeedback.foreach(feedback => builder.setCardinalityFeedback(feedback()))
 
       builder.build(queryId, planType, params, notificationLogger)
     }
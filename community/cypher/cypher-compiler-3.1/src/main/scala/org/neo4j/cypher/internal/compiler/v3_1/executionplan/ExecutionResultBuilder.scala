@@ -21,6 +21,7 @@ package org.neo4j.cypher.internal.compiler.v3_1.executionplan
 
 import org.neo4j.cypher.internal.compiler.v3_1.{ExecutionMode, InternalNotificationLogger}
 import org.neo4j.cypher.internal.compiler.v3_1.pipes._
+import org.neo4j.cypher.internal.compiler.v3_1.profiler.CardinalityFeedback
 import org.neo4j.cypher.internal.compiler.v3_1.spi.QueryContext
 import org.neo4j.cypher.internal.frontend.v3_1.CypherException
 
@@ -29,6 +30,7 @@ trait ExecutionResultBuilder {
   def setLoadCsvPeriodicCommitObserver(batchRowCount: Long)
   def setPipeDecorator(newDecorator: PipeDecorator)
   def setExceptionDecorator(newDecorator: CypherException => CypherException)
+  def setCardinalityFeedback(feedback: CardinalityFeedback)
   def build(queryId: AnyRef, planType: ExecutionMode, params: Map[String, Any], notificationLogger: InternalNotificationLogger): InternalExecutionResult
 }
 
@@ -28,18 +28,46 @@ case class PlanFingerprint(creationTimeMillis: Long, txId: Long, snapshot: Graph
 class PlanFingerprintReference(clock: Clock, minimalTimeToLive: Long, statsDivergenceThreshold : Double,
                                private var fingerprint: Option[PlanFingerprint]) {
 
+  import PlanFingerprintReference._
+
+  // decayed share of the recent executions that diverged from the estimates of the plan
+  private var divergenceRatio = 0.0
+
+  /*
+   * Called when an execution of the plan has finished, telling whether the rows it produced diverged from what the
+   * plan was estimated to produce. Once most recent executions have diverged the plan is considered stale, regardless
+   * of the statistics, as soon as it has lived for the minimal time to live. A single outlier does not get it replanned.
+   */
+  def recordExecution(diverged: Boolean): Unit = synchronized {
+    divergenceRatio = divergenceRatio * (1 - DIVERGENCE_DECAY) + (if (diverged) DIVERGENCE_DECAY else 0.0)
+  }
+
+  private def divergent: Boolean = synchronized {
+    if (divergenceRatio >= DIVERGENT_RATIO) {
+      divergenceRatio = 0.0
+      true
+    } else
+      false
+  }
+
   def isStale(lastCommittedTxId: () => Long, statistics: GraphStatistics): Boolean = {
     fingerprint.fold(false) { f =>
       lazy val currentTimeMillis = clock.millis()
       lazy val currentTxId = lastCommittedTxId()
 
-      f.creationTimeMillis + minimalTimeToLive <= currentTimeMillis &&
+      f.creationTimeMillis + minimalTimeToLive <= currentTimeMillis && (divergent ||
       check(currentTxId != f.txId,
         () => { fingerprint = Some(f.copy(creationTimeMillis = currentTimeMillis)) }) &&
       check(f.snapshot.diverges(f.snapshot.recompute(statistics), statsDivergenceThreshold),
-        () => { fingerprint = Some(f.copy(creationTimeMillis = currentTimeMillis, txId = currentTxId)) })
+        () => { fingerprint = Some(f.copy(creationTimeMillis = currentTimeMillis, txId = currentTxId)) }))
     }
   }
 
   private def check(test: => Boolean, ifFalse: () => Unit ) = if (test) { true } else { ifFalse() ; false }
 }
+
+object PlanFingerprintReference {
+  // weight of the latest execution in the divergence ratio, it takes three diverging executions in a row to replan
+  val DIVERGENCE_DECAY = 0.25
+  val DIVERGENT_RATIO = 0.5
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.parallel
+
+import java.util.concurrent.TimeUnit.MILLISECONDS
+import java.util.concurrent.atomic.AtomicReference
+import java.util.concurrent.{ArrayBlockingQueue, CountDownLatch, Executor}
+
+import org.neo4j.cypher.internal.compiler.v3_1.ExecutionContext
+import org.neo4j.cypher.internal.compiler.v3_1.pipes.{MaterializationBudget, NullPipeDecorator, QueryState}
+
+import scala.collection.mutable.ArrayBuffer
+
+/**
+ * Hands the rows of a scan out to workers in morsels, i.e. chunks of rows that each worker takes off a shared queue
+ * as soon as it's done with the last one, so that workers that get through their rows faster take on more of them.
+ * The scan itself runs on the query thread, since the transaction of the query can't be used from other threads,
+ * while each worker reads the graph in a read transaction of its own.
+ */
+class MorselDriver(executor: Executor, workers: Int, morselSize: Int = MorselDriver.MORSEL_SIZE) {
+  import MorselDriver._
+
+  /*
+   * Runs the work on every worker, over the rows that the worker is handed, and returns what the workers came up with
+   * once all of them are done. The first failure, of the scan or of any of the workers, is rethrown once all workers
+   * have stopped. The budget is called once for every worker.
+   */
+  def run[T](rows: Iterator[ExecutionContext], state: QueryState, budget: () => MaterializationBudget)
+            (work: (Iterator[ExecutionContext], QueryState) => T): Seq[T] = {
+    val queue = new ArrayBlockingQueue[Array[ExecutionContext]](workers * QUEUED_MORSELS_PER_WORKER)
+    val failure = new AtomicReference[Throwable]()
+    val done = new CountDownLatch(workers)
+    val results = ArrayBuffer.fill[Option[T]](workers)(None)
+
+    (0 until workers).foreach { worker =>
+      val task = new Runnable {
+        override def run(): Unit = try {
+          val query = state.query.beginParallelReadContext()
+          var success = false
+          try {
+            val workerState = new QueryState(query, state.resources, state.params, NullPipeDecorator, state.timeReader,
+                                             queryId = state.queryId, typeConverter = state.typeConverter,
+                                             materialization = budget())
+            results(worker) = Some(work(new MorselInput(queue, failure), workerState))
+            success = true
+          } finally {
+            query.transactionalContext.close(success)
+          }
+        } catch {
+          case t: Throwable => failure.compareAndSet(null, t)
+        } finally {
+          done.countDown()
+        }
+      }
+
+      try {
+        executor.execute(task)
+      } catch {
+        case t: Throwable =>
+          failure.compareAndSet(null, t)
+          done.countDown()
+      }
+    }
+
+    // gives up on handing out rows once something has failed, or once there are no workers left to take them
+    def handOut(morsel: Array[ExecutionContext]) {
+      while (!queue.offer(morsel, POLL_MILLIS, MILLISECONDS) && failure.get == null && done.getCount > 0) {}
+    }
+
+    try {
+      while (rows.hasNext && failure.get == null) {
+        val morsel = new ArrayBuffer[ExecutionContext](morselSize)
+        while (morsel.size < morselSize && rows.hasNext)
+          morsel += rows.next()
+        handOut(morsel.toArray)
+      }
+      (0 until workers).foreach(_ => handOut(END))
+    } catch {
+      case t: Throwable => failure.compareAndSet(null, t)
+    }
+
+    var interrupted = false
+    while (done.getCount > 0) {
+      try {
+        done.await()
+      } catch {
+        case e: InterruptedException =>
+          failure.compareAndSet(null, e)
+          interrupted = true
+      }
+    }
+    if (interrupted)
+      Thread.currentThread().interrupt()
+
+    val cause = failure.get
+    if (cause != null)
+      throw cause
+    results.flatten
+  }
+}
+
+object MorselDriver {
+  val MORSEL_SIZE = 1000
+  // how far the scan may run ahead of the workers
+  private val QUEUED_MORSELS_PER_WORKER = 4
+  // how often waiting threads check whether something has failed in the meantime
+  private val POLL_MILLIS = 10L
+  // tells a worker that there are no more rows, one is queued for every worker
+  private val END = new Array[ExecutionContext](0)
+
+  /*
+   * The rows that a single worker is handed, morsel by morsel. A worker stops taking rows once something has failed,
+   * the failure is reported by the driver.
+   */
+  private class MorselInput(queue: ArrayBlockingQueue[Array[ExecutionContext]], failure: AtomicReference[Throwable])
+    extends Iterator[ExecutionContext] {
+    private var morsel: Array[ExecutionContext] = Array.empty
+    private var position = 0
+    private var ended = false
+
+    override def hasNext: Boolean = {
+      while (!ended && position == morsel.length) {
+        if (failure.get != null)
+          ended = true
+        else {
+          val next = queue.poll(POLL_MILLIS, MILLISECONDS)
+          if (next eq END)
+            ended = true
+          else if (next != null) {
+            morsel = next
+            position = 0
+          }
+        }
+      }
+      !ended
+    }
+
+    override def next(): ExecutionContext = {
+      if (!hasNext)
+        throw new NoSuchElementException
+      val row = morsel(position)
+      position += 1
+      row
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.parallel
+
+import java.util.concurrent.Executor
+
+import org.neo4j.cypher.internal.compiler.v3_1.ExecutionContext
+import org.neo4j.cypher.internal.compiler.v3_1.executionplan.Effects
+import org.neo4j.cypher.internal.compiler.v3_1.pipes._
+import org.neo4j.cypher.internal.compiler.v3_1.planDescription.{InternalPlanDescription, NoChildren, PlanDescriptionImpl}
+import org.neo4j.cypher.internal.compiler.v3_1.symbols.SymbolTable
+
+/**
+ * Runs a sort, top or aggregation, and the pipes between it and the scan it reads from, on several workers at once,
+ * each of them over its share of the scanned rows, and merges what the workers come up with. Queries that are
+ * profiled, or whose transaction holds changes that the read transactions of the workers wouldn't see, run the pipes
+ * on the query thread as usual.
+ *
+ * Every worker gets its share of the materialization budget of the query.
+ */
+case class ParallelPipe(breaker: Pipe, merge: PartialResultsMerge, workers: Int, executor: Executor,
+                        maxMaterializedRows: Long) extends Pipe {
+
+  private val leaf: Pipe = leafOf(breaker)
+
+  override def monitor: PipeMonitor = breaker.monitor
+
+  override def createResults(state: QueryState): Iterator[ExecutionContext] =
+    if ((state.decorator ne NullPipeDecorator) || state.query.transactionHasChanges)
+      breaker.createResults(state)
+    else {
+      val driver = new MorselDriver(executor, workers)
+      val partials = driver.run(leaf.createResults(state), state, () => workerBudget(state)) { (input, workerState) =>
+        merge.partial(withInput(breaker, input), workerState)
+      }
+      merge.merge(partials, state)
+    }
+
+  protected def internalCreateResults(state: QueryState): Iterator[ExecutionContext] =
+    throw new UnsupportedOperationException("This method should never be called on ParallelPipe")
+
+  private def leafOf(pipe: Pipe): Pipe = if (pipe.sources.isEmpty) pipe else leafOf(pipe.sources.head)
+
+  // a copy of the pipes of a worker, which reads the rows it is handed instead of running the scan
+  private def withInput(pipe: Pipe, input: Iterator[ExecutionContext]): Pipe =
+    if (pipe.sources.isEmpty)
+      new FeedPipe(input, pipe.symbols)(pipe.monitor)
+    else
+      pipe.dup(List(withInput(pipe.sources.head, input)))
+
+  private def workerBudget(state: QueryState): MaterializationBudget =
+    if (maxMaterializedRows > 0)
+      MaterializationBudget(math.max(1L, maxMaterializedRows / workers), state.materialization.spillFiles)
+    else
+      UnlimitedMaterialization
+
+  override def symbols: SymbolTable = breaker.symbols
+
+  override def planDescription: InternalPlanDescription = breaker.planDescription
+
+  override def sources: Seq[Pipe] = Seq(breaker)
+
+  override def localEffects = Effects()
+
+  override def effects: Effects = breaker.effects
+
+  override def exists(pred: Pipe => Boolean): Boolean = pred(this) || breaker.exists(pred)
+
+  override def dup(sources: List[Pipe]): Pipe = {
+    val (head :: Nil) = sources
+    copy(breaker = head)
+  }
+}
+
+/**
+ * Emits the rows it is fed from outside of the pipes, be it the rows a worker is handed or what the workers came up
+ * with.
+ */
+class FeedPipe(rows: Iterator[ExecutionContext], val symbols: SymbolTable)(implicit val monitor: PipeMonitor)
+  extends Pipe {
+
+  protected def internalCreateResults(state: QueryState): Iterator[ExecutionContext] = rows
+
+  override def planDescription: InternalPlanDescription =
+    PlanDescriptionImpl(this.id, "Feed", NoChildren, Seq.empty, variables)
+
+  override def sources: Seq[Pipe] = Seq.empty
+
+  override def localEffects = Effects()
+
+  override def exists(pred: Pipe => Boolean): Boolean = pred(this)
+
+  override def dup(sources: List[Pipe]): Pipe = this
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.parallel
+
+import java.util.concurrent.Executor
+
+import org.neo4j.cypher.internal.compiler.v3_1.pipes._
+import org.neo4j.cypher.internal.compiler.v3_1.planner.CantCompileQueryException
+
+/**
+ * Finds the part of a plan that the parallel runtime can split across workers: a sort, top or aggregation on the path
+ * of single source pipes down from the top of the plan, with nothing but pipes that work on a row at a time between
+ * it and the scan it reads from. The lowest such pipe is run by a ParallelPipe, the rest of the plan stays as it is.
+ */
+object ParallelPipeRewriter {
+
+  def apply(plan: Pipe, workers: Int, executor: Executor, maxMaterializedRows: Long): Pipe = {
+    def rewrite(pipe: Pipe): Option[Pipe] = PartialResultsMerge(pipe) match {
+      case Some(merge) if streamsFromScan(pipe.sources.head) =>
+        Some(ParallelPipe(pipe, merge, workers, executor, maxMaterializedRows))
+      case _ => pipe.sources match {
+        case Seq(source) => rewrite(source).map(rewritten => pipe.dup(List(rewritten)))
+        case _ => None
+      }
+    }
+
+    rewrite(plan).getOrElse(
+      throw new CantCompileQueryException("There is no scan followed by a sort or an aggregation to run in parallel"))
+  }
+
+  private def streamsFromScan(pipe: Pipe): Boolean = pipe match {
+    case _: AllNodesScanPipe | _: NodeByLabelScanPipe | _: NodeIndexScanPipe => true
+    case _: FilterPipe | _: ProjectionPipe | _: ExpandAllPipe | _: ExpandIntoPipe | _: OptionalExpandAllPipe |
+         _: OptionalExpandIntoPipe | _: VarLengthExpandPipe | _: ProjectEndpointsPipe | _: UnwindPipe =>
+      streamsFromScan(pipe.sources.head)
+    case _ => false
+  }
+}
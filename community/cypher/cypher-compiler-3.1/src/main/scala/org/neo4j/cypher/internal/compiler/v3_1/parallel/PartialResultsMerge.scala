@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.parallel
+
+import org.neo4j.cypher.internal.compiler.v3_1.ExecutionContext
+import org.neo4j.cypher.internal.compiler.v3_1.commands.expressions._
+import org.neo4j.cypher.internal.compiler.v3_1.pipes._
+
+import scala.collection.mutable.ArrayBuffer
+
+/**
+ * How the partial results that the workers come up with are combined into the result of the whole query.
+ */
+sealed trait PartialResultsMerge {
+  /*
+   * Runs the pipes of a worker. What it returns is read once the worker's read transaction has been closed, so it
+   * must not need the transaction any more.
+   */
+  def partial(worker: Pipe, state: QueryState): Iterator[ExecutionContext] = worker.createResults(state)
+
+  def merge(partials: Seq[Iterator[ExecutionContext]], state: QueryState): Iterator[ExecutionContext]
+}
+
+object PartialResultsMerge {
+  def apply(pipe: Pipe): Option[PartialResultsMerge] = pipe match {
+    case SortPipe(_, orderBy) => Some(SortedMerge(orderBy))
+    case top: TopPipe => Some(TopMerge(top))
+    case aggregation: EagerAggregationPipe if aggregation.aggregations.values.forall(AggregationMerge.canMerge) =>
+      Some(AggregationMerge(aggregation))
+    case _ => None
+  }
+}
+
+// every worker sorts its own rows, so all that is left to do is to merge the sorted runs
+case class SortedMerge(orderBy: Seq[SortDescription]) extends PartialResultsMerge {
+  override def merge(partials: Seq[Iterator[ExecutionContext]], state: QueryState): Iterator[ExecutionContext] =
+    SortedRuns.mergeSorted(partials.toIndexedSeq, new InnerOrdering(orderBy)(state))
+}
+
+// the top rows overall are among the top rows of the workers, so the top is taken once more over those
+case class TopMerge(top: TopPipe) extends PartialResultsMerge {
+  override def merge(partials: Seq[Iterator[ExecutionContext]], state: QueryState): Iterator[ExecutionContext] = {
+    val input = new FeedPipe(partials.iterator.flatten, top.sources.head.symbols)(top.monitor)
+    top.dup(List(input)).createResults(state)
+  }
+}
+
+/*
+ * The groups of the workers are aggregated once more, by aggregations that combine the values of the workers: counts
+ * and sums add up, the minimum is the minimum of the minimums, and so on. Collected lists are collected into a list of
+ * lists, which is flattened at the end.
+ */
+case class AggregationMerge(aggregation: EagerAggregationPipe) extends PartialResultsMerge {
+
+  private val mergingAggregations: Map[String, AggregationExpression] = aggregation.aggregations.map {
+    case (name, _: CountStar | _: Count | _: Sum) => name -> Sum(Variable(name))
+    case (name, _: Min) => name -> Min(Variable(name))
+    case (name, _: Max) => name -> Max(Variable(name))
+    case (name, _: Collect) => name -> Collect(Variable(name))
+    case (_, expression) => throw new IllegalArgumentException(s"Can't merge the partial results of $expression")
+  }
+
+  private val collected: Seq[String] = aggregation.aggregations.collect {
+    case (name, _: Collect) => name
+  }.toSeq
+
+  /*
+   * The groups that the aggregation spilled to disk are only aggregated as its output is read, which needs the read
+   * transaction of the worker, so the output is read right away. It is held in memory for as long as the budget of
+   * the worker allows, and spilled to disk after that.
+   */
+  override def partial(worker: Pipe, state: QueryState): Iterator[ExecutionContext] = {
+    val budget = state.materialization
+    val buffer = new ArrayBuffer[ExecutionContext]()
+    var spilled: SpillFile = null
+    worker.createResults(state).foreach { row =>
+      if (budget.isFull) {
+        if (spilled == null)
+          spilled = budget.spillFiles.create()
+        spilled.write(row)
+      } else {
+        budget.allocate(1)
+        buffer += row
+      }
+    }
+
+    val inMemory = budget.releaseWhenExhausted(buffer.size, buffer.iterator)
+    if (spilled == null) inMemory else inMemory ++ spilled.read(state.query)
+  }
+
+  override def merge(partials: Seq[Iterator[ExecutionContext]], state: QueryState): Iterator[ExecutionContext] = {
+    val input = new FeedPipe(partials.iterator.flatten, aggregation.symbols)(aggregation.monitor)
+    val merging = EagerAggregationPipe(input, aggregation.keyExpressions, mergingAggregations)()(aggregation.monitor)
+    merging.createResults(state).map { row =>
+      collected.foreach(name => row.put(name, row(name).asInstanceOf[Seq[Seq[Any]]].flatten))
+      row
+    }
+  }
+}
+
+object AggregationMerge {
+  def canMerge(aggregation: AggregationExpression): Boolean = aggregation match {
+    case _: CountStar | _: Count | _: Sum | _: Min | _: Max | _: Collect => true
+    case _ => false
+  }
+}
@@ -31,9 +31,10 @@ case class ApplyPipe(source: Pipe, inner: Pipe)(val estimatedCardinality: Option
     input.flatMap {
       (outerContext) =>
         val original = outerContext.clone()
-        val innerState = state.withInitialContext(outerContext)
+        val scope = state.materialization.scope()
+        val innerState = state.withInitialContext(outerContext, scope)
         val innerResults = inner.createResults(innerState)
-        innerResults.map { context => context ++ original }
+        scope.closeWhenExhausted(innerResults.map { context => context ++ original })
     }
 
   def planDescriptionWithoutCardinality =
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.pipes
+
+import org.neo4j.cypher.internal.compiler.v3_1.ExecutionContext
+
+/*
+ * A pipe that can pass its rows on in batches, see RowBatch. Batches are only used when the query state asks
+ * for them, and only between pipes that all know how to handle them - at any other boundary the batches are
+ * turned back into rows, so a plan can freely mix batching and non-batching pipes.
+ */
+trait BatchPipe extends Pipe {
+
+  // whether this pipe can produce batches, which for pipes with a source depends on the source as well
+  def producesBatches: Boolean
+
+  def createBatches(state: QueryState): Iterator[RowBatch]
+
+  override def createResults(state: QueryState): Iterator[ExecutionContext] =
+    if (BatchPipe.isBatching(state) && producesBatches)
+      createBatches(state).flatMap(_.toRows(state))
+    else
+      super.createResults(state)
+}
+
+object BatchPipe {
+
+  // profiling and the other decorators count and inspect single rows, so they always run row at a time
+  def isBatching(state: QueryState): Boolean = state.batchSize > 0 && (state.decorator eq NullPipeDecorator)
+
+  def producesBatches(pipe: Pipe): Boolean = pipe match {
+    case p: BatchPipe => p.producesBatches
+    case _ => false
+  }
+
+  def batchesOf(source: Pipe, state: QueryState): Iterator[RowBatch] = source match {
+    case p: BatchPipe => p.createBatches(state)
+    case _ => throw new IllegalStateException(s"$source does not produce batches")
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.pipes
+
+import org.neo4j.collection.primitive.{Primitive, PrimitiveLongObjectMap}
+import org.neo4j.cypher.internal.compiler.v3_1.ExecutionContext
+import org.neo4j.cypher.internal.compiler.v3_1.executionplan.{Effects, ReadsAllNodes, ReadsAllRelationships}
+import org.neo4j.cypher.internal.compiler.v3_1.planDescription.InternalPlanDescription.Arguments.ExpandExpression
+import org.neo4j.cypher.internal.frontend.v3_1.symbols._
+import org.neo4j.cypher.internal.frontend.v3_1.{InternalException, SemanticDirection}
+import org.neo4j.graphdb.{Node, Relationship}
+
+import scala.collection.mutable
+
+/*
+ * Finds whether two bound nodes are connected by a path of the given length, without enumerating all such paths
+ * like VarLengthExpandPipe does. Breadth first searches are run from both nodes, always growing the smaller
+ * frontier, until they meet - which finds a shortest path after visiting far fewer nodes than a search from one
+ * side only. At most one row is produced per input row, with the relationships of that shortest path.
+ *
+ * Since a shortest path is never longer than any other path, this is only correct for patterns whose minimum
+ * length is at most one.
+ */
+case class BidirectionalVarLengthExpandPipe(source: Pipe,
+                                            fromName: String,
+                                            relName: String,
+                                            toName: String,
+                                            dir: SemanticDirection,
+                                            projectedDir: SemanticDirection,
+                                            types: LazyTypes,
+                                            min: Int,
+                                            max: Option[Int])
+                                           (val estimatedCardinality: Option[Double] = None)
+                                           (implicit pipeMonitor: PipeMonitor) extends PipeWithSource(source, pipeMonitor) with RonjaPipe {
+
+  assert(min <= 1, "Only patterns of minimum length zero or one can be solved with a shortest path")
+
+  protected def internalCreateResults(input: Iterator[ExecutionContext], state: QueryState): Iterator[ExecutionContext] = {
+    //register as parent so that stats are associated with this pipe
+    state.decorator.registerParentPipe(this)
+
+    val relTypes = types.types(state.query)
+    input.flatMap {
+      row =>
+        (fetchFromContext(row, fromName), fetchFromContext(row, toName)) match {
+          case (from: Node, to: Node) =>
+            val path = if (from == to) cycle(from, relTypes, state) else shortestPath(from, to, relTypes, state)
+            path.map(rels => row.newWith2(relName, project(rels), toName, to))
+
+          case (null, _) => Some(row.newWith2(relName, null, toName, null))
+
+          case (_: Node, _) => None
+
+          case (value, _) => throw new InternalException(s"Expected to find a node at $fromName but found $value instead")
+        }
+    }
+  }
+
+  private def shortestPath(from: Node, to: Node, relTypes: Option[Seq[Int]], state: QueryState): Option[Seq[Relationship]] = {
+    val fromSide = new Frontier(from, dir)
+    val toSide = new Frontier(to, dir.reversed)
+    val maxLength = max.getOrElse(Int.MaxValue)
+    var length = 0
+    while (length < maxLength && fromSide.nonEmpty && toSide.nonEmpty) {
+      val meeting =
+        if (fromSide.size <= toSide.size) fromSide.expand(toSide, relTypes, state)
+        else toSide.expand(fromSide, relTypes, state)
+      length += 1
+      if (meeting != Frontier.NO_MEETING)
+        return Some(fromSide.pathTo(meeting) ++ toSide.pathTo(meeting).reverse)
+    }
+    None
+  }
+
+  // a path from a node back to itself can not be found breadth first without tracking every path, so search depth first
+  private def cycle(node: Node, relTypes: Option[Seq[Int]], state: QueryState): Option[Seq[Relationship]] = {
+    if (min == 0)
+      return Some(Seq.empty)
+
+    val maxLength = max.getOrElse(Int.MaxValue)
+    val stack = new mutable.Stack[(Node, List[Relationship])]
+    stack.push((node, Nil))
+    while (stack.nonEmpty) {
+      val (current, rels) = stack.pop()
+      if (rels.nonEmpty && current == node)
+        return Some(rels.reverse)
+      if (rels.length < maxLength) {
+        state.query.getRelationshipsForIds(current, dir, relTypes).foreach { rel =>
+          if (!rels.contains(rel))
+            stack.push((rel.getOtherNode(current), rel :: rels))
+        }
+      }
+    }
+    None
+  }
+
+  private def project(rels: Seq[Relationship]): Seq[Relationship] = {
+    val needsFlipping = if (dir == SemanticDirection.BOTH) projectedDir == SemanticDirection.INCOMING else dir != projectedDir
+    if (needsFlipping) rels.reverse else rels
+  }
+
+  /*
+   * The nodes reached from one side of the search, each with the relationship it was first reached through.
+   * Only the nodes reached in the last step are expanded further.
+   */
+  private class Frontier(start: Node, direction: SemanticDirection) {
+    private val reachedThrough: PrimitiveLongObjectMap[Relationship] = Primitive.longObjectMap()
+    private var nodes = mutable.ArrayBuffer(start)
+    reachedThrough.put(start.getId, null)
+
+    def size: Int = nodes.size
+
+    def nonEmpty: Boolean = nodes.nonEmpty
+
+    def reached(nodeId: Long): Boolean = reachedThrough.containsKey(nodeId)
+
+    // expands all nodes of the frontier by one step, and returns the first node also reached by the other side
+    def expand(other: Frontier, relTypes: Option[Seq[Int]], state: QueryState): Long = {
+      val next = mutable.ArrayBuffer.empty[Node]
+      var i = 0
+      while (i < nodes.size) {
+        val node = nodes(i)
+        i += 1
+        val relationships = state.query.getRelationshipsForIds(node, direction, relTypes)
+        while (relationships.hasNext) {
+          val rel = relationships.next()
+          val otherNode = rel.getOtherNode(node)
+          val id = otherNode.getId
+          if (!reached(id)) {
+            reachedThrough.put(id, rel)
+            if (other.reached(id)) {
+              nodes = mutable.ArrayBuffer.empty
+              return id
+            }
+            next += otherNode
+          }
+        }
+      }
+      nodes = next
+      Frontier.NO_MEETING
+    }
+
+    // the relationships from the start of this side to the given node
+    def pathTo(nodeId: Long): List[Relationship] = {
+      var path = List.empty[Relationship]
+      var current = nodeId
+      var rel = reachedThrough.get(current)
+      while (rel != null) {
+        path = rel :: path
+        val startId = rel.getStartNode.getId
+        current = if (startId == current) rel.getEndNode.getId else startId
+        rel = reachedThrough.get(current)
+      }
+      path
+    }
+  }
+
+  private object Frontier {
+    val NO_MEETING = -1L
+  }
+
+  def fetchFromContext(row: ExecutionContext, name: String): Any =
+    row.getOrElse(name, throw new InternalException(s"Expected to find a node at $name but found nothing"))
+
+  def planDescriptionWithoutCardinality = source.planDescription.
+    andThen(this.id, "VarLengthExpand(Bidirectional)", variables, ExpandExpression(fromName, relName, types.names, toName, projectedDir, varLength = true))
+
+  def symbols = source.symbols.add(toName, CTNode).add(relName, CTList(CTRelationship))
+
+  override def localEffects = Effects(ReadsAllNodes, ReadsAllRelationships)
+
+  def dup(sources: List[Pipe]): Pipe = {
+    val (head :: Nil) = sources
+    copy(head)(estimatedCardinality)
+  }
+
+  def withEstimatedCardinality(estimated: Double) = copy()(Some(estimated))
+}
@@ -35,9 +35,10 @@ case class CartesianProductPipe(lhs: Pipe, rhs: Pipe)(val estimatedCardinality:
   def symbols: SymbolTable = lhs.symbols.add(rhs.symbols.variables)
 
   protected def internalCreateResults(state: QueryState): Iterator[ExecutionContext] = {
-    for (outer <- lhs.createResults(state);
-         inner <- rhs.createResults(state))
-      yield outer ++ inner
+    lhs.createResults(state).flatMap { outer =>
+      val scope = state.materialization.scope()
+      scope.closeWhenExhausted(rhs.createResults(state.withMaterialization(scope)).map(inner => outer ++ inner))
+    }
   }
 
   def monitor: PipeMonitor = pipeMonitor
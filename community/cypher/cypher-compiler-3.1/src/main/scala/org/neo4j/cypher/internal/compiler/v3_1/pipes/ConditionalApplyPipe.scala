@@ -32,9 +32,10 @@ case class ConditionalApplyPipe(source: Pipe, inner: Pipe, items: Seq[String], n
       (outerContext) =>
         if (condition(outerContext)) {
           val original = outerContext.clone()
-          val innerState = state.withInitialContext(outerContext)
+          val scope = state.materialization.scope()
+          val innerState = state.withInitialContext(outerContext, scope)
           val innerResults = inner.createResults(innerState)
-          innerResults.map { context => original ++ context }
+          scope.closeWhenExhausted(innerResults.map { context => original ++ context })
         } else Iterator.single(outerContext)
     }
 
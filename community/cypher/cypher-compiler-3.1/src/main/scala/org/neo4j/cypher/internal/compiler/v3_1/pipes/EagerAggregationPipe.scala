@@ -48,16 +48,43 @@ case class EagerAggregationPipe(source: Pipe, keyExpressions: Set[String], aggre
     SymbolTable(keyVariables ++ aggrVariables)
   }
 
+  override def createResults(state: QueryState): Iterator[ExecutionContext] =
+    if (BatchPipe.isBatching(state) && BatchPipe.producesBatches(source))
+      aggregate(state, depth = 0) { aggregateRow =>
+        BatchPipe.batchesOf(source, state).foreach { batch =>
+          val rows = batch.cursor(state)
+          var row = 0
+          while (row < batch.size) {
+            rows.moveTo(row)
+            aggregateRow(rows.context)
+            row += 1
+          }
+        }
+      }
+    else
+      super.createResults(state)
+
   protected def internalCreateResults(input: Iterator[ExecutionContext], state: QueryState) = {
     //register as parent so that stats are associated with this pipe
     state.decorator.registerParentPipe(this)
 
+    aggregate(state, depth = 0)(aggregateRow => input.foreach(aggregateRow))
+  }
+
+  /*
+   * Feeds every input row to the function it is given, which must not hold on to the rows. Once the materialization
+   * budget is full, rows of groups that are already in memory are still aggregated, while the rows of new groups are
+   * spilled to partitions on the hash of their grouping key. Those partitions are aggregated one by one after the
+   * groups in memory have been emitted, i.e. a hybrid hash aggregation.
+   */
+  private def aggregate(state: QueryState, depth: Int)(feed: (ExecutionContext => Unit) => Unit): Iterator[ExecutionContext] = {
     // This is the temporary storage used while the aggregation is going on
     val result = MutableMap[Equals, Seq[AggregationFunction]]()
     val keyNames = keyExpressions.toList
     val aggregationNames: Seq[String] = aggregations.keys.toSeq
     val keyNamesSize = keyNames.size
     val mapSize = keyNamesSize + aggregationNames.size
+    var partitions: Array[SpillFile] = null
 
     def createEmptyResult(params: Map[String, Any]): Iterator[ExecutionContext] = {
       val newMap = MutableMaps.empty
@@ -99,29 +126,54 @@ case class EagerAggregationPipe(source: Pipe, keyExpressions: Set[String], aggre
       ExecutionContext(newMap)
     }
 
-    input.foreach(ctx => {
+    feed(ctx => {
       val groupValues: Equals = keyNamesSize match {
         case 1 => Equivalent(ctx(keyNames.head))
         case 2 => (Equivalent(ctx(keyNames.head)),Equivalent(ctx(keyNames.last)))
         case 3 => (Equivalent(ctx(keyNames.head)),Equivalent(ctx(keyNames.tail.head)),Equivalent(ctx(keyNames.last)))
         case _ => keyNames.map( k => Equivalent(ctx(k)))
       }
-      val functions = result.getOrElseUpdate(groupValues, {
+      val existing = result.getOrElse(groupValues, null)
+      if (existing != null) {
+        existing.foreach(func => func(ctx)(state))
+      } else if (state.materialization.isFull && result.nonEmpty && depth < MAX_SPILL_DEPTH) {
+        if (partitions == null)
+          partitions = Array.fill(SPILL_PARTITIONS)(state.materialization.spillFiles.create())
+        partitions(SpillFiles.partition(groupValues, depth, SPILL_PARTITIONS)).write(ctx)
+      } else {
+        state.materialization.allocate(1)
         val aggregateFunctions: Seq[AggregationFunction] = aggregations.map(_._2.createAggregationFunction).toSeq
-        aggregateFunctions
-      })
-      functions.foreach(func => func(ctx)(state))
+        result.put(groupValues, aggregateFunctions)
+        aggregateFunctions.foreach(func => func(ctx)(state))
+      }
     })
 
-    if (result.isEmpty && keyNames.isEmpty) {
+    val inMemory = if (result.isEmpty && keyNames.isEmpty) {
       createEmptyResult(state.params)
     } else {
-      result.map {
+      state.materialization.releaseWhenExhausted(result.size, result.map {
         case (key, aggregator) => createResults(key, aggregator)
-      }.toIterator
+      }.toIterator)
     }
+
+    if (partitions == null)
+      inMemory
+    else
+      inMemory ++ partitions.iterator.flatMap { spilled =>
+        if (spilled.size == 0) {
+          spilled.delete()
+          Iterator.empty
+        } else {
+          aggregate(state, depth + 1)(aggregateRow => spilled.read(state.query).foreach(aggregateRow))
+        }
+      }
   }
 
+  // the number of partitions that the rows of new groups are spilled to once the budget is full
+  private val SPILL_PARTITIONS = 32
+  // partitions where all rows belong to the same group can't be split any further, so give up at some point
+  private val MAX_SPILL_DEPTH = 3
+
   def planDescriptionWithoutCardinality = source.planDescription.
                         andThen(this.id, "EagerAggregation", variables, Arguments.KeyNames(keyExpressions.toSeq))
 
@@ -38,8 +38,27 @@ case class EagerPipe(src: Pipe)(val estimatedCardinality: Option[Double] = None)
 
   override def planDescription = src.planDescription.andThen(this.id, "Eager", variables)
 
-  protected def internalCreateResults(input: Iterator[ExecutionContext], state: QueryState): Iterator[ExecutionContext] =
-    input.toVector.toIterator
+  // rows that don't fit in the materialization budget are written to a spill file and read back after the others
+  protected def internalCreateResults(input: Iterator[ExecutionContext], state: QueryState): Iterator[ExecutionContext] = {
+    val budget = state.materialization
+    val rows = Vector.newBuilder[ExecutionContext]
+    var inMemory = 0L
+    var spilled: SpillFile = null
+    input.foreach { row =>
+      if (spilled == null && budget.isFull)
+        spilled = budget.spillFiles.create()
+      if (spilled != null)
+        spilled.write(row)
+      else {
+        budget.allocate(1)
+        rows += row
+        inMemory += 1
+      }
+    }
+
+    val output = budget.releaseWhenExhausted(inMemory, rows.result().toIterator)
+    if (spilled == null) output else output ++ spilled.read(state.query)
+  }
 
   override def planDescriptionWithoutCardinality: InternalPlanDescription = src.planDescription.andThen(this.id, "Eager", variables)
 
@@ -33,7 +33,7 @@ case class ExpandAllPipe(source: Pipe,
                          dir: SemanticDirection,
                          types: LazyTypes)(val estimatedCardinality: Option[Double] = None)
                         (implicit pipeMonitor: PipeMonitor)
-  extends PipeWithSource(source, pipeMonitor) with RonjaPipe {
+  extends PipeWithSource(source, pipeMonitor) with RonjaPipe with BatchPipe {
 
   protected def internalCreateResults(input: Iterator[ExecutionContext], state: QueryState): Iterator[ExecutionContext] = {
     input.flatMap {
@@ -53,6 +53,50 @@ case class ExpandAllPipe(source: Pipe,
     }
   }
 
+  def producesBatches = BatchPipe.producesBatches(source)
+
+  def createBatches(state: QueryState): Iterator[RowBatch] = {
+    val relTypes = types.types(state.query)
+    BatchPipe.batchesOf(source, state).flatMap { input =>
+      val rows = input.cursor(state)
+      new Iterator[RowBatch] {
+        private var row = 0
+        private var relationships: Iterator[Relationship] = Iterator.empty
+        private var from: Node = null
+
+        def hasNext: Boolean = {
+          while (!relationships.hasNext && row < input.size) {
+            rows.moveTo(row)
+            row += 1
+            getFromNode(rows.context) match {
+              case n: Node =>
+                from = n
+                relationships = state.query.getRelationshipsForIds(n, dir, relTypes)
+              case null =>
+              case value => throw new InternalException(s"Expected to find a node at $fromName but found $value instead")
+            }
+          }
+          relationships.hasNext
+        }
+
+        // fills an output batch from the rows of the current input batch only, so the input batch can be let go
+        def next(): RowBatch = {
+          if (!hasNext) Iterator.empty.next()
+          val output = input.extendedWith(Seq(toName), Seq(relName), state.batchSize)
+          val toNodes = output.nodeIds(output.nodeColumn(toName))
+          val rels = output.values(output.valueColumn(relName))
+          while (!output.isFull && hasNext) {
+            val r = relationships.next()
+            val at = output.appendPrefixOf(input, row - 1)
+            toNodes(at) = r.getOtherNode(from).getId
+            rels(at) = r
+          }
+          output
+        }
+      }
+    }
+  }
+
   def typeNames = types.names
 
   def getFromNode(row: ExecutionContext): Any =
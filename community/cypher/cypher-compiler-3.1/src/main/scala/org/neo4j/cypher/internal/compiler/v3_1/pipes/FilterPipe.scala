@@ -24,7 +24,7 @@ import org.neo4j.cypher.internal.compiler.v3_1.commands.predicates.Predicate
 import org.neo4j.cypher.internal.compiler.v3_1.planDescription.InternalPlanDescription.Arguments.LegacyExpression
 
 case class FilterPipe(source: Pipe, predicate: Predicate)(val estimatedCardinality: Option[Double] = None)
-                     (implicit pipeMonitor: PipeMonitor) extends PipeWithSource(source, pipeMonitor) with RonjaPipe {
+                     (implicit pipeMonitor: PipeMonitor) extends PipeWithSource(source, pipeMonitor) with RonjaPipe with BatchPipe {
   val symbols = source.symbols
 
   protected def internalCreateResults(input: Iterator[ExecutionContext],state: QueryState) = {
@@ -34,6 +34,14 @@ case class FilterPipe(source: Pipe, predicate: Predicate)(val estimatedCardinali
     input.filter(ctx => predicate.isTrue(ctx)(state))
   }
 
+  def producesBatches = BatchPipe.producesBatches(source)
+
+  def createBatches(state: QueryState): Iterator[RowBatch] =
+    BatchPipe.batchesOf(source, state).map { batch =>
+      batch.retain(ctx => predicate.isTrue(ctx)(state))(state)
+      batch
+    }.filterNot(_.isEmpty)
+
   def planDescriptionWithoutCardinality = source.planDescription.andThen(this.id, "Filter", variables, LegacyExpression(predicate))
 
   def dup(sources: List[Pipe]): Pipe = {
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.pipes
+
+import org.neo4j.cypher.internal.compiler.v3_1.ExecutionContext
+
+import scala.collection.mutable
+
+/**
+ * Joins the rows of the right-hand side with those of the left-hand side that have the same join key, using a hash
+ * table of the left-hand side. Once the table doesn't fit in the materialization budget, both sides are split into
+ * partitions on the hash of their join keys, which are written to spill files, and then each pair of partitions is
+ * joined on its own, i.e. a grace hash join. A partition that still doesn't fit is split again.
+ */
+object GraceHashJoin {
+  // the number of partitions each side is split into
+  private val PARTITIONS = 32
+  // splitting again doesn't help for partitions where all rows have the same key, so give up at some point
+  private val MAX_DEPTH = 3
+
+  def apply[K](lhs: Iterator[ExecutionContext], rhs: Iterator[ExecutionContext], state: QueryState)
+              (lhsKey: ExecutionContext => Option[K], rhsKey: ExecutionContext => Option[K]): Iterator[ExecutionContext] =
+    join(lhs, rhs, state, lhsKey, rhsKey, depth = 0)
+
+  private def join[K](lhs: Iterator[ExecutionContext], rhs: Iterator[ExecutionContext], state: QueryState,
+                      lhsKey: ExecutionContext => Option[K], rhsKey: ExecutionContext => Option[K],
+                      depth: Int): Iterator[ExecutionContext] = {
+    val budget = state.materialization
+    val table = new mutable.HashMap[K, mutable.MutableList[ExecutionContext]]
+    var tableRows = 0L
+    var lhsPartitions: Array[SpillFile] = null
+
+    lhs.foreach { row =>
+      lhsKey(row).foreach { key =>
+        if (lhsPartitions == null && budget.isFull && tableRows > 0 && depth < MAX_DEPTH) {
+          lhsPartitions = Array.fill(PARTITIONS)(budget.spillFiles.create())
+          for ((tableKey, rows) <- table; tableRow <- rows)
+            lhsPartitions(partition(tableKey, depth)).write(tableRow)
+          table.clear()
+          budget.release(tableRows)
+          tableRows = 0
+        }
+        if (lhsPartitions != null)
+          lhsPartitions(partition(key, depth)).write(row)
+        else {
+          budget.allocate(1)
+          table.getOrElseUpdate(key, mutable.MutableList.empty) += row
+          tableRows += 1
+        }
+      }
+    }
+
+    if (lhsPartitions == null && table.isEmpty) {
+      Iterator.empty
+    } else if (lhsPartitions == null) {
+      val result = rhs.flatMap { row =>
+        rhsKey(row).flatMap(table.get) match {
+          case Some(matches) => matches.iterator.map(row ++ _)
+          case None => Iterator.empty
+        }
+      }
+      budget.releaseWhenExhausted(tableRows, result)
+    } else {
+      val rhsPartitions = Array.fill(PARTITIONS)(budget.spillFiles.create())
+      rhs.foreach { row =>
+        rhsKey(row).foreach(key => rhsPartitions(partition(key, depth)).write(row))
+      }
+
+      (0 until PARTITIONS).iterator.flatMap { i =>
+        if (lhsPartitions(i).size == 0 || rhsPartitions(i).size == 0) {
+          lhsPartitions(i).delete()
+          rhsPartitions(i).delete()
+          Iterator.empty
+        } else {
+          join(lhsPartitions(i).read(state.query), rhsPartitions(i).read(state.query), state, lhsKey, rhsKey,
+               depth + 1)
+        }
+      }
+    }
+  }
+
+  private def partition(key: Any, depth: Int): Int = SpillFiles.partition(key, depth, PARTITIONS)
+}
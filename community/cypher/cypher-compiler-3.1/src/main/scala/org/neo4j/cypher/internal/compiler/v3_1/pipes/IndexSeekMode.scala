@@ -74,3 +74,11 @@ case object IndexSeekByRange extends IndexSeekMode with SeekByRange {
 case object UniqueIndexSeekByRange extends IndexSeekMode with SeekByRange {
   override def name: String = "NodeUniqueIndexSeekByRange"
 }
+
+case object IndexSeekByRangeInOrder extends IndexSeekMode {
+
+  override def indexFactory(descriptor: IndexDescriptor): (QueryState) => (Any) => Iterator[Node] =
+    (state: QueryState) => (x: Any) => state.query.indexSeekByRangeInOrder(descriptor, x)
+
+  override def name: String = "NodeIndexSeekByRange(Ordered)"
+}
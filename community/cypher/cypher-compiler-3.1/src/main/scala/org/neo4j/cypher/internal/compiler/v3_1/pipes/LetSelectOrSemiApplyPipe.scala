@@ -37,9 +37,12 @@ case class LetSelectOrSemiApplyPipe(source: Pipe, inner: Pipe, letVarName: Strin
     input.map {
       (outerContext) =>
         val holds = predicate.isTrue(outerContext)(state) || {
-          val innerState = state.withInitialContext(outerContext)
+          val scope = state.materialization.scope()
+          val innerState = state.withInitialContext(outerContext, scope)
           val innerResults = inner.createResults(innerState)
-          if (negated) innerResults.isEmpty else innerResults.nonEmpty
+          val holds = if (negated) innerResults.isEmpty else innerResults.nonEmpty
+          scope.close()
+          holds
         }
         outerContext += (letVarName -> holds)
     }
@@ -31,9 +31,11 @@ case class LetSemiApplyPipe(source: Pipe, inner: Pipe, letVarName: String, negat
   def internalCreateResults(input: Iterator[ExecutionContext], state: QueryState): Iterator[ExecutionContext] = {
     input.map {
       (outerContext) =>
-        val innerState = state.withInitialContext(outerContext)
+        val scope = state.materialization.scope()
+        val innerState = state.withInitialContext(outerContext, scope)
         val innerResults = inner.createResults(innerState)
         val holds = if (negated) innerResults.isEmpty else innerResults.nonEmpty
+        scope.close()
         outerContext += (letVarName -> holds)
     }
   }
@@ -28,6 +28,13 @@ import org.neo4j.cypher.internal.compiler.v3_1.symbols.SymbolTable
 case class LimitPipe(source: Pipe, exp: Expression)
                     (val estimatedCardinality: Option[Double] = None)(implicit pipeMonitor: PipeMonitor)
   extends PipeWithSource(source, pipeMonitor) with NumericHelper with RonjaPipe {
+
+  // rows held below the limit are abandoned once it's reached, give them back right then
+  override def createResults(state: QueryState): Iterator[ExecutionContext] = {
+    val scope = state.materialization.scope()
+    scope.closeWhenExhausted(super.createResults(state.withMaterialization(scope)))
+  }
+
   protected def internalCreateResults(input: Iterator[ExecutionContext], state: QueryState): Iterator[ExecutionContext] = {
     if(input.isEmpty)
       return Iterator.empty
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.pipes
+
+import org.neo4j.cypher.internal.compiler.v3_1.ExecutionContext
+import org.neo4j.cypher.internal.frontend.v3_1.MaterializedRowsLimitExceededException
+
+/**
+ * Keeps count of the rows that the eager pipes of a single query hold in memory. Once the budget is full, sorting,
+ * aggregation, hash joins and eager barriers move rows out to spill files instead, and any other pipe that needs
+ * to hold more rows makes the query fail on its own instead of exhausting the heap.
+ */
+trait MaterializationBudget {
+  def allocate(rows: Long): Unit
+
+  def release(rows: Long): Unit
+
+  // whether there is no room for another row, in which case pipes that can spill rows to disk should do so
+  def isFull: Boolean
+
+  def spillFiles: SpillFiles
+
+  /*
+   * Gives the rows back once the output has been fully consumed. Output that is abandoned half way, like under a
+   * LIMIT or on the inner side of a semi apply, gives its rows back when the enclosing scope is closed.
+   */
+  def releaseWhenExhausted(rows: Long, output: Iterator[ExecutionContext]): Iterator[ExecutionContext] =
+    new Iterator[ExecutionContext] {
+      private var released = false
+
+      override def hasNext: Boolean = {
+        val hasNext = output.hasNext
+        if (!hasNext && !released) {
+          released = true
+          release(rows)
+        }
+        hasNext
+      }
+
+      override def next(): ExecutionContext = output.next()
+    }
+
+  /*
+   * A budget for the rows held by a sub-tree of pipes whose output may be abandoned before it's exhausted. The rows
+   * count against this budget as well, and whatever the sub-tree still holds is given back when the scope is closed.
+   */
+  def scope(): MaterializationScope = new MaterializationScope(this)
+}
+
+object MaterializationBudget {
+  def apply(maxRows: Long): MaterializationBudget = apply(maxRows, new SpillFiles(maxRows))
+
+  def apply(maxRows: Long, spillFiles: SpillFiles): MaterializationBudget =
+    if (maxRows > 0) new MaterializedRowsLimit(maxRows, spillFiles) else UnlimitedMaterialization
+}
+
+object UnlimitedMaterialization extends MaterializationBudget {
+  override def allocate(rows: Long) {}
+
+  override def release(rows: Long) {}
+
+  override def isFull = false
+
+  override def spillFiles = throw new IllegalStateException("Rows are never spilled without a materialization limit")
+
+  override def releaseWhenExhausted(rows: Long, output: Iterator[ExecutionContext]) = output
+
+  override def scope() = UnlimitedMaterializationScope
+}
+
+class MaterializationScope(parent: MaterializationBudget) extends MaterializationBudget {
+  private var held = 0L
+
+  override def allocate(rows: Long) {
+    held += rows
+    parent.allocate(rows)
+  }
+
+  // rows released after the scope has been closed were given back already
+  override def release(rows: Long) {
+    val released = math.min(rows, held)
+    held -= released
+    parent.release(released)
+  }
+
+  override def isFull: Boolean = parent.isFull
+
+  override def spillFiles: SpillFiles = parent.spillFiles
+
+  def close() {
+    release(held)
+  }
+
+  def closeWhenExhausted(output: Iterator[ExecutionContext]): Iterator[ExecutionContext] =
+    new Iterator[ExecutionContext] {
+      override def hasNext: Boolean = {
+        val hasNext = output.hasNext
+        if (!hasNext)
+          close()
+        hasNext
+      }
+
+      override def next(): ExecutionContext = output.next()
+    }
+}
+
+object UnlimitedMaterializationScope extends MaterializationScope(UnlimitedMaterialization) {
+  override def allocate(rows: Long) {}
+
+  override def release(rows: Long) {}
+
+  override def close() {}
+
+  override def releaseWhenExhausted(rows: Long, output: Iterator[ExecutionContext]) = output
+
+  override def closeWhenExhausted(output: Iterator[ExecutionContext]) = output
+
+  override def scope() = this
+}
+
+class MaterializedRowsLimit(maxRows: Long, val spillFiles: SpillFiles) extends MaterializationBudget {
+  private var materialized = 0L
+
+  def this(maxRows: Long) = this(maxRows, new SpillFiles(maxRows))
+
+  override def allocate(rows: Long) {
+    materialized += rows
+    if (materialized > maxRows)
+      throw new MaterializedRowsLimitExceededException(maxRows)
+  }
+
+  override def release(rows: Long) {
+    materialized -= rows
+  }
+
+  override def isFull: Boolean = materialized >= maxRows
+
+  def materializedRows: Long = materialized
+}
@@ -29,7 +29,8 @@ import org.neo4j.cypher.internal.frontend.v3_1.symbols._
 case class NodeByLabelScanPipe(ident: String, label: LazyLabel)
                               (val estimatedCardinality: Option[Double] = None)(implicit pipeMonitor: PipeMonitor)
   extends Pipe
-  with RonjaPipe {
+  with RonjaPipe
+  with BatchPipe {
 
   protected def internalCreateResults(state: QueryState): Iterator[ExecutionContext] = {
 
@@ -43,6 +44,18 @@ case class NodeByLabelScanPipe(ident: String, label: LazyLabel)
     }
   }
 
+  def producesBatches = true
+
+  def createBatches(state: QueryState): Iterator[RowBatch] = {
+    label.getOptId(state.query) match {
+      case Some(labelId) =>
+        val baseContext = state.initialContext.getOrElse(ExecutionContext.empty)
+        RowBatch.ofNodes(baseContext, ident, state.query.getNodeIdsByLabel(labelId.id), state.batchSize)
+      case None =>
+        Iterator.empty
+    }
+  }
+
   def exists(predicate: Pipe => Boolean): Boolean = predicate(this)
 
   def planDescriptionWithoutCardinality = new PlanDescriptionImpl(this.id, "NodeByLabelScan", NoChildren, Seq(LabelName(label.name)), variables)
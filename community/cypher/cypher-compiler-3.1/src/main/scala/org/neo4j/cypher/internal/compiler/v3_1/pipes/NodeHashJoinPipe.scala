@@ -26,8 +26,6 @@ import org.neo4j.cypher.internal.compiler.v3_1.planDescription.{InternalPlanDesc
 import org.neo4j.cypher.internal.frontend.v3_1.CypherTypeException
 import org.neo4j.graphdb.Node
 
-import scala.collection.mutable
-
 case class NodeHashJoinPipe(nodeVariables: Set[String], left: Pipe, right: Pipe)
                            (val estimatedCardinality: Option[Double] = None)(implicit pipeMonitor: PipeMonitor)
   extends PipeWithSource(left, pipeMonitor) with RonjaPipe {
@@ -41,19 +39,7 @@ case class NodeHashJoinPipe(nodeVariables: Set[String], left: Pipe, right: Pipe)
     if (rhsIterator.isEmpty)
       return Iterator.empty
 
-    val table = buildProbeTable(input)
-
-    if (table.isEmpty)
-      return Iterator.empty
-
-    val result = for {context: ExecutionContext <- rhsIterator
-                      joinKey <- computeKey(context)}
-    yield {
-      val seq = table.getOrElse(joinKey, mutable.MutableList.empty)
-      seq.map(context ++ _)
-    }
-
-    result.flatten
+    GraceHashJoin[Vector[Long]](input, rhsIterator, state)(computeKey, computeKey)
   }
 
   def planDescriptionWithoutCardinality: InternalPlanDescription =
@@ -78,18 +64,6 @@ case class NodeHashJoinPipe(nodeVariables: Set[String], left: Pipe, right: Pipe)
 
   def withEstimatedCardinality(estimated: Double) = copy()(Some(estimated))
 
-  private def buildProbeTable(input: Iterator[ExecutionContext]): mutable.HashMap[Vector[Long], mutable.MutableList[ExecutionContext]] = {
-    val table = new mutable.HashMap[Vector[Long], mutable.MutableList[ExecutionContext]]
-
-    for {context <- input
-         joinKey <- computeKey(context)} {
-      val seq = table.getOrElseUpdate(joinKey, mutable.MutableList.empty)
-      seq += context
-    }
-
-    table
-  }
-
   private val cachedVariables = nodeVariables.toIndexedSeq
 
   private def computeKey(context: ExecutionContext): Option[Vector[Long]] = {
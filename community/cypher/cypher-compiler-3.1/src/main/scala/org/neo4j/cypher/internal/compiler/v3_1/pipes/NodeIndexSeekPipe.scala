@@ -58,7 +58,7 @@ case class NodeIndexSeekPipe(ident: String,
   def planDescriptionWithoutCardinality = {
     val name = indexMode.name
     val indexDesc = indexMode match {
-      case IndexSeekByRange | UniqueIndexSeekByRange =>
+      case IndexSeekByRange | UniqueIndexSeekByRange | IndexSeekByRangeInOrder =>
         valueExpr match {
           case RangeQueryExpression(PrefixSeekRangeExpression(PrefixRange(prefix))) =>
             PrefixIndex(label.name, propertyKey.name, prefix)
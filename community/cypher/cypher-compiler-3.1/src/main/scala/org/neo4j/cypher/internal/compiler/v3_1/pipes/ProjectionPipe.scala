@@ -29,7 +29,7 @@ Projection evaluates expressions and stores their values into new slots in the e
 It's an additive operation - nothing is lost in the execution context, the pipe simply adds new key-value pairs.
  */
 case class ProjectionPipe(source: Pipe, expressions: Map[String, Expression])(val estimatedCardinality: Option[Double] = None)
-                         (implicit pipeMonitor: PipeMonitor) extends PipeWithSource(source, pipeMonitor) with RonjaPipe {
+                         (implicit pipeMonitor: PipeMonitor) extends PipeWithSource(source, pipeMonitor) with RonjaPipe with BatchPipe {
   val symbols = {
     val newVariables = expressions.map {
       case (name, expression) => name -> expression.getType(source.symbols)
@@ -53,6 +53,32 @@ case class ProjectionPipe(source: Pipe, expressions: Map[String, Expression])(va
     }
   }
 
+  def producesBatches = BatchPipe.producesBatches(source)
+
+  def createBatches(state: QueryState): Iterator[RowBatch] = {
+    val names = expressions.keys.toArray
+    val projections = names.map(expressions)
+    BatchPipe.batchesOf(source, state).map { input =>
+      val output = input.withValueColumns(names)
+      val columns = names.map(name => output.values(output.valueColumn(name)))
+      // evaluate against the input rows, so that projected nodes are still found in their node columns
+      val rows = input.cursor(state)
+      var row = 0
+      while (row < input.size) {
+        rows.moveTo(row)
+        var i = 0
+        while (i < projections.length) {
+          val result = projections(i)(rows.context)(state)
+          rows.context.put(names(i), result)
+          columns(i)(row) = result
+          i += 1
+        }
+        row += 1
+      }
+      output
+    }
+  }
+
   def planDescriptionWithoutCardinality =
     source.planDescription
       .andThen(this.id, "Projection", variables, expressions.values.toSeq.map(LegacyExpression):_*)
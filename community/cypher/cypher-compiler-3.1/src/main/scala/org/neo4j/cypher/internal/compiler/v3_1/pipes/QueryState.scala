@@ -42,7 +42,9 @@ class QueryState(val query: QueryContext,
                  val repeatableReads: mutable.Map[Pipe, Seq[ExecutionContext]] = mutable.Map.empty,
                  val typeConverter: RuntimeTypeConverter = IdentityTypeConverter,
                  val cachedIn: SingleThreadedLRUCache[Any, InCheckContainer] =
-                   new SingleThreadedLRUCache(maxSize = 16)) {
+                   new SingleThreadedLRUCache(maxSize = 16),
+                 val materialization: MaterializationBudget = UnlimitedMaterialization,
+                 val batchSize: Int = 0) {
   private var _pathValueBuilder: PathValueBuilder = null
 
   def clearPathValueBuilder = {
@@ -60,13 +62,19 @@ class QueryState(val query: QueryContext,
   def getStatistics = query.getOptStatistics.getOrElse(QueryState.defaultStatistics)
 
   def withDecorator(decorator: PipeDecorator) =
-    new QueryState(query, resources, params, decorator, timeReader, initialContext, queryId, triadicState, repeatableReads, typeConverter, cachedIn)
+    new QueryState(query, resources, params, decorator, timeReader, initialContext, queryId, triadicState, repeatableReads, typeConverter, cachedIn, materialization, batchSize)
 
   def withInitialContext(initialContext: ExecutionContext) =
-    new QueryState(query, resources, params, decorator, timeReader, Some(initialContext), queryId, triadicState, repeatableReads, typeConverter, cachedIn)
+    new QueryState(query, resources, params, decorator, timeReader, Some(initialContext), queryId, triadicState, repeatableReads, typeConverter, cachedIn, materialization, batchSize)
+
+  def withInitialContext(initialContext: ExecutionContext, materialization: MaterializationBudget) =
+    new QueryState(query, resources, params, decorator, timeReader, Some(initialContext), queryId, triadicState, repeatableReads, typeConverter, cachedIn, materialization, batchSize)
+
+  def withMaterialization(materialization: MaterializationBudget) =
+    new QueryState(query, resources, params, decorator, timeReader, initialContext, queryId, triadicState, repeatableReads, typeConverter, cachedIn, materialization, batchSize)
 
   def withQueryContext(query: QueryContext) =
-    new QueryState(query, resources, params, decorator, timeReader, initialContext, queryId, triadicState, repeatableReads, typeConverter, cachedIn)
+    new QueryState(query, resources, params, decorator, timeReader, initialContext, queryId, triadicState, repeatableReads, typeConverter, cachedIn, materialization, batchSize)
 }
 
 object QueryState {
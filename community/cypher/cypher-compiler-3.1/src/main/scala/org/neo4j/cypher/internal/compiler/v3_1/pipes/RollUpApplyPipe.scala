@@ -36,9 +36,11 @@ case class RollUpApplyPipe(lhs: Pipe, rhs: Pipe, collectionName: String, identif
           ctx += collectionName -> null
         } else {
           val original = ctx.clone()
-          val innerState = state.withInitialContext(ctx)
+          val scope = state.materialization.scope()
+          val innerState = state.withInitialContext(ctx, scope)
           val innerResults = rhs.createResults(innerState)
           val collection = innerResults.map(m => m(identifierToCollect)).toList
+          scope.close()
           original += collectionName -> collection
         }
     }
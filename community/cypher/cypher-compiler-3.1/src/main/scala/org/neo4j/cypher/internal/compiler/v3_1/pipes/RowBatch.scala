@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.pipes
+
+import org.neo4j.collection.primitive.PrimitiveLongIterator
+import org.neo4j.cypher.internal.compiler.v3_1.ExecutionContext
+
+import scala.collection.mutable
+
+/*
+ * A batch of rows stored column by column. Nodes are kept as ids in primitive columns, all other values in
+ * reference columns. Values that are the same for every row, like the arguments of an apply, are not copied
+ * into columns but looked up in the base context.
+ *
+ * A batch is owned by the pipe it was handed to, which may change it in place before passing it on.
+ */
+final class RowBatch(val base: ExecutionContext,
+                     val nodeColumns: Array[String],
+                     val valueColumns: Array[String],
+                     val nodeIds: Array[Array[Long]],
+                     val values: Array[Array[Any]],
+                     val capacity: Int) {
+
+  var size: Int = 0
+
+  def isFull: Boolean = size == capacity
+
+  def isEmpty: Boolean = size == 0
+
+  def nodeColumn(name: String): Int = nodeColumns.indexOf(name)
+
+  def valueColumn(name: String): Int = valueColumns.indexOf(name)
+
+  def cursor(state: QueryState): RowCursor = new RowCursor(this, state)
+
+  // a new, empty batch with the columns of this one followed by the given ones
+  def extendedWith(newNodeColumns: Seq[String], newValueColumns: Seq[String], capacity: Int): RowBatch =
+    RowBatch(base, nodeColumns ++ newNodeColumns, valueColumns ++ newValueColumns, capacity)
+
+  // copies a row of a batch whose columns are a prefix of the columns of this one, and returns its position here
+  def appendPrefixOf(source: RowBatch, row: Int): Int = {
+    val at = size
+    var column = 0
+    while (column < source.nodeIds.length) {
+      nodeIds(column)(at) = source.nodeIds(column)(row)
+      column += 1
+    }
+    column = 0
+    while (column < source.values.length) {
+      values(column)(at) = source.values(column)(row)
+      column += 1
+    }
+    size += 1
+    at
+  }
+
+  /*
+   * The same rows with a value column for each of the given names. Existing value columns are reused, and node
+   * columns of the same name are dropped, since the new values replace them. The columns are shared with this
+   * batch, so this batch must not be used afterwards.
+   */
+  def withValueColumns(names: Iterable[String]): RowBatch = {
+    val replaced = names.toSet
+    val keptNodeColumns = nodeColumns.indices.filterNot(column => replaced(nodeColumns(column)))
+    val addedValueColumns = names.filterNot(valueColumns.contains).toArray
+    val result = new RowBatch(base,
+                              keptNodeColumns.map(nodeColumns).toArray,
+                              valueColumns ++ addedValueColumns,
+                              keptNodeColumns.map(nodeIds).toArray,
+                              values ++ addedValueColumns.map(_ => new Array[Any](capacity)),
+                              capacity)
+    result.size = size
+    result
+  }
+
+  // removes the rows the predicate does not hold for, keeping the remaining ones in order
+  def retain(predicate: ExecutionContext => Boolean)(state: QueryState): Unit = {
+    val rows = cursor(state)
+    var kept = 0
+    var row = 0
+    while (row < size) {
+      rows.moveTo(row)
+      if (predicate(rows.context)) {
+        if (kept != row) moveRow(row, kept)
+        kept += 1
+      }
+      row += 1
+    }
+    values.foreach(column => java.util.Arrays.fill(column.asInstanceOf[Array[AnyRef]], kept, size, null))
+    size = kept
+  }
+
+  def toRows(state: QueryState): Iterator[ExecutionContext] = Iterator.range(0, size).map(row => toRow(row, state))
+
+  private def toRow(row: Int, state: QueryState): ExecutionContext = {
+    val context = base.clone()
+    var column = 0
+    while (column < nodeColumns.length) {
+      context.put(nodeColumns(column), state.query.nodeOps.getById(nodeIds(column)(row)))
+      column += 1
+    }
+    column = 0
+    while (column < valueColumns.length) {
+      context.put(valueColumns(column), values(column)(row))
+      column += 1
+    }
+    context
+  }
+
+  private def moveRow(from: Int, to: Int): Unit = {
+    var column = 0
+    while (column < nodeIds.length) {
+      nodeIds(column)(to) = nodeIds(column)(from)
+      column += 1
+    }
+    column = 0
+    while (column < values.length) {
+      values(column)(to) = values(column)(from)
+      column += 1
+    }
+  }
+}
+
+object RowBatch {
+  def apply(base: ExecutionContext, nodeColumns: Array[String], valueColumns: Array[String], capacity: Int): RowBatch =
+    new RowBatch(base, nodeColumns, valueColumns,
+                 Array.fill(nodeColumns.length)(new Array[Long](capacity)),
+                 Array.fill(valueColumns.length)(new Array[Any](capacity)),
+                 capacity)
+
+  // splits the given node ids into batches with a single node column
+  def ofNodes(base: ExecutionContext, column: String, ids: PrimitiveLongIterator, capacity: Int): Iterator[RowBatch] =
+    new Iterator[RowBatch] {
+      override def hasNext: Boolean = ids.hasNext
+
+      override def next(): RowBatch = {
+        if (!hasNext) Iterator.empty.next()
+        val batch = RowBatch(base, Array(column), Array.empty, capacity)
+        val nodes = batch.nodeIds(0)
+        while (!batch.isFull && ids.hasNext) {
+          nodes(batch.size) = ids.next()
+          batch.size += 1
+        }
+        batch
+      }
+    }
+}
+
+/*
+ * Presents the rows of a batch one at a time as an execution context, so that expressions and predicates can be
+ * evaluated against a batch without creating a map for every row. Values written through the context are only
+ * kept until the cursor moves to another row.
+ */
+final class RowCursor(batch: RowBatch, state: QueryState) extends mutable.Map[String, Any] {
+
+  private var row = 0
+  private var written: mutable.Map[String, Any] = null
+
+  val context = ExecutionContext(this)
+
+  def moveTo(row: Int): Unit = {
+    this.row = row
+    if (written != null) written.clear()
+  }
+
+  override def get(key: String): Option[Any] =
+    if (written != null && written.contains(key))
+      written.get(key)
+    else {
+      val value = batch.valueColumn(key)
+      if (value >= 0)
+        Some(batch.values(value)(row))
+      else {
+        val node = batch.nodeColumn(key)
+        if (node >= 0)
+          Some(state.query.nodeOps.getById(batch.nodeIds(node)(row)))
+        else
+          batch.base.get(key)
+      }
+    }
+
+  override def +=(kv: (String, Any)): this.type = {
+    if (written == null) written = MutableMaps.empty
+    written += kv
+    this
+  }
+
+  override def -=(key: String): this.type = {
+    if (written != null) written -= key
+    this
+  }
+
+  override def iterator: Iterator[(String, Any)] = clone().iterator
+
+  // copies the current row into a map of its own
+  override def clone(): mutable.Map[String, Any] = {
+    val copy = MutableMaps.create(batch.base)
+    batch.nodeColumns.foreach(key => copy.put(key, get(key).get))
+    batch.valueColumns.foreach(key => copy.put(key, get(key).get))
+    if (written != null) copy ++= written
+    copy
+  }
+
+  override def empty: mutable.Map[String, Any] = MutableMaps.empty
+}
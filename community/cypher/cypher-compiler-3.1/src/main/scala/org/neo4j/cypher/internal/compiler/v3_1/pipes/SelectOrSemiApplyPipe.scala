@@ -36,9 +36,12 @@ case class SelectOrSemiApplyPipe(source: Pipe, inner: Pipe, predicate: Predicate
     input.filter {
       (outerContext) =>
         predicate.isTrue(outerContext)(state) || {
-          val innerState = state.withInitialContext(outerContext)
+          val scope = state.materialization.scope()
+          val innerState = state.withInitialContext(outerContext, scope)
           val innerResults = inner.createResults(innerState)
-          if (negated) innerResults.isEmpty else innerResults.nonEmpty
+          val holds = if (negated) innerResults.isEmpty else innerResults.nonEmpty
+          scope.close()
+          holds
         }
     }
   }
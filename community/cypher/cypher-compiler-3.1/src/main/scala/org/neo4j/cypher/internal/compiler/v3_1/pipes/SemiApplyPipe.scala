@@ -30,9 +30,12 @@ case class SemiApplyPipe(source: Pipe, inner: Pipe, negated: Boolean)
   def internalCreateResults(input: Iterator[ExecutionContext], state: QueryState): Iterator[ExecutionContext] = {
     input.filter {
       (outerContext) =>
-        val innerState = state.withInitialContext(outerContext)
+        val scope = state.materialization.scope()
+        val innerState = state.withInitialContext(outerContext, scope)
         val innerResults = inner.createResults(innerState)
-        if (negated) innerResults.isEmpty else innerResults.nonEmpty
+        val holds = if (negated) innerResults.isEmpty else innerResults.nonEmpty
+        scope.close()
+        holds
     }
   }
 
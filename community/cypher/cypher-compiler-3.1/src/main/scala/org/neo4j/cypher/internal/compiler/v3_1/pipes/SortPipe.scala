@@ -22,13 +22,46 @@ package org.neo4j.cypher.internal.compiler.v3_1.pipes
 import org.neo4j.cypher.internal.compiler.v3_1.planDescription.InternalPlanDescription.Arguments.KeyNames
 import org.neo4j.cypher.internal.compiler.v3_1.{Comparer, ExecutionContext}
 
+import scala.collection.mutable.ArrayBuffer
+
 case class SortPipe(source: Pipe, orderBy: Seq[SortDescription])
                    (val estimatedCardinality: Option[Double] = None)(implicit monitor: PipeMonitor)
   extends PipeWithSource(source, monitor) with RonjaPipe with NoEffectsPipe {
+  /*
+   * Sorts in memory for as long as the materialization budget allows. Once it is full, the rows sorted so far are
+   * written to a spill file as a sorted run, and the runs are merged at the end, i.e. an external merge sort.
+   */
   protected def internalCreateResults(input: Iterator[ExecutionContext], state: QueryState): Iterator[ExecutionContext] = {
-    val array = input.toArray
-    java.util.Arrays.sort(array, new InnerOrdering(orderBy)(state))
-    array.toIterator
+    val budget = state.materialization
+    val ordering = new InnerOrdering(orderBy)(state)
+    val buffer = new ArrayBuffer[ExecutionContext]()
+    val runs = new ArrayBuffer[SpillFile]()
+
+    def sortBuffer(): Array[ExecutionContext] = {
+      val array = buffer.toArray
+      buffer.clear()
+      java.util.Arrays.sort(array, ordering)
+      array
+    }
+
+    input.foreach { row =>
+      if (budget.isFull && buffer.nonEmpty) {
+        val run = budget.spillFiles.create()
+        val rows = sortBuffer()
+        rows.foreach(run.write)
+        budget.release(rows.length)
+        runs += run
+      }
+      budget.allocate(1)
+      buffer += row
+    }
+
+    val sorted = sortBuffer()
+    val inMemory = budget.releaseWhenExhausted(sorted.length, sorted.toIterator)
+    if (runs.isEmpty)
+      inMemory
+    else
+      SortedRuns.merge(runs, inMemory, ordering, state)
   }
 
   def planDescriptionWithoutCardinality = source.planDescription.andThen(this.id, "Sort", variables, KeyNames(orderBy.map(_.id)))
@@ -43,7 +76,50 @@ case class SortPipe(source: Pipe, orderBy: Seq[SortDescription])
   def withEstimatedCardinality(estimated: Double) = copy()(Some(estimated))
 }
 
-private class InnerOrdering(order: Seq[SortDescription])(implicit qtx: QueryState) extends scala.Ordering[ExecutionContext] {
+private[v3_1] object SortedRuns {
+  // how many runs are read at once, which bounds the number of open spill files
+  private val MAX_MERGE_WIDTH = 64
+
+  def merge(runs: Seq[SpillFile], inMemory: Iterator[ExecutionContext], ordering: Ordering[ExecutionContext],
+            state: QueryState): Iterator[ExecutionContext] = {
+    var remaining = runs
+    while (remaining.size >= MAX_MERGE_WIDTH) {
+      val (merging, rest) = remaining.splitAt(MAX_MERGE_WIDTH)
+      val run = state.materialization.spillFiles.create()
+      mergeSorted(merging.map(_.read(state.query)).toIndexedSeq, ordering).foreach(run.write)
+      remaining = run +: rest
+    }
+    mergeSorted((remaining.map(_.read(state.query)) :+ inMemory).toIndexedSeq, ordering)
+  }
+
+  // rows that compare as equal are kept in the order of the inputs, so that the sort stays stable
+  def mergeSorted(inputs: IndexedSeq[Iterator[ExecutionContext]],
+                          ordering: Ordering[ExecutionContext]): Iterator[ExecutionContext] = {
+    val heads = new java.util.PriorityQueue[(ExecutionContext, Int)](inputs.size, new Ordering[(ExecutionContext, Int)] {
+      override def compare(a: (ExecutionContext, Int), b: (ExecutionContext, Int)): Int = {
+        val cmp = ordering.compare(a._1, b._1)
+        if (cmp != 0) cmp else Integer.compare(a._2, b._2)
+      }
+    })
+    inputs.zipWithIndex.foreach {
+      case (input, i) => if (input.hasNext) heads.add(input.next() -> i)
+    }
+
+    new Iterator[ExecutionContext] {
+      override def hasNext: Boolean = !heads.isEmpty
+
+      override def next(): ExecutionContext = {
+        val (row, i) = heads.poll()
+        val input = inputs(i)
+        if (input.hasNext)
+          heads.add(input.next() -> i)
+        row
+      }
+    }
+  }
+}
+
+private[v3_1] class InnerOrdering(order: Seq[SortDescription])(implicit qtx: QueryState) extends scala.Ordering[ExecutionContext] {
   assert(order.nonEmpty)
   private var cmp = -1
 
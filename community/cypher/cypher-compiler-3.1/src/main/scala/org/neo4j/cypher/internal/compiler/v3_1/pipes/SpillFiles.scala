@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.pipes
+
+import java.io._
+import java.nio.charset.StandardCharsets.UTF_8
+
+import org.neo4j.cypher.internal.compiler.v3_1.commands.expressions.PathImpl
+import org.neo4j.cypher.internal.compiler.v3_1.spi.QueryContext
+import org.neo4j.cypher.internal.compiler.v3_1.{CRS, CartesianPoint, ExecutionContext, GeographicPoint}
+import org.neo4j.cypher.internal.frontend.v3_1.MaterializedRowsLimitExceededException
+import org.neo4j.graphdb.{Node, Path, PropertyContainer, Relationship}
+import org.neo4j.kernel.impl.core.EntityFactory
+
+import scala.collection.JavaConverters._
+import scala.collection.mutable
+import scala.util.hashing.MurmurHash3
+
+/**
+ * Temporary files that the eager pipes of a single query spill rows to, once the query holds as many rows in memory
+ * as its materialization budget allows. The files that are still around are deleted when the query is closed. The
+ * workers of a query run in the parallel runtime create files alongside each other.
+ */
+class SpillFiles(limit: Long, directory: File = null) {
+  private val files = mutable.Set[SpillFile]()
+
+  def create(): SpillFile = synchronized {
+    val file = new SpillFile(File.createTempFile("cypher-spill", ".tmp", directory), limit, this)
+    files += file
+    file
+  }
+
+  private[pipes] def deleted(file: SpillFile): Unit = synchronized {
+    files -= file
+  }
+
+  def close(): Unit = synchronized {
+    files.toList.foreach(_.delete())
+  }
+}
+
+object SpillFiles {
+  /*
+   * The partition that rows with the given key are spilled to. The depth is mixed into the hash, so that the rows of a
+   * partition that is split again don't all end up in the same partition once more.
+   */
+  def partition(key: Any, depth: Int, partitions: Int): Int =
+    Math.floorMod(MurmurHash3.finalizeHash(MurmurHash3.mixLast(depth, key.##), 0), partitions)
+}
+
+/**
+ * Rows written to a temporary file, to be read back once all of them have been written. Nodes and relationships are
+ * written as their ids and read back as proxies for those ids, which works for entities deleted in the meantime
+ * just like it does for the proxies held in memory.
+ */
+class SpillFile(file: File, limit: Long, owner: SpillFiles) {
+  import SpillFile._
+
+  private var out: DataOutputStream = null
+  private var rows = 0L
+
+  def size: Long = rows
+
+  def write(row: ExecutionContext) {
+    if (out == null)
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE))
+    out.writeInt(row.size)
+    row.foreach {
+      case (key, value) =>
+        writeString(key)
+        writeValue(value)
+    }
+    rows += 1
+  }
+
+  /*
+   * Reads the rows back in the order they were written. The file is deleted once all rows have been read, so it can
+   * only be read once.
+   */
+  def read(query: QueryContext): Iterator[ExecutionContext] = {
+    if (out != null) {
+      out.close()
+      out = null
+    }
+    if (rows == 0) {
+      delete()
+      return Iterator.empty
+    }
+
+    val in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))
+    new Iterator[ExecutionContext] {
+      private var remaining = rows
+
+      override def hasNext: Boolean = remaining > 0
+
+      override def next(): ExecutionContext = {
+        if (remaining <= 0)
+          throw new NoSuchElementException
+        val size = in.readInt()
+        val map = MutableMaps.create(size)
+        var i = 0
+        while (i < size) {
+          map.put(readString(in), readValue(in, query))
+          i += 1
+        }
+        remaining -= 1
+        if (remaining == 0) {
+          in.close()
+          delete()
+        }
+        ExecutionContext(map)
+      }
+    }
+  }
+
+  def delete() {
+    if (out != null) {
+      out.close()
+      out = null
+    }
+    file.delete()
+    owner.deleted(this)
+  }
+
+  private def writeString(value: String) {
+    val bytes = value.getBytes(UTF_8)
+    out.writeInt(bytes.length)
+    out.write(bytes)
+  }
+
+  private def writeValue(value: Any): Unit = value match {
+    case null => out.writeByte(NULL)
+    case x: Boolean => out.writeByte(if (x) TRUE else FALSE)
+    case x: Long => out.writeByte(LONG); out.writeLong(x)
+    case x: Int => out.writeByte(INT); out.writeInt(x)
+    case x: Short => out.writeByte(SHORT); out.writeShort(x)
+    case x: Byte => out.writeByte(BYTE); out.writeByte(x)
+    case x: Double => out.writeByte(DOUBLE); out.writeDouble(x)
+    case x: Float => out.writeByte(FLOAT); out.writeFloat(x)
+    case x: Char => out.writeByte(CHAR); out.writeChar(x)
+    case x: String => out.writeByte(STRING); writeString(x)
+    case x: Node => out.writeByte(NODE); out.writeLong(x.getId)
+    case x: Relationship => out.writeByte(RELATIONSHIP); out.writeLong(x.getId)
+    case x: Path =>
+      out.writeByte(PATH)
+      out.writeInt(x.length())
+      x.iterator().asScala.foreach(entity => out.writeLong(entity.getId))
+    case x: CartesianPoint =>
+      out.writeByte(CARTESIAN_POINT)
+      out.writeDouble(x.x)
+      out.writeDouble(x.y)
+      out.writeInt(x.crs.code)
+    case x: GeographicPoint =>
+      out.writeByte(GEOGRAPHIC_POINT)
+      out.writeDouble(x.longitude)
+      out.writeDouble(x.latitude)
+      out.writeInt(x.crs.code)
+    case x: scala.collection.Map[_, _] =>
+      out.writeByte(MAP)
+      out.writeInt(x.size)
+      x.foreach {
+        case (k: String, v) => writeString(k); writeValue(v)
+        case _ => throw unspillable(x)
+      }
+    case x: java.util.Map[_, _] => writeValue(x.asScala)
+    case x: Seq[_] => out.writeByte(LIST); out.writeInt(x.size); x.foreach(writeValue)
+    case x: java.util.List[_] => writeValue(x.asScala)
+    case x: Array[Long] => out.writeByte(LONG_ARRAY); out.writeInt(x.length); x.foreach(out.writeLong)
+    case x: Array[Int] => out.writeByte(INT_ARRAY); out.writeInt(x.length); x.foreach(out.writeInt)
+    case x: Array[Short] => out.writeByte(SHORT_ARRAY); out.writeInt(x.length); x.foreach(out.writeShort(_))
+    case x: Array[Byte] => out.writeByte(BYTE_ARRAY); out.writeInt(x.length); out.write(x)
+    case x: Array[Double] => out.writeByte(DOUBLE_ARRAY); out.writeInt(x.length); x.foreach(out.writeDouble)
+    case x: Array[Float] => out.writeByte(FLOAT_ARRAY); out.writeInt(x.length); x.foreach(out.writeFloat)
+    case x: Array[Char] => out.writeByte(CHAR_ARRAY); out.writeInt(x.length); x.foreach(out.writeChar(_))
+    case x: Array[Boolean] => out.writeByte(BOOLEAN_ARRAY); out.writeInt(x.length); x.foreach(out.writeBoolean)
+    case x: Array[String] => out.writeByte(STRING_ARRAY); out.writeInt(x.length); x.foreach(writeString)
+    case x: Array[_] => out.writeByte(ARRAY); out.writeInt(x.length); x.foreach(writeValue)
+    case x => throw unspillable(x)
+  }
+
+  private def unspillable(value: Any) =
+    new MaterializedRowsLimitExceededException(limit,
+      s"Rows holding values of type ${value.getClass.getName} can't be moved out of memory. ")
+}
+
+object SpillFile {
+  private val BUFFER_SIZE = 64 * 1024
+
+  private val NULL: Byte = 0
+  private val TRUE: Byte = 1
+  private val FALSE: Byte = 2
+  private val LONG: Byte = 3
+  private val INT: Byte = 4
+  private val SHORT: Byte = 5
+  private val BYTE: Byte = 6
+  private val DOUBLE: Byte = 7
+  private val FLOAT: Byte = 8
+  private val CHAR: Byte = 9
+  private val STRING: Byte = 10
+  private val NODE: Byte = 11
+  private val RELATIONSHIP: Byte = 12
+  private val PATH: Byte = 13
+  private val CARTESIAN_POINT: Byte = 14
+  private val GEOGRAPHIC_POINT: Byte = 15
+  private val MAP: Byte = 16
+  private val LIST: Byte = 17
+  private val ARRAY: Byte = 18
+  private val LONG_ARRAY: Byte = 19
+  private val INT_ARRAY: Byte = 20
+  private val SHORT_ARRAY: Byte = 21
+  private val BYTE_ARRAY: Byte = 22
+  private val DOUBLE_ARRAY: Byte = 23
+  private val FLOAT_ARRAY: Byte = 24
+  private val CHAR_ARRAY: Byte = 25
+  private val BOOLEAN_ARRAY: Byte = 26
+  private val STRING_ARRAY: Byte = 27
+
+  // the entity accessor of the transaction bound query context is the kernel's proxy factory
+  private def proxies(query: QueryContext): EntityFactory = query.entityAccessor.asInstanceOf[EntityFactory]
+
+  private def readString(in: DataInputStream): String = {
+    val bytes = new Array[Byte](in.readInt())
+    in.readFully(bytes)
+    new String(bytes, UTF_8)
+  }
+
+  private def readValue(in: DataInputStream, query: QueryContext): Any = in.readByte() match {
+    case NULL => null
+    case TRUE => true
+    case FALSE => false
+    case LONG => in.readLong()
+    case INT => in.readInt()
+    case SHORT => in.readShort()
+    case BYTE => in.readByte()
+    case DOUBLE => in.readDouble()
+    case FLOAT => in.readFloat()
+    case CHAR => in.readChar()
+    case STRING => readString(in)
+    case NODE => proxies(query).newNodeProxyById(in.readLong())
+    case RELATIONSHIP => proxies(query).newRelationshipProxyById(in.readLong())
+    case PATH =>
+      val length = in.readInt()
+      val entities = new Array[PropertyContainer](2 * length + 1)
+      var i = 0
+      while (i < entities.length) {
+        val id = in.readLong()
+        entities(i) =
+          if (i % 2 == 0) proxies(query).newNodeProxyById(id)
+          else proxies(query).newRelationshipProxyById(id)
+        i += 1
+      }
+      PathImpl(entities: _*)
+    case CARTESIAN_POINT => CartesianPoint(in.readDouble(), in.readDouble(), CRS.fromSRID(in.readInt()))
+    case GEOGRAPHIC_POINT => GeographicPoint(in.readDouble(), in.readDouble(), CRS.fromSRID(in.readInt()))
+    case MAP =>
+      val size = in.readInt()
+      (1 to size).map(_ => readString(in) -> readValue(in, query)).toMap
+    case LIST => Vector.fill(in.readInt())(readValue(in, query))
+    case ARRAY => Array.fill[Any](in.readInt())(readValue(in, query))
+    case LONG_ARRAY => Array.fill(in.readInt())(in.readLong())
+    case INT_ARRAY => Array.fill(in.readInt())(in.readInt())
+    case SHORT_ARRAY => Array.fill(in.readInt())(in.readShort())
+    case BYTE_ARRAY =>
+      val bytes = new Array[Byte](in.readInt())
+      in.readFully(bytes)
+      bytes
+    case DOUBLE_ARRAY => Array.fill(in.readInt())(in.readDouble())
+    case FLOAT_ARRAY => Array.fill(in.readInt())(in.readFloat())
+    case CHAR_ARRAY => Array.fill(in.readInt())(in.readChar())
+    case BOOLEAN_ARRAY => Array.fill(in.readInt())(in.readBoolean())
+    case STRING_ARRAY => Array.fill(in.readInt())(readString(in))
+    case unknown => throw new IllegalStateException(s"Unknown value type $unknown in spill file")
+  }
+}
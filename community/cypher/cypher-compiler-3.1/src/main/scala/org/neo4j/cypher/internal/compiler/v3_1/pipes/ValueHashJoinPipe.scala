@@ -26,8 +26,6 @@ import org.neo4j.cypher.internal.compiler.v3_1.executionplan.Effects
 import org.neo4j.cypher.internal.compiler.v3_1.planDescription.InternalPlanDescription.Arguments
 import org.neo4j.cypher.internal.compiler.v3_1.planDescription.{InternalPlanDescription, PlanDescriptionImpl, TwoChildren}
 
-import scala.collection.mutable
-
 case class ValueHashJoinPipe(lhsExpression: Expression, rhsExpression: Expression, left: Pipe, right: Pipe)
                             (val estimatedCardinality: Option[Double] = None)(implicit pipeMonitor: PipeMonitor)
   extends PipeWithSource(left, pipeMonitor) with RonjaPipe {
@@ -42,22 +40,9 @@ case class ValueHashJoinPipe(lhsExpression: Expression, rhsExpression: Expressio
     if (rhsIterator.isEmpty)
       return Iterator.empty
 
-    val table = buildProbeTable(input)
-
-    if (table.isEmpty)
-      return Iterator.empty
-
-    val result = for {context: ExecutionContext <- rhsIterator
-                      joinKey = rhsExpression(context) if joinKey != null}
-      yield {
-        val equiKey = Equivalent(joinKey)
-        val seq = table.getOrElse(equiKey, mutable.MutableList.empty)
-        seq.map(context ++ _)
-      }
-    result.flatten
+    GraceHashJoin[Equivalent](input, rhsIterator, state)(joinKey(lhsExpression), joinKey(rhsExpression))
   }
 
-
   override def planDescriptionWithoutCardinality: InternalPlanDescription = {
     new PlanDescriptionImpl(
       id = id,
@@ -81,15 +66,6 @@ case class ValueHashJoinPipe(lhsExpression: Expression, rhsExpression: Expressio
 
   override def withEstimatedCardinality(estimated: Double) = copy()(Some(estimated))
 
-  private def buildProbeTable(input: Iterator[ExecutionContext])(implicit state: QueryState) = {
-    val table = new mutable.HashMap[Equivalent, mutable.MutableList[ExecutionContext]]
-
-    for (context <- input;
-         joinKey = lhsExpression(context) if joinKey != null) {
-      val seq = table.getOrElseUpdate(Equivalent(joinKey), mutable.MutableList.empty)
-      seq += context
-    }
-
-    table
-  }
+  private def joinKey(expression: Expression)(implicit state: QueryState): ExecutionContext => Option[Equivalent] =
+    context => Option(expression(context)).map(Equivalent(_))
 }
@@ -199,6 +199,9 @@ case class ActualPipeBuilder(monitors: Monitors, recurse: LogicalPlan => Pipe, r
       val indexSeekMode = IndexSeekModeFactory(unique = false, readOnly = readOnly).fromQueryExpression(valueExpr)
       NodeIndexSeekPipe(id, label, propertyKey, valueExpr.map(buildExpression), indexSeekMode)()
 
+    case NodeIndexSeekInOrder(IdName(id), label, propertyKey, valueExpr, _) =>
+      NodeIndexSeekPipe(id, label, propertyKey, valueExpr.map(buildExpression), IndexSeekByRangeInOrder)()
+
     case NodeUniqueIndexSeek(IdName(id), label, propertyKey, valueExpr, _) =>
       val indexSeekMode = IndexSeekModeFactory(unique = true, readOnly = readOnly).fromQueryExpression(valueExpr)
       NodeIndexSeekPipe(id, label, propertyKey, valueExpr.map(buildExpression), indexSeekMode)()
@@ -260,6 +263,9 @@ case class ActualPipeBuilder(monitors: Monitors, recurse: LogicalPlan => Pipe, r
       VarLengthExpandPipe(source, fromName, relName, toName, dir, projectedDir,
         LazyTypes(types), min, max, nodeInScope, predicate)()
 
+    case BidirectionalVarExpand(_, IdName(fromName), dir, projectedDir, types, IdName(toName), IdName(relName), VarPatternLength(min, max)) =>
+      BidirectionalVarLengthExpandPipe(source, fromName, relName, toName, dir, projectedDir, LazyTypes(types), min, max)()
+
     case Optional(inner, protectedSymbols) =>
       OptionalPipe((inner.availableSymbols -- protectedSymbols).map(_.name), source)()
 
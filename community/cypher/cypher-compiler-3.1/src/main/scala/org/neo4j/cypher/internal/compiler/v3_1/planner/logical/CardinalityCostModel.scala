@@ -51,11 +51,13 @@ object CardinalityCostModel extends CostModel {
     => 1.2
 
     case _: Expand |
-         _: VarExpand
+         _: VarExpand |
+         _: BidirectionalVarExpand
     => 1.5
 
     case _: NodeUniqueIndexSeek |
          _: NodeIndexSeek |
+         _: NodeIndexSeekInOrder |
          _: NodeIndexContainsScan |
          _: NodeIndexEndsWithScan
     => 1.9
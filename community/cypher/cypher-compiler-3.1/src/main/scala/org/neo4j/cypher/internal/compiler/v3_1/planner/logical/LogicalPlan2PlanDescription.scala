@@ -42,6 +42,9 @@ object LogicalPlan2PlanDescription extends ((LogicalPlan, Map[LogicalPlan, Id])
       case NodeIndexSeek(IdName(id), label, propKey, value, arguments) =>
         PlanDescriptionImpl(id = idMap(plan), "NodeIndexSeek", NoChildren, Seq(Index(label.name, propKey.name)), symbols)
 
+      case NodeIndexSeekInOrder(IdName(id), label, propKey, value, arguments) =>
+        PlanDescriptionImpl(id = idMap(plan), "NodeIndexSeekByRange(Ordered)", NoChildren, Seq(Index(label.name, propKey.name)), symbols)
+
       case NodeUniqueIndexSeek(IdName(id), label, propKey, value, arguments) =>
         PlanDescriptionImpl(id = idMap(plan), "NodeUniqueIndexSeek", NoChildren, Seq(Index(label.name, propKey.name)), symbols)
 
@@ -29,7 +29,7 @@ import org.neo4j.cypher.internal.compiler.v3_1.planner.logical.{Cardinality, Sel
 import org.neo4j.cypher.internal.compiler.v3_1.spi.GraphStatistics
 import org.neo4j.cypher.internal.compiler.v3_1.spi.GraphStatistics._
 import org.neo4j.cypher.internal.frontend.v3_1.ast._
-import org.neo4j.cypher.internal.frontend.v3_1.{LabelId, SemanticTable}
+import org.neo4j.cypher.internal.frontend.v3_1.{Bound, ExclusiveBound, InclusiveBound, LabelId, SemanticTable}
 
 trait Expression2Selectivity {
   def apply(exp: Expression)(implicit semanticTable: SemanticTable, selections: Selections): Selectivity
@@ -181,7 +181,63 @@ case class ExpressionSelectivityCalculator(stats: GraphStatistics, combiner: Sel
 
   private def calculateSelectivityForValueRangeSeekable(seekable: InequalityRangeSeekable,
                                                         selections: Selections)
-                                                       (implicit semanticTable: SemanticTable): Selectivity = {
+                                                       (implicit semanticTable: SemanticTable): Selectivity =
+    calculateSelectivityForNumberRangeFromHistograms(seekable, selections).getOrElse {
+      estimateSelectivityForValueRangeSeekable(seekable, selections)
+    }
+
+  /*
+   * Histograms can only be used when all bounds are number literals, the values of parameters aren't known when
+   * planning. Falls back to estimating from the index selectivity otherwise, or when there is no histogram.
+   */
+  private def calculateSelectivityForNumberRangeFromHistograms(seekable: InequalityRangeSeekable,
+                                                               selections: Selections)
+                                                              (implicit semanticTable: SemanticTable): Option[Selectivity] = {
+    val bounds: Seq[Option[Either[Bound[Double], Bound[Double]]]] = seekable.expr.inequalities.toSeq.map {
+      case GreaterThan(_, NumberLiteralValue(value)) => Some(Left(ExclusiveBound(value)))
+      case GreaterThanOrEqual(_, NumberLiteralValue(value)) => Some(Left(InclusiveBound(value)))
+      case LessThan(_, NumberLiteralValue(value)) => Some(Right(ExclusiveBound(value)))
+      case LessThanOrEqual(_, NumberLiteralValue(value)) => Some(Right(InclusiveBound(value)))
+      case _ => None
+    }
+
+    if (bounds.contains(None))
+      None
+    else {
+      val lower = bounds.flatten.collect { case Left(bound) => bound }.reduceOption(tighterLowerBound)
+      val upper = bounds.flatten.collect { case Right(bound) => bound }.reduceOption(tighterUpperBound)
+      val labels = selections.labelsOnNode(IdName(seekable.ident.name))
+      val histogramSelectivities = labels.toSeq.flatMap {
+        labelName =>
+          (labelName.id, seekable.propertyKeyName.id) match {
+            case (Some(labelId), Some(propertyKeyId)) =>
+              stats.indexNumberRangeSelectivity(labelId, propertyKeyId, lower, upper)
+
+            case _ =>
+              None
+          }
+      }
+      combiner.orTogetherSelectivities(histogramSelectivities)
+    }
+  }
+
+  private def tighterLowerBound(a: Bound[Double], b: Bound[Double]): Bound[Double] =
+    if (a.endPoint > b.endPoint || (a.endPoint == b.endPoint && !a.isInclusive)) a else b
+
+  private def tighterUpperBound(a: Bound[Double], b: Bound[Double]): Bound[Double] =
+    if (a.endPoint < b.endPoint || (a.endPoint == b.endPoint && !a.isInclusive)) a else b
+
+  private object NumberLiteralValue {
+    def unapply(expression: Expression): Option[Double] = expression match {
+      case literal: IntegerLiteral => Some(literal.value.doubleValue())
+      case literal: DoubleLiteral => Some(literal.value.doubleValue())
+      case _ => None
+    }
+  }
+
+  private def estimateSelectivityForValueRangeSeekable(seekable: InequalityRangeSeekable,
+                                                       selections: Selections)
+                                                      (implicit semanticTable: SemanticTable): Selectivity = {
     val name = seekable.ident.name
     val propertyKeyName = seekable.expr.property.propertyKey
     val equalitySelectivity = calculateSelectivityForPropertyEquality(name, Some(1), selections, propertyKeyName).factor
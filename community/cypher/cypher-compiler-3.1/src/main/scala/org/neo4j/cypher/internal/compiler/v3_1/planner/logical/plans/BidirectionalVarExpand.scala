@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.planner.logical.plans
+
+import org.neo4j.cypher.internal.compiler.v3_1.planner.{CardinalityEstimation, PlannerQuery}
+import org.neo4j.cypher.internal.frontend.v3_1.SemanticDirection
+import org.neo4j.cypher.internal.frontend.v3_1.ast.RelTypeName
+
+/*
+ * A var length expand between two nodes that are both in scope, where only the existence of a path matters and
+ * not how many there are. Produces at most one row per input row, binding the relationships of a shortest path.
+ */
+case class BidirectionalVarExpand(left: LogicalPlan,
+                                  from: IdName,
+                                  dir: SemanticDirection,
+                                  projectedDir: SemanticDirection,
+                                  types: Seq[RelTypeName],
+                                  to: IdName,
+                                  relName: IdName,
+                                  length: VarPatternLength)
+                                 (val solved: PlannerQuery with CardinalityEstimation) extends LogicalPlan with LazyLogicalPlan {
+
+  val lhs = Some(left)
+  def rhs = None
+
+  def availableSymbols: Set[IdName] = left.availableSymbols + relName + to
+}
@@ -36,7 +36,9 @@ case class LogicalPlanRewriter(rewriterSequencer: String => RewriterStepSequence
     simplifyEquality,
     unnestOptional,
     predicateRemovalThroughJoins,
-    removeIdenticalPlans
+    removeIdenticalPlans,
+    useIndexOrderForLimitedSort,
+    useBidirectionalVarExpand
   ).rewriter)
 
   def apply(that: AnyRef) = instance(that)
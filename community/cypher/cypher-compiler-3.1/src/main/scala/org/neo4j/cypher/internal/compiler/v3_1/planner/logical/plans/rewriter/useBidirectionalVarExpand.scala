@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.planner.logical.plans.rewriter
+
+import org.neo4j.cypher.internal.compiler.v3_1.planner.logical.plans._
+import org.neo4j.cypher.internal.frontend.v3_1.{Rewriter, bottomUp}
+
+/*
+ * A var length expand between two bound nodes produces one row per path, and the number of paths grows
+ * exponentially with the length of the pattern. When the rows are only used to see whether there are any,
+ * like on the right hand side of a semi apply, or are made distinct without looking at the paths, a single
+ * path is as good as all of them. Such expands are replaced by a bidirectional search for a shortest path.
+ */
+case object useBidirectionalVarExpand extends Rewriter {
+
+  override def apply(input: AnyRef) = instance.apply(input)
+
+  private val instance: Rewriter = bottomUp(Rewriter.lift {
+    case p@SemiApply(lhs, rhs) => p.copy(right = onlyOnePath(rhs))(p.solved)
+    case p@AntiSemiApply(lhs, rhs) => p.copy(right = onlyOnePath(rhs))(p.solved)
+    case p@LetSemiApply(lhs, rhs, _) => p.copy(right = onlyOnePath(rhs))(p.solved)
+    case p@LetAntiSemiApply(lhs, rhs, _) => p.copy(right = onlyOnePath(rhs))(p.solved)
+    case p@SelectOrSemiApply(lhs, rhs, _) => p.copy(right = onlyOnePath(rhs))(p.solved)
+    case p@SelectOrAntiSemiApply(lhs, rhs, _) => p.copy(right = onlyOnePath(rhs))(p.solved)
+    case p@LetSelectOrSemiApply(lhs, rhs, _, _) => p.copy(right = onlyOnePath(rhs))(p.solved)
+    case p@LetSelectOrAntiSemiApply(lhs, rhs, _, _) => p.copy(right = onlyOnePath(rhs))(p.solved)
+
+    case p@Aggregation(expand: VarExpand, grouping, aggregations)
+      if aggregations.isEmpty && !grouping.values.exists(_.dependencies.exists(_.name == expand.relName.name)) =>
+      p.copy(left = onlyOnePath(expand))(p.solved)
+  })
+
+  private def onlyOnePath(plan: LogicalPlan): LogicalPlan = plan match {
+    case expand@VarExpand(source, from, dir, projectedDir, types, to, relName, length, ExpandInto, Seq())
+      if length.min <= 1 =>
+      BidirectionalVarExpand(source, from, dir, projectedDir, types, to, relName, length)(expand.solved)
+
+    case _ =>
+      plan
+  }
+}
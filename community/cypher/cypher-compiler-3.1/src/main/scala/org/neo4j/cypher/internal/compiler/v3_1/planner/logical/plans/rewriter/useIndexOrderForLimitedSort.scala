@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.planner.logical.plans.rewriter
+
+import org.neo4j.cypher.internal.compiler.v3_1.commands.RangeQueryExpression
+import org.neo4j.cypher.internal.compiler.v3_1.planner.logical.Ascending
+import org.neo4j.cypher.internal.compiler.v3_1.planner.logical.plans._
+import org.neo4j.cypher.internal.frontend.v3_1.ast.{Property, PropertyKeyName, Variable}
+import org.neo4j.cypher.internal.frontend.v3_1.{Rewriter, bottomUp}
+
+/*
+ * ORDER BY n.prop LIMIT x on top of a range seek over an index on :Label(prop) does not need to sort all matches
+ * just to keep the first few. Instead the seek is asked to produce its nodes in property order, which lets the
+ * limit stop reading from the index as soon as it has seen enough rows.
+ */
+case object useIndexOrderForLimitedSort extends Rewriter {
+
+  override def apply(input: AnyRef) = instance.apply(input)
+
+  private val instance: Rewriter = bottomUp(Rewriter.lift {
+    case limit@Limit(Sort(source, Seq(Ascending(IdName(column)))), _, DoNotIncludeTies) =>
+      inIndexOrder(source, column).map(ordered => limit.copy(left = ordered)(limit.solved)).getOrElse(limit)
+
+    case limit@Limit(skip@Skip(Sort(source, Seq(Ascending(IdName(column)))), _), _, DoNotIncludeTies) =>
+      inIndexOrder(source, column).map { ordered =>
+        limit.copy(left = skip.copy(left = ordered)(skip.solved))(limit.solved)
+      }.getOrElse(limit)
+  })
+
+  // finds the projection of the sorted column and checks that it reads the seeked property
+  private def inIndexOrder(plan: LogicalPlan, column: String): Option[LogicalPlan] = plan match {
+    case projection@Projection(source, expressions) =>
+      val orderedSource = expressions.get(column) match {
+        case Some(Property(Variable(node), PropertyKeyName(key))) => seekInOrder(source, node, key)
+        case Some(Variable(renamed)) => inIndexOrder(source, renamed)
+        case Some(_) => None
+        case None => inIndexOrder(source, column)
+      }
+      orderedSource.map(ordered => projection.copy(left = ordered)(projection.solved))
+
+    case selection@Selection(_, source) =>
+      inIndexOrder(source, column).map(ordered => selection.copy(left = ordered)(selection.solved))
+
+    case _ =>
+      None
+  }
+
+  private def seekInOrder(plan: LogicalPlan, node: String, key: String): Option[LogicalPlan] = plan match {
+    case projection@Projection(source, expressions) =>
+      val orderedSource = expressions.get(node) match {
+        case Some(Variable(renamed)) => seekInOrder(source, renamed, key)
+        case Some(_) => None
+        case None => seekInOrder(source, node, key)
+      }
+      orderedSource.map(ordered => projection.copy(left = ordered)(projection.solved))
+
+    case selection@Selection(_, source) =>
+      seekInOrder(source, node, key).map(ordered => selection.copy(left = ordered)(selection.solved))
+
+    case seek@NodeIndexSeek(idName, label, propertyKey, valueExpr@RangeQueryExpression(_), argumentIds)
+      if idName.name == node && propertyKey.name == key =>
+      Some(NodeIndexSeekInOrder(idName, label, propertyKey, valueExpr, argumentIds)(seek.solved))
+
+    case _ =>
+      None
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.profiler
+
+import org.neo4j.cypher.internal.compiler.v3_1._
+import org.neo4j.cypher.internal.compiler.v3_1.pipes.{NullPipeDecorator, Pipe, PipeDecorator, QueryState, RonjaPipe}
+import org.neo4j.cypher.internal.compiler.v3_1.planDescription.{Id, InternalPlanDescription}
+
+import scala.collection.mutable
+
+/*
+ * Counts the rows produced by the pipes on the leftmost path of a plan while it executes, and compares them to the
+ * cardinalities the planner estimated for those pipes. Only the leftmost path is considered, because those pipes are
+ * created exactly once per execution; pipes on the right-hand side of an apply are estimated per argument row, but
+ * are run once for every row.
+ *
+ * A pipe that produced more rows than `divergenceFactor` times its estimate diverges. So does a pipe that was
+ * exhausted after producing fewer rows than its estimate divided by `divergenceFactor`. A pipe that was not
+ * exhausted might just not have been asked for all of its rows. Whether the execution diverged is reported to
+ * `onCompletion`, which decides what it takes for the plan to be replanned.
+ */
+class CardinalityFeedback(estimates: Map[Id, Double], divergenceFactor: Double, onCompletion: Boolean => Unit)
+  extends PipeDecorator {
+
+  private val rowCounts: mutable.Map[Id, RowCountingIterator] = mutable.Map.empty
+
+  def decorate(pipe: Pipe, iter: Iterator[ExecutionContext]): Iterator[ExecutionContext] =
+    if (estimates.contains(pipe.id)) {
+      val counted = new RowCountingIterator(iter)
+      rowCounts(pipe.id) = counted
+      counted
+    } else
+      iter
+
+  def decorate(pipe: Pipe, state: QueryState): QueryState = state
+
+  def decorate(plan: InternalPlanDescription, isProfileReady: => Boolean): InternalPlanDescription = plan
+
+  def innerDecorator: PipeDecorator = NullPipeDecorator
+
+  def registerParentPipe(pipe: Pipe) {}
+
+  def diverges: Boolean = rowCounts.exists {
+    case (id, rows) =>
+      val estimated = math.max(estimates(id), 1.0)
+      val actual = math.max(rows.count, 1L).toDouble
+      actual > estimated * divergenceFactor || (rows.exhausted && actual * divergenceFactor < estimated)
+  }
+
+  /*
+   * Called once the execution has finished successfully
+   */
+  def report(): Unit = onCompletion(diverges)
+}
+
+object CardinalityFeedback {
+  def estimatesAlongLeftmostPath(root: Pipe): Map[Id, Double] = {
+    val leftmostPath = Iterator.iterate(Option(root))(_.flatMap(_.sources.headOption)).takeWhile(_.isDefined).flatten
+    leftmostPath.collect {
+      case pipe: RonjaPipe if pipe.estimatedCardinality.isDefined => pipe.id -> pipe.estimatedCardinality.get
+    }.toMap
+  }
+}
+
+class RowCountingIterator(inner: Iterator[ExecutionContext]) extends Iterator[ExecutionContext] with Counter {
+
+  private var _exhausted = false
+
+  def exhausted: Boolean = _exhausted
+
+  def hasNext: Boolean = {
+    val result = inner.hasNext
+    if (!result)
+      _exhausted = true
+    result
+  }
+
+  def next(): ExecutionContext = {
+    increment()
+    inner.next()
+  }
+}
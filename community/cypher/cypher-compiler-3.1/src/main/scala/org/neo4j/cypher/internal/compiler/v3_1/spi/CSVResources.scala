@@ -23,6 +23,7 @@ import java.io._
 import java.net.{CookieHandler, CookieManager, CookiePolicy, URL}
 import java.nio.charset.StandardCharsets
 import java.nio.file.Paths
+import java.util.concurrent.{ArrayBlockingQueue, CountDownLatch, Executor, TimeUnit}
 import java.util.zip.{GZIPInputStream, InflaterInputStream}
 
 import org.neo4j.csv.reader._
@@ -54,7 +55,12 @@ object CSVResources {
   }
 }
 
-class CSVResources(cleaner: TaskCloser) extends ExternalCSVResource {
+/*
+ * Rows are parsed on the query thread, unless both a number of rows to parse ahead and an executor to parse them on
+ * are given.
+ */
+class CSVResources(cleaner: TaskCloser, parseAheadRows: Int = 0, parser: Option[Executor] = None)
+  extends ExternalCSVResource {
 
   def getCsvIterator(url: URL, fieldTerminator: Option[String] = None): Iterator[Array[String]] = {
     val inputStream = openStream(url)
@@ -70,11 +76,7 @@ class CSVResources(cleaner: TaskCloser) extends ExternalCSVResource {
     val intDelimiter = delimiter.toInt
     val mark = new Mark
 
-    cleaner.addTask(_ => {
-      seeker.close()
-    })
-
-    new Iterator[Array[String]] {
+    val rows = new Iterator[Array[String]] {
       private def readNextRow: Array[String] = {
         val buffer = new ArrayBuffer[String]
         breakable {
@@ -102,6 +104,20 @@ class CSVResources(cleaner: TaskCloser) extends ExternalCSVResource {
         row
       }
     }
+
+    if (parseAheadRows > 0 && parser.isDefined) {
+      val parseAhead = new ParseAheadIterator(rows, parseAheadRows, parser.get, () => seeker.close())
+      cleaner.addTask(_ => {
+        parseAhead.stop()
+        parseAhead.awaitStopped(ParseAheadIterator.STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+      })
+      parseAhead
+    } else {
+      cleaner.addTask(_ => {
+        seeker.close()
+      })
+      rows
+    }
   }
 
   private def openStream(url: URL, connectionTimeout: Int = 2000, readTimeout: Int = 10 * 60 * 1000): InputStream = {
@@ -125,6 +141,113 @@ class CSVResources(cleaner: TaskCloser) extends ExternalCSVResource {
   }
 }
 
+/*
+ * Parses rows as a job on the given executor and hands them over in chunks, with at most about the given number of
+ * rows parsed ahead of the consumer. A failure to parse is thrown to the consumer once it has seen all rows before it.
+ * The source of the rows is closed by the parsing job when it ends, so that it's never closed while being read from.
+ */
+class ParseAheadIterator(rows: Iterator[Array[String]], aheadRows: Int, executor: Executor, closeSource: () => Unit)
+  extends Iterator[Array[String]] {
+
+  import ParseAheadIterator._
+
+  private val chunkSize = Math.max(1, Math.min(aheadRows, MAX_CHUNK_SIZE))
+  private val chunks = new ArrayBlockingQueue[AnyRef](Math.max(1, aheadRows / chunkSize))
+  private val parsed = new CountDownLatch(1)
+  @volatile private var stopped = false
+
+  private var chunk: Array[Array[String]] = Array.empty
+  private var position = 0
+  private var exhausted = false
+
+  try {
+    executor.execute(new Runnable {
+      override def run(): Unit = try {
+        parse()
+      } finally {
+        close()
+      }
+    })
+  } catch {
+    case e: Throwable =>
+      close()
+      throw e
+  }
+
+  private def close(): Unit = try {
+    closeSource()
+  } finally {
+    parsed.countDown()
+  }
+
+  private def parse(): Unit = {
+    val outcome = try {
+      while (!stopped && rows.hasNext) {
+        val parsedRows = new ArrayBuffer[Array[String]](chunkSize)
+        while (parsedRows.size < chunkSize && rows.hasNext)
+          parsedRows += rows.next()
+        handOver(parsedRows.toArray)
+      }
+      END
+    } catch {
+      case e: Throwable => Failed(e)
+    }
+    handOver(outcome)
+  }
+
+  // The job runs on a pooled thread, so it's stopped through the flag rather than by interrupting that thread
+  private def handOver(item: AnyRef): Unit = {
+    while (!stopped && !chunks.offer(item, HAND_OVER_POLL_MILLIS, TimeUnit.MILLISECONDS)) {}
+  }
+
+  def hasNext: Boolean = {
+    while (position == chunk.length && !exhausted) {
+      chunks.take() match {
+        case END =>
+          exhausted = true
+        case Failed(e) =>
+          exhausted = true
+          throw e
+        case parsedRows: Array[Array[String]] =>
+          chunk = parsedRows
+          position = 0
+      }
+    }
+    position < chunk.length
+  }
+
+  def next(): Array[String] = {
+    if (!hasNext) Iterator.empty.next()
+    val row = chunk(position)
+    chunk(position) = null
+    position += 1
+    row
+  }
+
+  def stop(): Unit = {
+    stopped = true
+  }
+
+  /*
+   * Waits at most the given time for the parsing job to end. A job blocked reading from its source ends, and closes
+   * that source, once the read returns, so there's no point in holding up the query for longer than that.
+   */
+  def awaitStopped(timeout: Long, unit: TimeUnit): Boolean = parsed.await(timeout, unit)
+
+  def isParsing: Boolean = parsed.getCount > 0
+}
+
+object ParseAheadIterator {
+  val MAX_CHUNK_SIZE = 1024
+  val STOP_TIMEOUT_MILLIS = 1000L
+
+  private val HAND_OVER_POLL_MILLIS = 10L
+
+  private val END = new Object
+
+  private case class Failed(e: Throwable)
+}
+
 object TheCookieManager {
   private lazy val theCookieManager = create
 
@@ -21,6 +21,7 @@ package org.neo4j.cypher.internal.compiler.v3_1.spi
 
 import java.net.URL
 
+import org.neo4j.collection.primitive.PrimitiveLongIterator
 import org.neo4j.cypher.internal.compiler.v3_1.commands.expressions.{Expander, KernelPredicate}
 import org.neo4j.cypher.internal.compiler.v3_1.pipes.matching.PatternNode
 import org.neo4j.cypher.internal.frontend.v3_1.SemanticDirection
@@ -97,6 +98,9 @@ class DelegatingQueryContext(val inner: QueryContext) extends QueryContext {
   override def indexSeekByRange(index: IndexDescriptor, value: Any): Iterator[Node] =
     manyDbHits(inner.indexSeekByRange(index, value))
 
+  override def indexSeekByRangeInOrder(index: IndexDescriptor, value: Any): Iterator[Node] =
+    manyDbHits(inner.indexSeekByRangeInOrder(index, value))
+
   override def indexScan(index: IndexDescriptor): Iterator[Node] = manyDbHits(inner.indexScan(index))
 
   override def indexScanByContains(index: IndexDescriptor, value: String): scala.Iterator[Node] =
@@ -107,6 +111,8 @@ class DelegatingQueryContext(val inner: QueryContext) extends QueryContext {
 
   override def getNodesByLabel(id: Int): Iterator[Node] = manyDbHits(inner.getNodesByLabel(id))
 
+  override def getNodeIdsByLabel(id: Int): PrimitiveLongIterator = inner.getNodeIdsByLabel(id)
+
   override def getOrCreateFromSchemaState[K, V](key: K, creator: => V): V =
     singleDbHit(inner.getOrCreateFromSchemaState(key, creator))
 
@@ -130,6 +136,10 @@ class DelegatingQueryContext(val inner: QueryContext) extends QueryContext {
 
   override def withAnyOpenQueryContext[T](work: (QueryContext) => T): T = inner.withAnyOpenQueryContext(work)
 
+  override def transactionHasChanges: Boolean = inner.transactionHasChanges
+
+  override def beginParallelReadContext(): QueryContext = inner.beginParallelReadContext()
+
   override def lockingUniqueIndexSeek(index: IndexDescriptor, value: Any): Option[Node] =
     singleDbHit(inner.lockingUniqueIndexSeek(index, value))
 
@@ -20,7 +20,7 @@
 package org.neo4j.cypher.internal.compiler.v3_1.spi
 
 import org.neo4j.cypher.internal.compiler.v3_1.planner.logical.{Cardinality, Selectivity}
-import org.neo4j.cypher.internal.frontend.v3_1.{LabelId, PropertyKeyId, RelTypeId}
+import org.neo4j.cypher.internal.frontend.v3_1.{Bound, LabelId, PropertyKeyId, RelTypeId}
 
 object GraphStatistics {
   val DEFAULT_RANGE_SELECTIVITY          = Selectivity.of(0.3).get
@@ -53,6 +53,15 @@ trait GraphStatistics {
       indexPropertyExistsSelectivity(:X, prop) = s => |MATCH (a:X)| * s = |MATCH (a:X) WHERE has(x.prop)|
    */
   def indexPropertyExistsSelectivity(label: LabelId, property: PropertyKeyId): Option[Selectivity]
+
+  /*
+      Probability of any node with the given label, to have a given property with a number value in the given range,
+      an absent bound leaving that end open. None if the index keeps no histogram of its values.
+
+      indexNumberRangeSelectivity(:X, prop, >= 1, < 10) = s => |MATCH (a:X)| * s = |MATCH (a:X) WHERE 1 <= a.prop < 10|
+   */
+  def indexNumberRangeSelectivity(label: LabelId, property: PropertyKeyId,
+                                  lower: Option[Bound[Double]], upper: Option[Bound[Double]]): Option[Selectivity] = None
 }
 
 class DelegatingGraphStatistics(delegate: GraphStatistics) extends GraphStatistics {
@@ -67,6 +76,10 @@ class DelegatingGraphStatistics(delegate: GraphStatistics) extends GraphStatisti
 
   override def indexPropertyExistsSelectivity(label: LabelId, property: PropertyKeyId): Option[Selectivity] =
     delegate.indexPropertyExistsSelectivity(label, property)
+
+  override def indexNumberRangeSelectivity(label: LabelId, property: PropertyKeyId,
+                                           lower: Option[Bound[Double]], upper: Option[Bound[Double]]): Option[Selectivity] =
+    delegate.indexNumberRangeSelectivity(label, property, lower, upper)
 }
 
 class StatisticsCompletingGraphStatistics(delegate: GraphStatistics)
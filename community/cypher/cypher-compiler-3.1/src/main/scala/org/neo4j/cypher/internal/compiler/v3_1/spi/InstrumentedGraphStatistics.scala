@@ -20,7 +20,7 @@
 package org.neo4j.cypher.internal.compiler.v3_1.spi
 
 import org.neo4j.cypher.internal.compiler.v3_1.planner.logical.{Cardinality, Selectivity}
-import org.neo4j.cypher.internal.frontend.v3_1.{PropertyKeyId, RelTypeId, LabelId}
+import org.neo4j.cypher.internal.frontend.v3_1.{Bound, PropertyKeyId, RelTypeId, LabelId}
 
 import scala.collection.mutable
 import java.lang.Math.abs
@@ -31,6 +31,8 @@ case class NodesWithLabelCardinality(labelId: Option[LabelId]) extends Statistic
 case class CardinalityByLabelsAndRelationshipType(lhs: Option[LabelId], relType: Option[RelTypeId], rhs: Option[LabelId]) extends StatisticsKey
 case class IndexSelectivity(labelId: LabelId, propertyKeyId: PropertyKeyId) extends StatisticsKey
 case class IndexPropertyExistsSelectivity(labelId: LabelId, propertyKeyId: PropertyKeyId) extends StatisticsKey
+case class IndexNumberRangeSelectivity(labelId: LabelId, propertyKeyId: PropertyKeyId,
+                                       lower: Option[Bound[Double]], upper: Option[Bound[Double]]) extends StatisticsKey
 
 class MutableGraphStatisticsSnapshot(val map: mutable.Map[StatisticsKey, Double] = mutable.Map.empty) {
   def freeze: GraphStatisticsSnapshot = GraphStatisticsSnapshot(map.toMap)
@@ -49,6 +51,8 @@ case class GraphStatisticsSnapshot(statsValues: Map[StatisticsKey, Double] = Map
         instrumented.indexSelectivity(labelId, propertyKeyId)
       case IndexPropertyExistsSelectivity(labelId, propertyKeyId) =>
         instrumented.indexPropertyExistsSelectivity(labelId, propertyKeyId)
+      case IndexNumberRangeSelectivity(labelId, propertyKeyId, lower, upper) =>
+        instrumented.indexNumberRangeSelectivity(labelId, propertyKeyId, lower, upper)
     }
     snapshot.freeze
   }
@@ -88,4 +92,11 @@ case class InstrumentedGraphStatistics(inner: GraphStatistics, snapshot: Mutable
     snapshot.map.getOrElseUpdate(IndexPropertyExistsSelectivity(label, property), selectivity.fold(0.0)(_.factor))
     selectivity
   }
+
+  override def indexNumberRangeSelectivity(label: LabelId, property: PropertyKeyId,
+                                           lower: Option[Bound[Double]], upper: Option[Bound[Double]]): Option[Selectivity] = {
+    val selectivity = inner.indexNumberRangeSelectivity(label, property, lower, upper)
+    snapshot.map.getOrElseUpdate(IndexNumberRangeSelectivity(label, property, lower, upper), selectivity.fold(0.0)(_.factor))
+    selectivity
+  }
 }
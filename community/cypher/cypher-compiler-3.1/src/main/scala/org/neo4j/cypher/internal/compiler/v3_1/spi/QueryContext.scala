@@ -21,6 +21,7 @@ package org.neo4j.cypher.internal.compiler.v3_1.spi
 
 import java.net.URL
 
+import org.neo4j.collection.primitive.PrimitiveLongIterator
 import org.neo4j.cypher.internal.compiler.v3_1.InternalQueryStatistics
 import org.neo4j.cypher.internal.compiler.v3_1.commands.expressions.{Expander, KernelPredicate}
 import org.neo4j.cypher.internal.compiler.v3_1.pipes.matching.PatternNode
@@ -91,6 +92,9 @@ trait QueryContext extends TokenContext {
 
   def indexSeekByRange(index: IndexDescriptor, value: Any): Iterator[Node]
 
+  // like indexSeekByRange, but returns the nodes in ascending order of the indexed property
+  def indexSeekByRangeInOrder(index: IndexDescriptor, value: Any): Iterator[Node]
+
   def indexScanByContains(index: IndexDescriptor, value: String): Iterator[Node]
 
   def indexScanByEndsWith(index: IndexDescriptor, value: String): Iterator[Node]
@@ -101,6 +105,8 @@ trait QueryContext extends TokenContext {
 
   def getNodesByLabel(id: Int): Iterator[Node]
 
+  def getNodeIdsByLabel(id: Int): PrimitiveLongIterator
+
   def getOrCreateFromSchemaState[K, V](key: K, creator: => V): V
 
   def createUniqueConstraint(labelId: Int, propertyKeyId: Int): IdempotentResult[UniquenessConstraint]
@@ -124,6 +130,17 @@ trait QueryContext extends TokenContext {
    */
   def withAnyOpenQueryContext[T](work: (QueryContext) => T): T
 
+  // Whether the transaction of the query holds changes that it hasn't committed yet
+  def transactionHasChanges: Boolean
+
+  /*
+   * Begins a read transaction of its own, with the access mode of the transaction of the query, so that another thread
+   * can read the graph alongside the query. The new transaction doesn't see what the transaction of the query hasn't
+   * committed yet. It is bound to the calling thread, and has to be closed on that thread through the transactional
+   * context of the returned query context.
+   */
+  def beginParallelReadContext(): QueryContext
+
   def relationshipStartNode(rel: Relationship): Node
 
   def relationshipEndNode(rel: Relationship): Node
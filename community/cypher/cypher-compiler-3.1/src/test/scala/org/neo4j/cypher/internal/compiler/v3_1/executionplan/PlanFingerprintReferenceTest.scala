@@ -129,6 +129,77 @@ class PlanFingerprintReferenceTest extends CypherFunSuite {
     reference.isStale(->(23), stats) shouldBe false
   }
 
+  test("should be stale if executions keep diverging even if stats have not changed") {
+    val snapshot = GraphStatisticsSnapshot(Map(NodesWithLabelCardinality(label(21)) -> 5.0))
+    val ttl = 1000l
+    val threshold = 0.5
+    val clock = Clocks.fakeClock()
+    val stats = mock[GraphStatistics]
+    when(stats.nodesWithLabelCardinality(label(21))).thenReturn(5.0)
+    val fingerprint = PlanFingerprint(clock.millis(), 17, snapshot)
+
+    val reference = new PlanFingerprintReference(clock, ttl, threshold, fingerprint)
+    (1 to 3).foreach(_ => reference.recordExecution(diverged = true))
+
+    clock.forward(2, SECONDS)
+
+    reference.isStale(->(17), stats) shouldBe true
+  }
+
+  test("should not be stale after a single diverging execution") {
+    val snapshot = GraphStatisticsSnapshot(Map(NodesWithLabelCardinality(label(21)) -> 5.0))
+    val ttl = 1000l
+    val threshold = 0.5
+    val clock = Clocks.fakeClock()
+    val stats = mock[GraphStatistics]
+    when(stats.nodesWithLabelCardinality(label(21))).thenReturn(5.0)
+    val fingerprint = PlanFingerprint(clock.millis(), 17, snapshot)
+
+    val reference = new PlanFingerprintReference(clock, ttl, threshold, fingerprint)
+    reference.recordExecution(diverged = false)
+    reference.recordExecution(diverged = true)
+    reference.recordExecution(diverged = false)
+
+    clock.forward(2, SECONDS)
+
+    reference.isStale(->(17), stats) shouldBe false
+  }
+
+  test("should not be stale once executions have stopped diverging") {
+    val snapshot = GraphStatisticsSnapshot(Map(NodesWithLabelCardinality(label(21)) -> 5.0))
+    val ttl = 1000l
+    val threshold = 0.5
+    val clock = Clocks.fakeClock()
+    val stats = mock[GraphStatistics]
+    when(stats.nodesWithLabelCardinality(label(21))).thenReturn(5.0)
+    val fingerprint = PlanFingerprint(clock.millis(), 17, snapshot)
+
+    val reference = new PlanFingerprintReference(clock, ttl, threshold, fingerprint)
+    (1 to 3).foreach(_ => reference.recordExecution(diverged = true))
+    (1 to 3).foreach(_ => reference.recordExecution(diverged = false))
+
+    clock.forward(2, SECONDS)
+
+    reference.isStale(->(17), stats) shouldBe false
+  }
+
+  test("should not be stale if executions keep diverging before the life time has expired") {
+    val snapshot = GraphStatisticsSnapshot(Map(NodesWithLabelCardinality(label(21)) -> 5.0))
+    val ttl = 1000l
+    val threshold = 0.5
+    val clock = Clocks.fakeClock()
+    val stats = mock[GraphStatistics]
+    when(stats.nodesWithLabelCardinality(label(21))).thenReturn(5.0)
+    val fingerprint = PlanFingerprint(clock.millis(), 17, snapshot)
+
+    val reference = new PlanFingerprintReference(clock, ttl, threshold, fingerprint)
+    (1 to 3).foreach(_ => reference.recordExecution(diverged = true))
+
+    clock.forward(500, MILLISECONDS)
+
+    reference.isStale(->(42), stats) shouldBe false
+  }
+
   implicit def liftToOption[T](item: T): Option[T] = Option(item)
   def ->[T](item: T): () => T = () => item
   def label(i: Int): LabelId = LabelId(i)
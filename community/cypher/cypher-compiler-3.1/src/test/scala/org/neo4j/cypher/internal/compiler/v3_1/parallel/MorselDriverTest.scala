@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.parallel
+
+import java.util.concurrent.Executor
+
+import org.mockito.Mockito._
+import org.neo4j.cypher.internal.compiler.v3_1.ExecutionContext
+import org.neo4j.cypher.internal.compiler.v3_1.pipes.QueryStateHelper
+import org.neo4j.cypher.internal.compiler.v3_1.spi.{QueryContext, QueryTransactionalContext}
+import org.neo4j.cypher.internal.frontend.v3_1.test_helpers.CypherFunSuite
+
+class MorselDriverTest extends CypherFunSuite {
+
+  private val threads = new Executor {
+    override def execute(command: Runnable): Unit = new Thread(command).start()
+  }
+
+  test("hands every row to exactly one worker") {
+    val (query, transactionalContext) = queryContext()
+    val rows = (1 to 1005).map(i => ExecutionContext.empty.newWith1("x", i))
+
+    val partials = new MorselDriver(threads, workers = 4, morselSize = 10)
+      .run(rows.iterator, QueryStateHelper.emptyWith(query = query), () => null)((input, _) => input.map(_("x")).toList)
+
+    partials should have size 4
+    partials.flatten.sortBy(_.asInstanceOf[Int]) should equal(1 to 1005)
+    verify(transactionalContext, times(4)).close(true)
+  }
+
+  test("runs the work of every worker in a read transaction of its own") {
+    val (query, transactionalContext) = queryContext()
+
+    val partials = new MorselDriver(threads, workers = 3)
+      .run(Iterator.empty, QueryStateHelper.emptyWith(query = query), () => null)((_, state) => state.query)
+
+    partials.map(_.transactionalContext) should equal(Seq.fill(3)(transactionalContext))
+    verify(query, times(3)).beginParallelReadContext()
+  }
+
+  test("rethrows the failure of a worker once all workers have stopped") {
+    val (query, transactionalContext) = queryContext()
+    val rows = (1 to 1000).map(i => ExecutionContext.empty.newWith1("x", i))
+
+    intercept[IllegalStateException](new MorselDriver(threads, workers = 2, morselSize = 10)
+      .run(rows.iterator, QueryStateHelper.emptyWith(query = query), () => null) { (input, _) =>
+        input.foreach(row => if (row("x") == 500) throw new IllegalStateException("boom"))
+      })
+
+    verify(transactionalContext, times(1)).close(false)
+    verify(transactionalContext, times(1)).close(true)
+  }
+
+  test("rethrows the failure of the scan") {
+    val (query, transactionalContext) = queryContext()
+    val rows = Iterator.tabulate(100)(i => ExecutionContext.empty.newWith1("x", i)) ++
+      Iterator.continually[ExecutionContext](throw new IllegalStateException("boom"))
+
+    intercept[IllegalStateException](new MorselDriver(threads, workers = 2, morselSize = 10)
+      .run(rows, QueryStateHelper.emptyWith(query = query), () => null)((input, _) => input.size))
+
+    verify(transactionalContext, times(2)).close(true)
+  }
+
+  private def queryContext(): (QueryContext, QueryTransactionalContext) = {
+    val transactionalContext = mock[QueryTransactionalContext]
+    val workerContext = mock[QueryContext]
+    when(workerContext.transactionalContext).thenReturn(transactionalContext)
+    val query = mock[QueryContext]
+    when(query.beginParallelReadContext()).thenReturn(workerContext)
+    (query, transactionalContext)
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.parallel
+
+import java.util.concurrent.Executor
+
+import org.neo4j.cypher.internal.compiler.v3_1.commands.expressions.{Avg, CountStar, Literal}
+import org.neo4j.cypher.internal.compiler.v3_1.commands.predicates.True
+import org.neo4j.cypher.internal.compiler.v3_1.pipes._
+import org.neo4j.cypher.internal.compiler.v3_1.planner.CantCompileQueryException
+import org.neo4j.cypher.internal.frontend.v3_1.test_helpers.CypherFunSuite
+
+class ParallelPipeRewriterTest extends CypherFunSuite {
+
+  private implicit val monitor = mock[PipeMonitor]
+
+  private val executor = mock[Executor]
+
+  test("runs an aggregation over a scan in parallel") {
+    val aggregation = EagerAggregationPipe(AllNodesScanPipe("n")(), Set("n"), Map("c" -> CountStar()))()
+    val plan = ProduceResultsPipe(aggregation, Seq("n", "c"))()
+
+    val rewritten = ParallelPipeRewriter(plan, 4, executor, 0)
+
+    rewritten should equal(ProduceResultsPipe(ParallelPipe(aggregation, AggregationMerge(aggregation), 4, executor, 0), Seq("n", "c"))())
+  }
+
+  test("runs the lowest sort or aggregation over a scan in parallel") {
+    val scan = NodeByLabelScanPipe("n", LazyLabel("Person"))()
+    val aggregation = EagerAggregationPipe(FilterPipe(scan, True())(), Set("n"), Map("c" -> CountStar()))()
+    val sort = SortPipe(aggregation, List(Ascending("c")))()
+
+    val rewritten = ParallelPipeRewriter(sort, 4, executor, 0)
+
+    rewritten should equal(SortPipe(ParallelPipe(aggregation, AggregationMerge(aggregation), 4, executor, 0), List(Ascending("c")))())
+  }
+
+  test("does not run aggregations whose partial results it can't merge in parallel") {
+    val aggregation = EagerAggregationPipe(AllNodesScanPipe("n")(), Set.empty, Map("a" -> Avg(Literal(1))))()
+
+    intercept[CantCompileQueryException](ParallelPipeRewriter(aggregation, 4, executor, 0))
+  }
+
+  test("does not run a sort in parallel that doesn't read from a scan") {
+    val sort = SortPipe(SingleRowPipe(), List(Ascending("x")))()
+
+    intercept[CantCompileQueryException](ParallelPipeRewriter(sort, 4, executor, 0))
+  }
+}
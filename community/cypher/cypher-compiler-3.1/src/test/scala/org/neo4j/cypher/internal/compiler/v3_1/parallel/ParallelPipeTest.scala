@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.parallel
+
+import java.util.concurrent.Executor
+
+import org.mockito.Mockito._
+import org.neo4j.cypher.internal.compiler.v3_1.commands.expressions._
+import org.neo4j.cypher.internal.compiler.v3_1.pipes._
+import org.neo4j.cypher.internal.compiler.v3_1.spi.{QueryContext, QueryTransactionalContext}
+import org.neo4j.cypher.internal.frontend.v3_1.CypherTypeException
+import org.neo4j.cypher.internal.frontend.v3_1.symbols._
+import org.neo4j.cypher.internal.frontend.v3_1.test_helpers.CypherFunSuite
+
+import scala.util.Random
+
+class ParallelPipeTest extends CypherFunSuite {
+
+  private implicit val monitor = mock[PipeMonitor]
+
+  private val threads = new Executor {
+    override def execute(command: Runnable): Unit = new Thread(command).start()
+  }
+
+  private val rows = (0 until 5000).map(i => Map[String, Any]("x" -> i % 7, "y" -> i))
+
+  test("merges the groups that the workers aggregated") {
+    val aggregation = EagerAggregationPipe(scan(rows), Set("x"), Map(
+      "count" -> CountStar(),
+      "sum" -> Sum(Variable("y")),
+      "min" -> Min(Variable("y")),
+      "max" -> Max(Variable("y")),
+      "ys" -> Collect(Variable("y"))))()
+
+    val result = parallel(aggregation).createResults(state()).toList
+
+    result.map(row => row("x") -> (row("count"), row("sum"), row("min"), row("max"))).toMap should equal(
+      rows.groupBy(_("x")).map {
+        case (x, group) =>
+          val ys = group.map(_("y").asInstanceOf[Int])
+          x -> (ys.size.toLong, ys.sum.toLong, ys.min, ys.max)
+      })
+    result.map(row => row("x") -> row("ys").asInstanceOf[Seq[Int]].sorted).toMap should equal(
+      rows.groupBy(_("x")).mapValues(_.map(_("y"))))
+  }
+
+  test("gives a single row when aggregating nothing without grouping keys") {
+    val aggregation = EagerAggregationPipe(scan(Seq.empty), Set.empty, Map(
+      "count" -> Count(Variable("y")),
+      "min" -> Min(Variable("y")),
+      "ys" -> Collect(Variable("y"))))()
+
+    parallel(aggregation).createResults(state()).toList should equal(List(Map("count" -> 0L, "min" -> null, "ys" -> Seq.empty)))
+  }
+
+  test("merges the rows that the workers sorted") {
+    val shuffled = Random.shuffle(rows)
+
+    val result = parallel(SortPipe(scan(shuffled), List(Descending("y"), Ascending("x")))()).createResults(state()).toList
+
+    result.map(_("y")) should equal(rows.map(_("y")).reverse)
+  }
+
+  test("takes the top rows of the rows that the workers took the top rows of") {
+    val shuffled = Random.shuffle(rows)
+
+    val result = parallel(TopNPipe(scan(shuffled), List(Ascending("y")), Literal(10))()).createResults(state()).toList
+
+    result.map(_("y")) should equal(0 until 10)
+  }
+
+  test("runs on the query thread when the transaction of the query has changes") {
+    val query = mock[QueryContext]
+    when(query.transactionHasChanges).thenReturn(true)
+
+    val result = parallel(SortPipe(scan(rows.reverse), List(Ascending("y")))()).createResults(state(query)).toList
+
+    result.map(_("y")) should equal(rows.map(_("y")))
+    verify(query, never()).beginParallelReadContext()
+  }
+
+  test("fails the query when a worker fails") {
+    val aggregation = EagerAggregationPipe(scan(rows :+ Map("x" -> 1, "y" -> "not a number")), Set("x"), Map(
+      "sum" -> Sum(Variable("y"))))()
+
+    intercept[CypherTypeException](parallel(aggregation).createResults(state()).toList)
+  }
+
+  private def scan(rows: Seq[Map[String, Any]]) = new FakePipe(rows, "x" -> CTInteger, "y" -> CTAny)
+
+  private def parallel(pipe: Pipe) =
+    ParallelPipe(pipe, PartialResultsMerge(pipe).get, workers = 3, executor = threads, maxMaterializedRows = 0)
+
+  private def state(query: QueryContext = workerQuery()) = QueryStateHelper.emptyWith(query = query)
+
+  private def workerQuery(): QueryContext = {
+    val workerContext = mock[QueryContext]
+    when(workerContext.transactionalContext).thenReturn(mock[QueryTransactionalContext])
+    val query = mock[QueryContext]
+    when(query.beginParallelReadContext()).thenReturn(workerContext)
+    query
+  }
+}
@@ -20,6 +20,7 @@
 package org.neo4j.cypher.internal.compiler.v3_1.pipes
 
 import org.neo4j.cypher.internal.compiler.v3_1.ExecutionContext
+import org.neo4j.cypher.internal.compiler.v3_1.commands.expressions.Literal
 import org.neo4j.cypher.internal.frontend.v3_1.symbols.CTNumber
 import org.neo4j.cypher.internal.frontend.v3_1.test_helpers.CypherFunSuite
 
@@ -55,4 +56,18 @@ class ApplyPipeTest extends CypherFunSuite with PipeTestSupport {
 
     result should equal(lhsData)
   }
+
+  test("should give back rows held by an inner sort when a limit abandons its output") {
+    val lhsData = (1 to 10).map(i => Map("a" -> i))
+    val lhs = new FakePipe(lhsData.iterator, "a" -> CTNumber)
+    val rhsData = (1 to 5).map(i => row("b" -> i))
+    val sort = SortPipe(pipeWithResults { (state) => rhsData.iterator.map(_.clone()) }, List(Descending("b")))()
+    val rhs = LimitPipe(sort, Literal(1))()
+    val budget = new MaterializedRowsLimit(5)
+
+    val result = ApplyPipe(lhs, rhs)()(newMonitor).createResults(QueryStateHelper.emptyWith(materialization = budget)).toList
+
+    result should equal(lhsData.map(_ + ("b" -> 5)))
+    budget.materializedRows should equal(0)
+  }
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.pipes
+
+import org.mockito.Matchers._
+import org.mockito.Mockito._
+import org.mockito.invocation.InvocationOnMock
+import org.mockito.stubbing.Answer
+import org.neo4j.cypher.internal.compiler.v3_1.ExecutionContext
+import org.neo4j.cypher.internal.compiler.v3_1.spi.QueryContext
+import org.neo4j.cypher.internal.compiler.v3_1.symbols.SymbolTable
+import org.neo4j.cypher.internal.frontend.v3_1.SemanticDirection
+import org.neo4j.cypher.internal.frontend.v3_1.symbols._
+import org.neo4j.cypher.internal.frontend.v3_1.test_helpers.CypherFunSuite
+import org.neo4j.graphdb.{Node, Relationship}
+
+class BidirectionalVarLengthExpandPipeTest extends CypherFunSuite {
+
+  implicit val monitor = mock[PipeMonitor]
+
+  // (a)-[r1]->(n1)-[r2]->(n2)-[r3]->(b) and a detour (a)-[r4]->(n3)-[r5]->(n1)
+  private val a = newMockedNode(1)
+  private val n1 = newMockedNode(2)
+  private val n2 = newMockedNode(3)
+  private val n3 = newMockedNode(4)
+  private val b = newMockedNode(5)
+  private val r1 = newMockedRelationship(1, a, n1)
+  private val r2 = newMockedRelationship(2, n1, n2)
+  private val r3 = newMockedRelationship(3, n2, b)
+  private val r4 = newMockedRelationship(4, a, n3)
+  private val r5 = newMockedRelationship(5, n3, n1)
+  private val graph = Seq(r1, r2, r3, r4, r5)
+
+  test("should find a shortest path between two bound nodes") {
+    val result = expand(a, b, max = None)
+
+    val (single :: Nil) = result
+    single("a") should equal(a)
+    single("r") should equal(List(r1, r2, r3))
+    single("b") should equal(b)
+  }
+
+  test("should produce nothing when the nodes are further apart than the maximum length") {
+    expand(a, b, max = Some(2)) should be(empty)
+  }
+
+  test("should produce nothing when the nodes are not connected in the expanded direction") {
+    expand(b, a, max = None) should be(empty)
+  }
+
+  test("should produce the relationships in projected direction") {
+    val result = expand(a, b, max = Some(3), projectedDir = SemanticDirection.INCOMING)
+
+    val (single :: Nil) = result
+    single("r") should equal(List(r3, r2, r1))
+  }
+
+  test("should produce an empty path from a node to itself when the minimum length is zero") {
+    val result = expand(a, a, max = None, min = 0)
+
+    val (single :: Nil) = result
+    single("r") should equal(List.empty)
+  }
+
+  test("should produce nothing from a node to itself without a cycle") {
+    expand(a, a, max = None) should be(empty)
+  }
+
+  test("should produce nulls when the start node is null") {
+    val result = expand(null, b, max = None)
+
+    val (single :: Nil) = result
+    single("r") should equal(null)
+    single("b") should equal(null)
+  }
+
+  private def expand(from: Node, to: Node, max: Option[Int], min: Int = 1,
+                     projectedDir: SemanticDirection = SemanticDirection.OUTGOING): List[ExecutionContext] = {
+    val query = mock[QueryContext]
+    when(query.getRelationshipsForIds(any(), any(), any())).thenAnswer(new Answer[Iterator[Relationship]] {
+      def answer(invocation: InvocationOnMock): Iterator[Relationship] = {
+        val (node :: dir :: _ :: Nil) = invocation.getArguments.toList
+        dir match {
+          case SemanticDirection.OUTGOING => graph.filter(_.getStartNode == node).iterator
+          case SemanticDirection.INCOMING => graph.filter(_.getEndNode == node).iterator
+          case SemanticDirection.BOTH => graph.filter(r => r.getStartNode == node || r.getEndNode == node).iterator
+        }
+      }
+    })
+    val queryState = QueryStateHelper.emptyWith(query = query)
+
+    val left = mock[Pipe]
+    when(left.sources).thenReturn(Seq.empty)
+    when(left.symbols).thenReturn(SymbolTable(Map("a" -> CTNode, "b" -> CTNode)))
+    when(left.createResults(queryState)).thenAnswer(new Answer[Iterator[ExecutionContext]] {
+      def answer(invocation: InvocationOnMock): Iterator[ExecutionContext] = Iterator(ExecutionContext.from("a" -> from, "b" -> to))
+    })
+
+    BidirectionalVarLengthExpandPipe(left, "a", "r", "b", SemanticDirection.OUTGOING, projectedDir, LazyTypes.empty, min, max)()
+      .createResults(queryState).toList
+  }
+
+  private def newMockedNode(id: Int) = {
+    val node = mock[Node]
+    when(node.getId).thenReturn(id)
+    node
+  }
+
+  private def newMockedRelationship(id: Int, startNode: Node, endNode: Node): Relationship = {
+    val relationship = mock[Relationship]
+    when(relationship.getId).thenReturn(id)
+    when(relationship.getStartNode).thenReturn(startNode)
+    when(relationship.getEndNode).thenReturn(endNode)
+    when(relationship.getOtherNode(startNode)).thenReturn(endNode)
+    when(relationship.getOtherNode(endNode)).thenReturn(startNode)
+    relationship
+  }
+}
@@ -162,6 +162,22 @@ class EagerAggregationPipeTest extends CypherFunSuite {
     getResults(aggregationPipe) should equal(List(Map("count(name)" -> 3)))
   }
 
+  test("should spill the rows of new groups once the materialization budget is full") {
+    val source = new FakePipe((0 until 300).map(i => Map[String, Any]("name" -> s"name${i % 100}", "age" -> i)),
+      createSymbolTableFor("name"), "age" -> CTInteger)
+
+    val grouping = createReturnItemsFor("name")
+    val aggregation = Map("count(*)" -> CountStar(), "sum(age)" -> Sum(Variable("age")))
+    val aggregationPipe = new EagerAggregationPipe(source, grouping, aggregation)()
+    val budget = new MaterializedRowsLimit(10)
+
+    val results = aggregationPipe.createResults(QueryStateHelper.emptyWith(materialization = budget)).map(_.m.toMap).toList
+
+    results should contain theSameElementsAs (0 until 100).map(i =>
+      Map[String, Any]("name" -> s"name$i", "count(*)" -> 3, "sum(age)" -> (3 * i + 300)))
+    budget.materializedRows should equal(0)
+  }
+
   private def createSymbolTableFor(name: String): (String, CypherType) = name -> CTNode
 
   private def getResults(p: Pipe) = p.createResults(QueryStateHelper.empty).map(_.m.toMap).toList
@@ -39,4 +39,15 @@ class EagerPipeTest extends CypherFunSuite {
     lazyIterator shouldBe empty
     resultIterator should not be empty
   }
+
+  test("spills the rows that don't fit in the materialization budget") {
+    val data = (0 until 20).map(i => Map[String, Any]("x" -> i, "y" -> s"row$i"))
+    val eager = new EagerPipe(new FakePipe(data))()
+    val budget = new MaterializedRowsLimit(5)
+
+    val result = eager.createResults(QueryStateHelper.emptyWith(materialization = budget)).toList
+
+    result should equal(data)
+    budget.materializedRows should equal(0)
+  }
 }
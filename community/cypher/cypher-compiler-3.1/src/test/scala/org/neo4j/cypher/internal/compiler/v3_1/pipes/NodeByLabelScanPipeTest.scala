@@ -19,8 +19,9 @@
  */
 package org.neo4j.cypher.internal.compiler.v3_1.pipes
 
+import org.neo4j.collection.primitive.PrimitiveLongCollections
 import org.neo4j.cypher.internal.frontend.v3_1.ast.LabelName
-import org.neo4j.cypher.internal.compiler.v3_1.spi.QueryContext
+import org.neo4j.cypher.internal.compiler.v3_1.spi.{Operations, QueryContext}
 import org.neo4j.cypher.internal.frontend.v3_1.{SemanticTable, LabelId}
 import org.neo4j.cypher.internal.frontend.v3_1.test_helpers.CypherFunSuite
 import org.neo4j.graphdb.Node
@@ -46,4 +47,25 @@ class NodeByLabelScanPipeTest extends CypherFunSuite {
     // then
     result.map(_("a")).toList should equal(nodes)
   }
+
+  test("should scan labeled nodes in batches") {
+    // given
+    val nodes = List(mock[Node], mock[Node], mock[Node])
+    val nodeOps = mock[Operations[Node]]
+    nodes.zipWithIndex.foreach { case (node, id) => when(nodeOps.getById(id)).thenReturn(node) }
+    val query = mock[QueryContext]
+    when(query.getNodeIdsByLabel(12)).thenReturn(PrimitiveLongCollections.iterator(0L, 1L, 2L))
+    when(query.nodeOps).thenReturn(nodeOps)
+    val queryState = QueryStateHelper.emptyWith(query = query, batchSize = 2)
+
+    implicit val table = new SemanticTable()
+    table.resolvedLabelIds.put("Foo", LabelId(12))
+
+    // when
+    val result = NodeByLabelScanPipe("a", LazyLabel(LabelName("Foo")(null)))().createBatches(queryState).toList
+
+    // then
+    result.map(_.size) should equal(List(2, 1))
+    result.flatMap(_.toRows(queryState)).map(_("a")) should equal(nodes)
+  }
 }
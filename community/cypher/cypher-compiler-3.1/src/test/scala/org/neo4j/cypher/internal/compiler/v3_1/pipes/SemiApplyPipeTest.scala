@@ -100,4 +100,18 @@ class SemiApplyPipeTest extends CypherFunSuite with PipeTestSupport {
     // Should not throw
     SemiApplyPipe(lhs, rhs, negated = false)()(newMonitor).createResults(QueryStateHelper.empty).toList
   }
+
+  test("should give back rows held by the inner side once it has been evaluated") {
+    val lhsData = (1 to 10).map(i => Map("a" -> i))
+    val lhs = new FakePipe(lhsData.iterator, "a" -> CTNumber)
+    val rhsData = (1 to 5).map(i => row("b" -> i))
+    val rhs = SortPipe(pipeWithResults((state: QueryState) => rhsData.iterator.map(_.clone())), List(Ascending("b")))()
+    val budget = new MaterializedRowsLimit(5)
+
+    val result = SemiApplyPipe(lhs, rhs, negated = false)()(newMonitor)
+      .createResults(QueryStateHelper.emptyWith(materialization = budget)).toList
+
+    result should equal(lhsData)
+    budget.materializedRows should equal(0)
+  }
 }
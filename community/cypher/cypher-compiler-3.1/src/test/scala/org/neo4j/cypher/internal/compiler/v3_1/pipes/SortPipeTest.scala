@@ -20,11 +20,13 @@
 package org.neo4j.cypher.internal.compiler.v3_1.pipes
 
 import org.junit.Assert._
+import org.neo4j.cypher.internal.frontend.v3_1.MaterializedRowsLimitExceededException
 import org.neo4j.cypher.internal.frontend.v3_1.symbols._
 import org.neo4j.cypher.internal.frontend.v3_1.test_helpers.CypherFunSuite
 import org.scalatest.mock.MockitoSugar
 
 import scala.collection.mutable.{Map => MutableMap}
+import scala.util.Random
 
 class SortPipeTest extends CypherFunSuite with MockitoSugar {
 
@@ -91,4 +93,48 @@ class SortPipeTest extends CypherFunSuite with MockitoSugar {
       MutableMap("y" -> 2),
       MutableMap("y" -> null)), sortPipe.createResults(QueryStateHelper.empty).toList)
   }
+
+  test("spills rows to disk when sorting more rows than the materialization budget allows") {
+    val list: Seq[MutableMap[String, Any]] = Random.shuffle((0 until 100).toList).map(i => MutableMap[String, Any]("x" -> i))
+    val source = new FakePipe(list, "x" -> CTInteger)
+
+    val sortPipe = new SortPipe(source, List(Ascending("x")))()
+    val budget = new MaterializedRowsLimit(5)
+    val state = QueryStateHelper.emptyWith(materialization = budget)
+
+    sortPipe.createResults(state).toList should equal((0 until 100).map(i => MutableMap("x" -> i)))
+    budget.materializedRows should equal(0)
+  }
+
+  test("keeps rows with equal keys in their original order when spilling") {
+    val list: Seq[MutableMap[String, Any]] = (0 until 100).map(i => MutableMap[String, Any]("x" -> i % 3, "y" -> i))
+    val source = new FakePipe(list, "x" -> CTInteger, "y" -> CTInteger)
+
+    val sortPipe = new SortPipe(source, List(Descending("x")))()
+    val state = QueryStateHelper.emptyWith(materialization = MaterializationBudget(5))
+
+    sortPipe.createResults(state).toList should equal(list.sortBy(row => -row("x").asInstanceOf[Int]))
+  }
+
+  test("fails when sorting more rows than the materialization budget allows and the rows can't be spilled") {
+    val list: Seq[MutableMap[String, Any]] = (0 until 10).map(i => MutableMap[String, Any]("x" -> i, "y" -> new Object))
+    val source = new FakePipe(list, "x" -> CTInteger, "y" -> CTAny)
+
+    val sortPipe = new SortPipe(source, List(Ascending("x")))()
+    val state = QueryStateHelper.emptyWith(materialization = MaterializationBudget(5))
+
+    a[MaterializedRowsLimitExceededException] should be thrownBy sortPipe.createResults(state).toList
+  }
+
+  test("gives rows back to the materialization budget once the sorted output is consumed") {
+    val list: Seq[MutableMap[String, Any]] = (0 until 10).map(i => MutableMap[String, Any]("x" -> i))
+    val budget = new MaterializedRowsLimit(10)
+    val state = QueryStateHelper.emptyWith(materialization = budget)
+
+    new SortPipe(new FakePipe(list, "x" -> CTInteger), List(Ascending("x")))().createResults(state).toList
+    budget.materializedRows should equal(0)
+
+    new SortPipe(new FakePipe(list, "x" -> CTInteger), List(Descending("x")))().createResults(state).toList
+    budget.materializedRows should equal(0)
+  }
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.pipes
+
+import java.nio.file.Files
+
+import org.neo4j.cypher.internal.compiler.v3_1.{CRS, CartesianPoint, ExecutionContext}
+import org.neo4j.cypher.internal.frontend.v3_1.MaterializedRowsLimitExceededException
+import org.neo4j.cypher.internal.frontend.v3_1.test_helpers.CypherFunSuite
+
+class SpillFilesTest extends CypherFunSuite {
+
+  test("reads rows back in the order they were written") {
+    val spillFiles = new SpillFiles(10)
+    val file = spillFiles.create()
+    val rows = List(
+      ExecutionContext.from("a" -> 1L, "b" -> "one", "c" -> null),
+      ExecutionContext.from("a" -> 2.5, "b" -> true, "c" -> List(1L, "two", Map("three" -> 3L))),
+      ExecutionContext.from("a" -> CartesianPoint(1.0, 2.0, CRS.Cartesian), "b" -> 'c', "c" -> Map("x" -> List())))
+
+    rows.foreach(file.write)
+
+    file.size should equal(3)
+    file.read(null).toList should equal(rows)
+  }
+
+  test("reads arrays back as arrays") {
+    val spillFiles = new SpillFiles(10)
+    val file = spillFiles.create()
+
+    file.write(ExecutionContext.from("a" -> Array(1L, 2L), "b" -> Array("x", "y")))
+
+    val row = file.read(null).next()
+    row("a").asInstanceOf[Array[Long]].toList should equal(List(1L, 2L))
+    row("b").asInstanceOf[Array[String]].toList should equal(List("x", "y"))
+  }
+
+  test("fails on values that can't be written") {
+    val spillFiles = new SpillFiles(10)
+    val file = spillFiles.create()
+
+    a[MaterializedRowsLimitExceededException] should be thrownBy file.write(ExecutionContext.from("a" -> new Object))
+    spillFiles.close()
+  }
+
+  test("deletes the files that are left when closed") {
+    val directory = Files.createTempDirectory("spill-files-test").toFile
+    val spillFiles = new SpillFiles(10, directory)
+    val read = spillFiles.create()
+    val unread = spillFiles.create()
+    read.write(ExecutionContext.from("a" -> 1))
+    unread.write(ExecutionContext.from("a" -> 2))
+
+    read.read(null).toList
+    directory.list() should have size 1
+
+    spillFiles.close()
+    directory.list() shouldBe empty
+    directory.delete()
+  }
+}
@@ -180,6 +180,21 @@ class ValueHashJoinPipeTest extends CypherFunSuite {
     result.toList should equal(List(Map("a" -> ints, "b" ->  doubles)))
   }
 
+  test("should partition both sides to disk when the probe table doesn't fit in the materialization budget") {
+    // given
+    val left = new FakePipe((0 until 100).map(i => Map[String, Any]("a" -> i % 50, "a2" -> i)), "a" -> CTInteger)
+    val right = new FakePipe((0 until 100).map(i => Map[String, Any]("b" -> i, "b2" -> s"b$i")), "b" -> CTInteger)
+    val budget = new MaterializedRowsLimit(10)
+
+    // when
+    val result = ValueHashJoinPipe(Variable("a"), Variable("b"), left, right)()
+      .createResults(QueryStateHelper.emptyWith(materialization = budget))
+
+    // then
+    result.map(_.m.toMap).toList should contain theSameElementsAs (0 until 100).map(i =>
+      Map[String, Any]("a" -> i % 50, "a2" -> i, "b" -> i % 50, "b2" -> s"b${i % 50}"))
+    budget.materializedRows should equal(0)
+  }
 
   private def row(values: (String, Any)*) = ExecutionContext.from(values: _*)
 
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.planner.logical.plans.rewriter
+
+import org.neo4j.cypher.internal.compiler.v3_1.planner.LogicalPlanningTestSupport
+import org.neo4j.cypher.internal.compiler.v3_1.planner.logical.plans._
+import org.neo4j.cypher.internal.frontend.v3_1.SemanticDirection
+import org.neo4j.cypher.internal.frontend.v3_1.ast._
+import org.neo4j.cypher.internal.frontend.v3_1.helpers.fixedPoint
+import org.neo4j.cypher.internal.frontend.v3_1.test_helpers.CypherFunSuite
+
+class useBidirectionalVarExpandTest extends CypherFunSuite with LogicalPlanningTestSupport {
+
+  private val lhs = newMockedLogicalPlan("a", "b")
+  private val arg = Argument(Set(IdName("a"), IdName("b")))(solved)()
+  private val knows = Seq(RelTypeName("KNOWS")(pos))
+
+  private def varExpand(length: VarPatternLength, mode: ExpansionMode = ExpandInto) =
+    VarExpand(arg, IdName("a"), SemanticDirection.BOTH, SemanticDirection.BOTH, knows, IdName("b"), IdName("r"), length, mode)(solved)
+
+  private def bidirectional(length: VarPatternLength) =
+    BidirectionalVarExpand(arg, IdName("a"), SemanticDirection.BOTH, SemanticDirection.BOTH, knows, IdName("b"), IdName("r"), length)(solved)
+
+  test("should search from both sides when a semi apply only checks for a path between bound nodes") {
+    val plan = SemiApply(lhs, varExpand(VarPatternLength(1, Some(6))))(solved)
+
+    rewrite(plan) should equal(SemiApply(lhs, bidirectional(VarPatternLength(1, Some(6))))(solved))
+  }
+
+  test("should search from both sides when an anti semi apply only checks for a path between bound nodes") {
+    val plan = AntiSemiApply(lhs, varExpand(VarPatternLength(0, None)))(solved)
+
+    rewrite(plan) should equal(AntiSemiApply(lhs, bidirectional(VarPatternLength(0, None)))(solved))
+  }
+
+  test("should search from both sides when distinct rows do not depend on the paths") {
+    val grouping: Map[String, Expression] = Map("a" -> varFor("a"), "b" -> varFor("b"))
+    val plan = Aggregation(varExpand(VarPatternLength(1, Some(6))), grouping, Map.empty)(solved)
+
+    rewrite(plan) should equal(Aggregation(bidirectional(VarPatternLength(1, Some(6))), grouping, Map.empty)(solved))
+  }
+
+  test("should not rewrite distinct rows that depend on the paths") {
+    val grouping: Map[String, Expression] = Map("a" -> varFor("a"), "r" -> varFor("r"))
+    val plan = Aggregation(varExpand(VarPatternLength(1, Some(6))), grouping, Map.empty)(solved)
+
+    rewrite(plan) should equal(plan)
+  }
+
+  test("should not rewrite when the end node is not bound") {
+    val plan = SemiApply(lhs, varExpand(VarPatternLength(1, Some(6)), ExpandAll))(solved)
+
+    rewrite(plan) should equal(plan)
+  }
+
+  test("should not rewrite when paths have to be longer than one relationship") {
+    val plan = SemiApply(lhs, varExpand(VarPatternLength(2, Some(6))))(solved)
+
+    rewrite(plan) should equal(plan)
+  }
+
+  test("should not rewrite when all paths are returned") {
+    val plan = varExpand(VarPatternLength(1, Some(6)))
+
+    rewrite(plan) should equal(plan)
+  }
+
+  private def rewrite(p: LogicalPlan): LogicalPlan =
+    fixedPoint((p: LogicalPlan) => p.endoRewrite(useBidirectionalVarExpand))(p)
+}
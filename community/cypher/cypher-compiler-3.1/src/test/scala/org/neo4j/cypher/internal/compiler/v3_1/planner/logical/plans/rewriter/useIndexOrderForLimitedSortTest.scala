@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.planner.logical.plans.rewriter
+
+import org.neo4j.cypher.internal.compiler.v3_1.RangeGreaterThan
+import org.neo4j.cypher.internal.compiler.v3_1.ast.InequalitySeekRangeWrapper
+import org.neo4j.cypher.internal.compiler.v3_1.commands.{RangeQueryExpression, SingleQueryExpression}
+import org.neo4j.cypher.internal.compiler.v3_1.planner.LogicalPlanningTestSupport
+import org.neo4j.cypher.internal.compiler.v3_1.planner.logical.plans._
+import org.neo4j.cypher.internal.compiler.v3_1.planner.logical.{Ascending, Descending}
+import org.neo4j.cypher.internal.frontend.v3_1.ast._
+import org.neo4j.cypher.internal.frontend.v3_1.helpers.{NonEmptyList, fixedPoint}
+import org.neo4j.cypher.internal.frontend.v3_1.test_helpers.CypherFunSuite
+import org.neo4j.cypher.internal.frontend.v3_1.{ExclusiveBound, LabelId, PropertyKeyId}
+
+class useIndexOrderForLimitedSortTest extends CypherFunSuite with LogicalPlanningTestSupport {
+
+  private val label = LabelToken("Person", LabelId(0))
+  private val age = PropertyKeyToken("age", PropertyKeyId(0))
+  private val range = RangeQueryExpression(InequalitySeekRangeWrapper(
+    RangeGreaterThan(NonEmptyList(ExclusiveBound(SignedDecimalIntegerLiteral("30")(pos)))))(pos))
+  private val ten = SignedDecimalIntegerLiteral("10")(pos)
+  private val nAge = Map("  FRESHID0" -> Property(varFor("n"), PropertyKeyName("age")(pos))(pos))
+
+  test("should seek in index order instead of sorting when limiting a sort on the seeked property") {
+    val seek = NodeIndexSeek(IdName("n"), label, age, range, Set.empty)(solved)
+    val projection = Projection(seek, nAge)(solved)
+    val plan = Limit(Sort(projection, Seq(Ascending(IdName("  FRESHID0"))))(solved), ten, DoNotIncludeTies)(solved)
+
+    val orderedSeek = NodeIndexSeekInOrder(IdName("n"), label, age, range, Set.empty)(solved)
+    rewrite(plan) should equal(Limit(Projection(orderedSeek, nAge)(solved), ten, DoNotIncludeTies)(solved))
+  }
+
+  test("should seek in index order below skip and selection") {
+    val seek = NodeIndexSeek(IdName("n"), label, age, range, Set.empty)(solved)
+    val predicate = Equals(Property(varFor("n"), PropertyKeyName("name")(pos))(pos), StringLiteral("Alice")(pos))(pos)
+    val selection = Selection(Seq(predicate), seek)(solved)
+    val projection = Projection(selection, nAge)(solved)
+    val skip = Skip(Sort(projection, Seq(Ascending(IdName("  FRESHID0"))))(solved), ten)(solved)
+    val plan = Limit(skip, ten, DoNotIncludeTies)(solved)
+
+    val orderedSeek = NodeIndexSeekInOrder(IdName("n"), label, age, range, Set.empty)(solved)
+    val expected = Projection(Selection(Seq(predicate), orderedSeek)(solved), nAge)(solved)
+    rewrite(plan) should equal(Limit(Skip(expected, ten)(solved), ten, DoNotIncludeTies)(solved))
+  }
+
+  test("should not rewrite descending sorts") {
+    val seek = NodeIndexSeek(IdName("n"), label, age, range, Set.empty)(solved)
+    val projection = Projection(seek, nAge)(solved)
+    val plan = Limit(Sort(projection, Seq(Descending(IdName("  FRESHID0"))))(solved), ten, DoNotIncludeTies)(solved)
+
+    rewrite(plan) should equal(plan)
+  }
+
+  test("should not rewrite sorts on another property") {
+    val seek = NodeIndexSeek(IdName("n"), label, age, range, Set.empty)(solved)
+    val nName = Map("  FRESHID0" -> Property(varFor("n"), PropertyKeyName("name")(pos))(pos))
+    val projection = Projection(seek, nName)(solved)
+    val plan = Limit(Sort(projection, Seq(Ascending(IdName("  FRESHID0"))))(solved), ten, DoNotIncludeTies)(solved)
+
+    rewrite(plan) should equal(plan)
+  }
+
+  test("should not rewrite sorts over exact index seeks") {
+    val seek = NodeIndexSeek(IdName("n"), label, age, SingleQueryExpression(ten), Set.empty)(solved)
+    val projection = Projection(seek, nAge)(solved)
+    val plan = Limit(Sort(projection, Seq(Ascending(IdName("  FRESHID0"))))(solved), ten, DoNotIncludeTies)(solved)
+
+    rewrite(plan) should equal(plan)
+  }
+
+  private def rewrite(p: LogicalPlan): LogicalPlan =
+    fixedPoint((p: LogicalPlan) => p.endoRewrite(useIndexOrderForLimitedSort))(p)
+}
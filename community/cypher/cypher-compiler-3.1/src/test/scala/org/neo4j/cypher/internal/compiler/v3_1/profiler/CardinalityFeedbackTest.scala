@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v3_1.profiler
+
+import org.neo4j.cypher.internal.compiler.v3_1.pipes._
+import org.neo4j.cypher.internal.compiler.v3_1.spi.QueryContext
+import org.neo4j.cypher.internal.frontend.v3_1.test_helpers.CypherFunSuite
+
+class CardinalityFeedbackTest extends CypherFunSuite {
+
+  private implicit val monitor = mock[PipeMonitor]
+
+  test("should only collect estimates along the leftmost path") {
+    val lhs = SingleRowPipe()
+    val rhs = SingleRowPipe()
+    val apply = ApplyPipe(lhs, rhs)().withEstimatedCardinality(1.0)
+
+    CardinalityFeedback.estimatesAlongLeftmostPath(apply) should equal(Map(apply.id -> 1.0, lhs.id -> 1.0))
+  }
+
+  test("should report divergence when a pipe produces many more rows than estimated") {
+    val pipe = new ProfilerTestPipe(SingleRowPipe(), "foo", rows = 1000, dbAccess = 0)
+    var divergent = false
+    val feedback = new CardinalityFeedback(Map(pipe.id -> 10.0), 10.0, diverged => divergent = diverged)
+
+    pipe.createResults(QueryStateHelper.emptyWith(query = mock[QueryContext], decorator = feedback)).size
+    feedback.report()
+
+    divergent shouldBe true
+  }
+
+  test("should not report divergence when a pipe produces about as many rows as estimated") {
+    val pipe = new ProfilerTestPipe(SingleRowPipe(), "foo", rows = 50, dbAccess = 0)
+    var divergent = false
+    val feedback = new CardinalityFeedback(Map(pipe.id -> 10.0), 10.0, diverged => divergent = diverged)
+
+    pipe.createResults(QueryStateHelper.emptyWith(query = mock[QueryContext], decorator = feedback)).size
+    feedback.report()
+
+    divergent shouldBe false
+  }
+
+  test("should only report fewer rows than estimated when the pipe was exhausted") {
+    val pipe = new ProfilerTestPipe(SingleRowPipe(), "foo", rows = 2, dbAccess = 0)
+    val feedback = new CardinalityFeedback(Map(pipe.id -> 1000.0), 10.0, _ => ())
+
+    val result = pipe.createResults(QueryStateHelper.emptyWith(query = mock[QueryContext], decorator = feedback))
+    result.next()
+    feedback.diverges shouldBe false
+
+    result.size
+    feedback.diverges shouldBe true
+  }
+}
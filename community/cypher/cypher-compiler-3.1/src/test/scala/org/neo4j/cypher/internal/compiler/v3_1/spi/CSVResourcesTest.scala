@@ -20,6 +20,7 @@
 package org.neo4j.cypher.internal.compiler.v3_1.spi
 
 import java.net.URL
+import java.util.concurrent.{ExecutorService, Executors}
 
 import org.apache.commons.lang3.SystemUtils
 import org.mockito.Matchers._
@@ -34,10 +35,17 @@ class CSVResourcesTest extends CypherFunSuite with CreateTempFileTestSupport {
 
   var resources: CSVResources = _
   var cleaner: TaskCloser = _
+  var parser: ExecutorService = _
 
   override def beforeEach() {
     cleaner = mock[TaskCloser]
     resources = new CSVResources(cleaner)
+    parser = Executors.newCachedThreadPool()
+  }
+
+  override def afterEach() {
+    parser.shutdownNow()
+    super.afterEach()
   }
 
   test("should handle strings") {
@@ -226,4 +234,38 @@ class CSVResourcesTest extends CypherFunSuite with CreateTempFileTestSupport {
         r should equal(expected)
     }
   }
+
+  test("should parse rows ahead on another thread") {
+    // given
+    val url = createCSVTempFileURL {
+      writer =>
+        (1 to 5000).foreach(i => writer.println(s"$i,${i * 2}"))
+    }
+    val parsingAhead = new CSVResources(cleaner, parseAheadRows = 100, parser = Some(parser))
+
+    //when
+    val result = parsingAhead.getCsvIterator(new URL(url)).toList
+
+    //then
+    result.map(_.toList) should equal((1 to 5000).map(i => List(i.toString, (i * 2).toString)).toList)
+    verify(cleaner, times(1)).addTask(any(classOf[Boolean => Unit]))
+  }
+
+  test("should stop parsing ahead when closed before all rows are read") {
+    // given
+    val url = createCSVTempFileURL {
+      writer =>
+        (1 to 5000).foreach(i => writer.println(i))
+    }
+    val closer = new TaskCloser
+    val parsingAhead = new CSVResources(closer, parseAheadRows = 10, parser = Some(parser))
+
+    //when
+    val result = parsingAhead.getCsvIterator(new URL(url))
+    result.next()
+    closer.close(success = true)
+
+    //then
+    result.asInstanceOf[ParseAheadIterator].isParsing should equal(false)
+  }
 }
@@ -21,6 +21,7 @@ package org.neo4j.cypher.internal.compiler.v3_1.spi
 
 import java.net.URL
 
+import org.neo4j.collection.primitive.PrimitiveLongIterator
 import org.neo4j.cypher.internal.compiler.v3_1.commands.expressions.{Expander, KernelPredicate}
 import org.neo4j.cypher.internal.compiler.v3_1.pipes.matching.PatternNode
 import org.neo4j.cypher.internal.frontend.v3_1.SemanticDirection
@@ -106,6 +107,8 @@ trait QueryContextAdaptation {
 
   override def indexSeekByRange(index: IndexDescriptor, value: Any): scala.Iterator[Node] = ???
 
+  override def indexSeekByRangeInOrder(index: IndexDescriptor, value: Any): scala.Iterator[Node] = ???
+
   override def setLabelsOnNode(node: Long, labelIds: scala.Iterator[Int]): Int = ???
 
   override def createRelationshipPropertyExistenceConstraint(relTypeId: Int, propertyKeyId: Int): IdempotentResult[RelationshipPropertyExistenceConstraint] = ???
@@ -120,6 +123,8 @@ trait QueryContextAdaptation {
 
   override def getNodesByLabel(id: Int): scala.Iterator[Node] = ???
 
+  override def getNodeIdsByLabel(id: Int): PrimitiveLongIterator = ???
+
   override def lockingUniqueIndexSeek(index: IndexDescriptor, value: Any): Option[Node] = ???
 
   override def callReadOnlyProcedure(name: QualifiedName, args: Seq[Any], allowed: Array[String]): scala.Iterator[Array[AnyRef]] = ???
@@ -163,4 +168,8 @@ trait QueryContextAdaptation {
   override def getLabelId(labelName: String): Int = ???
 
   override def detachDeleteNode(node: Node): Int = ???
+
+  override def transactionHasChanges: Boolean = ???
+
+  override def beginParallelReadContext(): QueryContext = ???
 }
@@ -0,0 +1,367 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.codegen;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongObjectMap;
+import org.neo4j.cypher.internal.codegen.CompiledConversionUtils.CompositeKey;
+import org.neo4j.cypher.internal.frontend.v3_1.CypherTypeException;
+import org.neo4j.cypher.internal.frontend.v3_1.IncomparableValuesException;
+import org.neo4j.kernel.impl.api.PropertyValueComparison;
+
+import static org.neo4j.cypher.internal.codegen.CompiledConversionUtils.compositeKey;
+
+/**
+ * Groups the rows of a compiled aggregation by the ids of their grouping nodes and keeps the state of each
+ * aggregation function per group. A single grouping key is looked up in a primitive long map, several are combined
+ * into a {@link CompositeKey}. Without grouping keys there is exactly one group, which is there even if no rows were
+ * aggregated, since a global aggregation always produces one row.
+ * <p>
+ * Functions follow the semantics of the interpreted aggregation functions: nulls are ignored by everything but
+ * {@link Function#COUNT_ROWS}, sums stay integral until they overflow and {@code min}/{@code max} only compare
+ * numbers with numbers, strings with strings and booleans with booleans.
+ */
+@SuppressWarnings( "unused" )
+public final class CompiledAggregationTable
+{
+    public enum Function
+    {
+        COUNT_ROWS,
+        COUNT,
+        SUM,
+        AVG,
+        MIN,
+        MAX,
+        COLLECT
+    }
+
+    private final int numberOfKeys;
+    private final Function[] functions;
+    private final PrimitiveLongObjectMap<Group> singleKeyGroups;
+    private final Map<CompositeKey,Group> compositeKeyGroups;
+    private final List<Group> groups = new ArrayList<>();
+
+    public CompiledAggregationTable( int numberOfKeys, Function[] functions )
+    {
+        this.numberOfKeys = numberOfKeys;
+        this.functions = functions;
+        this.singleKeyGroups = numberOfKeys == 1 ? Primitive.longObjectMap() : null;
+        this.compositeKeyGroups = numberOfKeys == 1 ? null : new HashMap<>();
+        if ( numberOfKeys == 0 )
+        {
+            group( new long[0] );
+        }
+    }
+
+    /**
+     * @return group of the given grouping node, created if this is the first row of it.
+     */
+    public Group group( long key )
+    {
+        assert numberOfKeys == 1;
+        Group group = singleKeyGroups.get( key );
+        if ( group == null )
+        {
+            group = newGroup( new long[]{key} );
+            singleKeyGroups.put( key, group );
+        }
+        return group;
+    }
+
+    /**
+     * @return group of the given grouping nodes, created if this is the first row of them.
+     */
+    public Group group( long[] keys )
+    {
+        assert numberOfKeys == keys.length && numberOfKeys != 1;
+        CompositeKey key = compositeKey( keys );
+        Group group = compositeKeyGroups.get( key );
+        if ( group == null )
+        {
+            group = newGroup( keys );
+            compositeKeyGroups.put( key, group );
+        }
+        return group;
+    }
+
+    /**
+     * @return all groups, in the order their first rows were aggregated.
+     */
+    public Iterable<Group> groups()
+    {
+        return groups;
+    }
+
+    private Group newGroup( long[] keys )
+    {
+        Aggregator[] aggregators = new Aggregator[functions.length];
+        for ( int i = 0; i < functions.length; i++ )
+        {
+            aggregators[i] = newAggregator( functions[i] );
+        }
+        Group group = new Group( keys, aggregators );
+        groups.add( group );
+        return group;
+    }
+
+    private static Aggregator newAggregator( Function function )
+    {
+        switch ( function )
+        {
+        case COUNT_ROWS:
+            return new Count( true );
+        case COUNT:
+            return new Count( false );
+        case SUM:
+            return new Sum();
+        case AVG:
+            return new Avg();
+        case MIN:
+            return new MinMax( false );
+        case MAX:
+            return new MinMax( true );
+        case COLLECT:
+            return new Collect();
+        default:
+            throw new IllegalArgumentException( "Unknown aggregation function " + function );
+        }
+    }
+
+    public static final class Group
+    {
+        private final long[] keys;
+        private final Aggregator[] aggregators;
+
+        private Group( long[] keys, Aggregator[] aggregators )
+        {
+            this.keys = keys;
+            this.aggregators = aggregators;
+        }
+
+        public void update( int function, Object value )
+        {
+            aggregators[function].update( value );
+        }
+
+        public long key( int offset )
+        {
+            return keys[offset];
+        }
+
+        public long count( int function )
+        {
+            return ((Count) aggregators[function]).count;
+        }
+
+        public Object result( int function )
+        {
+            return aggregators[function].result();
+        }
+    }
+
+    private interface Aggregator
+    {
+        void update( Object value );
+
+        Object result();
+    }
+
+    private static final class Count implements Aggregator
+    {
+        private final boolean countNulls;
+        private long count;
+
+        Count( boolean countNulls )
+        {
+            this.countNulls = countNulls;
+        }
+
+        @Override
+        public void update( Object value )
+        {
+            if ( countNulls || value != null )
+            {
+                count++;
+            }
+        }
+
+        @Override
+        public Object result()
+        {
+            return count;
+        }
+    }
+
+    private static final class Sum implements Aggregator
+    {
+        private long longSum;
+        private double doubleSum;
+        private boolean integral = true;
+
+        @Override
+        public void update( Object value )
+        {
+            Number number = number( "SUM", value );
+            if ( number == null )
+            {
+                return;
+            }
+            if ( integral && isIntegral( number ) )
+            {
+                try
+                {
+                    longSum = Math.addExact( longSum, number.longValue() );
+                    return;
+                }
+                catch ( ArithmeticException e )
+                {
+                    // continue as a floating point sum, like the interpreted sum does on overflow
+                }
+            }
+            if ( integral )
+            {
+                doubleSum = longSum;
+                integral = false;
+            }
+            doubleSum += number.doubleValue();
+        }
+
+        @Override
+        public Object result()
+        {
+            return integral ? (Object) longSum : (Object) doubleSum;
+        }
+    }
+
+    private static final class Avg implements Aggregator
+    {
+        private long count;
+        private double average;
+
+        @Override
+        public void update( Object value )
+        {
+            Number number = number( "AVG", value );
+            if ( number != null )
+            {
+                // cumulative moving average, which doesn't overflow
+                count++;
+                average += (number.doubleValue() - average) / count;
+            }
+        }
+
+        @Override
+        public Object result()
+        {
+            return count == 0 ? null : average;
+        }
+    }
+
+    private static final class MinMax implements Aggregator
+    {
+        private final boolean max;
+        private Object current;
+
+        MinMax( boolean max )
+        {
+            this.max = max;
+        }
+
+        @Override
+        public void update( Object value )
+        {
+            if ( value == null )
+            {
+                return;
+            }
+            if ( current == null )
+            {
+                current = value;
+                return;
+            }
+            int comparison = compare( current, value );
+            if ( max ? comparison < 0 : comparison > 0 )
+            {
+                current = value;
+            }
+        }
+
+        @Override
+        public Object result()
+        {
+            return current;
+        }
+
+        private static int compare( Object lhs, Object rhs )
+        {
+            if ( (isString( lhs ) && isString( rhs )) || (lhs instanceof Number && rhs instanceof Number) ||
+                 (lhs instanceof Boolean && rhs instanceof Boolean) )
+            {
+                return PropertyValueComparison.COMPARE_VALUES.compare( lhs, rhs );
+            }
+            throw new IncomparableValuesException( lhs.getClass().getSimpleName(), rhs.getClass().getSimpleName() );
+        }
+
+        private static boolean isString( Object value )
+        {
+            return value instanceof String || value instanceof Character;
+        }
+    }
+
+    private static final class Collect implements Aggregator
+    {
+        private final List<Object> values = new ArrayList<>();
+
+        @Override
+        public void update( Object value )
+        {
+            if ( value != null )
+            {
+                values.add( value );
+            }
+        }
+
+        @Override
+        public Object result()
+        {
+            return values;
+        }
+    }
+
+    private static Number number( String function, Object value )
+    {
+        if ( value == null || value instanceof Number )
+        {
+            return (Number) value;
+        }
+        throw new CypherTypeException( function + " can only handle numerical values, or null.", null );
+    }
+
+    private static boolean isIntegral( Number number )
+    {
+        return number instanceof Long || number instanceof Integer || number instanceof Short ||
+               number instanceof Byte;
+    }
+}
@@ -26,6 +26,7 @@ case object CypherRuntime extends CypherOptionCompanion[CypherRuntime] {
   case object default extends CypherRuntime("default")
   case object interpreted extends CypherRuntime("interpreted")
   case object compiled extends CypherRuntime("compiled")
+  case object parallel extends CypherRuntime("parallel")
 
-  val all: Set[CypherRuntime] = Set(interpreted, compiled)
+  val all: Set[CypherRuntime] = Set(interpreted, compiled, parallel)
 }
@@ -20,6 +20,7 @@
 package org.neo4j.cypher.internal
 
 import java.time.Clock
+import java.util.concurrent.Executor
 
 import org.neo4j.cypher.internal.compatibility.exceptionHandlerFor3_1
 import org.neo4j.cypher.internal.compiler.v3_1._
@@ -29,6 +30,7 @@ import org.neo4j.graphdb.factory.GraphDatabaseSettings
 import org.neo4j.kernel.GraphDatabaseQueryService
 import org.neo4j.kernel.api.KernelAPI
 import org.neo4j.kernel.configuration.Config
+import org.neo4j.kernel.impl.util.JobScheduler
 import org.neo4j.kernel.monitoring.{Monitors => KernelMonitors}
 import org.neo4j.logging.{Log, LogProvider}
 
@@ -38,6 +40,11 @@ object CypherCompiler {
   val CLOCK = Clock.systemUTC()
   val DEFAULT_STATISTICS_DIVERGENCE_THRESHOLD = 0.5
   val DEFAULT_NON_INDEXED_LABEL_WARNING_THRESHOLD = 10000
+  val DEFAULT_MAX_MATERIALIZED_ROWS = 0L
+  val DEFAULT_CARDINALITY_DIVERGENCE_THRESHOLD = 0.0
+  val DEFAULT_INTERPRETED_BATCH_SIZE = 0
+  val DEFAULT_LOAD_CSV_PARSE_AHEAD_ROWS = 0
+  val DEFAULT_PARALLEL_RUNTIME_WORKERS = 0
 }
 
 case class PreParsedQuery(statement: String, rawStatement: String, version: CypherVersion,
@@ -85,14 +92,23 @@ class CypherCompiler(graph: GraphDatabaseQueryService,
     idpMaxTableSize = idpMaxTableSize,
     idpIterationDuration = idpIterationDuration,
     errorIfShortestPathFallbackUsedAtRuntime = errorIfShortestPathFallbackUsedAtRuntime,
-    nonIndexedLabelWarningThreshold = getNonIndexedLabelWarningThreshold
+    nonIndexedLabelWarningThreshold = getNonIndexedLabelWarningThreshold,
+    maxMaterializedRows = getMaxMaterializedRows,
+    cardinalityDivergenceThreshold = getCardinalityDivergenceThreshold,
+    interpretedBatchSize = getInterpretedBatchSize,
+    loadCsvParseAheadRows = getLoadCsvParseAheadRows,
+    loadCsvParser = getLoadCsvParser,
+    parallelWorkers = getParallelRuntimeWorkers,
+    parallelExecutor = getParallelRuntimeExecutor
   )
 
   private val factory = new PlannerFactory(graph, kernelAPI, kernelMonitors, log, config)
   private val planners: PlannerCache = new PlannerCache(factory)
 
 
-  private final val ILLEGAL_PLANNER_RUNTIME_COMBINATIONS: Set[(CypherPlanner, CypherRuntime)] = Set((CypherPlanner.rule, CypherRuntime.compiled))
+  private final val ILLEGAL_PLANNER_RUNTIME_COMBINATIONS: Set[(CypherPlanner, CypherRuntime)] = Set(
+    (CypherPlanner.rule, CypherRuntime.compiled),
+    (CypherPlanner.rule, CypherRuntime.parallel))
 
   @throws(classOf[SyntaxException])
   def preParseQuery(queryText: String): PreParsedQuery = exceptionHandlerFor3_1.runSafely {
@@ -156,6 +172,43 @@ class CypherCompiler(graph: GraphDatabaseQueryService,
     getSetting(graph, setting, DEFAULT_NON_INDEXED_LABEL_WARNING_THRESHOLD)
   }
 
+  private def getMaxMaterializedRows: Long = {
+    val setting: (Config) => Long = config => config.get(GraphDatabaseSettings.cypher_max_materialized_rows).longValue()
+    getSetting(graph, setting, DEFAULT_MAX_MATERIALIZED_ROWS)
+  }
+
+  private def getCardinalityDivergenceThreshold: Double = {
+    val setting: (Config) => Double = config => config.get(GraphDatabaseSettings.cypher_cardinality_divergence_threshold).doubleValue()
+    getSetting(graph, setting, DEFAULT_CARDINALITY_DIVERGENCE_THRESHOLD)
+  }
+
+  private def getInterpretedBatchSize: Int = {
+    val setting: (Config) => Int = config => config.get(GraphDatabaseSettings.cypher_interpreted_batch_size).intValue()
+    getSetting(graph, setting, DEFAULT_INTERPRETED_BATCH_SIZE)
+  }
+
+  private def getLoadCsvParseAheadRows: Int = {
+    val setting: (Config) => Int = config => config.get(GraphDatabaseSettings.cypher_load_csv_parse_ahead_rows).intValue()
+    getSetting(graph, setting, DEFAULT_LOAD_CSV_PARSE_AHEAD_ROWS)
+  }
+
+  private def getLoadCsvParser: Option[Executor] = graph match {
+    case (gdbApi:GraphDatabaseQueryService) =>
+      Some(gdbApi.getDependencyResolver.resolveDependency(classOf[JobScheduler]).executor(JobScheduler.Groups.loadCsvParsing))
+    case _ => None
+  }
+
+  private def getParallelRuntimeWorkers: Int = {
+    val setting: (Config) => Int = config => config.get(GraphDatabaseSettings.cypher_parallel_runtime_workers).intValue()
+    getSetting(graph, setting, DEFAULT_PARALLEL_RUNTIME_WORKERS)
+  }
+
+  private def getParallelRuntimeExecutor: Option[Executor] = graph match {
+    case (gdbApi:GraphDatabaseQueryService) =>
+      Some(gdbApi.getDependencyResolver.resolveDependency(classOf[JobScheduler]).executor(JobScheduler.Groups.cypherWorker))
+    case _ => None
+  }
+
   private def getMinimumTimeBeforeReplanning: Long = {
     val setting: (Config) => Long = config => config.get(GraphDatabaseSettings.cypher_min_replan_interval).longValue()
     getSetting(graph, setting, DEFAULT_QUERY_PLAN_TTL)
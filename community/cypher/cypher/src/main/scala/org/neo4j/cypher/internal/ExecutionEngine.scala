@@ -19,7 +19,11 @@
  */
 package org.neo4j.cypher.internal
 
-import java.util.{Map => JavaMap}
+import java.io.File
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.function.Supplier
+import java.util.{Collections, Map => JavaMap}
 
 import org.neo4j.cypher._
 import org.neo4j.cypher.internal.compiler.v3_1.helpers.{RuntimeJavaValueConverter, RuntimeScalaValueConverter}
@@ -29,11 +33,15 @@ import org.neo4j.cypher.internal.spi.TransactionalContextWrapperv3_1
 import org.neo4j.cypher.internal.tracing.{CompilationTracer, TimingCompilationTracer}
 import org.neo4j.graphdb.config.Setting
 import org.neo4j.graphdb.factory.GraphDatabaseSettings
-import org.neo4j.kernel.api.ReadOperations
+import org.neo4j.io.fs.FileSystemAbstraction
 import org.neo4j.kernel.api.security.AccessMode
+import org.neo4j.kernel.api.{KernelTransaction, ReadOperations, Statement}
 import org.neo4j.kernel.configuration.Config
-import org.neo4j.kernel.impl.query.{QueryExecutionMonitor, TransactionalContext}
-import org.neo4j.kernel.{GraphDatabaseQueryService, api, monitoring}
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge
+import org.neo4j.kernel.impl.coreapi.PropertyContainerLocker
+import org.neo4j.kernel.impl.query.{Neo4jTransactionalContextFactory, QueryExecutionMonitor, TransactionalContext}
+import org.neo4j.kernel.impl.util.JobScheduler
+import org.neo4j.kernel.{AvailabilityGuard, GraphDatabaseQueryService, api, monitoring}
 import org.neo4j.logging.{LogProvider, NullLogProvider}
 
 trait StringCacheMonitor extends CypherCacheMonitor[String, api.Statement]
@@ -77,6 +85,10 @@ class ExecutionEngine(val queryService: GraphDatabaseQueryService, logProvider:
   private val javaValues = new RuntimeJavaValueConverter(isGraphKernelResultValue, identity)
   private val scalaValues = new RuntimeScalaValueConverter(isGraphKernelResultValue, identity)
 
+  private val queryCacheWarmup: Option[QueryCacheWarmup] = startQueryCacheWarmup()
+
+  private val resultCache: Option[QueryResultCache] = createResultCache()
+
   @throws(classOf[SyntaxException])
   def profile(query: String, scalaParams: Map[String, Any], context: TransactionalContext): ExecutionResult = {
     // we got deep scala parameters => convert to deep java parameters
@@ -103,8 +115,14 @@ class ExecutionEngine(val queryService: GraphDatabaseQueryService, logProvider:
   def execute(query: String, javaParams: JavaMap[String, AnyRef], context: TransactionalContext): ExecutionResult = {
     // we got deep java parameters => convert to shallow scala parameters for passing into the engine
     val scalaParams = scalaValues.asShallowScalaMap(javaParams)
-    val (preparedPlanExecution, wrappedContext) = planQuery(context)
-    preparedPlanExecution.execute(wrappedContext, scalaParams)
+    def run() = {
+      val (preparedPlanExecution, wrappedContext) = planQuery(context)
+      preparedPlanExecution.execute(wrappedContext, scalaParams)
+    }
+    resultCache match {
+      case Some(cache) => cache.execute(query, scalaValues.asDeepScalaMap(javaParams), context)(run())
+      case None => run()
+    }
   }
 
   @throws(classOf[SyntaxException])
@@ -127,9 +145,13 @@ class ExecutionEngine(val queryService: GraphDatabaseQueryService, logProvider:
 
   @throws(classOf[SyntaxException])
   protected def planQuery(transactionalContext: TransactionalContext): (PreparedPlanExecution, TransactionalContextWrapperv3_1) = {
-    val executingQuery = transactionalContext.executingQuery()
-    val queryText = executingQuery.queryText()
-    executionMonitor.startQueryExecution(executingQuery)
+    executionMonitor.startQueryExecution(transactionalContext.executingQuery())
+    producePreparedPlan(transactionalContext)
+  }
+
+  @throws(classOf[SyntaxException])
+  private def producePreparedPlan(transactionalContext: TransactionalContext): (PreparedPlanExecution, TransactionalContextWrapperv3_1) = {
+    val queryText = transactionalContext.executingQuery().queryText()
     val phaseTracer = compilationTracer.compileQuery(queryText)
     try {
 
@@ -181,6 +203,7 @@ class ExecutionEngine(val queryService: GraphDatabaseQueryService, logProvider:
           tc.close(success = true)
         } else {
           tc.cleanForReuse()
+          queryCacheWarmup.foreach(_.record(queryText))
           return (PreparedPlanExecution(plan, executionMode, extractedParameters), tc)
         }
 
@@ -191,6 +214,75 @@ class ExecutionEngine(val queryService: GraphDatabaseQueryService, logProvider:
     throw new IllegalStateException("Could not execute query due to insanely frequent schema changes")
   }
 
+  private def startQueryCacheWarmup(): Option[QueryCacheWarmup] = {
+    val file = optGraphSetting[File](queryService, GraphDatabaseSettings.query_cache_warmup_file, null)
+    if (file == null || getPlanCacheSize == 0)
+      None
+    else {
+      val resolver = queryService.getDependencyResolver
+      val scheduler = resolver.resolveDependency(classOf[JobScheduler])
+      val availabilityGuard = resolver.resolveDependency(classOf[AvailabilityGuard])
+      val warmup = new QueryCacheWarmup(resolver.resolveDependency(classOf[FileSystemAbstraction]), file, getPlanCacheSize, log)
+      val queries = warmup.load()
+
+      val warmedUp = new AtomicBoolean()
+      def warmUpOnce(): Unit = if (warmedUp.compareAndSet(false, true)) {
+        scheduler.schedule(JobScheduler.Groups.queryCacheWarmup, new Runnable {
+          override def run(): Unit = warmup.warmUp(queries, () => availabilityGuard.isAvailable)(warmUpPlan)
+        })
+      }
+
+      scheduler.scheduleRecurring(JobScheduler.Groups.queryCacheWarmup, new Runnable {
+        override def run(): Unit = warmup.save()
+      }, QueryCacheWarmup.SAVE_INTERVAL_SECONDS, TimeUnit.SECONDS)
+      availabilityGuard.addListener(new AvailabilityGuard.AvailabilityListener {
+        override def available(): Unit = warmUpOnce()
+
+        override def unavailable(): Unit = warmup.save()
+      })
+      // transactions, and thereby planning, have to wait until the database is available
+      if (availabilityGuard.isAvailable)
+        warmUpOnce()
+
+      Some(warmup)
+    }
+  }
+
+  private def createResultCache(): Option[QueryResultCache] = {
+    val size = optGraphSetting[java.lang.Integer](queryService, GraphDatabaseSettings.query_result_cache_size, 0)
+    if (size == 0)
+      None
+    else {
+      val maxRows = optGraphSetting[java.lang.Integer](
+        queryService, GraphDatabaseSettings.query_result_cache_max_rows,
+        GraphDatabaseSettings.query_result_cache_max_rows.getDefaultValue.toInt
+      )
+      val monitor = kernelMonitors.newMonitor(classOf[ResultCacheMonitor])
+      Some(new QueryResultCache(size, maxRows, lastCommittedTxId, monitor,
+                                row => scalaValues.asDeepScalaMap(row))(executionMonitor))
+    }
+  }
+
+  private lazy val warmupContextFactory = {
+    val txBridge = queryService.getDependencyResolver.resolveDependency(classOf[ThreadToStatementContextBridge])
+    new Neo4jTransactionalContextFactory(queryService, new PropertyContainerLocker, new Supplier[Statement] {
+      override def get(): Statement = txBridge.get()
+    })
+  }
+
+  private def warmUpPlan(queryText: String): Unit = {
+    val tx = queryService.beginTransaction(KernelTransaction.Type.`implicit`, AccessMode.Static.READ)
+    val context = try {
+      warmupContextFactory.newContext(QueryCacheWarmup.QUERY_SOURCE, tx, queryText, Collections.emptyMap[String, AnyRef]())
+    } catch {
+      case t: Throwable =>
+        tx.close()
+        throw t
+    }
+    try producePreparedPlan(context)
+    finally context.close(true)
+  }
+
   private def getOrCreateFromSchemaState[V](operations: ReadOperations, creator: => V) = {
     val javaCreator = new java.util.function.Function[ExecutionEngine, V]() {
       def apply(key: ExecutionEngine) = creator
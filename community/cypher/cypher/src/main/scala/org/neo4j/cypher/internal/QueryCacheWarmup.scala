@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal
+
+import java.io._
+import java.nio.charset.StandardCharsets.UTF_8
+import java.nio.file.StandardCopyOption
+
+import org.neo4j.cypher.internal.compiler.v3_1.LFUCache
+import org.neo4j.io.fs.FileSystemAbstraction
+import org.neo4j.kernel.impl.query.QuerySource
+import org.neo4j.logging.Log
+
+import scala.collection.JavaConverters._
+import scala.util.control.NonFatal
+
+/**
+  * Remembers the texts of the most frequently planned queries in a file, so that a restarted instance can plan them
+  * again in the background instead of planning all of them under live traffic.
+  *
+  * Only the query texts are kept. They include any CYPHER options given with the query, so planning them again gives
+  * plans for the same version, planner and runtime, fingerprinted against the statistics of the restarted instance.
+  */
+class QueryCacheWarmup(fs: FileSystemAbstraction, file: File, size: Int, log: Log) {
+
+  import QueryCacheWarmup._
+
+  private val queryTexts = new LFUCache[String, String](size)
+  @volatile private var changed = false
+
+  def record(queryText: String): Unit =
+    queryTexts.getOrElseUpdate(queryText, {
+      changed = true
+      queryText
+    })
+
+  def recordedQueries: Seq[String] = queryTexts.inner.asMap().keySet().asScala.toIndexedSeq
+
+  /**
+    * Reads the queries persisted by an earlier instance, and keeps them as recorded queries.
+    */
+  def load(): Seq[String] = {
+    val texts = try readQueryTexts().take(size) catch {
+      case e: IOException =>
+        log.warn(s"Unable to read the persisted query cache from $file, the query cache will not be warmed up", e)
+        Seq.empty
+    }
+    texts.foreach(text => queryTexts.put(text, text))
+    texts
+  }
+
+  def save(): Unit = synchronized {
+    if (changed) {
+      changed = false
+      try writeQueryTexts(recordedQueries) catch {
+        case e: IOException =>
+          changed = true
+          log.warn(s"Unable to persist the query cache to $file", e)
+      }
+    }
+  }
+
+  /**
+    * Plans the given queries one by one, for as long as `keepGoing` holds. A query that can no longer be planned,
+    * for instance because the schema changed, is skipped.
+    */
+  def warmUp(queries: Seq[String], keepGoing: () => Boolean)(plan: String => Unit): Unit = {
+    val start = System.currentTimeMillis()
+    var planned = 0
+    val iterator = queries.iterator
+    while (iterator.hasNext && keepGoing()) {
+      val queryText = iterator.next()
+      try {
+        plan(queryText)
+        planned += 1
+      } catch {
+        case NonFatal(e) =>
+          log.debug(s"Unable to plan query from the persisted query cache: $queryText", e)
+      }
+    }
+    log.info(s"Warmed up the query cache with $planned of ${queries.size} queries " +
+      s"in ${System.currentTimeMillis() - start} ms")
+  }
+
+  private def readQueryTexts(): Seq[String] =
+    if (!fs.fileExists(file))
+      Seq.empty
+    else {
+      val in = new DataInputStream(new BufferedInputStream(fs.openAsInputStream(file)))
+      try {
+        val version = in.readInt()
+        if (version != FORMAT_VERSION)
+          throw new IOException(s"Unknown query cache format version $version")
+        val count = in.readInt()
+        (0 until count).map { _ =>
+          val bytes = new Array[Byte](in.readInt())
+          in.readFully(bytes)
+          new String(bytes, UTF_8)
+        }
+      } finally in.close()
+    }
+
+  private def writeQueryTexts(texts: Seq[String]): Unit = {
+    Option(file.getParentFile).foreach(fs.mkdirs)
+    val temporaryFile = new File(file.getPath + ".tmp")
+    val out = new DataOutputStream(new BufferedOutputStream(fs.openAsOutputStream(temporaryFile, false)))
+    try {
+      out.writeInt(FORMAT_VERSION)
+      out.writeInt(texts.size)
+      texts.foreach { text =>
+        val bytes = text.getBytes(UTF_8)
+        out.writeInt(bytes.length)
+        out.write(bytes)
+      }
+    } finally out.close()
+    fs.renameFile(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING)
+  }
+}
+
+object QueryCacheWarmup {
+  val FORMAT_VERSION = 1
+  val SAVE_INTERVAL_SECONDS = 60L
+  val QUERY_SOURCE = new QuerySource("query-cache-warmup")
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal
+
+import java.io.{PrintWriter, StringWriter}
+import java.util
+
+import org.neo4j.cypher.internal.compatibility.{ClosingExecutionResult, ExceptionHandler, RunSafely}
+import org.neo4j.cypher.internal.compiler.v3_1.{CypherCacheHitMonitor, LFUCache}
+import org.neo4j.graphdb.QueryExecutionType.QueryType
+import org.neo4j.graphdb.Result.{ResultRow, ResultVisitor}
+import org.neo4j.graphdb.{Node, NotFoundException, Notification, Path, QueryExecutionType, Relationship, ResourceIterator}
+import org.neo4j.kernel.impl.query.{QueryExecutionMonitor, TransactionalContext}
+
+import scala.collection.JavaConverters._
+
+trait ResultCacheMonitor extends CypherCacheHitMonitor[String]
+
+/**
+  * Keeps the results of read-only queries, so that executing the same query with the same parameters again can be
+  * answered without executing it.
+  *
+  * A result is only valid as long as no transaction has been committed since the query started executing, so every
+  * commit makes all results stale. That makes the cache useful for queries that are repeated far more often than the
+  * data changes, which is common for dashboards and lookups of reference data.
+  *
+  * Results are only cached and served when the executing transaction has no changes of its own, and only for queries
+  * that do not call procedures or functions that may return something different each time.
+  */
+class QueryResultCache(size: Int, maxRows: Int, lastCommittedTxId: () => Long, monitor: ResultCacheMonitor,
+                       scalaRow: util.Map[String, Any] => Map[String, Any])
+                      (implicit executionMonitor: QueryExecutionMonitor) {
+
+  import QueryResultCache._
+
+  private val results = new LFUCache[(String, Map[String, Any]), CachedResult](size)
+
+  def execute(queryText: String, params: Map[String, Any], context: TransactionalContext)
+             (run: => ExecutionResult): ExecutionResult =
+    if (!isDeterministic(queryText) || context.stateView().hasTxStateWithChanges || !context.accessMode().allowsReads())
+      run
+    else {
+      val key = (queryText, params)
+      val txId = lastCommittedTxId()
+      results.get(key) match {
+        case Some(cached) if cached.txId == txId =>
+          monitor.cacheHit(queryText)
+          executionMonitor.startQueryExecution(context.executingQuery())
+          val result = new CachedExecutionResult(cached.columns, cached.rows.iterator, cached.executionType,
+                                                 cached.notifications, cached.planDescription, scalaRow,
+                                                 () => context.close(true))
+          new ClosingExecutionResult(context.executingQuery(), result, passThrough)
+
+        case stale =>
+          if (stale.isDefined) {
+            results.remove(key)
+            monitor.cacheDiscard(queryText, queryText)
+          }
+          monitor.cacheMiss(queryText)
+          record(key, txId, run)
+      }
+    }
+
+  // reads the whole result up front, and keeps it if it is small enough
+  private def record(key: (String, Map[String, Any]), txId: Long, result: ExecutionResult): ExecutionResult = {
+    val executionType = result.executionType
+    if (executionType.queryType() != QueryType.READ_ONLY || executionType.requestedExecutionPlanDescription())
+      result
+    else {
+      val rows = new util.ArrayList[util.Map[String, Any]]()
+      val iterator = result.javaIterator
+      while (rows.size <= maxRows && iterator.hasNext)
+        rows.add(new util.HashMap(iterator.next()))
+
+      if (iterator.hasNext) {
+        new CachedExecutionResult(result.columns, rows.asScala.iterator ++ iterator.asScala, executionType,
+                                  result.notifications, result.executionPlanDescription(), scalaRow,
+                                  () => result.close())
+      } else {
+        val cached = CachedResult(txId, result.columns, rows.asScala.toIndexedSeq, executionType,
+                                  result.notifications.toIndexedSeq, result.executionPlanDescription())
+        result.close()
+        results.put(key, cached)
+        new CachedExecutionResult(cached.columns, cached.rows.iterator, executionType, cached.notifications,
+                                  cached.planDescription, scalaRow, () => ())
+      }
+    }
+  }
+}
+
+object QueryResultCache {
+
+  // rand(), timestamp(), procedure calls and user defined functions may give a new answer every time
+  private val NonDeterministic = """(?is).*(\brand\s*\(|\btimestamp\s*\(|\bcall\b|[\w`]\s*\.\s*[\w`]+\s*\().*""".r
+
+  def isDeterministic(queryText: String): Boolean = queryText match {
+    case NonDeterministic() => false
+    case _ => true
+  }
+
+  case class CachedResult(txId: Long,
+                          columns: List[String],
+                          rows: IndexedSeq[util.Map[String, Any]],
+                          executionType: QueryExecutionType,
+                          notifications: Iterable[Notification],
+                          planDescription: PlanDescription)
+
+  private object passThrough extends RunSafely {
+    override def apply[T](body: => T)(implicit f: ExceptionHandler): T = body
+  }
+}
+
+/**
+  * A result whose rows have already been read, and whose values are in their Java form.
+  */
+class CachedExecutionResult(val columns: List[String],
+                            rows: Iterator[util.Map[String, Any]],
+                            val executionType: QueryExecutionType,
+                            val notifications: Iterable[Notification],
+                            planDescription: PlanDescription,
+                            scalaRow: util.Map[String, Any] => Map[String, Any],
+                            onClose: () => Unit) extends ExecutionResult {
+
+  self =>
+
+  private var closed = false
+
+  override def javaColumns: util.List[String] = columns.asJava
+
+  override def hasNext: Boolean = {
+    val more = rows.hasNext
+    if (!more) close()
+    more
+  }
+
+  override def next(): Map[String, Any] = scalaRow(nextRow())
+
+  private def nextRow(): util.Map[String, Any] = {
+    if (!hasNext) Iterator.empty.next()
+    rows.next()
+  }
+
+  override def javaIterator: ResourceIterator[util.Map[String, Any]] = new ClosingIterator[util.Map[String, Any]] {
+    override def next(): util.Map[String, Any] = nextRow()
+  }
+
+  override def columnAs[T](column: String): Iterator[T] = {
+    checkColumn(column)
+    map(_ (column).asInstanceOf[T])
+  }
+
+  override def javaColumnAs[T](column: String): ResourceIterator[T] = {
+    checkColumn(column)
+    new ClosingIterator[T] {
+      override def next(): T = nextRow().get(column).asInstanceOf[T]
+    }
+  }
+
+  override def dumpToString(): String = {
+    val stringWriter = new StringWriter()
+    val writer = new PrintWriter(stringWriter)
+    dumpToString(writer)
+    writer.close()
+    stringWriter.getBuffer.toString
+  }
+
+  override def dumpToString(writer: PrintWriter): Unit = {
+    val lines = javaIterator.asScala.map(row => columns.map(column => String.valueOf(row.get(column)))).toList
+    val widths = columns.zipWithIndex.map {
+      case (column, i) => (column.length +: lines.map(_ (i).length)).max
+    }
+    def line(values: Seq[String]) = values.zip(widths).map {
+      case (value, width) => value.padTo(width, ' ')
+    }.mkString("| ", " | ", " |")
+    val separator = "+" + "-" * (widths.sum + 3 * widths.size - 1) + "+"
+
+    writer.println(separator)
+    writer.println(line(columns))
+    writer.println(separator)
+    lines.foreach(values => writer.println(line(values)))
+    writer.println(separator)
+    writer.println(s"${lines.size} ${if (lines.size > 1) "rows" else "row"}")
+  }
+
+  override def queryStatistics(): QueryStatistics = QueryStatistics()
+
+  override def executionPlanDescription(): PlanDescription = planDescription
+
+  override def planDescriptionRequested: Boolean = false
+
+  override def accept[EX <: Exception](visitor: ResultVisitor[EX]): Unit = {
+    try {
+      var continue = true
+      while (continue && hasNext) {
+        val row = nextRow()
+        continue = visitor.visit(new ResultRow {
+          override def get(key: String): AnyRef = row.get(key).asInstanceOf[AnyRef]
+          override def getNode(key: String): Node = row.get(key).asInstanceOf[Node]
+          override def getRelationship(key: String): Relationship = row.get(key).asInstanceOf[Relationship]
+          override def getPath(key: String): Path = row.get(key).asInstanceOf[Path]
+          override def getString(key: String): String = row.get(key).asInstanceOf[String]
+          override def getNumber(key: String): Number = row.get(key).asInstanceOf[Number]
+          override def getBoolean(key: String): java.lang.Boolean = row.get(key).asInstanceOf[java.lang.Boolean]
+        })
+      }
+    } finally {
+      close()
+    }
+  }
+
+  override def close(): Unit = if (!closed) {
+    closed = true
+    onClose()
+  }
+
+  private def checkColumn(column: String): Unit =
+    if (!columns.contains(column))
+      throw new NotFoundException(s"No column named '$column' was found. Found: ${columns.mkString("(\"", "\", \"", "\")")}")
+
+  private abstract class ClosingIterator[T] extends ResourceIterator[T] {
+    override def hasNext: Boolean = self.hasNext
+    override def remove(): Unit = throw new UnsupportedOperationException("remove")
+    override def close(): Unit = self.close()
+  }
+}
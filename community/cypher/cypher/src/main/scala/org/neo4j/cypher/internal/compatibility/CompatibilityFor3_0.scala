@@ -512,6 +512,7 @@ case class CompatibilityFor3_0Cost(graph: GraphDatabaseQueryService,
       case CypherRuntime.default => None
       case CypherRuntime.interpreted => Some(InterpretedRuntimeName)
       case CypherRuntime.compiled => throw new IllegalArgumentException("Compiled runtime is not supported in 3.0")
+      case CypherRuntime.parallel => throw new IllegalArgumentException("Parallel runtime is not supported in 3.0")
     }
     val updateStrategy = strategy match {
       case CypherUpdateStrategy.eager => Some(eagerUpdateStrategy)
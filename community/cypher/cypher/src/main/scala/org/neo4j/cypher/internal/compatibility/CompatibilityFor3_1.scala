@@ -509,6 +509,7 @@ case class CompatibilityFor3_1Cost(graph: GraphDatabaseQueryService,
       case CypherRuntime.default => None
       case CypherRuntime.interpreted => Some(InterpretedRuntimeName)
       case CypherRuntime.compiled => Some(CompiledRuntimeName)
+      case CypherRuntime.parallel => Some(ParallelRuntimeName)
     }
     val updateStrategy = strategy match {
       case CypherUpdateStrategy.eager => Some(eagerUpdateStrategy)
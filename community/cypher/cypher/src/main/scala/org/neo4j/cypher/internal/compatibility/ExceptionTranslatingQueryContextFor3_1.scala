@@ -21,6 +21,7 @@ package org.neo4j.cypher.internal.compatibility
 
 import java.net.URL
 
+import org.neo4j.collection.primitive.PrimitiveLongIterator
 import org.neo4j.cypher.internal.compiler.v3_1.commands.expressions.{Expander, KernelPredicate}
 import org.neo4j.cypher.internal.compiler.v3_1.pipes.matching.PatternNode
 import org.neo4j.cypher.internal.compiler.v3_1.spi._
@@ -102,6 +103,9 @@ class ExceptionTranslatingQueryContextFor3_1(val inner: QueryContext) extends Qu
   override def getNodesByLabel(id: Int): Iterator[Node] =
     translateException(inner.getNodesByLabel(id))
 
+  override def getNodeIdsByLabel(id: Int): PrimitiveLongIterator =
+    translateException(inner.getNodeIdsByLabel(id))
+
   override def nodeGetDegree(node: Long, dir: SemanticDirection): Int =
     translateException(inner.nodeGetDegree(node, dir))
 
@@ -153,6 +157,12 @@ class ExceptionTranslatingQueryContextFor3_1(val inner: QueryContext) extends Qu
         work(new ExceptionTranslatingQueryContextFor3_1(qc))
       ))
 
+  override def transactionHasChanges: Boolean =
+    translateException(inner.transactionHasChanges)
+
+  override def beginParallelReadContext(): QueryContext =
+    new ExceptionTranslatingQueryContextFor3_1(translateException(inner.beginParallelReadContext()))
+
   override def isLabelSetOnNode(label: Int, node: Long): Boolean =
     translateException(inner.isLabelSetOnNode(label, node))
 
@@ -186,6 +196,9 @@ class ExceptionTranslatingQueryContextFor3_1(val inner: QueryContext) extends Qu
   override def indexSeekByRange(index: IndexDescriptor, value: Any) =
     translateException(inner.indexSeekByRange(index, value))
 
+  override def indexSeekByRangeInOrder(index: IndexDescriptor, value: Any) =
+    translateException(inner.indexSeekByRangeInOrder(index, value))
+
   override def indexScanByContains(index: IndexDescriptor, value: String) =
     translateException(inner.indexScanByContains(index, value))
 
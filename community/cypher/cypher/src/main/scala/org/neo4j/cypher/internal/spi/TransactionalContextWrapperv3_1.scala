@@ -26,7 +26,7 @@ import org.neo4j.kernel.api.KernelTransaction.Revertable
 import org.neo4j.kernel.api.dbms.DbmsOperations
 import org.neo4j.kernel.api.security.AccessMode
 import org.neo4j.kernel.api.txstate.TxStateHolder
-import org.neo4j.kernel.api.{ReadOperations, Statement}
+import org.neo4j.kernel.api.{ExecutingQuery, ReadOperations, Statement}
 import org.neo4j.kernel.impl.query.TransactionalContext
 
 case class TransactionalContextWrapperv3_1(tc: TransactionalContext) extends QueryTransactionalContext {
@@ -63,4 +63,6 @@ case class TransactionalContextWrapperv3_1(tc: TransactionalContext) extends Que
   def restrictCurrentTransaction(accessMode: AccessMode): Revertable = tc.restrictCurrentTransaction(accessMode)
 
   def accessMode: AccessMode = tc.accessMode
+
+  def executingQuery: ExecutingQuery = tc.executingQuery()
 }
@@ -21,7 +21,7 @@ package org.neo4j.cypher.internal.spi.v3_1
 
 import org.neo4j.cypher.internal.compiler.v3_1.planner.logical.{Cardinality, Selectivity}
 import org.neo4j.cypher.internal.compiler.v3_1.spi.{GraphStatistics, StatisticsCompletingGraphStatistics}
-import org.neo4j.cypher.internal.frontend.v3_1.{LabelId, NameId, PropertyKeyId, RelTypeId}
+import org.neo4j.cypher.internal.frontend.v3_1.{Bound, LabelId, NameId, PropertyKeyId, RelTypeId}
 import org.neo4j.kernel.api.exceptions.index.IndexNotFoundKernelException
 import org.neo4j.kernel.api.index.IndexDescriptor
 import org.neo4j.kernel.api.{ReadOperations, Statement => KernelStatement}
@@ -64,6 +64,28 @@ object TransactionBoundGraphStatistics {
         case e: IndexNotFoundKernelException => None
       }
 
+    override def indexNumberRangeSelectivity(label: LabelId, property: PropertyKeyId,
+                                             lower: Option[Bound[Double]], upper: Option[Bound[Double]]): Option[Selectivity] =
+      try {
+        val indexDescriptor = new IndexDescriptor( label, property )
+        val labeledNodes = operations.countsForNodeWithoutTxState( label ).toDouble
+
+        // Probability of any index entry to have a value in the range, NaN if there's no histogram for the index
+        val rangeSelectivity = operations.indexNumberRangeSelectivity(indexDescriptor,
+          lower.map(bound => java.lang.Double.valueOf(bound.endPoint)).orNull, lower.forall(_.isInclusive),
+          upper.map(bound => java.lang.Double.valueOf(bound.endPoint)).orNull, upper.forall(_.isInclusive))
+
+        if (rangeSelectivity.isNaN || labeledNodes == 0)
+          None
+        else {
+          val indexSize = operations.indexSize( indexDescriptor )
+          Selectivity.of(math.min(1.0, rangeSelectivity * indexSize / labeledNodes))
+        }
+      }
+      catch {
+        case e: IndexNotFoundKernelException => None
+      }
+
     def nodesWithLabelCardinality(labelId: Option[LabelId]): Cardinality =
       atLeastOne(operations.countsForNodeWithoutTxState(labelId))
 
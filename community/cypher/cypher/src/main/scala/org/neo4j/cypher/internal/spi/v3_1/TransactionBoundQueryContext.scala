@@ -54,7 +54,9 @@ import org.neo4j.kernel.api.index.{IndexDescriptor, InternalIndexState}
 import org.neo4j.kernel.api.proc.{QualifiedName => KernelQualifiedName}
 import org.neo4j.kernel.api.security.{AccessMode, AuthSubject}
 import org.neo4j.kernel.impl.core.NodeManager
+import org.neo4j.kernel.impl.coreapi.PropertyContainerLocker
 import org.neo4j.kernel.impl.locking.ResourceTypes
+import org.neo4j.kernel.impl.query.{Neo4jTransactionalContextFactory, QuerySource}
 
 import scala.collection.Iterator
 import scala.collection.JavaConverters._
@@ -89,6 +91,23 @@ final class TransactionBoundQueryContext(val transactionalContext: Transactional
     }
   }
 
+  override def transactionHasChanges: Boolean = transactionalContext.stateView.hasTxStateWithChanges
+
+  override def beginParallelReadContext(): QueryContext = {
+    val graph = transactionalContext.graph
+    val query = transactionalContext.executingQuery
+    val tx = graph.beginTransaction(KernelTransaction.Type.`implicit`, transactionalContext.accessMode)
+    val context = try {
+      new Neo4jTransactionalContextFactory(graph, new PropertyContainerLocker)
+        .newContext(TransactionBoundQueryContext.PARALLEL_READ_SOURCE, tx, query.queryText, query.queryParameters)
+    } catch {
+      case t: Throwable =>
+        tx.close()
+        throw t
+    }
+    new TransactionBoundQueryContext(TransactionalContextWrapperv3_1(context))
+  }
+
   override def createNode(): Node =
     transactionalContext.graph.createNode()
 
@@ -151,7 +170,23 @@ final class TransactionBoundQueryContext(val transactionalContext: Transactional
       throw new InternalException(s"Unsupported index seek by range: $range")
   }
 
-  private def indexSeekByPrefixRange(index: IndexDescriptor, range: InequalitySeekRange[Any]): scala.Iterator[Node] = {
+  override def indexSeekByRangeInOrder(index: IndexDescriptor, value: Any) = value match {
+
+    case range: InequalitySeekRange[Any] =>
+      indexSeekByPrefixRange(index, range, inOrder = true)
+
+    case range =>
+      sortByProperty(index, indexSeekByRange(index, range))
+  }
+
+  // Only number ranges can be read from the index in value order, anything else is sorted after the seek
+  private def sortByProperty(index: IndexDescriptor, nodes: scala.Iterator[Node]): scala.Iterator[Node] = {
+    val propertyKeyId = index.getPropertyKeyId
+    nodes.toIndexedSeq.sortBy(node => nodeOps.getProperty(node.getId, propertyKeyId))(CypherOrdering.DEFAULT).iterator
+  }
+
+  private def indexSeekByPrefixRange(index: IndexDescriptor, range: InequalitySeekRange[Any],
+                                     inOrder: Boolean = false): scala.Iterator[Node] = {
     val groupedRanges = range.groupBy { (bound: Bound[Any]) =>
       bound.endPoint match {
         case n: Number => classOf[Number]
@@ -172,7 +207,8 @@ final class TransactionBoundQueryContext(val transactionalContext: Transactional
         }.getOrElse(Iterator.empty)
       } else {
         (optNumericRange, optStringRange) match {
-          case (Some(numericRange), None) => indexSeekByNumericalRange(index, numericRange)
+          case (Some(numericRange), None) => indexSeekByNumericalRange(index, numericRange, inOrder)
+          case (None, Some(stringRange)) if inOrder => sortByProperty(index, indexSeekByStringRange(index, stringRange))
           case (None, Some(stringRange)) => indexSeekByStringRange(index, stringRange)
 
           case (Some(numericRange), Some(stringRange)) =>
@@ -204,24 +240,27 @@ final class TransactionBoundQueryContext(val transactionalContext: Transactional
     JavaConversionSupport.mapToScalaENFXSafe(indexedNodes)(nodeOps.getById)
   }
 
-  private def indexSeekByNumericalRange(index: IndexDescriptor, range: InequalitySeekRange[Number]): scala.Iterator[Node] = {
+  private def indexSeekByNumericalRange(index: IndexDescriptor, range: InequalitySeekRange[Number],
+                                       inOrder: Boolean = false): scala.Iterator[Node] = {
     val readOps = transactionalContext.statement.readOperations()
+    val seek: (IndexDescriptor, Number, Boolean, Number, Boolean) => PrimitiveLongIterator =
+      if (inOrder) readOps.nodesGetFromIndexOrderedRangeSeekByNumber else readOps.nodesGetFromIndexRangeSeekByNumber
     val matchingNodes: PrimitiveLongIterator = (range match {
 
       case rangeLessThan: RangeLessThan[Number] =>
         rangeLessThan.limit(BY_NUMBER).map { limit =>
-          readOps.nodesGetFromIndexRangeSeekByNumber( index, null, false, limit.endPoint, limit.isInclusive )
+          seek( index, null, false, limit.endPoint, limit.isInclusive )
         }
 
       case rangeGreaterThan: RangeGreaterThan[Number] =>
         rangeGreaterThan.limit(BY_NUMBER).map { limit =>
-          readOps.nodesGetFromIndexRangeSeekByNumber( index, limit.endPoint, limit.isInclusive, null, false )
+          seek( index, limit.endPoint, limit.isInclusive, null, false )
         }
 
       case RangeBetween(rangeGreaterThan, rangeLessThan) =>
         rangeGreaterThan.limit(BY_NUMBER).flatMap { greaterThanLimit =>
           rangeLessThan.limit(BY_NUMBER).map { lessThanLimit =>
-            readOps.nodesGetFromIndexRangeSeekByNumber(
+            seek(
               index,
               greaterThanLimit.endPoint, greaterThanLimit.isInclusive,
               lessThanLimit.endPoint, lessThanLimit.isInclusive )
@@ -283,6 +322,9 @@ final class TransactionBoundQueryContext(val transactionalContext: Transactional
   override def getNodesByLabel(id: Int): Iterator[Node] =
     JavaConversionSupport.mapToScalaENFXSafe(transactionalContext.statement.readOperations().nodesGetForLabel(id))(nodeOps.getById)
 
+  override def getNodeIdsByLabel(id: Int): PrimitiveLongIterator =
+    transactionalContext.statement.readOperations().nodesGetForLabel(id)
+
   override def nodeGetDegree(node: Long, dir: SemanticDirection): Int =
     transactionalContext.statement.readOperations().nodeGetDegree(node, toGraphDb(dir))
 
@@ -698,6 +740,8 @@ final class TransactionBoundQueryContext(val transactionalContext: Transactional
 }
 
 object TransactionBoundQueryContext {
+  private val PARALLEL_READ_SOURCE = new QuerySource("cypher-parallel-worker")
+
   trait IndexSearchMonitor {
     def indexSeek(index: IndexDescriptor, value: Any): Unit
 
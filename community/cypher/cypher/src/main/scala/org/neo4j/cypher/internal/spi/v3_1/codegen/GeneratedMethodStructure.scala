@@ -446,6 +446,7 @@ case class GeneratedMethodStructure(fields: Fields, generator: CodeBlock, aux: A
       case LongsToListTable(structure, _) => TypeReference
         .parameterizedType(classOf[util.HashMap[_, _]], typeRef[CompositeKey],
                            parameterizedType(classOf[util.ArrayList[_]], aux.typeReference(structure)))
+      case _: AggregationTable => typeRef[CompiledAggregationTable]
     }
     returnType
   }
@@ -455,6 +456,23 @@ case class GeneratedMethodStructure(fields: Fields, generator: CodeBlock, aux: A
     case LongToListTable(_, _) => Templates.newLongObjectMap
     case LongsToCountTable => createNewInstance(joinTableType(LongsToCountTable))
     case typ: LongsToListTable => createNewInstance(joinTableType(typ))
+    case AggregationTable(numberOfKeys, functions) =>
+      createNewInstance(typeRef[CompiledAggregationTable], (typeRef[Int], constant(numberOfKeys)),
+                        (typeRef[Array[CompiledAggregationTable.Function]],
+                          newArray(typeRef[CompiledAggregationTable.Function], functions.map(aggregationFunction): _*)))
+  }
+
+  private def aggregationFunction(function: AggregationFunction): Expression = {
+    val value = function match {
+      case CountRowsAggregation => CompiledAggregationTable.Function.COUNT_ROWS
+      case CountAggregation => CompiledAggregationTable.Function.COUNT
+      case SumAggregation => CompiledAggregationTable.Function.SUM
+      case AvgAggregation => CompiledAggregationTable.Function.AVG
+      case MinAggregation => CompiledAggregationTable.Function.MIN
+      case MaxAggregation => CompiledAggregationTable.Function.MAX
+      case CollectAggregation => CompiledAggregationTable.Function.COLLECT
+    }
+    get(staticField[CompiledAggregationTable.Function, CompiledAggregationTable.Function](value.name()))
   }
 
   override def updateProbeTableCount(tableVar: String, tableType: CountingJoinTableType,
@@ -497,6 +515,39 @@ case class GeneratedMethodStructure(fields: Fields, generator: CodeBlock, aux: A
                                                              constant(1)))))))
   }
 
+  override def updateAggregationTable(tableVar: String, tableType: AggregationTable, keyVars: Seq[String],
+                                      values: Seq[Expression]) = {
+    val groupVar = context.namer.newVarName()
+    val group =
+      if (keyVars.size == 1) invoke(generator.load(tableVar), aggregationTableGroup, generator.load(keyVars.head))
+      else invoke(generator.load(tableVar), aggregationTableCompositeGroup,
+                  newArray(typeRef[Long], keyVars.map(generator.load): _*))
+    generator.assign(typeRef[CompiledAggregationTable.Group], groupVar, group)
+    values.zipWithIndex.foreach {
+      case (value, i) =>
+        generator.expression(invoke(generator.load(groupVar), aggregationGroupUpdate, constant(i), value))
+    }
+  }
+
+  override def iterateAggregationTable(tableVar: String, tableType: AggregationTable, keyVars: Seq[String],
+                                       resultVars: Seq[String])(block: MethodStructure[Expression] => Unit) = {
+    val groupVar = context.namer.newVarName()
+    using(generator.forEach(Parameter.param(typeRef[CompiledAggregationTable.Group], groupVar),
+                            invoke(generator.load(tableVar), aggregationTableGroups))) { body =>
+      keyVars.zipWithIndex.foreach {
+        case (keyVar, i) =>
+          body.assign(typeRef[Long], keyVar, invoke(body.load(groupVar), aggregationGroupKey, constant(i)))
+      }
+      tableType.functions.zip(resultVars).zipWithIndex.foreach {
+        case ((function, resultVar), i) if function.isCount =>
+          body.assign(typeRef[Long], resultVar, invoke(body.load(groupVar), aggregationGroupCount, constant(i)))
+        case ((_, resultVar), i) =>
+          body.assign(typeRef[Object], resultVar, invoke(body.load(groupVar), aggregationGroupResult, constant(i)))
+      }
+      block(copy(generator = body))
+    }
+  }
+
   override def probe(tableVar: String, tableType: JoinTableType, keyVars: Seq[String])
                     (block: MethodStructure[Expression] => Unit) = tableType match {
     case LongToCountTable =>
@@ -573,6 +624,9 @@ case class GeneratedMethodStructure(fields: Fields, generator: CodeBlock, aux: A
           block(copy(generator = forEach))
         }
       }
+
+    case _: AggregationTable =>
+      throw new IllegalArgumentException("Can't probe an aggregation table")
   }
 
   override def putField(structure: Map[String, CodeGenType], value: Expression, fieldType: CodeGenType,
@@ -44,6 +44,13 @@ object Methods {
   val countingTableGet = method[PrimitiveLongIntMap, Int]("get", typeRef[Long])
   val countingTableCompositeKeyGet = method[util.HashMap[CompositeKey, Integer], Object]("get", typeRef[Object])
   val compositeKey = method[CompiledConversionUtils, CompositeKey]("compositeKey", typeRef[Array[Long]])
+  val aggregationTableGroup = method[CompiledAggregationTable, CompiledAggregationTable.Group]("group", typeRef[Long])
+  val aggregationTableCompositeGroup = method[CompiledAggregationTable, CompiledAggregationTable.Group]("group", typeRef[Array[Long]])
+  val aggregationTableGroups = method[CompiledAggregationTable, java.lang.Iterable[CompiledAggregationTable.Group]]("groups")
+  val aggregationGroupUpdate = method[CompiledAggregationTable.Group, Unit]("update", typeRef[Int], typeRef[Object])
+  val aggregationGroupKey = method[CompiledAggregationTable.Group, Long]("key", typeRef[Int])
+  val aggregationGroupCount = method[CompiledAggregationTable.Group, Long]("count", typeRef[Int])
+  val aggregationGroupResult = method[CompiledAggregationTable.Group, Object]("result", typeRef[Int])
   val hasNextLong = method[PrimitiveLongIterator, Boolean]("hasNext")
   val hasMoreRelationship = method[RelationshipIterator, Boolean]("hasNext")
   val createMap = method[MapUtil, util.Map[String, Object]]("map", typeRef[Array[Object]])
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.codegen;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.neo4j.cypher.internal.codegen.CompiledAggregationTable.Function;
+import org.neo4j.cypher.internal.codegen.CompiledAggregationTable.Group;
+import org.neo4j.cypher.internal.frontend.v3_1.CypherTypeException;
+import org.neo4j.cypher.internal.frontend.v3_1.IncomparableValuesException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class CompiledAggregationTableTest
+{
+    @Test
+    public void shouldAggregateRowsPerGroup()
+    {
+        // GIVEN
+        CompiledAggregationTable table = new CompiledAggregationTable( 1, new Function[]{
+                Function.COUNT_ROWS, Function.COUNT, Function.SUM, Function.AVG, Function.MIN, Function.MAX,
+                Function.COLLECT} );
+
+        // WHEN
+        update( table.group( 42L ), 1L );
+        update( table.group( 7L ), null );
+        update( table.group( 42L ), 3L );
+        update( table.group( 42L ), null );
+
+        // THEN
+        List<Group> groups = groups( table );
+        assertEquals( 2, groups.size() );
+        Group first = groups.get( 0 );
+        assertEquals( 42L, first.key( 0 ) );
+        assertEquals( 3L, first.count( 0 ) );
+        assertEquals( 2L, first.count( 1 ) );
+        assertEquals( 4L, first.result( 2 ) );
+        assertEquals( 2.0, first.result( 3 ) );
+        assertEquals( 1L, first.result( 4 ) );
+        assertEquals( 3L, first.result( 5 ) );
+        assertEquals( Arrays.asList( 1L, 3L ), first.result( 6 ) );
+        Group second = groups.get( 1 );
+        assertEquals( 7L, second.key( 0 ) );
+        assertEquals( 1L, second.count( 0 ) );
+        assertEquals( 0L, second.count( 1 ) );
+        assertEquals( 0L, second.result( 2 ) );
+        assertNull( second.result( 3 ) );
+        assertNull( second.result( 4 ) );
+        assertNull( second.result( 5 ) );
+        assertEquals( Arrays.asList(), second.result( 6 ) );
+    }
+
+    @Test
+    public void shouldGroupOnSeveralKeys()
+    {
+        // GIVEN
+        CompiledAggregationTable table = new CompiledAggregationTable( 2, new Function[]{Function.COUNT_ROWS} );
+
+        // WHEN
+        table.group( new long[]{1, 2} ).update( 0, null );
+        table.group( new long[]{2, 1} ).update( 0, null );
+        table.group( new long[]{1, 2} ).update( 0, null );
+
+        // THEN
+        List<Group> groups = groups( table );
+        assertEquals( 2, groups.size() );
+        assertEquals( 1L, groups.get( 0 ).key( 0 ) );
+        assertEquals( 2L, groups.get( 0 ).key( 1 ) );
+        assertEquals( 2L, groups.get( 0 ).count( 0 ) );
+        assertEquals( 1L, groups.get( 1 ).count( 0 ) );
+    }
+
+    @Test
+    public void shouldHaveOneGroupWithoutKeysEvenWithoutRows()
+    {
+        // WHEN
+        CompiledAggregationTable table = new CompiledAggregationTable( 0, new Function[]{Function.COUNT_ROWS} );
+
+        // THEN
+        List<Group> groups = groups( table );
+        assertEquals( 1, groups.size() );
+        assertEquals( 0L, groups.get( 0 ).count( 0 ) );
+    }
+
+    @Test
+    public void shouldCountPastIntegerRange()
+    {
+        // GIVEN
+        CompiledAggregationTable table = new CompiledAggregationTable( 0, new Function[]{Function.COUNT_ROWS} );
+        Group group = table.group( new long[0] );
+
+        // WHEN
+        for ( long i = 0; i <= Integer.MAX_VALUE; i++ )
+        {
+            group.update( 0, null );
+        }
+
+        // THEN
+        assertEquals( Integer.MAX_VALUE + 1L, group.count( 0 ) );
+    }
+
+    @Test
+    public void shouldSumAsFloatingPointOnceIntegralSumOverflows()
+    {
+        // GIVEN
+        CompiledAggregationTable table = new CompiledAggregationTable( 0, new Function[]{Function.SUM} );
+        Group group = table.group( new long[0] );
+
+        // WHEN
+        group.update( 0, Long.MAX_VALUE );
+        group.update( 0, 1L );
+
+        // THEN
+        assertEquals( (double) Long.MAX_VALUE + 1, group.result( 0 ) );
+    }
+
+    @Test
+    public void shouldOnlySumNumbers()
+    {
+        // GIVEN
+        CompiledAggregationTable table = new CompiledAggregationTable( 0, new Function[]{Function.SUM} );
+
+        // WHEN
+        try
+        {
+            table.group( new long[0] ).update( 0, "1" );
+            fail( "Should have failed" );
+        }
+        catch ( CypherTypeException e )
+        {
+            // THEN good
+        }
+    }
+
+    @Test
+    public void shouldNotCompareValuesOfDifferentTypes()
+    {
+        // GIVEN
+        CompiledAggregationTable table = new CompiledAggregationTable( 0, new Function[]{Function.MAX} );
+        Group group = table.group( new long[0] );
+        group.update( 0, "a" );
+
+        // WHEN
+        try
+        {
+            group.update( 0, 1L );
+            fail( "Should have failed" );
+        }
+        catch ( IncomparableValuesException e )
+        {
+            // THEN good
+        }
+    }
+
+    private static void update( Group group, Object value )
+    {
+        for ( int i = 0; i < 7; i++ )
+        {
+            group.update( i, value );
+        }
+    }
+
+    private static List<Group> groups( CompiledAggregationTable table )
+    {
+        List<Group> groups = new ArrayList<>();
+        table.groups().forEach( groups::add );
+        return groups;
+    }
+}
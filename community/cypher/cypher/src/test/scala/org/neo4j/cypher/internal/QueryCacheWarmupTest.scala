@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal
+
+import java.io.File
+
+import org.neo4j.cypher.internal.frontend.v3_1.test_helpers.CypherFunSuite
+import org.neo4j.graphdb.mockfs.EphemeralFileSystemAbstraction
+import org.neo4j.logging.NullLog
+
+class QueryCacheWarmupTest extends CypherFunSuite {
+
+  val file = new File("/data/query-cache")
+
+  test("should read back the recorded queries after saving them") {
+    val fs = new EphemeralFileSystemAbstraction
+    val warmup = new QueryCacheWarmup(fs, file, 10, NullLog.getInstance())
+    warmup.record("MATCH (n) RETURN n")
+    warmup.record("CYPHER runtime=compiled MATCH (n:Person {name: {name}})\nRETURN n")
+    warmup.record("MATCH (n) RETURN n")
+    warmup.save()
+
+    val restarted = new QueryCacheWarmup(fs, file, 10, NullLog.getInstance())
+    restarted.load() should contain theSameElementsAs Seq(
+      "MATCH (n) RETURN n",
+      "CYPHER runtime=compiled MATCH (n:Person {name: {name}})\nRETURN n")
+    restarted.recordedQueries should have size 2
+  }
+
+  test("should warm up nothing when nothing was persisted") {
+    val warmup = new QueryCacheWarmup(new EphemeralFileSystemAbstraction, file, 10, NullLog.getInstance())
+
+    warmup.load() shouldBe empty
+  }
+
+  test("should skip queries that fail to plan and stop when told to") {
+    val warmup = new QueryCacheWarmup(new EphemeralFileSystemAbstraction, file, 10, NullLog.getInstance())
+    var planned = Seq.empty[String]
+    var keepGoing = true
+
+    warmup.warmUp(Seq("a", "b", "c", "d"), () => keepGoing) {
+      case "b" => throw new IllegalStateException("boom")
+      case query =>
+        planned :+= query
+        keepGoing = query != "c"
+    }
+
+    planned should equal(Seq("a", "c"))
+  }
+}
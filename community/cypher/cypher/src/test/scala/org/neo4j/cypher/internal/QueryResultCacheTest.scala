@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal
+
+import org.neo4j.cypher.internal.frontend.v3_1.test_helpers.CypherFunSuite
+import org.neo4j.graphdb.QueryExecutionType
+import org.neo4j.graphdb.QueryExecutionType.QueryType
+
+class QueryResultCacheTest extends CypherFunSuite {
+
+  test("should only consider queries without random values, procedures or functions as deterministic") {
+    QueryResultCache.isDeterministic("MATCH (n:Person {name: {name}}) RETURN n.age, count(*)") should be(true)
+    QueryResultCache.isDeterministic("MATCH (n) WHERE n.operand > 1 RETURN n") should be(true)
+    QueryResultCache.isDeterministic("MATCH (n) RETURN n, rand()") should be(false)
+    QueryResultCache.isDeterministic("RETURN timestamp() AS now") should be(false)
+    QueryResultCache.isDeterministic("CALL db.labels()") should be(false)
+    QueryResultCache.isDeterministic("MATCH (n) RETURN org.example.score(n)") should be(false)
+  }
+
+  test("should replay the cached rows and close once exhausted") {
+    var closed = 0
+    val row = new java.util.HashMap[String, Any]()
+    row.put("x", 1L)
+    val result = new CachedExecutionResult(List("x"), Iterator(row), QueryExecutionType.query(QueryType.READ_ONLY),
+                                           Seq.empty, null, _ => Map("x" -> 1L), () => closed += 1)
+
+    result.toList should equal(List(Map("x" -> 1L)))
+    closed should equal(1)
+    result.close()
+    closed should equal(1)
+  }
+}
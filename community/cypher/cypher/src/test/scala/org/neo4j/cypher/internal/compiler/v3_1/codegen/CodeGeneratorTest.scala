@@ -563,6 +563,79 @@ class CodeGeneratorTest extends CypherFunSuite with LogicalPlanningTestSupport {
     ))
   }
 
+  test("count grouped by the end node of an expand") { // MATCH (a)-[r]->(b) RETURN b, count(*)
+    //given
+    val expand = Expand(AllNodesScan(IdName("a"), Set.empty)(solved), IdName("a"), SemanticDirection.OUTGOING,
+                        Seq.empty, IdName("b"), IdName("r"), ExpandAll)(solved)
+    val aggregation = Aggregation(expand, Map("b" -> varFor("b")), Map("count(*)" -> CountStar()(pos)))(solved)
+    val plan = ProduceResult(List("b", "count(*)"), aggregation)
+
+    //when
+    val compiled = compileAndExecute(plan)
+
+    //then
+    val result = getResult(compiled, "b", "count(*)")
+    result.toSet should equal(Set(
+      Map("b" -> dNode, "count(*)" -> 3L),
+      Map("b" -> eNode, "count(*)" -> 2L),
+      Map("b" -> hNode, "count(*)" -> 1L),
+      Map("b" -> iNode, "count(*)" -> 1L)))
+  }
+
+  test("count grouped by both nodes of an expand") { // MATCH (a)-[r]-(b) RETURN a, b, count(*)
+    //given
+    val expand = Expand(NodeByLabelScan(IdName("a"), lblName("T3"), Set.empty)(solved), IdName("a"),
+                        SemanticDirection.BOTH, Seq.empty, IdName("b"), IdName("r"), ExpandAll)(solved)
+    val aggregation = Aggregation(expand, Map("a" -> varFor("a"), "b" -> varFor("b")),
+                                  Map("count(*)" -> CountStar()(pos)))(solved)
+    val plan = ProduceResult(List("a", "b", "count(*)"), aggregation)
+
+    //when
+    val compiled = compileAndExecute(plan)
+
+    //then
+    val result = getResult(compiled, "a", "b", "count(*)")
+    result.toSet should equal(Set(
+      Map("a" -> hNode, "b" -> iNode, "count(*)" -> 2L),
+      Map("a" -> iNode, "b" -> hNode, "count(*)" -> 2L)))
+  }
+
+  test("count without grouping keys") { // MATCH (a) RETURN count(*)
+    //given
+    val aggregation = Aggregation(AllNodesScan(IdName("a"), Set.empty)(solved), Map.empty,
+                                  Map("count(*)" -> CountStar()(pos)))(solved)
+    val plan = ProduceResult(List("count(*)"), aggregation)
+
+    //when
+    val compiled = compileAndExecute(plan)
+
+    //then
+    val result = getResult(compiled, "count(*)")
+    result should equal(List(Map("count(*)" -> 9L)))
+  }
+
+  test("count and collect grouped by the end node of an expand") { // MATCH (a)-[r]->(b) RETURN b, count(a), collect(a)
+    //given
+    val expand = Expand(AllNodesScan(IdName("a"), Set.empty)(solved), IdName("a"), SemanticDirection.OUTGOING,
+                        Seq.empty, IdName("b"), IdName("r"), ExpandAll)(solved)
+    val count = FunctionInvocation(FunctionName("count")(pos), varFor("a"))(pos)
+    val collect = FunctionInvocation(FunctionName("collect")(pos), varFor("a"))(pos)
+    val aggregation = Aggregation(expand, Map("b" -> varFor("b")),
+                                  Map("count(a)" -> count, "collect(a)" -> collect))(solved)
+    val plan = ProduceResult(List("b", "count(a)", "collect(a)"), aggregation)
+
+    //when
+    val compiled = compileAndExecute(plan)
+
+    //then
+    val result = getResult(compiled, "b", "count(a)", "collect(a)")
+    result.toSet should equal(Set(
+      Map("b" -> dNode, "count(a)" -> 3L, "collect(a)" -> List(aNode, bNode, fNode)),
+      Map("b" -> eNode, "count(a)" -> 2L, "collect(a)" -> List(cNode, gNode)),
+      Map("b" -> hNode, "count(a)" -> 1L, "collect(a)" -> List(iNode)),
+      Map("b" -> iNode, "count(a)" -> 1L, "collect(a)" -> List(hNode))))
+  }
+
   test("project literal") {
     val plan = ProduceResult(List("a"), Projection(SingleRow()(solved), Map("a" -> SignedDecimalIntegerLiteral("1")(pos)))(solved))
     val compiled = compileAndExecute(plan)
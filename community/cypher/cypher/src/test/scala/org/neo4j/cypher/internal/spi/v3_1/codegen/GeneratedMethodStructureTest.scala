@@ -88,6 +88,35 @@ class GeneratedMethodStructureTest extends CypherFunSuite {
             inner.allNodesScan("foo")
           }
         }),
+        Operation("aggregate into a table grouped by one key", m => {
+          val table = AggregationTable(1, Seq(CountRowsAggregation, CollectAggregation))
+          m.declare("a", CodeGenType.primitiveNode)
+          m.allocateProbeTable("table", table)
+          m.updateAggregationTable("table", table, Seq("a"),
+                                   Seq(m.constantExpression(null), m.box(m.loadVariable("a"), CodeGenType.primitiveInt)))
+          m.iterateAggregationTable("table", table, Seq("b"), Seq("count", "collected")) { inner =>
+            inner.allNodesScan("foo")
+          }
+        }),
+        Operation("aggregate into a table grouped by several keys", m => {
+          val table = AggregationTable(2, Seq(SumAggregation))
+          m.declare("a", CodeGenType.primitiveNode)
+          m.declare("b", CodeGenType.primitiveNode)
+          m.allocateProbeTable("table", table)
+          m.updateAggregationTable("table", table, Seq("a", "b"),
+                                   Seq(m.box(m.constantExpression(java.lang.Long.valueOf(1)), CodeGenType.primitiveInt)))
+          m.iterateAggregationTable("table", table, Seq("c", "d"), Seq("sum")) { inner =>
+            inner.allNodesScan("foo")
+          }
+        }),
+        Operation("aggregate into a table without grouping keys", m => {
+          val table = AggregationTable(0, Seq(CountRowsAggregation))
+          m.allocateProbeTable("table", table)
+          m.updateAggregationTable("table", table, Seq.empty, Seq(m.constantExpression(null)))
+          m.iterateAggregationTable("table", table, Seq.empty, Seq("count")) { inner =>
+            inner.allNodesScan("foo")
+          }
+        }),
        Operation("use a LongToList probe table", m => {
          val table: LongToListTable = LongToListTable(Map("a" -> CodeGenType.primitiveNode), Map("b" -> "a"))
          m.declare("a", CodeGenType.primitiveNode)
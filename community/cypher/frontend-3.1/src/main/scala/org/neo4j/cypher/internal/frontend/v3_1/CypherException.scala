@@ -146,3 +146,10 @@ object ExhaustiveShortestPathForbiddenException {
        |start filtering.""".stripMargin
 }
 
+
+class MaterializedRowsLimitExceededException(limit: Long, reason: String)
+  extends CypherExecutionException(s"The query tried to hold more than $limit rows in memory at once, which is the " +
+                                   s"configured limit. ${reason}Rewrite the query to sort, aggregate or join fewer " +
+                                   "rows, or raise the limit in the Neo4j configuration.", null) {
+  def this(limit: Long) = this(limit, "")
+}
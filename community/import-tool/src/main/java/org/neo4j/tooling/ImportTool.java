@@ -25,8 +25,10 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map.Entry;
 import java.util.function.Function;
 
@@ -57,11 +59,15 @@ import org.neo4j.kernel.impl.util.Validators;
 import org.neo4j.kernel.internal.Version;
 import org.neo4j.kernel.lifecycle.LifeSupport;
 import org.neo4j.unsafe.impl.batchimport.BatchImporter;
+import org.neo4j.unsafe.impl.batchimport.IncrementalBatchImporter;
 import org.neo4j.unsafe.impl.batchimport.ParallelBatchImporter;
+import org.neo4j.unsafe.impl.batchimport.cache.MappedFileNumberArrayFactory;
+import org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory;
 import org.neo4j.unsafe.impl.batchimport.cache.idmapping.string.DuplicateInputIdException;
 import org.neo4j.unsafe.impl.batchimport.input.Collector;
 import org.neo4j.unsafe.impl.batchimport.input.Input;
 import org.neo4j.unsafe.impl.batchimport.input.InputException;
+import org.neo4j.unsafe.impl.batchimport.input.InputIndex;
 import org.neo4j.unsafe.impl.batchimport.input.InputNode;
 import org.neo4j.unsafe.impl.batchimport.input.InputRelationship;
 import org.neo4j.unsafe.impl.batchimport.input.MissingRelationshipDataException;
@@ -82,6 +88,7 @@ import static org.neo4j.io.ByteUnit.mebiBytes;
 import static org.neo4j.kernel.configuration.Settings.parseLongWithUnit;
 import static org.neo4j.kernel.impl.util.Converters.withDefault;
 import static org.neo4j.unsafe.impl.batchimport.Configuration.BAD_FILE_NAME;
+import static org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory.AUTO;
 import static org.neo4j.unsafe.impl.batchimport.input.Collectors.badCollector;
 import static org.neo4j.unsafe.impl.batchimport.input.Collectors.collect;
 import static org.neo4j.unsafe.impl.batchimport.input.InputEntityDecorators.NO_NODE_DECORATOR;
@@ -103,7 +110,8 @@ public class ImportTool
     {
         STORE_DIR( "into", null,
                 "<store-dir>",
-                "Database directory to import into. " + "Must not contain existing database." ),
+                "Database directory to import into. " + "Must not contain existing database, unless importing "
+                        + "with --incremental." ),
         NODE_DATA( "nodes", null,
                 "[:Label1:Label2] \"<file1>" + MULTI_FILE_DELIMITER + "<file2>" + MULTI_FILE_DELIMITER + "...\"",
                 "Node CSV header and data. Multiple files will be logically seen as one big file "
@@ -207,7 +215,43 @@ public class ImportTool
                         + GraphDatabaseSettings.array_block_size.name() ),
         PAGE_SIZE( "page-size", Format.bytes( org.neo4j.unsafe.impl.batchimport.Configuration.DEFAULT.pageSize() ),
                 "<page size in bytes",
-                "Page size in bytes, or e.g. 4M or 8k" );
+                "Page size in bytes, or e.g. 4M or 8k" ),
+        INCREMENTAL( "incremental", Boolean.FALSE,
+                "<true/false>",
+                "(advanced) Import into an existing database instead of an empty one. The database must have been "
+                        + "cleanly shut down and must not be running during the import. The import works on a copy "
+                        + "of the store files, which needs as much free disk space as the database itself, and "
+                        + "leaves the database as it was if it fails. "
+                        + "Relationships are linked into the existing relationship chains one by one, which is "
+                        + "slower than importing into an empty database. Databases with constraints and databases "
+                        + "of core cluster members are not supported and any indexes will be rebuilt when the "
+                        + "database starts up. Backups and other cluster members need to copy the database "
+                        + "again afterwards." ),
+        EXISTING_ID_PROPERTY( "existing-id-property", null,
+                "<property key>",
+                "(advanced) When importing with " + INCREMENTAL.argument() + ", name of the property which "
+                        + "existing nodes have their ids stored in, so that imported relationships can refer to "
+                        + "existing nodes by those ids. Existing nodes are put in the global id space. "
+                        + "Without it existing nodes can only be referred to using " + IdType.ACTUAL + " ids." ),
+        ID_CACHE_DIR( "id-cache-dir", null,
+                "<directory>",
+                "(advanced) Directory to keep the mapping of input ids to node ids in, as memory-mapped files, "
+                        + "instead of in memory. Useful when importing more nodes than what their ids can be kept "
+                        + "in memory for. The operating system keeps as much of it in memory as it can and reads "
+                        + "and writes the rest from and to these files, which will make the import slower. "
+                        + "The files are unlinked as soon as they are mapped, so their disk space is given back when "
+                        + "the import ends, also if it fails. Without this option the mapping is kept in memory." ),
+        INDEX( "index", null,
+                "<Label>:<propertyKey>",
+                "Schema index to build as part of importing the nodes, instead of having the database populate "
+                        + "it when it first starts up. Can be specified multiple times. "
+                        + "Not supported with " + INCREMENTAL.argument() + "." ),
+        UNIQUE( "unique", null,
+                "<Label>:<propertyKey>",
+                "Uniqueness constraint to build as part of importing the nodes. Can be specified multiple times. "
+                        + "The import fails right after importing the nodes if any two nodes with the label "
+                        + "have the same value for the property. "
+                        + "Not supported with " + INCREMENTAL.argument() + "." );
 
         private final String key;
         private final Object defaultValue;
@@ -338,14 +382,32 @@ public class ImportTool
         OutputStream badOutput = null;
         IdType idType = null;
         int pageSize = UNSPECIFIED;
+        boolean incremental;
+        String existingIdProperty;
+        Collection<InputIndex> indexes;
+        NumberArrayFactory idCacheFactory = AUTO;
         Collector badCollector;
         org.neo4j.unsafe.impl.batchimport.Configuration configuration = null;
 
         boolean success = false;
         try
         {
+            incremental = args.getBoolean( Options.INCREMENTAL.key(),
+                    (Boolean)Options.INCREMENTAL.defaultValue(), true );
+            existingIdProperty = args.get( Options.EXISTING_ID_PROPERTY.key(), null );
+            indexes = new ArrayList<>();
+            indexes.addAll( args.interpretOptions( Options.INDEX.key(), Converters.<InputIndex>optional(),
+                    value -> toInputIndex( value, false ) ) );
+            indexes.addAll( args.interpretOptions( Options.UNIQUE.key(), Converters.<InputIndex>optional(),
+                    value -> toInputIndex( value, true ) ) );
+            if ( incremental && !indexes.isEmpty() )
+            {
+                throw new IllegalArgumentException( "Building indexes or constraints isn't supported when importing "
+                        + "with " + Options.INCREMENTAL.argument() );
+            }
             storeDir = args.interpretOption( Options.STORE_DIR.key(), Converters.<File>mandatory(),
-                    Converters.toFile(), Validators.DIRECTORY_IS_WRITABLE, Validators.CONTAINS_NO_EXISTING_DATABASE );
+                    Converters.toFile(), Validators.DIRECTORY_IS_WRITABLE, incremental
+                            ? Validators.CONTAINS_EXISTING_DATABASE : Validators.CONTAINS_NO_EXISTING_DATABASE );
 
             File badFile = new File( storeDir, BAD_FILE_NAME );
             badOutput = new BufferedOutputStream( new DefaultFileSystemAbstraction().openAsOutputStream( badFile, false ) );
@@ -377,13 +439,20 @@ public class ImportTool
                         String.valueOf( UNSPECIFIED ) ) ) );
             }
             configuration = importConfiguration( processors, defaultSettingsSuitableForTests, dbConfig, pageSize );
+            File idCacheDir = args.interpretOption( Options.ID_CACHE_DIR.key(), Converters.<File>optional(),
+                    Converters.toFile(), Validators.DIRECTORY_IS_WRITABLE );
+            if ( idCacheDir != null )
+            {
+                idCacheFactory = new MappedFileNumberArrayFactory( idCacheDir );
+            }
             input = new CsvInput( nodeData( inputEncoding, nodesFiles ), defaultFormatNodeFileHeader(),
                     relationshipData( inputEncoding, relationshipsFiles ), defaultFormatRelationshipFileHeader(),
                     idType, csvConfiguration( args, defaultSettingsSuitableForTests ), badCollector,
-                    configuration.maxNumberOfProcessors() );
+                    configuration.maxNumberOfProcessors(), idCacheFactory );
 
             doImport( out, err, storeDir, nodesFiles, relationshipsFiles,
-                    enableStacktrace, input, dbConfig, badOutput, configuration );
+                    enableStacktrace, input, dbConfig, badOutput, configuration, incremental, existingIdProperty,
+                    indexes );
 
             success = true;
         }
@@ -407,6 +476,38 @@ public class ImportTool
     public static void doImport( PrintStream out, PrintStream err, File storeDir, Collection<Option<File[]>> nodesFiles,
             Collection<Option<File[]>> relationshipsFiles, boolean enableStacktrace, Input input, Config dbConfig,
             OutputStream badOutput, org.neo4j.unsafe.impl.batchimport.Configuration configuration ) throws IOException
+    {
+        doImport( out, err, storeDir, nodesFiles, relationshipsFiles, enableStacktrace, input, dbConfig, badOutput,
+                configuration, false, null );
+    }
+
+    /**
+     * @param incremental whether or not to import into an existing database, in which case its store files
+     * are left as they are if the import fails.
+     * @param existingIdProperty property key of existing nodes to map input ids from, only used when
+     * {@code incremental}. Can be {@code null}.
+     */
+    public static void doImport( PrintStream out, PrintStream err, File storeDir, Collection<Option<File[]>> nodesFiles,
+            Collection<Option<File[]>> relationshipsFiles, boolean enableStacktrace, Input input, Config dbConfig,
+            OutputStream badOutput, org.neo4j.unsafe.impl.batchimport.Configuration configuration,
+            boolean incremental, String existingIdProperty ) throws IOException
+    {
+        doImport( out, err, storeDir, nodesFiles, relationshipsFiles, enableStacktrace, input, dbConfig, badOutput,
+                configuration, incremental, existingIdProperty, Collections.emptyList() );
+    }
+
+    /**
+     * @param incremental whether or not to import into an existing database, in which case its store files
+     * are left as they are if the import fails.
+     * @param existingIdProperty property key of existing nodes to map input ids from, only used when
+     * {@code incremental}. Can be {@code null}.
+     * @param indexes schema indexes and uniqueness constraints to build as part of importing the nodes.
+     * Not supported when {@code incremental}.
+     */
+    public static void doImport( PrintStream out, PrintStream err, File storeDir, Collection<Option<File[]>> nodesFiles,
+            Collection<Option<File[]>> relationshipsFiles, boolean enableStacktrace, Input input, Config dbConfig,
+            OutputStream badOutput, org.neo4j.unsafe.impl.batchimport.Configuration configuration,
+            boolean incremental, String existingIdProperty, Collection<InputIndex> indexes ) throws IOException
     {
         FileSystemAbstraction fs = new DefaultFileSystemAbstraction();
         boolean success;
@@ -415,11 +516,19 @@ public class ImportTool
         LogService logService = life.add( StoreLogService.inLogsDirectory( fs, storeDir ) );
 
         life.start();
-        BatchImporter importer = new ParallelBatchImporter( storeDir,
-                configuration,
-                logService,
-                ExecutionMonitors.defaultVisible(),
-                dbConfig );
+        BatchImporter importer = incremental
+                ? new IncrementalBatchImporter( storeDir,
+                        configuration,
+                        logService,
+                        ExecutionMonitors.defaultVisible(),
+                        dbConfig,
+                        existingIdProperty )
+                : new ParallelBatchImporter( storeDir,
+                        configuration,
+                        logService,
+                        ExecutionMonitors.defaultVisible(),
+                        dbConfig,
+                        indexes );
         printOverview( storeDir, nodesFiles, relationshipsFiles, configuration, out );
         success = false;
         try
@@ -447,7 +556,7 @@ public class ImportTool
             }
 
             life.shutdown();
-            if ( !success )
+            if ( !success && !incremental )
             {
                 try
                 {
@@ -467,6 +576,18 @@ public class ImportTool
         }
     }
 
+    private static InputIndex toInputIndex( String value, boolean unique )
+    {
+        int separator = value.indexOf( ':' );
+        if ( separator <= 0 || separator == value.length() - 1 || value.indexOf( ':', separator + 1 ) != -1 )
+        {
+            throw new IllegalArgumentException( "Invalid index '" + value + "', expected <Label>:<propertyKey>" );
+        }
+        String label = value.substring( 0, separator );
+        String propertyKey = value.substring( separator + 1 );
+        return unique ? InputIndex.uniqueness( label, propertyKey ) : InputIndex.index( label, propertyKey );
+    }
+
     public static Collection<Option<File[]>> extractInputFiles( Args args, String key, PrintStream err )
     {
         return args
@@ -47,6 +47,8 @@ import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.ResourceIterator;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.graphdb.schema.IndexDefinition;
+import org.neo4j.graphdb.schema.Schema;
 import org.neo4j.helpers.collection.FilteringIterator;
 import org.neo4j.helpers.collection.Iterables;
 import org.neo4j.helpers.collection.Iterators;
@@ -55,6 +57,7 @@ import org.neo4j.io.fs.FileUtils;
 import org.neo4j.kernel.impl.storageengine.impl.recordstorage.RecordStorageEngine;
 import org.neo4j.kernel.impl.store.NeoStores;
 import org.neo4j.kernel.impl.store.format.standard.StandardV3_0;
+import org.neo4j.kernel.impl.transaction.log.TransactionIdStore;
 import org.neo4j.kernel.impl.util.Validator;
 import org.neo4j.kernel.impl.util.Validators;
 import org.neo4j.kernel.internal.Version;
@@ -766,6 +769,177 @@ public class ImportToolTest
         }
     }
 
+    @Test
+    public void shouldImportIncrementallyIntoExistingDatabase() throws Exception
+    {
+        // GIVEN
+        GraphDatabaseService db = dbRule.getGraphDatabaseAPI();
+        try ( Transaction tx = db.beginTx() )
+        {
+            Node a = db.createNode();
+            a.setProperty( "id", "a" );
+            Node b = db.createNode();
+            b.setProperty( "id", "b" );
+            a.createRelationshipTo( b, withName( "KNOWS" ) );
+            tx.success();
+        }
+        long lastCommittedTxBeforeImport = lastCommittedTransactionId();
+        dbRule.shutdownAndKeepStore();
+
+        // WHEN
+        importTool(
+                "--into", dbRule.getStoreDirAbsolutePath(),
+                "--incremental", "true",
+                "--existing-id-property", "id",
+                "--nodes", data( "id:ID,name", "c,Charlie" ).getAbsolutePath(),
+                "--relationships", data( ":START_ID,:END_ID,:TYPE", "a,c,KNOWS", "c,b,KNOWS" ).getAbsolutePath() );
+
+        // THEN
+        db = dbRule.getGraphDatabaseAPI();
+        try ( Transaction tx = db.beginTx() )
+        {
+            assertEquals( 3, Iterables.count( db.getAllNodes() ) );
+            assertEquals( 3, Iterables.count( db.getAllRelationships() ) );
+            Node c = Iterators.single( Iterators.filter( nodeFilter( "c" ), db.getAllNodes().iterator() ) );
+            assertEquals( "Charlie", c.getProperty( "name" ) );
+            assertEquals( 2, Iterables.count( c.getRelationships() ) );
+            Node a = Iterators.single( Iterators.filter( nodeFilter( "a" ), db.getAllNodes().iterator() ) );
+            assertEquals( 2, Iterables.count( a.getRelationships() ) );
+            tx.success();
+        }
+        assertEquals( lastCommittedTxBeforeImport + 1, lastCommittedTransactionId() );
+    }
+
+    @Test
+    public void shouldLeaveExistingDatabaseAsItWasIfIncrementalImportFails() throws Exception
+    {
+        // GIVEN
+        GraphDatabaseService db = dbRule.getGraphDatabaseAPI();
+        try ( Transaction tx = db.beginTx() )
+        {
+            Node a = db.createNode();
+            a.setProperty( "id", "a" );
+            Node b = db.createNode();
+            b.setProperty( "id", "b" );
+            a.createRelationshipTo( b, withName( "KNOWS" ) );
+            tx.success();
+        }
+        long lastCommittedTxBeforeImport = lastCommittedTransactionId();
+        dbRule.shutdownAndKeepStore();
+
+        // WHEN importing a relationship referring to a missing node, after one which is linked into a chain
+        File relationshipData = data( ":START_ID,:END_ID,:TYPE", "a,c,KNOWS", "c,missing,KNOWS" );
+        try
+        {
+            importTool(
+                    "--into", dbRule.getStoreDirAbsolutePath(),
+                    "--incremental", "true",
+                    "--existing-id-property", "id",
+                    "--skip-bad-relationships", "false",
+                    "--nodes", data( "id:ID,name", "c,Charlie" ).getAbsolutePath(),
+                    "--relationships", relationshipData.getAbsolutePath() );
+            fail( "Should have failed" );
+        }
+        catch ( Exception e )
+        {
+            // THEN
+            assertExceptionContains( e, relationshipData.getAbsolutePath() + ":3", InputException.class );
+        }
+        db = dbRule.getGraphDatabaseAPI();
+        try ( Transaction tx = db.beginTx() )
+        {
+            assertEquals( 2, Iterables.count( db.getAllNodes() ) );
+            assertEquals( 1, Iterables.count( db.getAllRelationships() ) );
+            Node a = Iterators.single( Iterators.filter( nodeFilter( "a" ), db.getAllNodes().iterator() ) );
+            assertEquals( 1, Iterables.count( a.getRelationships() ) );
+            tx.success();
+        }
+        assertEquals( lastCommittedTxBeforeImport, lastCommittedTransactionId() );
+        assertFalse( new File( dbRule.getStoreDirFile(), "incremental-import" ).exists() );
+    }
+
+    @Test
+    public void shouldNotImportIncrementallyIntoStoreOfCoreClusterMember() throws Exception
+    {
+        // GIVEN
+        dbRule.getGraphDatabaseAPI();
+        dbRule.shutdownAndKeepStore();
+        assertTrue( new File( dbRule.getStoreDirFile(), "cluster-state" ).mkdirs() );
+
+        // WHEN
+        try
+        {
+            importTool(
+                    "--into", dbRule.getStoreDirAbsolutePath(),
+                    "--incremental", "true",
+                    "--nodes", data( ":ID", "1" ).getAbsolutePath() );
+            fail( "Should have failed" );
+        }
+        catch ( Exception e )
+        {
+            // THEN
+            assertExceptionContains( e, "cluster member", IllegalStateException.class );
+        }
+    }
+
+    private long lastCommittedTransactionId()
+    {
+        return dbRule.getGraphDatabaseAPI().getDependencyResolver().resolveDependency( TransactionIdStore.class )
+                .getLastCommittedTransactionId();
+    }
+
+    @Test
+    public void shouldBuildIndexesAndConstraintsDuringImport() throws Exception
+    {
+        // WHEN
+        importTool(
+                "--into", dbRule.getStoreDirAbsolutePath(),
+                "--index", "Person:name",
+                "--unique", "Person:email",
+                "--nodes", data( "id:ID,name,email,:LABEL",
+                        "a,Alice,alice@example.com,Person",
+                        "b,Bob,bob@example.com,Person",
+                        "c,Bob,bob@example.org,Person" ).getAbsolutePath() );
+
+        // THEN
+        GraphDatabaseService db = dbRule.getGraphDatabaseAPI();
+        try ( Transaction tx = db.beginTx() )
+        {
+            Label person = label( "Person" );
+            List<IndexDefinition> indexes = Iterables.asList( db.schema().getIndexes( person ) );
+            assertEquals( 2, indexes.size() );
+            for ( IndexDefinition index : indexes )
+            {
+                assertEquals( Schema.IndexState.ONLINE, db.schema().getIndexState( index ) );
+            }
+            assertEquals( 1, Iterables.count( db.schema().getConstraints( person ) ) );
+            assertEquals( "Alice", db.findNode( person, "email", "alice@example.com" ).getProperty( "name" ) );
+            assertEquals( 2, Iterators.count( db.findNodes( person, "name", "Bob" ) ) );
+            tx.success();
+        }
+    }
+
+    @Test
+    public void shouldFailImportOnUniquenessConstraintViolation() throws Exception
+    {
+        try
+        {
+            // WHEN
+            importTool(
+                    "--into", dbRule.getStoreDirAbsolutePath(),
+                    "--unique", "Person:email",
+                    "--nodes", data( "id:ID,name,email,:LABEL",
+                            "a,Alice,alice@example.com,Person",
+                            "b,Bob,alice@example.com,Person" ).getAbsolutePath() );
+            fail( "Should have failed" );
+        }
+        catch ( Exception e )
+        {
+            // THEN
+            assertExceptionContains( e, "UNIQUE :Person(email)", InputException.class );
+        }
+    }
+
     @Test
     public void shouldNotBeAbleToMixSpecifiedAndUnspecifiedGroups() throws Exception
     {
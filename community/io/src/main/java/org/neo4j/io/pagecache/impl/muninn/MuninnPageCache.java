@@ -20,14 +20,19 @@
 package org.neo4j.io.pagecache.impl.muninn;
 
 import java.io.File;
+import java.io.Flushable;
 import java.io.IOException;
 import java.nio.file.CopyOption;
 import java.nio.file.OpenOption;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -118,6 +123,11 @@ public class MuninnPageCache implements PageCache
     private static final int cooperativeEvictionLiveLockThreshold = getInteger(
             MuninnPageCache.class, "cooperativeEvictionLiveLockThreshold", 100 );
 
+    // When flushing with more than one thread, each file is split into tasks of this many translation table chunks,
+    // so that large files are flushed by several threads at once.
+    private static final int flushChunksPerTask = getInteger(
+            MuninnPageCache.class, "flushChunksPerTask", 1 );
+
     // This is a pre-allocated constant, so we can throw it without allocating any objects:
     @SuppressWarnings( "ThrowableInstanceNeverThrown" )
     private static final IOException oomException = new IOException(
@@ -150,6 +160,7 @@ public class MuninnPageCache implements PageCache
     private final int pageCacheId;
     private final PageSwapperFactory swapperFactory;
     private final int cachePageSize;
+    private final int flushThreads;
     private final int keepFree;
     private final PageCacheTracer tracer;
     private final MuninnPage[] pages;
@@ -200,14 +211,34 @@ public class MuninnPageCache implements PageCache
             int maxPages,
             int cachePageSize,
             PageCacheTracer tracer )
+    {
+        this( swapperFactory, maxPages, cachePageSize, tracer, 1 );
+    }
+
+    /**
+     * @param flushThreads the number of threads that {@link #flushAndForce(IOLimiter)} uses to write out dirty pages
+     * and force the mapped files. With {@code 1}, all the files are flushed one after another by the calling thread.
+     */
+    public MuninnPageCache(
+            PageSwapperFactory swapperFactory,
+            int maxPages,
+            int cachePageSize,
+            PageCacheTracer tracer,
+            int flushThreads )
     {
         verifyHacks();
         verifyCachePageSizeIsPowerOfTwo( cachePageSize );
         verifyMinimumPageCount( maxPages, cachePageSize );
+        if ( flushThreads < 1 )
+        {
+            throw new IllegalArgumentException( "Page cache needs at least one flush thread, but was given " +
+                                                flushThreads );
+        }
 
         this.pageCacheId = pageCacheIdCounter.incrementAndGet();
         this.swapperFactory = swapperFactory;
         this.cachePageSize = cachePageSize;
+        this.flushThreads = flushThreads;
         this.keepFree = Math.min( pagesToKeepFree, maxPages / 2 );
         this.tracer = tracer;
         this.pages = new MuninnPage[maxPages];
@@ -570,16 +601,176 @@ public class MuninnPageCache implements PageCache
         try ( MajorFlushEvent cacheFlush = tracer.beginCacheFlush() )
         {
             FlushEventOpportunity flushOpportunity = cacheFlush.flushEventOpportunity();
-            FileMapping fileMapping = mappedFiles;
-            while ( fileMapping != null )
+            if ( flushThreads > 1 )
+            {
+                flushAllPagesInParallel( flushOpportunity, limiter );
+            }
+            else
             {
-                fileMapping.pagedFile.flushAndForceInternal( flushOpportunity, false, limiter );
-                fileMapping = fileMapping.next;
+                FileMapping fileMapping = mappedFiles;
+                while ( fileMapping != null )
+                {
+                    fileMapping.pagedFile.flushAndForceInternal( flushOpportunity, false, limiter );
+                    fileMapping = fileMapping.next;
+                }
             }
             syncDevice();
         }
     }
 
+    /**
+     * Splits the mapped files into ranges of translation table chunks, and writes them out on up to
+     * {@link #flushThreads} threads, followed by forcing all the files in the same way. Adjacent dirty pages within
+     * a chunk are still coalesced into vectored writes, and all threads share the one {@link IOLimiter} stamp, so
+     * the limiter sees the combined rate of IO.
+     */
+    private void flushAllPagesInParallel( FlushEventOpportunity flushOpportunity, IOLimiter limiter )
+            throws IOException
+    {
+        IOLimiter sharedLimiter = new SharedStampIOLimiter( limiter );
+        List<FlushTask> writes = new ArrayList<>();
+        List<FlushTask> forces = new ArrayList<>();
+        FileMapping fileMapping = mappedFiles;
+        while ( fileMapping != null )
+        {
+            MuninnPagedFile pagedFile = fileMapping.pagedFile;
+            int chunks = pagedFile.translationTableChunkCount();
+            for ( int fromChunk = 0; fromChunk < chunks; fromChunk += flushChunksPerTask )
+            {
+                int from = fromChunk;
+                writes.add( () -> pagedFile.flushChunks(
+                        from, from + flushChunksPerTask, flushOpportunity, false, sharedLimiter ) );
+            }
+            forces.add( pagedFile::flush );
+            fileMapping = fileMapping.next;
+        }
+        runFlushTasks( writes );
+        runFlushTasks( forces );
+    }
+
+    private void runFlushTasks( List<FlushTask> tasks ) throws IOException
+    {
+        AtomicInteger nextTask = new AtomicInteger();
+        Callable<Void> worker = () ->
+        {
+            int taskIndex;
+            while ( (taskIndex = nextTask.getAndIncrement()) < tasks.size() )
+            {
+                try
+                {
+                    tasks.get( taskIndex ).flush();
+                }
+                catch ( Throwable e )
+                {
+                    // Stop the other workers from picking up more tasks
+                    nextTask.set( tasks.size() );
+                    throw e;
+                }
+            }
+            return null;
+        };
+
+        int helpers = Math.min( flushThreads, tasks.size() ) - 1;
+        List<FutureTask<Void>> helperTasks = new ArrayList<>( Math.max( helpers, 0 ) );
+        for ( int i = 0; i < helpers; i++ )
+        {
+            FutureTask<Void> helper = new FutureTask<>( worker );
+            helperTasks.add( helper );
+            backgroundThreadExecutor.execute( helper );
+        }
+
+        Throwable failure = null;
+        try
+        {
+            worker.call();
+        }
+        catch ( Throwable e )
+        {
+            failure = e;
+        }
+        boolean interrupted = false;
+        for ( FutureTask<Void> helper : helperTasks )
+        {
+            for (;;)
+            {
+                try
+                {
+                    helper.get();
+                    break;
+                }
+                catch ( InterruptedException e )
+                {
+                    // The helpers hold page flush locks, so we wait for them to finish regardless
+                    interrupted = true;
+                }
+                catch ( ExecutionException e )
+                {
+                    failure = failure == null ? e.getCause() : addSuppressed( failure, e.getCause() );
+                    break;
+                }
+            }
+        }
+        if ( interrupted )
+        {
+            Thread.currentThread().interrupt();
+        }
+        if ( failure != null )
+        {
+            if ( failure instanceof IOException )
+            {
+                throw (IOException) failure;
+            }
+            throw new IOException( "Failed to flush the page cache", failure );
+        }
+    }
+
+    private static Throwable addSuppressed( Throwable failure, Throwable suppressed )
+    {
+        failure.addSuppressed( suppressed );
+        return failure;
+    }
+
+    @FunctionalInterface
+    private interface FlushTask
+    {
+        void flush() throws IOException;
+    }
+
+    /**
+     * Makes an {@link IOLimiter} usable from several concurrently flushing threads, by serialising the calls to it,
+     * and threading a single stamp through all of them regardless of which thread is asking.
+     */
+    private static final class SharedStampIOLimiter implements IOLimiter
+    {
+        private final IOLimiter delegate;
+        private long stamp = INITIAL_STAMP;
+
+        SharedStampIOLimiter( IOLimiter delegate )
+        {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public synchronized long maybeLimitIO( long previousStamp, int recentlyCompletedIOs, Flushable flushable )
+                throws IOException
+        {
+            stamp = delegate.maybeLimitIO( stamp, recentlyCompletedIOs, flushable );
+            return stamp;
+        }
+
+        @Override
+        public void disableLimit()
+        {
+            delegate.disableLimit();
+        }
+
+        @Override
+        public void enableLimit()
+        {
+            delegate.enableLimit();
+        }
+    }
+
     void syncDevice() throws IOException
     {
         swapperFactory.syncDevice();
@@ -249,13 +249,38 @@ final class MuninnPagedFile implements PagedFile, Flushable
     void flushAndForceInternal( FlushEventOpportunity flushOpportunity, boolean forClosing, IOLimiter limiter )
             throws IOException
     {
+        flushChunks( 0, Integer.MAX_VALUE, flushOpportunity, forClosing, limiter );
+
         // TODO it'd be awesome if, on Linux, we'd call sync_file_range(2) instead of fsync
+        swapper.force();
+    }
+
+    /**
+     * @return the number of translation table chunks that can be given to
+     * {@link #flushChunks(int, int, FlushEventOpportunity, boolean, IOLimiter)}.
+     */
+    int translationTableChunkCount()
+    {
+        return translationTable.length;
+    }
+
+    /**
+     * Write out the dirty pages in the translation table chunks from {@code fromChunk} inclusive, to
+     * {@code toChunk} exclusive, without forcing the file. Disjoint chunk ranges of the same file can be
+     * flushed concurrently.
+     */
+    void flushChunks( int fromChunk, int toChunk, FlushEventOpportunity flushOpportunity, boolean forClosing,
+            IOLimiter limiter ) throws IOException
+    {
         MuninnPage[] pages = new MuninnPage[translationTableChunkSize];
-        long filePageId = -1; // Start at -1 because we increment at the *start* of the chunk-loop iteration.
+        // Start one before the first page, because we increment at the *start* of the chunk-loop iteration.
+        long filePageId = (((long) fromChunk) << translationTableChunkSizePower) - 1;
         long limiterStamp = IOLimiter.INITIAL_STAMP;
         Object[][] tt = this.translationTable;
-        for ( Object[] chunk : tt )
+        int endChunk = Math.min( toChunk, tt.length );
+        for ( int chunkIndex = fromChunk; chunkIndex < endChunk; chunkIndex++ )
         {
+            Object[] chunk = tt[chunkIndex];
             // TODO Look into if we can tolerate flushing a few clean pages if it means we can use larger vectors.
             // TODO The clean pages in question must still be loaded, though. Otherwise we'll end up writing
             // TODO garbage to the file.
@@ -316,8 +341,6 @@ final class MuninnPagedFile implements PagedFile, Flushable
                 limiterStamp = limiter.maybeLimitIO( limiterStamp, pagesGrabbed, this );
             }
         }
-
-        swapper.force();
     }
 
     private void vectoredFlush(
@@ -24,6 +24,7 @@ import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.file.StandardOpenOption;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
 
@@ -35,6 +36,7 @@ import org.neo4j.io.pagecache.PageCacheTest;
 import org.neo4j.io.pagecache.PageCursor;
 import org.neo4j.io.pagecache.PagedFile;
 import org.neo4j.io.pagecache.RecordingPageCacheTracer;
+import org.neo4j.io.pagecache.impl.SingleFilePageSwapperFactory;
 import org.neo4j.io.pagecache.tracing.DelegatingPageCacheTracer;
 import org.neo4j.io.pagecache.tracing.EvictionRunEvent;
 import org.neo4j.io.pagecache.tracing.MajorFlushEvent;
@@ -204,6 +206,58 @@ public class MuninnPageCacheTest extends PageCacheTest<MuninnPageCache>
         assertThat( buf.getLong(), is( 0L ) );
     }
 
+    @Test
+    public void mustFlushAllFilesWithMultipleFlushThreads() throws Exception
+    {
+        File[] files = {file( "a" ), file( "b" ), file( "c" )};
+        SingleFilePageSwapperFactory swapperFactory = new SingleFilePageSwapperFactory();
+        swapperFactory.setFileSystemAbstraction( fs );
+        MuninnPageCache pageCache = new MuninnPageCache( swapperFactory, 32, 8, PageCacheTracer.NULL, 4 );
+        PagedFile[] pagedFiles = new PagedFile[files.length];
+        try
+        {
+            for ( int i = 0; i < files.length; i++ )
+            {
+                pagedFiles[i] = pageCache.map( files[i], 8, StandardOpenOption.CREATE );
+                try ( PageCursor cursor = pagedFiles[i].io( 0, PF_SHARED_WRITE_LOCK ) )
+                {
+                    for ( int page = 0; page < 5; page++ )
+                    {
+                        assertTrue( cursor.next() );
+                        cursor.putLong( i * 100 + page );
+                    }
+                }
+            }
+
+            pageCache.flushAndForce();
+
+            for ( int i = 0; i < files.length; i++ )
+            {
+                ByteBuffer buf = ByteBuffer.allocate( 40 );
+                try ( StoreChannel channel = fs.open( files[i], "r" ) )
+                {
+                    channel.read( buf );
+                }
+                buf.flip();
+                for ( int page = 0; page < 5; page++ )
+                {
+                    assertThat( buf.getLong(), is( i * 100L + page ) );
+                }
+            }
+        }
+        finally
+        {
+            for ( PagedFile pagedFile : pagedFiles )
+            {
+                if ( pagedFile != null )
+                {
+                    pagedFile.close();
+                }
+            }
+            pageCache.close();
+        }
+    }
+
     @Test
     public void closingTheCursorMustUnlockModifiedPage() throws Exception
     {
@@ -159,7 +159,7 @@ public abstract class GraphDatabaseSettings
     @Internal
     public static final Setting<String> cypher_runtime = setting(
             "unsupported.cypher.runtime",
-            options( "INTERPRETED", "COMPILED", DEFAULT ), DEFAULT );
+            options( "INTERPRETED", "COMPILED", "PARALLEL", DEFAULT ), DEFAULT );
 
     @Description( "Enable tracing of compilation in cypher." )
     @Internal
@@ -168,6 +168,21 @@ public abstract class GraphDatabaseSettings
     @Description( "The number of Cypher query execution plans that are cached." )
     public static Setting<Integer> query_cache_size = setting( "dbms.query_cache_size", INTEGER, "1000", min( 0 ) );
 
+    @Description( "File where the texts of the cached Cypher queries are kept. When set, the queries found in it are " +
+                  "planned again in the background when the database starts, so that they are already in the query " +
+                  "cache when they are first executed. By default the query cache is not persisted." )
+    public static final Setting<File> query_cache_warmup_file = pathSetting( "dbms.query_cache_warmup_file", NO_DEFAULT );
+
+    @Description( "The number of results of read-only Cypher queries that are cached, keyed by query and parameters. " +
+                  "A cached result is returned when the same query is executed again with the same parameters, until " +
+                  "the next transaction is committed. Set to 0 to disable result caching, which is the default." )
+    public static final Setting<Integer> query_result_cache_size =
+            setting( "dbms.query_result_cache_size", INTEGER, "0", min( 0 ) );
+
+    @Description( "The largest number of rows a query result may have to be kept in the query result cache." )
+    public static final Setting<Integer> query_result_cache_max_rows =
+            setting( "dbms.query_result_cache_max_rows", INTEGER, "1000", min( 0 ) );
+
     @Description( "The threshold when a plan is considered stale. If any of the underlying" +
                   " statistics used to create the plan has changed more than this value, " +
                   "the plan is considered stale and will be replanned. " +
@@ -199,6 +214,38 @@ public abstract class GraphDatabaseSettings
     @Description("The minimum lifetime of a query plan before a query is considered for replanning")
     public static Setting<Long> cypher_min_replan_interval = setting( "cypher.min_replan_interval", DURATION, "10s" );
 
+    @Description( "The factor by which the number of rows produced by an operator of a cached Cypher plan may differ " +
+                  "from the number of rows the planner estimated. Once most recent executions of the plan have " +
+                  "differed by more, the plan is considered stale and is replanned, a single outlier is not enough. " +
+                  "Plans are not replanned more often than `cypher.min_replan_interval`. A value of 0 " +
+                  "disables this check, and plans are then only replanned when the statistics change." )
+    public static Setting<Double> cypher_cardinality_divergence_threshold = setting(
+            "cypher.cardinality_divergence_threshold", DOUBLE, "0", min( 0.0 ) );
+
+    @Description( "The maximum number of rows that sorting, aggregation, hash joins and other eager operations of a " +
+                  "single Cypher query may hold in memory at the same time. A query that needs more fails instead " +
+                  "of exhausting the heap. A value of 0 means no limit." )
+    public static Setting<Long> cypher_max_materialized_rows = setting(
+            "cypher.max_materialized_rows", LONG, "0", min( 0L ) );
+
+    @Description( "The number of rows that label scans, expands, filters, projections and aggregations of the " +
+                  "interpreted Cypher runtime pass between each other at a time, as batches of columns instead " +
+                  "of one row at a time. Only read-only queries that are not profiled are executed in batches. " +
+                  "A value of 0 disables batching." )
+    public static Setting<Integer> cypher_interpreted_batch_size = setting(
+            "cypher.interpreted_batch_size", INTEGER, "0", min( 0 ) );
+
+    @Description( "The number of rows `LOAD CSV` may parse ahead of the query on a separate thread, so that parsing " +
+                  "the file overlaps with processing and committing the rows already read. " +
+                  "A value of 0 parses the file on the query thread as rows are needed." )
+    public static Setting<Integer> cypher_load_csv_parse_ahead_rows = setting(
+            "cypher.load_csv_parse_ahead_rows", INTEGER, "0", min( 0 ) );
+
+    @Description( "The number of workers a query run with `CYPHER runtime=parallel` splits its scan across. " +
+                  "A value of 0 uses one worker per available processor." )
+    public static Setting<Integer> cypher_parallel_runtime_workers = setting(
+            "cypher.parallel_runtime_workers", INTEGER, "0", min( 0 ) );
+
     @Description( "Determines if Cypher will allow using file URLs when loading data using `LOAD CSV`. Setting this "
                   + "value to `false` will cause Neo4j to fail `LOAD CSV` clauses that load data from the file system." )
     public static Setting<Boolean> allow_file_urls = setting( "dbms.security.allow_csv_import_from_file_urls", BOOLEAN, TRUE );
@@ -221,6 +268,17 @@ public abstract class GraphDatabaseSettings
     @Description("The maximum time interval of a transaction within which it should be completed.")
     public static final Setting<Long> transaction_timeout = setting( "dbms.transaction.timeout", DURATION, String.valueOf( UNSPECIFIED_TIMEOUT ) );
 
+    @Description( "The amount of property data, in bytes, a single transaction may keep in memory before " +
+            "further large string property values are spilled to a temporary file. " +
+            "`0` means that transaction state is never spilled to disk." )
+    public static final Setting<Long> transaction_state_spill_threshold =
+            setting( "dbms.transaction.state.spill_threshold", BYTES, "0", min( 0L ) );
+
+    @Description( "Directory where transaction state spilled to disk is kept. " +
+            "Defaults to the temporary directory of the JVM." )
+    public static final Setting<File> transaction_state_spill_directory =
+            pathSetting( "dbms.transaction.state.spill_directory", NO_DEFAULT );
+
     @Description( "The maximum amount of time to wait for running transactions to complete before allowing "
                   + "initiated database shutdown to continue" )
     @Internal
@@ -315,6 +373,19 @@ public abstract class GraphDatabaseSettings
     @Deprecated
     public static final Setting<List<String>> relationship_keys_indexable = setting("dbms.auto_index.relationships.keys", STRING_LIST, "" );
 
+    @Description( "Index provider to use when creating new schema indexes. Existing indexes keep using the " +
+                  "provider they were created with. `lucene-1.0` keeps all values in Lucene, whereas " +
+                  "`lucene+native-1.0` keeps numbers in a native index, living in the page cache, " +
+                  "and all other values in Lucene." )
+    public static final Setting<String> default_schema_provider = setting( "dbms.index.default_schema_provider",
+            options( "lucene-1.0", "lucene+native-1.0" ), "lucene-1.0" );
+
+    @Description( "Label scan store to use for mapping labels to nodes. `lucene` keeps node label bitmaps in Lucene, " +
+                  "whereas `native` keeps them in a native index, living in the page cache. " +
+                  "Changing this has the selected store built from the node store on next startup." )
+    public static final Setting<String> label_scan_store = setting( "dbms.index.label_scan_store",
+            options( "lucene", "native" ), "lucene" );
+
     // Index sampling
     @Description("Enable or disable background index sampling")
     public static final Setting<Boolean> index_background_sampling_enabled =
@@ -358,11 +429,30 @@ public abstract class GraphDatabaseSettings
                   "`0` means that no rotation will automatically occur based on file size. " )
     public static final Setting<Long> logical_log_rotation_threshold = setting( "dbms.tx_log.rotation.size", BYTES, "250M", min( 1024*1024L /*1Mb*/ ) );
 
+    @Description( "Compress the commands of each transaction written to the logical log, where doing so makes the " +
+            "transaction smaller. Reduces the size of logical logs at the cost of some CPU when committing and " +
+            "reading transactions. Logs written with compression enabled can not be read by Neo4j 3.0 or earlier." )
+    public static final Setting<Boolean> logical_log_compression = setting( "dbms.tx_log.compression.enabled",
+            BOOLEAN, FALSE );
+
     @Description("Use a quick approach for rebuilding the ID generators. This give quicker recovery time, " +
             "but will limit the ability to reuse the space of deleted entities.")
     @Internal
     public static final Setting<Boolean> rebuild_idgenerators_fast = setting("unsupported.dbms.id_generator_fast_rebuild_enabled", BOOLEAN, TRUE );
 
+    @Description( "Let every thread allocate ids from its own cached range of ids and free ids in batches, " +
+            "instead of synchronizing every id allocation on one id generator per store. " +
+            "Reduces contention when many threads concurrently commit transactions creating entities." )
+    @Internal
+    public static final Setting<Boolean> striped_idgenerators = setting( "unsupported.dbms.id_generator_striped_enabled",
+            BOOLEAN, FALSE );
+
+    @Description( "Number of threads to use for applying transactions to the store during recovery. " +
+            "With more than one thread, recovered transactions changing disjoint sets of records " +
+            "are applied in parallel, whereas the default of `1` applies them one by one." )
+    public static final Setting<Integer> recovery_parallelism = setting( "dbms.recovery.parallelism", INTEGER, "1",
+            min( 1 ) );
+
     // Store memory settings
     @Description("Target size for pages of mapped memory. If set to 0, then a reasonable default is chosen, " +
                  "depending on the storage device used.")
@@ -419,6 +509,12 @@ public abstract class GraphDatabaseSettings
         return "2g";
     }
 
+    @Description( "The number of threads used to write out dirty pages and force the store files when the page " +
+                  "cache is flushed, for instance during checkpoints. Larger files are split into ranges that are " +
+                  "flushed concurrently. The default of `1` flushes all files one after another." )
+    public static final Setting<Integer> pagecache_flush_threads =
+            setting( "dbms.memory.pagecache.flush_threads", INTEGER, "1", min( 1 ) );
+
     @Description( "Specify which page swapper to use for doing paged IO. " +
                   "This is only used when integrating with proprietary storage technology." )
     public static final Setting<String> pagecache_swapper =
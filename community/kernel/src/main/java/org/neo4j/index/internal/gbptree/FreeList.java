@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.index.internal.gbptree;
+
+import java.io.IOException;
+
+import org.neo4j.collection.primitive.PrimitiveLongStack;
+import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.io.pagecache.PagedFile;
+
+import static org.neo4j.index.internal.gbptree.TreeState.NO_PAGE_ID;
+
+/**
+ * Keeps track of pages which are no longer used by the tree and so can be reused. Page ids are released
+ * in two stages:
+ * <ol>
+ * <li>A page which is replaced by a copy, or otherwise made unreachable, during the current unstable
+ * generation is still reachable from the most recently checkpointed tree and so must be left intact until
+ * the next checkpoint has completed.</li>
+ * <li>After a checkpoint such ids are free to be reused right away.</li>
+ * </ol>
+ * The free ids are persisted as part of every checkpoint, in a chain of free-list pages which itself is
+ * allocated from ids which were reusable before the checkpoint. Since the chain is referenced from
+ * the state page of the checkpoint its pages are released in the same fashion as tree nodes, i.e. they are
+ * reusable only after the next checkpoint has completed.
+ * <p>
+ * Free-list pages look like:
+ * <pre>
+ * [pageType:1B][unused:3B][count:4B][next:8B][id:8B]...
+ * </pre>
+ * Not thread-safe, all access is guarded by the tree writer lock.
+ */
+class FreeList
+{
+    private static final int BYTE_POS_COUNT = 4;
+    private static final int BYTE_POS_NEXT = 8;
+    private static final int HEADER_LENGTH = 16;
+
+    private final int idsPerPage;
+    private PrimitiveLongStack reusable = new PrimitiveLongStack( 16 );
+    private PrimitiveLongStack releasedThisGeneration = new PrimitiveLongStack( 16 );
+    private long[] chainOfLastCheckpoint = new long[0];
+    private long lastId;
+
+    FreeList( int pageSize, long lastId )
+    {
+        this.idsPerPage = (pageSize - HEADER_LENGTH) / Long.BYTES;
+        this.lastId = lastId;
+    }
+
+    long lastId()
+    {
+        return lastId;
+    }
+
+    /**
+     * @return an id which is free to use right away, either a reused one or one past the current last id.
+     */
+    long acquireNewId()
+    {
+        long id = reusable.poll();
+        return id != -1 ? id : ++lastId;
+    }
+
+    /**
+     * Releases {@code id} which becomes reusable after the next checkpoint.
+     */
+    void releaseAfterCheckpoint( long id )
+    {
+        releasedThisGeneration.push( id );
+    }
+
+    int reusableCount()
+    {
+        return reusable.size();
+    }
+
+    int releasedThisGenerationCount()
+    {
+        return releasedThisGeneration.size();
+    }
+
+    /**
+     * Reads the free-list chain starting at {@code head}, making all ids in it reusable.
+     */
+    void load( PagedFile pagedFile, long head ) throws IOException
+    {
+        PrimitiveLongStack chain = new PrimitiveLongStack( 4 );
+        try ( PageCursor cursor = pagedFile.io( 0, PagedFile.PF_SHARED_READ_LOCK ) )
+        {
+            long pageId = head;
+            while ( pageId != NO_PAGE_ID )
+            {
+                if ( !cursor.next( pageId ) )
+                {
+                    throw new TreeInconsistencyException( "Free-list page %d is outside of file %s",
+                            pageId, pagedFile );
+                }
+                chain.push( pageId );
+                long[] ids;
+                long next;
+                do
+                {
+                    byte pageType = TreeNode.pageType( cursor );
+                    int count = cursor.getInt( BYTE_POS_COUNT );
+                    next = cursor.getLong( BYTE_POS_NEXT );
+                    if ( pageType != TreeNode.PAGE_TYPE_FREELIST_NODE || count < 0 || count > idsPerPage )
+                    {
+                        count = 0;
+                        cursor.setCursorException( "Page " + pageId + " isn't a valid free-list page" );
+                    }
+                    ids = new long[count];
+                    cursor.setOffset( HEADER_LENGTH );
+                    for ( int i = 0; i < count; i++ )
+                    {
+                        ids[i] = cursor.getLong();
+                    }
+                }
+                while ( cursor.shouldRetry() );
+                cursor.checkAndClearCursorException();
+                for ( long id : ids )
+                {
+                    reusable.push( id );
+                }
+                pageId = next;
+            }
+        }
+        chainOfLastCheckpoint = drain( chain );
+    }
+
+    /**
+     * Writes all currently free ids into a new chain of free-list pages. Pages of the new chain are only ever
+     * taken from ids which were free already before the current generation, or are new ids,
+     * so that the state of the previous checkpoint is left untouched.
+     *
+     * @return page id of the head of the written chain, or {@link TreeState#NO_PAGE_ID} if there were no free ids.
+     */
+    long writeChain( PagedFile pagedFile ) throws IOException
+    {
+        PrimitiveLongStack chain = new PrimitiveLongStack( 4 );
+        long freeCount = reusable.size() + releasedThisGeneration.size() + chainOfLastCheckpoint.length;
+        while ( (long) chain.size() * idsPerPage < freeCount )
+        {
+            long id = reusable.poll();
+            if ( id == -1 )
+            {
+                id = ++lastId;
+            }
+            else
+            {
+                freeCount--;
+            }
+            chain.push( id );
+        }
+
+        long[] chainIds = drain( chain );
+        long[] free = new long[(int) freeCount];
+        int cursorPos = 0;
+        for ( long id = reusable.poll(); id != -1; id = reusable.poll() )
+        {
+            free[cursorPos++] = id;
+        }
+        for ( long id = releasedThisGeneration.poll(); id != -1; id = releasedThisGeneration.poll() )
+        {
+            free[cursorPos++] = id;
+        }
+        for ( long id : chainOfLastCheckpoint )
+        {
+            free[cursorPos++] = id;
+        }
+
+        try ( PageCursor cursor = pagedFile.io( 0, PagedFile.PF_SHARED_WRITE_LOCK ) )
+        {
+            int written = 0;
+            for ( int i = 0; i < chainIds.length; i++ )
+            {
+                if ( !cursor.next( chainIds[i] ) )
+                {
+                    throw new IllegalStateException( "Could not go to free-list page " + chainIds[i] );
+                }
+                int count = Math.min( idsPerPage, free.length - written );
+                cursor.putByte( 0, TreeNode.PAGE_TYPE_FREELIST_NODE );
+                cursor.putInt( BYTE_POS_COUNT, count );
+                cursor.putLong( BYTE_POS_NEXT, i + 1 < chainIds.length ? chainIds[i + 1] : NO_PAGE_ID );
+                cursor.setOffset( HEADER_LENGTH );
+                for ( int j = 0; j < count; j++ )
+                {
+                    cursor.putLong( free[written++] );
+                }
+            }
+        }
+
+        // All ids just written are now pending until the checkpoint completes, see checkpointCompleted
+        for ( long id : free )
+        {
+            releasedThisGeneration.push( id );
+        }
+        chainOfLastCheckpoint = chainIds;
+        return chainIds.length == 0 ? NO_PAGE_ID : chainIds[0];
+    }
+
+    /**
+     * Called when the state page referring to the chain written in {@link #writeChain(PagedFile)}
+     * has been durably written. All ids released before the checkpoint are now reusable.
+     */
+    void checkpointCompleted()
+    {
+        PrimitiveLongStack released = releasedThisGeneration;
+        releasedThisGeneration = reusable;
+        reusable = released;
+    }
+
+    private static long[] drain( PrimitiveLongStack stack )
+    {
+        long[] ids = new long[stack.size()];
+        for ( int i = ids.length - 1; i >= 0; i-- )
+        {
+            ids[i] = stack.poll();
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,948 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.index.internal.gbptree;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+import org.neo4j.cursor.RawCursor;
+import org.neo4j.io.pagecache.IOLimiter;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.io.pagecache.PageCacheOpenOptions;
+import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.io.pagecache.PagedFile;
+
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_READ_LOCK;
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_WRITE_LOCK;
+
+/**
+ * A generation-aware B+tree (GB+Tree) implementation directly atop a {@link PageCache} with no caching in between.
+ * Additionally internal and leaf nodes on same level are not linked, instead seekers keep track of the path
+ * taken from the root, which makes it cheap to copy a node and only have its parent point to the copy.
+ * <p>
+ * The tree is copy-on-write with regards to the last checkpoint. Every node is stamped with the generation
+ * it was created in. Nodes created since the last {@link #checkpoint(IOLimiter) checkpoint}, i.e. of the unstable
+ * generation, are modified in place, whereas nodes of older, stable, generations are copied, together with the
+ * path leading to them, before they're modified. Nodes replaced by copies are reused only after the next checkpoint.
+ * This means that the tree, as it was at the last checkpoint, is always intact on disk and so opening a tree
+ * after a crash requires no recovery of the tree itself. Changes made after the last checkpoint are expected
+ * to be replayed by the user of the tree, e.g. from the transaction log.
+ * <p>
+ * There can be one writer at any given point in time, acquired using {@link #writer()}, and any number of
+ * concurrent {@link #seek(Object, Object) seekers}. Seekers never block the writer.
+ * <p>
+ * Keys are unique, i.e. there can be only one value per key. Key and value sizes are fixed, as decided by
+ * the {@link Layout}. Nodes are never merged when entries are removed, which matches the mostly growing
+ * nature of indexes.
+ *
+ * @param <KEY> type of keys
+ * @param <VALUE> type of values
+ */
+public class GBPTree<KEY,VALUE> implements Closeable
+{
+    /**
+     * For monitoring {@link GBPTree}.
+     */
+    public interface Monitor
+    {
+        /**
+         * Called when a {@link GBPTree#checkpoint(IOLimiter)} has been completed, but right before
+         * {@link GBPTree#writer() writers} are re-enabled.
+         */
+        default void checkpointCompleted()
+        {   // no-op by default
+        }
+    }
+
+    /**
+     * No-op {@link Monitor}.
+     */
+    public static final Monitor NO_MONITOR = new Monitor()
+    {   // does nothing
+    };
+
+    /**
+     * No-op header reader.
+     */
+    public static final Header.Reader NO_HEADER = headerData -> {};
+
+    private static final long MAGIC = 0x4742_5054_5245_4521L;
+    private static final int FORMAT_VERSION = 1;
+    private static final int BYTE_POS_MAGIC = 0;
+    private static final int BYTE_POS_FORMAT_VERSION = 8;
+    private static final int BYTE_POS_PAGE_SIZE = 12;
+    private static final int BYTE_POS_LAYOUT_IDENTIFIER = 16;
+    private static final int BYTE_POS_LAYOUT_MAJOR_VERSION = 24;
+    private static final int BYTE_POS_LAYOUT_MINOR_VERSION = 28;
+
+    private final File indexFile;
+    private final PagedFile pagedFile;
+    private final Layout<KEY,VALUE> layout;
+    private final TreeNode<KEY,VALUE> bTreeNode;
+    private final int pageSize;
+    private final Monitor monitor;
+
+    /**
+     * Guards the single writer, as well as checkpoints and closing.
+     */
+    private final ReentrantLock writerLock = new ReentrantLock();
+
+    /**
+     * Write-locked by the writer for the duration of every change to the tree structure, i.e. anything which
+     * changes which page a node lives in or where in the tree a key is found. Seekers validate their reads against
+     * optimistic stamps of this lock.
+     */
+    private final StampedLock structureLock = new StampedLock();
+
+    private final SingleWriter writer;
+    private final FreeList freeList;
+    private volatile long rootId;
+
+    // Guarded by writerLock
+    private long stableGeneration;
+    private long unstableGeneration;
+    private byte[] header = new byte[0];
+    private boolean changesSinceLastCheckpoint;
+    private boolean closed;
+
+    /**
+     * Opens an index {@code indexFile} in the {@code pageCache}, creating and initializing it if it doesn't exist.
+     * If the index doesn't exist it will be created and the {@link Layout} and {@code pageSize} will
+     * be written in index header.
+     * If the index exists it will be opened and the {@link Layout} will be matched with the information
+     * in the header. At the very least {@link Layout#identifier()} will be matched.
+     *
+     * @param pageCache {@link PageCache} to use to map index file
+     * @param indexFile {@link File} containing the actual index
+     * @param layout {@link Layout} to use in the tree, this must match the existing layout
+     * we're just opening the index
+     * @param tentativePageSize page size, or zero for using page size of page cache. If existing index
+     * this page size is ignored and the page size of the existing index is used instead.
+     * @param monitor {@link Monitor} for monitoring {@link GBPTree}.
+     * @param headerReader reads header data, previously written using {@link #checkpoint(IOLimiter, Consumer)}
+     * when opening an existing tree.
+     * @throws IOException on page cache error
+     * @throws MetadataMismatchException if the existing tree doesn't match the given layout.
+     */
+    public GBPTree( PageCache pageCache, File indexFile, Layout<KEY,VALUE> layout, int tentativePageSize,
+            Monitor monitor, Header.Reader headerReader ) throws IOException
+    {
+        this.indexFile = indexFile;
+        this.layout = layout;
+        this.monitor = monitor;
+
+        PagedFile existing = openExistingIndexFile( pageCache, indexFile );
+        boolean created = existing == null;
+        if ( created )
+        {
+            int pageSize = tentativePageSize == 0 ? pageCache.pageSize() : tentativePageSize;
+            this.pagedFile = pageCache.map( indexFile, pageSize, StandardOpenOption.CREATE );
+        }
+        else
+        {
+            this.pagedFile = existing;
+        }
+        this.pageSize = pagedFile.pageSize();
+
+        try
+        {
+            this.bTreeNode = new TreeNode<>( pageSize, layout );
+            if ( created )
+            {
+                writeMeta();
+                this.freeList = new FreeList( pageSize, IdSpace.MIN_TREE_NODE_ID - 1 );
+                this.stableGeneration = 1;
+                this.unstableGeneration = 2;
+                this.rootId = freeList.acquireNewId();
+                try ( PageCursor cursor = pagedFile.io( rootId, PF_SHARED_WRITE_LOCK ) )
+                {
+                    goTo( cursor, rootId );
+                    TreeNode.initializeLeaf( cursor, unstableGeneration );
+                }
+            }
+            else
+            {
+                readMeta();
+                TreeState state = TreeState.readMostRecent( pagedFile );
+                this.freeList = new FreeList( pageSize, state.lastId() );
+                this.freeList.load( pagedFile, state.freeListHead() );
+                this.stableGeneration = state.stableGeneration();
+                this.unstableGeneration = stableGeneration + 1;
+                this.rootId = state.rootId();
+                this.header = state.header();
+                headerReader.read( ByteBuffer.wrap( header ) );
+            }
+            this.writer = new SingleWriter();
+
+            if ( created )
+            {
+                // Make sure there's a valid state on disk before anything else happens to this tree
+                checkpoint( IOLimiter.unlimited() );
+            }
+        }
+        catch ( Throwable t )
+        {
+            try
+            {
+                pagedFile.close();
+            }
+            catch ( IOException e )
+            {
+                t.addSuppressed( e );
+            }
+            throw t;
+        }
+    }
+
+    /**
+     * Reads the header data written at the most recent checkpoint of the tree in {@code indexFile},
+     * without opening the tree as such. This can be done also while the tree is open.
+     *
+     * @param pageCache {@link PageCache} to use for reading the index file.
+     * @param indexFile the tree file.
+     * @param headerReader receives the header data.
+     * @throws NoSuchFileException if there's no such file.
+     * @throws IOException on page cache error.
+     */
+    public static void readHeader( PageCache pageCache, File indexFile, Header.Reader headerReader )
+            throws IOException
+    {
+        PagedFile pagedFile = openExistingIndexFile( pageCache, indexFile );
+        if ( pagedFile == null )
+        {
+            throw new NoSuchFileException( indexFile.getAbsolutePath() );
+        }
+        try
+        {
+            TreeState state = TreeState.readMostRecent( pagedFile );
+            headerReader.read( ByteBuffer.wrap( state.header() ) );
+        }
+        finally
+        {
+            pagedFile.close();
+        }
+    }
+
+    /**
+     * Opens an existing tree file, mapped with the page size it was created with.
+     *
+     * @return the mapped file, or {@code null} if the file doesn't exist or was never fully created.
+     */
+    private static PagedFile openExistingIndexFile( PageCache pageCache, File indexFile, OpenOption... options )
+            throws IOException
+    {
+        PagedFile pagedFile;
+        try
+        {
+            pagedFile = pageCache.map( indexFile, pageCache.pageSize(), PageCacheOpenOptions.ANY_PAGE_SIZE );
+        }
+        catch ( NoSuchFileException e )
+        {
+            return null;
+        }
+
+        try
+        {
+            if ( pagedFile.getLastPageId() < 0 )
+            {
+                // Crashed while creating
+                pagedFile.close();
+                return null;
+            }
+            int storedPageSize;
+            try ( PageCursor cursor = pagedFile.io( IdSpace.META_PAGE_ID, PF_SHARED_READ_LOCK ) )
+            {
+                goTo( cursor, IdSpace.META_PAGE_ID );
+                do
+                {
+                    storedPageSize = cursor.getInt( BYTE_POS_PAGE_SIZE );
+                }
+                while ( cursor.shouldRetry() );
+            }
+            if ( storedPageSize != pagedFile.pageSize() )
+            {
+                if ( storedPageSize <= 0 || storedPageSize > pageCache.pageSize() )
+                {
+                    throw new MetadataMismatchException( "Tree in %s was created with page size %d, " +
+                            "which isn't supported by page cache with page size %d",
+                            indexFile, storedPageSize, pageCache.pageSize() );
+                }
+                pagedFile.close();
+                pagedFile = pageCache.map( indexFile, storedPageSize, options );
+            }
+            if ( pagedFile.getLastPageId() < IdSpace.MIN_TREE_NODE_ID )
+            {
+                // Crashed while creating, before the first tree node was written
+                pagedFile.close();
+                return null;
+            }
+            return pagedFile;
+        }
+        catch ( Throwable t )
+        {
+            try
+            {
+                pagedFile.close();
+            }
+            catch ( IOException e )
+            {
+                t.addSuppressed( e );
+            }
+            throw t;
+        }
+    }
+
+    private void writeMeta() throws IOException
+    {
+        try ( PageCursor cursor = pagedFile.io( IdSpace.META_PAGE_ID, PF_SHARED_WRITE_LOCK ) )
+        {
+            goTo( cursor, IdSpace.META_PAGE_ID );
+            cursor.putLong( BYTE_POS_MAGIC, MAGIC );
+            cursor.putInt( BYTE_POS_FORMAT_VERSION, FORMAT_VERSION );
+            cursor.putInt( BYTE_POS_PAGE_SIZE, pageSize );
+            cursor.putLong( BYTE_POS_LAYOUT_IDENTIFIER, layout.identifier() );
+            cursor.putInt( BYTE_POS_LAYOUT_MAJOR_VERSION, layout.majorVersion() );
+            cursor.putInt( BYTE_POS_LAYOUT_MINOR_VERSION, layout.minorVersion() );
+        }
+    }
+
+    private void readMeta() throws IOException
+    {
+        long magic;
+        int formatVersion;
+        long layoutIdentifier;
+        int majorVersion;
+        int minorVersion;
+        try ( PageCursor cursor = pagedFile.io( IdSpace.META_PAGE_ID, PF_SHARED_READ_LOCK ) )
+        {
+            goTo( cursor, IdSpace.META_PAGE_ID );
+            do
+            {
+                magic = cursor.getLong( BYTE_POS_MAGIC );
+                formatVersion = cursor.getInt( BYTE_POS_FORMAT_VERSION );
+                layoutIdentifier = cursor.getLong( BYTE_POS_LAYOUT_IDENTIFIER );
+                majorVersion = cursor.getInt( BYTE_POS_LAYOUT_MAJOR_VERSION );
+                minorVersion = cursor.getInt( BYTE_POS_LAYOUT_MINOR_VERSION );
+            }
+            while ( cursor.shouldRetry() );
+        }
+
+        if ( magic != MAGIC || formatVersion != FORMAT_VERSION )
+        {
+            throw new MetadataMismatchException( "%s isn't a tree file of a supported format, " +
+                    "magic:%x, format version:%d", indexFile, magic, formatVersion );
+        }
+        if ( layoutIdentifier != layout.identifier() ||
+             majorVersion != layout.majorVersion() ||
+             minorVersion != layout.minorVersion() )
+        {
+            throw new MetadataMismatchException( "Tried to open %s using different layout %s than what it was " +
+                    "created with, identifier:%d, version:%d.%d", indexFile, layout, layoutIdentifier,
+                    majorVersion, minorVersion );
+        }
+    }
+
+    /**
+     * Seeks hits in this tree, given a key range. Hits are iterated over using the returned {@link RawCursor}.
+     * There's no guarantee that neither the {@link Hit} nor the KEY/VALUE instances are immutable and so
+     * if caller wants to cache the results it's safest to copy the instances, or rather their contents,
+     * into its own result cache.
+     * <p>
+     * Seeks can be performed concurrently with each other as well as with the writer.
+     *
+     * @param fromInclusive lower bound of the range to seek (inclusive).
+     * @param toExclusive higher bound of the range to seek (exclusive).
+     * @return a {@link RawCursor} used to iterate over the hits within the specified key range, in key order.
+     * @throws IOException on error reading from index.
+     */
+    public RawCursor<Hit<KEY,VALUE>,IOException> seek( KEY fromInclusive, KEY toExclusive ) throws IOException
+    {
+        return new SeekCursor<>( pagedFile.io( 0, PF_SHARED_READ_LOCK ), bTreeNode, layout, structureLock,
+                () -> rootId, fromInclusive, toExclusive );
+    }
+
+    /**
+     * Returns the single {@link Writer} of this tree, blocking until it's available. The writer must be
+     * {@link Writer#close() closed} when done with, typically using try-with-resources.
+     *
+     * @return the single {@link Writer} for this index.
+     * @throws IOException on error accessing the index.
+     */
+    public Writer<KEY,VALUE> writer() throws IOException
+    {
+        writerLock.lock();
+        try
+        {
+            assertOpen();
+            return writer;
+        }
+        catch ( Throwable t )
+        {
+            writerLock.unlock();
+            throw t;
+        }
+    }
+
+    /**
+     * Performs a checkpoint, keeping any header data written at the previous checkpoint.
+     *
+     * @param ioLimiter for controlling I/O rate while flushing.
+     * @throws IOException on error flushing to storage.
+     * @see #checkpoint(IOLimiter, Consumer)
+     */
+    public void checkpoint( IOLimiter ioLimiter ) throws IOException
+    {
+        checkpoint( ioLimiter, null );
+    }
+
+    /**
+     * Makes the current state of the tree durable. All changes made up until this call are flushed and
+     * the current unstable generation becomes the new stable generation, which is what will be opened
+     * if the tree is opened after a crash. Blocks the writer for the duration of the checkpoint.
+     *
+     * @param ioLimiter for controlling I/O rate while flushing.
+     * @param headerWriter writes custom header data, which is stored together with the tree state and later
+     * provided to the {@link Header.Reader} when the tree is opened. {@code null} keeps the header data of
+     * the previous checkpoint.
+     * @throws IOException on error flushing to storage.
+     */
+    public void checkpoint( IOLimiter ioLimiter, Consumer<ByteBuffer> headerWriter ) throws IOException
+    {
+        writerLock.lock();
+        try
+        {
+            assertOpen();
+            if ( headerWriter != null )
+            {
+                ByteBuffer buffer = ByteBuffer.allocate( TreeState.maxHeaderLength( pageSize ) );
+                headerWriter.accept( buffer );
+                header = Arrays.copyOf( buffer.array(), buffer.position() );
+            }
+            doCheckpoint( ioLimiter );
+        }
+        finally
+        {
+            writerLock.unlock();
+        }
+    }
+
+    private void doCheckpoint( IOLimiter ioLimiter ) throws IOException
+    {
+        // Write the free ids, then flush all nodes of the unstable generation. Writing the free-list may
+        // reuse pages which concurrent seekers still read, so seekers must notice that
+        long freeListHead;
+        long stamp = structureLock.writeLock();
+        try
+        {
+            freeListHead = freeList.writeChain( pagedFile );
+        }
+        finally
+        {
+            structureLock.unlockWrite( stamp );
+        }
+        pagedFile.flushAndForce( ioLimiter );
+
+        // Only then write the state pointing to them
+        try ( PageCursor cursor = pagedFile.io( TreeState.statePageIdFor( unstableGeneration ),
+                PF_SHARED_WRITE_LOCK ) )
+        {
+            goTo( cursor, TreeState.statePageIdFor( unstableGeneration ) );
+            TreeState.write( cursor, unstableGeneration, rootId, freeList.lastId(), freeListHead, header );
+        }
+        pagedFile.flushAndForce();
+
+        freeList.checkpointCompleted();
+        stableGeneration = unstableGeneration;
+        unstableGeneration++;
+        changesSinceLastCheckpoint = false;
+        monitor.checkpointCompleted();
+    }
+
+    /**
+     * Closes this tree and its associated resources, checkpointing any changes made since the last checkpoint.
+     * Closing an already closed tree has no effect.
+     *
+     * @throws IOException on error either checkpointing or closing resources.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        writerLock.lock();
+        try
+        {
+            if ( closed )
+            {
+                return;
+            }
+            closed = true;
+            try
+            {
+                if ( changesSinceLastCheckpoint )
+                {
+                    doCheckpoint( IOLimiter.unlimited() );
+                }
+            }
+            finally
+            {
+                pagedFile.close();
+            }
+        }
+        finally
+        {
+            writerLock.unlock();
+        }
+    }
+
+    /**
+     * @return the file this tree lives in.
+     */
+    public File indexFile()
+    {
+        return indexFile;
+    }
+
+    private void assertOpen()
+    {
+        if ( closed )
+        {
+            throw new IllegalStateException( "Tree in " + indexFile + " is already closed" );
+        }
+    }
+
+    private static void goTo( PageCursor cursor, long pageId ) throws IOException
+    {
+        if ( !cursor.next( pageId ) )
+        {
+            throw new IllegalStateException( "Could not go to page " + pageId + " of " + cursor.getCurrentFile() );
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName() + "[file:" + indexFile + ", layout:" + layout + ", root:" + rootId +
+               ", generation:" + stableGeneration + "/" + unstableGeneration + "]";
+    }
+
+    /**
+     * The single writer of the tree. Only used while holding the {@link #writerLock}, which is released
+     * when the writer is closed.
+     */
+    private class SingleWriter implements Writer<KEY,VALUE>
+    {
+        private final KEY readKey = layout.newKey();
+        private final VALUE readValue = layout.newValue();
+        private final KEY separator = layout.newKey();
+        private final KEY promoted = layout.newKey();
+        private final byte[] tmp = new byte[pageSize];
+        private PageCursor cursor;
+        private long[] pathIds = new long[8];
+        private int[] pathPos = new int[8];
+
+        // Used for splitting nodes, allocated lazily
+        private KEY[] keyPool;
+        private VALUE[] valuePool;
+        private KEY[] keyRefs;
+        private VALUE[] valueRefs;
+        private long[] children;
+
+        @Override
+        public void put( KEY key, VALUE value ) throws IOException
+        {
+            merge( key, value, ValueMergers.overwrite() );
+        }
+
+        @Override
+        public void merge( KEY key, VALUE value, ValueMerger<VALUE> valueMerger ) throws IOException
+        {
+            // A write cursor keeps its page write locked for as long as it's at it, which would have
+            // seekers of that page spin. Therefore a cursor is only kept for the duration of each change
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK ) )
+            {
+                this.cursor = cursor;
+                doMerge( key, value, valueMerger );
+            }
+            finally
+            {
+                this.cursor = null;
+            }
+        }
+
+        private void doMerge( KEY key, VALUE value, ValueMerger<VALUE> valueMerger ) throws IOException
+        {
+            int leafLevel = descend( key );
+            int keyCount = TreeNode.keyCount( cursor );
+            int pos = bTreeNode.search( cursor, key, readKey, keyCount, true );
+            if ( pos < keyCount && layout.compare( bTreeNode.keyAt( cursor, readKey, pos ), key ) == 0 )
+            {
+                VALUE mergedValue = valueMerger.merge( bTreeNode.valueAt( cursor, readValue, pos ), value );
+                if ( mergedValue == null )
+                {
+                    removeAt( leafLevel, pos );
+                }
+                else
+                {
+                    makeWritable( leafLevel );
+                    bTreeNode.setValueAt( cursor, mergedValue, pos );
+                }
+                changesSinceLastCheckpoint = true;
+            }
+            else
+            {
+                VALUE mergedValue = valueMerger.merge( null, value );
+                if ( mergedValue != null )
+                {
+                    insertAt( leafLevel, key, mergedValue, pos, keyCount );
+                    changesSinceLastCheckpoint = true;
+                }
+            }
+        }
+
+        @Override
+        public VALUE remove( KEY key ) throws IOException
+        {
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_WRITE_LOCK ) )
+            {
+                this.cursor = cursor;
+                return doRemove( key );
+            }
+            finally
+            {
+                this.cursor = null;
+            }
+        }
+
+        private VALUE doRemove( KEY key ) throws IOException
+        {
+            int leafLevel = descend( key );
+            int keyCount = TreeNode.keyCount( cursor );
+            int pos = bTreeNode.search( cursor, key, readKey, keyCount, true );
+            if ( pos < keyCount && layout.compare( bTreeNode.keyAt( cursor, readKey, pos ), key ) == 0 )
+            {
+                bTreeNode.valueAt( cursor, readValue, pos );
+                removeAt( leafLevel, pos );
+                changesSinceLastCheckpoint = true;
+                return readValue;
+            }
+            return null;
+        }
+
+        @Override
+        public void close()
+        {
+            if ( !writerLock.isHeldByCurrentThread() )
+            {
+                throw new IllegalStateException( "Writer of " + indexFile + " isn't held by this thread" );
+            }
+            writerLock.unlock();
+        }
+
+        /**
+         * Descends from the root to the leaf covering {@code key}, remembering the path taken.
+         *
+         * @return level of the leaf, where root is level 0. The cursor is left at the leaf.
+         */
+        private int descend( KEY key ) throws IOException
+        {
+            long id = rootId;
+            int level = 0;
+            while ( true )
+            {
+                goTo( cursor, id );
+                if ( !TreeNode.isNode( cursor ) )
+                {
+                    throw new TreeInconsistencyException( "Page %d in %s was expected to be a tree node",
+                            id, indexFile );
+                }
+                ensurePathCapacity( level );
+                pathIds[level] = id;
+                if ( TreeNode.isLeaf( cursor ) )
+                {
+                    return level;
+                }
+                int childPos = bTreeNode.childPosition( cursor, key, readKey, TreeNode.keyCount( cursor ) );
+                pathPos[level] = childPos;
+                id = bTreeNode.childAt( cursor, childPos );
+                level++;
+            }
+        }
+
+        /**
+         * Makes sure the leaf at {@code leafLevel} of the current path, and so all its ancestors, are of the
+         * unstable generation, by copying the ones which aren't. The cursor is left at the leaf.
+         */
+        private void makeWritable( int leafLevel ) throws IOException
+        {
+            goTo( cursor, pathIds[leafLevel] );
+            if ( TreeNode.generation( cursor ) == unstableGeneration )
+            {
+                // A node of the unstable generation has all its ancestors of the unstable generation too
+                return;
+            }
+
+            long stamp = structureLock.writeLock();
+            try
+            {
+                for ( int level = 0; level <= leafLevel; level++ )
+                {
+                    long id = pathIds[level];
+                    goTo( cursor, id );
+                    if ( TreeNode.generation( cursor ) == unstableGeneration )
+                    {
+                        continue;
+                    }
+
+                    long newId = freeList.acquireNewId();
+                    cursor.setOffset( 0 );
+                    cursor.getBytes( tmp, 0, pageSize );
+                    goTo( cursor, newId );
+                    cursor.setOffset( 0 );
+                    cursor.putBytes( tmp, 0, pageSize );
+                    TreeNode.setGeneration( cursor, unstableGeneration );
+                    freeList.releaseAfterCheckpoint( id );
+
+                    if ( level == 0 )
+                    {
+                        rootId = newId;
+                    }
+                    else
+                    {
+                        goTo( cursor, pathIds[level - 1] );
+                        bTreeNode.setChildAt( cursor, newId, pathPos[level - 1] );
+                    }
+                    pathIds[level] = newId;
+                }
+            }
+            finally
+            {
+                structureLock.unlockWrite( stamp );
+            }
+            goTo( cursor, pathIds[leafLevel] );
+        }
+
+        private void removeAt( int leafLevel, int pos ) throws IOException
+        {
+            makeWritable( leafLevel );
+            int keyCount = TreeNode.keyCount( cursor );
+            bTreeNode.removeKeyAt( cursor, pos, keyCount, tmp );
+            bTreeNode.removeValueAt( cursor, pos, keyCount, tmp );
+            TreeNode.setKeyCount( cursor, keyCount - 1 );
+        }
+
+        private void insertAt( int leafLevel, KEY key, VALUE value, int pos, int keyCount ) throws IOException
+        {
+            makeWritable( leafLevel );
+            if ( keyCount < bTreeNode.leafMaxKeyCount() )
+            {
+                bTreeNode.insertKeyAt( cursor, key, pos, keyCount, tmp );
+                bTreeNode.insertValueAt( cursor, value, pos, keyCount, tmp );
+                TreeNode.setKeyCount( cursor, keyCount + 1 );
+                return;
+            }
+
+            long stamp = structureLock.writeLock();
+            try
+            {
+                splitLeaf( leafLevel, key, value, pos, keyCount );
+            }
+            finally
+            {
+                structureLock.unlockWrite( stamp );
+            }
+        }
+
+        /**
+         * Splits the full leaf at {@code level}, which the cursor is at, into itself and a new right sibling,
+         * inserting {@code key}/{@code value} in the process.
+         */
+        private void splitLeaf( int level, KEY key, VALUE value, int pos, int keyCount ) throws IOException
+        {
+            ensureSplitCapacity();
+            for ( int i = 0, slot = 0; i < keyCount; i++, slot++ )
+            {
+                if ( i == pos )
+                {
+                    keyRefs[slot] = key;
+                    valueRefs[slot] = value;
+                    slot++;
+                }
+                keyRefs[slot] = bTreeNode.keyAt( cursor, keyPool[i], i );
+                valueRefs[slot] = bTreeNode.valueAt( cursor, valuePool[i], i );
+            }
+            if ( pos == keyCount )
+            {
+                keyRefs[keyCount] = key;
+                valueRefs[keyCount] = value;
+            }
+
+            int total = keyCount + 1;
+            int middle = total / 2;
+            long leftId = pathIds[level];
+            long rightId = freeList.acquireNewId();
+
+            goTo( cursor, rightId );
+            TreeNode.initializeLeaf( cursor, unstableGeneration );
+            for ( int i = middle; i < total; i++ )
+            {
+                bTreeNode.setKeyAt( cursor, keyRefs[i], i - middle );
+                bTreeNode.setValueAt( cursor, valueRefs[i], i - middle );
+            }
+            TreeNode.setKeyCount( cursor, total - middle );
+
+            goTo( cursor, leftId );
+            for ( int i = pos; i < middle; i++ )
+            {
+                bTreeNode.setKeyAt( cursor, keyRefs[i], i );
+                bTreeNode.setValueAt( cursor, valueRefs[i], i );
+            }
+            TreeNode.setKeyCount( cursor, middle );
+
+            layout.copyKey( keyRefs[middle], separator );
+            insertInParent( level, separator, rightId );
+        }
+
+        /**
+         * Inserts {@code key} and {@code rightChild}, which is the new right sibling of the node at
+         * {@code childLevel} in the current path, into the parent of that node, splitting the parent if needed.
+         */
+        private void insertInParent( int childLevel, KEY key, long rightChild ) throws IOException
+        {
+            if ( childLevel == 0 )
+            {
+                long newRootId = freeList.acquireNewId();
+                goTo( cursor, newRootId );
+                TreeNode.initializeInternal( cursor, unstableGeneration );
+                bTreeNode.setKeyAt( cursor, key, 0 );
+                bTreeNode.setChildAt( cursor, pathIds[0], 0 );
+                bTreeNode.setChildAt( cursor, rightChild, 1 );
+                TreeNode.setKeyCount( cursor, 1 );
+                rootId = newRootId;
+                return;
+            }
+
+            int level = childLevel - 1;
+            goTo( cursor, pathIds[level] );
+            int keyCount = TreeNode.keyCount( cursor );
+            int pos = pathPos[level];
+            if ( keyCount < bTreeNode.internalMaxKeyCount() )
+            {
+                bTreeNode.insertKeyAt( cursor, key, pos, keyCount, tmp );
+                bTreeNode.insertChildAt( cursor, rightChild, pos + 1, keyCount, tmp );
+                TreeNode.setKeyCount( cursor, keyCount + 1 );
+                return;
+            }
+            splitInternal( level, key, rightChild, pos, keyCount );
+        }
+
+        private void splitInternal( int level, KEY key, long rightChild, int pos, int keyCount ) throws IOException
+        {
+            ensureSplitCapacity();
+            for ( int i = 0, slot = 0; i < keyCount; i++, slot++ )
+            {
+                if ( i == pos )
+                {
+                    keyRefs[slot++] = key;
+                }
+                keyRefs[slot] = bTreeNode.keyAt( cursor, keyPool[i], i );
+            }
+            if ( pos == keyCount )
+            {
+                keyRefs[keyCount] = key;
+            }
+            for ( int i = 0, slot = 0; i <= keyCount; i++, slot++ )
+            {
+                children[slot] = bTreeNode.childAt( cursor, i );
+                if ( i == pos )
+                {
+                    children[++slot] = rightChild;
+                }
+            }
+
+            int totalKeys = keyCount + 1;
+            int middle = totalKeys / 2;
+            long leftId = pathIds[level];
+            long rightId = freeList.acquireNewId();
+
+            goTo( cursor, rightId );
+            TreeNode.initializeInternal( cursor, unstableGeneration );
+            for ( int i = middle + 1; i < totalKeys; i++ )
+            {
+                bTreeNode.setKeyAt( cursor, keyRefs[i], i - middle - 1 );
+            }
+            for ( int i = middle + 1; i <= totalKeys; i++ )
+            {
+                bTreeNode.setChildAt( cursor, children[i], i - middle - 1 );
+            }
+            TreeNode.setKeyCount( cursor, totalKeys - middle - 1 );
+
+            goTo( cursor, leftId );
+            for ( int i = 0; i < middle; i++ )
+            {
+                bTreeNode.setKeyAt( cursor, keyRefs[i], i );
+            }
+            for ( int i = 0; i <= middle; i++ )
+            {
+                bTreeNode.setChildAt( cursor, children[i], i );
+            }
+            TreeNode.setKeyCount( cursor, middle );
+
+            layout.copyKey( keyRefs[middle], promoted );
+            layout.copyKey( promoted, separator );
+            insertInParent( level, separator, rightId );
+        }
+
+        private void ensurePathCapacity( int level )
+        {
+            if ( level >= pathIds.length )
+            {
+                pathIds = Arrays.copyOf( pathIds, pathIds.length * 2 );
+                pathPos = Arrays.copyOf( pathPos, pathPos.length * 2 );
+            }
+        }
+
+        @SuppressWarnings( "unchecked" )
+        private void ensureSplitCapacity()
+        {
+            if ( keyPool == null )
+            {
+                int maxKeys = Math.max( bTreeNode.leafMaxKeyCount(), bTreeNode.internalMaxKeyCount() ) + 1;
+                keyPool = (KEY[]) new Object[maxKeys];
+                valuePool = (VALUE[]) new Object[maxKeys];
+                for ( int i = 0; i < maxKeys; i++ )
+                {
+                    keyPool[i] = layout.newKey();
+                    valuePool[i] = layout.newValue();
+                }
+                keyRefs = (KEY[]) new Object[maxKeys];
+                valueRefs = (VALUE[]) new Object[maxKeys];
+                children = new long[maxKeys + 1];
+            }
+        }
+    }
+}
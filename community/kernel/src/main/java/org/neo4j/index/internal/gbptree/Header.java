@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.index.internal.gbptree;
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Defines interfaces for reading and writing custom header data, stored together with the tree state
+ * at every {@link GBPTree#checkpoint(org.neo4j.io.pagecache.IOLimiter, Consumer) checkpoint}.
+ */
+public class Header
+{
+    private Header()
+    {
+    }
+
+    /**
+     * Writes nothing, effectively clearing any previously written header data.
+     */
+    public static final Consumer<ByteBuffer> CLEAR = buffer -> {};
+
+    /**
+     * Reads header data previously written at a checkpoint.
+     */
+    public interface Reader
+    {
+        /**
+         * Called when it's time to read header data from the most up to date and valid state page.
+         *
+         * @param headerData {@link ByteBuffer} containing exactly the header data written at the checkpoint,
+         * positioned at its start.
+         */
+        void read( ByteBuffer headerData );
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.index.internal.gbptree;
+
+/**
+ * Page ids which have special meaning in a {@link GBPTree} file. Tree nodes and free-list nodes are
+ * allocated at {@link #MIN_TREE_NODE_ID} and higher.
+ */
+class IdSpace
+{
+    /**
+     * Page holding static meta data about the tree, e.g. page size and layout identifier.
+     */
+    static final long META_PAGE_ID = 0;
+
+    /**
+     * First of the two alternating state pages, see {@link TreeState}.
+     */
+    static final long STATE_PAGE_A = 1;
+
+    /**
+     * Second of the two alternating state pages, see {@link TreeState}.
+     */
+    static final long STATE_PAGE_B = 2;
+
+    static final long MIN_TREE_NODE_ID = 3;
+
+    private IdSpace()
+    {
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.index.internal.gbptree;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongSupplier;
+
+import org.neo4j.cursor.RawCursor;
+import org.neo4j.io.pagecache.PageCursor;
+
+/**
+ * {@link RawCursor} over tree leaves, making keys/values accessible to user. Given a starting leaf
+ * and key range this cursor traverses each leaf and its right siblings as long as visited keys are within
+ * key range. Each visited key within the key range can be accessible using {@link #get()}.
+ * The key/value instances provided by {@link Hit} instance are mutable and overwritten with new values
+ * for every call to {@link #next()} so user cannot keep references to key/value instances, expecting them
+ * to keep their values intact.
+ * <p>
+ * Concurrent writes can happen in the visited nodes and tree structure may change during the seek.
+ * Each page is read under an optimistic read lock and re-read if it was changed during the read.
+ * Changes to the tree structure, e.g. splits and copy-on-write of nodes, are detected using the
+ * structure lock of the tree. If a structure change happened since the last consistent read the seeker
+ * re-traverses the tree from the root, starting after the last returned key.
+ *
+ * @param <KEY> type of keys
+ * @param <VALUE> type of values
+ */
+class SeekCursor<KEY,VALUE> implements RawCursor<Hit<KEY,VALUE>,IOException>, Hit<KEY,VALUE>
+{
+    private final PageCursor cursor;
+    private final TreeNode<KEY,VALUE> bTreeNode;
+    private final Layout<KEY,VALUE> layout;
+    private final StampedLock structureLock;
+    private final LongSupplier rootId;
+    private final KEY fromInclusive;
+    private final KEY toExclusive;
+    private final KEY mutableKey;
+    private final KEY readKey;
+    private VALUE currentValue;
+
+    // Entries of the current leaf, read in one consistent read
+    private KEY[] keys;
+    private VALUE[] values;
+    private int count;
+    private int pos;
+
+    // Path from root to current leaf
+    private long[] pathIds = new long[8];
+    private int[] pathPos = new int[8];
+    private int leafLevel;
+
+    private long stamp;
+    private boolean initialized;
+    private boolean hasReturned;
+    private boolean exhausted;
+
+    @SuppressWarnings( "unchecked" )
+    SeekCursor( PageCursor cursor, TreeNode<KEY,VALUE> bTreeNode, Layout<KEY,VALUE> layout,
+            StampedLock structureLock, LongSupplier rootId, KEY fromInclusive, KEY toExclusive )
+    {
+        this.cursor = cursor;
+        this.bTreeNode = bTreeNode;
+        this.layout = layout;
+        this.structureLock = structureLock;
+        this.rootId = rootId;
+        this.fromInclusive = layout.copyKey( fromInclusive, layout.newKey() );
+        this.toExclusive = layout.copyKey( toExclusive, layout.newKey() );
+        this.mutableKey = layout.newKey();
+        this.readKey = layout.newKey();
+        this.keys = (KEY[]) new Object[0];
+        this.values = (VALUE[]) new Object[0];
+    }
+
+    @Override
+    public boolean next() throws IOException
+    {
+        if ( !initialized )
+        {
+            initialized = true;
+            traverseFrom( fromInclusive, true );
+        }
+
+        while ( true )
+        {
+            if ( pos < count )
+            {
+                KEY key = keys[pos];
+                if ( layout.compare( key, toExclusive ) >= 0 )
+                {
+                    exhausted = true;
+                    return false;
+                }
+                layout.copyKey( key, mutableKey );
+                currentValue = values[pos];
+                pos++;
+                hasReturned = true;
+                return true;
+            }
+            if ( exhausted || !moveToNextLeaf() )
+            {
+                exhausted = true;
+                return false;
+            }
+        }
+    }
+
+    @Override
+    public Hit<KEY,VALUE> get()
+    {
+        return this;
+    }
+
+    @Override
+    public KEY key()
+    {
+        return mutableKey;
+    }
+
+    @Override
+    public VALUE value()
+    {
+        return currentValue;
+    }
+
+    @Override
+    public void close()
+    {
+        cursor.close();
+    }
+
+    /**
+     * Traverses from the root down to the leaf which would contain {@code key}, reading entries of that leaf
+     * which are greater than, or equal to if {@code inclusive}, {@code key}.
+     */
+    private void traverseFrom( KEY key, boolean inclusive ) throws IOException
+    {
+        do
+        {
+            stamp = acquireStamp();
+        }
+        while ( !descend( rootId.getAsLong(), 0, key, inclusive ) );
+    }
+
+    /**
+     * Moves on to the leaf following the current one, by going up the path to the first ancestor which has
+     * a child to the right of the path and then down its left-most path.
+     *
+     * @return {@code true} if there was a next leaf which may contain keys within range, otherwise {@code false}.
+     */
+    private boolean moveToNextLeaf() throws IOException
+    {
+        if ( structureLock.validate( stamp ) )
+        {
+            for ( int level = leafLevel - 1; level >= 0; level-- )
+            {
+                if ( !cursor.next( pathIds[level] ) )
+                {
+                    // Can only happen if the tree has been restructured, which the stamp validation will catch
+                    break;
+                }
+                int childPos = pathPos[level];
+                long child = -1;
+                boolean hasMoreChildren;
+                do
+                {
+                    int keyCount = TreeNode.keyCount( cursor );
+                    hasMoreChildren = childPos < keyCount && childPos < bTreeNode.internalMaxKeyCount();
+                    if ( hasMoreChildren )
+                    {
+                        bTreeNode.keyAt( cursor, readKey, childPos );
+                        child = bTreeNode.childAt( cursor, childPos + 1 );
+                    }
+                }
+                while ( cursor.shouldRetry() );
+                cursor.checkAndClearBoundsFlag();
+                if ( !structureLock.validate( stamp ) )
+                {
+                    break;
+                }
+
+                if ( hasMoreChildren )
+                {
+                    if ( layout.compare( readKey, toExclusive ) >= 0 )
+                    {
+                        // All keys in the remaining subtrees are outside of the range
+                        return false;
+                    }
+                    pathPos[level] = childPos + 1;
+                    if ( descend( child, level + 1, null, true ) )
+                    {
+                        return true;
+                    }
+                    break;
+                }
+
+                if ( level == 0 )
+                {
+                    // No more leaves to the right
+                    return false;
+                }
+            }
+
+            if ( leafLevel == 0 && structureLock.validate( stamp ) )
+            {
+                // The root is a leaf, so there are no more leaves
+                return false;
+            }
+        }
+
+        // The tree structure changed under our feet, start over from the root with the last returned key
+        if ( hasReturned )
+        {
+            traverseFrom( mutableKey, false );
+        }
+        else
+        {
+            traverseFrom( fromInclusive, true );
+        }
+        return true;
+    }
+
+    /**
+     * Descends from node {@code id} at {@code level} down to a leaf. If {@code key} is {@code null} the left-most
+     * path is taken and all entries of the leaf are read, otherwise the path covering {@code key} is taken.
+     *
+     * @return {@code true} if the leaf was reached and read consistently, {@code false} if the tree structure
+     * changed during the traversal.
+     */
+    private boolean descend( long id, int level, KEY key, boolean inclusive ) throws IOException
+    {
+        while ( true )
+        {
+            if ( !cursor.next( id ) )
+            {
+                if ( !structureLock.validate( stamp ) )
+                {
+                    return false;
+                }
+                throw new TreeInconsistencyException( "Tree node %d is outside of file %s", id,
+                        cursor.getCurrentFile() );
+            }
+
+            boolean isNode;
+            boolean isLeaf;
+            boolean sane;
+            long child = -1;
+            int childPos = 0;
+            do
+            {
+                isNode = TreeNode.isNode( cursor );
+                isLeaf = TreeNode.isLeaf( cursor );
+                int keyCount = TreeNode.keyCount( cursor );
+                sane = isNode && keyCount >= 0 &&
+                       keyCount <= (isLeaf ? bTreeNode.leafMaxKeyCount() : bTreeNode.internalMaxKeyCount());
+                if ( sane )
+                {
+                    if ( isLeaf )
+                    {
+                        int start = key == null ? 0 : bTreeNode.search( cursor, key, readKey, keyCount, inclusive );
+                        readLeafEntries( start, keyCount );
+                    }
+                    else
+                    {
+                        childPos = key == null ? 0 : bTreeNode.childPosition( cursor, key, readKey, keyCount );
+                        child = bTreeNode.childAt( cursor, childPos );
+                    }
+                }
+            }
+            while ( cursor.shouldRetry() );
+            cursor.checkAndClearBoundsFlag();
+
+            if ( !structureLock.validate( stamp ) )
+            {
+                return false;
+            }
+            if ( !sane )
+            {
+                throw new TreeInconsistencyException( "Page %d in %s was expected to be a tree node",
+                        id, cursor.getCurrentFile() );
+            }
+
+            ensurePathCapacity( level );
+            pathIds[level] = id;
+            if ( isLeaf )
+            {
+                leafLevel = level;
+                return true;
+            }
+            pathPos[level] = childPos;
+            id = child;
+            level++;
+        }
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private void readLeafEntries( int start, int keyCount )
+    {
+        count = Math.max( 0, keyCount - start );
+        pos = 0;
+        if ( keys.length < count )
+        {
+            int length = Math.min( bTreeNode.leafMaxKeyCount(), Math.max( count, keys.length * 2 ) );
+            int previousLength = keys.length;
+            keys = Arrays.copyOf( keys, length );
+            values = Arrays.copyOf( values, length );
+            for ( int i = previousLength; i < length; i++ )
+            {
+                keys[i] = layout.newKey();
+                values[i] = layout.newValue();
+            }
+        }
+        for ( int i = 0; i < count; i++ )
+        {
+            bTreeNode.keyAt( cursor, keys[i], start + i );
+            bTreeNode.valueAt( cursor, values[i], start + i );
+        }
+    }
+
+    private void ensurePathCapacity( int level )
+    {
+        if ( level >= pathIds.length )
+        {
+            pathIds = Arrays.copyOf( pathIds, pathIds.length * 2 );
+            pathPos = Arrays.copyOf( pathPos, pathPos.length * 2 );
+        }
+    }
+
+    private long acquireStamp()
+    {
+        long newStamp = structureLock.tryOptimisticRead();
+        while ( newStamp == 0 )
+        {
+            // A writer is in the middle of changing the tree structure, wait for it to complete
+            long readStamp = structureLock.readLock();
+            structureLock.unlockRead( readStamp );
+            newStamp = structureLock.tryOptimisticRead();
+        }
+        return newStamp;
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.index.internal.gbptree;
+
+import org.neo4j.io.pagecache.PageCursor;
+
+/**
+ * Methods to manipulate single tree node such as set and get header fields,
+ * insert and fetch keys, values and children.
+ * <p>
+ * Every tree node page starts with a header:
+ * <pre>
+ * [pageType:1B][nodeType:1B][unused:2B][keyCount:4B][generation:8B]
+ * </pre>
+ * Leaf nodes then store {@code maxLeafKeyCount} key slots followed by the same number of value slots.
+ * Internal nodes store {@code maxInternalKeyCount} key slots followed by {@code maxInternalKeyCount + 1}
+ * child pointer slots. Keys in a node are kept in sorted order. Child {@code i} of an internal node contains
+ * keys which are greater than or equal to key {@code i - 1} and less than key {@code i}.
+ * <p>
+ * {@code generation} is the unstable generation of the tree at the time when the node was created.
+ * Nodes of the current unstable generation can be modified in place, whereas nodes of any older generation
+ * are part of the latest checkpointed tree and are copied before modified.
+ *
+ * @param <KEY> type of key
+ * @param <VALUE> type of value
+ */
+class TreeNode<KEY,VALUE>
+{
+    static final byte PAGE_TYPE_TREE_NODE = 1;
+    static final byte PAGE_TYPE_FREELIST_NODE = 2;
+
+    static final byte NODE_TYPE_LEAF = 1;
+    static final byte NODE_TYPE_INTERNAL = 2;
+
+    static final int SIZE_PAGE_REFERENCE = Long.BYTES;
+
+    private static final int BYTE_POS_PAGE_TYPE = 0;
+    private static final int BYTE_POS_NODE_TYPE = 1;
+    private static final int BYTE_POS_KEY_COUNT = 4;
+    private static final int BYTE_POS_GENERATION = 8;
+    static final int HEADER_LENGTH = 16;
+
+    private final int pageSize;
+    private final Layout<KEY,VALUE> layout;
+    private final int keySize;
+    private final int valueSize;
+    private final int internalMaxKeyCount;
+    private final int leafMaxKeyCount;
+
+    TreeNode( int pageSize, Layout<KEY,VALUE> layout )
+    {
+        this.pageSize = pageSize;
+        this.layout = layout;
+        this.keySize = layout.keySize();
+        this.valueSize = layout.valueSize();
+        this.internalMaxKeyCount = (pageSize - HEADER_LENGTH - SIZE_PAGE_REFERENCE) / (keySize + SIZE_PAGE_REFERENCE);
+        this.leafMaxKeyCount = (pageSize - HEADER_LENGTH) / (keySize + valueSize);
+
+        if ( internalMaxKeyCount < 2 || leafMaxKeyCount < 2 )
+        {
+            throw new MetadataMismatchException( "For layout %s a page size of %d would only fit %d internal keys " +
+                    "and %d leaf keys, minimum is 2", layout, pageSize, internalMaxKeyCount, leafMaxKeyCount );
+        }
+    }
+
+    // HEADER
+
+    static void initialize( PageCursor cursor, byte nodeType, long generation )
+    {
+        cursor.putByte( BYTE_POS_PAGE_TYPE, PAGE_TYPE_TREE_NODE );
+        cursor.putByte( BYTE_POS_NODE_TYPE, nodeType );
+        cursor.putShort( BYTE_POS_NODE_TYPE + 1, (short) 0 );
+        setKeyCount( cursor, 0 );
+        setGeneration( cursor, generation );
+    }
+
+    static void initializeLeaf( PageCursor cursor, long generation )
+    {
+        initialize( cursor, NODE_TYPE_LEAF, generation );
+    }
+
+    static void initializeInternal( PageCursor cursor, long generation )
+    {
+        initialize( cursor, NODE_TYPE_INTERNAL, generation );
+    }
+
+    static byte pageType( PageCursor cursor )
+    {
+        return cursor.getByte( BYTE_POS_PAGE_TYPE );
+    }
+
+    static byte nodeType( PageCursor cursor )
+    {
+        return cursor.getByte( BYTE_POS_NODE_TYPE );
+    }
+
+    static boolean isNode( PageCursor cursor )
+    {
+        byte nodeType = nodeType( cursor );
+        return pageType( cursor ) == PAGE_TYPE_TREE_NODE &&
+               (nodeType == NODE_TYPE_LEAF || nodeType == NODE_TYPE_INTERNAL);
+    }
+
+    static boolean isLeaf( PageCursor cursor )
+    {
+        return nodeType( cursor ) == NODE_TYPE_LEAF;
+    }
+
+    static boolean isInternal( PageCursor cursor )
+    {
+        return nodeType( cursor ) == NODE_TYPE_INTERNAL;
+    }
+
+    static int keyCount( PageCursor cursor )
+    {
+        return cursor.getInt( BYTE_POS_KEY_COUNT );
+    }
+
+    static void setKeyCount( PageCursor cursor, int count )
+    {
+        cursor.putInt( BYTE_POS_KEY_COUNT, count );
+    }
+
+    static long generation( PageCursor cursor )
+    {
+        return cursor.getLong( BYTE_POS_GENERATION );
+    }
+
+    static void setGeneration( PageCursor cursor, long generation )
+    {
+        cursor.putLong( BYTE_POS_GENERATION, generation );
+    }
+
+    // BODY
+
+    KEY keyAt( PageCursor cursor, KEY into, int pos )
+    {
+        cursor.setOffset( keyOffset( pos ) );
+        layout.readKey( cursor, into );
+        return into;
+    }
+
+    void setKeyAt( PageCursor cursor, KEY key, int pos )
+    {
+        cursor.setOffset( keyOffset( pos ) );
+        layout.writeKey( cursor, key );
+    }
+
+    VALUE valueAt( PageCursor cursor, VALUE into, int pos )
+    {
+        cursor.setOffset( valueOffset( pos ) );
+        layout.readValue( cursor, into );
+        return into;
+    }
+
+    void setValueAt( PageCursor cursor, VALUE value, int pos )
+    {
+        cursor.setOffset( valueOffset( pos ) );
+        layout.writeValue( cursor, value );
+    }
+
+    long childAt( PageCursor cursor, int pos )
+    {
+        return cursor.getLong( childOffset( pos ) );
+    }
+
+    void setChildAt( PageCursor cursor, long child, int pos )
+    {
+        cursor.putLong( childOffset( pos ), child );
+    }
+
+    /**
+     * Inserts {@code key} at {@code pos}, shifting keys at {@code pos} and onwards one slot to the right.
+     */
+    void insertKeyAt( PageCursor cursor, KEY key, int pos, int keyCount, byte[] tmp )
+    {
+        shiftRight( cursor, keyOffset( pos ), keySize, keyCount - pos, tmp );
+        setKeyAt( cursor, key, pos );
+    }
+
+    /**
+     * Inserts {@code value} at {@code pos}, shifting values at {@code pos} and onwards one slot to the right.
+     */
+    void insertValueAt( PageCursor cursor, VALUE value, int pos, int keyCount, byte[] tmp )
+    {
+        shiftRight( cursor, valueOffset( pos ), valueSize, keyCount - pos, tmp );
+        setValueAt( cursor, value, pos );
+    }
+
+    /**
+     * Inserts {@code child} at {@code pos}, shifting children at {@code pos} and onwards one slot to the right.
+     * An internal node with {@code keyCount} keys has {@code keyCount + 1} children.
+     */
+    void insertChildAt( PageCursor cursor, long child, int pos, int keyCount, byte[] tmp )
+    {
+        shiftRight( cursor, childOffset( pos ), SIZE_PAGE_REFERENCE, keyCount + 1 - pos, tmp );
+        setChildAt( cursor, child, pos );
+    }
+
+    void removeKeyAt( PageCursor cursor, int pos, int keyCount, byte[] tmp )
+    {
+        shiftLeft( cursor, keyOffset( pos + 1 ), keySize, keyCount - pos - 1, tmp );
+    }
+
+    void removeValueAt( PageCursor cursor, int pos, int keyCount, byte[] tmp )
+    {
+        shiftLeft( cursor, valueOffset( pos + 1 ), valueSize, keyCount - pos - 1, tmp );
+    }
+
+    private static void shiftRight( PageCursor cursor, int fromOffset, int slotSize, int slots, byte[] tmp )
+    {
+        if ( slots > 0 && slotSize > 0 )
+        {
+            int length = slots * slotSize;
+            cursor.setOffset( fromOffset );
+            cursor.getBytes( tmp, 0, length );
+            cursor.setOffset( fromOffset + slotSize );
+            cursor.putBytes( tmp, 0, length );
+        }
+    }
+
+    private static void shiftLeft( PageCursor cursor, int fromOffset, int slotSize, int slots, byte[] tmp )
+    {
+        if ( slots > 0 && slotSize > 0 )
+        {
+            int length = slots * slotSize;
+            cursor.setOffset( fromOffset );
+            cursor.getBytes( tmp, 0, length );
+            cursor.setOffset( fromOffset - slotSize );
+            cursor.putBytes( tmp, 0, length );
+        }
+    }
+
+    int internalMaxKeyCount()
+    {
+        return internalMaxKeyCount;
+    }
+
+    int leafMaxKeyCount()
+    {
+        return leafMaxKeyCount;
+    }
+
+    int maxKeyCount( PageCursor cursor )
+    {
+        return isLeaf( cursor ) ? leafMaxKeyCount : internalMaxKeyCount;
+    }
+
+    int pageSize()
+    {
+        return pageSize;
+    }
+
+    /**
+     * Binary search for the position of {@code key} in the node the cursor is at.
+     *
+     * @return position of the first key which is greater than {@code key}, or which is equal to {@code key}
+     * if {@code inclusive} is {@code true}. Returns {@code keyCount} if there is no such key.
+     */
+    int search( PageCursor cursor, KEY key, KEY readKey, int keyCount, boolean inclusive )
+    {
+        int lower = 0;
+        int higher = keyCount;
+        while ( lower < higher )
+        {
+            int middle = (lower + higher) >>> 1;
+            int comparison = layout.compare( keyAt( cursor, readKey, middle ), key );
+            if ( comparison < 0 || (comparison == 0 && !inclusive) )
+            {
+                lower = middle + 1;
+            }
+            else
+            {
+                higher = middle;
+            }
+        }
+        return lower;
+    }
+
+    /**
+     * @return which child, in the internal node the cursor is at, which covers {@code key}.
+     */
+    int childPosition( PageCursor cursor, KEY key, KEY readKey, int keyCount )
+    {
+        return search( cursor, key, readKey, keyCount, false );
+    }
+
+    private int keyOffset( int pos )
+    {
+        return HEADER_LENGTH + pos * keySize;
+    }
+
+    private int valueOffset( int pos )
+    {
+        return HEADER_LENGTH + leafMaxKeyCount * keySize + pos * valueSize;
+    }
+
+    private int childOffset( int pos )
+    {
+        return HEADER_LENGTH + internalMaxKeyCount * keySize + pos * SIZE_PAGE_REFERENCE;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "TreeNode[pageSize:" + pageSize + ", internalMax:" + internalMaxKeyCount +
+               ", leafMax:" + leafMaxKeyCount + ", keySize:" + keySize + ", valueSize:" + valueSize + "]";
+    }
+}
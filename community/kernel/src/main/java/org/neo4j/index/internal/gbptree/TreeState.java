@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.index.internal.gbptree;
+
+import java.io.IOException;
+import java.util.zip.CRC32;
+
+import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.io.pagecache.PagedFile;
+
+/**
+ * Tree state is stored in two alternating state pages, where each checkpoint writes into the page which is
+ * not holding the most recent state. This means that a crash in the middle of writing a state page will always
+ * leave the previous, intact, state around. Each state page contains:
+ * <pre>
+ * [stableGeneration:8B][rootId:8B][lastId:8B][freeListHead:8B][headerLength:4B][checksum:8B][header...]
+ * </pre>
+ * where checksum covers all preceding fields as well as the custom header data.
+ */
+class TreeState
+{
+    static final long NO_PAGE_ID = -1;
+
+    private static final int BYTE_POS_STABLE_GENERATION = 0;
+    private static final int BYTE_POS_ROOT_ID = 8;
+    private static final int BYTE_POS_LAST_ID = 16;
+    private static final int BYTE_POS_FREE_LIST_HEAD = 24;
+    private static final int BYTE_POS_HEADER_LENGTH = 32;
+    private static final int BYTE_POS_CHECKSUM = 36;
+    static final int BYTE_POS_HEADER = 44;
+
+    private final long pageId;
+    private final long stableGeneration;
+    private final long rootId;
+    private final long lastId;
+    private final long freeListHead;
+    private final byte[] header;
+    private final boolean valid;
+
+    private TreeState( long pageId, long stableGeneration, long rootId, long lastId, long freeListHead,
+            byte[] header, boolean valid )
+    {
+        this.pageId = pageId;
+        this.stableGeneration = stableGeneration;
+        this.rootId = rootId;
+        this.lastId = lastId;
+        this.freeListHead = freeListHead;
+        this.header = header;
+        this.valid = valid;
+    }
+
+    long pageId()
+    {
+        return pageId;
+    }
+
+    long stableGeneration()
+    {
+        return stableGeneration;
+    }
+
+    long rootId()
+    {
+        return rootId;
+    }
+
+    long lastId()
+    {
+        return lastId;
+    }
+
+    long freeListHead()
+    {
+        return freeListHead;
+    }
+
+    byte[] header()
+    {
+        return header;
+    }
+
+    boolean isValid()
+    {
+        return valid;
+    }
+
+    static int maxHeaderLength( int pageSize )
+    {
+        return pageSize - BYTE_POS_HEADER;
+    }
+
+    /**
+     * @return the state page id which a checkpoint making {@code stableGeneration} stable should write to.
+     */
+    static long statePageIdFor( long stableGeneration )
+    {
+        return (stableGeneration & 1) == 0 ? IdSpace.STATE_PAGE_A : IdSpace.STATE_PAGE_B;
+    }
+
+    static void write( PageCursor cursor, long stableGeneration, long rootId, long lastId, long freeListHead,
+            byte[] header )
+    {
+        cursor.putLong( BYTE_POS_STABLE_GENERATION, stableGeneration );
+        cursor.putLong( BYTE_POS_ROOT_ID, rootId );
+        cursor.putLong( BYTE_POS_LAST_ID, lastId );
+        cursor.putLong( BYTE_POS_FREE_LIST_HEAD, freeListHead );
+        cursor.putInt( BYTE_POS_HEADER_LENGTH, header.length );
+        cursor.setOffset( BYTE_POS_HEADER );
+        cursor.putBytes( header );
+        cursor.putLong( BYTE_POS_CHECKSUM, checksum( stableGeneration, rootId, lastId, freeListHead, header ) );
+    }
+
+    /**
+     * Reads both state pages and returns the most recent one which is valid.
+     *
+     * @throws TreeInconsistencyException if neither state page is valid.
+     */
+    static TreeState readMostRecent( PagedFile pagedFile ) throws IOException
+    {
+        TreeState stateA = read( pagedFile, IdSpace.STATE_PAGE_A );
+        TreeState stateB = read( pagedFile, IdSpace.STATE_PAGE_B );
+        if ( stateA.isValid() && stateB.isValid() )
+        {
+            return stateA.stableGeneration() > stateB.stableGeneration() ? stateA : stateB;
+        }
+        if ( stateA.isValid() )
+        {
+            return stateA;
+        }
+        if ( stateB.isValid() )
+        {
+            return stateB;
+        }
+        throw new TreeInconsistencyException( "Neither of the state pages in %s is valid",
+                pagedFile );
+    }
+
+    private static TreeState read( PagedFile pagedFile, long pageId ) throws IOException
+    {
+        try ( PageCursor cursor = pagedFile.io( pageId, PagedFile.PF_SHARED_READ_LOCK ) )
+        {
+            if ( !cursor.next() )
+            {
+                return new TreeState( pageId, 0, NO_PAGE_ID, NO_PAGE_ID, NO_PAGE_ID, new byte[0], false );
+            }
+
+            long stableGeneration;
+            long rootId;
+            long lastId;
+            long freeListHead;
+            long checksum;
+            byte[] header;
+            do
+            {
+                stableGeneration = cursor.getLong( BYTE_POS_STABLE_GENERATION );
+                rootId = cursor.getLong( BYTE_POS_ROOT_ID );
+                lastId = cursor.getLong( BYTE_POS_LAST_ID );
+                freeListHead = cursor.getLong( BYTE_POS_FREE_LIST_HEAD );
+                int headerLength = cursor.getInt( BYTE_POS_HEADER_LENGTH );
+                checksum = cursor.getLong( BYTE_POS_CHECKSUM );
+                if ( headerLength < 0 || headerLength > maxHeaderLength( cursor.getCurrentPageSize() ) )
+                {
+                    headerLength = 0;
+                    checksum = ~checksum;
+                }
+                header = new byte[headerLength];
+                cursor.setOffset( BYTE_POS_HEADER );
+                cursor.getBytes( header );
+            }
+            while ( cursor.shouldRetry() );
+            cursor.checkAndClearBoundsFlag();
+
+            boolean valid = stableGeneration > 0 &&
+                    checksum == checksum( stableGeneration, rootId, lastId, freeListHead, header );
+            return new TreeState( pageId, stableGeneration, rootId, lastId, freeListHead, header, valid );
+        }
+    }
+
+    private static long checksum( long stableGeneration, long rootId, long lastId, long freeListHead,
+            byte[] header )
+    {
+        CRC32 crc = new CRC32();
+        update( crc, stableGeneration );
+        update( crc, rootId );
+        update( crc, lastId );
+        update( crc, freeListHead );
+        update( crc, header.length );
+        crc.update( header, 0, header.length );
+        // Mix in a constant so that an all-zero page never passes as valid
+        return crc.getValue() ^ 0x5A5A_5A5A_5A5A_5A5AL;
+    }
+
+    private static void update( CRC32 crc, long value )
+    {
+        for ( int i = 0; i < Long.BYTES; i++ )
+        {
+            crc.update( (int) (value >>> (i * Byte.SIZE)) );
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "TreeState[pageId:" + pageId + ", stableGeneration:" + stableGeneration + ", rootId:" + rootId +
+               ", lastId:" + lastId + ", freeListHead:" + freeListHead + ", valid:" + valid + "]";
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.index.internal.gbptree;
+
+/**
+ * Decides what happens when a key which is inserted, or merged, into a {@link GBPTree} meets an existing
+ * entry for that same key, or no entry at all.
+ *
+ * @param <VALUE> type of value
+ */
+public interface ValueMerger<VALUE>
+{
+    /**
+     * Merges {@code newValue} into {@code existingValue}.
+     *
+     * @param existingValue the value currently associated with the key, or {@code null} if there's no entry
+     * for the key.
+     * @param newValue the value given to the merge.
+     * @return the value to associate with the key, or {@code null} if the entry should be removed,
+     * or not added at all if there was none.
+     */
+    VALUE merge( VALUE existingValue, VALUE newValue );
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.index.internal.gbptree;
+
+/**
+ * Common {@link ValueMerger} implementations.
+ */
+public class ValueMergers
+{
+    private ValueMergers()
+    {
+    }
+
+    /**
+     * @return {@link ValueMerger} which always replaces any existing value with the new value.
+     */
+    @SuppressWarnings( "unchecked" )
+    public static <VALUE> ValueMerger<VALUE> overwrite()
+    {
+        return OVERWRITE;
+    }
+
+    /**
+     * @return {@link ValueMerger} which keeps any existing value and only adds the new value if there
+     * was no existing entry.
+     */
+    @SuppressWarnings( "unchecked" )
+    public static <VALUE> ValueMerger<VALUE> keepExisting()
+    {
+        return KEEP_EXISTING;
+    }
+
+    @SuppressWarnings( "rawtypes" )
+    private static final ValueMerger OVERWRITE = ( existingValue, newValue ) -> newValue;
+
+    @SuppressWarnings( "rawtypes" )
+    private static final ValueMerger KEEP_EXISTING =
+            ( existingValue, newValue ) -> existingValue != null ? existingValue : newValue;
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.index.internal.gbptree;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Able to {@link #merge(Object, Object, ValueMerger)} and {@link #remove(Object)} key/value pairs
+ * into a {@link GBPTree}. After all modifications have taken place the writer must be {@link #close() closed},
+ * typically using try-with-resource clause.
+ * <p>
+ * There can only be a single writer at any given point in time for a tree, other threads asking for a writer
+ * will wait for the current one to be closed.
+ *
+ * @param <KEY> type of keys
+ * @param <VALUE> type of values
+ */
+public interface Writer<KEY,VALUE> extends Closeable
+{
+    /**
+     * Associate given {@code key} with given {@code value}.
+     * Any existing {@code value} associated with {@code key} will be overwritten.
+     *
+     * @param key key to associate with value
+     * @param value value to associate with key
+     * @throws IOException on index access error.
+     */
+    void put( KEY key, VALUE value ) throws IOException;
+
+    /**
+     * If the {@code key} doesn't already exist in the index the {@code key} will be added and the {@code value}
+     * associated with it. If the {@code key} already exists then its existing {@code value} will be merged with
+     * the given {@code value}, using the {@link ValueMerger}. If the {@link ValueMerger} returns {@code null}
+     * the entry will be removed, or not added in the first place.
+     *
+     * @param key key for which to merge values.
+     * @param value value to merge with currently associated value for the {@code key}.
+     * @param valueMerger {@link ValueMerger} to consult if key already exists.
+     * @throws IOException on index access error.
+     */
+    void merge( KEY key, VALUE value, ValueMerger<VALUE> valueMerger ) throws IOException;
+
+    /**
+     * Removes the key and its associated value from the tree, if it exists.
+     *
+     * @param key key to remove.
+     * @return value which was associated with the removed key, if it existed, otherwise {@code null}.
+     * The returned instance is reused between calls.
+     * @throws IOException on index access error.
+     */
+    VALUE remove( KEY key ) throws IOException;
+}
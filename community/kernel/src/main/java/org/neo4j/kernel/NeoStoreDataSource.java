@@ -45,6 +45,7 @@ import org.neo4j.kernel.api.index.SchemaIndexProvider;
 import org.neo4j.kernel.api.labelscan.LabelScanStore;
 import org.neo4j.kernel.api.legacyindex.AutoIndexing;
 import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.extension.dependency.AllByPrioritySelectionStrategy;
 import org.neo4j.kernel.extension.dependency.HighestSelectionStrategy;
 import org.neo4j.kernel.guard.Guard;
 import org.neo4j.kernel.impl.api.CommitProcessFactory;
@@ -67,9 +68,11 @@ import org.neo4j.kernel.impl.api.TransactionCommitProcess;
 import org.neo4j.kernel.impl.api.TransactionHooks;
 import org.neo4j.kernel.impl.api.UpdateableSchemaState;
 import org.neo4j.kernel.impl.api.index.IndexingService;
+import org.neo4j.kernel.impl.api.index.SchemaIndexProviderMap;
 import org.neo4j.kernel.impl.api.operations.QueryRegistrationOperations;
 import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider;
 import org.neo4j.kernel.impl.api.state.ConstraintIndexCreator;
+import org.neo4j.kernel.impl.api.state.TxState;
 import org.neo4j.kernel.impl.constraints.ConstraintSemantics;
 import org.neo4j.kernel.impl.core.LabelTokenHolder;
 import org.neo4j.kernel.impl.core.PropertyKeyTokenHolder;
@@ -135,6 +138,7 @@ import org.neo4j.kernel.impl.transaction.log.pruning.LogPruning;
 import org.neo4j.kernel.impl.transaction.log.pruning.LogPruningImpl;
 import org.neo4j.kernel.impl.transaction.log.rotation.LogRotation;
 import org.neo4j.kernel.impl.transaction.log.rotation.LogRotationImpl;
+import org.neo4j.kernel.impl.transaction.state.DefaultSchemaIndexProviderMap;
 import org.neo4j.kernel.impl.transaction.state.NeoStoreFileListing;
 import org.neo4j.kernel.impl.util.Dependencies;
 import org.neo4j.kernel.impl.util.IdOrderingQueue;
@@ -295,6 +299,7 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
     private Dependencies dependencies;
     private LifeSupport life;
     private SchemaIndexProvider schemaIndexProvider;
+    private SchemaIndexProviderMap schemaIndexProviderMap;
     private File storeDir;
     private boolean readOnly;
     private final AccessCapability accessCapability;
@@ -421,8 +426,14 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
         dependencies = new Dependencies();
         life = new LifeSupport();
 
+        // The highest prioritized provider is used for new indexes, whereas the others are still available
+        // for indexes created with them previously
+        AllByPrioritySelectionStrategy<SchemaIndexProvider> indexProviderSelection =
+                new AllByPrioritySelectionStrategy<>();
         schemaIndexProvider = dependencyResolver.resolveDependency( SchemaIndexProvider.class,
-                HighestSelectionStrategy.getInstance() );
+                indexProviderSelection );
+        schemaIndexProviderMap = new DefaultSchemaIndexProviderMap( schemaIndexProvider,
+                indexProviderSelection.lowerPrioritizedCandidates() );
 
         IndexConfigStore indexConfigStore = new IndexConfigStore( storeDir, fs );
         dependencies.satisfyDependency( lockService );
@@ -583,7 +594,7 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
         RecordStorageEngine storageEngine = new RecordStorageEngine( storeDir, config, idGeneratorFactory,
                 eligibleForReuse, idTypeConfigurationProvider, pageCache, fs, logProvider, propertyKeyTokenHolder,
                 labelTokens, relationshipTypeTokens, schemaStateChangeCallback, constraintSemantics, scheduler,
-                tokenNameLookup, lockService, schemaIndexProvider, indexingServiceMonitor, databaseHealth,
+                tokenNameLookup, lockService, schemaIndexProviderMap, indexingServiceMonitor, databaseHealth,
                 labelScanStore, legacyIndexProviderLookup, indexConfigStore, legacyIndexTransactionOrdering,
                 transactionSnapshotSupplier );
 
@@ -648,7 +659,7 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
 
         final TransactionAppender appender = life.add( new BatchingTransactionAppender(
                 logFile, logRotation, transactionMetadataCache, transactionIdStore, legacyIndexTransactionOrdering,
-                databaseHealth ) );
+                databaseHealth, config.get( GraphDatabaseSettings.logical_log_compression ) ) );
         final LogicalTransactionStore logicalTransactionStore =
                 new PhysicalLogicalTransactionStore( logFile, transactionMetadataCache, logEntryReader );
 
@@ -780,11 +791,15 @@ public class NeoStoreDataSource implements Lifecycle, IndexProviders
                 buildStatementOperations( storeLayer, autoIndexing,
                         constraintIndexCreator, updateableSchemaState, guard, legacyIndexStore ) );
 
+        long txStateSpillThreshold = config.get( GraphDatabaseSettings.transaction_state_spill_threshold );
+        File txStateSpillDirectory = config.get( GraphDatabaseSettings.transaction_state_spill_directory );
+        Supplier<TxState> txStateSupplier = () -> new TxState( txStateSpillThreshold, txStateSpillDirectory );
+
         TransactionHooks hooks = new TransactionHooks();
         KernelTransactions kernelTransactions = life.add( new KernelTransactions( statementLocksFactory,
                 constraintIndexCreator, statementOperationContainer, schemaWriteGuard, transactionHeaderInformationFactory,
-                transactionCommitProcess, indexConfigStore, legacyIndexProviderLookup, hooks, transactionMonitor, life,
-                tracers, storageEngine, procedures, transactionIdStore, clock, accessCapability ) );
+                transactionCommitProcess, indexConfigStore, legacyIndexProviderLookup, txStateSupplier, hooks, transactionMonitor, life,
+                tracers, storageEngine, procedures, transactionIdStore, clock, accessCapability, logProvider ) );
 
         final Kernel kernel = new Kernel( kernelTransactions, hooks, databaseHealth, transactionMonitor, procedures,
                 config );
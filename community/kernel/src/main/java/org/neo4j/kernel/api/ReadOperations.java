@@ -139,6 +139,14 @@ public interface ReadOperations
     PrimitiveLongIterator nodesGetFromIndexRangeSeekByNumber( IndexDescriptor index, Number lower, boolean includeLower, Number upper, boolean includeUpper )
             throws IndexNotFoundKernelException;
 
+    /**
+     * Returns an iterator with the matched nodes, in ascending order of their property value.
+     *
+     * @throws org.neo4j.kernel.api.exceptions.index.IndexNotFoundKernelException if no such index found.
+     */
+    PrimitiveLongIterator nodesGetFromIndexOrderedRangeSeekByNumber( IndexDescriptor index, Number lower, boolean includeLower, Number upper, boolean includeUpper )
+            throws IndexNotFoundKernelException;
+
     /**
      * Returns an iterator with the matched nodes.
      *
@@ -322,6 +330,14 @@ public interface ReadOperations
     /** Calculate the index unique values percentage (range: {@code 0.0} exclusive to {@code 1.0} inclusive). */
     double indexUniqueValuesSelectivity( IndexDescriptor descriptor ) throws IndexNotFoundKernelException;
 
+    /**
+     * Estimate the fraction of index entries with a number value within the given range (range: {@code 0.0} to
+     * {@code 1.0} inclusive), or {@link Double#NaN} if there's no histogram for the index. {@code null} bounds
+     * leave that end of the range open.
+     */
+    double indexNumberRangeSelectivity( IndexDescriptor descriptor, Number lower, boolean includeLower,
+            Number upper, boolean includeUpper ) throws IndexNotFoundKernelException;
+
     /** Returns the failure description of a failed index. */
     String indexGetFailure( IndexDescriptor descriptor ) throws IndexNotFoundKernelException;
 
@@ -44,6 +44,12 @@ public class DelegatingIndexReader implements IndexReader
         return delegate.rangeSeekByNumberInclusive( lower, upper );
     }
 
+    @Override
+    public boolean hasOrderedNumberRangeSeeks()
+    {
+        return delegate.hasOrderedNumberRangeSeeks();
+    }
+
     @Override
     public PrimitiveLongIterator rangeSeekByString( String lower, boolean includeLower,
                                                     String upper, boolean includeUpper )
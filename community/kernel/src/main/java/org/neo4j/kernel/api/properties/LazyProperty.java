@@ -24,11 +24,23 @@ import java.util.concurrent.Callable;
 abstract class LazyProperty<T> extends DefinedProperty
 {
     private volatile Object value;
+    private final boolean retainValue;
 
     LazyProperty( int propertyKeyId, Callable<? extends T> producer )
+    {
+        this( propertyKeyId, producer, true );
+    }
+
+    /**
+     * @param retainValue whether or not to keep the produced value around after the first call to {@link #value()}.
+     * If {@code false} the producer is called again for every access, which keeps the memory footprint of this
+     * property down to that of the producer.
+     */
+    LazyProperty( int propertyKeyId, Callable<? extends T> producer, boolean retainValue )
     {
         super( propertyKeyId );
         this.value = producer;
+        this.retainValue = retainValue;
     }
 
     @Override
@@ -44,6 +56,10 @@ abstract class LazyProperty<T> extends DefinedProperty
     public final T value()
     {
         Object value = this.value;
+        if ( !retainValue )
+        {
+            return castAndPrepareForReturn( produceValue() );
+        }
         if ( value instanceof Callable<?> )
         {
             synchronized ( this )
@@ -28,6 +28,11 @@ class LazyStringProperty extends LazyProperty<String> implements DefinedProperty
         super( propertyKeyId, producer );
     }
 
+    LazyStringProperty( int propertyKeyId, Callable<String> producer, boolean retainValue )
+    {
+        super( propertyKeyId, producer, retainValue );
+    }
+
     @Override
     public boolean valueEquals( Object value )
     {
@@ -98,6 +98,15 @@ public abstract class Property implements StorageProperty
         return new LazyStringProperty( propertyKeyId, producer );
     }
 
+    /**
+     * Like {@link #lazyStringProperty(int, Callable)}, but the value is never cached in the returned property,
+     * the producer is instead called on every access.
+     */
+    public static DefinedProperty reloadingStringProperty( int propertyKeyId, Callable<String> producer )
+    {
+        return new LazyStringProperty( propertyKeyId, producer, false );
+    }
+
     public static DefinedProperty lazyArrayProperty( int propertyKeyId, Callable<Object> producer )
     {
         return new LazyArrayProperty( propertyKeyId, producer );
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.extension.dependency;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.neo4j.graphdb.DependencyResolver;
+import org.neo4j.helpers.collection.Iterables;
+
+/**
+ * Selects the candidate with highest priority (assumed to be compared by {@link Comparable}) to be returned
+ * from {@link #select(Class, Iterable)}, but also keeps the rest of the candidates around, available from
+ * {@link #lowerPrioritizedCandidates()}. This is useful when the highest prioritized candidate is the one
+ * to use by default, whereas the others may still be needed, e.g. for data they have created previously.
+ *
+ * @param <T> type of candidates
+ */
+public class AllByPrioritySelectionStrategy<T extends Comparable<T>> implements DependencyResolver.SelectionStrategy
+{
+    private List<T> lowerPrioritizedCandidates = Collections.emptyList();
+
+    @SuppressWarnings( "unchecked" )
+    @Override
+    public <R> R select( Class<R> type, Iterable<R> candidates ) throws IllegalArgumentException
+    {
+        List<T> all = (List<T>) Iterables.asList( candidates );
+        if ( all.isEmpty() )
+        {
+            throw new IllegalArgumentException( "Could not resolve dependency of type: " + type.getName() );
+        }
+        Collections.sort( all );
+        T highest = all.remove( all.size() - 1 );
+        lowerPrioritizedCandidates = new ArrayList<>( all );
+        return (R) highest;
+    }
+
+    /**
+     * @return all candidates except the selected one, from the most recent call to
+     * {@link #select(Class, Iterable)}.
+     */
+    public Iterable<T> lowerPrioritizedCandidates()
+    {
+        return lowerPrioritizedCandidates;
+    }
+}
@@ -284,6 +284,17 @@ public class ConstraintEnforcingEntityOperations implements EntityOperations, Sc
                 includeUpper );
     }
 
+    @Override
+    public PrimitiveLongIterator nodesGetFromIndexOrderedRangeSeekByNumber( KernelStatement statement,
+            IndexDescriptor index,
+            Number lower, boolean includeLower,
+            Number upper, boolean includeUpper )
+            throws IndexNotFoundKernelException
+    {
+        return entityReadOperations.nodesGetFromIndexOrderedRangeSeekByNumber( statement, index, lower, includeLower,
+                upper, includeUpper );
+    }
+
     @Override
     public PrimitiveLongIterator nodesGetFromIndexRangeSeekByString( KernelStatement statement,
             IndexDescriptor index,
@@ -189,6 +189,18 @@ public class GuardingStatementOperations implements
                 includeUpper );
     }
 
+    @Override
+    public PrimitiveLongIterator nodesGetFromIndexOrderedRangeSeekByNumber( KernelStatement statement,
+            IndexDescriptor index,
+            Number lower, boolean includeLower,
+            Number upper, boolean includeUpper )
+            throws IndexNotFoundKernelException
+    {
+        guard.check( statement );
+        return entityReadDelegate.nodesGetFromIndexOrderedRangeSeekByNumber( statement, index, lower, includeLower,
+                upper, includeUpper );
+    }
+
     @Override
     public PrimitiveLongIterator nodesGetFromIndexRangeSeekByString( KernelStatement statement,
             IndexDescriptor index,
@@ -19,6 +19,7 @@
  */
 package org.neo4j.kernel.impl.api;
 
+import java.io.UncheckedIOException;
 import java.time.Clock;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -59,6 +60,7 @@ import org.neo4j.kernel.impl.transaction.log.PhysicalTransactionRepresentation;
 import org.neo4j.kernel.impl.transaction.tracing.CommitEvent;
 import org.neo4j.kernel.impl.transaction.tracing.TransactionEvent;
 import org.neo4j.kernel.impl.transaction.tracing.TransactionTracer;
+import org.neo4j.logging.Log;
 import org.neo4j.storageengine.api.StorageCommand;
 import org.neo4j.storageengine.api.StorageEngine;
 import org.neo4j.storageengine.api.StorageStatement;
@@ -135,6 +137,7 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
     private final TransactionTracer tracer;
     private final Pool<KernelTransactionImplementation> pool;
     private final Supplier<LegacyIndexTransactionState> legacyIndexTxStateSupplier;
+    private final Supplier<TxState> txStateSupplier;
 
     // For committing
     private final TransactionHeaderInformationFactory headerInformationFactory;
@@ -142,10 +145,13 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
     private final TransactionMonitor transactionMonitor;
     private final StoreReadLayer storeLayer;
     private final Clock clock;
+    private final Log log;
 
     // State that needs to be reset between uses. Most of these should be cleared or released in #release(),
     // whereas others, such as timestamp or txId when transaction starts, even locks, needs to be set in #initialize().
     private TransactionState txState;
+    // Kept across reuses of this transaction instance, to not allocate new transaction state for every transaction
+    private TxState reusableTxState;
     private LegacyIndexTransactionState legacyIndexTransactionState;
     private TransactionWriteState writeState;
     private TransactionHooks.TransactionHooksState hooksState;
@@ -188,11 +194,13 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
                                             TransactionCommitProcess commitProcess,
                                             TransactionMonitor transactionMonitor,
                                             Supplier<LegacyIndexTransactionState> legacyIndexTxStateSupplier,
+                                            Supplier<TxState> txStateSupplier,
                                             Pool<KernelTransactionImplementation> pool,
                                             Clock clock,
                                             TransactionTracer tracer,
                                             StorageEngine storageEngine,
-                                            AccessCapability accessCapability )
+                                            AccessCapability accessCapability,
+                                            Log log )
     {
         this.operationContainer = operationContainer;
         this.schemaWriteGuard = schemaWriteGuard;
@@ -204,9 +212,11 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
         this.storeLayer = storageEngine.storeReadLayer();
         this.storageEngine = storageEngine;
         this.legacyIndexTxStateSupplier = legacyIndexTxStateSupplier;
+        this.txStateSupplier = txStateSupplier;
         this.pool = pool;
         this.clock = clock;
         this.tracer = tracer;
+        this.log = log;
         this.storageStatement = storeLayer.newStatement();
         this.currentStatement = new KernelStatement( this, this, storageStatement, procedures, accessCapability );
         this.userMetaData = Collections.emptyMap();
@@ -400,7 +410,11 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
         if ( txState == null )
         {
             transactionMonitor.upgradeToWriteTransaction();
-            txState = new TxState();
+            if ( reusableTxState == null )
+            {
+                reusableTxState = txStateSupplier.get();
+            }
+            txState = reusableTxState;
         }
         return txState;
     }
@@ -727,7 +741,21 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
             accessMode = null;
             transactionEvent = null;
             legacyIndexTransactionState = null;
-            txState = null;
+            if ( txState != null )
+            {
+                try
+                {
+                    reusableTxState.clear();
+                }
+                catch ( UncheckedIOException e )
+                {
+                    // The transaction is over at this point, failing to clean up its spill file mustn't fail it.
+                    // The state may be half cleared though, so the next transaction gets a fresh one instead.
+                    log.warn( "Failed to release spilled transaction state", e );
+                    reusableTxState = null;
+                }
+                txState = null;
+            }
             hooksState = null;
             currentTransactionOperations = null;
             closeListeners.clear();
@@ -36,6 +36,7 @@ import org.neo4j.kernel.api.security.AccessMode;
 import org.neo4j.kernel.api.txstate.LegacyIndexTransactionState;
 import org.neo4j.kernel.impl.api.state.ConstraintIndexCreator;
 import org.neo4j.kernel.impl.api.state.LegacyIndexTransactionStateImpl;
+import org.neo4j.kernel.impl.api.state.TxState;
 import org.neo4j.kernel.impl.factory.AccessCapability;
 import org.neo4j.kernel.impl.index.IndexConfigStore;
 import org.neo4j.kernel.impl.locking.StatementLocks;
@@ -48,6 +49,8 @@ import org.neo4j.kernel.impl.transaction.log.TransactionIdStore;
 import org.neo4j.kernel.lifecycle.LifeSupport;
 import org.neo4j.kernel.lifecycle.LifecycleAdapter;
 import org.neo4j.kernel.monitoring.tracing.Tracers;
+import org.neo4j.logging.Log;
+import org.neo4j.logging.LogProvider;
 import org.neo4j.storageengine.api.StorageEngine;
 
 import static java.util.Collections.newSetFromMap;
@@ -81,7 +84,9 @@ public class KernelTransactions extends LifecycleAdapter
     private final TransactionIdStore transactionIdStore;
     private final AccessCapability accessCapability;
     private final Supplier<LegacyIndexTransactionState> legacyIndexTxStateSupplier;
+    private final Supplier<TxState> txStateSupplier;
     private final Clock clock;
+    private final Log log;
     private final ReentrantReadWriteLock newTransactionsLock = new ReentrantReadWriteLock();
 
     // End Tx Dependencies
@@ -107,6 +112,7 @@ public class KernelTransactions extends LifecycleAdapter
                                TransactionCommitProcess transactionCommitProcess,
                                IndexConfigStore indexConfigStore,
                                LegacyIndexProviderLookup legacyIndexProviderLookup,
+                               Supplier<TxState> txStateSupplier,
                                TransactionHooks hooks,
                                TransactionMonitor transactionMonitor,
                                LifeSupport dataSourceLife,
@@ -114,7 +120,7 @@ public class KernelTransactions extends LifecycleAdapter
                                StorageEngine storageEngine,
                                Procedures procedures,
                                TransactionIdStore transactionIdStore,
-                               Clock clock, AccessCapability accessCapability )
+                               Clock clock, AccessCapability accessCapability, LogProvider logProvider )
     {
         this.statementLocksFactory = statementLocksFactory;
         this.constraintIndexCreator = constraintIndexCreator;
@@ -132,7 +138,9 @@ public class KernelTransactions extends LifecycleAdapter
         this.accessCapability = accessCapability;
         this.legacyIndexTxStateSupplier = () -> new CachingLegacyIndexTransactionState(
                 new LegacyIndexTransactionStateImpl( indexConfigStore, legacyIndexProviderLookup ) );
+        this.txStateSupplier = txStateSupplier;
         this.clock = clock;
+        this.log = logProvider.getLog( KernelTransactionImplementation.class );
     }
 
     /**
@@ -146,8 +154,8 @@ public class KernelTransactions extends LifecycleAdapter
             KernelTransactionImplementation tx = new KernelTransactionImplementation(
                     statementOperations, schemaWriteGuard, hooks, constraintIndexCreator, procedures,
                     transactionHeaderInformationFactory, transactionCommitProcess, transactionMonitor,
-                    legacyIndexTxStateSupplier, localTxPool, clock, tracers.transactionTracer,
-                    storageEngine, accessCapability );
+                    legacyIndexTxStateSupplier, txStateSupplier, localTxPool, clock, tracers.transactionTracer,
+                    storageEngine, accessCapability, log );
 
             allTransactions.add( tx );
             return tx;
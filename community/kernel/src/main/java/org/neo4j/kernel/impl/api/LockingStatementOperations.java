@@ -233,6 +233,16 @@ public class LockingStatementOperations implements
         return schemaReadDelegate.indexUniqueValuesPercentage( state, descriptor );
     }
 
+    @Override
+    public double indexNumberRangeSelectivity( KernelStatement state, IndexDescriptor descriptor, Number lower,
+            boolean includeLower, Number upper, boolean includeUpper ) throws IndexNotFoundKernelException
+    {
+        acquireSharedSchemaLock( state );
+        state.assertOpen();
+        return schemaReadDelegate.indexNumberRangeSelectivity( state, descriptor, lower, includeLower, upper,
+                includeUpper );
+    }
+
     @Override
     public Long indexGetOwningUniquenessConstraintId( KernelStatement state, IndexDescriptor index ) throws SchemaRuleNotFoundException
     {
@@ -229,6 +229,19 @@ public class OperationsFacade
                 includeUpper );
     }
 
+    @Override
+    public PrimitiveLongIterator nodesGetFromIndexOrderedRangeSeekByNumber( IndexDescriptor index,
+            Number lower,
+            boolean includeLower,
+            Number upper,
+            boolean includeUpper )
+            throws IndexNotFoundKernelException
+    {
+        statement.assertOpen();
+        return dataRead().nodesGetFromIndexOrderedRangeSeekByNumber( statement, index, lower, includeLower, upper,
+                includeUpper );
+    }
+
     @Override
     public PrimitiveLongIterator nodesGetFromIndexRangeSeekByString( IndexDescriptor index,
             String lower,
@@ -792,6 +805,15 @@ public class OperationsFacade
         return schemaRead().indexUniqueValuesPercentage( statement, descriptor );
     }
 
+    @Override
+    public double indexNumberRangeSelectivity( IndexDescriptor descriptor, Number lower, boolean includeLower,
+            Number upper, boolean includeUpper ) throws IndexNotFoundKernelException
+    {
+        statement.assertOpen();
+        return schemaRead().indexNumberRangeSelectivity( statement, descriptor, lower, includeLower, upper,
+                includeUpper );
+    }
+
     @Override
     public String indexGetFailure( IndexDescriptor descriptor ) throws IndexNotFoundKernelException
     {
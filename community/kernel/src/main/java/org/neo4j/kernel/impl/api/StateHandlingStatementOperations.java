@@ -19,7 +19,9 @@
  */
 package org.neo4j.kernel.impl.api;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Predicate;
 
@@ -808,6 +810,65 @@ public class StateHandlingStatementOperations implements
                 exactMatches );
     }
 
+    @Override
+    public PrimitiveLongIterator nodesGetFromIndexOrderedRangeSeekByNumber( KernelStatement state,
+            IndexDescriptor index,
+            Number lower, boolean includeLower,
+            Number upper, boolean includeUpper ) throws IndexNotFoundKernelException
+    {
+        PrimitiveLongIterator matches = nodesGetFromIndexRangeSeekByNumber( state, index, lower, includeLower,
+                upper, includeUpper );
+        // Changes in the transaction state are appended after the committed matches, so only a clean transaction
+        // over an index that seeks in value order can stream the result as it is.
+        if ( !state.hasTxStateWithChanges() &&
+             state.getStoreStatement().getIndexReader( index ).hasOrderedNumberRangeSeeks() )
+        {
+            return matches;
+        }
+        return sortByNumberProperty( state, index.getPropertyKeyId(), matches );
+    }
+
+    private PrimitiveLongIterator sortByNumberProperty( KernelStatement state, int propertyKeyId,
+            PrimitiveLongIterator nodeIds )
+    {
+        List<NumberPropertyOfNode> properties = new ArrayList<>();
+        while ( nodeIds.hasNext() )
+        {
+            long nodeId = nodeIds.next();
+            try ( Cursor<NodeItem> node = nodeCursor( state, nodeId ) )
+            {
+                if ( node.next() )
+                {
+                    Object value = node.get().getProperty( propertyKeyId );
+                    if ( value instanceof Number )
+                    {
+                        properties.add( new NumberPropertyOfNode( nodeId, (Number) value ) );
+                    }
+                }
+            }
+        }
+        properties.sort( ( left, right ) -> COMPARE_NUMBERS.compare( left.value, right.value ) );
+
+        long[] sorted = new long[properties.size()];
+        for ( int i = 0; i < sorted.length; i++ )
+        {
+            sorted[i] = properties.get( i ).nodeId;
+        }
+        return PrimitiveLongCollections.iterator( sorted );
+    }
+
+    private static class NumberPropertyOfNode
+    {
+        private final long nodeId;
+        private final Number value;
+
+        NumberPropertyOfNode( long nodeId, Number value )
+        {
+            this.nodeId = nodeId;
+            this.value = value;
+        }
+    }
+
     @Override
     public PrimitiveLongIterator nodesGetFromIndexRangeSeekByString( KernelStatement state, IndexDescriptor index,
             String lower, boolean includeLower,
@@ -1239,6 +1300,13 @@ public class StateHandlingStatementOperations implements
         return storeLayer.indexUniqueValuesPercentage( descriptor );
     }
 
+    @Override
+    public double indexNumberRangeSelectivity( KernelStatement statement, IndexDescriptor descriptor, Number lower,
+            boolean includeLower, Number upper, boolean includeUpper ) throws IndexNotFoundKernelException
+    {
+        return storeLayer.indexNumberRangeSelectivity( descriptor, lower, includeLower, upper, includeUpper );
+    }
+
     @Override
     public DoubleLongRegister indexUpdatesAndSize( KernelStatement statement, IndexDescriptor index,
             DoubleLongRegister target )
@@ -412,5 +412,11 @@ public class BatchingMultipleIndexPopulator extends MultipleIndexPopulator
         {
             return delegate.getProgress();
         }
+
+        @Override
+        public boolean isVisited( long nodeId, long currentlyVisitedNodeId )
+        {
+            return delegate.isVisited( nodeId, currentlyVisitedNodeId );
+        }
     }
 }
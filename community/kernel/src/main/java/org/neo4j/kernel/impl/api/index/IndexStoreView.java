@@ -30,6 +30,7 @@ import org.neo4j.kernel.api.index.PropertyAccessor;
 import org.neo4j.kernel.api.labelscan.NodeLabelUpdate;
 import org.neo4j.kernel.api.properties.Property;
 import org.neo4j.register.Register.DoubleLongRegister;
+import org.neo4j.storageengine.api.schema.IndexHistogram;
 import org.neo4j.storageengine.api.schema.PopulationProgress;
 
 /** The indexing services view of the universe. */
@@ -60,8 +61,22 @@ public interface IndexStoreView extends PropertyAccessor
 
     DoubleLongRegister indexSample( IndexDescriptor descriptor, DoubleLongRegister output );
 
+    /**
+     * Replaces the sampled counts of the given index. Also forgets any histogram of the index, since that
+     * would no longer match the counts.
+     */
     void replaceIndexCounts( IndexDescriptor descriptor, long uniqueElements, long maxUniqueElements, long indexSize );
 
+    /**
+     * Keeps the histogram from the latest sampling of the given index, until the index is sampled again.
+     */
+    void replaceIndexHistogram( IndexDescriptor descriptor, IndexHistogram histogram );
+
+    /**
+     * @return histogram from the latest sampling of the given index, or {@code null} if there is none.
+     */
+    IndexHistogram indexHistogram( IndexDescriptor descriptor );
+
     void incrementIndexUpdates( IndexDescriptor descriptor, long updatesDelta );
 
     StoreScan EMPTY_SCAN = new StoreScan()
@@ -105,6 +120,17 @@ public interface IndexStoreView extends PropertyAccessor
         {
         }
 
+        @Override
+        public void replaceIndexHistogram( IndexDescriptor descriptor, IndexHistogram histogram )
+        {
+        }
+
+        @Override
+        public IndexHistogram indexHistogram( IndexDescriptor descriptor )
+        {
+            return null;
+        }
+
         @Override
         public void nodeAsUpdates( long nodeId, Collection<NodePropertyUpdate> target )
         {
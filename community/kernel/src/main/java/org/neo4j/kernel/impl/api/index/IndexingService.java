@@ -60,6 +60,7 @@ import org.neo4j.logging.Log;
 import org.neo4j.logging.LogProvider;
 import org.neo4j.register.Register.DoubleLongRegister;
 import org.neo4j.register.Registers;
+import org.neo4j.storageengine.api.schema.IndexHistogram;
 
 import static java.lang.String.format;
 import static java.util.concurrent.TimeUnit.MINUTES;
@@ -391,6 +392,33 @@ public class IndexingService extends LifecycleAdapter
         }
     }
 
+    /**
+     * Estimates the fraction of entries in the given index that have a numeric value within the given range,
+     * using the histogram from the latest sampling of the index. A {@code null} bound leaves that end of the range
+     * open. Returns {@link Double#NaN} if no histogram is available for the index.
+     */
+    public double indexNumberRangeSelectivity( IndexDescriptor descriptor, Number lower, boolean includeLower,
+            Number upper, boolean includeUpper ) throws IndexNotFoundKernelException
+    {
+        final IndexProxy indexProxy = indexMapRef.getOnlineIndexProxy( descriptor );
+        IndexHistogram histogram = storeView.indexHistogram( indexProxy.getDescriptor() );
+        if ( histogram == null )
+        {
+            return Double.NaN;
+        }
+        final DoubleLongRegister output = Registers.newDoubleLongRegister();
+        storeView.indexUpdatesAndSize( indexProxy.getDescriptor(), output );
+        long size = Math.max( output.readSecond(), histogram.totalCount() );
+        if ( size == 0 )
+        {
+            return 0d;
+        }
+        double estimate = histogram.estimateCount(
+                lower == null ? Double.NEGATIVE_INFINITY : lower.doubleValue(), includeLower,
+                upper == null ? Double.POSITIVE_INFINITY : upper.doubleValue(), includeUpper );
+        return Math.min( 1d, estimate / size );
+    }
+
     /**
      * Applies updates from the given {@link IndexUpdates}, which may contain updates for one or more indexes.
      * As long as index updates are derived from physical commands and store state there's special treatment
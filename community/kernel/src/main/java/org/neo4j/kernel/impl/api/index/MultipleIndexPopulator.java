@@ -94,6 +94,9 @@ public class MultipleIndexPopulator implements IndexPopulator
     private final LogProvider logProvider;
     protected final Log log;
 
+    // The scan started by #indexAllNodes, which knows what nodes it has visited when draining the queue.
+    private volatile StoreScan<IndexPopulationFailedKernelException> storeScan;
+
     public MultipleIndexPopulator( IndexStoreView storeView, LogProvider logProvider )
     {
         this.storeView = storeView;
@@ -156,7 +159,8 @@ public class MultipleIndexPopulator implements IndexPopulator
         IntPredicate labelIdFilter = (labelId) -> contains( labelIds, labelId );
         IntPredicate propertyKeyIdFilter = (propertyKeyId) -> contains( propertyKeyIds, propertyKeyId );
 
-        return storeView.visitNodes( labelIdFilter, propertyKeyIdFilter, new NodePopulationVisitor(), null );
+        storeScan = storeView.visitNodes( labelIdFilter, propertyKeyIdFilter, new NodePopulationVisitor(), null );
+        return storeScan;
     }
 
     /**
@@ -327,7 +331,7 @@ public class MultipleIndexPopulator implements IndexPopulator
                     // no need to check for null as nobody else is emptying this queue
                     NodePropertyUpdate update = queue.poll();
                     // TODO: We see updates twice here from IndexStatisticsTest
-                    if ( update.getNodeId() <= currentlyIndexedNodeId )
+                    if ( isVisited( update.getNodeId(), currentlyIndexedNodeId ) )
                     {
                         updater.process( update );
                     }
@@ -337,6 +341,12 @@ public class MultipleIndexPopulator implements IndexPopulator
         }
     }
 
+    private boolean isVisited( long nodeId, long currentlyIndexedNodeId )
+    {
+        StoreScan<IndexPopulationFailedKernelException> scan = storeScan;
+        return scan == null ? nodeId <= currentlyIndexedNodeId : scan.isVisited( nodeId, currentlyIndexedNodeId );
+    }
+
     private void forEachPopulation( ThrowingConsumer<IndexPopulation,Exception> action )
     {
         for ( IndexPopulation population : populations )
@@ -502,6 +512,10 @@ public class MultipleIndexPopulator implements IndexPopulator
                 IndexSample sample = populator.sampleResult();
                 storeView.replaceIndexCounts( descriptor, sample.uniqueValues(), sample.sampleSize(),
                         sample.indexSize() );
+                if ( sample.histogram() != null )
+                {
+                    storeView.replaceIndexHistogram( descriptor, sample.histogram() );
+                }
 
                 populator.close( true );
                 return null;
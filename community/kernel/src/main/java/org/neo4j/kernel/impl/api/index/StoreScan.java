@@ -28,4 +28,18 @@ public interface StoreScan<FAILURE extends Exception>
     void stop();
 
     PopulationProgress getProgress();
+
+    /**
+     * Tells whether the node with the given id has already been visited by this scan, which means that changes made to
+     * it from now on will not be seen by the scan. Scans that visit nodes in order of ascending id only need to compare
+     * the id to the id of the node currently being visited.
+     *
+     * @param nodeId id of the node to check.
+     * @param currentlyVisitedNodeId id of the node currently being visited by the scan.
+     * @return {@code true} if the node has been visited, otherwise {@code false}.
+     */
+    default boolean isVisited( long nodeId, long currentlyVisitedNodeId )
+    {
+        return nodeId <= currentlyVisitedNodeId;
+    }
 }
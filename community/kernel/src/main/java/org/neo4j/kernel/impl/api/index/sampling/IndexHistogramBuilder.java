@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api.index.sampling;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+import org.neo4j.storageengine.api.schema.IndexHistogram;
+
+/**
+ * Builds an {@link IndexHistogram} from numeric values fed in ascending order, as they come out of an ordered
+ * index scan, using memory bounded by the number of buckets and common values regardless of the index size.
+ * <p>
+ * Since the number of entries isn't known up front, buckets start out holding a single entry each and whenever
+ * there are twice as many buckets as wanted, neighbouring buckets are merged and the target depth doubled.
+ * The resulting buckets are therefore equi-depth within a factor of two.
+ */
+public class IndexHistogramBuilder
+{
+    public static final int DEFAULT_NUMBER_OF_BUCKETS = 64;
+    public static final int DEFAULT_NUMBER_OF_COMMON_VALUES = 16;
+
+    private final int numberOfBuckets;
+    private final int numberOfCommonValues;
+
+    private final double[] upperBounds;
+    private final long[] bucketCounts;
+    private final long[] bucketDistinctValues;
+    private int closedBuckets;
+    private long depth = 1;
+
+    private long currentCount;
+    private long currentDistinctValues;
+    private double currentUpperBound;
+
+    private boolean empty = true;
+    private double lowestValue;
+    private double previousValue;
+
+    private final PriorityQueue<CommonValue> commonValues;
+
+    public IndexHistogramBuilder()
+    {
+        this( DEFAULT_NUMBER_OF_BUCKETS, DEFAULT_NUMBER_OF_COMMON_VALUES );
+    }
+
+    public IndexHistogramBuilder( int numberOfBuckets, int numberOfCommonValues )
+    {
+        assert numberOfBuckets > 0 && numberOfCommonValues >= 0;
+        this.numberOfBuckets = numberOfBuckets;
+        this.numberOfCommonValues = numberOfCommonValues;
+        this.upperBounds = new double[numberOfBuckets * 2];
+        this.bucketCounts = new long[numberOfBuckets * 2];
+        this.bucketDistinctValues = new long[numberOfBuckets * 2];
+        this.commonValues = new PriorityQueue<>( numberOfCommonValues + 1 );
+    }
+
+    /**
+     * Adds {@code count} entries of {@code value}. Values must be added in ascending order, each distinct value once.
+     * NaN values are ignored since they can't be part of a range.
+     */
+    public void include( double value, long count )
+    {
+        assert count > 0;
+        if ( Double.isNaN( value ) )
+        {
+            return;
+        }
+        if ( empty )
+        {
+            lowestValue = value;
+            empty = false;
+        }
+        else if ( value <= previousValue )
+        {
+            throw new IllegalArgumentException(
+                    "Values must be included in ascending order, but got " + value + " after " + previousValue );
+        }
+        previousValue = value;
+
+        currentCount += count;
+        currentDistinctValues++;
+        currentUpperBound = value;
+        if ( currentCount >= depth )
+        {
+            closeCurrentBucket();
+        }
+
+        if ( numberOfCommonValues > 0 && count > 1 )
+        {
+            commonValues.add( new CommonValue( value, count ) );
+            if ( commonValues.size() > numberOfCommonValues )
+            {
+                commonValues.poll();
+            }
+        }
+    }
+
+    /**
+     * @return the histogram of all values included so far, or {@code null} if no values were included.
+     */
+    public IndexHistogram build()
+    {
+        if ( empty )
+        {
+            return null;
+        }
+        if ( currentDistinctValues > 0 )
+        {
+            closeCurrentBucket();
+        }
+
+        double[] bounds = Arrays.copyOf( upperBounds, closedBuckets );
+        long[] counts = Arrays.copyOf( bucketCounts, closedBuckets );
+        long[] distinctValues = Arrays.copyOf( bucketDistinctValues, closedBuckets );
+
+        CommonValue[] common = commonValues.toArray( new CommonValue[commonValues.size()] );
+        Arrays.sort( common, ( a, b ) -> Double.compare( a.value, b.value ) );
+        double[] commonValueArray = new double[common.length];
+        long[] commonCounts = new long[common.length];
+        for ( int i = 0; i < common.length; i++ )
+        {
+            commonValueArray[i] = common[i].value;
+            commonCounts[i] = common[i].count;
+
+            // common values are accounted for separately, so take them out of the bucket they fell into
+            int bucket = Arrays.binarySearch( bounds, common[i].value );
+            bucket = bucket >= 0 ? bucket : -bucket - 1;
+            counts[bucket] -= common[i].count;
+            distinctValues[bucket]--;
+        }
+        return new IndexHistogram( lowestValue, bounds, counts, distinctValues, commonValueArray, commonCounts );
+    }
+
+    private void closeCurrentBucket()
+    {
+        upperBounds[closedBuckets] = currentUpperBound;
+        bucketCounts[closedBuckets] = currentCount;
+        bucketDistinctValues[closedBuckets] = currentDistinctValues;
+        closedBuckets++;
+        currentCount = 0;
+        currentDistinctValues = 0;
+
+        if ( closedBuckets == upperBounds.length )
+        {
+            mergeNeighbouringBuckets();
+        }
+    }
+
+    private void mergeNeighbouringBuckets()
+    {
+        for ( int i = 0; i < numberOfBuckets; i++ )
+        {
+            int first = i * 2;
+            int second = first + 1;
+            upperBounds[i] = upperBounds[second];
+            bucketCounts[i] = bucketCounts[first] + bucketCounts[second];
+            bucketDistinctValues[i] = bucketDistinctValues[first] + bucketDistinctValues[second];
+        }
+        closedBuckets = numberOfBuckets;
+        depth *= 2;
+    }
+
+    private static class CommonValue implements Comparable<CommonValue>
+    {
+        private final double value;
+        private final long count;
+
+        CommonValue( double value, long count )
+        {
+            this.value = value;
+            this.count = count;
+        }
+
+        @Override
+        public int compareTo( CommonValue o )
+        {
+            return Long.compare( count, o.count );
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api.index.sampling;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.kernel.api.index.IndexDescriptor;
+import org.neo4j.kernel.impl.store.MetaDataStore;
+import org.neo4j.storageengine.api.schema.IndexHistogram;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Keeps the histograms from the latest sampling of each index, in a file next to the counts store so that they
+ * survive a restart without sampling the indexes again. The file is small, a few hundred values per index, and
+ * only changes when an index is sampled, so it's simply written anew, to a temporary file renamed over the old one,
+ * every time a histogram changes.
+ * <p>
+ * Histograms are statistics only, so a missing or unreadable file just means no histograms until the indexes are
+ * sampled again.
+ */
+public class IndexHistogramStore
+{
+    public static final String FILE_NAME = MetaDataStore.DEFAULT_NAME + ".indexhistograms.db";
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final FileSystemAbstraction fs;
+    private final File file;
+    private final File tempFile;
+    private final Map<IndexDescriptor,IndexHistogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * Histograms only kept in memory, for when there's no store to keep them in, or it's only read.
+     */
+    public IndexHistogramStore()
+    {
+        this.fs = null;
+        this.file = null;
+        this.tempFile = null;
+    }
+
+    public IndexHistogramStore( FileSystemAbstraction fs, File storeDir )
+    {
+        this.fs = fs;
+        this.file = new File( storeDir, FILE_NAME );
+        this.tempFile = new File( storeDir, FILE_NAME + ".tmp" );
+        load();
+    }
+
+    /**
+     * @return histogram from the latest sampling of the given index, or {@code null} if there is none.
+     */
+    public IndexHistogram get( IndexDescriptor descriptor )
+    {
+        return histograms.get( descriptor );
+    }
+
+    /**
+     * Replaces the histogram of the given index, or removes it if {@code histogram} is {@code null}.
+     */
+    public synchronized void replace( IndexDescriptor descriptor, IndexHistogram histogram )
+    {
+        IndexHistogram previous = histogram == null ? histograms.remove( descriptor )
+                                                    : histograms.put( descriptor, histogram );
+        if ( previous != null || histogram != null )
+        {
+            write();
+        }
+    }
+
+    private void load()
+    {
+        if ( !fs.fileExists( file ) )
+        {
+            return;
+        }
+        try ( InputStream stream = fs.openAsInputStream( file );
+              DataInputStream in = new DataInputStream( new BufferedInputStream( stream ) ) )
+        {
+            if ( in.readInt() != FORMAT_VERSION )
+            {
+                return;
+            }
+            int count = in.readInt();
+            for ( int i = 0; i < count; i++ )
+            {
+                IndexDescriptor descriptor = new IndexDescriptor( in.readInt(), in.readInt() );
+                histograms.put( descriptor, IndexHistogram.read( in ) );
+            }
+        }
+        catch ( IOException e )
+        {
+            // a truncated or otherwise broken file is as good as none, the next sampling writes a new one
+            histograms.clear();
+        }
+    }
+
+    private void write()
+    {
+        if ( file == null )
+        {
+            return;
+        }
+        try
+        {
+            try ( OutputStream stream = fs.openAsOutputStream( tempFile, false );
+                  DataOutputStream out = new DataOutputStream( new BufferedOutputStream( stream ) ) )
+            {
+                out.writeInt( FORMAT_VERSION );
+                out.writeInt( histograms.size() );
+                for ( Map.Entry<IndexDescriptor,IndexHistogram> entry : histograms.entrySet() )
+                {
+                    out.writeInt( entry.getKey().getLabelId() );
+                    out.writeInt( entry.getKey().getPropertyKeyId() );
+                    entry.getValue().write( out );
+                }
+            }
+            fs.renameFile( tempFile, file, REPLACE_EXISTING );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( "Unable to write index histograms to " + file, e );
+        }
+    }
+}
@@ -76,6 +76,10 @@ class OnlineIndexSamplingJob implements IndexSamplingJob
                     {
                         storeView.replaceIndexCounts( indexDescriptor, sample.uniqueValues(), sample.sampleSize(),
                                 sample.indexSize() );
+                        if ( sample.histogram() != null )
+                        {
+                            storeView.replaceIndexHistogram( indexDescriptor, sample.histogram() );
+                        }
                         durationLogger.markAsFinished();
                         log.info(
                                 format( "Sampled index %s with %d unique values in sample of avg size %d taken from " +
@@ -60,6 +60,19 @@ public interface EntityReadOperations
             boolean includeUpper )
             throws IndexNotFoundKernelException;
 
+    /**
+     * Returns an iterable with the matched nodes, in ascending order of their property value.
+     *
+     * @throws IndexNotFoundKernelException if no such index found.
+     */
+    PrimitiveLongIterator nodesGetFromIndexOrderedRangeSeekByNumber( KernelStatement state,
+            IndexDescriptor index,
+            Number lower,
+            boolean includeLower,
+            Number upper,
+            boolean includeUpper )
+            throws IndexNotFoundKernelException;
+
     /**
      * Returns an iterable with the matched nodes.
      *
@@ -82,6 +82,12 @@ public interface SchemaReadOperations
      **/
     double indexUniqueValuesPercentage( KernelStatement state, IndexDescriptor descriptor ) throws IndexNotFoundKernelException;
 
+    /**
+     * Estimate the fraction of index entries with a number value within the given range.
+     **/
+    double indexNumberRangeSelectivity( KernelStatement state, IndexDescriptor descriptor, Number lower,
+            boolean includeLower, Number upper, boolean includeUpper ) throws IndexNotFoundKernelException;
+
     /**
      * Returns the failure description of a failed index.
      */
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api.state;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.neo4j.kernel.api.properties.DefinedProperty;
+import org.neo4j.kernel.api.properties.Property;
+import org.neo4j.storageengine.api.StorageProperty;
+
+import static java.nio.file.StandardOpenOption.DELETE_ON_CLOSE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Keeps string property values of a transaction in a temporary file instead of on the heap. Values are appended
+ * to the file and the properties handed out read their value back from the file every time it's asked for,
+ * so that the heap only holds the position and length of each value.
+ * <p>
+ * The file is created on the first spilled value and deleted on {@link #close()} at the latest, after which
+ * properties previously handed out can no longer be read.
+ */
+final class SpilledPropertyValues implements AutoCloseable
+{
+    private final File directory;
+    private FileChannel channel;
+    private long position;
+    private final Set<StorageProperty> spilled = Collections.newSetFromMap( new IdentityHashMap<>() );
+
+    /**
+     * @param directory directory to create the spill file in, or {@code null} for the default temporary directory.
+     */
+    SpilledPropertyValues( File directory )
+    {
+        this.directory = directory;
+    }
+
+    DefinedProperty spill( int propertyKeyId, String value ) throws IOException
+    {
+        FileChannel channel = channel();
+        int length = value.length();
+        ByteBuffer buffer = ByteBuffer.allocate( length * 2 );
+        buffer.asCharBuffer().put( value );
+        long start = position;
+        while ( buffer.hasRemaining() )
+        {
+            position += channel.write( buffer, position );
+        }
+        DefinedProperty property =
+                Property.reloadingStringProperty( propertyKeyId, () -> read( channel, start, length ) );
+        spilled.add( property );
+        return property;
+    }
+
+    /**
+     * @return whether or not the given property was handed out by {@link #spill(int, String)}.
+     */
+    boolean isSpilled( StorageProperty property )
+    {
+        return spilled.contains( property );
+    }
+
+    private static String read( FileChannel channel, long position, int length ) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( length * 2 );
+        while ( buffer.hasRemaining() )
+        {
+            if ( channel.read( buffer, position + buffer.position() ) == -1 )
+            {
+                throw new IOException( "Unexpected end of spill file at position " + (position + buffer.position()) );
+            }
+        }
+        buffer.flip();
+        return buffer.asCharBuffer().toString();
+    }
+
+    private FileChannel channel() throws IOException
+    {
+        if ( channel == null )
+        {
+            Path file = directory == null
+                        ? Files.createTempFile( "neo4j-tx-state", ".spill" )
+                        : Files.createTempFile( directory.toPath(), "neo4j-tx-state", ".spill" );
+            channel = FileChannel.open( file, READ, WRITE, DELETE_ON_CLOSE );
+            position = 0;
+        }
+        return channel;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if ( channel != null )
+        {
+            try
+            {
+                channel.close();
+            }
+            finally
+            {
+                channel = null;
+                spilled.clear();
+            }
+        }
+    }
+}
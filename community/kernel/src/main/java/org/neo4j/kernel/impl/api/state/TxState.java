@@ -19,6 +19,9 @@
  */
 package org.neo4j.kernel.impl.api.state;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -30,6 +33,7 @@ import org.neo4j.collection.primitive.Primitive;
 import org.neo4j.collection.primitive.PrimitiveIntIterator;
 import org.neo4j.collection.primitive.PrimitiveIntObjectMap;
 import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.collection.primitive.PrimitiveLongObjectMap;
 import org.neo4j.collection.primitive.PrimitiveLongSet;
 import org.neo4j.cursor.Cursor;
 import org.neo4j.helpers.collection.Iterables;
@@ -93,55 +97,55 @@ import static org.neo4j.kernel.impl.api.PropertyValueComparison.SuperType.STRING
  */
 public final class TxState implements TransactionState, RelationshipVisitor.Home
 {
-    private Map<Integer/*Label ID*/, LabelState.Mutable> labelStatesMap;
+    private PrimitiveLongObjectMap<LabelState.Mutable> labelStatesMap; // keyed by label id
     private static final LabelState.Defaults LABEL_STATE = new LabelState.Defaults()
     {
         @Override
-        Map<Integer, LabelState.Mutable> getMap( TxState state )
+        PrimitiveLongObjectMap<LabelState.Mutable> getMap( TxState state )
         {
             return state.labelStatesMap;
         }
 
         @Override
-        void setMap( TxState state, Map<Integer, LabelState.Mutable> map )
+        void setMap( TxState state, PrimitiveLongObjectMap<LabelState.Mutable> map )
         {
             state.labelStatesMap = map;
         }
     };
-    private Map<Long/*Node ID*/, NodeStateImpl> nodeStatesMap;
+    private PrimitiveLongObjectMap<NodeStateImpl> nodeStatesMap; // keyed by node id
     private static final NodeStateImpl.Defaults NODE_STATE = new NodeStateImpl.Defaults()
     {
         @Override
-        Map<Long, NodeStateImpl> getMap( TxState state )
+        PrimitiveLongObjectMap<NodeStateImpl> getMap( TxState state )
         {
             return state.nodeStatesMap;
         }
 
         @Override
-        void setMap( TxState state, Map<Long, NodeStateImpl> map )
+        void setMap( TxState state, PrimitiveLongObjectMap<NodeStateImpl> map )
         {
             state.nodeStatesMap = map;
         }
     };
-    private Map<Long/*Relationship ID*/, RelationshipStateImpl> relationshipStatesMap;
+    private PrimitiveLongObjectMap<RelationshipStateImpl> relationshipStatesMap; // keyed by relationship id
     private static final RelationshipStateImpl.Defaults RELATIONSHIP_STATE = new RelationshipStateImpl.Defaults()
     {
         @Override
-        Map<Long, RelationshipStateImpl> getMap( TxState state )
+        PrimitiveLongObjectMap<RelationshipStateImpl> getMap( TxState state )
         {
             return state.relationshipStatesMap;
         }
 
         @Override
-        void setMap( TxState state, Map<Long, RelationshipStateImpl> map )
+        void setMap( TxState state, PrimitiveLongObjectMap<RelationshipStateImpl> map )
         {
             state.relationshipStatesMap = map;
         }
     };
 
-    private Map<Integer/*Token ID*/, String> createdLabelTokens;
-    private Map<Integer/*Token ID*/, String> createdPropertyKeyTokens;
-    private Map<Integer/*Token ID*/, String> createdRelationshipTypeTokens;
+    private PrimitiveIntObjectMap<String> createdLabelTokens;
+    private PrimitiveIntObjectMap<String> createdPropertyKeyTokens;
+    private PrimitiveIntObjectMap<String> createdRelationshipTypeTokens;
 
     private GraphState graphState;
     private DiffSets<IndexDescriptor> indexChanges;
@@ -180,8 +184,30 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
 
     private boolean hasChanges, hasDataChanges;
 
+    /**
+     * String property values shorter than this are never spilled, their on-disk bookkeeping wouldn't pay off.
+     */
+    static final int MIN_SPILLED_STRING_LENGTH = 64;
+    private final long spillThreshold;
+    private final File spillDirectory;
+    private SpilledPropertyValues spilledPropertyValues;
+    private long propertyBytesInMemory;
+
     public TxState()
     {
+        this( 0, null );
+    }
+
+    /**
+     * @param spillThreshold number of bytes of string property values to keep in memory before further large
+     * string values are spilled to disk, or {@code 0} for never spilling.
+     * @param spillDirectory directory to spill property values to, or {@code null} for the default temporary
+     * directory.
+     */
+    public TxState( long spillThreshold, File spillDirectory )
+    {
+        this.spillThreshold = spillThreshold;
+        this.spillDirectory = spillDirectory;
         singleNodeCursor = new InstanceCache<TxSingleNodeCursor>()
         {
             @Override
@@ -249,6 +275,51 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
         };
     }
 
+    /**
+     * Forgets all changes, making this instance ready to be used by another transaction. Collections holding
+     * changes are dropped rather than cleared, so that the state of one large transaction doesn't stay around
+     * for the lifetime of this instance. The cursor caches, which are allocated up front, are kept.
+     */
+    public void clear()
+    {
+        labelStatesMap = null;
+        nodeStatesMap = null;
+        relationshipStatesMap = null;
+        createdLabelTokens = null;
+        createdPropertyKeyTokens = null;
+        createdRelationshipTypeTokens = null;
+        graphState = null;
+        indexChanges = null;
+        constraintIndexChanges = null;
+        constraintsChanges = null;
+        propertyChangesForNodes = null;
+        nodes = null;
+        relationships = null;
+        nodesDeletedInTx = null;
+        relationshipsDeletedInTx = null;
+        createdConstraintIndexesByConstraint = null;
+        indexUpdates = null;
+        relationshipConstraintChanges = null;
+        hasChanges = false;
+        hasDataChanges = false;
+        propertyBytesInMemory = 0;
+        if ( spilledPropertyValues != null )
+        {
+            try
+            {
+                spilledPropertyValues.close();
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+            finally
+            {
+                spilledPropertyValues = null;
+            }
+        }
+    }
+
     @Override
     public void accept( final TxStateVisitor visitor )
             throws ConstraintValidationKernelException, CreateConstraintFailureException
@@ -306,26 +377,29 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
 
         if ( createdLabelTokens != null )
         {
-            for ( Map.Entry<Integer, String> entry : createdLabelTokens.entrySet() )
+            createdLabelTokens.visitEntries( ( id, name ) ->
             {
-                visitor.visitCreatedLabelToken( entry.getValue(), entry.getKey() );
-            }
+                visitor.visitCreatedLabelToken( name, id );
+                return false;
+            } );
         }
 
         if ( createdPropertyKeyTokens != null )
         {
-            for ( Map.Entry<Integer, String> entry : createdPropertyKeyTokens.entrySet() )
+            createdPropertyKeyTokens.visitEntries( ( id, name ) ->
             {
-                visitor.visitCreatedPropertyKeyToken( entry.getValue(), entry.getKey() );
-            }
+                visitor.visitCreatedPropertyKeyToken( name, id );
+                return false;
+            } );
         }
 
         if ( createdRelationshipTypeTokens != null )
         {
-            for ( Map.Entry<Integer, String> entry : createdRelationshipTypeTokens.entrySet() )
+            createdRelationshipTypeTokens.visitEntries( ( id, name ) ->
             {
-                visitor.visitCreatedRelationshipTypeToken( entry.getValue(), entry.getKey() );
-            }
+                visitor.visitCreatedRelationshipTypeToken( name, id );
+                return false;
+            } );
         }
     }
 
@@ -582,6 +656,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
                     getOrCreateLabelStateNodeDiffSets( label ).remove( nodeId );
                 }
                 nodeState.clearIndexDiffs( nodeId );
+                releaseProperties( nodeState );
                 nodeState.clear();
             }
         }
@@ -643,6 +718,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
             RelationshipStateImpl removed = relationshipStatesMap.remove( id );
             if ( removed != null )
             {
+                releaseProperties( removed );
                 removed.clear();
             }
         }
@@ -672,17 +748,27 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     @Override
     public void nodeDoReplaceProperty( long nodeId, Property replacedProperty, DefinedProperty newProperty )
     {
+        releaseProperty( nodeState( nodeId ), newProperty.propertyKeyId() );
+        DefinedProperty property = spillIfNeeded( newProperty );
+        // Spilled values aren't indexed by value, since that would keep them in memory anyway
+        boolean spilled = property != newProperty;
         if ( replacedProperty.isDefined() )
         {
-            getOrCreateNodeState( nodeId ).changeProperty( newProperty );
-            nodePropertyChanges().changeProperty( nodeId, replacedProperty.propertyKeyId(),
-                    ((DefinedProperty) replacedProperty).value(), newProperty.value() );
+            getOrCreateNodeState( nodeId ).changeProperty( property );
+            if ( !spilled )
+            {
+                nodePropertyChanges().changeProperty( nodeId, replacedProperty.propertyKeyId(),
+                        ((DefinedProperty) replacedProperty).value(), newProperty.value() );
+            }
         }
         else
         {
             NodeStateImpl nodeState = getOrCreateNodeState( nodeId );
-            nodeState.addProperty( newProperty );
-            nodePropertyChanges().addProperty( nodeId, newProperty.propertyKeyId(), newProperty.value() );
+            nodeState.addProperty( property );
+            if ( !spilled )
+            {
+                nodePropertyChanges().addProperty( nodeId, newProperty.propertyKeyId(), newProperty.value() );
+            }
         }
         dataChanged();
     }
@@ -692,13 +778,15 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
             Property replacedProperty,
             DefinedProperty newProperty )
     {
+        releaseProperty( relationshipState( relationshipId ), newProperty.propertyKeyId() );
+        DefinedProperty property = spillIfNeeded( newProperty );
         if ( replacedProperty.isDefined() )
         {
-            getOrCreateRelationshipState( relationshipId ).changeProperty( newProperty );
+            getOrCreateRelationshipState( relationshipId ).changeProperty( property );
         }
         else
         {
-            getOrCreateRelationshipState( relationshipId ).addProperty( newProperty );
+            getOrCreateRelationshipState( relationshipId ).addProperty( property );
         }
         dataChanged();
     }
@@ -706,20 +794,106 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     @Override
     public void graphDoReplaceProperty( Property replacedProperty, DefinedProperty newProperty )
     {
+        releaseProperty( graphState, newProperty.propertyKeyId() );
+        DefinedProperty property = spillIfNeeded( newProperty );
         if ( replacedProperty.isDefined() )
         {
-            getOrCreateGraphState().changeProperty( newProperty );
+            getOrCreateGraphState().changeProperty( property );
         }
         else
         {
-            getOrCreateGraphState().addProperty( newProperty );
+            getOrCreateGraphState().addProperty( property );
         }
         dataChanged();
     }
 
+    /**
+     * Keeps track of how much string property data this transaction holds on to and, once that exceeds the
+     * spill threshold, swaps large string values for properties which read their value from disk.
+     *
+     * @return the given property, or a spilled replacement for it.
+     */
+    private DefinedProperty spillIfNeeded( DefinedProperty property )
+    {
+        if ( spillThreshold <= 0 || !(property instanceof DefinedProperty.WithStringValue) )
+        {
+            return property;
+        }
+        String value = ((DefinedProperty.WithStringValue) property).stringValue();
+        propertyBytesInMemory += 2L * value.length();
+        if ( propertyBytesInMemory <= spillThreshold || value.length() < MIN_SPILLED_STRING_LENGTH )
+        {
+            return property;
+        }
+
+        if ( spilledPropertyValues == null )
+        {
+            spilledPropertyValues = new SpilledPropertyValues( spillDirectory );
+        }
+        try
+        {
+            DefinedProperty spilled = spilledPropertyValues.spill( property.propertyKeyId(), value );
+            propertyBytesInMemory -= 2L * value.length();
+            return spilled;
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    /**
+     * Stops counting the value this transaction state holds for the given property key, if any, against the
+     * spill threshold, since it's about to be overwritten or removed.
+     */
+    private void releaseProperty( PropertyContainerStateImpl state, int propertyKeyId )
+    {
+        if ( state == null || spillThreshold <= 0 )
+        {
+            return;
+        }
+        StorageProperty property = state.getAddedProperty( propertyKeyId );
+        releaseValue( property != null ? property : state.getChangedProperty( propertyKeyId ) );
+    }
+
+    private void releaseProperties( PropertyContainerStateImpl state )
+    {
+        if ( spillThreshold <= 0 )
+        {
+            return;
+        }
+        for ( Iterator<StorageProperty> properties = state.addedAndChangedProperties(); properties.hasNext(); )
+        {
+            releaseValue( properties.next() );
+        }
+    }
+
+    private void releaseValue( StorageProperty property )
+    {
+        // Spilled values were never counted, see spillIfNeeded
+        if ( !(property instanceof DefinedProperty.WithStringValue) ||
+             (spilledPropertyValues != null && spilledPropertyValues.isSpilled( property )) )
+        {
+            return;
+        }
+        long bytes = 2L * ((DefinedProperty.WithStringValue) property).stringValue().length();
+        propertyBytesInMemory = Math.max( 0, propertyBytesInMemory - bytes );
+    }
+
+    private NodeStateImpl nodeState( long nodeId )
+    {
+        return nodeStatesMap == null ? null : nodeStatesMap.get( nodeId );
+    }
+
+    private RelationshipStateImpl relationshipState( long relationshipId )
+    {
+        return relationshipStatesMap == null ? null : relationshipStatesMap.get( relationshipId );
+    }
+
     @Override
     public void nodeDoRemoveProperty( long nodeId, DefinedProperty removedProperty )
     {
+        releaseProperty( nodeState( nodeId ), removedProperty.propertyKeyId() );
         getOrCreateNodeState( nodeId ).removeProperty( removedProperty );
         nodePropertyChanges().removeProperty( nodeId, removedProperty.propertyKeyId(),
                 removedProperty.value() );
@@ -729,6 +903,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     @Override
     public void relationshipDoRemoveProperty( long relationshipId, DefinedProperty removedProperty )
     {
+        releaseProperty( relationshipState( relationshipId ), removedProperty.propertyKeyId() );
         getOrCreateRelationshipState( relationshipId ).removeProperty( removedProperty );
         dataChanged();
     }
@@ -736,6 +911,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     @Override
     public void graphDoRemoveProperty( DefinedProperty removedProperty )
     {
+        releaseProperty( graphState, removedProperty.propertyKeyId() );
         getOrCreateGraphState().removeProperty( removedProperty );
         dataChanged();
     }
@@ -761,7 +937,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     {
         if ( createdLabelTokens == null )
         {
-            createdLabelTokens = new HashMap<>();
+            createdLabelTokens = Primitive.intObjectMap();
         }
         createdLabelTokens.put( id, labelName );
         changed();
@@ -772,7 +948,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     {
         if ( createdPropertyKeyTokens == null )
         {
-            createdPropertyKeyTokens = new HashMap<>();
+            createdPropertyKeyTokens = Primitive.intObjectMap();
         }
         createdPropertyKeyTokens.put( id, propertyKeyName );
         changed();
@@ -783,7 +959,7 @@ public final class TxState implements TransactionState, RelationshipVisitor.Home
     {
         if ( createdRelationshipTypeTokens == null )
         {
-            createdRelationshipTypeTokens = new HashMap<>();
+            createdRelationshipTypeTokens = Primitive.intObjectMap();
         }
         createdRelationshipTypeTokens.put( id, labelName );
         changed();
@@ -241,6 +241,13 @@ public class CacheLayer implements StoreReadLayer
         return diskLayer.indexUniqueValuesPercentage( descriptor );
     }
 
+    @Override
+    public double indexNumberRangeSelectivity( IndexDescriptor descriptor, Number lower, boolean includeLower,
+            Number upper, boolean includeUpper ) throws IndexNotFoundKernelException
+    {
+        return diskLayer.indexNumberRangeSelectivity( descriptor, lower, includeLower, upper, includeUpper );
+    }
+
     @Override
     public String indexGetFailure( IndexDescriptor descriptor ) throws IndexNotFoundKernelException
     {
@@ -291,6 +291,13 @@ public class DiskLayer implements StoreReadLayer
         return indexService.indexUniqueValuesPercentage( descriptor );
     }
 
+    @Override
+    public double indexNumberRangeSelectivity( IndexDescriptor descriptor, Number lower, boolean includeLower,
+            Number upper, boolean includeUpper ) throws IndexNotFoundKernelException
+    {
+        return indexService.indexNumberRangeSelectivity( descriptor, lower, includeLower, upper, includeUpper );
+    }
+
     @Override
     public String indexGetFailure( IndexDescriptor descriptor ) throws IndexNotFoundKernelException
     {
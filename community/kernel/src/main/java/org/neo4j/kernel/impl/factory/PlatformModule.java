@@ -174,8 +174,8 @@ public class PlatformModule
         // Anyways please fix this.
         dataSourceManager = dependencies.satisfyDependency( new DataSourceManager() );
 
-        availabilityGuard = new AvailabilityGuard( Clocks.systemClock(), logging.getInternalLog(
-                AvailabilityGuard.class ) );
+        availabilityGuard = dependencies.satisfyDependency( new AvailabilityGuard( Clocks.systemClock(),
+                logging.getInternalLog( AvailabilityGuard.class ) ) );
 
         transactionMonitor = dependencies.satisfyDependency( createTransactionStats() );
 
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+import org.neo4j.index.internal.gbptree.Layout;
+import org.neo4j.io.pagecache.PageCursor;
+
+/**
+ * {@link Layout} for a native label scan store, where entries are ordered by label id and then node id range,
+ * making all nodes of a label available as a single range seek, in node id order.
+ */
+class LabelScanLayout extends Layout.Adapter<LabelScanKey,LabelScanValue>
+{
+    private static final long IDENTIFIER = Layout.namedIdentifier( "LSL", LabelScanValue.RANGE_SIZE );
+    private static final int MAJOR_VERSION = 0;
+    private static final int MINOR_VERSION = 1;
+
+    @Override
+    public int compare( LabelScanKey o1, LabelScanKey o2 )
+    {
+        int labelComparison = Integer.compare( o1.labelId, o2.labelId );
+        return labelComparison != 0 ? labelComparison : Long.compare( o1.idRange, o2.idRange );
+    }
+
+    @Override
+    public LabelScanKey newKey()
+    {
+        return new LabelScanKey();
+    }
+
+    @Override
+    public LabelScanKey copyKey( LabelScanKey key, LabelScanKey into )
+    {
+        return into.set( key.labelId, key.idRange );
+    }
+
+    @Override
+    public LabelScanValue newValue()
+    {
+        return new LabelScanValue();
+    }
+
+    @Override
+    public int keySize()
+    {
+        return LabelScanKey.SIZE;
+    }
+
+    @Override
+    public int valueSize()
+    {
+        return LabelScanValue.SIZE;
+    }
+
+    @Override
+    public void writeKey( PageCursor cursor, LabelScanKey key )
+    {
+        cursor.putInt( key.labelId );
+        cursor.putLong( key.idRange );
+    }
+
+    @Override
+    public void writeValue( PageCursor cursor, LabelScanValue value )
+    {
+        cursor.putLong( value.bits );
+    }
+
+    @Override
+    public void readKey( PageCursor cursor, LabelScanKey into )
+    {
+        into.labelId = cursor.getInt();
+        into.idRange = cursor.getLong();
+    }
+
+    @Override
+    public void readValue( PageCursor cursor, LabelScanValue into )
+    {
+        into.bits = cursor.getLong();
+    }
+
+    @Override
+    public long identifier()
+    {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public int majorVersion()
+    {
+        return MAJOR_VERSION;
+    }
+
+    @Override
+    public int minorVersion()
+    {
+        return MINOR_VERSION;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+/**
+ * Value in a native label scan store, a bitmap where each set bit represents a node id, relative to the
+ * start of the range of its {@link LabelScanKey key}, which has the label of that key.
+ */
+class LabelScanValue
+{
+    static final int RANGE_SIZE = Long.SIZE;
+    static final int SIZE = Long.BYTES;
+
+    long bits;
+
+    LabelScanValue set( long bits )
+    {
+        this.bits = bits;
+        return this;
+    }
+
+    static long rangeOf( long nodeId )
+    {
+        return nodeId / RANGE_SIZE;
+    }
+
+    static long bitOf( long nodeId )
+    {
+        return 1L << (nodeId % RANGE_SIZE);
+    }
+
+    @Override
+    public String toString()
+    {
+        return Long.toBinaryString( bits );
+    }
+}
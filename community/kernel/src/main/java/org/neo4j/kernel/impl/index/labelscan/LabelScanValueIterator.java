@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+
+import org.neo4j.collection.primitive.PrimitiveLongCollections;
+import org.neo4j.cursor.RawCursor;
+import org.neo4j.index.internal.gbptree.Hit;
+
+import static org.neo4j.kernel.impl.index.labelscan.LabelScanValue.RANGE_SIZE;
+
+/**
+ * Iterates over the node ids of all bitmaps from a seek in a native label scan store, in node id order.
+ * The underlying seeker is closed when exhausted, or when the reader which created it is closed.
+ */
+class LabelScanValueIterator extends PrimitiveLongCollections.PrimitiveLongBaseIterator
+{
+    private final RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException> seeker;
+    private final Collection<RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException>> toRemoveFromOnClose;
+    private boolean closed;
+    private long baseNodeId;
+    private long bits;
+
+    LabelScanValueIterator( RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException> seeker,
+            Collection<RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException>> toRemoveFromOnClose )
+    {
+        this.seeker = seeker;
+        this.toRemoveFromOnClose = toRemoveFromOnClose;
+    }
+
+    @Override
+    protected boolean fetchNext()
+    {
+        try
+        {
+            while ( bits == 0 )
+            {
+                if ( closed || !seeker.next() )
+                {
+                    ensureCursorClosed();
+                    return false;
+                }
+                Hit<LabelScanKey,LabelScanValue> hit = seeker.get();
+                baseNodeId = hit.key().idRange * RANGE_SIZE;
+                bits = hit.value().bits;
+            }
+            int delta = Long.numberOfTrailingZeros( bits );
+            bits &= bits - 1;
+            return next( baseNodeId + delta );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    private void ensureCursorClosed() throws IOException
+    {
+        if ( !closed )
+        {
+            seeker.close();
+            toRemoveFromOnClose.remove( seeker );
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.neo4j.cursor.RawCursor;
+import org.neo4j.helpers.collection.PrefetchingIterator;
+import org.neo4j.index.internal.gbptree.GBPTree;
+import org.neo4j.index.internal.gbptree.Hit;
+import org.neo4j.kernel.api.labelscan.AllEntriesLabelScanReader;
+import org.neo4j.kernel.api.labelscan.NodeLabelRange;
+
+import static org.neo4j.kernel.impl.index.labelscan.LabelScanValue.RANGE_SIZE;
+
+/**
+ * {@link AllEntriesLabelScanReader} for a native label scan store. Has one seek open per label and
+ * merges them by node id range, so that ranges come in node id order, each with all its labels.
+ */
+class NativeAllEntriesLabelScanReader implements AllEntriesLabelScanReader
+{
+    private final GBPTree<LabelScanKey,LabelScanValue> tree;
+    private final List<RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException>> cursors = new ArrayList<>();
+
+    NativeAllEntriesLabelScanReader( GBPTree<LabelScanKey,LabelScanValue> tree )
+    {
+        this.tree = tree;
+    }
+
+    @Override
+    public long maxCount()
+    {
+        // There's no cheap way of knowing the number of distinct ranges, the number of entries is an upper bound
+        long count = 0;
+        try ( RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException> seeker = tree.seek(
+                new LabelScanKey().set( 0, 0 ), new LabelScanKey().set( Integer.MAX_VALUE, Long.MAX_VALUE ) ) )
+        {
+            while ( seeker.next() )
+            {
+                count++;
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+        return count;
+    }
+
+    @Override
+    public Iterator<NodeLabelRange> iterator()
+    {
+        try
+        {
+            int[] labelIds = labelIds();
+            for ( int labelId : labelIds )
+            {
+                cursors.add( tree.seek( new LabelScanKey().set( labelId, 0 ),
+                        new LabelScanKey().set( labelId, Long.MAX_VALUE ) ) );
+            }
+            return new LabelRangeIterator( labelIds );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    private int[] labelIds() throws IOException
+    {
+        int[] labelIds = new int[8];
+        int count = 0;
+        LabelScanKey from = new LabelScanKey().set( 0, 0 );
+        LabelScanKey to = new LabelScanKey().set( Integer.MAX_VALUE, Long.MAX_VALUE );
+        while ( true )
+        {
+            try ( RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException> seeker = tree.seek( from, to ) )
+            {
+                if ( !seeker.next() )
+                {
+                    break;
+                }
+                int labelId = seeker.get().key().labelId;
+                if ( count == labelIds.length )
+                {
+                    labelIds = Arrays.copyOf( labelIds, count * 2 );
+                }
+                labelIds[count++] = labelId;
+                if ( labelId == Integer.MAX_VALUE )
+                {
+                    break;
+                }
+                from.set( labelId + 1, 0 );
+            }
+        }
+        return Arrays.copyOf( labelIds, count );
+    }
+
+    @Override
+    public void close() throws Exception
+    {
+        for ( RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException> cursor : cursors )
+        {
+            cursor.close();
+        }
+        cursors.clear();
+    }
+
+    private class LabelRangeIterator extends PrefetchingIterator<NodeLabelRange>
+    {
+        private final int[] labelIds;
+        // Current range and bits of each label, range -1 when not yet read, Long.MAX_VALUE when exhausted
+        private final long[] ranges;
+        private final long[] bits;
+
+        LabelRangeIterator( int[] labelIds )
+        {
+            this.labelIds = labelIds;
+            this.ranges = new long[labelIds.length];
+            this.bits = new long[labelIds.length];
+            Arrays.fill( ranges, -1 );
+        }
+
+        @Override
+        protected NodeLabelRange fetchNextOrNull()
+        {
+            try
+            {
+                long lowestRange = Long.MAX_VALUE;
+                for ( int i = 0; i < labelIds.length; i++ )
+                {
+                    if ( ranges[i] == -1 )
+                    {
+                        advance( i );
+                    }
+                    lowestRange = Math.min( lowestRange, ranges[i] );
+                }
+                if ( lowestRange == Long.MAX_VALUE )
+                {
+                    return null;
+                }
+
+                long allBits = 0;
+                for ( int i = 0; i < labelIds.length; i++ )
+                {
+                    if ( ranges[i] == lowestRange )
+                    {
+                        allBits |= bits[i];
+                    }
+                }
+                long[] nodeIds = new long[Long.bitCount( allBits )];
+                long[][] nodeLabelIds = new long[nodeIds.length][];
+                int nodeIndex = 0;
+                for ( long remaining = allBits; remaining != 0; remaining &= remaining - 1 )
+                {
+                    long bit = Long.lowestOneBit( remaining );
+                    nodeIds[nodeIndex] = lowestRange * RANGE_SIZE + Long.numberOfTrailingZeros( bit );
+                    nodeLabelIds[nodeIndex] = labelsWithBit( lowestRange, bit );
+                    nodeIndex++;
+                }
+                for ( int i = 0; i < labelIds.length; i++ )
+                {
+                    if ( ranges[i] == lowestRange )
+                    {
+                        ranges[i] = -1;
+                    }
+                }
+                return new NativeNodeLabelRange( (int) lowestRange, nodeIds, nodeLabelIds );
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+        }
+
+        private void advance( int i ) throws IOException
+        {
+            RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException> cursor = cursors.get( i );
+            if ( cursor.next() )
+            {
+                ranges[i] = cursor.get().key().idRange;
+                bits[i] = cursor.get().value().bits;
+            }
+            else
+            {
+                ranges[i] = Long.MAX_VALUE;
+            }
+        }
+
+        private long[] labelsWithBit( long range, long bit )
+        {
+            int count = 0;
+            for ( int i = 0; i < labelIds.length; i++ )
+            {
+                if ( ranges[i] == range && (bits[i] & bit) != 0 )
+                {
+                    count++;
+                }
+            }
+            long[] result = new long[count];
+            int index = 0;
+            for ( int i = 0; i < labelIds.length; i++ )
+            {
+                if ( ranges[i] == range && (bits[i] & bit) != 0 )
+                {
+                    result[index++] = labelIds[i];
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.neo4j.collection.primitive.PrimitiveLongCollections;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.cursor.RawCursor;
+import org.neo4j.index.internal.gbptree.GBPTree;
+import org.neo4j.index.internal.gbptree.Hit;
+import org.neo4j.storageengine.api.schema.LabelScanReader;
+
+import static org.neo4j.kernel.impl.index.labelscan.LabelScanValue.bitOf;
+import static org.neo4j.kernel.impl.index.labelscan.LabelScanValue.rangeOf;
+
+/**
+ * {@link LabelScanReader} for a native label scan store. Nodes of a label are streamed from a single
+ * range seek, in node id order, decoding the bitmaps as they're read from the tree.
+ * <p>
+ * Seeks see changes applied concurrently with them, i.e. this reader doesn't provide repeatable reads
+ * of its own. Every seek this reader has started and not yet exhausted is closed in {@link #close()}.
+ */
+class NativeLabelScanReader implements LabelScanReader
+{
+    private final GBPTree<LabelScanKey,LabelScanValue> tree;
+    private final Set<RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException>> openSeekers = new HashSet<>();
+
+    NativeLabelScanReader( GBPTree<LabelScanKey,LabelScanValue> tree )
+    {
+        this.tree = tree;
+    }
+
+    @Override
+    public PrimitiveLongIterator nodesWithLabel( int labelId )
+    {
+        RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException> seeker = seek(
+                new LabelScanKey().set( labelId, 0 ), new LabelScanKey().set( labelId, Long.MAX_VALUE ) );
+        openSeekers.add( seeker );
+        return new LabelScanValueIterator( seeker, openSeekers );
+    }
+
+    @Override
+    public PrimitiveLongIterator labelsForNode( long nodeId )
+    {
+        // Entries are ordered by label first, so find the labels of this node by seeking its range in every
+        // label there is, jumping directly to the next label whenever the range isn't there
+        long idRange = rangeOf( nodeId );
+        long bit = bitOf( nodeId );
+        long[] labelIds = new long[4];
+        int labelCount = 0;
+        LabelScanKey from = new LabelScanKey().set( 0, idRange );
+        LabelScanKey to = new LabelScanKey().set( Integer.MAX_VALUE, Long.MAX_VALUE );
+        while ( true )
+        {
+            try ( RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException> seeker = seek( from, to ) )
+            {
+                if ( !seeker.next() )
+                {
+                    break;
+                }
+                LabelScanKey key = seeker.get().key();
+                if ( key.idRange == idRange && (seeker.get().value().bits & bit) != 0 )
+                {
+                    if ( labelCount == labelIds.length )
+                    {
+                        labelIds = Arrays.copyOf( labelIds, labelCount * 2 );
+                    }
+                    labelIds[labelCount++] = key.labelId;
+                }
+                if ( key.labelId == Integer.MAX_VALUE )
+                {
+                    break;
+                }
+                from.set( key.idRange < idRange ? key.labelId : key.labelId + 1, idRange );
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+        }
+
+        return PrimitiveLongCollections.iterator( Arrays.copyOf( labelIds, labelCount ) );
+    }
+
+    private RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException> seek( LabelScanKey from, LabelScanKey to )
+    {
+        try
+        {
+            return tree.seek( from, to );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            for ( RawCursor<Hit<LabelScanKey,LabelScanValue>,IOException> seeker : openSeekers )
+            {
+                seeker.close();
+            }
+            openSeekers.clear();
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.helpers.collection.Iterators;
+import org.neo4j.index.internal.gbptree.GBPTree;
+import org.neo4j.index.internal.gbptree.Header;
+import org.neo4j.index.internal.gbptree.MetadataMismatchException;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.IOLimiter;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.api.labelscan.AllEntriesLabelScanReader;
+import org.neo4j.kernel.api.labelscan.LabelScanStore;
+import org.neo4j.kernel.api.labelscan.LabelScanWriter;
+import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider.FullStoreChangeStream;
+import org.neo4j.kernel.impl.store.UnderlyingStorageException;
+import org.neo4j.logging.Log;
+import org.neo4j.logging.LogProvider;
+import org.neo4j.storageengine.api.schema.LabelScanReader;
+
+/**
+ * {@link LabelScanStore} keeping label-->nodes mappings as bitmaps in a {@link GBPTree}, accessed through
+ * the {@link PageCache}. Each entry maps a label and a range of {@link LabelScanValue#RANGE_SIZE} node ids
+ * to a bitmap of which nodes in that range have that label, so that all nodes of a label can be streamed,
+ * in order, from a single range seek.
+ * <p>
+ * The tree is checkpointed on {@link #force()}, which means that after a crash the store opens at the state
+ * of the last checkpoint and recovery of the transaction log brings it up to date, no rebuild required.
+ * A rebuild from the node store only happens when there's no store, or it isn't usable, or a previous
+ * rebuild didn't complete.
+ */
+public class NativeLabelScanStore implements LabelScanStore
+{
+    public static final String FILE_NAME = "labelscanstore.db";
+
+    private static final byte CLEAN = 0;
+    private static final byte NEEDS_REBUILDING = 1;
+    private static final Consumer<ByteBuffer> NEEDS_REBUILDING_HEADER = buffer -> buffer.put( NEEDS_REBUILDING );
+    private static final Consumer<ByteBuffer> CLEAN_HEADER = buffer -> buffer.put( CLEAN );
+
+    /**
+     * Number of {@link org.neo4j.kernel.api.labelscan.NodeLabelUpdate updates} a writer buffers before
+     * applying them to the tree.
+     */
+    private static final int WRITER_BATCH_SIZE = 1_000;
+
+    private final PageCache pageCache;
+    private final FileSystemAbstraction fs;
+    private final File storeFile;
+    // We get in a full store stream here in case we need to fully rebuild the store if it's missing or corrupted.
+    private final FullStoreChangeStream fullStoreStream;
+    private final boolean readOnly;
+    private final Log log;
+    private final Monitor monitor;
+    private final LabelScanLayout layout = new LabelScanLayout();
+    private GBPTree<LabelScanKey,LabelScanValue> index;
+    private boolean needsRebuild;
+
+    public interface Monitor
+    {
+        Monitor EMPTY = new Monitor()
+        {
+            @Override
+            public void init()
+            {
+            }
+
+            @Override
+            public void noIndex()
+            {
+            }
+
+            @Override
+            public void notValidIndex()
+            {
+            }
+
+            @Override
+            public void rebuilding()
+            {
+            }
+
+            @Override
+            public void rebuilt( long roughNodeCount )
+            {
+            }
+        };
+
+        void init();
+
+        void noIndex();
+
+        void notValidIndex();
+
+        void rebuilding();
+
+        void rebuilt( long roughNodeCount );
+    }
+
+    public NativeLabelScanStore( PageCache pageCache, FileSystemAbstraction fs, File storeDir,
+            FullStoreChangeStream fullStoreStream, boolean readOnly, LogProvider logProvider, Monitor monitor )
+    {
+        this.pageCache = pageCache;
+        this.fs = fs;
+        this.storeFile = getLabelScanStoreFile( storeDir );
+        this.fullStoreStream = fullStoreStream;
+        this.readOnly = readOnly;
+        this.log = logProvider.getLog( getClass() );
+        this.monitor = monitor;
+    }
+
+    public static File getLabelScanStoreFile( File storeDir )
+    {
+        return new File( new File( new File( new File( storeDir, "schema" ), "label" ), "native" ), FILE_NAME );
+    }
+
+    @Override
+    public LabelScanReader newReader()
+    {
+        return new NativeLabelScanReader( index );
+    }
+
+    @Override
+    public LabelScanWriter newWriter()
+    {
+        if ( readOnly )
+        {
+            throw new UnsupportedOperationException( "Can't create index writer in read only mode." );
+        }
+        try
+        {
+            return new NativeLabelScanWriter( index.writer(), WRITER_BATCH_SIZE );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    @Override
+    public void force() throws UnderlyingStorageException
+    {
+        if ( readOnly || index == null )
+        {
+            return;
+        }
+        try
+        {
+            index.checkpoint( IOLimiter.unlimited() );
+        }
+        catch ( IOException e )
+        {
+            throw new UnderlyingStorageException( e );
+        }
+    }
+
+    @Override
+    public AllEntriesLabelScanReader allNodeLabelRanges()
+    {
+        return new NativeAllEntriesLabelScanReader( index );
+    }
+
+    @Override
+    public ResourceIterator<File> snapshotStoreFiles() throws IOException
+    {
+        return Iterators.asResourceIterator( Iterators.iterator( storeFile ) );
+    }
+
+    @Override
+    public void init() throws IOException
+    {
+        monitor.init();
+        boolean storeExists = fs.fileExists( storeFile );
+        if ( !storeExists )
+        {
+            assertWritable( "No native label scan store found" );
+            log.info( "No native label scan store found, this might just be first use. Preparing to rebuild." );
+            monitor.noIndex();
+            needsRebuild = true;
+        }
+
+        try
+        {
+            instantiateIndex();
+        }
+        catch ( MetadataMismatchException | IOException e )
+        {
+            assertWritable( "Native label scan store could not be read" );
+            log.warn( "Native label scan store could not be read. Preparing to rebuild.", e );
+            monitor.notValidIndex();
+            fs.deleteFile( storeFile );
+            needsRebuild = true;
+            instantiateIndex();
+        }
+
+        if ( needsRebuild )
+        {
+            assertWritable( "Native label scan store needs to be rebuilt" );
+            // Mark it so that an interrupted rebuild is picked up again on next startup
+            index.checkpoint( IOLimiter.unlimited(), NEEDS_REBUILDING_HEADER );
+        }
+    }
+
+    private void instantiateIndex() throws IOException
+    {
+        fs.mkdirs( storeFile.getParentFile() );
+        Header.Reader headerReader = headerData ->
+                needsRebuild |= !headerData.hasRemaining() || headerData.get() == NEEDS_REBUILDING;
+        index = new GBPTree<>( pageCache, storeFile, layout, 0, GBPTree.NO_MONITOR, headerReader );
+    }
+
+    private void assertWritable( String reason )
+    {
+        if ( readOnly )
+        {
+            throw new UnsupportedOperationException( reason + " and it can't be rebuilt in read only mode." );
+        }
+    }
+
+    @Override
+    public void start() throws IOException
+    {
+        if ( needsRebuild )
+        {   // we saw in init() that we need to rebuild the store, so do it here after the
+            // neostore has been properly started.
+            monitor.rebuilding();
+            log.info( "Rebuilding native label scan store, this may take a while" );
+            long numberOfNodes = rebuild();
+            monitor.rebuilt( numberOfNodes );
+            log.info( "Native label scan store rebuilt (roughly " + numberOfNodes + " nodes)" );
+            needsRebuild = false;
+        }
+    }
+
+    private long rebuild() throws IOException
+    {
+        long numberOfNodes;
+        try ( LabelScanWriter writer = newWriter() )
+        {
+            numberOfNodes = fullStoreStream.applyTo( writer );
+        }
+        index.checkpoint( IOLimiter.unlimited(), CLEAN_HEADER );
+        return numberOfNodes;
+    }
+
+    @Override
+    public void stop()
+    {   // Not needed
+    }
+
+    @Override
+    public void shutdown() throws IOException
+    {
+        if ( index != null )
+        {
+            index.close();
+            index = null;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName() + "[" + storeFile + "]";
+    }
+}
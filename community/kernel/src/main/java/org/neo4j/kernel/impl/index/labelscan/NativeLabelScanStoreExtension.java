@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+import java.util.function.Supplier;
+
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.helpers.Service;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.NeoStoreDataSource;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.extension.KernelExtensionFactory;
+import org.neo4j.kernel.impl.api.index.IndexStoreView;
+import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider;
+import org.neo4j.kernel.impl.factory.OperationalMode;
+import org.neo4j.kernel.impl.logging.LogService;
+import org.neo4j.kernel.impl.spi.KernelContext;
+import org.neo4j.kernel.lifecycle.Lifecycle;
+
+import static org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider.fullStoreLabelUpdateStream;
+
+/**
+ * Provides a {@link NativeLabelScanStore}, which is selected over the lucene label scan store if
+ * {@link GraphDatabaseSettings#label_scan_store} says so.
+ */
+@Service.Implementation( KernelExtensionFactory.class )
+public class NativeLabelScanStoreExtension extends KernelExtensionFactory<NativeLabelScanStoreExtension.Dependencies>
+{
+    public static final String NAME = "native";
+
+    /**
+     * Above the lucene label scan store when configured to be used, otherwise below.
+     */
+    static final int PRIORITY_SELECTED = 100;
+    static final int PRIORITY_NOT_SELECTED = 0;
+
+    private final NativeLabelScanStore.Monitor monitor;
+
+    public interface Dependencies
+    {
+        Config getConfig();
+
+        PageCache pageCache();
+
+        /**
+         * @return a {@link Supplier} of {@link IndexStoreView}, sort of like a delayed dependency lookup.
+         * This is because we need the {@link IndexStoreView} dependency, although at the stage where we
+         * grab dependencies, in {@link Lifecycle#init() init} that is, the {@link NeoStoreDataSource} hasn't been
+         * {@link Lifecycle#start() started} yet and so haven't provided it.
+         */
+        Supplier<IndexStoreView> indexStoreView();
+
+        LogService getLogService();
+    }
+
+    public NativeLabelScanStoreExtension()
+    {
+        this( NativeLabelScanStore.Monitor.EMPTY );
+    }
+
+    NativeLabelScanStoreExtension( NativeLabelScanStore.Monitor monitor )
+    {
+        super( "native-label-scan-store" );
+        this.monitor = monitor;
+    }
+
+    @Override
+    public LabelScanStoreProvider newInstance( KernelContext context, Dependencies dependencies ) throws Throwable
+    {
+        Config config = dependencies.getConfig();
+        boolean readOnly = config.get( GraphDatabaseSettings.read_only ) &&
+                           (OperationalMode.single == context.databaseInfo().operationalMode);
+        NativeLabelScanStore labelScanStore = new NativeLabelScanStore( dependencies.pageCache(),
+                context.fileSystem(), context.storeDir(), fullStoreLabelUpdateStream( dependencies.indexStoreView() ),
+                readOnly, dependencies.getLogService().getInternalLogProvider(), monitor );
+
+        boolean selected = NAME.equals( config.get( GraphDatabaseSettings.label_scan_store ) );
+        return new LabelScanStoreProvider( labelScanStore, selected ? PRIORITY_SELECTED : PRIORITY_NOT_SELECTED );
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.neo4j.index.internal.gbptree.ValueMerger;
+import org.neo4j.index.internal.gbptree.Writer;
+import org.neo4j.kernel.api.labelscan.LabelScanWriter;
+import org.neo4j.kernel.api.labelscan.NodeLabelUpdate;
+
+import static org.neo4j.kernel.impl.index.labelscan.LabelScanValue.bitOf;
+import static org.neo4j.kernel.impl.index.labelscan.LabelScanValue.rangeOf;
+
+/**
+ * {@link LabelScanWriter} for a native label scan store. Updates are buffered and, when the buffer is full
+ * or the writer is closed, applied label by label so that all changes to the same bitmap, i.e. the same
+ * label and node id range, end up as a single merge into the tree.
+ * <p>
+ * Holds the single writer of the tree from creation until {@link #close()}.
+ */
+class NativeLabelScanWriter implements LabelScanWriter
+{
+    private static final ValueMerger<LabelScanValue> ADD_MERGER = ( existingValue, newValue ) ->
+            existingValue == null ? newValue : existingValue.set( existingValue.bits | newValue.bits );
+
+    private static final ValueMerger<LabelScanValue> REMOVE_MERGER = ( existingValue, newValue ) ->
+    {
+        if ( existingValue == null )
+        {   // Nothing to remove
+            return null;
+        }
+        long bits = existingValue.bits & ~newValue.bits;
+        return bits == 0 ? null : existingValue.set( bits );
+    };
+
+    private final Writer<LabelScanKey,LabelScanValue> writer;
+    private final NodeLabelUpdate[] pendingUpdates;
+    private int pendingUpdatesCount;
+
+    private final LabelScanKey key = new LabelScanKey();
+    private final LabelScanValue value = new LabelScanValue();
+    private long addBits;
+    private long removeBits;
+
+    NativeLabelScanWriter( Writer<LabelScanKey,LabelScanValue> writer, int batchSize )
+    {
+        this.writer = writer;
+        this.pendingUpdates = new NodeLabelUpdate[batchSize];
+    }
+
+    @Override
+    public void write( NodeLabelUpdate update ) throws IOException
+    {
+        if ( pendingUpdatesCount == pendingUpdates.length )
+        {
+            flushPendingUpdates();
+        }
+        pendingUpdates[pendingUpdatesCount++] = update;
+    }
+
+    private void flushPendingUpdates() throws IOException
+    {
+        // Stable sort, so that multiple updates of the same node are applied in the order they were written
+        Arrays.sort( pendingUpdates, 0, pendingUpdatesCount, NodeLabelUpdate.SORT_BY_NODE_ID );
+
+        long currentLabelId = lowestLabelIdAbove( -1 );
+        while ( currentLabelId != Long.MAX_VALUE )
+        {
+            int labelId = (int) currentLabelId;
+            key.set( labelId, -1 );
+            long nextLabelId = Long.MAX_VALUE;
+            for ( int i = 0; i < pendingUpdatesCount; i++ )
+            {
+                NodeLabelUpdate update = pendingUpdates[i];
+                boolean before = contains( update.getLabelsBefore(), currentLabelId );
+                boolean after = contains( update.getLabelsAfter(), currentLabelId );
+                if ( before != after )
+                {
+                    change( labelId, update.getNodeId(), after );
+                }
+                nextLabelId = Math.min( nextLabelId,
+                        Math.min( lowestAbove( update.getLabelsBefore(), currentLabelId ),
+                                  lowestAbove( update.getLabelsAfter(), currentLabelId ) ) );
+            }
+            flushPendingChange();
+            currentLabelId = nextLabelId;
+        }
+        Arrays.fill( pendingUpdates, 0, pendingUpdatesCount, null );
+        pendingUpdatesCount = 0;
+    }
+
+    private void change( int labelId, long nodeId, boolean add ) throws IOException
+    {
+        long idRange = rangeOf( nodeId );
+        if ( key.idRange != idRange )
+        {
+            flushPendingChange();
+            key.set( labelId, idRange );
+        }
+        long bit = bitOf( nodeId );
+        if ( add )
+        {
+            addBits |= bit;
+            removeBits &= ~bit;
+        }
+        else
+        {
+            removeBits |= bit;
+            addBits &= ~bit;
+        }
+    }
+
+    private void flushPendingChange() throws IOException
+    {
+        if ( addBits != 0 )
+        {
+            writer.merge( key, value.set( addBits ), ADD_MERGER );
+        }
+        if ( removeBits != 0 )
+        {
+            writer.merge( key, value.set( removeBits ), REMOVE_MERGER );
+        }
+        addBits = 0;
+        removeBits = 0;
+    }
+
+    private long lowestLabelIdAbove( long labelId )
+    {
+        long lowest = Long.MAX_VALUE;
+        for ( int i = 0; i < pendingUpdatesCount; i++ )
+        {
+            NodeLabelUpdate update = pendingUpdates[i];
+            lowest = Math.min( lowest, Math.min( lowestAbove( update.getLabelsBefore(), labelId ),
+                                                 lowestAbove( update.getLabelsAfter(), labelId ) ) );
+        }
+        return lowest;
+    }
+
+    private static long lowestAbove( long[] labelIds, long labelId )
+    {
+        long lowest = Long.MAX_VALUE;
+        for ( long candidate : labelIds )
+        {
+            if ( candidate > labelId && candidate < lowest )
+            {
+                lowest = candidate;
+            }
+        }
+        return lowest;
+    }
+
+    private static boolean contains( long[] labelIds, long labelId )
+    {
+        for ( long candidate : labelIds )
+        {
+            if ( candidate == labelId )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            flushPendingUpdates();
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+}
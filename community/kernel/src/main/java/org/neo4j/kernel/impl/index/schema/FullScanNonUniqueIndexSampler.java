@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import org.neo4j.cursor.RawCursor;
+import org.neo4j.index.internal.gbptree.GBPTree;
+import org.neo4j.index.internal.gbptree.Hit;
+import org.neo4j.kernel.impl.api.index.sampling.IndexHistogramBuilder;
+import org.neo4j.kernel.impl.api.index.sampling.IndexSamplingConfig;
+import org.neo4j.kernel.impl.api.index.sampling.NonUniqueIndexSampler;
+import org.neo4j.storageengine.api.schema.IndexSample;
+import org.neo4j.storageengine.api.schema.IndexSampler;
+
+/**
+ * {@link IndexSampler} which goes through all entries in a native schema number index. Since entries are
+ * ordered by value there's no need to keep track of seen values, only to compare with the previous one.
+ * The ordering also makes it cheap to build an {@link org.neo4j.storageengine.api.schema.IndexHistogram}
+ * in the same pass.
+ */
+class FullScanNonUniqueIndexSampler implements IndexSampler
+{
+    private final GBPTree<NumberKey,NumberValue> tree;
+    private final NumberLayout layout;
+    private final IndexSamplingConfig samplingConfig;
+
+    FullScanNonUniqueIndexSampler( GBPTree<NumberKey,NumberValue> tree, NumberLayout layout,
+            IndexSamplingConfig samplingConfig )
+    {
+        this.tree = tree;
+        this.layout = layout;
+        this.samplingConfig = samplingConfig;
+    }
+
+    @Override
+    public IndexSample sampleIndex()
+    {
+        NumberKey lowest = layout.newKey();
+        lowest.initAsLowest();
+        NumberKey highest = layout.newKey();
+        highest.initAsHighest();
+        NonUniqueIndexSampler sampler = new NonUniqueIndexSampler( samplingConfig.sampleSizeLimit() );
+        IndexHistogramBuilder histogram = new IndexHistogramBuilder();
+        try ( RawCursor<Hit<NumberKey,NumberValue>,IOException> seek = tree.seek( lowest, highest ) )
+        {
+            long count = 0;
+            double prevValue = Double.NaN;
+            long sameValueCount = 0;
+            while ( seek.next() )
+            {
+                double value = seek.get().key().value;
+                if ( count > 0 && Double.compare( value, prevValue ) != 0 )
+                {
+                    sampler.include( String.valueOf( prevValue ), sameValueCount );
+                    histogram.include( prevValue, sameValueCount );
+                    sameValueCount = 0;
+                }
+                prevValue = value;
+                sameValueCount++;
+                count++;
+            }
+            if ( sameValueCount > 0 )
+            {
+                sampler.include( String.valueOf( prevValue ), sameValueCount );
+                histogram.include( prevValue, sameValueCount );
+            }
+            IndexSample sample = sampler.result( (int) Math.min( count, Integer.MAX_VALUE ) );
+            return new IndexSample( sample.indexSize(), sample.uniqueValues(), sample.sampleSize(), histogram.build() );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+import org.neo4j.index.internal.gbptree.GBPTree;
+import org.neo4j.index.internal.gbptree.Header;
+import org.neo4j.kernel.api.index.InternalIndexState;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Header of a native schema index, written at each {@link GBPTree#checkpoint(org.neo4j.io.pagecache.IOLimiter,
+ * Consumer) checkpoint}. Keeps the {@link InternalIndexState state} of the index and, if failed,
+ * the failure message.
+ */
+class NativeSchemaIndexHeader implements Header.Reader
+{
+    static final byte BYTE_FAILED = 0;
+    static final byte BYTE_ONLINE = 1;
+    static final byte BYTE_POPULATING = 2;
+
+    private byte state = BYTE_POPULATING;
+    private String failureMessage;
+
+    @Override
+    public void read( ByteBuffer headerData )
+    {
+        if ( !headerData.hasRemaining() )
+        {
+            // Tree created, but nothing written by the populator yet
+            state = BYTE_POPULATING;
+            return;
+        }
+        state = headerData.get();
+        if ( state == BYTE_FAILED )
+        {
+            byte[] bytes = new byte[headerData.getInt()];
+            headerData.get( bytes );
+            failureMessage = new String( bytes, UTF_8 );
+        }
+    }
+
+    InternalIndexState state()
+    {
+        switch ( state )
+        {
+        case BYTE_FAILED:
+            return InternalIndexState.FAILED;
+        case BYTE_ONLINE:
+            return InternalIndexState.ONLINE;
+        case BYTE_POPULATING:
+            return InternalIndexState.POPULATING;
+        default:
+            throw new IllegalStateException( "Unexpected index state byte " + state );
+        }
+    }
+
+    String failureMessage()
+    {
+        return failureMessage;
+    }
+
+    static Consumer<ByteBuffer> writeState( byte state )
+    {
+        return headerData -> headerData.put( state );
+    }
+
+    static Consumer<ByteBuffer> writeFailure( String failure )
+    {
+        return headerData ->
+        {
+            byte[] bytes = failure.getBytes( UTF_8 );
+            int length = Math.min( bytes.length, headerData.remaining() - Byte.BYTES - Integer.BYTES );
+            headerData.put( BYTE_FAILED );
+            headerData.putInt( length );
+            headerData.put( bytes, 0, length );
+        };
+    }
+}
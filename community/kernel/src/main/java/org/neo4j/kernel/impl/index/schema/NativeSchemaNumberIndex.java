@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.neo4j.index.internal.gbptree.GBPTree;
+import org.neo4j.index.internal.gbptree.Header;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+
+/**
+ * Common parts of populator and accessor of a native schema number index, i.e. managing the {@link GBPTree}
+ * living in the index file.
+ */
+abstract class NativeSchemaNumberIndex
+{
+    final PageCache pageCache;
+    final FileSystemAbstraction fs;
+    final File storeFile;
+    final NumberLayout layout;
+
+    GBPTree<NumberKey,NumberValue> tree;
+
+    NativeSchemaNumberIndex( PageCache pageCache, FileSystemAbstraction fs, File storeFile, NumberLayout layout )
+    {
+        this.pageCache = pageCache;
+        this.fs = fs;
+        this.storeFile = storeFile;
+        this.layout = layout;
+    }
+
+    void instantiateTree( Header.Reader headerReader ) throws IOException
+    {
+        fs.mkdirs( storeFile.getParentFile() );
+        tree = new GBPTree<>( pageCache, storeFile, layout, 0, GBPTree.NO_MONITOR, headerReader );
+    }
+
+    void closeTree() throws IOException
+    {
+        if ( tree != null )
+        {
+            tree.close();
+            tree = null;
+        }
+    }
+
+    void deleteFile()
+    {
+        fs.deleteFile( storeFile );
+    }
+
+    void assertOpen()
+    {
+        if ( tree == null )
+        {
+            throw new IllegalStateException( "Index " + storeFile + " has been closed" );
+        }
+    }
+}
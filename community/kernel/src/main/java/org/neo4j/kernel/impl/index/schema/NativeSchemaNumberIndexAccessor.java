@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+
+import org.neo4j.cursor.RawCursor;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.helpers.collection.BoundedIterable;
+import org.neo4j.helpers.collection.PrefetchingIterator;
+import org.neo4j.index.internal.gbptree.GBPTree;
+import org.neo4j.index.internal.gbptree.Hit;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.IOLimiter;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.api.index.IndexAccessor;
+import org.neo4j.kernel.api.index.IndexUpdater;
+import org.neo4j.kernel.impl.api.index.IndexUpdateMode;
+import org.neo4j.kernel.impl.api.index.sampling.IndexSamplingConfig;
+import org.neo4j.storageengine.api.schema.IndexReader;
+
+import static org.neo4j.helpers.collection.Iterators.asResourceIterator;
+import static org.neo4j.helpers.collection.Iterators.iterator;
+
+/**
+ * {@link IndexAccessor} for an online native schema number index. All updates go straight into the
+ * {@link GBPTree}, which is checkpointed on {@link #force()}.
+ */
+class NativeSchemaNumberIndexAccessor extends NativeSchemaNumberIndex implements IndexAccessor
+{
+    private final IndexSamplingConfig samplingConfig;
+
+    NativeSchemaNumberIndexAccessor( PageCache pageCache, FileSystemAbstraction fs, File storeFile,
+            NumberLayout layout, IndexSamplingConfig samplingConfig ) throws IOException
+    {
+        super( pageCache, fs, storeFile, layout );
+        this.samplingConfig = samplingConfig;
+        instantiateTree( GBPTree.NO_HEADER );
+    }
+
+    @Override
+    public void drop() throws IOException
+    {
+        try
+        {
+            closeTree();
+        }
+        finally
+        {
+            deleteFile();
+        }
+    }
+
+    @Override
+    public IndexUpdater newUpdater( IndexUpdateMode mode )
+    {
+        assertOpen();
+        try
+        {
+            return new NativeSchemaNumberIndexUpdater( tree );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    @Override
+    public void flush() throws IOException
+    {   // Updates are applied to the page cache directly, they are made durable in force()
+    }
+
+    @Override
+    public void force() throws IOException
+    {
+        tree.checkpoint( IOLimiter.unlimited() );
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        closeTree();
+    }
+
+    @Override
+    public IndexReader newReader()
+    {
+        assertOpen();
+        return new NativeSchemaNumberIndexReader( tree, layout, samplingConfig );
+    }
+
+    @Override
+    public BoundedIterable<Long> newAllEntriesReader()
+    {
+        assertOpen();
+        return new NumberAllEntriesReader( tree, layout );
+    }
+
+    @Override
+    public ResourceIterator<File> snapshotFiles() throws IOException
+    {
+        return asResourceIterator( iterator( storeFile ) );
+    }
+
+    private static class NumberAllEntriesReader implements BoundedIterable<Long>
+    {
+        private final GBPTree<NumberKey,NumberValue> tree;
+        private final NumberLayout layout;
+        private RawCursor<Hit<NumberKey,NumberValue>,IOException> seeker;
+
+        NumberAllEntriesReader( GBPTree<NumberKey,NumberValue> tree, NumberLayout layout )
+        {
+            this.tree = tree;
+            this.layout = layout;
+        }
+
+        /**
+         * The number of entries isn't kept anywhere, so it's counted, which requires a scan of the whole index.
+         */
+        @Override
+        public long maxCount()
+        {
+            try ( RawCursor<Hit<NumberKey,NumberValue>,IOException> counter = seekAll() )
+            {
+                long count = 0;
+                while ( counter.next() )
+                {
+                    count++;
+                }
+                return count;
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+        }
+
+        @Override
+        public Iterator<Long> iterator()
+        {
+            try
+            {
+                closeSeeker();
+                seeker = seekAll();
+                return new PrefetchingIterator<Long>()
+                {
+                    @Override
+                    protected Long fetchNextOrNull()
+                    {
+                        try
+                        {
+                            return seeker.next() ? seeker.get().key().entityId : null;
+                        }
+                        catch ( IOException e )
+                        {
+                            throw new UncheckedIOException( e );
+                        }
+                    }
+                };
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+        }
+
+        @Override
+        public void close() throws Exception
+        {
+            closeSeeker();
+        }
+
+        private RawCursor<Hit<NumberKey,NumberValue>,IOException> seekAll() throws IOException
+        {
+            NumberKey from = layout.newKey();
+            from.initAsLowest();
+            NumberKey to = layout.newKey();
+            to.initAsHighest();
+            return tree.seek( from, to );
+        }
+
+        private void closeSeeker() throws IOException
+        {
+            if ( seeker != null )
+            {
+                seeker.close();
+                seeker = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+
+import org.neo4j.index.internal.gbptree.GBPTree;
+import org.neo4j.index.internal.gbptree.Writer;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.IOLimiter;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.api.exceptions.index.IndexEntryConflictException;
+import org.neo4j.kernel.api.index.IndexPopulator;
+import org.neo4j.kernel.api.index.IndexUpdater;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
+import org.neo4j.kernel.api.index.PropertyAccessor;
+
+import static org.neo4j.kernel.impl.index.schema.NativeSchemaIndexHeader.BYTE_ONLINE;
+import static org.neo4j.kernel.impl.index.schema.NativeSchemaIndexHeader.BYTE_POPULATING;
+
+/**
+ * {@link IndexPopulator} backed by a {@link GBPTree}. Entries are written straight into the tree,
+ * which is checkpointed with the index state in its header when population completes, or fails.
+ * <p>
+ * Values must be {@link Number numbers}.
+ */
+abstract class NativeSchemaNumberIndexPopulator extends NativeSchemaNumberIndex implements IndexPopulator
+{
+    private final NumberKey treeKey = new NumberKey();
+
+    NativeSchemaNumberIndexPopulator( PageCache pageCache, FileSystemAbstraction fs, File storeFile,
+            NumberLayout layout )
+    {
+        super( pageCache, fs, storeFile, layout );
+    }
+
+    @Override
+    public synchronized void create() throws IOException
+    {
+        // Any existing index is the result of an earlier, incomplete population. Start over
+        closeTree();
+        deleteFile();
+        instantiateTree( new NativeSchemaIndexHeader() );
+        tree.checkpoint( IOLimiter.unlimited(), NativeSchemaIndexHeader.writeState( BYTE_POPULATING ) );
+    }
+
+    @Override
+    public synchronized void drop() throws IOException
+    {
+        try
+        {
+            closeTree();
+        }
+        finally
+        {
+            deleteFile();
+        }
+    }
+
+    @Override
+    public void add( Collection<NodePropertyUpdate> updates ) throws IndexEntryConflictException, IOException
+    {
+        assertOpen();
+        try ( Writer<NumberKey,NumberValue> writer = tree.writer() )
+        {
+            for ( NodePropertyUpdate update : updates )
+            {
+                NativeSchemaNumberIndexUpdater.processUpdate( treeKey, update, writer );
+            }
+        }
+    }
+
+    @Override
+    public IndexUpdater newPopulatingUpdater( PropertyAccessor accessor ) throws IOException
+    {
+        assertOpen();
+        return new NativeSchemaNumberIndexUpdater( tree );
+    }
+
+    @Override
+    public synchronized void close( boolean populationCompletedSuccessfully ) throws IOException
+    {
+        try
+        {
+            if ( populationCompletedSuccessfully )
+            {
+                assertOpen();
+                tree.checkpoint( IOLimiter.unlimited(), NativeSchemaIndexHeader.writeState( BYTE_ONLINE ) );
+            }
+        }
+        finally
+        {
+            closeTree();
+        }
+    }
+
+    @Override
+    public synchronized void markAsFailed( String failure ) throws IOException
+    {
+        if ( tree == null )
+        {
+            instantiateTree( new NativeSchemaIndexHeader() );
+        }
+        tree.checkpoint( IOLimiter.unlimited(), NativeSchemaIndexHeader.writeFailure( failure ) );
+    }
+}
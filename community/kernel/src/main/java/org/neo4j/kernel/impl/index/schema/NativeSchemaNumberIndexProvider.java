@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+
+import org.neo4j.index.internal.gbptree.GBPTree;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.api.index.IndexAccessor;
+import org.neo4j.kernel.api.index.IndexConfiguration;
+import org.neo4j.kernel.api.index.IndexDescriptor;
+import org.neo4j.kernel.api.index.IndexPopulator;
+import org.neo4j.kernel.api.index.InternalIndexState;
+import org.neo4j.kernel.api.index.SchemaIndexProvider;
+import org.neo4j.kernel.impl.api.index.sampling.IndexSamplingConfig;
+import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider;
+import org.neo4j.kernel.impl.storemigration.StoreMigrationParticipant;
+import org.neo4j.logging.Log;
+import org.neo4j.logging.LogProvider;
+
+/**
+ * {@link SchemaIndexProvider} for native schema indexes of numbers, where each index is a {@link GBPTree}
+ * in its own file, accessed through the {@link PageCache}. Exact and range lookups go straight to the tree,
+ * without any intermediate caching or document materialization.
+ * <p>
+ * Only {@link Number numbers} can be indexed, which is why this provider typically is used as part of another
+ * provider, which routes other types of values elsewhere.
+ */
+public class NativeSchemaNumberIndexProvider extends SchemaIndexProvider
+{
+    public static final String KEY = "native";
+    public static final Descriptor NATIVE_PROVIDER_DESCRIPTOR = new Descriptor( KEY, "1.0" );
+
+    private final PageCache pageCache;
+    private final FileSystemAbstraction fs;
+    private final File nativeSchemaIndexBaseDir;
+    private final Log log;
+
+    public NativeSchemaNumberIndexProvider( PageCache pageCache, FileSystemAbstraction fs,
+            File nativeSchemaIndexBaseDir, LogProvider logging )
+    {
+        super( NATIVE_PROVIDER_DESCRIPTOR, 0 );
+        this.pageCache = pageCache;
+        this.fs = fs;
+        this.nativeSchemaIndexBaseDir = nativeSchemaIndexBaseDir;
+        this.log = logging.getLog( getClass() );
+    }
+
+    @Override
+    public IndexPopulator getPopulator( long indexId, IndexDescriptor descriptor, IndexConfiguration config,
+            IndexSamplingConfig samplingConfig )
+    {
+        File storeFile = nativeIndexFileFromIndexId( indexId );
+        NumberLayout layout = new NumberLayout();
+        return config.isUnique()
+               ? new UniqueNativeSchemaNumberIndexPopulator( pageCache, fs, storeFile, layout, descriptor )
+               : new NonUniqueNativeSchemaNumberIndexPopulator( pageCache, fs, storeFile, layout, samplingConfig );
+    }
+
+    @Override
+    public IndexAccessor getOnlineAccessor( long indexId, IndexConfiguration config,
+            IndexSamplingConfig samplingConfig ) throws IOException
+    {
+        File storeFile = nativeIndexFileFromIndexId( indexId );
+        return new NativeSchemaNumberIndexAccessor( pageCache, fs, storeFile, new NumberLayout(), samplingConfig );
+    }
+
+    @Override
+    public String getPopulationFailure( long indexId ) throws IllegalStateException
+    {
+        NativeSchemaIndexHeader header = new NativeSchemaIndexHeader();
+        try
+        {
+            GBPTree.readHeader( pageCache, nativeIndexFileFromIndexId( indexId ), header );
+        }
+        catch ( IOException e )
+        {
+            throw new IllegalStateException( "Couldn't read failure of index " + indexId, e );
+        }
+        if ( header.failureMessage() == null )
+        {
+            throw new IllegalStateException( "Index " + indexId + " isn't failed" );
+        }
+        return header.failureMessage();
+    }
+
+    @Override
+    public InternalIndexState getInitialState( long indexId )
+    {
+        NativeSchemaIndexHeader header = new NativeSchemaIndexHeader();
+        try
+        {
+            GBPTree.readHeader( pageCache, nativeIndexFileFromIndexId( indexId ), header );
+            return header.state();
+        }
+        catch ( NoSuchFileException e )
+        {
+            return InternalIndexState.POPULATING;
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            log.error( "Failed to open index:" + indexId + ", requesting re-population.", e );
+            return InternalIndexState.POPULATING;
+        }
+    }
+
+    @Override
+    public StoreMigrationParticipant storeMigrationParticipant( FileSystemAbstraction fs, PageCache pageCache,
+            LabelScanStoreProvider labelScanStoreProvider )
+    {
+        // Native schema indexes didn't exist in any earlier store format, so there's nothing to migrate
+        return StoreMigrationParticipant.NOT_PARTICIPATING;
+    }
+
+    private File nativeIndexFileFromIndexId( long indexId )
+    {
+        return new File( new File( nativeSchemaIndexBaseDir, String.valueOf( indexId ) ), "index-" + indexId );
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.neo4j.collection.primitive.PrimitiveLongCollections;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.cursor.RawCursor;
+import org.neo4j.index.internal.gbptree.GBPTree;
+import org.neo4j.index.internal.gbptree.Hit;
+import org.neo4j.kernel.impl.api.index.sampling.IndexSamplingConfig;
+import org.neo4j.storageengine.api.schema.IndexReader;
+import org.neo4j.storageengine.api.schema.IndexSampler;
+
+/**
+ * {@link IndexReader} for a native schema number index. Only number queries can produce hits, all string
+ * based queries return empty results since no strings are kept in this index.
+ */
+class NativeSchemaNumberIndexReader implements IndexReader
+{
+    private final GBPTree<NumberKey,NumberValue> tree;
+    private final NumberLayout layout;
+    private final IndexSamplingConfig samplingConfig;
+    private final Set<RawCursor<Hit<NumberKey,NumberValue>,IOException>> openSeekers = new HashSet<>();
+
+    NativeSchemaNumberIndexReader( GBPTree<NumberKey,NumberValue> tree, NumberLayout layout,
+            IndexSamplingConfig samplingConfig )
+    {
+        this.tree = tree;
+        this.layout = layout;
+        this.samplingConfig = samplingConfig;
+    }
+
+    @Override
+    public PrimitiveLongIterator seek( Object value )
+    {
+        if ( !(value instanceof Number) )
+        {
+            return PrimitiveLongCollections.emptyIterator();
+        }
+        double doubleValue = ((Number) value).doubleValue();
+        return startSeekForInitializedRange( lowest( doubleValue ), highest( doubleValue ) );
+    }
+
+    @Override
+    public PrimitiveLongIterator rangeSeekByNumberInclusive( Number lower, Number upper )
+    {
+        NumberKey from = lower == null ? lowest( Double.NEGATIVE_INFINITY ) : lowest( lower.doubleValue() );
+        NumberKey to = upper == null ? highest( Double.NaN ) : highest( upper.doubleValue() );
+        return startSeekForInitializedRange( from, to );
+    }
+
+    @Override
+    public boolean hasOrderedNumberRangeSeeks()
+    {
+        // keys are ordered by value first, so a range seek walks the tree in value order
+        return true;
+    }
+
+    @Override
+    public PrimitiveLongIterator rangeSeekByString( String lower, boolean includeLower, String upper,
+            boolean includeUpper )
+    {
+        return PrimitiveLongCollections.emptyIterator();
+    }
+
+    @Override
+    public PrimitiveLongIterator rangeSeekByPrefix( String prefix )
+    {
+        return PrimitiveLongCollections.emptyIterator();
+    }
+
+    @Override
+    public PrimitiveLongIterator scan()
+    {
+        NumberKey from = layout.newKey();
+        NumberKey to = layout.newKey();
+        from.initAsLowest();
+        to.initAsHighest();
+        return startSeekForInitializedRange( from, to );
+    }
+
+    @Override
+    public PrimitiveLongIterator containsString( String exactTerm )
+    {
+        return PrimitiveLongCollections.emptyIterator();
+    }
+
+    @Override
+    public PrimitiveLongIterator endsWith( String suffix )
+    {
+        return PrimitiveLongCollections.emptyIterator();
+    }
+
+    @Override
+    public long countIndexedNodes( long nodeId, Object propertyValue )
+    {
+        if ( !(propertyValue instanceof Number) )
+        {
+            return 0;
+        }
+        NumberKey from = layout.newKey();
+        NumberKey to = layout.newKey();
+        from.from( nodeId, propertyValue );
+        to.from( nodeId + 1, propertyValue );
+        try ( RawCursor<Hit<NumberKey,NumberValue>,IOException> seeker = tree.seek( from, to ) )
+        {
+            long count = 0;
+            while ( seeker.next() )
+            {
+                count++;
+            }
+            return count;
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    @Override
+    public IndexSampler createSampler()
+    {
+        return new FullScanNonUniqueIndexSampler( tree, layout, samplingConfig );
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            for ( RawCursor<Hit<NumberKey,NumberValue>,IOException> seeker : openSeekers )
+            {
+                seeker.close();
+            }
+            openSeekers.clear();
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    private NumberKey lowest( double value )
+    {
+        NumberKey key = layout.newKey();
+        key.initAsLowest( value );
+        return key;
+    }
+
+    private NumberKey highest( double value )
+    {
+        NumberKey key = layout.newKey();
+        key.initAsHighest( value );
+        return key;
+    }
+
+    private PrimitiveLongIterator startSeekForInitializedRange( NumberKey from, NumberKey to )
+    {
+        try
+        {
+            RawCursor<Hit<NumberKey,NumberValue>,IOException> seeker = tree.seek( from, to );
+            openSeekers.add( seeker );
+            return new NumberHitIterator( seeker, openSeekers );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neo4j.collection.primitive.PrimitiveLongSet;
+import org.neo4j.cursor.RawCursor;
+import org.neo4j.index.internal.gbptree.GBPTree;
+import org.neo4j.index.internal.gbptree.Hit;
+import org.neo4j.index.internal.gbptree.Writer;
+import org.neo4j.kernel.api.index.IndexUpdater;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
+
+/**
+ * {@link IndexUpdater} for a native schema number index, applying updates directly to the tree
+ * using its single {@link Writer}, which is held until this updater is closed.
+ * Updates are idempotent, which is required when applying updates during recovery.
+ */
+class NativeSchemaNumberIndexUpdater implements IndexUpdater
+{
+    private final GBPTree<NumberKey,NumberValue> tree;
+    private final Writer<NumberKey,NumberValue> writer;
+    private final NumberKey treeKey = new NumberKey();
+
+    NativeSchemaNumberIndexUpdater( GBPTree<NumberKey,NumberValue> tree ) throws IOException
+    {
+        this.tree = tree;
+        this.writer = tree.writer();
+    }
+
+    @Override
+    public void process( NodePropertyUpdate update ) throws IOException
+    {
+        processUpdate( treeKey, update, writer );
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        writer.close();
+    }
+
+    /**
+     * Removes entries of the given nodes. The values of those nodes aren't known and so this requires
+     * a scan of the whole index.
+     */
+    @Override
+    public void remove( PrimitiveLongSet nodeIds ) throws IOException
+    {
+        NumberKey from = new NumberKey();
+        NumberKey to = new NumberKey();
+        from.initAsLowest();
+        to.initAsHighest();
+        List<NumberKey> toRemove = new ArrayList<>();
+        try ( RawCursor<Hit<NumberKey,NumberValue>,IOException> seeker = tree.seek( from, to ) )
+        {
+            while ( seeker.next() )
+            {
+                NumberKey key = seeker.get().key();
+                if ( nodeIds.contains( key.entityId ) )
+                {
+                    toRemove.add( copy( key ) );
+                }
+            }
+        }
+        for ( NumberKey key : toRemove )
+        {
+            writer.remove( key );
+        }
+    }
+
+    private static NumberKey copy( NumberKey key )
+    {
+        NumberKey copy = new NumberKey();
+        copy.value = key.value;
+        copy.entityId = key.entityId;
+        return copy;
+    }
+
+    static void processUpdate( NumberKey treeKey, NodePropertyUpdate update, Writer<NumberKey,NumberValue> writer )
+            throws IOException
+    {
+        switch ( update.getUpdateMode() )
+        {
+        case ADDED:
+            treeKey.from( update.getNodeId(), update.getValueAfter() );
+            writer.put( treeKey, NumberValue.INSTANCE );
+            break;
+        case CHANGED:
+            treeKey.from( update.getNodeId(), update.getValueBefore() );
+            writer.remove( treeKey );
+            treeKey.from( update.getNodeId(), update.getValueAfter() );
+            writer.put( treeKey, NumberValue.INSTANCE );
+            break;
+        case REMOVED:
+            treeKey.from( update.getNodeId(), update.getValueBefore() );
+            writer.remove( treeKey );
+            break;
+        default:
+            throw new IllegalArgumentException( "Unknown update mode " + update.getUpdateMode() );
+        }
+    }
+}
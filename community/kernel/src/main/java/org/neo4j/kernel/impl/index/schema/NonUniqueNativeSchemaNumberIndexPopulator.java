@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
+import org.neo4j.kernel.api.index.PropertyAccessor;
+import org.neo4j.kernel.impl.api.index.sampling.IndexSamplingConfig;
+import org.neo4j.storageengine.api.schema.IndexSample;
+
+/**
+ * {@link NativeSchemaNumberIndexPopulator} for non-unique indexes, sampling values as they're added.
+ */
+class NonUniqueNativeSchemaNumberIndexPopulator extends NativeSchemaNumberIndexPopulator
+{
+    private final IndexSamplingConfig samplingConfig;
+
+    NonUniqueNativeSchemaNumberIndexPopulator( PageCache pageCache, FileSystemAbstraction fs, File storeFile,
+            NumberLayout layout, IndexSamplingConfig samplingConfig )
+    {
+        super( pageCache, fs, storeFile, layout );
+        this.samplingConfig = samplingConfig;
+    }
+
+    @Override
+    public void verifyDeferredConstraints( PropertyAccessor accessor ) throws IOException
+    {   // No constraints to verify for a non-unique index
+    }
+
+    @Override
+    public void includeSample( NodePropertyUpdate update )
+    {   // The full scan sampler is used instead, see sampleResult()
+    }
+
+    @Override
+    public IndexSample sampleResult()
+    {
+        // The tree is sorted by value, which makes a full scan of it a cheap and exact way of sampling
+        assertOpen();
+        return new FullScanNonUniqueIndexSampler( tree, layout, samplingConfig ).sampleIndex();
+    }
+}
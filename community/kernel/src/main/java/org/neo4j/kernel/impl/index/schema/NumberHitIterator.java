@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+
+import org.neo4j.collection.primitive.PrimitiveLongCollections;
+import org.neo4j.cursor.RawCursor;
+import org.neo4j.index.internal.gbptree.Hit;
+
+/**
+ * Iterates over the entity ids of hits from a seek in a native schema number index.
+ * The underlying seeker is closed when exhausted, or when the reader which created it is closed.
+ */
+class NumberHitIterator extends PrimitiveLongCollections.PrimitiveLongBaseIterator
+{
+    private final RawCursor<Hit<NumberKey,NumberValue>,IOException> seeker;
+    private final Collection<RawCursor<Hit<NumberKey,NumberValue>,IOException>> toRemoveFromOnClose;
+    private boolean closed;
+
+    NumberHitIterator( RawCursor<Hit<NumberKey,NumberValue>,IOException> seeker,
+            Collection<RawCursor<Hit<NumberKey,NumberValue>,IOException>> toRemoveFromOnClose )
+    {
+        this.seeker = seeker;
+        this.toRemoveFromOnClose = toRemoveFromOnClose;
+    }
+
+    @Override
+    protected boolean fetchNext()
+    {
+        try
+        {
+            if ( !closed && seeker.next() )
+            {
+                return next( seeker.get().key().entityId );
+            }
+            ensureCursorClosed();
+            return false;
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    private void ensureCursorClosed() throws IOException
+    {
+        if ( !closed )
+        {
+            seeker.close();
+            toRemoveFromOnClose.remove( seeker );
+            closed = true;
+        }
+    }
+}
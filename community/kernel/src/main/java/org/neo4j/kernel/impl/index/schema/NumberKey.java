@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+/**
+ * Key in a native schema number index, consisting of the property value, as a double, and the id of the node
+ * which has that value. Having the entity id in the key makes all keys unique, also in non-unique indexes,
+ * and keeps entries of the same value ordered by entity id.
+ * <p>
+ * All numbers are compared by their double representation, same as the Lucene schema index does.
+ */
+class NumberKey
+{
+    static final int SIZE = Double.BYTES + Long.BYTES;
+
+    double value;
+    long entityId;
+
+    void from( long entityId, Object value )
+    {
+        this.value = ((Number) value).doubleValue();
+        this.entityId = entityId;
+    }
+
+    void initAsLowest( double value )
+    {
+        this.value = value;
+        this.entityId = Long.MIN_VALUE;
+    }
+
+    void initAsHighest( double value )
+    {
+        this.value = value;
+        this.entityId = Long.MAX_VALUE;
+    }
+
+    void initAsLowest()
+    {
+        initAsLowest( Double.NEGATIVE_INFINITY );
+    }
+
+    void initAsHighest()
+    {
+        // NaN is ordered after all other doubles
+        initAsHighest( Double.NaN );
+    }
+
+    @Override
+    public String toString()
+    {
+        return "value=" + value + ",entityId=" + entityId;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import org.neo4j.index.internal.gbptree.Layout;
+import org.neo4j.io.pagecache.PageCursor;
+
+/**
+ * {@link Layout} for numbers where numbers are stored as doubles together with the node id, making it
+ * possible to have multiple nodes with the same value.
+ */
+class NumberLayout extends Layout.Adapter<NumberKey,NumberValue>
+{
+    private static final long IDENTIFIER = Layout.namedIdentifier( "NUMI", NumberValue.SIZE );
+    private static final int MAJOR_VERSION = 0;
+    private static final int MINOR_VERSION = 1;
+
+    @Override
+    public NumberKey newKey()
+    {
+        return new NumberKey();
+    }
+
+    @Override
+    public NumberKey copyKey( NumberKey key, NumberKey into )
+    {
+        into.value = key.value;
+        into.entityId = key.entityId;
+        return into;
+    }
+
+    @Override
+    public NumberValue newValue()
+    {
+        return NumberValue.INSTANCE;
+    }
+
+    @Override
+    public int keySize()
+    {
+        return NumberKey.SIZE;
+    }
+
+    @Override
+    public int valueSize()
+    {
+        return NumberValue.SIZE;
+    }
+
+    @Override
+    public void writeKey( PageCursor cursor, NumberKey key )
+    {
+        cursor.putLong( Double.doubleToLongBits( key.value ) );
+        cursor.putLong( key.entityId );
+    }
+
+    @Override
+    public void writeValue( PageCursor cursor, NumberValue value )
+    {   // No data in the value
+    }
+
+    @Override
+    public void readKey( PageCursor cursor, NumberKey into )
+    {
+        into.value = Double.longBitsToDouble( cursor.getLong() );
+        into.entityId = cursor.getLong();
+    }
+
+    @Override
+    public void readValue( PageCursor cursor, NumberValue into )
+    {   // No data in the value
+    }
+
+    @Override
+    public long identifier()
+    {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public int majorVersion()
+    {
+        return MAJOR_VERSION;
+    }
+
+    @Override
+    public int minorVersion()
+    {
+        return MINOR_VERSION;
+    }
+
+    @Override
+    public int compare( NumberKey o1, NumberKey o2 )
+    {
+        int comparison = Double.compare( o1.value, o2.value );
+        return comparison != 0 ? comparison : Long.compare( o1.entityId, o2.entityId );
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+/**
+ * Value in a native schema number index. Everything needed is kept in the {@link NumberKey} so this value
+ * has no data and takes no space in the tree. It's here to make room for future additions to the format.
+ */
+class NumberValue
+{
+    static final int SIZE = 0;
+
+    static final NumberValue INSTANCE = new NumberValue();
+
+    @Override
+    public String toString()
+    {
+        return "[]";
+    }
+}
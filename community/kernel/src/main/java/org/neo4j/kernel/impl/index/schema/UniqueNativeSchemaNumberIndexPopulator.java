@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neo4j.collection.primitive.PrimitiveLongSet;
+import org.neo4j.cursor.RawCursor;
+import org.neo4j.index.internal.gbptree.Hit;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.api.exceptions.KernelException;
+import org.neo4j.kernel.api.exceptions.index.IndexEntryConflictException;
+import org.neo4j.kernel.api.index.IndexDescriptor;
+import org.neo4j.kernel.api.index.IndexUpdater;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
+import org.neo4j.kernel.api.index.PreexistingIndexEntryConflictException;
+import org.neo4j.kernel.api.index.PropertyAccessor;
+import org.neo4j.kernel.api.properties.Property;
+import org.neo4j.kernel.impl.api.index.UpdateMode;
+import org.neo4j.kernel.impl.api.index.sampling.UniqueIndexSampler;
+import org.neo4j.storageengine.api.schema.IndexSample;
+
+/**
+ * {@link NativeSchemaNumberIndexPopulator} for unique indexes. Entries with the same value are placed next to
+ * each other in the tree, so uniqueness is verified by looking at runs of equal values, comparing the actual
+ * property values of the nodes in such a run.
+ */
+class UniqueNativeSchemaNumberIndexPopulator extends NativeSchemaNumberIndexPopulator
+{
+    private final int propertyKeyId;
+    private final UniqueIndexSampler sampler = new UniqueIndexSampler();
+
+    UniqueNativeSchemaNumberIndexPopulator( PageCache pageCache, FileSystemAbstraction fs, File storeFile,
+            NumberLayout layout, IndexDescriptor descriptor )
+    {
+        super( pageCache, fs, storeFile, layout );
+        this.propertyKeyId = descriptor.getPropertyKeyId();
+    }
+
+    @Override
+    public void verifyDeferredConstraints( PropertyAccessor accessor ) throws IndexEntryConflictException, IOException
+    {
+        NumberKey from = layout.newKey();
+        NumberKey to = layout.newKey();
+        from.initAsLowest();
+        to.initAsHighest();
+        verifyUniqueness( accessor, from, to );
+    }
+
+    @Override
+    public IndexUpdater newPopulatingUpdater( PropertyAccessor accessor ) throws IOException
+    {
+        IndexUpdater actual = super.newPopulatingUpdater( accessor );
+        return new IndexUpdater()
+        {
+            private final List<Object> updatedValues = new ArrayList<>();
+
+            @Override
+            public void process( NodePropertyUpdate update ) throws IOException, IndexEntryConflictException
+            {
+                actual.process( update );
+                if ( update.getUpdateMode() == UpdateMode.ADDED )
+                {
+                    sampler.increment( 1 );
+                }
+                else if ( update.getUpdateMode() == UpdateMode.REMOVED )
+                {
+                    sampler.increment( -1 );
+                }
+                if ( update.getUpdateMode() != UpdateMode.REMOVED )
+                {
+                    updatedValues.add( update.getValueAfter() );
+                }
+            }
+
+            @Override
+            public void close() throws IOException, IndexEntryConflictException
+            {
+                actual.close();
+                NumberKey from = layout.newKey();
+                NumberKey to = layout.newKey();
+                for ( Object value : updatedValues )
+                {
+                    double doubleValue = ((Number) value).doubleValue();
+                    from.initAsLowest( doubleValue );
+                    to.initAsHighest( doubleValue );
+                    verifyUniqueness( accessor, from, to );
+                }
+            }
+
+            @Override
+            public void remove( PrimitiveLongSet nodeIds ) throws IOException
+            {
+                actual.remove( nodeIds );
+            }
+        };
+    }
+
+    private void verifyUniqueness( PropertyAccessor accessor, NumberKey from, NumberKey to )
+            throws IOException, IndexEntryConflictException
+    {
+        assertOpen();
+        try ( RawCursor<Hit<NumberKey,NumberValue>,IOException> seek = tree.seek( from, to ) )
+        {
+            List<Property> run = new ArrayList<>();
+            List<Long> runNodeIds = new ArrayList<>();
+            double prevValue = Double.NaN;
+            while ( seek.next() )
+            {
+                NumberKey key = seek.get().key();
+                if ( run.isEmpty() || Double.compare( key.value, prevValue ) != 0 )
+                {
+                    run.clear();
+                    runNodeIds.clear();
+                }
+                Property property = property( accessor, key.entityId );
+                for ( int i = 0; i < run.size(); i++ )
+                {
+                    if ( property.valueEquals( value( run.get( i ) ) ) )
+                    {
+                        throw new PreexistingIndexEntryConflictException( value( run.get( i ) ),
+                                runNodeIds.get( i ), key.entityId );
+                    }
+                }
+                run.add( property );
+                runNodeIds.add( key.entityId );
+                prevValue = key.value;
+            }
+        }
+    }
+
+    private Property property( PropertyAccessor accessor, long nodeId )
+    {
+        try
+        {
+            return accessor.getProperty( nodeId, propertyKeyId );
+        }
+        catch ( KernelException e )
+        {
+            throw new IllegalStateException( "Indexed node should exist and have the indexed property.", e );
+        }
+    }
+
+    private static Object value( Property property )
+    {
+        try
+        {
+            return property.value();
+        }
+        catch ( KernelException e )
+        {
+            throw new IllegalStateException( "Indexed node should exist and have the indexed property.", e );
+        }
+    }
+
+    @Override
+    public void includeSample( NodePropertyUpdate update )
+    {
+        sampler.increment( 1 );
+    }
+
+    @Override
+    public IndexSample sampleResult()
+    {
+        return sampler.result();
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema.fusion;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.neo4j.kernel.api.exceptions.index.IndexEntryConflictException;
+import org.neo4j.kernel.api.index.IndexPopulator;
+import org.neo4j.kernel.api.index.IndexUpdater;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
+import org.neo4j.kernel.api.index.PropertyAccessor;
+import org.neo4j.kernel.impl.index.schema.fusion.FusionSchemaIndexProvider.Selector;
+import org.neo4j.storageengine.api.schema.IndexSample;
+
+import static org.neo4j.kernel.impl.index.schema.fusion.FusionIndexSampler.combineSamples;
+
+class FusionIndexPopulator implements IndexPopulator
+{
+    private final IndexPopulator nativePopulator;
+    private final IndexPopulator lucenePopulator;
+    private final Selector selector;
+
+    FusionIndexPopulator( IndexPopulator nativePopulator, IndexPopulator lucenePopulator, Selector selector )
+    {
+        this.nativePopulator = nativePopulator;
+        this.lucenePopulator = lucenePopulator;
+        this.selector = selector;
+    }
+
+    @Override
+    public void create() throws IOException
+    {
+        nativePopulator.create();
+        lucenePopulator.create();
+    }
+
+    @Override
+    public void drop() throws IOException
+    {
+        try
+        {
+            nativePopulator.drop();
+        }
+        finally
+        {
+            lucenePopulator.drop();
+        }
+    }
+
+    @Override
+    public void add( Collection<NodePropertyUpdate> updates ) throws IndexEntryConflictException, IOException
+    {
+        Collection<NodePropertyUpdate> nativeUpdates = new ArrayList<>();
+        Collection<NodePropertyUpdate> luceneUpdates = new ArrayList<>();
+        for ( NodePropertyUpdate update : updates )
+        {
+            selector.select( nativeUpdates, luceneUpdates, update.getValueAfter() ).add( update );
+        }
+        if ( !nativeUpdates.isEmpty() )
+        {
+            nativePopulator.add( nativeUpdates );
+        }
+        if ( !luceneUpdates.isEmpty() )
+        {
+            lucenePopulator.add( luceneUpdates );
+        }
+    }
+
+    @Override
+    public void verifyDeferredConstraints( PropertyAccessor accessor ) throws IndexEntryConflictException, IOException
+    {
+        nativePopulator.verifyDeferredConstraints( accessor );
+        lucenePopulator.verifyDeferredConstraints( accessor );
+    }
+
+    @Override
+    public IndexUpdater newPopulatingUpdater( PropertyAccessor accessor ) throws IOException
+    {
+        IndexUpdater nativeUpdater = nativePopulator.newPopulatingUpdater( accessor );
+        try
+        {
+            return new FusionIndexUpdater( nativeUpdater, lucenePopulator.newPopulatingUpdater( accessor ),
+                    selector );
+        }
+        catch ( Throwable t )
+        {
+            closeAfterFailure( nativeUpdater, t );
+            throw t;
+        }
+    }
+
+    @Override
+    public void close( boolean populationCompletedSuccessfully ) throws IOException
+    {
+        try
+        {
+            nativePopulator.close( populationCompletedSuccessfully );
+        }
+        finally
+        {
+            lucenePopulator.close( populationCompletedSuccessfully );
+        }
+    }
+
+    @Override
+    public void markAsFailed( String failure ) throws IOException
+    {
+        try
+        {
+            nativePopulator.markAsFailed( failure );
+        }
+        finally
+        {
+            lucenePopulator.markAsFailed( failure );
+        }
+    }
+
+    @Override
+    public void includeSample( NodePropertyUpdate update )
+    {
+        selector.select( nativePopulator, lucenePopulator, update.getValueAfter() ).includeSample( update );
+    }
+
+    @Override
+    public IndexSample sampleResult()
+    {
+        return combineSamples( nativePopulator.sampleResult(), lucenePopulator.sampleResult() );
+    }
+
+    static void closeAfterFailure( IndexUpdater updater, Throwable failure )
+    {
+        try
+        {
+            updater.close();
+        }
+        catch ( Throwable t )
+        {
+            failure.addSuppressed( t );
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema.fusion;
+
+import org.neo4j.collection.primitive.PrimitiveLongCollections;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.kernel.impl.index.schema.fusion.FusionSchemaIndexProvider.Selector;
+import org.neo4j.storageengine.api.schema.IndexReader;
+import org.neo4j.storageengine.api.schema.IndexSampler;
+
+import static java.util.Arrays.asList;
+
+/**
+ * {@link IndexReader} of a fused index. Queries for a specific value go to the part holding that value,
+ * queries for numbers to the native part and string queries to the lucene part.
+ */
+class FusionIndexReader implements IndexReader
+{
+    private final IndexReader nativeReader;
+    private final IndexReader luceneReader;
+    private final Selector selector;
+
+    FusionIndexReader( IndexReader nativeReader, IndexReader luceneReader, Selector selector )
+    {
+        this.nativeReader = nativeReader;
+        this.luceneReader = luceneReader;
+        this.selector = selector;
+    }
+
+    @Override
+    public PrimitiveLongIterator seek( Object value )
+    {
+        return selector.select( nativeReader, luceneReader, value ).seek( value );
+    }
+
+    @Override
+    public PrimitiveLongIterator rangeSeekByNumberInclusive( Number lower, Number upper )
+    {
+        return nativeReader.rangeSeekByNumberInclusive( lower, upper );
+    }
+
+    @Override
+    public boolean hasOrderedNumberRangeSeeks()
+    {
+        return nativeReader.hasOrderedNumberRangeSeeks();
+    }
+
+    @Override
+    public PrimitiveLongIterator rangeSeekByString( String lower, boolean includeLower, String upper,
+            boolean includeUpper )
+    {
+        return luceneReader.rangeSeekByString( lower, includeLower, upper, includeUpper );
+    }
+
+    @Override
+    public PrimitiveLongIterator rangeSeekByPrefix( String prefix )
+    {
+        return luceneReader.rangeSeekByPrefix( prefix );
+    }
+
+    @Override
+    public PrimitiveLongIterator scan()
+    {
+        return PrimitiveLongCollections.concat( asList( nativeReader.scan(), luceneReader.scan() ) );
+    }
+
+    @Override
+    public PrimitiveLongIterator containsString( String exactTerm )
+    {
+        return luceneReader.containsString( exactTerm );
+    }
+
+    @Override
+    public PrimitiveLongIterator endsWith( String suffix )
+    {
+        return luceneReader.endsWith( suffix );
+    }
+
+    @Override
+    public long countIndexedNodes( long nodeId, Object propertyValue )
+    {
+        return selector.select( nativeReader, luceneReader, propertyValue ).countIndexedNodes( nodeId,
+                propertyValue );
+    }
+
+    @Override
+    public IndexSampler createSampler()
+    {
+        return new FusionIndexSampler( nativeReader.createSampler(), luceneReader.createSampler() );
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            nativeReader.close();
+        }
+        finally
+        {
+            luceneReader.close();
+        }
+    }
+}
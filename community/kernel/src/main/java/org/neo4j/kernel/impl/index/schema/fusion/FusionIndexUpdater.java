@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema.fusion;
+
+import java.io.IOException;
+
+import org.neo4j.collection.primitive.PrimitiveLongSet;
+import org.neo4j.kernel.api.exceptions.index.IndexEntryConflictException;
+import org.neo4j.kernel.api.index.IndexUpdater;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
+import org.neo4j.kernel.impl.index.schema.fusion.FusionSchemaIndexProvider.Selector;
+
+/**
+ * {@link IndexUpdater} routing each update to the part of the fused index its value belongs to.
+ * A change of value which moves a node from one part to the other is split into a removal and an addition.
+ */
+class FusionIndexUpdater implements IndexUpdater
+{
+    private final IndexUpdater nativeUpdater;
+    private final IndexUpdater luceneUpdater;
+    private final Selector selector;
+
+    FusionIndexUpdater( IndexUpdater nativeUpdater, IndexUpdater luceneUpdater, Selector selector )
+    {
+        this.nativeUpdater = nativeUpdater;
+        this.luceneUpdater = luceneUpdater;
+        this.selector = selector;
+    }
+
+    @Override
+    public void process( NodePropertyUpdate update ) throws IOException, IndexEntryConflictException
+    {
+        switch ( update.getUpdateMode() )
+        {
+        case ADDED:
+            selector.select( nativeUpdater, luceneUpdater, update.getValueAfter() ).process( update );
+            break;
+        case CHANGED:
+            IndexUpdater from = selector.select( nativeUpdater, luceneUpdater, update.getValueBefore() );
+            IndexUpdater to = selector.select( nativeUpdater, luceneUpdater, update.getValueAfter() );
+            if ( from == to )
+            {
+                from.process( update );
+            }
+            else
+            {
+                from.process( NodePropertyUpdate.remove( update.getNodeId(), update.getPropertyKeyId(),
+                        update.getValueBefore(), labelsBefore( update ) ) );
+                to.process( NodePropertyUpdate.add( update.getNodeId(), update.getPropertyKeyId(),
+                        update.getValueAfter(), labelsAfter( update ) ) );
+            }
+            break;
+        case REMOVED:
+            selector.select( nativeUpdater, luceneUpdater, update.getValueBefore() ).process( update );
+            break;
+        default:
+            throw new IllegalArgumentException( "Unknown update mode " + update.getUpdateMode() );
+        }
+    }
+
+    private static long[] labelsBefore( NodePropertyUpdate update )
+    {
+        long[] labels = new long[update.getNumberOfLabelsBefore()];
+        for ( int i = 0; i < labels.length; i++ )
+        {
+            labels[i] = update.getLabelBefore( i );
+        }
+        return labels;
+    }
+
+    private static long[] labelsAfter( NodePropertyUpdate update )
+    {
+        long[] labels = new long[update.getNumberOfLabelsAfter()];
+        for ( int i = 0; i < labels.length; i++ )
+        {
+            labels[i] = update.getLabelAfter( i );
+        }
+        return labels;
+    }
+
+    @Override
+    public void close() throws IOException, IndexEntryConflictException
+    {
+        try
+        {
+            nativeUpdater.close();
+        }
+        finally
+        {
+            luceneUpdater.close();
+        }
+    }
+
+    @Override
+    public void remove( PrimitiveLongSet nodeIds ) throws IOException
+    {
+        nativeUpdater.remove( nodeIds );
+        luceneUpdater.remove( nodeIds );
+    }
+}
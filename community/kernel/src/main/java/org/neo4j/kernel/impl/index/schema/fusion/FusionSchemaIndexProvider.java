@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema.fusion;
+
+import java.io.IOException;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.api.index.IndexAccessor;
+import org.neo4j.kernel.api.index.IndexConfiguration;
+import org.neo4j.kernel.api.index.IndexDescriptor;
+import org.neo4j.kernel.api.index.IndexPopulator;
+import org.neo4j.kernel.api.index.InternalIndexState;
+import org.neo4j.kernel.api.index.SchemaIndexProvider;
+import org.neo4j.kernel.impl.api.index.sampling.IndexSamplingConfig;
+import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider;
+import org.neo4j.kernel.impl.storemigration.StoreMigrationParticipant;
+
+/**
+ * {@link SchemaIndexProvider} which fuses two other providers into one, where each value goes to one of them,
+ * as decided by a {@link Selector}. Typically a native provider, which is fast for the types of values it
+ * supports, is fused with a provider which supports all types of values.
+ */
+public class FusionSchemaIndexProvider extends SchemaIndexProvider
+{
+    /**
+     * Decides which of the two fused parts a value belongs to.
+     */
+    public interface Selector
+    {
+        <T> T select( T nativeInstance, T luceneInstance, Object value );
+    }
+
+    private final SchemaIndexProvider nativeProvider;
+    private final SchemaIndexProvider luceneProvider;
+    private final Selector selector;
+
+    public FusionSchemaIndexProvider( SchemaIndexProvider nativeProvider, SchemaIndexProvider luceneProvider,
+            Selector selector, Descriptor descriptor, int priority )
+    {
+        super( descriptor, priority );
+        this.nativeProvider = nativeProvider;
+        this.luceneProvider = luceneProvider;
+        this.selector = selector;
+    }
+
+    @Override
+    public IndexPopulator getPopulator( long indexId, IndexDescriptor descriptor, IndexConfiguration config,
+            IndexSamplingConfig samplingConfig )
+    {
+        return new FusionIndexPopulator(
+                nativeProvider.getPopulator( indexId, descriptor, config, samplingConfig ),
+                luceneProvider.getPopulator( indexId, descriptor, config, samplingConfig ), selector );
+    }
+
+    @Override
+    public IndexAccessor getOnlineAccessor( long indexId, IndexConfiguration config,
+            IndexSamplingConfig samplingConfig ) throws IOException
+    {
+        IndexAccessor nativeAccessor = nativeProvider.getOnlineAccessor( indexId, config, samplingConfig );
+        try
+        {
+            return new FusionIndexAccessor( nativeAccessor,
+                    luceneProvider.getOnlineAccessor( indexId, config, samplingConfig ), selector );
+        }
+        catch ( Throwable t )
+        {
+            nativeAccessor.close();
+            throw t;
+        }
+    }
+
+    @Override
+    public String getPopulationFailure( long indexId ) throws IllegalStateException
+    {
+        String nativeFailure = null;
+        try
+        {
+            nativeFailure = nativeProvider.getPopulationFailure( indexId );
+        }
+        catch ( IllegalStateException e )
+        {   // Just catch
+        }
+        String luceneFailure = null;
+        try
+        {
+            luceneFailure = luceneProvider.getPopulationFailure( indexId );
+        }
+        catch ( IllegalStateException e )
+        {   // Just catch
+        }
+
+        if ( nativeFailure != null || luceneFailure != null )
+        {
+            return "native: " + nativeFailure + " lucene: " + luceneFailure;
+        }
+        throw new IllegalStateException( "None of the indexes were in a failed state" );
+    }
+
+    @Override
+    public InternalIndexState getInitialState( long indexId )
+    {
+        InternalIndexState nativeState = nativeProvider.getInitialState( indexId );
+        InternalIndexState luceneState = luceneProvider.getInitialState( indexId );
+        if ( nativeState == InternalIndexState.FAILED || luceneState == InternalIndexState.FAILED )
+        {
+            // One of the parts failed, which means the whole index failed
+            return InternalIndexState.FAILED;
+        }
+        if ( nativeState == InternalIndexState.POPULATING || luceneState == InternalIndexState.POPULATING )
+        {
+            // Both parts are needed, so re-populate if any of them isn't complete
+            return InternalIndexState.POPULATING;
+        }
+        return InternalIndexState.ONLINE;
+    }
+
+    @Override
+    public StoreMigrationParticipant storeMigrationParticipant( FileSystemAbstraction fs, PageCache pageCache,
+            LabelScanStoreProvider labelScanStoreProvider )
+    {
+        // The native part has no earlier formats, migration is only a matter for the lucene part
+        return luceneProvider.storeMigrationParticipant( fs, pageCache, labelScanStoreProvider );
+    }
+
+    @Override
+    public void init() throws Throwable
+    {
+        nativeProvider.init();
+        luceneProvider.init();
+    }
+
+    @Override
+    public void start() throws Throwable
+    {
+        nativeProvider.start();
+        luceneProvider.start();
+    }
+
+    @Override
+    public void stop() throws Throwable
+    {
+        luceneProvider.stop();
+        nativeProvider.stop();
+    }
+
+    @Override
+    public void shutdown() throws Throwable
+    {
+        luceneProvider.shutdown();
+        nativeProvider.shutdown();
+    }
+}
@@ -32,6 +32,7 @@ import org.neo4j.kernel.impl.util.OsBeanUtil;
 import org.neo4j.logging.Log;
 
 import static org.neo4j.graphdb.factory.GraphDatabaseSettings.mapped_memory_page_size;
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_flush_threads;
 import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_memory;
 import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_swapper;
 
@@ -97,7 +98,8 @@ public class ConfiguringPageCacheFactory
                 swapperFactory,
                 maxPages,
                 cachePageSize,
-                tracer );
+                tracer,
+                config.get( pagecache_flush_threads ) );
     }
 
     public int calculateMaxPages( Config config, int cachePageSize )
@@ -39,7 +39,7 @@ public class RecordStorageCommandReaderFactory implements CommandReaderFactory
 
     public RecordStorageCommandReaderFactory()
     {
-        readers = new CommandReader[10]; // pessimistic size
+        readers = new CommandReader[11]; // pessimistic size
         readers[-LogEntryVersion.V2_0.byteCode()] = new PhysicalLogCommandReaderV2_0();
         readers[-LogEntryVersion.V2_1.byteCode()] = new PhysicalLogCommandReaderV2_1();
         readers[-LogEntryVersion.V2_2.byteCode()] = new PhysicalLogCommandReaderV2_2();
@@ -49,6 +49,7 @@ public class RecordStorageCommandReaderFactory implements CommandReaderFactory
         readers[-LogEntryVersion.V2_2_10.byteCode()] = new PhysicalLogCommandReaderV2_2_10();
         readers[-LogEntryVersion.V2_3_5.byteCode()] = new PhysicalLogCommandReaderV2_2_10();
         readers[-LogEntryVersion.V3_0_2.byteCode()] = new PhysicalLogCommandReaderV3_0_2();
+        readers[-LogEntryVersion.V3_1.byteCode()] = new PhysicalLogCommandReaderV3_0_2();
 
         // A little extra safety check so that we got 'em all
         LogEntryVersion[] versions = LogEntryVersion.values();
@@ -25,6 +25,9 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.function.Supplier;
 
 import org.neo4j.concurrent.WorkSync;
@@ -37,7 +40,6 @@ import org.neo4j.kernel.api.TokenNameLookup;
 import org.neo4j.kernel.api.exceptions.TransactionFailureException;
 import org.neo4j.kernel.api.exceptions.schema.ConstraintValidationKernelException;
 import org.neo4j.kernel.api.exceptions.schema.CreateConstraintFailureException;
-import org.neo4j.kernel.api.index.SchemaIndexProvider;
 import org.neo4j.kernel.api.labelscan.LabelScanStore;
 import org.neo4j.kernel.api.labelscan.LabelScanWriter;
 import org.neo4j.kernel.api.txstate.TransactionCountingStateVisitor;
@@ -56,6 +58,8 @@ import org.neo4j.kernel.impl.api.TransactionApplierFacade;
 import org.neo4j.kernel.impl.api.index.IndexingService;
 import org.neo4j.kernel.impl.api.index.IndexingServiceFactory;
 import org.neo4j.kernel.impl.api.index.PropertyPhysicalToLogicalConverter;
+import org.neo4j.kernel.impl.api.index.SchemaIndexProviderMap;
+import org.neo4j.kernel.impl.api.index.sampling.IndexHistogramStore;
 import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider;
 import org.neo4j.kernel.impl.api.store.CacheLayer;
 import org.neo4j.kernel.impl.api.store.DiskLayer;
@@ -90,7 +94,7 @@ import org.neo4j.kernel.impl.transaction.command.IndexBatchTransactionApplier;
 import org.neo4j.kernel.impl.transaction.command.IndexUpdatesWork;
 import org.neo4j.kernel.impl.transaction.command.LabelUpdateWork;
 import org.neo4j.kernel.impl.transaction.command.NeoStoreBatchTransactionApplier;
-import org.neo4j.kernel.impl.transaction.state.DefaultSchemaIndexProviderMap;
+import org.neo4j.kernel.impl.transaction.command.ParallelNeoStoreBatchTransactionApplier;
 import org.neo4j.kernel.impl.transaction.state.IntegrityValidator;
 import org.neo4j.kernel.impl.transaction.state.Loaders;
 import org.neo4j.kernel.impl.transaction.state.NeoStoreIndexStoreView;
@@ -124,6 +128,7 @@ import org.neo4j.storageengine.api.txstate.ReadableTransactionState;
 import org.neo4j.storageengine.api.txstate.TxStateVisitor;
 import org.neo4j.unsafe.impl.internal.dragons.FeatureToggles;
 
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.neo4j.kernel.impl.locking.LockService.NO_LOCK_SERVICE;
 
 public class RecordStorageEngine implements StorageEngine, Lifecycle
@@ -145,7 +150,7 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
     private final IntegrityValidator integrityValidator;
     private final CacheAccessBackDoor cacheAccess;
     private final LabelScanStore labelScanStore;
-    private final DefaultSchemaIndexProviderMap schemaIndexProviderMap;
+    private final SchemaIndexProviderMap schemaIndexProviderMap;
     private final LegacyIndexApplierLookup legacyIndexApplierLookup;
     private final Runnable schemaStateChangeCallback;
     private final SchemaStorage schemaStorage;
@@ -161,6 +166,8 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
     private final PropertyPhysicalToLogicalConverter indexUpdatesConverter;
     private final Supplier<StorageStatement> storeStatementSupplier;
     private final IdController idController;
+    private final int recoveryParallelism;
+    private ExecutorService recoveryApplierExecutor;
 
     // Immutable state for creating/applying commands
     private final Loaders loaders;
@@ -186,7 +193,7 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
             JobScheduler scheduler,
             TokenNameLookup tokenNameLookup,
             LockService lockService,
-            SchemaIndexProvider indexProvider,
+            SchemaIndexProviderMap indexProviderMap,
             IndexingService.Monitor indexingServiceMonitor,
             DatabaseHealth databaseHealth,
             LabelScanStoreProvider labelScanStoreProvider,
@@ -206,6 +213,7 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
         this.indexConfigStore = indexConfigStore;
         this.constraintSemantics = constraintSemantics;
         this.legacyIndexTransactionOrdering = legacyIndexTransactionOrdering;
+        this.recoveryParallelism = config.get( GraphDatabaseSettings.recovery_parallelism );
 
         this.idController = createStorageIdController( idGeneratorFactory, eligibleForReuse,
             idTypeConfigurationProvider, transactionsSnapshotSupplier );
@@ -218,8 +226,9 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
             schemaCache = new SchemaCache( constraintSemantics, Collections.emptyList() );
             schemaStorage = new SchemaStorage( neoStores.getSchemaStore() );
 
-            schemaIndexProviderMap = new DefaultSchemaIndexProviderMap( indexProvider );
-            indexStoreView = new NeoStoreIndexStoreView( lockService, neoStores );
+            schemaIndexProviderMap = indexProviderMap;
+            indexStoreView = new NeoStoreIndexStoreView( lockService, neoStores,
+                    new IndexHistogramStore( fs, storeDir ) );
             indexingService = IndexingServiceFactory.createIndexingService( config, scheduler, schemaIndexProviderMap,
                     indexStoreView, tokenNameLookup,
                     Iterators.asList( new SchemaStorage( neoStores.getSchemaStore() ).allIndexRules() ), logProvider,
@@ -368,7 +377,15 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
     {
         ArrayList<BatchTransactionApplier> appliers = new ArrayList<>();
         // Graph store application. The order of the decorated store appliers is irrelevant
-        appliers.add( new NeoStoreBatchTransactionApplier( neoStores, cacheAccess, lockService ) );
+        if ( mode == TransactionApplicationMode.RECOVERY && recoveryParallelism > 1 )
+        {
+            appliers.add( new ParallelNeoStoreBatchTransactionApplier( neoStores, cacheAccess, lockService,
+                    recoveryApplierExecutor() ) );
+        }
+        else
+        {
+            appliers.add( new NeoStoreBatchTransactionApplier( neoStores, cacheAccess, lockService ) );
+        }
         if ( mode.needsHighIdTracking() )
         {
             appliers.add( new HighIdBatchTransactionApplier( neoStores ) );
@@ -464,6 +481,33 @@ public class RecordStorageEngine implements StorageEngine, Lifecycle
         labelScanStore.shutdown();
         indexingService.shutdown();
         neoStores.close();
+        shutdownRecoveryApplierExecutor();
+    }
+
+    /**
+     * The executor applying recovered transactions in parallel is shared by all recovery batches. Its threads
+     * time out when idle, so that they don't linger once recovery has completed.
+     */
+    private synchronized ExecutorService recoveryApplierExecutor()
+    {
+        if ( recoveryApplierExecutor == null )
+        {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor( recoveryParallelism, recoveryParallelism,
+                    10, SECONDS, new LinkedBlockingQueue<>(),
+                    scheduler.threadFactory( JobScheduler.Groups.recoveryApplier ) );
+            executor.allowCoreThreadTimeOut( true );
+            recoveryApplierExecutor = executor;
+        }
+        return recoveryApplierExecutor;
+    }
+
+    private synchronized void shutdownRecoveryApplierExecutor()
+    {
+        if ( recoveryApplierExecutor != null )
+        {
+            recoveryApplierExecutor.shutdown();
+            recoveryApplierExecutor = null;
+        }
     }
 
     @Override
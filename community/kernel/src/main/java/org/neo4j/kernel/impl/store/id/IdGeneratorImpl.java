@@ -22,6 +22,7 @@ package org.neo4j.kernel.impl.store.id;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.neo4j.io.fs.FileSystemAbstraction;
@@ -200,6 +201,64 @@ public class IdGeneratorImpl implements IdGenerator
         return new IdRange( defragIds, start, sizeLeftForRange );
     }
 
+    /**
+     * Grabs at most {@code maxCount} defragged ids, used by {@link StripedIdGenerator} to fill its per-stripe caches.
+     *
+     * @param maxCount max number of defragged ids to grab.
+     * @return the grabbed defragged ids, or an empty array if there are none.
+     */
+    synchronized long[] grabDefragIds( int maxCount )
+    {
+        assertStillOpen();
+        long[] defragIds = new long[maxCount];
+        int count = 0;
+        while ( count < maxCount )
+        {
+            long id = keeper.getId();
+            if ( id == -1 )
+            {
+                break;
+            }
+            defragIds[count++] = id;
+        }
+        return count == maxCount ? defragIds : Arrays.copyOf( defragIds, count );
+    }
+
+    /**
+     * Reserves {@code count} consecutive, never used, ids by moving the high id forward. The reserved range may
+     * include the {@link IdValidator#isReservedId(long) reserved id}, which callers must skip. Takes the same
+     * monitor as {@link #nextId()}, {@link #nextIdBatch(int)} and {@link #setHighId(long)}, so that reserved
+     * ranges never overlap ids handed out or high ids set by those.
+     *
+     * @param count number of ids to reserve.
+     * @return the first id of the reserved range.
+     */
+    synchronized long reserveHighIds( int count )
+    {
+        long start = highId.get();
+        if ( start == -1 )
+        {
+            throw new IllegalStateException( "Closed id generator " + file );
+        }
+        long end = start + count;
+        IdValidator.assertIdWithinCapacity( end, max );
+        highId.set( end );
+        return start;
+    }
+
+    /**
+     * Frees a batch of ids, see {@link #freeId(long)}, taking the monitor of this generator only once.
+     *
+     * @param ids the ids to free.
+     */
+    synchronized void freeIds( long[] ids )
+    {
+        for ( long id : ids )
+        {
+            freeId( id );
+        }
+    }
+
     /**
      * Sets the next free "high" id. This method should be called when an id
      * generator has been rebuilt. {@code id} must not be higher than {@code max}.
@@ -207,7 +266,7 @@ public class IdGeneratorImpl implements IdGenerator
      * @param id The next free id returned from {@link #nextId()} if there are no existing free ids.
      */
     @Override
-    public void setHighId( long id )
+    public synchronized void setHighId( long id )
     {
         IdValidator.assertIdWithinCapacity( id, max );
         highId.set( id );
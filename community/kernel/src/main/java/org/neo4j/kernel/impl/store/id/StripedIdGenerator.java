@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.store.id;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.neo4j.kernel.impl.store.id.validation.IdValidator;
+
+/**
+ * {@link IdGenerator} which hands out ids without contending on a shared monitor in the common case.
+ * <p>
+ * Ids are handed out from a fixed number of stripes, each with its own cache of ids and its own monitor. A thread
+ * always uses the stripe picked by its thread id, so that concurrent threads mostly use different stripes.
+ * Having a fixed number of stripes, rather than one per thread, means that threads coming and going don't leave
+ * caches behind holding on to ids. A stripe fills its cache in chunks of {@code cacheSize} ids at a time:
+ * <ol>
+ * <li>from chunks of ids freed in this session, if {@code aggressiveReuse} is enabled, polled from a lock-free queue,
+ * </li>
+ * <li>from defragged ids persisted by {@link IdGeneratorImpl} in a previous session, or</li>
+ * <li>from a range of never used ids, reserved with a CAS on the high id.</li>
+ * </ol>
+ * Freed ids are collected per stripe as well and released in chunks, either to the shared queue for reuse in
+ * this session or to the wrapped {@link IdGeneratorImpl} for reuse after restart, depending on
+ * {@code aggressiveReuse}. Ids are only ever freed by this generator once actually handed to it, so wrapping it
+ * in a {@link BufferingIdGenerator} keeps the same guarantees about when freed ids become reusable.
+ * <p>
+ * Ids cached, but not handed out, are lost if the database crashes, just like ids freed but not yet written
+ * by {@link IdGeneratorImpl}. They are freed into the wrapped generator on {@link #close()}, so that they're
+ * not lost on clean shutdown.
+ */
+public class StripedIdGenerator extends IdGenerator.Delegate
+{
+    private final IdGeneratorImpl delegate;
+    private final int cacheSize;
+    private final boolean aggressiveReuse;
+    private final Queue<long[]> reusableChunks = new ConcurrentLinkedQueue<>();
+    private final IdCache[] stripes;
+    private final AtomicInteger generation = new AtomicInteger();
+
+    public StripedIdGenerator( IdGeneratorImpl delegate, int cacheSize, boolean aggressiveReuse )
+    {
+        this( delegate, cacheSize, aggressiveReuse, Runtime.getRuntime().availableProcessors() );
+    }
+
+    StripedIdGenerator( IdGeneratorImpl delegate, int cacheSize, boolean aggressiveReuse, int minStripes )
+    {
+        super( delegate );
+        if ( cacheSize < 1 )
+        {
+            throw new IllegalArgumentException( "Illegal cacheSize: " + cacheSize );
+        }
+        this.delegate = delegate;
+        this.cacheSize = cacheSize;
+        this.aggressiveReuse = aggressiveReuse;
+        // Power of two number of stripes, so that a stripe can be picked by masking the thread id
+        int stripeCount = Integer.highestOneBit( Math.max( 1, minStripes ) );
+        if ( stripeCount < minStripes )
+        {
+            stripeCount <<= 1;
+        }
+        this.stripes = new IdCache[stripeCount];
+        for ( int i = 0; i < stripeCount; i++ )
+        {
+            stripes[i] = new IdCache( cacheSize, generation.get() );
+        }
+    }
+
+    @Override
+    public long nextId()
+    {
+        IdCache cache = stripe();
+        synchronized ( cache )
+        {
+            refresh( cache );
+            while ( true )
+            {
+                long id = cache.next();
+                if ( id != IdCache.EMPTY )
+                {
+                    return id;
+                }
+                fill( cache );
+            }
+        }
+    }
+
+    @Override
+    public IdRange nextIdBatch( int size )
+    {
+        long[] defragIds = delegate.grabDefragIds( size );
+        int sizeLeftForRange = size - defragIds.length;
+        long start = sizeLeftForRange > 0 ? delegate.reserveHighIds( sizeLeftForRange ) : delegate.getHighId();
+        return new IdRange( defragIds, start, sizeLeftForRange );
+    }
+
+    @Override
+    public void setHighId( long id )
+    {
+        // Any cached ids may now be in use, or even be beyond the high id, so make all threads drop their caches
+        generation.incrementAndGet();
+        super.setHighId( id );
+    }
+
+    @Override
+    public void freeId( long id )
+    {
+        if ( IdValidator.isReservedId( id ) )
+        {
+            return;
+        }
+        IdCache cache = stripe();
+        long[] chunk;
+        synchronized ( cache )
+        {
+            cache.freed[cache.freedCount++] = id;
+            if ( cache.freedCount < cacheSize )
+            {
+                return;
+            }
+            chunk = cache.freed.clone();
+            cache.freedCount = 0;
+        }
+        if ( aggressiveReuse )
+        {
+            reusableChunks.offer( chunk );
+        }
+        else
+        {
+            delegate.freeIds( chunk );
+        }
+    }
+
+    /**
+     * Frees all cached ids into the wrapped generator and closes it. No other thread may use this generator
+     * concurrently with closing it.
+     */
+    @Override
+    public void close()
+    {
+        releaseCachedIds();
+        super.close();
+    }
+
+    @Override
+    public void delete()
+    {
+        for ( IdCache cache : stripes )
+        {
+            synchronized ( cache )
+            {
+                cache.freedCount = 0;
+                cache.drop( cache.generation );
+            }
+        }
+        reusableChunks.clear();
+        super.delete();
+    }
+
+    private void releaseCachedIds()
+    {
+        for ( IdCache cache : stripes )
+        {
+            synchronized ( cache )
+            {
+                delegate.freeIds( Arrays.copyOf( cache.freed, cache.freedCount ) );
+                cache.freedCount = 0;
+                if ( cache.generation == generation.get() )
+                {
+                    long id;
+                    while ( (id = cache.next()) != IdCache.EMPTY )
+                    {
+                        delegate.freeId( id );
+                    }
+                }
+            }
+        }
+        long[] chunk;
+        while ( (chunk = reusableChunks.poll()) != null )
+        {
+            delegate.freeIds( chunk );
+        }
+    }
+
+    private IdCache stripe()
+    {
+        return stripes[(int) Thread.currentThread().getId() & (stripes.length - 1)];
+    }
+
+    private void refresh( IdCache cache )
+    {
+        int currentGeneration = generation.get();
+        if ( cache.generation != currentGeneration )
+        {
+            cache.drop( currentGeneration );
+        }
+    }
+
+    private void fill( IdCache cache )
+    {
+        long[] ids = aggressiveReuse ? reusableChunks.poll() : null;
+        if ( ids == null && delegate.getDefragCount() > 0 )
+        {
+            ids = delegate.grabDefragIds( cacheSize );
+        }
+        if ( ids != null && ids.length > 0 )
+        {
+            cache.reuse( ids );
+        }
+        else
+        {
+            cache.range( delegate.reserveHighIds( cacheSize ), cacheSize );
+        }
+    }
+
+    /**
+     * Ids cached by a single stripe. Guarded by its own monitor.
+     */
+    private static class IdCache
+    {
+        static final long EMPTY = -1;
+
+        private final long[] freed;
+        private int freedCount;
+        private long[] reusable;
+        private int reusableCount;
+        private long rangeNext;
+        private long rangeEnd;
+        private int generation;
+
+        IdCache( int cacheSize, int generation )
+        {
+            this.freed = new long[cacheSize];
+            this.generation = generation;
+        }
+
+        long next()
+        {
+            if ( reusableCount > 0 )
+            {
+                return reusable[--reusableCount];
+            }
+            while ( rangeNext < rangeEnd )
+            {
+                long id = rangeNext++;
+                if ( !IdValidator.isReservedId( id ) )
+                {
+                    return id;
+                }
+            }
+            return EMPTY;
+        }
+
+        void reuse( long[] ids )
+        {
+            reusable = ids;
+            reusableCount = ids.length;
+        }
+
+        void range( long start, int length )
+        {
+            rangeNext = start;
+            rangeEnd = start + length;
+        }
+
+        void drop( int generation )
+        {
+            this.generation = generation;
+            reusableCount = 0;
+            rangeNext = rangeEnd;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.store.id;
+
+import java.io.File;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.kernel.impl.store.id.configuration.IdTypeConfigurationProvider;
+
+/**
+ * {@link IdGeneratorFactory} creating {@link StripedIdGenerator striped id generators}, which lets concurrently
+ * committing threads allocate and free ids without contending on a monitor per store.
+ */
+public class StripedIdGeneratorFactory extends DefaultIdGeneratorFactory
+{
+    public static final int DEFAULT_CACHE_SIZE = 64;
+
+    private final int cacheSize;
+
+    public StripedIdGeneratorFactory( FileSystemAbstraction fs, IdTypeConfigurationProvider idTypeConfigurationProvider )
+    {
+        this( fs, idTypeConfigurationProvider, DEFAULT_CACHE_SIZE );
+    }
+
+    public StripedIdGeneratorFactory( FileSystemAbstraction fs, IdTypeConfigurationProvider idTypeConfigurationProvider,
+            int cacheSize )
+    {
+        super( fs, idTypeConfigurationProvider );
+        this.cacheSize = cacheSize;
+    }
+
+    @Override
+    protected IdGenerator instantiate( FileSystemAbstraction fs, File fileName, int grabSize, long maxValue,
+            boolean aggressiveReuse, long highId )
+    {
+        IdGeneratorImpl generator = new IdGeneratorImpl( fs, fileName, grabSize, maxValue, aggressiveReuse, highId );
+        return new StripedIdGenerator( generator, cacheSize, aggressiveReuse );
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.command;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.collection.primitive.PrimitiveLongSet;
+import org.neo4j.kernel.impl.api.BatchTransactionApplier;
+import org.neo4j.kernel.impl.api.TransactionApplier;
+import org.neo4j.kernel.impl.core.CacheAccessBackDoor;
+import org.neo4j.kernel.impl.locking.LockGroup;
+import org.neo4j.kernel.impl.locking.LockService;
+import org.neo4j.kernel.impl.store.NeoStores;
+import org.neo4j.kernel.impl.store.PropertyType;
+import org.neo4j.kernel.impl.store.record.AbstractBaseRecord;
+import org.neo4j.kernel.impl.store.record.DynamicRecord;
+import org.neo4j.kernel.impl.store.record.PropertyBlock;
+import org.neo4j.kernel.impl.store.record.PropertyRecord;
+import org.neo4j.storageengine.api.CommandsToApply;
+
+/**
+ * A {@link NeoStoreBatchTransactionApplier} alternative for recovery, which applies the record changes of
+ * transactions in a batch using multiple threads.
+ * <p>
+ * The records touched by every transaction are collected up front. Consecutive transactions which touch
+ * disjoint sets of records form a "wave" and have their record changes written in parallel. A transaction
+ * touching any record also touched by the current wave waits for that wave to complete before it is
+ * scheduled, which means that changes to any single record are always written in log order and that the
+ * resulting store is the same as if the transactions were applied one by one. Transactions containing
+ * commands which aren't tied to a specific record, like schema, token or neo store commands, are applied
+ * serially, in the calling thread, once all previously scheduled transactions have completed.
+ * <p>
+ * Only the record changes are applied by this applier. The other appliers in the batch, f.ex. for indexes,
+ * label scan store and counts, still see every transaction in order in the calling thread. This is only
+ * correct in {@link org.neo4j.storageengine.api.TransactionApplicationMode#RECOVERY recovery}, where those
+ * appliers only look at the commands themselves and never read back from the record stores.
+ * <p>
+ * The {@link ExecutorService} is owned by the caller and is expected to outlive many batches, this applier
+ * only waits for the work it has submitted itself.
+ */
+public class ParallelNeoStoreBatchTransactionApplier extends BatchTransactionApplier.Adapter
+{
+    /**
+     * Upper bound for number of transactions in a wave, so that the set of touched records doesn't grow
+     * unbounded for batches with lots of small non-conflicting transactions.
+     */
+    static final int MAX_WAVE_SIZE = 1_000;
+
+    private final NeoStores neoStores;
+    private final CacheAccessBackDoor cacheAccess;
+    private final LockService lockService;
+    private final ExecutorService executor;
+    private final PrimitiveLongSet waveRecords = Primitive.longSet();
+    private final List<Future<?>> wave = new ArrayList<>();
+
+    public ParallelNeoStoreBatchTransactionApplier( NeoStores neoStores, CacheAccessBackDoor cacheAccess,
+            LockService lockService, ExecutorService executor )
+    {
+        this.neoStores = neoStores;
+        this.cacheAccess = cacheAccess;
+        this.lockService = lockService;
+        this.executor = executor;
+    }
+
+    @Override
+    public TransactionApplier startTx( CommandsToApply transaction )
+    {
+        throw new RuntimeException( "NeoStoreTransactionApplier requires a LockGroup" );
+    }
+
+    @Override
+    public TransactionApplier startTx( CommandsToApply transaction, LockGroup lockGroup ) throws IOException
+    {
+        TouchedRecords records = new TouchedRecords();
+        transaction.accept( records );
+        if ( records.requiresSerialApplication )
+        {
+            awaitWave();
+            return new NeoStoreTransactionApplier( neoStores, cacheAccess, lockService,
+                    transaction.transactionId(), lockGroup );
+        }
+
+        if ( wave.size() >= MAX_WAVE_SIZE || records.conflictsWith( waveRecords ) )
+        {
+            awaitWave();
+        }
+        records.addTo( waveRecords );
+        wave.add( executor.submit( () ->
+        {
+            try ( LockGroup locks = new LockGroup();
+                  TransactionApplier applier = new NeoStoreTransactionApplier( neoStores, cacheAccess,
+                          lockService, transaction.transactionId(), locks ) )
+            {
+                transaction.accept( applier );
+            }
+            return null;
+        } ) );
+        return TransactionApplier.EMPTY;
+    }
+
+    @Override
+    public void close() throws Exception
+    {
+        awaitWave();
+    }
+
+    private void awaitWave() throws IOException
+    {
+        Throwable failure = null;
+        for ( Future<?> future : wave )
+        {
+            try
+            {
+                future.get();
+            }
+            catch ( ExecutionException e )
+            {
+                failure = failure == null ? e.getCause() : failure;
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                failure = failure == null ? e : failure;
+            }
+        }
+        wave.clear();
+        waveRecords.clear();
+
+        if ( failure != null )
+        {
+            if ( failure instanceof IOException )
+            {
+                throw (IOException) failure;
+            }
+            if ( failure instanceof RuntimeException )
+            {
+                throw (RuntimeException) failure;
+            }
+            if ( failure instanceof Error )
+            {
+                throw (Error) failure;
+            }
+            throw new IOException( failure );
+        }
+    }
+
+    /**
+     * Collects keys of all records, including dynamic records and secondary record units, written by
+     * the commands of a transaction. A key is the record id with the type of store encoded in the high byte.
+     */
+    static class TouchedRecords extends TransactionApplier.Adapter
+    {
+        private static final int NODE = 1;
+        private static final int NODE_LABELS = 2;
+        private static final int RELATIONSHIP = 3;
+        private static final int RELATIONSHIP_GROUP = 4;
+        private static final int PROPERTY = 5;
+        private static final int PROPERTY_STRING = 6;
+        private static final int PROPERTY_ARRAY = 7;
+
+        private final PrimitiveLongSet records = Primitive.longSet();
+        private boolean requiresSerialApplication;
+
+        boolean conflictsWith( PrimitiveLongSet otherRecords )
+        {
+            PrimitiveLongIterator iterator = records.iterator();
+            while ( iterator.hasNext() )
+            {
+                if ( otherRecords.contains( iterator.next() ) )
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void addTo( PrimitiveLongSet otherRecords )
+        {
+            PrimitiveLongIterator iterator = records.iterator();
+            while ( iterator.hasNext() )
+            {
+                otherRecords.add( iterator.next() );
+            }
+        }
+
+        @Override
+        public boolean visitNodeCommand( Command.NodeCommand command ) throws IOException
+        {
+            add( NODE, command.getBefore() );
+            add( NODE, command.getAfter() );
+            addDynamic( NODE_LABELS, command.getBefore().getDynamicLabelRecords() );
+            addDynamic( NODE_LABELS, command.getAfter().getDynamicLabelRecords() );
+            return false;
+        }
+
+        @Override
+        public boolean visitRelationshipCommand( Command.RelationshipCommand command ) throws IOException
+        {
+            add( RELATIONSHIP, command.getBefore() );
+            add( RELATIONSHIP, command.getAfter() );
+            return false;
+        }
+
+        @Override
+        public boolean visitRelationshipGroupCommand( Command.RelationshipGroupCommand command ) throws IOException
+        {
+            add( RELATIONSHIP_GROUP, command.getBefore() );
+            add( RELATIONSHIP_GROUP, command.getAfter() );
+            return false;
+        }
+
+        @Override
+        public boolean visitPropertyCommand( Command.PropertyCommand command ) throws IOException
+        {
+            addProperty( command.getBefore() );
+            addProperty( command.getAfter() );
+            return false;
+        }
+
+        @Override
+        public boolean visitSchemaRuleCommand( Command.SchemaRuleCommand command ) throws IOException
+        {
+            requiresSerialApplication = true;
+            return false;
+        }
+
+        @Override
+        public boolean visitRelationshipTypeTokenCommand( Command.RelationshipTypeTokenCommand command )
+                throws IOException
+        {
+            requiresSerialApplication = true;
+            return false;
+        }
+
+        @Override
+        public boolean visitLabelTokenCommand( Command.LabelTokenCommand command ) throws IOException
+        {
+            requiresSerialApplication = true;
+            return false;
+        }
+
+        @Override
+        public boolean visitPropertyKeyTokenCommand( Command.PropertyKeyTokenCommand command ) throws IOException
+        {
+            requiresSerialApplication = true;
+            return false;
+        }
+
+        @Override
+        public boolean visitNeoStoreCommand( Command.NeoStoreCommand command ) throws IOException
+        {
+            requiresSerialApplication = true;
+            return false;
+        }
+
+        private void addProperty( PropertyRecord record )
+        {
+            add( PROPERTY, record );
+            for ( PropertyBlock block : record )
+            {
+                if ( !block.isLight() )
+                {
+                    addDynamic( block.getValueRecords() );
+                }
+            }
+            addDynamic( record.getDeletedRecords() );
+        }
+
+        private void addDynamic( Collection<DynamicRecord> dynamicRecords )
+        {
+            for ( DynamicRecord record : dynamicRecords )
+            {
+                add( record.getType() == PropertyType.STRING.intValue() ? PROPERTY_STRING : PROPERTY_ARRAY, record );
+            }
+        }
+
+        private void addDynamic( int type, Collection<DynamicRecord> dynamicRecords )
+        {
+            for ( DynamicRecord record : dynamicRecords )
+            {
+                add( type, record );
+            }
+        }
+
+        private void add( int type, AbstractBaseRecord record )
+        {
+            records.add( key( type, record.getId() ) );
+            if ( record.hasSecondaryUnitId() )
+            {
+                records.add( key( type, record.getSecondaryUnitId() ) );
+            }
+        }
+
+        private static long key( int type, long id )
+        {
+            return ((long) type << 56) | id;
+        }
+    }
+}
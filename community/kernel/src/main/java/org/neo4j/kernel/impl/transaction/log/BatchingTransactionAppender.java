@@ -22,6 +22,10 @@ package org.neo4j.kernel.impl.transaction.log;
 import java.io.Flushable;
 import java.io.IOException;
 import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
@@ -30,6 +34,8 @@ import java.util.concurrent.locks.ReentrantLock;
 
 import org.neo4j.kernel.impl.api.TransactionToApply;
 import org.neo4j.kernel.impl.transaction.TransactionRepresentation;
+import org.neo4j.kernel.impl.transaction.log.entry.CommandCompressor;
+import org.neo4j.kernel.impl.transaction.log.entry.CommandCompressor.SerializedCommands;
 import org.neo4j.kernel.impl.transaction.log.entry.LogEntryWriter;
 import org.neo4j.kernel.impl.transaction.log.rotation.LogRotation;
 import org.neo4j.kernel.impl.transaction.tracing.LogAppendEvent;
@@ -65,8 +71,12 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
     private final LogPositionMarker positionMarker = new LogPositionMarker();
     private final DatabaseHealth databaseHealth;
     private final Lock forceLock = new ReentrantLock();
+    private final boolean compressCommands;
+    // Compressors of committers compressing commands concurrently, kept for reuse
+    private final Queue<CommandCompressor> compressors = new ConcurrentLinkedQueue<>();
 
     private FlushablePositionAwareChannel writer;
+    private LogEntryWriter logEntryWriter;
     private TransactionLogWriter transactionLogWriter;
     private IndexCommandDetector indexCommandDetector;
 
@@ -74,6 +84,19 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
             TransactionMetadataCache transactionMetadataCache, TransactionIdStore transactionIdStore,
             IdOrderingQueue legacyIndexTransactionOrdering, DatabaseHealth databaseHealth )
     {
+        this( logFile, logRotation, transactionMetadataCache, transactionIdStore, legacyIndexTransactionOrdering,
+                databaseHealth, false );
+    }
+
+    /**
+     * @param compressCommands whether or not to compress the commands of appended transactions,
+     * see {@link LogEntryWriter#LogEntryWriter(FlushableChannel, boolean)}.
+     */
+    public BatchingTransactionAppender( LogFile logFile, LogRotation logRotation,
+            TransactionMetadataCache transactionMetadataCache, TransactionIdStore transactionIdStore,
+            IdOrderingQueue legacyIndexTransactionOrdering, DatabaseHealth databaseHealth, boolean compressCommands )
+    {
+        this.compressCommands = compressCommands;
         this.logFile = logFile;
         this.logRotation = logRotation;
         this.transactionIdStore = transactionIdStore;
@@ -87,7 +110,20 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
     {
         this.writer = logFile.getWriter();
         this.indexCommandDetector = new IndexCommandDetector();
-        this.transactionLogWriter = new TransactionLogWriter( new LogEntryWriter( writer ) );
+        // Commands are compressed before taking the log lock, see append, not by the writer itself
+        this.logEntryWriter = new LogEntryWriter( writer );
+        this.transactionLogWriter = new TransactionLogWriter( logEntryWriter );
+    }
+
+    @Override
+    public void stop()
+    {
+        logEntryWriter.close();
+        CommandCompressor compressor;
+        while ( (compressor = compressors.poll()) != null )
+        {
+            compressor.close();
+        }
     }
 
     @Override
@@ -98,6 +134,10 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
         boolean logRotated = logRotation.rotateLogIfNeeded( logAppendEvent );
         logAppendEvent.setLogRotated( logRotated );
 
+        // Compressing is by far the most expensive part of serializing a transaction, so do it before taking the
+        // log lock, concurrently with other committers
+        List<SerializedCommands> serializedCommands = compressCommands ? compressCommands( batch ) : null;
+
         // Assigned base tx id just to make compiler happy
         long lastTransactionId = TransactionIdStore.BASE_TX_ID;
         // Synchronized with logFile to get absolute control over concurrent rotations happening
@@ -109,6 +149,7 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
             {
                 // Append all transactions in this batch to the log under the same logFile monitor
                 TransactionToApply tx = batch;
+                int index = 0;
                 while ( tx != null )
                 {
                     long transactionId = transactionIdStore.nextCommittingTransactionId();
@@ -119,7 +160,9 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
                     // really recover from and would point to a bug somewhere.
                     matchAgainstExpectedTransactionIdIfAny( transactionId, tx );
 
-                    TransactionCommitment commitment = appendToLog( tx.transactionRepresentation(), transactionId );
+                    SerializedCommands commands = serializedCommands != null ? serializedCommands.get( index++ ) : null;
+                    TransactionCommitment commitment =
+                            appendToLog( tx.transactionRepresentation(), transactionId, commands );
                     tx.commitment( commitment, transactionId );
                     tx = tx.next();
                     lastTransactionId = transactionId;
@@ -139,6 +182,32 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
         return lastTransactionId;
     }
 
+    /**
+     * @return the commands of every transaction in the batch, serialized and compressed where that paid off,
+     * in batch order. Transactions too large to be buffered have {@code null} and are serialized straight to the log.
+     */
+    private List<SerializedCommands> compressCommands( TransactionToApply batch ) throws IOException
+    {
+        CommandCompressor compressor = compressors.poll();
+        if ( compressor == null )
+        {
+            compressor = new CommandCompressor();
+        }
+        try
+        {
+            List<SerializedCommands> serializedCommands = new ArrayList<>();
+            for ( TransactionToApply tx = batch; tx != null; tx = tx.next() )
+            {
+                serializedCommands.add( compressor.compress( tx.transactionRepresentation() ) );
+            }
+            return serializedCommands;
+        }
+        finally
+        {
+            compressors.offer( compressor );
+        }
+    }
+
     private void matchAgainstExpectedTransactionIdIfAny( long transactionId, TransactionToApply tx )
     {
         long expectedTransactionId = tx.transactionId();
@@ -189,8 +258,8 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
      * @return A TransactionCommitment instance with metadata about the committed transaction, such as whether or not
      * this transaction contains any legacy index changes.
      */
-    private TransactionCommitment appendToLog( TransactionRepresentation transaction, long transactionId )
-            throws IOException
+    private TransactionCommitment appendToLog( TransactionRepresentation transaction, long transactionId,
+            SerializedCommands commands ) throws IOException
     {
         // Reset command writer so that we, after we've written the transaction, can ask it whether or
         // not any legacy index command was written. If so then there's additional ordering to care about below.
@@ -205,7 +274,7 @@ public class BatchingTransactionAppender extends LifecycleAdapter implements Tra
         try
         {
             LogPosition logPositionBeforeCommit = writer.getCurrentPosition( positionMarker ).newPosition();
-            transactionLogWriter.append( transaction, transactionId );
+            transactionLogWriter.append( transaction, transactionId, commands );
             LogPosition logPositionAfterCommit = writer.getCurrentPosition( positionMarker ).newPosition();
 
             long transactionChecksum =
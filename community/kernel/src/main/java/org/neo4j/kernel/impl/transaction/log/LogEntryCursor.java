@@ -20,13 +20,17 @@
 package org.neo4j.kernel.impl.transaction.log;
 
 import java.io.IOException;
+import java.util.Iterator;
 
 import org.neo4j.cursor.IOCursor;
 import org.neo4j.kernel.impl.transaction.log.entry.LogEntry;
+import org.neo4j.kernel.impl.transaction.log.entry.LogEntryCommand;
+import org.neo4j.kernel.impl.transaction.log.entry.LogEntryCompressedCommands;
 import org.neo4j.kernel.impl.transaction.log.entry.LogEntryReader;
 
 /**
- * {@link IOCursor} abstraction on top of a {@link LogEntryReader}
+ * {@link IOCursor} abstraction on top of a {@link LogEntryReader}. Commands read as one
+ * {@link LogEntryCompressedCommands compressed block} are returned as separate {@link LogEntryCommand} entries.
  */
 public class LogEntryCursor implements IOCursor<LogEntry>
 {
@@ -34,6 +38,7 @@ public class LogEntryCursor implements IOCursor<LogEntry>
     private final ReadableClosablePositionAwareChannel channel;
     private final LogPositionMarker position = new LogPositionMarker();
     private LogEntry entry;
+    private Iterator<LogEntryCommand> pendingCommands;
 
     public LogEntryCursor( LogEntryReader<ReadableClosablePositionAwareChannel> logEntryReader,
                            ReadableClosablePositionAwareChannel channel )
@@ -51,7 +56,22 @@ public class LogEntryCursor implements IOCursor<LogEntry>
     @Override
     public boolean next() throws IOException
     {
+        if ( pendingCommands != null )
+        {
+            if ( pendingCommands.hasNext() )
+            {
+                entry = pendingCommands.next();
+                return true;
+            }
+            pendingCommands = null;
+        }
+
         entry = logEntryReader.readLogEntry( channel );
+        if ( entry instanceof LogEntryCompressedCommands )
+        {
+            pendingCommands = entry.<LogEntryCompressedCommands>as().getCommands().iterator();
+            return next();
+        }
 
         return entry != null;
     }
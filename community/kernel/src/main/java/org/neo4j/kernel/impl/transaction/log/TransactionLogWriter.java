@@ -22,6 +22,7 @@ package org.neo4j.kernel.impl.transaction.log;
 import java.io.IOException;
 
 import org.neo4j.kernel.impl.transaction.TransactionRepresentation;
+import org.neo4j.kernel.impl.transaction.log.entry.CommandCompressor.SerializedCommands;
 import org.neo4j.kernel.impl.transaction.log.entry.LogEntryWriter;
 
 public class TransactionLogWriter
@@ -34,13 +35,30 @@ public class TransactionLogWriter
     }
 
     public void append( TransactionRepresentation transaction, long transactionId ) throws IOException
+    {
+        append( transaction, transactionId, null );
+    }
+
+    /**
+     * @param commands the commands of the transaction serialized ahead of time, or {@code null} to serialize them
+     * from the transaction.
+     */
+    public void append( TransactionRepresentation transaction, long transactionId, SerializedCommands commands )
+            throws IOException
     {
         writer.writeStartEntry( transaction.getMasterId(), transaction.getAuthorId(),
                 transaction.getTimeStarted(), transaction.getLatestCommittedTxWhenStarted(),
                 transaction.additionalHeader() );
 
         // Write all the commands to the log channel
-        writer.serialize( transaction );
+        if ( commands != null )
+        {
+            writer.writeSerializedCommands( commands );
+        }
+        else
+        {
+            writer.serialize( transaction );
+        }
 
         // Write commit record
         writer.writeCommitEntry( transactionId, transaction.getTimeCommitted() );
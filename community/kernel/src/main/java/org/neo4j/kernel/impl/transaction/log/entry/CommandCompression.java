@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log.entry;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Block compression of the serialized commands of a transaction, see
+ * {@link LogEntryByteCodes#COMPRESSED_COMMANDS}. Favours speed over ratio, since it sits in the commit path.
+ */
+final class CommandCompression
+{
+    private CommandCompression()
+    {
+        // no instances are allowed
+    }
+
+    /**
+     * @return a new compressor for {@link #compress(Deflater, byte[], int, byte[])}, which the caller is responsible
+     * for {@link Deflater#end() ending}.
+     */
+    static Deflater newDeflater()
+    {
+        return new Deflater( Deflater.BEST_SPEED );
+    }
+
+    /**
+     * Compresses {@code length} bytes of {@code source} into {@code target}, using and then resetting the given,
+     * reusable, compressor.
+     *
+     * @return number of compressed bytes written to {@code target}, or {@code -1} if the compressed data
+     * wouldn't be smaller than {@code length}, or didn't fit in {@code target}, i.e. if compressing didn't pay off.
+     */
+    static int compress( Deflater deflater, byte[] source, int length, byte[] target )
+    {
+        try
+        {
+            deflater.setInput( source, 0, length );
+            deflater.finish();
+            int limit = Math.min( length, target.length );
+            int compressedLength = 0;
+            while ( !deflater.finished() && compressedLength < limit )
+            {
+                compressedLength += deflater.deflate( target, compressedLength, limit - compressedLength );
+            }
+            return deflater.finished() ? compressedLength : -1;
+        }
+        finally
+        {
+            deflater.reset();
+        }
+    }
+
+    /**
+     * @return {@code length} bytes decompressed from {@code source}.
+     * @throws IOException if {@code source} doesn't decompress into exactly {@code length} bytes.
+     */
+    static byte[] decompress( byte[] source, int length ) throws IOException
+    {
+        Inflater inflater = new Inflater();
+        try
+        {
+            inflater.setInput( source );
+            byte[] target = new byte[length];
+            int decompressedLength = 0;
+            while ( decompressedLength < length && !inflater.finished() )
+            {
+                int decompressed = inflater.inflate( target, decompressedLength, length - decompressedLength );
+                if ( decompressed == 0 && (inflater.needsInput() || inflater.needsDictionary()) )
+                {
+                    break;
+                }
+                decompressedLength += decompressed;
+            }
+            if ( decompressedLength != length || !inflater.finished() )
+            {
+                throw new IOException( "Compressed commands decompressed into " + decompressedLength +
+                        " bytes, expected " + length );
+            }
+            return target;
+        }
+        catch ( DataFormatException e )
+        {
+            throw new IOException( "Unable to decompress commands", e );
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+}
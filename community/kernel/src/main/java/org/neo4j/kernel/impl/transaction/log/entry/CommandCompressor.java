@@ -0,0 +1,386 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log.entry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.zip.Deflater;
+
+import org.neo4j.helpers.collection.Visitor;
+import org.neo4j.kernel.impl.transaction.TransactionRepresentation;
+import org.neo4j.storageengine.api.StorageCommand;
+import org.neo4j.storageengine.api.WritableChannel;
+
+import static org.neo4j.io.ByteUnit.kibiBytes;
+import static org.neo4j.io.ByteUnit.mebiBytes;
+
+/**
+ * Serializes the commands of a transaction into memory and compresses them, so that they can be written
+ * to the log later on by {@link LogEntryWriter#writeSerializedCommands(SerializedCommands)}. This is what lets
+ * commits compress their commands before taking the log lock, instead of one after the other while holding it.
+ * <p>
+ * Instances aren't thread safe, but are meant to be reused. The memory kept between uses is bounded: buffers which
+ * have grown past {@link #RETAINED_BUFFER_SIZE} are let go of after the transaction, and transactions with more
+ * command data than {@link #MAX_BUFFERED_SIZE} aren't buffered at all.
+ */
+public class CommandCompressor implements AutoCloseable
+{
+    /**
+     * Transactions with less command data than this aren't worth compressing.
+     */
+    static final int MIN_COMPRESSIBLE_SIZE = 256;
+
+    /**
+     * Transactions with more command data than this are written as plain command entries straight to the log,
+     * rather than being buffered in memory for compression.
+     */
+    static final int MAX_BUFFERED_SIZE = (int) mebiBytes( 64 );
+
+    /**
+     * Largest buffer kept around for the next transaction.
+     */
+    static final int RETAINED_BUFFER_SIZE = (int) mebiBytes( 1 );
+
+    private static final int INITIAL_BUFFER_SIZE = (int) kibiBytes( 1 );
+
+    private final int maxBufferedSize;
+    private final Visitor<StorageCommand,IOException> bufferingSerializer;
+    private CommandBuffer commandBuffer;
+    private byte[] compressed;
+    private Deflater deflater;
+
+    public CommandCompressor()
+    {
+        this( MAX_BUFFERED_SIZE );
+    }
+
+    CommandCompressor( int maxBufferedSize )
+    {
+        this.maxBufferedSize = maxBufferedSize;
+        this.bufferingSerializer = command ->
+        {
+            command.serialize( commandBuffer );
+            commandBuffer.endCommand();
+            return false;
+        };
+    }
+
+    /**
+     * @return the commands of the given transaction, serialized and compressed if that made them smaller, or
+     * {@code null} if they're too large to be buffered, in which case they should be serialized straight to the log.
+     */
+    public SerializedCommands compress( TransactionRepresentation transaction ) throws IOException
+    {
+        clearCommandBuffer();
+        try
+        {
+            transaction.accept( bufferingSerializer );
+            return compressBufferedCommands();
+        }
+        catch ( CommandBufferOverflow e )
+        {
+            return null;
+        }
+        finally
+        {
+            releaseLargeBuffers();
+        }
+    }
+
+    /**
+     * @see #compress(TransactionRepresentation)
+     */
+    public SerializedCommands compress( Collection<StorageCommand> commands ) throws IOException
+    {
+        clearCommandBuffer();
+        try
+        {
+            for ( StorageCommand command : commands )
+            {
+                bufferingSerializer.visit( command );
+            }
+            return compressBufferedCommands();
+        }
+        catch ( CommandBufferOverflow e )
+        {
+            return null;
+        }
+        finally
+        {
+            releaseLargeBuffers();
+        }
+    }
+
+    private void clearCommandBuffer()
+    {
+        if ( commandBuffer == null )
+        {
+            commandBuffer = new CommandBuffer( maxBufferedSize );
+        }
+        commandBuffer.clear();
+    }
+
+    private SerializedCommands compressBufferedCommands()
+    {
+        int length = commandBuffer.size();
+        int commandCount = commandBuffer.commandCount();
+        if ( length >= MIN_COMPRESSIBLE_SIZE )
+        {
+            if ( compressed == null || compressed.length < length )
+            {
+                compressed = new byte[length];
+            }
+            if ( deflater == null )
+            {
+                deflater = CommandCompression.newDeflater();
+            }
+            int compressedLength = CommandCompression.compress( deflater, commandBuffer.array(), length, compressed );
+            if ( compressedLength != -1 )
+            {
+                return new SerializedCommands( commandCount, length, Arrays.copyOf( compressed, compressedLength ),
+                        null );
+            }
+        }
+
+        // Compressing didn't pay off, keep the serialized commands so that they don't have to be serialized again
+        return new SerializedCommands( commandCount, length, Arrays.copyOf( commandBuffer.array(), length ),
+                Arrays.copyOf( commandBuffer.commandEnds(), commandCount ) );
+    }
+
+    private void releaseLargeBuffers()
+    {
+        if ( commandBuffer != null && commandBuffer.capacity() > RETAINED_BUFFER_SIZE )
+        {
+            commandBuffer = null;
+        }
+        if ( compressed != null && compressed.length > RETAINED_BUFFER_SIZE )
+        {
+            compressed = null;
+        }
+    }
+
+    /**
+     * Releases the native resources held for compressing commands, if any. This compressor can still be used
+     * afterwards, but will then allocate them anew.
+     */
+    @Override
+    public void close()
+    {
+        if ( deflater != null )
+        {
+            deflater.end();
+            deflater = null;
+        }
+    }
+
+    /**
+     * The commands of a transaction, either as one compressed block, or, where compressing didn't pay off,
+     * as the plain serialized form of each command one after the other.
+     */
+    public static final class SerializedCommands
+    {
+        private final int commandCount;
+        private final int length;
+        private final byte[] data;
+        private final int[] commandEnds;
+
+        SerializedCommands( int commandCount, int length, byte[] data, int[] commandEnds )
+        {
+            this.commandCount = commandCount;
+            this.length = length;
+            this.data = data;
+            this.commandEnds = commandEnds;
+        }
+
+        boolean isCompressed()
+        {
+            return commandEnds == null;
+        }
+
+        int commandCount()
+        {
+            return commandCount;
+        }
+
+        /**
+         * @return number of bytes of the commands when not compressed.
+         */
+        int length()
+        {
+            return length;
+        }
+
+        byte[] data()
+        {
+            return data;
+        }
+
+        /**
+         * @return end offset of the given command in {@link #data()}, only for uncompressed commands.
+         */
+        int commandEnd( int command )
+        {
+            return commandEnds[command];
+        }
+    }
+
+    /**
+     * Thrown when the commands of a transaction don't fit in the command buffer.
+     */
+    private static class CommandBufferOverflow extends RuntimeException
+    {
+        CommandBufferOverflow()
+        {
+            super( null, null, false, false );
+        }
+    }
+
+    /**
+     * Growing in-memory buffer which commands are serialized into before getting compressed.
+     */
+    private static class CommandBuffer implements WritableChannel
+    {
+        private final int maxSize;
+        private ByteBuffer buffer = ByteBuffer.allocate( INITIAL_BUFFER_SIZE );
+        private int[] commandEnds = new int[16];
+        private int commandCount;
+
+        CommandBuffer( int maxSize )
+        {
+            this.maxSize = maxSize;
+        }
+
+        void clear()
+        {
+            buffer.clear();
+            commandCount = 0;
+        }
+
+        /**
+         * Marks the end of the serialized form of a command at the current position.
+         */
+        void endCommand()
+        {
+            if ( commandCount == commandEnds.length )
+            {
+                commandEnds = Arrays.copyOf( commandEnds, commandCount * 2 );
+            }
+            commandEnds[commandCount++] = buffer.position();
+        }
+
+        int commandCount()
+        {
+            return commandCount;
+        }
+
+        int[] commandEnds()
+        {
+            return commandEnds;
+        }
+
+        int size()
+        {
+            return buffer.position();
+        }
+
+        int capacity()
+        {
+            return buffer.capacity();
+        }
+
+        byte[] array()
+        {
+            return buffer.array();
+        }
+
+        private ByteBuffer ensureCapacity( int bytes )
+        {
+            if ( buffer.remaining() < bytes )
+            {
+                long required = (long) buffer.position() + bytes;
+                if ( required > maxSize )
+                {
+                    throw new CommandBufferOverflow();
+                }
+                long capacity = buffer.capacity();
+                while ( capacity < required )
+                {
+                    capacity *= 2;
+                }
+                ByteBuffer grown = ByteBuffer.allocate( (int) Math.min( capacity, maxSize ) );
+                buffer.flip();
+                grown.put( buffer );
+                buffer = grown;
+            }
+            return buffer;
+        }
+
+        @Override
+        public CommandBuffer put( byte value )
+        {
+            ensureCapacity( 1 ).put( value );
+            return this;
+        }
+
+        @Override
+        public CommandBuffer putShort( short value )
+        {
+            ensureCapacity( 2 ).putShort( value );
+            return this;
+        }
+
+        @Override
+        public CommandBuffer putInt( int value )
+        {
+            ensureCapacity( 4 ).putInt( value );
+            return this;
+        }
+
+        @Override
+        public CommandBuffer putLong( long value )
+        {
+            ensureCapacity( 8 ).putLong( value );
+            return this;
+        }
+
+        @Override
+        public CommandBuffer putFloat( float value )
+        {
+            ensureCapacity( 4 ).putFloat( value );
+            return this;
+        }
+
+        @Override
+        public CommandBuffer putDouble( double value )
+        {
+            ensureCapacity( 8 ).putDouble( value );
+            return this;
+        }
+
+        @Override
+        public CommandBuffer put( byte[] value, int length )
+        {
+            ensureCapacity( length ).put( value, 0, length );
+            return this;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log.entry;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neo4j.kernel.impl.transaction.log.InMemoryClosableChannel;
+import org.neo4j.kernel.impl.transaction.log.LogPositionMarker;
+import org.neo4j.kernel.impl.transaction.log.ReadableClosableChannel;
+import org.neo4j.storageengine.api.CommandReader;
+import org.neo4j.storageengine.api.CommandReaderFactory;
+import org.neo4j.storageengine.api.StorageCommand;
+
+// 3.1 same layout as 2.3, with the addition of compressed command blocks
+public enum LogEntryParsersV3_1 implements LogEntryParser<LogEntry>
+{
+    EMPTY( LogEntryParsersV2_3.EMPTY ),
+
+    TX_START( LogEntryParsersV2_3.TX_START ),
+
+    COMMAND( LogEntryParsersV2_3.COMMAND ),
+
+    TX_1P_COMMIT( LogEntryParsersV2_3.TX_1P_COMMIT ),
+
+    CHECK_POINT( LogEntryParsersV2_3.CHECK_POINT ),
+
+    COMPRESSED_COMMANDS( null )
+            {
+                @Override
+                public LogEntry parse( LogEntryVersion version, ReadableClosableChannel channel, LogPositionMarker marker,
+                                       CommandReaderFactory commandReaderFactory ) throws IOException
+                {
+                    int commandCount = channel.getInt();
+                    int length = channel.getInt();
+                    int compressedLength = channel.getInt();
+                    byte[] compressed = new byte[compressedLength];
+                    channel.get( compressed, compressedLength );
+
+                    InMemoryClosableChannel commandChannel =
+                            new InMemoryClosableChannel( CommandCompression.decompress( compressed, length ), true );
+                    CommandReader commandReader = commandReaderFactory.byVersion( version.byteCode() );
+                    List<LogEntryCommand> commands = new ArrayList<>( commandCount );
+                    for ( int i = 0; i < commandCount; i++ )
+                    {
+                        StorageCommand command = commandReader.read( commandChannel );
+                        if ( command == null )
+                        {
+                            throw new IOException( "Compressed block ended after " + i + " of " + commandCount +
+                                    " commands" );
+                        }
+                        commands.add( new LogEntryCommand( version, command ) );
+                    }
+                    return new LogEntryCompressedCommands( version, commands );
+                }
+
+                @Override
+                public byte byteCode()
+                {
+                    return LogEntryByteCodes.COMPRESSED_COMMANDS;
+                }
+
+                @Override
+                public boolean skip()
+                {
+                    return false;
+                }
+            };
+
+    private final LogEntryParser<LogEntry> parser;
+
+    LogEntryParsersV3_1( LogEntryParser<LogEntry> parser )
+    {
+        this.parser = parser;
+    }
+
+    @Override
+    public LogEntry parse( LogEntryVersion version, ReadableClosableChannel channel, LogPositionMarker marker,
+                           CommandReaderFactory commandReaderFactory ) throws IOException
+    {
+        return parser.parse( version, channel, marker, commandReaderFactory );
+    }
+
+    @Override
+    public byte byteCode()
+    {
+        return parser.byteCode();
+    }
+
+    @Override
+    public boolean skip()
+    {
+        return parser.skip();
+    }
+}
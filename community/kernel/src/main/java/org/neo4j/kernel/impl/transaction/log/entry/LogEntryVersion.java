@@ -93,7 +93,11 @@ public enum LogEntryVersion
     // as of 2016-05-30: neo4j 3.0.2 legacy index IndexDefineCommand maps write size as short instead of byte
     // See comment for V2.2.10 for version number explanation
     // log entry layout hasn't changed since 2_3 so just use that one
-    V3_0_2( -9, LogEntryParsersV2_3.class );
+    V3_0_2( -9, LogEntryParsersV2_3.class ),
+    // as of 2016-10-18: neo4j 3.1 optionally compressed command blocks, see LogEntryByteCodes#COMPRESSED_COMMANDS.
+    // Only written for such blocks, and only if compression is enabled, so that logs written without compression
+    // remain readable by 3.0.x. Commands have the same format as in 3.0.2
+    V3_1( -10, LogEntryParsersV3_1.class );
 
     public static final LogEntryVersion CURRENT = V3_0_2;
     private static final LogEntryVersion[] ALL = values();
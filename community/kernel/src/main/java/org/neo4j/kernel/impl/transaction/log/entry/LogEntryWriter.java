@@ -26,28 +26,50 @@ import org.neo4j.helpers.collection.Visitor;
 import org.neo4j.kernel.impl.transaction.TransactionRepresentation;
 import org.neo4j.kernel.impl.transaction.log.FlushableChannel;
 import org.neo4j.kernel.impl.transaction.log.LogPosition;
+import org.neo4j.kernel.impl.transaction.log.entry.CommandCompressor.SerializedCommands;
 import org.neo4j.storageengine.api.StorageCommand;
 
 import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryByteCodes.CHECK_POINT;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryByteCodes.COMMAND;
+import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryByteCodes.COMPRESSED_COMMANDS;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryByteCodes.TX_1P_COMMIT;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryByteCodes.TX_START;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryVersion.CURRENT;
+import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryVersion.V3_1;
 
-public class LogEntryWriter
+public class LogEntryWriter implements AutoCloseable
 {
     private final FlushableChannel channel;
     private final Visitor<StorageCommand,IOException> serializer;
+    private final boolean compressCommands;
+    private CommandCompressor compressor;
+    private byte[] scratch;
 
     public LogEntryWriter( FlushableChannel channel )
+    {
+        this( channel, false );
+    }
+
+    /**
+     * @param compressCommands whether or not to write the commands of each serialized transaction as one
+     * {@link LogEntryByteCodes#COMPRESSED_COMMANDS compressed block}, where that makes the transaction smaller.
+     * Such blocks can only be read by {@link LogEntryVersion#V3_1} and later.
+     */
+    public LogEntryWriter( FlushableChannel channel, boolean compressCommands )
     {
         this.channel = channel;
         this.serializer = new StorageCommandSerializer( channel );
+        this.compressCommands = compressCommands;
     }
 
     private void writeLogEntryHeader( byte type ) throws IOException
     {
-        channel.put( CURRENT.byteCode() ).put( type );
+        writeLogEntryHeader( CURRENT, type );
+    }
+
+    private void writeLogEntryHeader( LogEntryVersion version, byte type ) throws IOException
+    {
+        channel.put( version.byteCode() ).put( type );
     }
 
     public void writeStartEntry( int masterId, int authorId, long timeWritten, long latestCommittedTxWhenStarted,
@@ -66,17 +88,80 @@ public class LogEntryWriter
 
     public void serialize( TransactionRepresentation tx ) throws IOException
     {
+        if ( compressCommands )
+        {
+            SerializedCommands commands = compressor().compress( tx );
+            if ( commands != null )
+            {
+                writeSerializedCommands( commands );
+                return;
+            }
+        }
         tx.accept( serializer );
     }
 
     public void serialize( Collection<StorageCommand> commands ) throws IOException
     {
+        if ( compressCommands )
+        {
+            SerializedCommands serialized = compressor().compress( commands );
+            if ( serialized != null )
+            {
+                writeSerializedCommands( serialized );
+                return;
+            }
+        }
         for ( StorageCommand command : commands )
         {
             serializer.visit( command );
         }
     }
 
+    private CommandCompressor compressor()
+    {
+        if ( compressor == null )
+        {
+            compressor = new CommandCompressor();
+        }
+        return compressor;
+    }
+
+    /**
+     * Writes commands serialized ahead of time by a {@link CommandCompressor}, as one compressed block if they
+     * were compressed, otherwise as plain command entries.
+     */
+    public void writeSerializedCommands( SerializedCommands commands ) throws IOException
+    {
+        byte[] data = commands.data();
+        if ( commands.isCompressed() )
+        {
+            writeLogEntryHeader( V3_1, COMPRESSED_COMMANDS );
+            channel.putInt( commands.commandCount() ).putInt( commands.length() ).putInt( data.length )
+                   .put( data, data.length );
+            return;
+        }
+
+        // The channel can't be given an offset into the data, so copy each command to the start of a scratch array
+        int start = 0;
+        for ( int i = 0; i < commands.commandCount(); i++ )
+        {
+            int end = commands.commandEnd( i );
+            int length = end - start;
+            if ( scratch == null || scratch.length < length )
+            {
+                scratch = new byte[length];
+            }
+            System.arraycopy( data, start, scratch, 0, length );
+            writeLogEntryHeader( COMMAND );
+            channel.put( scratch, length );
+            start = end;
+        }
+        if ( scratch != null && scratch.length > CommandCompressor.RETAINED_BUFFER_SIZE )
+        {
+            scratch = null;
+        }
+    }
+
     public void writeCheckPointEntry( LogPosition logPosition ) throws IOException
     {
         writeLogEntryHeader( CHECK_POINT );
@@ -84,6 +169,19 @@ public class LogEntryWriter
                 putLong( logPosition.getByteOffset() );
     }
 
+    /**
+     * Releases the native resources held for compressing commands, if any. This writer can still be used
+     * afterwards, but will then allocate them anew.
+     */
+    @Override
+    public void close()
+    {
+        if ( compressor != null )
+        {
+            compressor.close();
+        }
+    }
+
     private class StorageCommandSerializer implements Visitor<StorageCommand,IOException>
     {
         private final FlushableChannel channel;
@@ -19,32 +19,65 @@
  */
 package org.neo4j.kernel.impl.transaction.state;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.neo4j.kernel.api.index.SchemaIndexProvider;
 import org.neo4j.kernel.impl.api.index.SchemaIndexProviderMap;
 
+import static java.util.Collections.emptyList;
+
 public class DefaultSchemaIndexProviderMap implements SchemaIndexProviderMap
 {
-    private final SchemaIndexProvider indexProvider;
+    private final SchemaIndexProvider defaultIndexProvider;
+    private final Map<SchemaIndexProvider.Descriptor,SchemaIndexProvider> indexProviders = new HashMap<>();
+
+    public DefaultSchemaIndexProviderMap( SchemaIndexProvider defaultIndexProvider )
+    {
+        this( defaultIndexProvider, emptyList() );
+    }
 
-    public DefaultSchemaIndexProviderMap( SchemaIndexProvider indexProvider )
+    /**
+     * @param defaultIndexProvider provider to use for new indexes.
+     * @param additionalIndexProviders other providers, available for indexes created with them previously.
+     */
+    public DefaultSchemaIndexProviderMap( SchemaIndexProvider defaultIndexProvider,
+            Iterable<SchemaIndexProvider> additionalIndexProviders )
     {
-        this.indexProvider = indexProvider;
+        this.defaultIndexProvider = defaultIndexProvider;
+        indexProviders.put( defaultIndexProvider.getProviderDescriptor(), defaultIndexProvider );
+        for ( SchemaIndexProvider provider : additionalIndexProviders )
+        {
+            // The default provider wins over any other provider with the same descriptor
+            indexProviders.putIfAbsent( provider.getProviderDescriptor(), provider );
+        }
     }
 
     @Override
     public SchemaIndexProvider getDefaultProvider()
     {
-        return indexProvider;
+        return defaultIndexProvider;
     }
 
     @Override
     public SchemaIndexProvider apply( SchemaIndexProvider.Descriptor descriptor )
     {
-        if ( indexProvider.getProviderDescriptor().getKey().equals( descriptor.getKey() ) )
-            return indexProvider;
+        SchemaIndexProvider provider = indexProviders.get( descriptor );
+        if ( provider != null )
+        {
+            return provider;
+        }
+        for ( SchemaIndexProvider candidate : indexProviders.values() )
+        {
+            // Only the key needs to match, same as before there could be more than one provider
+            if ( candidate.getProviderDescriptor().getKey().equals( descriptor.getKey() ) )
+            {
+                return candidate;
+            }
+        }
 
         throw new IllegalArgumentException( "Tried to get index provider for an existing index with provider " +
-                descriptor + " whereas the default and only supported provider in this session is " +
-                indexProvider.getProviderDescriptor() );
+                descriptor + " whereas available providers in this session being " + indexProviders.keySet() +
+                ", and default being " + defaultIndexProvider.getProviderDescriptor() );
     }
 }
@@ -21,6 +21,14 @@ package org.neo4j.kernel.impl.transaction.state;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.IntPredicate;
 
 import org.neo4j.collection.primitive.PrimitiveLongIterator;
@@ -36,6 +44,7 @@ import org.neo4j.kernel.impl.api.CountsAccessor;
 import org.neo4j.kernel.impl.api.index.IndexStoreView;
 import org.neo4j.kernel.impl.api.index.NodePropertyUpdates;
 import org.neo4j.kernel.impl.api.index.StoreScan;
+import org.neo4j.kernel.impl.api.index.sampling.IndexHistogramStore;
 import org.neo4j.kernel.impl.locking.Lock;
 import org.neo4j.kernel.impl.locking.LockService;
 import org.neo4j.kernel.impl.store.NeoStores;
@@ -49,9 +58,12 @@ import org.neo4j.kernel.impl.store.record.PropertyRecord;
 import org.neo4j.kernel.impl.store.record.Record;
 import org.neo4j.register.Register.DoubleLongRegister;
 import org.neo4j.storageengine.api.EntityType;
+import org.neo4j.storageengine.api.schema.IndexHistogram;
 import org.neo4j.storageengine.api.schema.PopulationProgress;
+import org.neo4j.unsafe.impl.internal.dragons.FeatureToggles;
 
 import static org.neo4j.collection.primitive.PrimitiveLongCollections.EMPTY_LONG_ARRAY;
+import static org.neo4j.helpers.NamedThreadFactory.daemon;
 import static org.neo4j.kernel.api.index.NodePropertyUpdate.add;
 import static org.neo4j.kernel.api.labelscan.NodeLabelUpdate.labelChanges;
 import static org.neo4j.kernel.impl.store.NodeLabelsField.parseLabelsField;
@@ -59,14 +71,36 @@ import static org.neo4j.kernel.impl.store.record.RecordLoad.FORCE;
 
 public class NeoStoreIndexStoreView implements IndexStoreView
 {
+    /**
+     * Number of threads scanning the node store concurrently, each in its own range of node ids, when populating
+     * indexes.
+     */
+    static final int SCAN_WORKERS = FeatureToggles.getInteger( NeoStoreIndexStoreView.class, "scan_workers",
+            Math.max( 1, Runtime.getRuntime().availableProcessors() / 2 ) );
+
+    /**
+     * Smallest number of node ids a scan worker is given, so that small stores are scanned by a single thread.
+     */
+    static final long MIN_IDS_PER_SCAN_WORKER =
+            FeatureToggles.getLong( NeoStoreIndexStoreView.class, "min_ids_per_scan_worker", 1_000_000 );
+
+    private static final String SCAN_THREAD_NAME_PREFIX = "Index Population Scan Thread";
+
     private final PropertyStore propertyStore;
     private final NodeStore nodeStore;
     private final LockService locks;
     private final CountsTracker counts;
+    private final IndexHistogramStore histograms;
 
     public NeoStoreIndexStoreView( LockService locks, NeoStores neoStores )
+    {
+        this( locks, neoStores, new IndexHistogramStore() );
+    }
+
+    public NeoStoreIndexStoreView( LockService locks, NeoStores neoStores, IndexHistogramStore histograms )
     {
         this.locks = locks;
+        this.histograms = histograms;
         this.propertyStore = neoStores.getPropertyStore();
         this.nodeStore = neoStores.getNodeStore();
         this.counts = neoStores.getCounts();
@@ -89,6 +123,19 @@ public class NeoStoreIndexStoreView implements IndexStoreView
             updater.replaceIndexSample( labelId, propertyKeyId, uniqueElements, maxUniqueElements );
             updater.replaceIndexUpdateAndSize( labelId, propertyKeyId, 0L, indexSize );
         }
+        histograms.replace( descriptor, null );
+    }
+
+    @Override
+    public void replaceIndexHistogram( IndexDescriptor descriptor, IndexHistogram histogram )
+    {
+        histograms.replace( descriptor, histogram );
+    }
+
+    @Override
+    public IndexHistogram indexHistogram( IndexDescriptor descriptor )
+    {
+        return histograms.get( descriptor );
     }
 
     @Override
@@ -112,8 +159,16 @@ public class NeoStoreIndexStoreView implements IndexStoreView
             final Visitor<NodePropertyUpdates, FAILURE> propertyUpdatesVisitor,
             final Visitor<NodeLabelUpdate, FAILURE> labelUpdateVisitor )
     {
+        // label updates have to be visited in order of ascending node id, so only property updates can be scanned for
+        // by more than one thread
+        int workers = labelUpdateVisitor == null ? scanWorkers( nodeStore.getHighId() ) : 1;
         return new StoreViewNodeStoreScan<>( nodeStore, locks, propertyStore, labelUpdateVisitor,
-                propertyUpdatesVisitor, labelIdFilter, propertyKeyIdFilter );
+                propertyUpdatesVisitor, labelIdFilter, propertyKeyIdFilter, workers );
+    }
+
+    private static int scanWorkers( long highId )
+    {
+        return (int) Math.max( 1, Math.min( SCAN_WORKERS, highId / Math.max( 1, MIN_IDS_PER_SCAN_WORKER ) ) );
     }
 
     @Override
@@ -180,44 +235,191 @@ public class NeoStoreIndexStoreView implements IndexStoreView
         return false;
     }
 
+    /**
+     * Visits all nodes in use in the node store. With a single worker nodes are visited in order of ascending id.
+     * With more workers the id space is split into as many ranges, which are scanned concurrently, and nodes are
+     * visited in order of ascending id within each range only. {@link #process(NodeRecord)} is never called
+     * concurrently, while {@link #processConcurrently(NodeRecord)} lets subclasses do the part of the work that is
+     * safe to do in parallel before visiting.
+     * <p>
+     * Every node is visited while holding its read lock, and the scan considers the node {@link #isVisited(long, long)
+     * visited} before releasing that lock, so that a concurrent change to a node is either seen by the scan or made
+     * after the node has been visited.
+     */
     abstract static class NodeStoreScan<FAILURE extends Exception> implements StoreScan<FAILURE>
     {
         private volatile boolean continueScanning;
+        private volatile boolean completed;
         private final NodeRecord record;
 
         protected final NodeStore nodeStore;
         protected final LockService locks;
         private final long totalCount;
+        private final int workers;
 
-        private long count = 0;
+        private final LongAdder count = new LongAdder();
+        private long rangeSize;
+        private AtomicLongArray lastVisitedIds;
 
         protected abstract void process( NodeRecord loaded ) throws FAILURE;
 
         public NodeStoreScan( NodeStore nodeStore, LockService locks, long totalCount )
+        {
+            this( nodeStore, locks, totalCount, 1 );
+        }
+
+        public NodeStoreScan( NodeStore nodeStore, LockService locks, long totalCount, int workers )
         {
             this.nodeStore = nodeStore;
             this.record = nodeStore.newRecord();
             this.locks = locks;
             this.totalCount = totalCount;
+            this.workers = workers;
         }
 
         @Override
         public void run() throws FAILURE
         {
-            PrimitiveLongIterator nodeIds = new StoreIdIterator( nodeStore );
             continueScanning = true;
+            if ( workers > 1 )
+            {
+                runInParallel();
+                return;
+            }
+            PrimitiveLongIterator nodeIds = new StoreIdIterator( nodeStore );
             while ( continueScanning && nodeIds.hasNext() )
             {
                 long id = nodeIds.next();
                 try ( Lock ignored = locks.acquireNodeLock( id, LockService.LockType.READ_LOCK ) )
                 {
-                    count++;
+                    count.increment();
                     if ( nodeStore.getRecord( id, record, FORCE ).inUse() )
                     {
                         process( record );
                     }
                 }
             }
+            completed = continueScanning;
+        }
+
+        /**
+         * Called for each node in use by the worker that loaded it, possibly concurrently with other workers.
+         * Processes the node while holding the lock of this scan by default.
+         *
+         * @param loaded the record of the node.
+         * @throws FAILURE if processing the node fails.
+         */
+        protected void processConcurrently( NodeRecord loaded ) throws FAILURE
+        {
+            synchronized ( this )
+            {
+                process( loaded );
+            }
+        }
+
+        private void runInParallel() throws FAILURE
+        {
+            long firstId = nodeStore.getNumberOfReservedLowIds();
+            rangeSize = Math.max( 1, (nodeStore.getHighId() - firstId + workers - 1) / workers );
+            lastVisitedIds = new AtomicLongArray( workers );
+            for ( int range = 0; range < workers; range++ )
+            {
+                lastVisitedIds.set( range, firstId + range * rangeSize - 1 );
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool( workers, daemon( SCAN_THREAD_NAME_PREFIX ) );
+            try
+            {
+                List<Future<?>> scans = new ArrayList<>( workers );
+                for ( int range = 0; range < workers; range++ )
+                {
+                    int scannedRange = range;
+                    scans.add( executor.submit( () -> {
+                        scanRange( scannedRange, firstId );
+                        return null;
+                    } ) );
+                }
+                awaitScans( scans );
+                completed = continueScanning;
+            }
+            finally
+            {
+                executor.shutdownNow();
+            }
+        }
+
+        private void scanRange( int range, long firstId ) throws FAILURE
+        {
+            NodeRecord record = nodeStore.newRecord();
+            boolean lastRange = range == workers - 1;
+            long id = firstId + range * rangeSize;
+            long endId = firstId + (range + 1) * rangeSize;
+            // the last range also covers the nodes created while scanning
+            while ( continueScanning && id < (lastRange ? nodeStore.getHighId() : endId) )
+            {
+                try ( Lock ignored = locks.acquireNodeLock( id, LockService.LockType.READ_LOCK ) )
+                {
+                    count.increment();
+                    if ( nodeStore.getRecord( id, record, FORCE ).inUse() )
+                    {
+                        processConcurrently( record );
+                    }
+                    lastVisitedIds.set( range, id );
+                }
+                id++;
+            }
+        }
+
+        @SuppressWarnings( "unchecked" )
+        private void awaitScans( List<Future<?>> scans ) throws FAILURE
+        {
+            Throwable failure = null;
+            for ( Future<?> scan : scans )
+            {
+                try
+                {
+                    scan.get();
+                }
+                catch ( ExecutionException e )
+                {
+                    stop();
+                    failure = failure == null ? e.getCause() : failure;
+                }
+                catch ( InterruptedException e )
+                {
+                    stop();
+                    Thread.currentThread().interrupt();
+                    failure = failure == null ? e : failure;
+                }
+            }
+            if ( failure instanceof RuntimeException )
+            {
+                throw (RuntimeException) failure;
+            }
+            if ( failure instanceof Error )
+            {
+                throw (Error) failure;
+            }
+            if ( failure != null )
+            {
+                throw (FAILURE) failure;
+            }
+        }
+
+        @Override
+        public boolean isVisited( long nodeId, long currentlyVisitedNodeId )
+        {
+            if ( completed )
+            {
+                return true;
+            }
+            if ( workers <= 1 )
+            {
+                return nodeId <= currentlyVisitedNodeId;
+            }
+            int range = (int) Math.max( 0, Math.min( workers - 1,
+                    (nodeId - nodeStore.getNumberOfReservedLowIds()) / rangeSize ) );
+            return nodeId <= lastVisitedIds.get( range );
         }
 
         @Override
@@ -231,7 +433,7 @@ public class NeoStoreIndexStoreView implements IndexStoreView
         {
             if ( totalCount > 0 )
             {
-                return new PopulationProgress( count, totalCount );
+                return new PopulationProgress( count.sum(), totalCount );
             }
 
             // nothing to do 100% completed
@@ -253,7 +455,16 @@ public class NeoStoreIndexStoreView implements IndexStoreView
                 labelUpdateVisitor, Visitor<NodePropertyUpdates,FAILURE> propertyUpdatesVisitor,
                 IntPredicate labelIdFilter, IntPredicate propertyKeyIdFilter )
         {
-            super( nodeStore, locks, nodeStore.getHighId() );
+            this( nodeStore, locks, propertyStore, labelUpdateVisitor, propertyUpdatesVisitor, labelIdFilter,
+                    propertyKeyIdFilter, 1 );
+        }
+
+        StoreViewNodeStoreScan( NodeStore nodeStore, LockService locks, PropertyStore propertyStore,
+                Visitor<NodeLabelUpdate,FAILURE> labelUpdateVisitor,
+                Visitor<NodePropertyUpdates,FAILURE> propertyUpdatesVisitor,
+                IntPredicate labelIdFilter, IntPredicate propertyKeyIdFilter, int workers )
+        {
+            super( nodeStore, locks, nodeStore.getHighId(), workers );
             this.propertyStore = propertyStore;
             this.labelUpdateVisitor = labelUpdateVisitor;
             this.propertyUpdatesVisitor = propertyUpdatesVisitor;
@@ -278,26 +489,53 @@ public class NeoStoreIndexStoreView implements IndexStoreView
                 labelUpdateVisitor.visit( labelChanges( node.getId(), EMPTY_LONG_ARRAY, labels ) );
             }
 
-            if ( propertyUpdatesVisitor != null && containsAnyLabel( labelIdFilter, labels ) )
+            if ( propertyUpdatesVisitor != null && readPropertyUpdates( node, labels, updates ) )
             {
-
-                updates.initForNodeId( node.getId() );
                 // Notify the property update visitor
-                for ( PropertyBlock property : properties( node ) )
+                propertyUpdatesVisitor.visit( updates );
+                updates.reset();
+            }
+        }
+
+        @Override
+        protected void processConcurrently( NodeRecord node ) throws FAILURE
+        {
+            if ( labelUpdateVisitor != null )
+            {
+                super.processConcurrently( node );
+                return;
+            }
+
+            // read labels and properties in the scanning thread, and only visit the updates one at a time
+            long[] labels = parseLabelsField( node ).get( this.nodeStore );
+            NodePropertyUpdates nodeUpdates = new NodePropertyUpdates();
+            if ( propertyUpdatesVisitor != null && labels.length > 0 &&
+                 readPropertyUpdates( node, labels, nodeUpdates ) )
+            {
+                synchronized ( this )
                 {
-                    int propertyKeyId = property.getKeyIndexId();
-                    if ( propertyKeyIdFilter.test( propertyKeyId ) )
-                    {
-                        // This node has a property of interest to us
-                        updates.add( propertyKeyId, valueOf( property ), labels );
-                    }
+                    propertyUpdatesVisitor.visit( nodeUpdates );
                 }
-                if ( updates.containsUpdates() )
+            }
+        }
+
+        private boolean readPropertyUpdates( NodeRecord node, long[] labels, NodePropertyUpdates target )
+        {
+            if ( !containsAnyLabel( labelIdFilter, labels ) )
+            {
+                return false;
+            }
+            target.initForNodeId( node.getId() );
+            for ( PropertyBlock property : properties( node ) )
+            {
+                int propertyKeyId = property.getKeyIndexId();
+                if ( propertyKeyIdFilter.test( propertyKeyId ) )
                 {
-                    propertyUpdatesVisitor.visit( updates );
-                    updates.reset();
+                    // This node has a property of interest to us
+                    target.add( propertyKeyId, valueOf( property ), labels );
                 }
             }
+            return target.containsUpdates();
         }
 
         private Iterable<PropertyBlock> properties( final NodeRecord node )
@@ -127,6 +127,11 @@ public interface JobScheduler extends Lifecycle
         public static final Group indexSamplingController = new Group( "IndexSamplingController", POOLED );
         public static final Group indexSampling = new Group( "IndexSampling", POOLED );
 
+        /**
+         * Makes changes to indexes visible to their searchers.
+         */
+        public static final Group indexRefresh = new Group( "IndexRefresh", POOLED );
+
         /**
          * Rotates internal diagnostic logs
          */
@@ -137,6 +142,16 @@ public interface JobScheduler extends Lifecycle
          */
         public static final Group queryLogRotation = new Group( "queryLogRotation", POOLED );
 
+        /**
+         * Parses rows of LOAD CSV files ahead of the queries reading them
+         */
+        public static final Group loadCsvParsing = new Group( "LoadCsvParsing", POOLED );
+
+        /**
+         * Workers of Cypher queries run in the parallel runtime.
+         */
+        public static final Group cypherWorker = new Group( "CypherWorker", POOLED );
+
         /**
          * Checkpoint and store flush
          */
@@ -171,6 +186,16 @@ public interface JobScheduler extends Lifecycle
          * Native security.
          */
         public static Group nativeSecurity = new Group( "NativeSecurity", POOLED );
+
+        /**
+         * Persisting and warming up the Cypher query cache.
+         */
+        public static final Group queryCacheWarmup = new Group( "QueryCacheWarmup", POOLED );
+
+        /**
+         * Applying record changes of recovered transactions in parallel.
+         */
+        public static final Group recoveryApplier = new Group( "RecoveryApplier", POOLED );
     }
 
     interface JobHandle
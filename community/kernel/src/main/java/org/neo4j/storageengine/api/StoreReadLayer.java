@@ -364,6 +364,19 @@ public interface StoreReadLayer
      */
     double indexUniqueValuesPercentage( IndexDescriptor index ) throws IndexNotFoundKernelException;
 
+    /**
+     * @param index {@link IndexDescriptor} to estimate the range selectivity for.
+     * @param lower lower bound of the range, or {@code null} for no lower bound.
+     * @param includeLower whether or not the lower bound is inclusive.
+     * @param upper upper bound of the range, or {@code null} for no upper bound.
+     * @param includeUpper whether or not the upper bound is inclusive.
+     * @return estimated fraction of the entries in this index having a number value within the range,
+     * or {@link Double#NaN} if the index has no histogram to estimate it from.
+     * @throws IndexNotFoundKernelException if no such index exists.
+     */
+    double indexNumberRangeSelectivity( IndexDescriptor index, Number lower, boolean includeLower, Number upper,
+            boolean includeUpper ) throws IndexNotFoundKernelException;
+
     long nodesGetCount();
 
     long relationshipsGetCount();
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.storageengine.api.schema;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Distribution of the numeric values in an index, as seen by the last sampling. Consists of equi-depth buckets
+ * covering the whole value range and a list of the most common values, which are kept out of the buckets so that
+ * a few heavily repeated values don't distort the estimates for the rest.
+ * <p>
+ * Bucket {@code i} covers values in {@code (upperBound(i - 1), upperBound(i)]}, the first bucket starting at,
+ * and including, the lowest value in the index.
+ */
+public final class IndexHistogram
+{
+    private final double lowestValue;
+    private final double[] upperBounds;
+    private final long[] bucketCounts;
+    private final long[] bucketDistinctValues;
+    private final double[] commonValues;
+    private final long[] commonValueCounts;
+    private final long totalCount;
+
+    public IndexHistogram( double lowestValue, double[] upperBounds, long[] bucketCounts,
+            long[] bucketDistinctValues, double[] commonValues, long[] commonValueCounts )
+    {
+        assert upperBounds.length == bucketCounts.length && upperBounds.length == bucketDistinctValues.length;
+        assert commonValues.length == commonValueCounts.length;
+        this.lowestValue = lowestValue;
+        this.upperBounds = upperBounds;
+        this.bucketCounts = bucketCounts;
+        this.bucketDistinctValues = bucketDistinctValues;
+        this.commonValues = commonValues;
+        this.commonValueCounts = commonValueCounts;
+        long total = 0;
+        for ( long count : bucketCounts )
+        {
+            total += count;
+        }
+        for ( long count : commonValueCounts )
+        {
+            total += count;
+        }
+        this.totalCount = total;
+    }
+
+    /**
+     * @return number of index entries that this histogram describes.
+     */
+    public long totalCount()
+    {
+        return totalCount;
+    }
+
+    public int numberOfBuckets()
+    {
+        return upperBounds.length;
+    }
+
+    public int numberOfCommonValues()
+    {
+        return commonValues.length;
+    }
+
+    /**
+     * Estimates the number of index entries with a value in the given range. Use infinities for open ended ranges.
+     * A range with equal inclusive bounds estimates the number of entries having that exact value.
+     */
+    public double estimateCount( double lower, boolean includeLower, double upper, boolean includeUpper )
+    {
+        if ( Double.isNaN( lower ) || Double.isNaN( upper ) || lower > upper ||
+             (lower == upper && !(includeLower && includeUpper)) )
+        {
+            return 0;
+        }
+
+        if ( lower == upper )
+        {
+            int common = Arrays.binarySearch( commonValues, lower );
+            if ( common >= 0 )
+            {
+                return commonValueCounts[common];
+            }
+        }
+
+        double estimate = 0;
+        for ( int i = 0; i < commonValues.length; i++ )
+        {
+            if ( within( commonValues[i], lower, includeLower, upper, includeUpper ) )
+            {
+                estimate += commonValueCounts[i];
+            }
+        }
+
+        for ( int i = 0; i < upperBounds.length; i++ )
+        {
+            double bucketLower = i == 0 ? lowestValue : upperBounds[i - 1];
+            double bucketUpper = upperBounds[i];
+            estimate += lower == upper
+                        ? estimateEqualsInBucket( i, bucketLower, bucketUpper, lower )
+                        : estimateRangeInBucket( i, bucketLower, bucketUpper, lower, upper );
+        }
+        return estimate;
+    }
+
+    private double estimateEqualsInBucket( int bucket, double bucketLower, double bucketUpper, double value )
+    {
+        boolean inBucket = bucket == 0 ? value >= bucketLower && value <= bucketUpper
+                                       : value > bucketLower && value <= bucketUpper;
+        if ( !inBucket || bucketDistinctValues[bucket] == 0 )
+        {
+            return 0;
+        }
+        // assume all non-common values in a bucket are equally frequent
+        return (double) bucketCounts[bucket] / bucketDistinctValues[bucket];
+    }
+
+    private double estimateRangeInBucket( int bucket, double bucketLower, double bucketUpper,
+            double lower, double upper )
+    {
+        double overlapLower = Math.max( lower, bucketLower );
+        double overlapUpper = Math.min( upper, bucketUpper );
+        if ( overlapLower > overlapUpper )
+        {
+            return 0;
+        }
+        double width = bucketUpper - bucketLower;
+        if ( width <= 0 || Double.isInfinite( width ) )
+        {
+            // single valued bucket, or one we can't interpolate in
+            return bucketCounts[bucket];
+        }
+        // assume values are evenly spread within a bucket
+        return bucketCounts[bucket] * ((overlapUpper - overlapLower) / width);
+    }
+
+    private static boolean within( double value, double lower, boolean includeLower, double upper,
+            boolean includeUpper )
+    {
+        int lowerComparison = Double.compare( value, lower );
+        int upperComparison = Double.compare( value, upper );
+        return (includeLower ? lowerComparison >= 0 : lowerComparison > 0) &&
+               (includeUpper ? upperComparison <= 0 : upperComparison < 0);
+    }
+
+    /**
+     * Writes this histogram in a form that {@link #read(DataInput)} reads back.
+     */
+    public void write( DataOutput out ) throws IOException
+    {
+        out.writeDouble( lowestValue );
+        out.writeInt( upperBounds.length );
+        for ( int i = 0; i < upperBounds.length; i++ )
+        {
+            out.writeDouble( upperBounds[i] );
+            out.writeLong( bucketCounts[i] );
+            out.writeLong( bucketDistinctValues[i] );
+        }
+        out.writeInt( commonValues.length );
+        for ( int i = 0; i < commonValues.length; i++ )
+        {
+            out.writeDouble( commonValues[i] );
+            out.writeLong( commonValueCounts[i] );
+        }
+    }
+
+    public static IndexHistogram read( DataInput in ) throws IOException
+    {
+        double lowestValue = in.readDouble();
+        int numberOfBuckets = in.readInt();
+        double[] upperBounds = new double[numberOfBuckets];
+        long[] bucketCounts = new long[numberOfBuckets];
+        long[] bucketDistinctValues = new long[numberOfBuckets];
+        for ( int i = 0; i < numberOfBuckets; i++ )
+        {
+            upperBounds[i] = in.readDouble();
+            bucketCounts[i] = in.readLong();
+            bucketDistinctValues[i] = in.readLong();
+        }
+        int numberOfCommonValues = in.readInt();
+        double[] commonValues = new double[numberOfCommonValues];
+        long[] commonValueCounts = new long[numberOfCommonValues];
+        for ( int i = 0; i < numberOfCommonValues; i++ )
+        {
+            commonValues[i] = in.readDouble();
+            commonValueCounts[i] = in.readLong();
+        }
+        return new IndexHistogram( lowestValue, upperBounds, bucketCounts, bucketDistinctValues, commonValues,
+                commonValueCounts );
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( this == o )
+        {
+            return true;
+        }
+        if ( o == null || getClass() != o.getClass() )
+        {
+            return false;
+        }
+        IndexHistogram that = (IndexHistogram) o;
+        return Double.compare( lowestValue, that.lowestValue ) == 0 &&
+               Arrays.equals( upperBounds, that.upperBounds ) &&
+               Arrays.equals( bucketCounts, that.bucketCounts ) &&
+               Arrays.equals( bucketDistinctValues, that.bucketDistinctValues ) &&
+               Arrays.equals( commonValues, that.commonValues ) &&
+               Arrays.equals( commonValueCounts, that.commonValueCounts );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int result = Double.hashCode( lowestValue );
+        result = 31 * result + Arrays.hashCode( upperBounds );
+        result = 31 * result + Arrays.hashCode( bucketCounts );
+        result = 31 * result + Arrays.hashCode( commonValues );
+        result = 31 * result + Arrays.hashCode( commonValueCounts );
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "IndexHistogram{" +
+               "buckets=" + upperBounds.length +
+               ", commonValues=" + commonValues.length +
+               ", totalCount=" + totalCount +
+               '}';
+    }
+}
@@ -48,6 +48,15 @@ public interface IndexReader extends Resource
      */
     PrimitiveLongIterator rangeSeekByNumberInclusive( Number lower, Number upper );
 
+    /**
+     * @return {@code true} if {@link #rangeSeekByNumberInclusive(Number, Number)} returns nodes in ascending order
+     * of their property value, otherwise {@code false}.
+     */
+    default boolean hasOrderedNumberRangeSeeks()
+    {
+        return false;
+    }
+
     /**
      * Searches this index for string values between {@code lower} and {@code upper}.
      *
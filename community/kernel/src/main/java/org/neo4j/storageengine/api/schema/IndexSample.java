@@ -24,6 +24,7 @@ public final class IndexSample
     private final long indexSize;
     private final long uniqueValues;
     private final long sampleSize;
+    private final IndexHistogram histogram;
 
     public IndexSample()
     {
@@ -31,10 +32,16 @@ public final class IndexSample
     }
 
     public IndexSample( long indexSize, long uniqueValues, long sampleSize )
+    {
+        this( indexSize, uniqueValues, sampleSize, null );
+    }
+
+    public IndexSample( long indexSize, long uniqueValues, long sampleSize, IndexHistogram histogram )
     {
         this.indexSize = indexSize;
         this.uniqueValues = uniqueValues;
         this.sampleSize = sampleSize;
+        this.histogram = histogram;
     }
 
     public long indexSize()
@@ -52,6 +59,14 @@ public final class IndexSample
         return sampleSize;
     }
 
+    /**
+     * @return histogram of the numeric values in the index, or {@code null} if the sampler didn't build one.
+     */
+    public IndexHistogram histogram()
+    {
+        return histogram;
+    }
+
     @Override
     public boolean equals( Object o )
     {
@@ -64,7 +79,8 @@ public final class IndexSample
             return false;
         }
         IndexSample that = (IndexSample) o;
-        return indexSize == that.indexSize && uniqueValues == that.uniqueValues && sampleSize == that.sampleSize;
+        return indexSize == that.indexSize && uniqueValues == that.uniqueValues && sampleSize == that.sampleSize &&
+               (histogram == null ? that.histogram == null : histogram.equals( that.histogram ));
     }
 
     @Override
@@ -73,6 +89,7 @@ public final class IndexSample
         int result = (int) (indexSize ^ (indexSize >>> 32));
         result = 31 * result + (int) (uniqueValues ^ (uniqueValues >>> 32));
         result = 31 * result + (int) (sampleSize ^ (sampleSize >>> 32));
+        result = 31 * result + (histogram != null ? histogram.hashCode() : 0);
         return result;
     }
 
@@ -83,6 +100,7 @@ public final class IndexSample
                "indexSize=" + indexSize +
                ", uniqueValues=" + uniqueValues +
                ", sampleSize=" + sampleSize +
+               ", histogram=" + histogram +
                '}';
     }
 }
@@ -73,10 +73,12 @@ import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.extension.KernelExtensionFactory;
 import org.neo4j.kernel.extension.KernelExtensions;
 import org.neo4j.kernel.extension.UnsatisfiedDependencyStrategies;
+import org.neo4j.kernel.extension.dependency.AllByPrioritySelectionStrategy;
 import org.neo4j.kernel.extension.dependency.HighestSelectionStrategy;
 import org.neo4j.kernel.impl.api.index.NodePropertyUpdates;
 import org.neo4j.kernel.impl.api.index.SchemaIndexProviderMap;
 import org.neo4j.kernel.impl.api.index.StoreScan;
+import org.neo4j.kernel.impl.api.index.sampling.IndexHistogramStore;
 import org.neo4j.kernel.impl.api.index.sampling.IndexSamplingConfig;
 import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider;
 import org.neo4j.kernel.impl.api.store.SchemaCache;
@@ -280,18 +282,22 @@ public class BatchInserterImpl implements BatchInserter
         relationshipTypeTokens = new BatchTokenHolder( types );
         indexStore = life.add( new IndexConfigStore( this.storeDir, fileSystem ) );
         schemaCache = new SchemaCache( new StandardConstraintSemantics(), schemaStore );
-        indexStoreView = new NeoStoreIndexStoreView( LockService.NO_LOCK_SERVICE, neoStores );
+        indexStoreView = new NeoStoreIndexStoreView( LockService.NO_LOCK_SERVICE, neoStores,
+                new IndexHistogramStore( fileSystem, this.storeDir ) );
 
         Dependencies deps = new Dependencies();
-        deps.satisfyDependencies( fileSystem, config, logService, indexStoreView );
+        deps.satisfyDependencies( fileSystem, config, logService, indexStoreView, pageCache );
 
         KernelExtensions extensions = life.add( new KernelExtensions(
                 new SimpleKernelContext( fileSystem, storeDir, DatabaseInfo.UNKNOWN, deps ),
                 kernelExtensions, deps, UnsatisfiedDependencyStrategies.ignore() ) );
 
+        AllByPrioritySelectionStrategy<SchemaIndexProvider> indexProviderSelection =
+                new AllByPrioritySelectionStrategy<>();
         SchemaIndexProvider provider = extensions.resolveDependency( SchemaIndexProvider.class,
-                HighestSelectionStrategy.getInstance() );
-        schemaIndexProviders = new DefaultSchemaIndexProviderMap( provider );
+                indexProviderSelection );
+        schemaIndexProviders = new DefaultSchemaIndexProviderMap( provider,
+                indexProviderSelection.lowerPrioritizedCandidates() );
         labelScanStore = life.add( extensions.resolveDependency( LabelScanStoreProvider.class,
                 HighestSelectionStrategy.getInstance() ).getLabelScanStore() );
         actions = new BatchSchemaActions();
@@ -19,9 +19,12 @@
  */
 package org.neo4j.unsafe.impl.batchimport;
 
+import org.neo4j.kernel.impl.store.RecordStore;
 import org.neo4j.kernel.impl.store.record.PropertyBlock;
+import org.neo4j.kernel.impl.store.record.RelationshipGroupRecord;
 import org.neo4j.unsafe.batchinsert.BatchInserter;
 import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMapper;
+import org.neo4j.unsafe.impl.batchimport.input.Collector;
 import org.neo4j.unsafe.impl.batchimport.input.Input;
 import org.neo4j.unsafe.impl.batchimport.input.InputRelationship;
 import org.neo4j.unsafe.impl.batchimport.staging.Stage;
@@ -49,12 +52,27 @@ public class BatchInsertRelationshipsStage extends Stage
     public BatchInsertRelationshipsStage( Configuration config, IdMapper idMapper,
             InputIterator<InputRelationship> relationships, BatchingNeoStores store, long nextRelationshipId )
     {
-        super( "Minority relationships", config, ORDER_SEND_DOWNSTREAM );
+        this( "Minority relationships", config, idMapper, relationships, store,
+                store.getTemporaryRelationshipGroupStore(), nextRelationshipId, null );
+    }
+
+    /**
+     * @param relationshipGroupStore store of the relationship groups of dense nodes to insert into, which is the
+     * actual relationship group store when inserting relationships into an existing store.
+     * @param badCollector collects relationships referring to missing nodes, or {@code null} if they have
+     * already been collected by an earlier stage.
+     */
+    public BatchInsertRelationshipsStage( String name, Configuration config, IdMapper idMapper,
+            InputIterator<InputRelationship> relationships, BatchingNeoStores store,
+            RecordStore<RelationshipGroupRecord> relationshipGroupStore, long nextRelationshipId,
+            Collector badCollector )
+    {
+        super( name, config, ORDER_SEND_DOWNSTREAM );
         add( new InputIteratorBatcherStep<>( control(), config, relationships, InputRelationship.class ) );
         add( new RelationshipPreparationStep( control(), config, idMapper ) );
         add( new PropertyEncoderStep<>( control(), config, store.getPropertyKeyRepository(),
                 store.getPropertyStore() ) );
-        add( new BatchInsertRelationshipsStep( control(), config, store,
-                store.getRelationshipTypeRepository(), nextRelationshipId ) );
+        add( new BatchInsertRelationshipsStep( control(), config, store, relationshipGroupStore,
+                store.getRelationshipTypeRepository(), nextRelationshipId, badCollector ) );
     }
 }
@@ -35,6 +35,7 @@ import org.neo4j.kernel.impl.transaction.state.RelationshipCreator;
 import org.neo4j.kernel.impl.transaction.state.RelationshipGroupGetter;
 import org.neo4j.kernel.impl.util.ReusableIteratorCostume;
 import org.neo4j.unsafe.batchinsert.DirectRecordAccessSet;
+import org.neo4j.unsafe.impl.batchimport.input.Collector;
 import org.neo4j.unsafe.impl.batchimport.input.InputRelationship;
 import org.neo4j.unsafe.impl.batchimport.staging.BatchSender;
 import org.neo4j.unsafe.impl.batchimport.staging.ProcessorStep;
@@ -52,6 +53,7 @@ public class BatchInsertRelationshipsStep extends ProcessorStep<Batch<InputRelat
     private final PropertyCreator propertyCreator;
     private final DirectRecordAccessSet recordAccess;
     private final PropertyStore propertyStore;
+    private final Collector badCollector;
     private int pendingRelationshipChanges;
 
     // Reusable instances for less GC
@@ -60,10 +62,22 @@ public class BatchInsertRelationshipsStep extends ProcessorStep<Batch<InputRelat
 
     public BatchInsertRelationshipsStep( StageControl control, Configuration config, BatchingNeoStores store,
             ToIntFunction<Object> typeToId, long nextRelationshipId )
+    {
+        this( control, config, store, store.getTemporaryRelationshipGroupStore(), typeToId, nextRelationshipId,
+                null );
+    }
+
+    /**
+     * @param badCollector collects relationships referring to missing nodes, or {@code null} if they have
+     * already been collected by an earlier stage.
+     */
+    public BatchInsertRelationshipsStep( StageControl control, Configuration config, BatchingNeoStores store,
+            RecordStore<RelationshipGroupRecord> relationshipGroupStore, ToIntFunction<Object> typeToId,
+            long nextRelationshipId, Collector badCollector )
     {
         super( control, "INSERT", config, 1 );
         this.typeToId = typeToId;
-        RecordStore<RelationshipGroupRecord> relationshipGroupStore = store.getTemporaryRelationshipGroupStore();
+        this.badCollector = badCollector;
         RelationshipGroupGetter groupGetter = new RelationshipGroupGetter( relationshipGroupStore );
         this.relationshipCreator = new RelationshipCreator( groupGetter, config.denseNodeThreshold() );
         PropertyTraverser propertyTraverser = new PropertyTraverser();
@@ -113,7 +127,11 @@ public class BatchInsertRelationshipsStep extends ProcessorStep<Batch<InputRelat
                     }
                 }
             }
-            // else --> This is commonly known as input relationship referring to missing node IDs
+            else if ( badCollector != null )
+            {
+                // This is commonly known as input relationship referring to missing node IDs
+                badCollector.collectBadRelationship( input, startNodeId == -1 ? input.startNode() : input.endNode() );
+            }
             propertyBlockCursor += propertyBlockCount;
         }
 
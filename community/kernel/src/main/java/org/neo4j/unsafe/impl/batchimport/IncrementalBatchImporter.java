@@ -0,0 +1,663 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.helpers.Exceptions;
+import org.neo4j.helpers.Format;
+import org.neo4j.io.fs.DefaultFileSystemAbstraction;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.api.CountsAccessor;
+import org.neo4j.kernel.impl.logging.LogService;
+import org.neo4j.kernel.impl.pagecache.StandalonePageCacheFactory;
+import org.neo4j.kernel.impl.store.MetaDataStore;
+import org.neo4j.kernel.impl.store.NodeStore;
+import org.neo4j.kernel.impl.store.PropertyStore;
+import org.neo4j.kernel.impl.store.TransactionId;
+import org.neo4j.kernel.impl.store.format.RecordFormatSelector;
+import org.neo4j.kernel.impl.store.format.RecordFormats;
+import org.neo4j.kernel.impl.store.record.IndexRule;
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.kernel.impl.store.record.PropertyBlock;
+import org.neo4j.kernel.impl.store.record.PropertyConstraintRule;
+import org.neo4j.kernel.impl.store.record.PropertyRecord;
+import org.neo4j.kernel.impl.transaction.log.PhysicalLogFile;
+import org.neo4j.logging.Log;
+import org.neo4j.storageengine.api.Token;
+import org.neo4j.storageengine.api.schema.SchemaRule;
+import org.neo4j.unsafe.impl.batchimport.cache.NodeLabelsCache;
+import org.neo4j.unsafe.impl.batchimport.cache.NodeRelationshipCache;
+import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdGenerator;
+import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdGenerators;
+import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMapper;
+import org.neo4j.unsafe.impl.batchimport.input.Collector;
+import org.neo4j.unsafe.impl.batchimport.input.Group;
+import org.neo4j.unsafe.impl.batchimport.input.Input;
+import org.neo4j.unsafe.impl.batchimport.input.InputCache;
+import org.neo4j.unsafe.impl.batchimport.input.InputNode;
+import org.neo4j.unsafe.impl.batchimport.input.InputRelationship;
+import org.neo4j.unsafe.impl.batchimport.staging.DynamicProcessorAssigner;
+import org.neo4j.unsafe.impl.batchimport.staging.ExecutionMonitor;
+import org.neo4j.unsafe.impl.batchimport.staging.Stage;
+import org.neo4j.unsafe.impl.batchimport.stats.StatsProvider;
+import org.neo4j.unsafe.impl.batchimport.store.BatchingNeoStores;
+import org.neo4j.unsafe.impl.batchimport.store.io.IoMonitor;
+
+import static java.lang.String.format;
+import static java.lang.System.currentTimeMillis;
+import static org.neo4j.collection.primitive.PrimitiveLongCollections.filter;
+import static org.neo4j.kernel.impl.store.record.RecordLoad.CHECK;
+import static org.neo4j.kernel.impl.transaction.log.entry.LogHeader.LOG_HEADER_SIZE;
+import static org.neo4j.unsafe.impl.batchimport.SourceOrCachedInputIterable.cachedForSure;
+import static org.neo4j.unsafe.impl.batchimport.Utils.idsOf;
+import static org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory.AUTO;
+import static org.neo4j.unsafe.impl.batchimport.input.InputCache.MAIN;
+import static org.neo4j.unsafe.impl.batchimport.staging.ExecutionSupervisors.superviseExecution;
+import static org.neo4j.unsafe.impl.batchimport.staging.ExecutionSupervisors.withDynamicProcessorAssignment;
+
+/**
+ * {@link BatchImporter} which imports additional nodes and relationships into a store which already
+ * contains data. The store must have been cleanly shut down and must not be in use by any database
+ * while importing.
+ * <p>
+ * New nodes are appended after the existing nodes. Relationships are inserted one by one in the style of
+ * {@link BatchInsertRelationshipsStage}, which means that they can be linked into relationship chains of existing
+ * nodes, but also that relationships are imported at a slower rate than in an import into an empty store.
+ * Relationships can refer to existing nodes by their actual node id if the {@link Input#idMapper() id mapper}
+ * doesn't need preparation, or otherwise by the value of a property, see
+ * {@link #IncrementalBatchImporter(File, FileSystemAbstraction, Configuration, LogService, ExecutionMonitor,
+ * Config, RecordFormats, String)}. Such existing nodes are registered in the {@link Group#GLOBAL global group}.
+ * <p>
+ * The import runs against a copy of the store files, which replaces the store files only once the import
+ * has completed successfully. A failed import leaves the store as it was. The import is recorded as a
+ * transaction of its own, without any commands in the transaction log, so that backups and cluster
+ * members notice that they can't catch up with this store by pulling transactions.
+ * Stores of core cluster members are refused.
+ * <p>
+ * Counts are recounted from scratch after the import and any schema indexes are dropped from disk so that
+ * they are repopulated when the database starts up. Stores with constraints are not supported since
+ * the imported data cannot be verified against them.
+ */
+public class IncrementalBatchImporter implements BatchImporter
+{
+    static final String STAGING_DIRECTORY_NAME = "incremental-import";
+    static final String REPLACED_DIRECTORY_NAME = "incremental-import-replaced";
+    // see EnterpriseCoreEditionModule
+    private static final String CLUSTER_STATE_DIRECTORY_NAME = "cluster-state";
+
+    private final File storeDir;
+    private final FileSystemAbstraction fileSystem;
+    private final Configuration config;
+    private final LogService logService;
+    private final Log log;
+    private final ExecutionMonitor executionMonitor;
+    private final Config dbConfig;
+    private final RecordFormats recordFormats;
+    private final String existingIdPropertyKey;
+
+    /**
+     * @param existingIdPropertyKey name of the property which existing nodes have their input id stored in,
+     * making it possible for imported relationships to refer to existing nodes by that id. Can be {@code null}
+     * in which case existing nodes can only be referred to by actual node id.
+     */
+    public IncrementalBatchImporter( File storeDir, FileSystemAbstraction fileSystem, Configuration config,
+            LogService logService, ExecutionMonitor executionMonitor, Config dbConfig, RecordFormats recordFormats,
+            String existingIdPropertyKey )
+    {
+        this.storeDir = storeDir;
+        this.fileSystem = fileSystem;
+        this.config = config;
+        this.logService = logService;
+        this.dbConfig = dbConfig;
+        this.recordFormats = recordFormats;
+        this.existingIdPropertyKey = existingIdPropertyKey;
+        this.log = logService.getInternalLogProvider().getLog( getClass() );
+        this.executionMonitor = executionMonitor;
+    }
+
+    /**
+     * Instantiates {@link IncrementalBatchImporter} with default services and behaviour, using the record format
+     * of the existing store. The provided {@link ExecutionMonitor} will be decorated with
+     * {@link DynamicProcessorAssigner} for optimal assignment of processors to bottleneck steps over time.
+     */
+    public IncrementalBatchImporter( File storeDir, Configuration config, LogService logService,
+            ExecutionMonitor executionMonitor, Config dbConfig, String existingIdPropertyKey ) throws IOException
+    {
+        this( storeDir, new DefaultFileSystemAbstraction(), config, logService,
+                withDynamicProcessorAssignment( executionMonitor, config ), dbConfig,
+                formatOfExistingStore( storeDir, dbConfig, logService ), existingIdPropertyKey );
+    }
+
+    private static RecordFormats formatOfExistingStore( File storeDir, Config dbConfig, LogService logService )
+            throws IOException
+    {
+        FileSystemAbstraction fs = new DefaultFileSystemAbstraction();
+        try ( PageCache pageCache = StandalonePageCacheFactory.createPageCache( fs ) )
+        {
+            return RecordFormatSelector.selectForStoreOrConfig( dbConfig, storeDir, fs, pageCache,
+                    logService.getInternalLogProvider() );
+        }
+    }
+
+    @Override
+    public void doImport( Input input ) throws IOException
+    {
+        log.info( "Incremental import starting" );
+
+        long startTime = currentTimeMillis();
+        boolean hasBadEntries = false;
+        File badFile = new File( storeDir, Configuration.BAD_FILE_NAME );
+        File stagingDir = new File( storeDir, STAGING_DIRECTORY_NAME );
+        CountingStoreUpdateMonitor storeUpdateMonitor = new CountingStoreUpdateMonitor();
+        try
+        {
+            verifyNotClustered();
+
+            // All changes go into a copy of the store files, so that a failed import leaves the store as it was
+            fileSystem.deleteRecursively( stagingDir );
+            copyStoreFiles( stagingDir );
+            boolean hasIndexes;
+            try
+            {
+                hasIndexes = importInto( stagingDir, input, storeUpdateMonitor, startTime );
+            }
+            catch ( Throwable t )
+            {
+                fileSystem.deleteRecursively( stagingDir );
+                throw t;
+            }
+            replaceStoreFiles( stagingDir );
+            if ( hasIndexes )
+            {
+                File indexDir = new File( new File( storeDir, "schema" ), "index" );
+                log.info( "Deleting schema indexes in " + indexDir + ", they will be rebuilt when the database starts" );
+                fileSystem.deleteRecursively( indexDir );
+            }
+
+            long totalTimeMillis = currentTimeMillis() - startTime;
+            executionMonitor.done( totalTimeMillis, format( "%n" ) + storeUpdateMonitor.toString() );
+            log.info( "Incremental import completed, took " + Format.duration( totalTimeMillis ) + ". " +
+                    storeUpdateMonitor );
+            Collector badCollector = input.badCollector();
+            hasBadEntries = badCollector.badEntries() > 0;
+            if ( hasBadEntries )
+            {
+                log.warn( "There were " + badCollector.badEntries() + " bad entries which were skipped " +
+                             "and logged into " + badFile.getAbsolutePath() );
+            }
+        }
+        catch ( Throwable t )
+        {
+            log.error( "Error during incremental import", t );
+            throw Exceptions.launderedException( IOException.class, t );
+        }
+        finally
+        {
+            if ( !hasBadEntries )
+            {
+                fileSystem.deleteFile( badFile );
+            }
+        }
+    }
+
+    /**
+     * Imports the input into the store files in {@code stagingDir}.
+     *
+     * @return whether or not the store has any schema indexes, which need to be rebuilt.
+     */
+    private boolean importInto( File stagingDir, Input input, CountingStoreUpdateMonitor storeUpdateMonitor,
+            long startTime ) throws IOException
+    {
+        NodeRelationshipCache nodeRelationshipCache = null;
+        NodeLabelsCache nodeLabelsCache = null;
+        try ( BatchingNeoStores neoStore = BatchingNeoStores.openExistingStore( fileSystem, stagingDir,
+                recordFormats, config, logService, dbConfig );
+              InputCache inputCache = new InputCache( fileSystem, stagingDir, recordFormats, config ) )
+        {
+            boolean hasIndexes = verifySchema( neoStore );
+
+            NodeStore nodeStore = neoStore.getNodeStore();
+            long firstNodeId = nodeStore.getHighId();
+            long firstRelationshipId = neoStore.getRelationshipStore().getHighId();
+            Collector badCollector = input.badCollector();
+            IoMonitor writeMonitor = new IoMonitor( neoStore.getIoTracer() );
+            IdMapper idMapper = input.idMapper();
+            IdGenerator idGenerator = input.idGenerator().dependsOnInput()
+                    ? new AfterExistingNodes( input.idGenerator(), firstNodeId )
+                    : IdGenerators.startingFrom( firstNodeId );
+            nodeRelationshipCache = new NodeRelationshipCache( AUTO, config.denseNodeThreshold() );
+            StatsProvider memoryUsageStats = new MemoryUsageStatsProvider( idMapper );
+            InputIterable<InputNode> nodes = input.nodes();
+            InputIterable<InputNode> cachedNodes = cachedForSure( nodes, inputCache.nodes( MAIN, true ) );
+
+            // Stage 1 -- input ids of existing nodes
+            int existingIdKey = existingIdPropertyKey != null && idMapper.needsPreparation()
+                    ? existingPropertyKeyId( neoStore, existingIdPropertyKey ) : -1;
+            ExistingNodeIds existingIds = new ExistingNodeIds( nodeStore, neoStore.getPropertyStore(),
+                    existingIdKey, firstNodeId );
+            if ( existingIdKey != -1 )
+            {
+                existingIds.putInto( idMapper );
+            }
+
+            // Stage 2 -- new nodes, properties, labels
+            executeStages( new NodeStage( config, writeMonitor,
+                    nodes, idMapper, idGenerator, neoStore, inputCache, neoStore.getLabelScanStore(),
+                    storeUpdateMonitor, nodeRelationshipCache, memoryUsageStats ) );
+            if ( idMapper.needsPreparation() )
+            {
+                executeStages( new IdMapperPreparationStage( config, idMapper,
+                        new ExistingAndNewIds( existingIds, idsOf( cachedNodes ) ), badCollector,
+                        memoryUsageStats ) );
+                // Existing nodes are never deleted, only imported nodes duplicating them
+                PrimitiveLongIterator duplicateNodeIds = filter( badCollector.leftOverDuplicateNodesIds(),
+                        nodeId -> nodeId >= firstNodeId );
+                if ( duplicateNodeIds.hasNext() )
+                {
+                    executeStages( new DeleteDuplicateNodesStage( config, duplicateNodeIds, neoStore ) );
+                }
+            }
+            nodeRelationshipCache.close();
+            nodeRelationshipCache = null;
+
+            // Stage 3 -- relationships, linked into the existing chains and relationship groups
+            try ( InputIterator<InputRelationship> relationships = input.relationships().iterator() )
+            {
+                executeStages( new BatchInsertRelationshipsStage( "Relationships", config, idMapper,
+                        relationships, neoStore, neoStore.getRelationshipGroupStore(), firstRelationshipId,
+                        badCollector ) );
+            }
+            idMapper.close();
+            idMapper = null;
+
+            // The counts store is rebuilt for the transaction of the import
+            commitImportTransaction( neoStore.getNeoStores().getMetaDataStore(), startTime );
+
+            // Stage 4 -- recount nodes per label and labels per node
+            try ( CountsAccessor.Updater countsUpdater = neoStore.getCountsStore().reset(
+                    neoStore.getLastCommittedTransactionId() ) )
+            {
+                nodeLabelsCache = new NodeLabelsCache( AUTO, neoStore.getLabelRepository().getHighId() );
+                memoryUsageStats = new MemoryUsageStatsProvider( nodeLabelsCache );
+                executeStages( new NodeCountsStage( config, nodeLabelsCache, nodeStore,
+                        neoStore.getLabelRepository().getHighId(), countsUpdater, memoryUsageStats ) );
+                // Stage 5 -- recount label-[type]->label
+                executeStages( new RelationshipCountsStage( config, nodeLabelsCache, neoStore.getRelationshipStore(),
+                        neoStore.getLabelRepository().getHighId(),
+                        neoStore.getRelationshipTypeRepository().getHighId(), countsUpdater, AUTO ) );
+            }
+            return hasIndexes;
+        }
+        finally
+        {
+            if ( nodeRelationshipCache != null )
+            {
+                nodeRelationshipCache.close();
+            }
+            if ( nodeLabelsCache != null )
+            {
+                nodeLabelsCache.close();
+            }
+        }
+    }
+
+    /**
+     * Core cluster members keep their own log of the transactions applied to the store, which the import
+     * can't be added to, so their stores are refused.
+     */
+    private void verifyNotClustered()
+    {
+        if ( fileSystem.fileExists( new File( storeDir, CLUSTER_STATE_DIRECTORY_NAME ) ) )
+        {
+            throw new IllegalStateException( storeDir + " belongs to a cluster member and can't be imported into. " +
+                    "Import into a standalone copy of it and seed the cluster from that instead" );
+        }
+    }
+
+    /**
+     * Constraints cannot be verified against the imported data, so stores having any are refused.
+     *
+     * @return whether or not the store has any schema indexes.
+     */
+    private boolean verifySchema( BatchingNeoStores neoStore )
+    {
+        boolean hasIndexes = false;
+        Iterator<SchemaRule> rules = neoStore.getNeoStores().getSchemaStore().loadAllSchemaRules();
+        while ( rules.hasNext() )
+        {
+            SchemaRule rule = rules.next();
+            if ( rule instanceof PropertyConstraintRule ||
+                 (rule instanceof IndexRule && ((IndexRule) rule).isConstraintIndex()) )
+            {
+                throw new IllegalStateException( storeDir + " has constraints, which cannot be verified " +
+                        "during an incremental import. Drop them before importing and create them again afterwards" );
+            }
+            hasIndexes |= rule instanceof IndexRule;
+        }
+        return hasIndexes;
+    }
+
+    /**
+     * Copies the files written to by the import, i.e. the store files and the label scan store,
+     * but not the transaction logs.
+     */
+    private void copyStoreFiles( File stagingDir ) throws IOException
+    {
+        fileSystem.mkdirs( stagingDir );
+        for ( File file : storeFiles( storeDir ) )
+        {
+            fileSystem.copyFile( file, new File( stagingDir, file.getName() ) );
+        }
+        File labelScanStoreDir = labelScanStoreDirectory( storeDir );
+        if ( fileSystem.fileExists( labelScanStoreDir ) )
+        {
+            fileSystem.copyRecursively( labelScanStoreDir, labelScanStoreDirectory( stagingDir ) );
+        }
+    }
+
+    /**
+     * Moves the imported store files into the store directory. The replaced files are kept in
+     * {@link #REPLACED_DIRECTORY_NAME} until all imported files are in place.
+     */
+    private void replaceStoreFiles( File stagingDir ) throws IOException
+    {
+        File replacedDir = new File( storeDir, REPLACED_DIRECTORY_NAME );
+        fileSystem.deleteRecursively( replacedDir );
+        fileSystem.mkdirs( replacedDir );
+        try
+        {
+            for ( File file : storeFiles( storeDir ) )
+            {
+                fileSystem.moveToDirectory( file, replacedDir );
+            }
+            File labelScanStoreDir = labelScanStoreDirectory( storeDir );
+            if ( fileSystem.fileExists( labelScanStoreDir ) )
+            {
+                fileSystem.moveToDirectory( labelScanStoreDir, replacedDir );
+            }
+
+            for ( File file : storeFiles( stagingDir ) )
+            {
+                fileSystem.moveToDirectory( file, storeDir );
+            }
+            File importedLabelScanStoreDir = labelScanStoreDirectory( stagingDir );
+            if ( fileSystem.fileExists( importedLabelScanStoreDir ) )
+            {
+                fileSystem.mkdirs( labelScanStoreDir.getParentFile() );
+                fileSystem.moveToDirectory( importedLabelScanStoreDir, labelScanStoreDir.getParentFile() );
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new IOException( "Unable to move the imported store files from " + stagingDir + " to " +
+                    storeDir + ". The replaced store files are kept in " + replacedDir, e );
+        }
+        fileSystem.deleteRecursively( replacedDir );
+        fileSystem.deleteRecursively( stagingDir );
+    }
+
+    private File[] storeFiles( File directory )
+    {
+        File[] files = fileSystem.listFiles( directory, ( dir, name ) -> name.startsWith( MetaDataStore.DEFAULT_NAME )
+                && !name.startsWith( PhysicalLogFile.DEFAULT_NAME ) );
+        return files != null ? files : new File[0];
+    }
+
+    private static File labelScanStoreDirectory( File directory )
+    {
+        return new File( new File( directory, "schema" ), "label" );
+    }
+
+    /**
+     * Records the import as a transaction of its own in the store. The transaction isn't in the transaction log,
+     * which is rotated so that the next transaction is written to a new log file. Backups and cluster members
+     * can therefore not catch up with this store by pulling transactions and have to copy the store instead.
+     * The checksum makes it unlikely that the transaction is mistaken for one with the same id elsewhere.
+     */
+    private static void commitImportTransaction( MetaDataStore metaDataStore, long commitTimestamp )
+    {
+        TransactionId lastCommitted = metaDataStore.getLastCommittedTransaction();
+        long checksum = 31 * lastCommitted.checksum() + commitTimestamp;
+        long logVersion = metaDataStore.incrementAndGetVersion();
+        metaDataStore.setLastCommittedAndClosedTransactionId( lastCommitted.transactionId() + 1, checksum,
+                commitTimestamp, LOG_HEADER_SIZE, logVersion );
+    }
+
+    private static int existingPropertyKeyId( BatchingNeoStores neoStore, String key )
+    {
+        for ( Token token : neoStore.getNeoStores().getPropertyKeyTokenStore().getTokens( Integer.MAX_VALUE ) )
+        {
+            if ( token.name().equals( key ) )
+            {
+                return token.id();
+            }
+        }
+        return -1;
+    }
+
+    private void executeStages( Stage... stages )
+    {
+        superviseExecution( executionMonitor, config, stages );
+    }
+
+    /**
+     * Input ids of the existing nodes, read from the id property of each node. There is one item for each
+     * node id, including unused nodes and nodes without the id property, so that the position of an id matches
+     * its node id, like it does for {@link Utils#idsOf(InputIterable) ids of new nodes}.
+     */
+    private static class ExistingNodeIds implements InputIterable<Object>
+    {
+        private static final Object NO_ID = new Object();
+
+        private final NodeStore nodeStore;
+        private final PropertyStore propertyStore;
+        private final int propertyKeyId;
+        private final long highNodeId;
+
+        ExistingNodeIds( NodeStore nodeStore, PropertyStore propertyStore, int propertyKeyId, long highNodeId )
+        {
+            this.nodeStore = nodeStore;
+            this.propertyStore = propertyStore;
+            this.propertyKeyId = propertyKeyId;
+            this.highNodeId = highNodeId;
+        }
+
+        void putInto( IdMapper idMapper )
+        {
+            long nodeId = 0;
+            for ( Iterator<Object> ids = iterator(); ids.hasNext(); nodeId++ )
+            {
+                Object id = ids.next();
+                if ( id != NO_ID )
+                {
+                    idMapper.put( id, nodeId, Group.GLOBAL );
+                }
+            }
+        }
+
+        @Override
+        public InputIterator<Object> iterator()
+        {
+            return new InputIterator.Adapter<Object>()
+            {
+                private final NodeRecord record = nodeStore.newRecord();
+                private long nodeId;
+
+                @Override
+                protected Object fetchNextOrNull()
+                {
+                    if ( nodeId >= highNodeId )
+                    {
+                        return null;
+                    }
+                    nodeStore.getRecord( nodeId++, record, CHECK );
+                    return record.inUse() && propertyKeyId != -1 ? idOf( record.getNextProp() ) : NO_ID;
+                }
+
+                @Override
+                public String sourceDescription()
+                {
+                    return "existing node store";
+                }
+
+                @Override
+                public long lineNumber()
+                {
+                    return nodeId;
+                }
+
+                @Override
+                public long position()
+                {
+                    return nodeId;
+                }
+            };
+        }
+
+        private Object idOf( long firstPropertyId )
+        {
+            for ( PropertyRecord property : propertyStore.getPropertyRecordChain( firstPropertyId ) )
+            {
+                for ( PropertyBlock block : property )
+                {
+                    if ( block.getKeyIndexId() == propertyKeyId )
+                    {
+                        return block.getType().getValue( block, propertyStore );
+                    }
+                }
+            }
+            return NO_ID;
+        }
+
+        @Override
+        public boolean supportsMultiplePasses()
+        {
+            return true;
+        }
+    }
+
+    /**
+     * Ids of existing nodes followed by ids of imported nodes, as used when preparing the {@link IdMapper}.
+     */
+    private static class ExistingAndNewIds implements InputIterable<Object>
+    {
+        private final InputIterable<Object> existing;
+        private final InputIterable<Object> imported;
+
+        ExistingAndNewIds( InputIterable<Object> existing, InputIterable<Object> imported )
+        {
+            this.existing = existing;
+            this.imported = imported;
+        }
+
+        @Override
+        public InputIterator<Object> iterator()
+        {
+            InputIterator<Object> existingIds = existing.iterator();
+            return new InputIterator.Delegate<Object>( existingIds )
+            {
+                private InputIterator<Object> current = existingIds;
+
+                @Override
+                protected Object fetchNextOrNull()
+                {
+                    if ( !current.hasNext() && current == existingIds )
+                    {
+                        current = imported.iterator();
+                    }
+                    return current.hasNext() ? current.next() : null;
+                }
+
+                @Override
+                public String sourceDescription()
+                {
+                    return current.sourceDescription();
+                }
+
+                @Override
+                public long lineNumber()
+                {
+                    return current.lineNumber();
+                }
+
+                @Override
+                public long position()
+                {
+                    return current.position();
+                }
+
+                @Override
+                public void close()
+                {
+                    existingIds.close();
+                    if ( current != existingIds )
+                    {
+                        current.close();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public boolean supportsMultiplePasses()
+        {
+            return existing.supportsMultiplePasses() && imported.supportsMultiplePasses();
+        }
+    }
+
+    /**
+     * Makes sure that actual node ids from input don't overwrite existing nodes.
+     */
+    private static class AfterExistingNodes implements IdGenerator
+    {
+        private final IdGenerator actual;
+        private final long firstNodeId;
+
+        AfterExistingNodes( IdGenerator actual, long firstNodeId )
+        {
+            this.actual = actual;
+            this.firstNodeId = firstNodeId;
+        }
+
+        @Override
+        public long generate( Object inputId )
+        {
+            long nodeId = actual.generate( inputId );
+            if ( nodeId < firstNodeId )
+            {
+                throw new IllegalArgumentException( "Node id " + nodeId + " is already used by the existing store, " +
+                        "imported nodes must have ids of at least " + firstNodeId );
+            }
+            return nodeId;
+        }
+
+        @Override
+        public boolean dependsOnInput()
+        {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport;
+
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.kernel.impl.store.record.PropertyBlock;
+import org.neo4j.unsafe.impl.batchimport.input.InputNode;
+import org.neo4j.unsafe.impl.batchimport.staging.BatchSender;
+import org.neo4j.unsafe.impl.batchimport.staging.Configuration;
+import org.neo4j.unsafe.impl.batchimport.staging.ProcessorStep;
+import org.neo4j.unsafe.impl.batchimport.staging.StageControl;
+
+/**
+ * Populates {@link IndexPopulators} with node property values from {@link Batch batches} passing by.
+ * Property key ids are taken from the already encoded {@link PropertyBlock property blocks} and values
+ * from the input properties they were encoded from, so that no values have to be decoded again.
+ */
+public class IndexPopulationStep extends ProcessorStep<Batch<InputNode,NodeRecord>>
+{
+    private final IndexPopulators indexPopulators;
+
+    public IndexPopulationStep( StageControl control, Configuration config, IndexPopulators indexPopulators )
+    {
+        super( control, "INDEX", config, 1 );
+        this.indexPopulators = indexPopulators;
+    }
+
+    @Override
+    protected void process( Batch<InputNode,NodeRecord> batch, BatchSender sender ) throws Throwable
+    {
+        int blockCursor = 0;
+        for ( int i = 0; i < batch.input.length; i++ )
+        {
+            int count = batch.propertyBlocksLengths[i];
+            long[] labels = batch.labels[i];
+            NodeRecord node = batch.records[i];
+            if ( labels != null && node.inUse() )
+            {
+                // Blocks were encoded from the input properties in order, one block per key/value pair
+                Object[] properties = batch.input[i].properties();
+                for ( int j = 0; j < count; j++ )
+                {
+                    indexPopulators.add( node.getId(), labels,
+                            batch.propertyBlocks[blockCursor + j].getKeyIndexId(), properties[j * 2 + 1] );
+                }
+            }
+            blockCursor += count;
+        }
+        indexPopulators.flush();
+        sender.send( batch );
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.neo4j.kernel.api.exceptions.index.IndexEntryConflictException;
+import org.neo4j.kernel.api.index.IndexConfiguration;
+import org.neo4j.kernel.api.index.IndexDescriptor;
+import org.neo4j.kernel.api.index.IndexPopulator;
+import org.neo4j.kernel.api.index.IndexUpdater;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
+import org.neo4j.kernel.api.index.SchemaIndexProvider;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.api.index.sampling.IndexSamplingConfig;
+import org.neo4j.kernel.impl.locking.LockService;
+import org.neo4j.kernel.impl.store.SchemaStore;
+import org.neo4j.kernel.impl.store.record.DynamicRecord;
+import org.neo4j.kernel.impl.store.record.IndexRule;
+import org.neo4j.kernel.impl.store.record.UniquePropertyConstraintRule;
+import org.neo4j.kernel.impl.transaction.state.NeoStoreIndexStoreView;
+import org.neo4j.storageengine.api.schema.SchemaRule;
+import org.neo4j.unsafe.impl.batchimport.input.InputException;
+import org.neo4j.unsafe.impl.batchimport.input.InputIndex;
+import org.neo4j.unsafe.impl.batchimport.store.BatchingNeoStores;
+
+import static org.neo4j.kernel.api.index.NodePropertyUpdate.remove;
+
+/**
+ * Schema indexes and uniqueness constraints built as part of an import, as opposed to having the database
+ * populate them with a full store scan after the import. Rules are written to the schema store up front,
+ * index populators are fed node property values by {@link IndexPopulationStep} while nodes are imported
+ * and uniqueness is verified in {@link #complete()} right after all nodes have been written, i.e. before
+ * spending any time on importing relationships. Completed indexes are marked online and will not be
+ * populated again when the database starts.
+ * <p>
+ * Not thread safe, updates are expected to be added from a single thread.
+ */
+public class IndexPopulators implements AutoCloseable
+{
+    private final InputIndex[] indexes;
+    private final int[] labelIds;
+    private final int[] propertyKeyIds;
+    private final IndexPopulator[] populators;
+    private final List<NodePropertyUpdate>[] pendingUpdates;
+    private final NeoStoreIndexStoreView storeView;
+    private boolean completed;
+
+    @SuppressWarnings( "unchecked" )
+    public IndexPopulators( BatchingNeoStores neoStore, Collection<InputIndex> indexes, Config dbConfig )
+            throws IOException
+    {
+        this.indexes = indexes.toArray( new InputIndex[indexes.size()] );
+        this.labelIds = new int[this.indexes.length];
+        this.propertyKeyIds = new int[this.indexes.length];
+        this.populators = new IndexPopulator[this.indexes.length];
+        this.pendingUpdates = new List[this.indexes.length];
+        this.storeView = new NeoStoreIndexStoreView( LockService.NO_LOCK_SERVICE, neoStore.getNeoStores() );
+        if ( this.indexes.length == 0 )
+        {
+            return;
+        }
+
+        SchemaIndexProvider provider = neoStore.getSchemaIndexProvider();
+        SchemaStore schemaStore = neoStore.getNeoStores().getSchemaStore();
+        IndexSamplingConfig samplingConfig = new IndexSamplingConfig( dbConfig );
+        for ( int i = 0; i < this.indexes.length; i++ )
+        {
+            InputIndex index = this.indexes[i];
+            int labelId = labelIds[i] = neoStore.getLabelRepository().getOrCreateId( index.label() );
+            int propertyKeyId = propertyKeyIds[i] =
+                    neoStore.getPropertyKeyRepository().getOrCreateId( index.propertyKey() );
+            for ( int j = 0; j < i; j++ )
+            {
+                if ( labelIds[j] == labelId && propertyKeyIds[j] == propertyKeyId )
+                {
+                    throw new IllegalArgumentException( "Multiple indexes specified for :" + index.label() +
+                            "(" + index.propertyKey() + ")" );
+                }
+            }
+
+            IndexRule rule = writeRules( schemaStore, labelId, propertyKeyId, index.isUnique(),
+                    provider.getProviderDescriptor() );
+            populators[i] = provider.getPopulator( rule.getId(), new IndexDescriptor( labelId, propertyKeyId ),
+                    IndexConfiguration.of( rule ), samplingConfig );
+            populators[i].create();
+            pendingUpdates[i] = new ArrayList<>();
+        }
+    }
+
+    private static IndexRule writeRules( SchemaStore schemaStore, int labelId, int propertyKeyId, boolean unique,
+            SchemaIndexProvider.Descriptor providerDescriptor )
+    {
+        if ( !unique )
+        {
+            IndexRule indexRule = IndexRule.indexRule( schemaStore.nextId(), labelId, propertyKeyId,
+                    providerDescriptor );
+            writeRule( schemaStore, indexRule );
+            return indexRule;
+        }
+
+        long indexRuleId = schemaStore.nextId();
+        long constraintRuleId = schemaStore.nextId();
+        IndexRule indexRule = IndexRule.constraintIndexRule( indexRuleId, labelId, propertyKeyId,
+                providerDescriptor, constraintRuleId );
+        writeRule( schemaStore, UniquePropertyConstraintRule.uniquenessConstraintRule( constraintRuleId,
+                labelId, propertyKeyId, indexRuleId ) );
+        writeRule( schemaStore, indexRule );
+        return indexRule;
+    }
+
+    private static void writeRule( SchemaStore schemaStore, SchemaRule rule )
+    {
+        for ( DynamicRecord record : schemaStore.allocateFrom( rule ) )
+        {
+            schemaStore.updateRecord( record );
+        }
+    }
+
+    boolean isEmpty()
+    {
+        return populators.length == 0;
+    }
+
+    /**
+     * Collects an update for a node property into all indexes covering it. Collected updates are added
+     * to the indexes in {@link #flush()}.
+     *
+     * @param nodeId node id.
+     * @param labels sorted label ids of the node.
+     * @param propertyKeyId property key id of the property.
+     * @param value property value.
+     */
+    void add( long nodeId, long[] labels, int propertyKeyId, Object value )
+    {
+        for ( int i = 0; i < populators.length; i++ )
+        {
+            if ( propertyKeyIds[i] == propertyKeyId && hasLabel( labels, labelIds[i] ) )
+            {
+                pendingUpdates[i].add( NodePropertyUpdate.add( nodeId, propertyKeyId, value, labels ) );
+            }
+        }
+    }
+
+    private static boolean hasLabel( long[] labels, int labelId )
+    {
+        for ( long label : labels )
+        {
+            if ( label == labelId )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds all updates collected since last call to the index populators.
+     */
+    void flush() throws IOException
+    {
+        for ( int i = 0; i < populators.length; i++ )
+        {
+            List<NodePropertyUpdate> updates = pendingUpdates[i];
+            if ( updates.isEmpty() )
+            {
+                continue;
+            }
+
+            try
+            {
+                populators[i].add( updates );
+            }
+            catch ( IndexEntryConflictException e )
+            {
+                throw uniquenessViolation( i, e );
+            }
+            for ( NodePropertyUpdate update : updates )
+            {
+                populators[i].includeSample( update );
+            }
+            updates.clear();
+        }
+    }
+
+    /**
+     * Removes nodes from all indexes. Used for nodes which were imported, and so indexed, but later
+     * found to be duplicates and deleted. Must be called before those nodes are deleted from the store
+     * since their property values are read from it.
+     *
+     * @param nodeIds ids of nodes to remove from the indexes.
+     */
+    void removeNodes( long[] nodeIds ) throws IOException
+    {
+        List<NodePropertyUpdate> nodeUpdates = new ArrayList<>();
+        for ( int i = 0; i < populators.length; i++ )
+        {
+            try ( IndexUpdater updater = populators[i].newPopulatingUpdater( storeView ) )
+            {
+                for ( long nodeId : nodeIds )
+                {
+                    nodeUpdates.clear();
+                    storeView.nodeAsUpdates( nodeId, nodeUpdates );
+                    for ( NodePropertyUpdate update : nodeUpdates )
+                    {
+                        if ( update.getPropertyKeyId() == propertyKeyIds[i] && update.forLabel( labelIds[i] ) )
+                        {
+                            updater.process( remove( nodeId, propertyKeyIds[i], update.getValueAfter(),
+                                    new long[] {labelIds[i]} ) );
+                        }
+                    }
+                }
+            }
+            catch ( IndexEntryConflictException e )
+            {
+                throw uniquenessViolation( i, e );
+            }
+        }
+    }
+
+    /**
+     * Verifies uniqueness of all uniqueness constraints and marks all indexes as online.
+     * Must be called after all nodes have been written to the store.
+     *
+     * @throws InputException if the imported nodes violates any of the uniqueness constraints.
+     */
+    void complete() throws IOException
+    {
+        for ( int i = 0; i < populators.length; i++ )
+        {
+            try
+            {
+                populators[i].verifyDeferredConstraints( storeView );
+            }
+            catch ( IndexEntryConflictException e )
+            {
+                throw uniquenessViolation( i, e );
+            }
+        }
+        for ( IndexPopulator populator : populators )
+        {
+            populator.close( true );
+        }
+        completed = true;
+    }
+
+    private InputException uniquenessViolation( int index, IndexEntryConflictException e )
+    {
+        InputIndex definition = indexes[index];
+        return new InputException( "Imported nodes violate " + definition + ": " +
+                e.evidenceMessage( definition.label(), definition.propertyKey() ), e );
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if ( !completed )
+        {
+            for ( IndexPopulator populator : populators )
+            {
+                if ( populator != null )
+                {
+                    populator.close( false );
+                }
+            }
+        }
+    }
+}
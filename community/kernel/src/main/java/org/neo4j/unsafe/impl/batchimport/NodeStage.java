@@ -54,6 +54,8 @@ import static org.neo4j.unsafe.impl.batchimport.staging.Step.ORDER_SEND_DOWNSTRE
  * It also assigns real store node ids from {@link InputNode#id() input ids} and stores them in {@link IdMapper}
  * for use in other upcoming stages.</li>
  * <li>{@link LabelScanStorePopulationStep} populates the {@link LabelScanStore} with the node labels.</li>
+ * <li>{@link IndexPopulationStep} alternatively populates {@link IndexPopulators schema indexes} built as part
+ * of the import with node property values.</li>
  * <li>{@link EntityStoreUpdaterStep} forms {@link PropertyRecord property records} out of previously encoded
  * {@link PropertyBlock} and writes those as well as the {@link NodeRecord} to store.</li>
  * </ol>
@@ -69,6 +71,17 @@ public class NodeStage extends Stage
             EntityStoreUpdaterStep.Monitor storeUpdateMonitor,
             NodeRelationshipCache cache,
             StatsProvider memoryUsage ) throws IOException
+    {
+        this( config, writeMonitor, nodes, idMapper, idGenerator, neoStore, inputCache, labelScanStore,
+                storeUpdateMonitor, cache, memoryUsage, null );
+    }
+
+    public NodeStage( Configuration config, IoMonitor writeMonitor,
+            InputIterable<InputNode> nodes, IdMapper idMapper, IdGenerator idGenerator,
+            BatchingNeoStores neoStore, InputCache inputCache, LabelScanStore labelScanStore,
+            EntityStoreUpdaterStep.Monitor storeUpdateMonitor,
+            NodeRelationshipCache cache,
+            StatsProvider memoryUsage, IndexPopulators indexPopulators ) throws IOException
     {
         super( "Nodes", config, ORDER_SEND_DOWNSTREAM );
         this.cache = cache;
@@ -84,6 +97,10 @@ public class NodeStage extends Stage
         add( new NodeEncoderStep( control(), config, idMapper, idGenerator,
                 neoStore.getLabelRepository(), nodeStore, memoryUsage ) );
         add( new LabelScanStorePopulationStep( control(), config, labelScanStore ) );
+        if ( indexPopulators != null && !indexPopulators.isEmpty() )
+        {
+            add( new IndexPopulationStep( control(), config, indexPopulators ) );
+        }
         add( new EntityStoreUpdaterStep<>( control(), config, nodeStore, propertyStore, writeMonitor,
                 storeUpdateMonitor ) );
     }
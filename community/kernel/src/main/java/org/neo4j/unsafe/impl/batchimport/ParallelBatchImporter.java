@@ -21,9 +21,10 @@ package org.neo4j.unsafe.impl.batchimport;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Set;
 
-import org.neo4j.collection.primitive.PrimitiveLongIterator;
 import org.neo4j.helpers.Exceptions;
 import org.neo4j.helpers.Format;
 import org.neo4j.io.fs.DefaultFileSystemAbstraction;
@@ -45,6 +46,7 @@ import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMapper;
 import org.neo4j.unsafe.impl.batchimport.input.Collector;
 import org.neo4j.unsafe.impl.batchimport.input.Input;
 import org.neo4j.unsafe.impl.batchimport.input.InputCache;
+import org.neo4j.unsafe.impl.batchimport.input.InputIndex;
 import org.neo4j.unsafe.impl.batchimport.input.InputNode;
 import org.neo4j.unsafe.impl.batchimport.input.InputRelationship;
 import org.neo4j.unsafe.impl.batchimport.input.PerTypeRelationshipSplitter;
@@ -58,12 +60,15 @@ import org.neo4j.unsafe.impl.batchimport.store.io.IoMonitor;
 import static java.lang.Math.max;
 import static java.lang.String.format;
 import static java.lang.System.currentTimeMillis;
+import static org.neo4j.collection.primitive.PrimitiveLongCollections.asArray;
+import static org.neo4j.collection.primitive.PrimitiveLongCollections.iterator;
 import static org.neo4j.helpers.Format.bytes;
 import static org.neo4j.helpers.collection.Iterators.asSet;
 import static org.neo4j.io.ByteUnit.mebiBytes;
 import static org.neo4j.unsafe.impl.batchimport.AdditionalInitialIds.EMPTY;
 import static org.neo4j.unsafe.impl.batchimport.Configuration.withBatchSize;
 import static org.neo4j.unsafe.impl.batchimport.SourceOrCachedInputIterable.cachedForSure;
+import static org.neo4j.unsafe.impl.batchimport.Utils.idsOf;
 import static org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory.AUTO;
 import static org.neo4j.unsafe.impl.batchimport.input.InputCache.MAIN;
 import static org.neo4j.unsafe.impl.batchimport.staging.ExecutionSupervisors.superviseExecution;
@@ -90,6 +95,7 @@ public class ParallelBatchImporter implements BatchImporter
     private final AdditionalInitialIds additionalInitialIds;
     private final Config dbConfig;
     private final RecordFormats recordFormats;
+    private final Collection<InputIndex> indexes;
 
     /**
      * Advanced usage of the parallel batch importer, for special and very specific cases. Please use
@@ -99,6 +105,19 @@ public class ParallelBatchImporter implements BatchImporter
             LogService logService, ExecutionMonitor executionMonitor,
             AdditionalInitialIds additionalInitialIds,
             Config dbConfig, RecordFormats recordFormats )
+    {
+        this( storeDir, fileSystem, config, logService, executionMonitor, additionalInitialIds, dbConfig,
+                recordFormats, Collections.emptyList() );
+    }
+
+    /**
+     * Advanced usage of the parallel batch importer, which also builds the given schema indexes and
+     * uniqueness constraints as part of importing the nodes.
+     */
+    public ParallelBatchImporter( File storeDir, FileSystemAbstraction fileSystem, Configuration config,
+            LogService logService, ExecutionMonitor executionMonitor,
+            AdditionalInitialIds additionalInitialIds,
+            Config dbConfig, RecordFormats recordFormats, Collection<InputIndex> indexes )
     {
         this.storeDir = storeDir;
         this.fileSystem = fileSystem;
@@ -109,6 +128,7 @@ public class ParallelBatchImporter implements BatchImporter
         this.log = logService.getInternalLogProvider().getLog( getClass() );
         this.executionMonitor = executionMonitor;
         this.additionalInitialIds = additionalInitialIds;
+        this.indexes = indexes;
     }
 
     /**
@@ -118,10 +138,22 @@ public class ParallelBatchImporter implements BatchImporter
      */
     public ParallelBatchImporter( File storeDir, Configuration config, LogService logService,
             ExecutionMonitor executionMonitor, Config dbConfig )
+    {
+        this( storeDir, config, logService, executionMonitor, dbConfig, Collections.emptyList() );
+    }
+
+    /**
+     * Instantiates {@link ParallelBatchImporter} with default services and behaviour, which also builds
+     * the given schema indexes and uniqueness constraints as part of importing the nodes.
+     * The provided {@link ExecutionMonitor} will be decorated with {@link DynamicProcessorAssigner} for
+     * optimal assignment of processors to bottleneck steps over time.
+     */
+    public ParallelBatchImporter( File storeDir, Configuration config, LogService logService,
+            ExecutionMonitor executionMonitor, Config dbConfig, Collection<InputIndex> indexes )
     {
         this( storeDir, new DefaultFileSystemAbstraction(), config, logService,
                 withDynamicProcessorAssignment( executionMonitor, config ), EMPTY, dbConfig,
-                RecordFormatSelector.selectForConfig( dbConfig, NullLogProvider.getInstance() ));
+                RecordFormatSelector.selectForConfig( dbConfig, NullLogProvider.getInstance() ), indexes );
     }
 
     @Override
@@ -141,7 +173,8 @@ public class ParallelBatchImporter implements BatchImporter
                 additionalInitialIds, dbConfig );
               CountsAccessor.Updater countsUpdater = neoStore.getCountsStore().reset(
                     neoStore.getLastCommittedTransactionId() );
-              InputCache inputCache = new InputCache( fileSystem, storeDir, recordFormats, config ) )
+              InputCache inputCache = new InputCache( fileSystem, storeDir, recordFormats, config );
+              IndexPopulators indexPopulators = new IndexPopulators( neoStore, indexes, dbConfig ) )
         {
             Collector badCollector = input.badCollector();
             // Some temporary caches and indexes in the import
@@ -161,18 +194,24 @@ public class ParallelBatchImporter implements BatchImporter
             // Stage 1 -- nodes, properties, labels
             NodeStage nodeStage = new NodeStage( config, writeMonitor,
                     nodes, idMapper, idGenerator, neoStore, inputCache, neoStore.getLabelScanStore(),
-                    storeUpdateMonitor, nodeRelationshipCache, memoryUsageStats );
+                    storeUpdateMonitor, nodeRelationshipCache, memoryUsageStats, indexPopulators );
             executeStages( nodeStage );
             if ( idMapper.needsPreparation() )
             {
-                executeStages( new IdMapperPreparationStage( config, idMapper, cachedNodes,
+                executeStages( new IdMapperPreparationStage( config, idMapper, idsOf( cachedNodes ),
                         badCollector, memoryUsageStats ) );
-                PrimitiveLongIterator duplicateNodeIds = badCollector.leftOverDuplicateNodesIds();
-                if ( duplicateNodeIds.hasNext() )
+                long[] duplicateNodeIds = asArray( badCollector.leftOverDuplicateNodesIds() );
+                if ( duplicateNodeIds.length > 0 )
                 {
-                    executeStages( new DeleteDuplicateNodesStage( config, duplicateNodeIds, neoStore ) );
+                    // Duplicates were indexed along with all other nodes, so remove them from the indexes
+                    // while their property values can still be read from the store
+                    indexPopulators.removeNodes( duplicateNodeIds );
+                    executeStages( new DeleteDuplicateNodesStage( config, iterator( duplicateNodeIds ), neoStore ) );
                 }
             }
+            // Verify uniqueness constraints now that all nodes are in the store, so that violations
+            // fail the import before any time is spent on importing relationships
+            indexPopulators.complete();
 
             // Stage 2 -- calculate dense node threshold
             CalculateDenseNodesStage calculateDenseNodesStage = new CalculateDenseNodesStage(
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport.cache;
+
+import java.io.File;
+
+import static org.neo4j.io.ByteUnit.gibiBytes;
+
+/**
+ * Places arrays in memory-mapped files in a directory, for when they don't fit in memory. Accessing such arrays
+ * is as fast as {@link NumberArrayFactory#OFF_HEAP} arrays for as long as the operating system can keep them
+ * in memory, and degrades into file access as they are paged out. Arrays larger than what fits in a single
+ * mapping are split up into multiple files, each one as a chunk of a dynamic array.
+ */
+public class MappedFileNumberArrayFactory extends NumberArrayFactory.Adapter
+{
+    private static final long MAX_BYTES_PER_FILE = gibiBytes( 1 );
+
+    private final File directory;
+    private final long maxBytesPerFile;
+
+    public MappedFileNumberArrayFactory( File directory )
+    {
+        this( directory, MAX_BYTES_PER_FILE );
+    }
+
+    MappedFileNumberArrayFactory( File directory, long maxBytesPerFile )
+    {
+        this.directory = directory;
+        this.maxBytesPerFile = maxBytesPerFile;
+    }
+
+    @Override
+    public IntArray newIntArray( long length, int defaultValue, long base )
+    {
+        long itemsPerFile = maxBytesPerFile / Integer.BYTES;
+        if ( length > itemsPerFile )
+        {
+            IntArray array = newDynamicIntArray( itemsPerFile, defaultValue );
+            array.at( length-1 );
+            return array;
+        }
+        return new OffHeapIntArray( length, defaultValue, base, map( length * Integer.BYTES ) );
+    }
+
+    @Override
+    public LongArray newLongArray( long length, long defaultValue, long base )
+    {
+        long itemsPerFile = maxBytesPerFile / Long.BYTES;
+        if ( length > itemsPerFile )
+        {
+            LongArray array = newDynamicLongArray( itemsPerFile, defaultValue );
+            array.at( length-1 );
+            return array;
+        }
+        return new OffHeapLongArray( length, defaultValue, base, map( length * Long.BYTES ) );
+    }
+
+    @Override
+    public ByteArray newByteArray( long length, byte[] defaultValue, long base )
+    {
+        long itemsPerFile = maxBytesPerFile / defaultValue.length;
+        if ( length > itemsPerFile )
+        {
+            ByteArray array = newDynamicByteArray( itemsPerFile, defaultValue );
+            array.at( length-1 );
+            return array;
+        }
+        return new OffHeapByteArray( length, defaultValue, base, map( length * defaultValue.length ) );
+    }
+
+    private MappedMemory map( long size )
+    {
+        return new MappedMemory( directory, size );
+    }
+
+    @Override
+    public String toString()
+    {
+        return "MAPPED_FILES[" + directory + "]";
+    }
+}
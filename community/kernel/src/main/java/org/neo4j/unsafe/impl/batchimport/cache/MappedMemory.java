@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
+
+/**
+ * Memory of an off-heap {@link NumberArray} which lives in a memory-mapped file instead of being allocated
+ * from the operating system. This way the operating system can page parts of it out to the file when there's
+ * not enough memory to keep all of it in memory.
+ * <p>
+ * The file is deleted right after it has been mapped. The mapping keeps the file around for as long as it's needed
+ * and the operating system reclaims the disk space once it's unmapped, even when the process dies before closing
+ * this memory. On platforms which don't allow deleting a mapped file it's deleted when this memory is closed,
+ * or else when the JVM exits.
+ */
+class MappedMemory implements AutoCloseable
+{
+    private final File file;
+    private final MappedByteBuffer buffer;
+    private final long address;
+    private final boolean deleted;
+
+    MappedMemory( File directory, long size )
+    {
+        assert size <= Integer.MAX_VALUE : size;
+        try
+        {
+            directory.mkdirs();
+            file = File.createTempFile( "neo4j-import-array", ".tmp", directory );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( "Unable to create a file to map in " + directory, e );
+        }
+        try ( RandomAccessFile raf = new RandomAccessFile( file, "rw" ) )
+        {
+            raf.setLength( size );
+            // The mapping stays valid after the channel is closed
+            buffer = raf.getChannel().map( FileChannel.MapMode.READ_WRITE, 0, size );
+        }
+        catch ( IOException e )
+        {
+            file.delete();
+            throw new UncheckedIOException( "Unable to map " + size + " bytes in " + directory, e );
+        }
+        address = UnsafeUtil.getDirectByteBufferAddress( buffer );
+        deleted = file.delete();
+        if ( !deleted )
+        {
+            file.deleteOnExit();
+        }
+    }
+
+    long address()
+    {
+        return address;
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            UnsafeUtil.freeDirectByteBuffer( buffer );
+        }
+        catch ( Exception e )
+        {   // The mapping will be released when the buffer is garbage collected instead
+        }
+        if ( !deleted )
+        {
+            file.delete();
+        }
+    }
+}
@@ -32,6 +32,13 @@ public class OffHeapByteArray extends OffHeapNumberArray<ByteArray> implements B
         clear();
     }
 
+    OffHeapByteArray( long length, byte[] defaultValue, long base, MappedMemory mappedMemory )
+    {
+        super( length, defaultValue.length, base, mappedMemory );
+        this.defaultValue = defaultValue;
+        clear();
+    }
+
     @Override
     public void swap( long fromIndex, long toIndex, int numberOfEntries )
     {
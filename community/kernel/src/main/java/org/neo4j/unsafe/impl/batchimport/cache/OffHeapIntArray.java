@@ -36,6 +36,13 @@ public class OffHeapIntArray extends OffHeapRegularNumberArray<IntArray> impleme
         clear();
     }
 
+    OffHeapIntArray( long length, int defaultValue, long base, MappedMemory mappedMemory )
+    {
+        super( length, 2, base, mappedMemory );
+        this.defaultValue = defaultValue;
+        clear();
+    }
+
     @Override
     public int get( long index )
     {
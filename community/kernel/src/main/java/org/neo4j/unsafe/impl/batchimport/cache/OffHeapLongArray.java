@@ -36,6 +36,13 @@ public class OffHeapLongArray extends OffHeapRegularNumberArray<LongArray> imple
         clear();
     }
 
+    OffHeapLongArray( long length, long defaultValue, long base, MappedMemory mappedMemory )
+    {
+        super( length, 3, base, mappedMemory );
+        this.defaultValue = defaultValue;
+        clear();
+    }
+
     @Override
     public long get( long index )
     {
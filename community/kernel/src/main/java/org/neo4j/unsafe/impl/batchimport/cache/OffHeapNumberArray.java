@@ -25,6 +25,7 @@ public abstract class OffHeapNumberArray<N extends NumberArray<N>> extends BaseN
 {
     protected final long address;
     protected final long length;
+    private final MappedMemory mappedMemory;
     private boolean closed;
 
     protected OffHeapNumberArray( long length, int itemSize, long base )
@@ -33,6 +34,16 @@ public abstract class OffHeapNumberArray<N extends NumberArray<N>> extends BaseN
         UnsafeUtil.assertHasUnsafe();
         this.length = length;
         this.address = UnsafeUtil.allocateMemory( length * itemSize );
+        this.mappedMemory = null;
+    }
+
+    OffHeapNumberArray( long length, int itemSize, long base, MappedMemory mappedMemory )
+    {
+        super( itemSize, base );
+        UnsafeUtil.assertHasUnsafe();
+        this.length = length;
+        this.address = mappedMemory.address();
+        this.mappedMemory = mappedMemory;
     }
 
     @Override
@@ -44,7 +55,10 @@ public abstract class OffHeapNumberArray<N extends NumberArray<N>> extends BaseN
     @Override
     public void acceptMemoryStatsVisitor( MemoryStatsVisitor visitor )
     {
-        visitor.offHeapUsage( length * itemSize );
+        if ( mappedMemory == null )
+        {   // Memory-mapped files are paged in and out by the operating system as needed
+            visitor.offHeapUsage( length * itemSize );
+        }
     }
 
     @Override
@@ -52,7 +66,11 @@ public abstract class OffHeapNumberArray<N extends NumberArray<N>> extends BaseN
     {
         if ( !closed )
         {
-            if ( length > 0 )
+            if ( mappedMemory != null )
+            {
+                mappedMemory.close();
+            }
+            else if ( length > 0 )
             {
                 // Allocating 0 bytes actually returns address 0
                 UnsafeUtil.free( address );
@@ -32,6 +32,12 @@ abstract class OffHeapRegularNumberArray<N extends NumberArray<N>> extends OffHe
         this.shift = shift;
     }
 
+    OffHeapRegularNumberArray( long length, int shift, long base, MappedMemory mappedMemory )
+    {
+        super( length, 1 << shift, base, mappedMemory );
+        this.shift = shift;
+    }
+
     protected long addressOf( long index )
     {
         index = rebase( index );
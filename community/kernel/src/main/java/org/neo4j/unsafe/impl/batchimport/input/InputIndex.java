@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport.input;
+
+/**
+ * Definition of a schema index, or a uniqueness constraint, on a label and property key which an import
+ * should build as part of importing the nodes, instead of having the database populate it after the import.
+ */
+public class InputIndex
+{
+    private final String label;
+    private final String propertyKey;
+    private final boolean unique;
+
+    private InputIndex( String label, String propertyKey, boolean unique )
+    {
+        this.label = label;
+        this.propertyKey = propertyKey;
+        this.unique = unique;
+    }
+
+    /**
+     * @param label name of label to index.
+     * @param propertyKey name of property key to index.
+     * @return an {@link InputIndex} for a regular schema index.
+     */
+    public static InputIndex index( String label, String propertyKey )
+    {
+        return new InputIndex( label, propertyKey, false );
+    }
+
+    /**
+     * @param label name of label the constraint applies to.
+     * @param propertyKey name of property key which must have unique values.
+     * @return an {@link InputIndex} for a uniqueness constraint, backed by a unique schema index.
+     */
+    public static InputIndex uniqueness( String label, String propertyKey )
+    {
+        return new InputIndex( label, propertyKey, true );
+    }
+
+    public String label()
+    {
+        return label;
+    }
+
+    public String propertyKey()
+    {
+        return propertyKey;
+    }
+
+    public boolean isUnique()
+    {
+        return unique;
+    }
+
+    @Override
+    public String toString()
+    {
+        return (unique ? "UNIQUE " : "") + ":" + label + "(" + propertyKey + ")";
+    }
+}
@@ -25,6 +25,8 @@ import org.neo4j.csv.reader.CharSeeker;
 import org.neo4j.kernel.impl.util.Validators;
 import org.neo4j.unsafe.impl.batchimport.InputIterable;
 import org.neo4j.unsafe.impl.batchimport.InputIterator;
+import org.neo4j.unsafe.impl.batchimport.cache.MappedFileNumberArrayFactory;
+import org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory;
 import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdGenerator;
 import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMapper;
 import org.neo4j.unsafe.impl.batchimport.input.Collector;
@@ -34,6 +36,8 @@ import org.neo4j.unsafe.impl.batchimport.input.InputNode;
 import org.neo4j.unsafe.impl.batchimport.input.InputRelationship;
 import org.neo4j.unsafe.impl.batchimport.input.csv.InputGroupsDeserializer.DeserializerFactory;
 
+import static org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory.AUTO;
+
 /**
  * Provides {@link Input} from data contained in tabular/csv form. Expects factories for instantiating
  * the {@link CharSeeker} objects seeking values in the csv data and header factories for how to
@@ -50,6 +54,7 @@ public class CsvInput implements Input
     private final Groups groups = new Groups();
     private final Collector badCollector;
     private final int maxProcessors;
+    private final NumberArrayFactory idCacheFactory;
 
     /**
      * @param nodeDataFactory multiple {@link DataFactory} instances providing data, each {@link DataFactory}
@@ -69,8 +74,24 @@ public class CsvInput implements Input
             Iterable<DataFactory<InputNode>> nodeDataFactory, Header.Factory nodeHeaderFactory,
             Iterable<DataFactory<InputRelationship>> relationshipDataFactory, Header.Factory relationshipHeaderFactory,
             IdType idType, Configuration config, Collector badCollector, int maxProcessors )
+    {
+        this( nodeDataFactory, nodeHeaderFactory, relationshipDataFactory, relationshipHeaderFactory, idType, config,
+                badCollector, maxProcessors, AUTO );
+    }
+
+    /**
+     * @param idCacheFactory {@link NumberArrayFactory} for the {@link IdMapper} to keep the input ids in,
+     * for example a {@link MappedFileNumberArrayFactory} if they are not expected to fit in memory.
+     * @see #CsvInput(Iterable, Header.Factory, Iterable, Header.Factory, IdType, Configuration, Collector, int)
+     */
+    public CsvInput(
+            Iterable<DataFactory<InputNode>> nodeDataFactory, Header.Factory nodeHeaderFactory,
+            Iterable<DataFactory<InputRelationship>> relationshipDataFactory, Header.Factory relationshipHeaderFactory,
+            IdType idType, Configuration config, Collector badCollector, int maxProcessors,
+            NumberArrayFactory idCacheFactory )
     {
         this.maxProcessors = maxProcessors;
+        this.idCacheFactory = idCacheFactory;
         assertSaneConfiguration( config );
 
         this.nodeDataFactory = nodeDataFactory;
@@ -158,7 +179,7 @@ public class CsvInput implements Input
     @Override
     public IdMapper idMapper()
     {
-        return idType.idMapper();
+        return idType.idMapper( idCacheFactory );
     }
 
     @Override
@@ -29,6 +29,7 @@ import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.io.pagecache.PageCache;
 import org.neo4j.io.pagecache.tracing.DefaultPageCacheTracer;
 import org.neo4j.io.pagecache.tracing.PageCacheTracer;
+import org.neo4j.kernel.api.index.SchemaIndexProvider;
 import org.neo4j.kernel.api.labelscan.LabelScanStore;
 import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.extension.KernelExtensionFactory;
@@ -38,6 +39,7 @@ import org.neo4j.kernel.extension.dependency.HighestSelectionStrategy;
 import org.neo4j.kernel.impl.api.index.IndexStoreView;
 import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider;
 import org.neo4j.kernel.impl.factory.DatabaseInfo;
+import org.neo4j.kernel.impl.locking.LockService;
 import org.neo4j.kernel.impl.logging.LogService;
 import org.neo4j.kernel.impl.pagecache.ConfiguringPageCacheFactory;
 import org.neo4j.kernel.impl.spi.KernelContext;
@@ -52,6 +54,7 @@ import org.neo4j.kernel.impl.store.UnderlyingStorageException;
 import org.neo4j.kernel.impl.store.counts.CountsTracker;
 import org.neo4j.kernel.impl.store.format.RecordFormats;
 import org.neo4j.kernel.impl.store.record.RelationshipGroupRecord;
+import org.neo4j.kernel.impl.transaction.state.NeoStoreIndexStoreView;
 import org.neo4j.kernel.impl.util.Dependencies;
 import org.neo4j.kernel.lifecycle.LifeSupport;
 import org.neo4j.logging.LogProvider;
@@ -90,6 +93,7 @@ public class BatchingNeoStores implements AutoCloseable
     private final PageCache pageCache;
     private final NeoStores neoStores;
     private final LifeSupport life = new LifeSupport();
+    private final KernelExtensions extensions;
     private final LabelScanStore labelScanStore;
     private final IoTracer ioTracer;
     private final RecordFormats recordFormats;
@@ -100,6 +104,24 @@ public class BatchingNeoStores implements AutoCloseable
 
     public BatchingNeoStores( FileSystemAbstraction fileSystem, File storeDir, RecordFormats recordFormats,
             Configuration config, LogService logService, AdditionalInitialIds initialIds, Config dbConfig )
+    {
+        this( fileSystem, storeDir, recordFormats, config, logService, initialIds, dbConfig, false );
+    }
+
+    /**
+     * Opens a store which already contains data, for importing more data into it. Its last committed transaction
+     * is kept and the label scan store is rebuilt from the store itself, if it needs to be.
+     */
+    public static BatchingNeoStores openExistingStore( FileSystemAbstraction fileSystem, File storeDir,
+            RecordFormats recordFormats, Configuration config, LogService logService, Config dbConfig )
+    {
+        return new BatchingNeoStores( fileSystem, storeDir, recordFormats, config, logService,
+                AdditionalInitialIds.EMPTY, dbConfig, true );
+    }
+
+    private BatchingNeoStores( FileSystemAbstraction fileSystem, File storeDir, RecordFormats recordFormats,
+            Configuration config, LogService logService, AdditionalInitialIds initialIds, Config dbConfig,
+            boolean existingStore )
     {
         this.fileSystem = fileSystem;
         this.recordFormats = recordFormats;
@@ -119,7 +141,7 @@ public class BatchingNeoStores implements AutoCloseable
         this.pageCache = createPageCache( fileSystem, neo4jConfig, logProvider, tracer );
         this.ioTracer = tracer::bytesWritten;
         this.neoStores = newStoreFactory( DEFAULT_NAME ).openAllNeoStores( true );
-        if ( alreadyContainsData( neoStores ) )
+        if ( !existingStore && alreadyContainsData( neoStores ) )
         {
             neoStores.close();
             throw new IllegalStateException( storeDir + " already contains data, cannot do import here" );
@@ -132,10 +154,13 @@ public class BatchingNeoStores implements AutoCloseable
         {
             throw new UnderlyingStorageException( e );
         }
-        neoStores.getMetaDataStore().setLastCommittedAndClosedTransactionId(
-                initialIds.lastCommittedTransactionId(), initialIds.lastCommittedTransactionChecksum(),
-                BASE_TX_COMMIT_TIMESTAMP, initialIds.lastCommittedTransactionLogByteOffset(),
-                initialIds.lastCommittedTransactionLogVersion() );
+        if ( !existingStore )
+        {
+            neoStores.getMetaDataStore().setLastCommittedAndClosedTransactionId(
+                    initialIds.lastCommittedTransactionId(), initialIds.lastCommittedTransactionChecksum(),
+                    BASE_TX_COMMIT_TIMESTAMP, initialIds.lastCommittedTransactionLogByteOffset(),
+                    initialIds.lastCommittedTransactionLogVersion() );
+        }
         this.propertyKeyRepository = new BatchingPropertyKeyTokenRepository(
                 neoStores.getPropertyKeyTokenStore() );
         this.labelRepository = new BatchingLabelTokenRepository(
@@ -153,13 +178,17 @@ public class BatchingNeoStores implements AutoCloseable
         dependencies.satisfyDependency( fileSystem );
         dependencies.satisfyDependency( this );
         dependencies.satisfyDependency( logService );
-        dependencies.satisfyDependency( IndexStoreView.EMPTY );
+        dependencies.satisfyDependency( pageCache );
+        dependencies.satisfyDependency( existingStore
+                                        ? new NeoStoreIndexStoreView( LockService.NO_LOCK_SERVICE, neoStores )
+                                        : IndexStoreView.EMPTY );
         KernelContext kernelContext = new SimpleKernelContext( fileSystem, storeDir, DatabaseInfo.UNKNOWN,
                 dependencies );
         @SuppressWarnings( { "unchecked", "rawtypes" } )
         KernelExtensions extensions = life.add( new KernelExtensions(
                 kernelContext, (Iterable) Service.load( KernelExtensionFactory.class ),
                 dependencies, UnsatisfiedDependencyStrategies.ignore() ) );
+        this.extensions = extensions;
         life.start();
         labelScanStore = life.add( extensions.resolveDependency( LabelScanStoreProvider.class,
                 HighestSelectionStrategy.getInstance() ).getLabelScanStore() );
@@ -295,4 +324,14 @@ public class BatchingNeoStores implements AutoCloseable
     {
         return neoStores;
     }
+
+    /**
+     * @return the {@link SchemaIndexProvider} a database on this store would use for new indexes, resolved from
+     * the available kernel extensions. Only resolved on demand since imports building no indexes shouldn't
+     * require any index provider to be available.
+     */
+    public SchemaIndexProvider getSchemaIndexProvider()
+    {
+        return extensions.resolveDependency( SchemaIndexProvider.class, HighestSelectionStrategy.getInstance() );
+    }
 }
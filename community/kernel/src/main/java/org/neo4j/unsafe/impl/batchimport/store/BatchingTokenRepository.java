@@ -41,11 +41,13 @@ import static java.lang.Math.max;
 /**
  * Batching version of a {@link TokenStore} where tokens can be created and retrieved, but only persisted
  * to storage as part of {@link #close() closing}. Instances of this class are thread safe
- * to call {@link #getOrCreateId(String)} methods on.
+ * to call {@link #getOrCreateId(String)} methods on. Tokens already in the store are retrieved by name
+ * rather than created again.
  */
 public abstract class BatchingTokenRepository<RECORD extends TokenRecord, TOKEN extends Token>
         implements ToIntFunction<Object>
 {
+    private final Map<String,Integer> existingTokens = new HashMap<>();
     private final Map<String,Integer> tokens = new HashMap<>();
     private final TokenStore<RECORD, TOKEN> store;
     private int highId;
@@ -54,6 +56,10 @@ public abstract class BatchingTokenRepository<RECORD extends TokenRecord, TOKEN
     {
         this.store = store;
         this.highId = (int)store.getHighId();
+        for ( TOKEN token : store.getTokens( Integer.MAX_VALUE ) )
+        {
+            existingTokens.put( token.name(), token.id() );
+        }
     }
 
     /**
@@ -66,7 +72,12 @@ public abstract class BatchingTokenRepository<RECORD extends TokenRecord, TOKEN
     public int getOrCreateId( String name )
     {
         assert name != null;
-        Integer id = tokens.get( name );
+        Integer id = existingTokens.get( name );
+        if ( id != null )
+        {
+            return id;
+        }
+        id = tokens.get( name );
         if ( id == null )
         {
             synchronized ( tokens )
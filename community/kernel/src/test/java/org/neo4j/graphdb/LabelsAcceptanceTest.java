@@ -38,6 +38,7 @@ import org.neo4j.helpers.collection.Iterables;
 import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.kernel.GraphDatabaseDependencies;
 import org.neo4j.kernel.api.Statement;
+import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
 import org.neo4j.kernel.impl.factory.CommunityEditionModule;
 import org.neo4j.kernel.impl.factory.DatabaseInfo;
@@ -746,7 +747,8 @@ public class LabelsAcceptanceTest
                                         {
                                             @Override
                                             protected IdGeneratorFactory createIdGeneratorFactory(
-                                                    FileSystemAbstraction fs, IdTypeConfigurationProvider idTypeConfigurationProvider )
+                                                    FileSystemAbstraction fs, IdTypeConfigurationProvider idTypeConfigurationProvider,
+                                                    Config config )
                                             {
                                                 return idFactory;
                                             }
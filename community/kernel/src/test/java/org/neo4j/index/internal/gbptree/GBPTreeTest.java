@@ -0,0 +1,365 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.index.internal.gbptree;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.neo4j.cursor.RawCursor;
+import org.neo4j.io.fs.DefaultFileSystemAbstraction;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.IOLimiter;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.test.rule.PageCacheRule;
+import org.neo4j.test.rule.RandomRule;
+import org.neo4j.test.rule.TestDirectory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GBPTreeTest
+{
+    private static final int PAGE_SIZE = 256;
+
+    private final FileSystemAbstraction fs = new DefaultFileSystemAbstraction();
+    @Rule
+    public final TestDirectory directory = TestDirectory.testDirectory( getClass() );
+    @Rule
+    public final PageCacheRule pageCacheRule = new PageCacheRule();
+    @Rule
+    public final RandomRule random = new RandomRule();
+
+    private final SimpleLongLayout layout = new SimpleLongLayout();
+    private PageCache pageCache;
+    private File indexFile;
+    private GBPTree<MutableLong,MutableLong> index;
+
+    @After
+    public void closeIndex() throws IOException
+    {
+        if ( index != null )
+        {
+            index.close();
+        }
+    }
+
+    @Test
+    public void shouldSeekInsertedEntriesInOrder() throws Exception
+    {
+        // given
+        index = createIndex( GBPTree.NO_HEADER );
+        try ( Writer<MutableLong,MutableLong> writer = index.writer() )
+        {
+            for ( long i = 999; i >= 0; i-- )
+            {
+                writer.put( new MutableLong( i ), new MutableLong( i * 10 ) );
+            }
+        }
+
+        // when
+        try ( RawCursor<Hit<MutableLong,MutableLong>,IOException> cursor =
+                index.seek( new MutableLong( 100 ), new MutableLong( 200 ) ) )
+        {
+            // then
+            for ( long expected = 100; expected < 200; expected++ )
+            {
+                assertTrue( cursor.next() );
+                assertEquals( expected, cursor.get().key().longValue() );
+                assertEquals( expected * 10, cursor.get().value().longValue() );
+            }
+            assertFalse( cursor.next() );
+        }
+    }
+
+    @Test
+    public void shouldReturnRemovedValue() throws Exception
+    {
+        // given
+        index = createIndex( GBPTree.NO_HEADER );
+        try ( Writer<MutableLong,MutableLong> writer = index.writer() )
+        {
+            writer.put( new MutableLong( 5 ), new MutableLong( 50 ) );
+
+            // when
+            MutableLong removed = writer.remove( new MutableLong( 5 ) );
+            MutableLong removedAgain = writer.remove( new MutableLong( 5 ) );
+
+            // then
+            assertEquals( 50, removed.longValue() );
+            assertNull( removedAgain );
+        }
+    }
+
+    @Test
+    public void shouldKeepExistingValueOnMergeWithKeepExisting() throws Exception
+    {
+        // given
+        index = createIndex( GBPTree.NO_HEADER );
+        try ( Writer<MutableLong,MutableLong> writer = index.writer() )
+        {
+            writer.put( new MutableLong( 1 ), new MutableLong( 10 ) );
+
+            // when
+            writer.merge( new MutableLong( 1 ), new MutableLong( 20 ), ValueMergers.keepExisting() );
+        }
+
+        // then
+        assertEquals( 10, single( 1 ) );
+    }
+
+    @Test
+    public void shouldMatchModelOnRandomUpdatesAndReopens() throws Exception
+    {
+        // given
+        TreeMap<Long,Long> model = new TreeMap<>();
+        index = createIndex( GBPTree.NO_HEADER );
+        int keyRange = 10_000;
+
+        for ( int round = 0; round < 20; round++ )
+        {
+            // when
+            try ( Writer<MutableLong,MutableLong> writer = index.writer() )
+            {
+                for ( int i = 0; i < 1_000; i++ )
+                {
+                    long key = random.nextInt( keyRange );
+                    if ( random.nextInt( 4 ) == 0 )
+                    {
+                        MutableLong removed = writer.remove( new MutableLong( key ) );
+                        Long expected = model.remove( key );
+                        assertEquals( expected, removed == null ? null : removed.longValue() );
+                    }
+                    else
+                    {
+                        long value = random.nextLong();
+                        writer.put( new MutableLong( key ), new MutableLong( value ) );
+                        model.put( key, value );
+                    }
+                }
+            }
+
+            // then
+            assertMatchesModel( model, Long.MIN_VALUE, Long.MAX_VALUE );
+            for ( int i = 0; i < 10; i++ )
+            {
+                long from = random.nextInt( keyRange );
+                assertMatchesModel( model, from, from + random.nextInt( keyRange / 10 ) );
+            }
+
+            if ( random.nextInt( 4 ) == 0 )
+            {
+                index.close();
+                index = createIndex( GBPTree.NO_HEADER );
+                assertMatchesModel( model, Long.MIN_VALUE, Long.MAX_VALUE );
+            }
+        }
+    }
+
+    @Test
+    public void shouldReadHeaderWrittenOnCheckpoint() throws Exception
+    {
+        // given
+        index = createIndex( GBPTree.NO_HEADER );
+        index.checkpoint( IOLimiter.unlimited(), buffer -> buffer.putInt( 123 ) );
+        index.close();
+
+        // when
+        AtomicInteger readFromFile = new AtomicInteger();
+        GBPTree.readHeader( pageCache, indexFile, buffer -> readFromFile.set( buffer.getInt() ) );
+        AtomicInteger readOnOpen = new AtomicInteger();
+        index = createIndex( buffer -> readOnOpen.set( buffer.getInt() ) );
+
+        // then
+        assertEquals( 123, readFromFile.get() );
+        assertEquals( 123, readOnOpen.get() );
+    }
+
+    @Test
+    public void shouldFailReadingHeaderOfMissingFile() throws Exception
+    {
+        // given
+        pageCache = pageCacheRule.getPageCache( fs );
+
+        try
+        {
+            // when
+            GBPTree.readHeader( pageCache, directory.file( "missing" ), GBPTree.NO_HEADER );
+            fail( "Should have failed" );
+        }
+        catch ( NoSuchFileException e )
+        {
+            // then good
+        }
+    }
+
+    @Test
+    public void shouldFailOpeningWithDifferentLayout() throws Exception
+    {
+        // given
+        index = createIndex( GBPTree.NO_HEADER );
+        index.close();
+        index = null;
+
+        try
+        {
+            // when
+            new GBPTree<>( pageCache, indexFile, new SimpleLongLayout( 2 ), PAGE_SIZE,
+                    GBPTree.NO_MONITOR, GBPTree.NO_HEADER );
+            fail( "Should have failed" );
+        }
+        catch ( MetadataMismatchException e )
+        {
+            // then good
+        }
+    }
+
+    @Test
+    public void shouldOpenAtLastCheckpointAfterCrash() throws Exception
+    {
+        // given
+        index = createIndex( GBPTree.NO_HEADER );
+        insert( 0, 1_000 );
+        index.checkpoint( IOLimiter.unlimited(), buffer -> buffer.putInt( 1 ) );
+        insert( 1_000, 2_000 );
+        try ( Writer<MutableLong,MutableLong> writer = index.writer() )
+        {
+            for ( long i = 0; i < 500; i++ )
+            {
+                writer.remove( new MutableLong( i ) );
+            }
+        }
+
+        // when making a copy of the file as it looks after a crash, i.e. with changes after last checkpoint
+        pageCache.flushAndForce();
+        File crashedFile = directory.file( "crashed" );
+        Files.copy( indexFile.toPath(), crashedFile.toPath() );
+        AtomicInteger header = new AtomicInteger();
+        try ( GBPTree<MutableLong,MutableLong> crashed = new GBPTree<>( pageCache, crashedFile, layout, PAGE_SIZE,
+                GBPTree.NO_MONITOR, buffer -> header.set( buffer.getInt() ) ) )
+        {
+            // then
+            assertEquals( 1, header.get() );
+            TreeMap<Long,Long> model = new TreeMap<>();
+            for ( long i = 0; i < 1_000; i++ )
+            {
+                model.put( i, i );
+            }
+            assertMatchesModel( crashed, model, Long.MIN_VALUE, Long.MAX_VALUE );
+
+            // and the recovered tree should be writable
+            try ( Writer<MutableLong,MutableLong> writer = crashed.writer() )
+            {
+                for ( long i = 1_000; i < 2_000; i++ )
+                {
+                    writer.put( new MutableLong( i ), new MutableLong( i ) );
+                    model.put( i, i );
+                }
+            }
+            assertMatchesModel( crashed, model, Long.MIN_VALUE, Long.MAX_VALUE );
+        }
+    }
+
+    @Test
+    public void shouldAllowCloseMultipleTimes() throws Exception
+    {
+        // given
+        index = createIndex( GBPTree.NO_HEADER );
+        insert( 0, 10 );
+
+        // when
+        index.close();
+        index.close();
+
+        // then
+        index = createIndex( GBPTree.NO_HEADER );
+        assertEquals( 5, single( 5 ) );
+    }
+
+    private GBPTree<MutableLong,MutableLong> createIndex( Header.Reader headerReader ) throws IOException
+    {
+        if ( pageCache == null )
+        {
+            pageCache = pageCacheRule.getPageCache( fs );
+            indexFile = directory.file( "index" );
+        }
+        return new GBPTree<>( pageCache, indexFile, layout, PAGE_SIZE, GBPTree.NO_MONITOR, headerReader );
+    }
+
+    private void insert( long fromInclusive, long toExclusive ) throws IOException
+    {
+        try ( Writer<MutableLong,MutableLong> writer = index.writer() )
+        {
+            for ( long i = fromInclusive; i < toExclusive; i++ )
+            {
+                writer.put( new MutableLong( i ), new MutableLong( i ) );
+            }
+        }
+    }
+
+    private long single( long key ) throws IOException
+    {
+        try ( RawCursor<Hit<MutableLong,MutableLong>,IOException> cursor =
+                index.seek( new MutableLong( key ), new MutableLong( key + 1 ) ) )
+        {
+            assertTrue( cursor.next() );
+            long value = cursor.get().value().longValue();
+            assertFalse( cursor.next() );
+            return value;
+        }
+    }
+
+    private void assertMatchesModel( TreeMap<Long,Long> model, long fromInclusive, long toExclusive )
+            throws IOException
+    {
+        assertMatchesModel( index, model, fromInclusive, toExclusive );
+    }
+
+    private static void assertMatchesModel( GBPTree<MutableLong,MutableLong> tree, TreeMap<Long,Long> model,
+            long fromInclusive, long toExclusive ) throws IOException
+    {
+        Iterator<Map.Entry<Long,Long>> expected =
+                model.subMap( fromInclusive, true, toExclusive, false ).entrySet().iterator();
+        try ( RawCursor<Hit<MutableLong,MutableLong>,IOException> cursor =
+                tree.seek( new MutableLong( fromInclusive ), new MutableLong( toExclusive ) ) )
+        {
+            while ( cursor.next() )
+            {
+                assertTrue( "Unexpected key " + cursor.get().key(), expected.hasNext() );
+                Map.Entry<Long,Long> entry = expected.next();
+                assertEquals( entry.getKey().longValue(), cursor.get().key().longValue() );
+                assertEquals( entry.getValue().longValue(), cursor.get().value().longValue() );
+            }
+        }
+        assertFalse( "Missing entries", expected.hasNext() );
+    }
+}
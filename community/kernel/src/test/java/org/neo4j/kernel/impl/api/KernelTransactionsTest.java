@@ -31,6 +31,7 @@ import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
 
 import org.neo4j.kernel.api.KernelTransaction;
 import org.neo4j.kernel.api.KernelTransactionHandle;
@@ -38,6 +39,7 @@ import org.neo4j.kernel.api.exceptions.Status;
 import org.neo4j.kernel.api.exceptions.TransactionFailureException;
 import org.neo4j.kernel.api.security.AccessMode;
 import org.neo4j.kernel.impl.api.state.ConstraintIndexCreator;
+import org.neo4j.kernel.impl.api.state.TxState;
 import org.neo4j.kernel.impl.factory.AccessCapability;
 import org.neo4j.kernel.impl.factory.CanWrite;
 import org.neo4j.kernel.impl.index.IndexConfigStore;
@@ -56,6 +58,7 @@ import org.neo4j.kernel.lifecycle.LifeSupport;
 import org.neo4j.kernel.monitoring.Monitors;
 import org.neo4j.kernel.monitoring.tracing.Tracers;
 import org.neo4j.logging.NullLog;
+import org.neo4j.logging.NullLogProvider;
 import org.neo4j.storageengine.api.StorageCommand;
 import org.neo4j.storageengine.api.StorageEngine;
 import org.neo4j.storageengine.api.StorageStatement;
@@ -450,13 +453,14 @@ public class KernelTransactionsTest
         {
             return new TestKernelTransactions( statementLocksFactory, null, statementOperationsContianer,
                     null, DEFAULT,
-                    commitProcess, null, null, new TransactionHooks(), mock( TransactionMonitor.class ), life,
+                    commitProcess, null, null, TxState::new, new TransactionHooks(), mock( TransactionMonitor.class ), life,
                     tracers, storageEngine, new Procedures(), transactionIdStore, Clocks.systemClock(), new CanWrite() );
         }
         return new KernelTransactions( statementLocksFactory,
                 null, statementOperationsContianer, null, DEFAULT,
-                commitProcess, null, null, new TransactionHooks(), mock( TransactionMonitor.class ), life,
-                tracers, storageEngine, new Procedures(), transactionIdStore, Clocks.systemClock(), new CanWrite() );
+                commitProcess, null, null, TxState::new, new TransactionHooks(), mock( TransactionMonitor.class ), life,
+                tracers, storageEngine, new Procedures(), transactionIdStore, Clocks.systemClock(), new CanWrite(),
+                NullLogProvider.getInstance() );
     }
 
     private static TransactionCommitProcess newRememberingCommitProcess( final TransactionRepresentation[] slot )
@@ -504,16 +508,18 @@ public class KernelTransactionsTest
                                        TransactionHeaderInformationFactory txHeaderFactory,
                                        TransactionCommitProcess transactionCommitProcess,
                                        IndexConfigStore indexConfigStore,
-                                       LegacyIndexProviderLookup legacyIndexProviderLookup, TransactionHooks hooks,
+                                       LegacyIndexProviderLookup legacyIndexProviderLookup,
+                                       Supplier<TxState> txStateSupplier, TransactionHooks hooks,
                                        TransactionMonitor transactionMonitor, LifeSupport dataSourceLife,
                                        Tracers tracers, StorageEngine storageEngine, Procedures procedures,
                                        TransactionIdStore transactionIdStore, Clock clock,
                                        AccessCapability accessCapability )
         {
             super( statementLocksFactory, constraintIndexCreator, statementOperationsContianer, schemaWriteGuard,
-                    txHeaderFactory, transactionCommitProcess, indexConfigStore, legacyIndexProviderLookup, hooks,
+                    txHeaderFactory, transactionCommitProcess, indexConfigStore, legacyIndexProviderLookup,
+                    txStateSupplier, hooks,
                     transactionMonitor, dataSourceLife, tracers, storageEngine, procedures, transactionIdStore, clock,
-                    accessCapability );
+                    accessCapability, NullLogProvider.getInstance() );
         }
 
         @Override
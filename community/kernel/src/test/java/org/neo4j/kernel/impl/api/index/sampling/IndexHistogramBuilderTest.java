@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api.index.sampling;
+
+import org.junit.Test;
+
+import org.neo4j.storageengine.api.schema.IndexHistogram;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IndexHistogramBuilderTest
+{
+    private static final double INF = Double.POSITIVE_INFINITY;
+
+    @Test
+    public void shouldBuildNothingFromNoValues()
+    {
+        // given
+        IndexHistogramBuilder builder = new IndexHistogramBuilder();
+
+        // when
+        IndexHistogram histogram = builder.build();
+
+        // then
+        assertNull( histogram );
+    }
+
+    @Test
+    public void shouldKeepNumberOfBucketsBounded()
+    {
+        // given
+        IndexHistogramBuilder builder = new IndexHistogramBuilder( 8, 0 );
+
+        // when
+        for ( int i = 0; i < 10_000; i++ )
+        {
+            builder.include( i, 1 );
+        }
+        IndexHistogram histogram = builder.build();
+
+        // then
+        assertEquals( 10_000, histogram.totalCount() );
+        assertTrue( histogram.numberOfBuckets() <= 16 );
+        assertEquals( 10_000, histogram.estimateCount( -INF, true, INF, true ), 0.0001 );
+    }
+
+    @Test
+    public void shouldEstimateRangesOfUniformlyDistributedValues()
+    {
+        // given
+        IndexHistogramBuilder builder = new IndexHistogramBuilder( 16, 4 );
+        for ( int i = 0; i < 1_000; i++ )
+        {
+            builder.include( i, 1 );
+        }
+
+        // when
+        IndexHistogram histogram = builder.build();
+
+        // then
+        assertEquals( 100, histogram.estimateCount( 0, true, 100, false ), 20 );
+        assertEquals( 500, histogram.estimateCount( 500, true, INF, true ), 20 );
+        assertEquals( 0, histogram.estimateCount( 2_000, true, INF, true ), 0 );
+        assertEquals( 1, histogram.estimateCount( 42, true, 42, true ), 0.0001 );
+        assertEquals( 0, histogram.estimateCount( 42, false, 42, true ), 0 );
+    }
+
+    @Test
+    public void shouldEstimateSkewedValuesUsingCommonValues()
+    {
+        // given one value making up half of the index
+        IndexHistogramBuilder builder = new IndexHistogramBuilder( 16, 4 );
+        for ( int i = 0; i < 1_000; i++ )
+        {
+            builder.include( i, i == 500 ? 1_000 : 1 );
+        }
+
+        // when
+        IndexHistogram histogram = builder.build();
+
+        // then
+        assertEquals( 1, histogram.numberOfCommonValues() );
+        assertEquals( 1999, histogram.totalCount() );
+        assertEquals( 1_000, histogram.estimateCount( 500, true, 500, true ), 0.0001 );
+        assertEquals( 1, histogram.estimateCount( 499, true, 499, true ), 0.0001 );
+        assertEquals( 1_010, histogram.estimateCount( 495, true, 505, true ), 20 );
+        assertEquals( 10, histogram.estimateCount( 400, true, 410, true ), 20 );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void shouldRequireAscendingValues()
+    {
+        // given
+        IndexHistogramBuilder builder = new IndexHistogramBuilder();
+        builder.include( 10, 1 );
+
+        // when
+        builder.include( 5, 1 );
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api.index.sampling;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.OutputStream;
+
+import org.neo4j.graphdb.mockfs.EphemeralFileSystemAbstraction;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.kernel.api.index.IndexDescriptor;
+import org.neo4j.storageengine.api.schema.IndexHistogram;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class IndexHistogramStoreTest
+{
+    private final FileSystemAbstraction fs = new EphemeralFileSystemAbstraction();
+    private final File storeDir = new File( "store" );
+
+    @Test
+    public void shouldKeepHistogramsAcrossRestarts() throws Exception
+    {
+        // given
+        fs.mkdirs( storeDir );
+        IndexDescriptor first = new IndexDescriptor( 1, 2 );
+        IndexDescriptor second = new IndexDescriptor( 3, 4 );
+        IndexHistogram histogram = new IndexHistogram( 0.5, new double[]{10, 20}, new long[]{5, 7},
+                new long[]{3, 4}, new double[]{15}, new long[]{100} );
+        IndexHistogramStore store = new IndexHistogramStore( fs, storeDir );
+
+        // when
+        store.replace( first, histogram );
+        store.replace( second, histogram );
+        store.replace( second, null );
+
+        // then
+        IndexHistogramStore reopened = new IndexHistogramStore( fs, storeDir );
+        assertEquals( histogram, reopened.get( first ) );
+        assertNull( reopened.get( second ) );
+    }
+
+    @Test
+    public void shouldStartWithoutHistogramsFromBrokenFile() throws Exception
+    {
+        // given
+        fs.mkdirs( storeDir );
+        try ( OutputStream out = fs.openAsOutputStream( new File( storeDir, IndexHistogramStore.FILE_NAME ), false ) )
+        {
+            out.write( new byte[]{0, 0, 0, 1, 0, 0, 0, 5, 0} );
+        }
+
+        // when
+        IndexHistogramStore store = new IndexHistogramStore( fs, storeDir );
+
+        // then
+        assertNull( store.get( new IndexDescriptor( 0, 0 ) ) );
+    }
+
+    @Test
+    public void shouldNotWriteAnythingWhenOnlyKeptInMemory() throws Exception
+    {
+        // given
+        fs.mkdirs( storeDir );
+        IndexHistogramStore store = new IndexHistogramStore();
+        IndexHistogram histogram = new IndexHistogram( 0, new double[]{1}, new long[]{1}, new long[]{1},
+                new double[0], new long[0] );
+
+        // when
+        store.replace( new IndexDescriptor( 1, 2 ), histogram );
+
+        // then
+        assertEquals( histogram, store.get( new IndexDescriptor( 1, 2 ) ) );
+        assertFalse( fs.fileExists( new File( storeDir, IndexHistogramStore.FILE_NAME ) ) );
+    }
+}
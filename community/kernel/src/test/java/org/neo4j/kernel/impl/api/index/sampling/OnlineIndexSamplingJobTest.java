@@ -29,6 +29,7 @@ import org.neo4j.kernel.impl.api.index.IndexProxy;
 import org.neo4j.kernel.impl.api.index.IndexStoreView;
 import org.neo4j.logging.LogProvider;
 import org.neo4j.logging.NullLogProvider;
+import org.neo4j.storageengine.api.schema.IndexHistogram;
 import org.neo4j.storageengine.api.schema.IndexReader;
 import org.neo4j.storageengine.api.schema.IndexSample;
 import org.neo4j.storageengine.api.schema.IndexSampler;
@@ -57,6 +58,28 @@ public class OnlineIndexSamplingJobTest
         verifyNoMoreInteractions( indexStoreView );
     }
 
+    @Test
+    public void shouldStoreTheHistogramIfTheSamplerBuiltOne() throws IndexNotFoundKernelException
+    {
+        // given
+        IndexHistogramBuilder histogramBuilder = new IndexHistogramBuilder();
+        histogramBuilder.include( 1, 20 );
+        histogramBuilder.include( 2, 3 );
+        IndexHistogram histogram = histogramBuilder.build();
+        when( indexSampler.sampleIndex() )
+                .thenReturn( new IndexSample( indexSize, indexUniqueValues, indexSize, histogram ) );
+        OnlineIndexSamplingJob job = new OnlineIndexSamplingJob( indexProxy, indexStoreView, "Foo", logProvider );
+        when( indexProxy.getState() ).thenReturn( ONLINE );
+
+        // when
+        job.run();
+
+        // then
+        verify( indexStoreView ).replaceIndexCounts( indexDescriptor, indexUniqueValues, indexSize, indexSize );
+        verify( indexStoreView ).replaceIndexHistogram( indexDescriptor, histogram );
+        verifyNoMoreInteractions( indexStoreView );
+    }
+
     @Test
     public void shouldSampleTheIndexButDoNotStoreTheValuesIfTheIndexIsNotOnline()
     {
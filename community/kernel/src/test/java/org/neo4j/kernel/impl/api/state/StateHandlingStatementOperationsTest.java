@@ -53,6 +53,7 @@ import org.neo4j.storageengine.api.StoreReadLayer;
 import org.neo4j.storageengine.api.schema.IndexReader;
 import org.neo4j.storageengine.api.schema.LabelScanReader;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
@@ -350,6 +351,82 @@ public class StateHandlingStatementOperationsTest
         assertEquals( asSet( 42L, 43L ), PrimitiveLongCollections.toSet( results ) );
     }
 
+    @SuppressWarnings( "unchecked" )
+    @Test
+    public void shouldSortOrderedRangeSeekByNumberWhenIndexDoesNotSeekInOrder() throws Exception
+    {
+        // Given
+        final int propertyKey = 2;
+        final int[] values = {0, 0, 0, 12, 17, 0, 15};
+        KernelStatement statement = mock( KernelStatement.class );
+        IndexDescriptor index = new IndexDescriptor( 1, propertyKey );
+        StorageStatement storageStatement = mock( StorageStatement.class );
+        when( statement.getStoreStatement() ).thenReturn( storageStatement );
+
+        IndexReader indexReader = addMockedIndexReader( storageStatement );
+        when( indexReader.hasOrderedNumberRangeSeeks() ).thenReturn( false );
+        when( indexReader.rangeSeekByNumberInclusive( 10, 20 ) ).thenReturn(
+                PrimitiveLongCollections.resourceIterator( PrimitiveLongCollections.iterator( 4L, 3L, 6L ), null )
+        );
+        when( storageStatement.acquireSingleNodeCursor( anyLong() ) ).thenAnswer(
+                new Answer<Cursor<NodeItem>>()
+                {
+                    @Override
+                    public Cursor<NodeItem> answer( InvocationOnMock invocationOnMock ) throws Throwable
+                    {
+                        long nodeId = (long) invocationOnMock.getArguments()[0];
+                        return asNodeCursor( nodeId,
+                                asPropertyCursor( intProperty( propertyKey, values[(int) nodeId] ) ),
+                                Cursors.<LabelItem>empty() );
+                    }
+                } );
+
+        StateHandlingStatementOperations context = newTxStateOps( mock( StoreReadLayer.class ) );
+
+        // When
+        PrimitiveLongIterator results = context.nodesGetFromIndexOrderedRangeSeekByNumber( statement, index, 10, true,
+                20, true );
+
+        // Then
+        assertArrayEquals( new long[]{3L, 6L, 4L}, PrimitiveLongCollections.asArray( results ) );
+    }
+
+    @Test
+    public void shouldStreamOrderedRangeSeekByNumberFromIndexThatSeeksInOrder() throws Exception
+    {
+        // Given
+        KernelStatement statement = mock( KernelStatement.class );
+        IndexDescriptor index = new IndexDescriptor( 1, 2 );
+        StorageStatement storageStatement = mock( StorageStatement.class );
+        when( statement.getStoreStatement() ).thenReturn( storageStatement );
+
+        IndexReader indexReader = addMockedIndexReader( storageStatement );
+        when( indexReader.hasOrderedNumberRangeSeeks() ).thenReturn( true );
+        when( indexReader.rangeSeekByNumberInclusive( 10, 20 ) ).thenReturn(
+                PrimitiveLongCollections.resourceIterator( PrimitiveLongCollections.iterator( 4L, 3L, 6L ), null )
+        );
+        when( storageStatement.acquireSingleNodeCursor( anyLong() ) ).thenAnswer(
+                new Answer<Cursor<NodeItem>>()
+                {
+                    @Override
+                    public Cursor<NodeItem> answer( InvocationOnMock invocationOnMock ) throws Throwable
+                    {
+                        long nodeId = (long) invocationOnMock.getArguments()[0];
+                        return asNodeCursor( nodeId, asPropertyCursor( intProperty( 2, 15 ) ),
+                                Cursors.<LabelItem>empty() );
+                    }
+                } );
+
+        StateHandlingStatementOperations context = newTxStateOps( mock( StoreReadLayer.class ) );
+
+        // When
+        PrimitiveLongIterator results = context.nodesGetFromIndexOrderedRangeSeekByNumber( statement, index, 10, true,
+                20, true );
+
+        // Then
+        assertArrayEquals( new long[]{4L, 3L, 6L}, PrimitiveLongCollections.asArray( results ) );
+    }
+
     @Test
     public void shouldConsiderTransactionStateDuringIndexBetweenRangeSeekByString() throws Exception
     {
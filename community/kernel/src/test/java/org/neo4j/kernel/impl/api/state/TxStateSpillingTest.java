@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.api.state;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.neo4j.kernel.api.properties.DefinedProperty;
+import org.neo4j.storageengine.api.StorageProperty;
+import org.neo4j.test.rule.TestDirectory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.neo4j.kernel.api.properties.Property.noNodeProperty;
+import static org.neo4j.kernel.api.properties.Property.noRelationshipProperty;
+import static org.neo4j.kernel.api.properties.Property.stringProperty;
+import static org.neo4j.kernel.impl.api.state.TxState.MIN_SPILLED_STRING_LENGTH;
+
+public class TxStateSpillingTest
+{
+    @Rule
+    public final TestDirectory directory = TestDirectory.testDirectory();
+
+    @Test
+    public void shouldKeepPropertiesInMemoryBelowThreshold() throws Exception
+    {
+        // given
+        TxState state = new TxState( 1024, directory.directory() );
+        DefinedProperty property = stringProperty( 1, longString( 'a', 256 ) );
+
+        // when
+        state.nodeDoReplaceProperty( 0, noNodeProperty( 0, 1 ), property );
+
+        // then
+        assertSame( property, single( state.getNodeState( 0 ).addedProperties() ) );
+    }
+
+    @Test
+    public void shouldSpillLargeStringValuesOnceThresholdIsExceeded() throws Exception
+    {
+        // given
+        TxState state = new TxState( 1024, directory.directory() );
+        String first = longString( 'a', 512 );
+        String second = longString( 'b', 512 );
+        String third = longString( 'c', 512 );
+
+        // when
+        state.nodeDoReplaceProperty( 0, noNodeProperty( 0, 1 ), stringProperty( 1, first ) );
+        DefinedProperty property = stringProperty( 1, second );
+        state.nodeDoReplaceProperty( 1, noNodeProperty( 1, 1 ), property );
+        state.relationshipDoReplaceProperty( 2, noRelationshipProperty( 2, 1 ), stringProperty( 1, third ) );
+
+        // then
+        StorageProperty spilled = single( state.getNodeState( 1 ).addedProperties() );
+        assertNotSame( property, spilled );
+        assertEquals( second, spilled.value() );
+        assertTrue( spilled.valueEquals( second ) );
+        assertEquals( first, single( state.getNodeState( 0 ).addedProperties() ).value() );
+        assertEquals( third, single( state.getRelationshipState( 2 ).addedProperties() ).value() );
+    }
+
+    @Test
+    public void shouldNotSpillShortStringValues() throws Exception
+    {
+        // given
+        TxState state = new TxState( 1, directory.directory() );
+        DefinedProperty property = stringProperty( 1, longString( 'a', MIN_SPILLED_STRING_LENGTH - 1 ) );
+
+        // when
+        state.nodeDoReplaceProperty( 0, noNodeProperty( 0, 1 ), property );
+
+        // then
+        assertSame( property, single( state.getNodeState( 0 ).addedProperties() ) );
+    }
+
+    @Test
+    public void shouldReleaseSpilledValuesWhenCleared() throws Exception
+    {
+        // given
+        TxState state = new TxState( 1, directory.directory() );
+        state.nodeDoReplaceProperty( 0, noNodeProperty( 0, 1 ), stringProperty( 1, longString( 'a', 1024 ) ) );
+        StorageProperty spilled = single( state.getNodeState( 0 ).addedProperties() );
+
+        // when
+        state.clear();
+
+        // then
+        assertFalse( state.hasChanges() );
+        try
+        {
+            spilled.value();
+            fail( "Should not be able to read spilled value after the state has been cleared" );
+        }
+        catch ( RuntimeException e )
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void shouldSpillAgainAfterBeingCleared() throws Exception
+    {
+        // given
+        TxState state = new TxState( 1, directory.directory() );
+        state.nodeDoReplaceProperty( 0, noNodeProperty( 0, 1 ), stringProperty( 1, longString( 'a', 1024 ) ) );
+        state.clear();
+        String value = longString( 'b', 1024 );
+        DefinedProperty property = stringProperty( 1, value );
+
+        // when
+        state.nodeDoReplaceProperty( 0, noNodeProperty( 0, 1 ), property );
+
+        // then
+        StorageProperty spilled = single( state.getNodeState( 0 ).addedProperties() );
+        assertNotSame( property, spilled );
+        assertEquals( value, spilled.value() );
+    }
+
+    @Test
+    public void shouldNotCountOverwrittenValuesTowardsThreshold() throws Exception
+    {
+        // given
+        TxState state = new TxState( 1024, directory.directory() );
+        DefinedProperty first = stringProperty( 1, longString( 'a', 512 ) );
+        state.nodeDoReplaceProperty( 0, noNodeProperty( 0, 1 ), first );
+
+        // when
+        DefinedProperty second = stringProperty( 1, longString( 'b', 512 ) );
+        state.nodeDoReplaceProperty( 0, first, second );
+        DefinedProperty third = stringProperty( 1, longString( 'c', 512 ) );
+        state.nodeDoReplaceProperty( 0, second, third );
+
+        // then
+        assertSame( third, single( state.getNodeState( 0 ).addedProperties() ) );
+    }
+
+    @Test
+    public void shouldNotCountRemovedOrDeletedValuesTowardsThreshold() throws Exception
+    {
+        // given
+        TxState state = new TxState( 1024, directory.directory() );
+        DefinedProperty removed = stringProperty( 1, longString( 'a', 512 ) );
+        state.nodeDoReplaceProperty( 0, noNodeProperty( 0, 1 ), removed );
+        state.nodeDoRemoveProperty( 0, removed );
+        state.relationshipDoReplaceProperty( 1, noRelationshipProperty( 1, 1 ),
+                stringProperty( 1, longString( 'b', 512 ) ) );
+        state.relationshipDoDelete( 1, 0, 2, 3 );
+
+        // when
+        DefinedProperty property = stringProperty( 1, longString( 'c', 512 ) );
+        state.nodeDoReplaceProperty( 4, noNodeProperty( 4, 1 ), property );
+
+        // then
+        assertSame( property, single( state.getNodeState( 4 ).addedProperties() ) );
+    }
+
+    private static StorageProperty single( Iterator<StorageProperty> properties )
+    {
+        assertTrue( properties.hasNext() );
+        StorageProperty property = properties.next();
+        assertFalse( properties.hasNext() );
+        return property;
+    }
+
+    private static String longString( char c, int length )
+    {
+        char[] chars = new char[length];
+        Arrays.fill( chars, c );
+        return new String( chars );
+    }
+}
@@ -1052,6 +1052,28 @@ public class TxStateTest
         assertTrue( state.relationshipIsAddedInThisTx( relId ) );
     }
 
+    @Test
+    public void shouldForgetAllChangesWhenCleared() throws Exception
+    {
+        // GIVEN
+        TxState state = new TxState();
+        state.nodeDoCreate( 1 );
+        state.nodeDoAddLabel( 2, 1 );
+        state.relationshipDoCreate( 10, 0, 1, 1 );
+        state.labelDoCreateForName( "Label", 2 );
+
+        // WHEN
+        state.clear();
+
+        // THEN
+        assertFalse( state.hasChanges() );
+        assertFalse( state.hasDataChanges() );
+        assertFalse( state.nodeIsAddedInThisTx( 1 ) );
+        assertFalse( state.relationshipIsAddedInThisTx( 10 ) );
+        assertTrue( state.nodeStateLabelDiffSets( 1 ).isEmpty() );
+        assertFalse( state.modifiedNodes().iterator().hasNext() );
+    }
+
     @Test
     public void shouldGiveCorrectDegreeWhenAddingAndRemovingRelationships() throws Exception
     {
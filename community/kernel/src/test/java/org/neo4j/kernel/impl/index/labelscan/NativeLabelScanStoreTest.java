@@ -0,0 +1,404 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.labelscan;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.neo4j.collection.primitive.PrimitiveLongCollections;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.helpers.collection.BoundedIterable;
+import org.neo4j.io.fs.DefaultFileSystemAbstraction;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.api.labelscan.LabelScanWriter;
+import org.neo4j.kernel.api.labelscan.NodeLabelRange;
+import org.neo4j.kernel.api.labelscan.NodeLabelUpdate;
+import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider.FullStoreChangeStream;
+import org.neo4j.kernel.lifecycle.LifeSupport;
+import org.neo4j.logging.NullLogProvider;
+import org.neo4j.storageengine.api.schema.LabelScanReader;
+import org.neo4j.test.rule.PageCacheRule;
+import org.neo4j.test.rule.RandomRule;
+import org.neo4j.test.rule.TestDirectory;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.neo4j.helpers.collection.Iterators.single;
+import static org.neo4j.kernel.api.labelscan.NodeLabelUpdate.labelChanges;
+
+public class NativeLabelScanStoreTest
+{
+    private static final long[] NO_LABELS = new long[0];
+
+    private final FileSystemAbstraction fs = new DefaultFileSystemAbstraction();
+    @Rule
+    public final TestDirectory directory = TestDirectory.testDirectory( getClass() );
+    @Rule
+    public final PageCacheRule pageCacheRule = new PageCacheRule();
+    @Rule
+    public final RandomRule random = new RandomRule();
+
+    private final TrackingMonitor monitor = new TrackingMonitor();
+    private PageCache pageCache;
+    private LifeSupport life;
+    private NativeLabelScanStore store;
+
+    @After
+    public void shutdown()
+    {
+        if ( life != null )
+        {
+            life.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldUpdateIndexOnAddedAndRemovedLabels() throws Exception
+    {
+        // given
+        int labelId1 = 1, labelId2 = 2;
+        long nodeId = 10;
+        start( Collections.emptyList() );
+        write( labelChanges( nodeId, NO_LABELS, new long[]{labelId1} ) );
+        write( labelChanges( nodeId, new long[]{labelId1}, new long[]{labelId1, labelId2} ) );
+        assertNodesForLabel( labelId1, nodeId );
+        assertNodesForLabel( labelId2, nodeId );
+
+        // when
+        write( labelChanges( nodeId, new long[]{labelId1, labelId2}, new long[]{labelId2} ) );
+
+        // then
+        assertNodesForLabel( labelId1 );
+        assertNodesForLabel( labelId2, nodeId );
+        assertLabelsForNode( nodeId, labelId2 );
+    }
+
+    @Test
+    public void shouldApplyAllUpdatesOfSameNodeInOrderWithinWriter() throws Exception
+    {
+        // given
+        start( Collections.emptyList() );
+
+        // when
+        try ( LabelScanWriter writer = store.newWriter() )
+        {
+            writer.write( labelChanges( 5, NO_LABELS, new long[]{1} ) );
+            writer.write( labelChanges( 5, new long[]{1}, NO_LABELS ) );
+            writer.write( labelChanges( 6, NO_LABELS, new long[]{1} ) );
+        }
+
+        // then
+        assertNodesForLabel( 1, 6 );
+    }
+
+    @Test
+    public void shouldScanNodeLabelRangesInNodeIdOrder() throws Exception
+    {
+        // given
+        int labelId1 = 1, labelId2 = 2;
+        long nodeId1 = 10, nodeId2 = 11, nodeId3 = 1280;
+        start( Arrays.asList(
+                labelChanges( nodeId1, NO_LABELS, new long[]{labelId1} ),
+                labelChanges( nodeId2, NO_LABELS, new long[]{labelId1, labelId2} ),
+                labelChanges( nodeId3, NO_LABELS, new long[]{labelId2} ) ) );
+
+        // when
+        try ( BoundedIterable<NodeLabelRange> reader = store.allNodeLabelRanges() )
+        {
+            Iterator<NodeLabelRange> ranges = reader.iterator();
+            NodeLabelRange range1 = ranges.next();
+            NodeLabelRange range2 = ranges.next();
+            assertFalse( ranges.hasNext() );
+
+            // then
+            assertArrayEquals( new long[]{nodeId1, nodeId2}, range1.nodes() );
+            assertArrayEquals( new long[]{labelId1}, range1.labels( nodeId1 ) );
+            assertArrayEquals( new long[]{labelId1, labelId2}, range1.labels( nodeId2 ) );
+            assertArrayEquals( new long[]{nodeId3}, range2.nodes() );
+            assertArrayEquals( new long[]{labelId2}, range2.labels( nodeId3 ) );
+        }
+    }
+
+    @Test
+    public void shouldRebuildFromFullStoreStreamIfNoStore() throws Exception
+    {
+        // when
+        start( Collections.singletonList( labelChanges( 3, NO_LABELS, new long[]{7} ) ) );
+
+        // then
+        assertTrue( monitor.noIndexCalled );
+        assertTrue( monitor.rebuiltCalled );
+        assertNodesForLabel( 7, 3 );
+    }
+
+    @Test
+    public void shouldKeepDataOverRestartWithoutRebuilding() throws Exception
+    {
+        // given
+        start( Collections.emptyList() );
+        write( labelChanges( 3, NO_LABELS, new long[]{7} ) );
+        life.shutdown();
+
+        // when
+        monitor.reset();
+        start( Collections.emptyList() );
+
+        // then
+        assertFalse( monitor.rebuildingCalled );
+        assertNodesForLabel( 7, 3 );
+    }
+
+    @Test
+    public void shouldRebuildIfStoreIsNotValid() throws Exception
+    {
+        // given
+        start( Collections.emptyList() );
+        life.shutdown();
+        File storeFile = NativeLabelScanStore.getLabelScanStoreFile( directory.graphDbDir() );
+        try ( OutputStream out = fs.openAsOutputStream( storeFile, false ) )
+        {
+            out.write( new byte[pageCache.pageSize()] );
+        }
+
+        // when
+        monitor.reset();
+        start( Collections.singletonList( labelChanges( 3, NO_LABELS, new long[]{7} ) ) );
+
+        // then
+        assertTrue( monitor.notValidIndexCalled );
+        assertTrue( monitor.rebuiltCalled );
+        assertNodesForLabel( 7, 3 );
+    }
+
+    @Test
+    public void shouldSnapshotStoreFile() throws Exception
+    {
+        // given
+        start( Collections.emptyList() );
+
+        // when
+        try ( ResourceIterator<File> files = store.snapshotStoreFiles() )
+        {
+            // then
+            assertEquals( NativeLabelScanStore.getLabelScanStoreFile( directory.graphDbDir() ), single( files ) );
+        }
+    }
+
+    @Test
+    public void shouldNotAllowWriterInReadOnlyMode() throws Exception
+    {
+        // given
+        start( Collections.emptyList() );
+        life.shutdown();
+        startReadOnly();
+
+        try
+        {
+            // when
+            store.newWriter();
+            fail( "Should have failed" );
+        }
+        catch ( UnsupportedOperationException e )
+        {
+            // then good
+        }
+    }
+
+    @Test
+    public void shouldMatchModelOnRandomUpdates() throws Exception
+    {
+        // given
+        start( Collections.emptyList() );
+        int labelCount = 5;
+        int nodeCount = 2_000;
+        Map<Long,long[]> model = new TreeMap<>();
+
+        for ( int round = 0; round < 10; round++ )
+        {
+            // when
+            try ( LabelScanWriter writer = store.newWriter() )
+            {
+                for ( long nodeId = 0; nodeId < nodeCount; nodeId++ )
+                {
+                    if ( random.nextInt( 3 ) == 0 )
+                    {
+                        long[] before = model.getOrDefault( nodeId, NO_LABELS );
+                        long[] after = randomLabels( labelCount );
+                        writer.write( labelChanges( nodeId, before, after ) );
+                        model.put( nodeId, after );
+                    }
+                }
+            }
+
+            // then
+            for ( int labelId = 0; labelId < labelCount; labelId++ )
+            {
+                List<Long> expected = new ArrayList<>();
+                for ( Map.Entry<Long,long[]> entry : model.entrySet() )
+                {
+                    if ( Arrays.binarySearch( entry.getValue(), labelId ) >= 0 )
+                    {
+                        expected.add( entry.getKey() );
+                    }
+                }
+                try ( LabelScanReader reader = store.newReader() )
+                {
+                    assertEquals( expected, PrimitiveLongCollections.asList( reader.nodesWithLabel( labelId ) ) );
+                }
+            }
+            long nodeId = random.nextInt( nodeCount );
+            assertLabelsForNode( nodeId, model.getOrDefault( nodeId, NO_LABELS ) );
+        }
+    }
+
+    private long[] randomLabels( int labelCount )
+    {
+        TreeSet<Long> labels = new TreeSet<>();
+        int count = random.nextInt( labelCount );
+        for ( int i = 0; i < count; i++ )
+        {
+            labels.add( (long) random.nextInt( labelCount ) );
+        }
+        long[] result = new long[labels.size()];
+        int i = 0;
+        for ( long label : labels )
+        {
+            result[i++] = label;
+        }
+        return result;
+    }
+
+    private void write( NodeLabelUpdate update ) throws Exception
+    {
+        try ( LabelScanWriter writer = store.newWriter() )
+        {
+            writer.write( update );
+        }
+    }
+
+    private void assertNodesForLabel( int labelId, long... expectedNodeIds )
+    {
+        try ( LabelScanReader reader = store.newReader() )
+        {
+            assertArrayEquals( expectedNodeIds, PrimitiveLongCollections.asArray( reader.nodesWithLabel( labelId ) ) );
+        }
+    }
+
+    private void assertLabelsForNode( long nodeId, long... expectedLabelIds )
+    {
+        try ( LabelScanReader reader = store.newReader() )
+        {
+            assertArrayEquals( expectedLabelIds, PrimitiveLongCollections.asArray( reader.labelsForNode( nodeId ) ) );
+        }
+    }
+
+    private void start( List<NodeLabelUpdate> existingData )
+    {
+        start( existingData, false );
+    }
+
+    private void startReadOnly()
+    {
+        start( Collections.emptyList(), true );
+    }
+
+    private void start( List<NodeLabelUpdate> existingData, boolean readOnly )
+    {
+        if ( pageCache == null )
+        {
+            pageCache = pageCacheRule.getPageCache( fs );
+        }
+        life = new LifeSupport();
+        store = life.add( new NativeLabelScanStore( pageCache, fs, directory.graphDbDir(), asStream( existingData ),
+                readOnly, NullLogProvider.getInstance(), monitor ) );
+        life.start();
+        assertTrue( monitor.initCalled );
+    }
+
+    private static FullStoreChangeStream asStream( List<NodeLabelUpdate> existingData )
+    {
+        return writer ->
+        {
+            long count = 0;
+            for ( NodeLabelUpdate update : existingData )
+            {
+                writer.write( update );
+                count++;
+            }
+            return count;
+        };
+    }
+
+    private static class TrackingMonitor implements NativeLabelScanStore.Monitor
+    {
+        boolean initCalled, noIndexCalled, notValidIndexCalled, rebuildingCalled, rebuiltCalled;
+
+        @Override
+        public void init()
+        {
+            initCalled = true;
+        }
+
+        @Override
+        public void noIndex()
+        {
+            noIndexCalled = true;
+        }
+
+        @Override
+        public void notValidIndex()
+        {
+            notValidIndexCalled = true;
+        }
+
+        @Override
+        public void rebuilding()
+        {
+            rebuildingCalled = true;
+        }
+
+        @Override
+        public void rebuilt( long roughNodeCount )
+        {
+            rebuiltCalled = true;
+        }
+
+        void reset()
+        {
+            initCalled = noIndexCalled = notValidIndexCalled = rebuildingCalled = rebuiltCalled = false;
+        }
+    }
+}
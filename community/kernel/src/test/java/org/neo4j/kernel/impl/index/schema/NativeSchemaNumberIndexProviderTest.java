@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.index.schema;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import org.neo4j.io.fs.DefaultFileSystemAbstraction;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.kernel.api.exceptions.index.IndexEntryConflictException;
+import org.neo4j.kernel.api.index.IndexAccessor;
+import org.neo4j.kernel.api.index.IndexConfiguration;
+import org.neo4j.kernel.api.index.IndexDescriptor;
+import org.neo4j.kernel.api.index.IndexPopulator;
+import org.neo4j.kernel.api.index.IndexUpdater;
+import org.neo4j.kernel.api.index.InternalIndexState;
+import org.neo4j.kernel.api.index.NodePropertyUpdate;
+import org.neo4j.kernel.api.properties.Property;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.api.index.IndexUpdateMode;
+import org.neo4j.kernel.impl.api.index.sampling.IndexSamplingConfig;
+import org.neo4j.logging.NullLogProvider;
+import org.neo4j.storageengine.api.schema.IndexReader;
+import org.neo4j.test.rule.PageCacheRule;
+import org.neo4j.test.rule.TestDirectory;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.neo4j.collection.primitive.PrimitiveLongCollections.asArray;
+
+public class NativeSchemaNumberIndexProviderTest
+{
+    private static final int LABEL_ID = 1;
+    private static final int PROPERTY_KEY_ID = 2;
+    private static final long INDEX_ID = 10;
+
+    private final FileSystemAbstraction fs = new DefaultFileSystemAbstraction();
+    @Rule
+    public final TestDirectory directory = TestDirectory.testDirectory( getClass() );
+    @Rule
+    public final PageCacheRule pageCacheRule = new PageCacheRule();
+
+    private final IndexDescriptor descriptor = new IndexDescriptor( LABEL_ID, PROPERTY_KEY_ID );
+    private final IndexSamplingConfig samplingConfig = new IndexSamplingConfig( Config.empty() );
+
+    @Test
+    public void shouldReportPopulatingForIndexWhichDoesNotExist() throws Exception
+    {
+        // given
+        NativeSchemaNumberIndexProvider provider = newProvider();
+
+        // when
+        InternalIndexState state = provider.getInitialState( INDEX_ID );
+
+        // then
+        assertEquals( InternalIndexState.POPULATING, state );
+    }
+
+    @Test
+    public void shouldSeekPopulatedAndUpdatedNumbers() throws Exception
+    {
+        // given
+        NativeSchemaNumberIndexProvider provider = newProvider();
+        IndexPopulator populator = provider.getPopulator( INDEX_ID, descriptor, IndexConfiguration.NON_UNIQUE,
+                samplingConfig );
+        populator.create();
+        populator.add( asList( add( 1, 10 ), add( 2, 5.5 ), add( 3, -3 ), add( 4, 10L ) ) );
+        populator.close( true );
+        assertEquals( InternalIndexState.ONLINE, provider.getInitialState( INDEX_ID ) );
+
+        try ( IndexAccessor accessor = provider.getOnlineAccessor( INDEX_ID, IndexConfiguration.NON_UNIQUE,
+                samplingConfig ) )
+        {
+            // when
+            try ( IndexUpdater updater = accessor.newUpdater( IndexUpdateMode.ONLINE ) )
+            {
+                updater.process( NodePropertyUpdate.change( 3, PROPERTY_KEY_ID, -3, new long[]{LABEL_ID},
+                        7, new long[]{LABEL_ID} ) );
+                updater.process( NodePropertyUpdate.remove( 2, PROPERTY_KEY_ID, 5.5, new long[]{LABEL_ID} ) );
+                updater.process( add( 5, 100 ) );
+            }
+
+            // then
+            try ( IndexReader reader = accessor.newReader() )
+            {
+                assertArrayEquals( new long[]{1, 4}, sorted( asArray( reader.seek( 10 ) ) ) );
+                assertArrayEquals( new long[]{3, 1, 4}, asArray( reader.rangeSeekByNumberInclusive( 0, 10 ) ) );
+                assertArrayEquals( new long[]{3, 1, 4, 5}, asArray( reader.rangeSeekByNumberInclusive( null, null ) ) );
+                assertArrayEquals( new long[0], asArray( reader.seek( 5.5 ) ) );
+                assertArrayEquals( new long[0], asArray( reader.seek( "10" ) ) );
+                assertArrayEquals( new long[]{1, 3, 4, 5}, sorted( asArray( reader.scan() ) ) );
+                assertEquals( 1, reader.countIndexedNodes( 1, 10 ) );
+                assertEquals( 0, reader.countIndexedNodes( 2, 10 ) );
+            }
+        }
+    }
+
+    @Test
+    public void shouldStorePopulationFailure() throws Exception
+    {
+        // given
+        NativeSchemaNumberIndexProvider provider = newProvider();
+        IndexPopulator populator = provider.getPopulator( INDEX_ID, descriptor, IndexConfiguration.NON_UNIQUE,
+                samplingConfig );
+        populator.create();
+
+        // when
+        populator.markAsFailed( "Oh no" );
+        populator.close( false );
+
+        // then
+        assertEquals( InternalIndexState.FAILED, provider.getInitialState( INDEX_ID ) );
+        assertEquals( "Oh no", provider.getPopulationFailure( INDEX_ID ) );
+    }
+
+    @Test
+    public void shouldDetectDuplicatesInUniqueIndex() throws Exception
+    {
+        // given
+        NativeSchemaNumberIndexProvider provider = newProvider();
+        IndexPopulator populator = provider.getPopulator( INDEX_ID, descriptor, IndexConfiguration.UNIQUE,
+                samplingConfig );
+        populator.create();
+        populator.add( asList( add( 1, 10 ), add( 2, 20 ), add( 3, 10.0d ) ) );
+
+        try
+        {
+            // when
+            populator.verifyDeferredConstraints( ( nodeId, propertyKeyId ) ->
+                    Property.property( propertyKeyId, nodeId == 2 ? 20 : 10 ) );
+            fail( "Should have failed" );
+        }
+        catch ( IndexEntryConflictException e )
+        {
+            // then good
+        }
+        finally
+        {
+            populator.close( false );
+        }
+    }
+
+    private NativeSchemaNumberIndexProvider newProvider()
+    {
+        return new NativeSchemaNumberIndexProvider( pageCacheRule.getPageCache( fs ), fs, directory.directory(),
+                NullLogProvider.getInstance() );
+    }
+
+    private static NodePropertyUpdate add( long nodeId, Object value )
+    {
+        return NodePropertyUpdate.add( nodeId, PROPERTY_KEY_ID, value, new long[]{LABEL_ID} );
+    }
+
+    private static long[] sorted( long[] ids )
+    {
+        Arrays.sort( ids );
+        return ids;
+    }
+}
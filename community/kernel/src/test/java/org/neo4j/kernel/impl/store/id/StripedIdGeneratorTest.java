@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.store.id;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.kernel.impl.store.id.validation.IdValidator;
+import org.neo4j.test.rule.fs.EphemeralFileSystemRule;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StripedIdGeneratorTest
+{
+    private static final long MAX_ID = Long.MAX_VALUE >> 8;
+
+    @Rule
+    public final EphemeralFileSystemRule fsr = new EphemeralFileSystemRule();
+    private final File file = new File( "ids" );
+
+    @Test
+    public void shouldHandOutUniqueIdsToConcurrentThreads() throws Exception
+    {
+        // GIVEN
+        StripedIdGenerator idGenerator = open( 10, false, 0 );
+        int threads = 8;
+        int idsPerThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+
+        // WHEN
+        Future<?>[] futures = new Future<?>[threads];
+        long[][] ids = new long[threads][idsPerThread];
+        for ( int t = 0; t < threads; t++ )
+        {
+            long[] threadIds = ids[t];
+            futures[t] = executor.submit( () ->
+            {
+                for ( int i = 0; i < idsPerThread; i++ )
+                {
+                    threadIds[i] = idGenerator.nextId();
+                }
+            } );
+        }
+        for ( Future<?> future : futures )
+        {
+            future.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination( 1, TimeUnit.MINUTES );
+
+        // THEN
+        Set<Long> seen = new HashSet<>();
+        for ( long[] threadIds : ids )
+        {
+            for ( long id : threadIds )
+            {
+                assertTrue( "Id " + id + " handed out twice", seen.add( id ) );
+                assertTrue( id < idGenerator.getHighId() );
+            }
+        }
+        idGenerator.close();
+    }
+
+    @Test
+    public void shouldNotLeaveCachedIdsBehindForThreadsThatAreGone() throws Exception
+    {
+        // GIVEN
+        IdGeneratorImpl.createGenerator( fsr.get(), file, 0, false );
+        int cacheSize = 10;
+        int stripes = 2;
+        StripedIdGenerator idGenerator = new StripedIdGenerator(
+                new IdGeneratorImpl( fsr.get(), file, 10, MAX_ID, false, 0 ), cacheSize, false, stripes );
+
+        // WHEN
+        int threads = 50;
+        for ( int t = 0; t < threads; t++ )
+        {
+            Thread thread = new Thread( idGenerator::nextId );
+            thread.start();
+            thread.join();
+        }
+
+        // THEN every stripe has at most one partially used chunk, regardless of how many threads came and went
+        assertTrue( idGenerator.getHighId() <= threads + stripes * cacheSize );
+        idGenerator.close();
+    }
+
+    @Test
+    public void shouldNotHandOutReservedId() throws Exception
+    {
+        // GIVEN
+        StripedIdGenerator idGenerator = open( 4, false, IdGeneratorImpl.INTEGER_MINUS_ONE - 2 );
+
+        // WHEN/THEN
+        for ( int i = 0; i < 8; i++ )
+        {
+            assertFalse( IdValidator.isReservedId( idGenerator.nextId() ) );
+        }
+        idGenerator.close();
+    }
+
+    @Test
+    public void shouldReuseFreedIdsInSameSessionWithAggressiveReuse() throws Exception
+    {
+        // GIVEN
+        StripedIdGenerator idGenerator = open( 4, true, 0 );
+        for ( int i = 0; i < 8; i++ )
+        {
+            idGenerator.nextId();
+        }
+
+        // WHEN
+        idGenerator.freeId( 1 );
+        idGenerator.freeId( 2 );
+        idGenerator.freeId( 3 );
+        idGenerator.freeId( 5 );
+
+        // THEN
+        Set<Long> reused = new HashSet<>();
+        for ( int i = 0; i < 4; i++ )
+        {
+            reused.add( idGenerator.nextId() );
+        }
+        assertEquals( new HashSet<>( asList( 1L, 2L, 3L, 5L ) ), reused );
+        assertEquals( 8, idGenerator.nextId() );
+        idGenerator.close();
+    }
+
+    @Test
+    public void shouldOnlyReuseFreedIdsAfterRestartWithoutAggressiveReuse() throws Exception
+    {
+        // GIVEN
+        StripedIdGenerator idGenerator = open( 2, false, 0 );
+        for ( int i = 0; i < 4; i++ )
+        {
+            idGenerator.nextId();
+        }
+
+        // WHEN
+        idGenerator.freeId( 0 );
+        idGenerator.freeId( 3 );
+        assertEquals( 4, idGenerator.nextId() );
+        idGenerator.close();
+
+        // THEN
+        idGenerator = new StripedIdGenerator( new IdGeneratorImpl( fsr.get(), file, 10, MAX_ID, false, 0 ), 2,
+                false );
+        Set<Long> reused = new HashSet<>();
+        for ( int i = 0; i < 3; i++ )
+        {
+            reused.add( idGenerator.nextId() );
+        }
+        // 5 was cached, but never handed out, before closing
+        assertEquals( new HashSet<>( asList( 0L, 3L, 5L ) ), reused );
+        assertEquals( 6, idGenerator.nextId() );
+        idGenerator.close();
+    }
+
+    @Test
+    public void shouldDropCachedIdsWhenHighIdIsSet() throws Exception
+    {
+        // GIVEN
+        StripedIdGenerator idGenerator = open( 10, false, 0 );
+        assertEquals( 0, idGenerator.nextId() );
+
+        // WHEN
+        idGenerator.setHighId( 100 );
+
+        // THEN
+        assertEquals( 100, idGenerator.nextId() );
+        idGenerator.close();
+    }
+
+    @Test
+    public void shouldHandOutDefraggedAndNewIdsInBatch() throws Exception
+    {
+        // GIVEN
+        StripedIdGenerator idGenerator = open( 4, true, 0 );
+        assertEquals( 0, idGenerator.nextId() );
+        assertEquals( 1, idGenerator.nextId() );
+        idGenerator.close();
+        idGenerator = new StripedIdGenerator( new IdGeneratorImpl( fsr.get(), file, 10, MAX_ID, true, 0 ), 4, true );
+
+        // WHEN
+        IdRange range = idGenerator.nextIdBatch( 5 );
+
+        // THEN
+        Set<Long> defragIds = new HashSet<>();
+        for ( long id : range.getDefragIds() )
+        {
+            defragIds.add( id );
+        }
+        assertEquals( new HashSet<>( asList( 2L, 3L ) ), defragIds );
+        assertEquals( 4, range.getRangeStart() );
+        assertEquals( 3, range.getRangeLength() );
+        assertEquals( 7, idGenerator.getHighId() );
+        idGenerator.close();
+    }
+
+    private StripedIdGenerator open( int cacheSize, boolean aggressiveReuse, long highId )
+    {
+        IdGeneratorImpl.createGenerator( fsr.get(), file, highId, false );
+        return new StripedIdGenerator( new IdGeneratorImpl( fsr.get(), file, 10, MAX_ID, aggressiveReuse, highId ),
+                cacheSize, aggressiveReuse );
+    }
+}
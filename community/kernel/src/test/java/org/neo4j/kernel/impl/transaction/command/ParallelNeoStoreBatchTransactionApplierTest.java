@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.command;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongSet;
+import org.neo4j.kernel.impl.api.BatchTransactionApplier;
+import org.neo4j.kernel.impl.api.TransactionApplier;
+import org.neo4j.kernel.impl.api.TransactionToApply;
+import org.neo4j.kernel.impl.core.CacheAccessBackDoor;
+import org.neo4j.kernel.impl.locking.LockGroup;
+import org.neo4j.kernel.impl.locking.ReentrantLockService;
+import org.neo4j.kernel.impl.store.NeoStores;
+import org.neo4j.kernel.impl.store.NodeStore;
+import org.neo4j.kernel.impl.store.PropertyType;
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.kernel.impl.transaction.command.Command.NodeCommand;
+import org.neo4j.kernel.impl.transaction.command.ParallelNeoStoreBatchTransactionApplier.TouchedRecords;
+import org.neo4j.test.rule.NeoStoresRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.neo4j.kernel.impl.store.record.Record.NO_LABELS_FIELD;
+import static org.neo4j.kernel.impl.store.record.Record.NO_NEXT_PROPERTY;
+import static org.neo4j.kernel.impl.store.record.RecordLoad.NORMAL;
+import static org.neo4j.kernel.impl.transaction.command.Commands.createLabelToken;
+import static org.neo4j.kernel.impl.transaction.command.Commands.createNode;
+import static org.neo4j.kernel.impl.transaction.command.Commands.createProperty;
+import static org.neo4j.kernel.impl.transaction.command.Commands.createRelationship;
+import static org.neo4j.kernel.impl.transaction.command.Commands.transactionRepresentation;
+import static org.neo4j.kernel.impl.transaction.log.TransactionIdStore.BASE_TX_ID;
+
+public class ParallelNeoStoreBatchTransactionApplierTest
+{
+    @Rule
+    public final NeoStoresRule neoStoresRule = new NeoStoresRule( getClass() );
+
+    @Test
+    public void shouldApplyChangesToSameRecordInLogOrder() throws Exception
+    {
+        // GIVEN
+        NeoStores neoStores = neoStoresRule.open();
+        int nodes = 10;
+        int transactions = 1_000;
+        TransactionToApply first = null;
+        TransactionToApply last = null;
+        for ( int i = 0; i < transactions; i++ )
+        {
+            long nodeId = i % nodes;
+            NodeRecord after = new NodeRecord( nodeId ).initialize( true, NO_NEXT_PROPERTY.intValue(), false, i,
+                    NO_LABELS_FIELD.intValue() );
+            TransactionToApply tx = new TransactionToApply( transactionRepresentation(
+                    new NodeCommand( new NodeRecord( nodeId ), after ) ), BASE_TX_ID + 1 + i );
+            if ( first == null )
+            {
+                first = tx;
+            }
+            else
+            {
+                last.next( tx );
+            }
+            last = tx;
+        }
+
+        // WHEN
+        apply( neoStores, first, 4 );
+
+        // THEN
+        NodeStore nodeStore = neoStores.getNodeStore();
+        for ( int nodeId = 0; nodeId < nodes; nodeId++ )
+        {
+            NodeRecord record = nodeStore.getRecord( nodeId, nodeStore.newRecord(), NORMAL );
+            assertEquals( transactions - nodes + nodeId, record.getNextRel() );
+        }
+    }
+
+    @Test
+    public void shouldApplyCommandsNotTiedToRecordsInBetweenOtherTransactions() throws Exception
+    {
+        // GIVEN
+        NeoStores neoStores = neoStoresRule.open();
+        TransactionToApply before = new TransactionToApply( transactionRepresentation( createNode( 1 ) ),
+                BASE_TX_ID + 1 );
+        TransactionToApply token = new TransactionToApply( transactionRepresentation( createLabelToken( 0, 0 ) ),
+                BASE_TX_ID + 2 );
+        TransactionToApply after = new TransactionToApply( transactionRepresentation( createNode( 2 ) ),
+                BASE_TX_ID + 3 );
+        before.next( token );
+        token.next( after );
+
+        // WHEN
+        apply( neoStores, before, 2 );
+
+        // THEN
+        NodeStore nodeStore = neoStores.getNodeStore();
+        assertTrue( nodeStore.getRecord( 1, nodeStore.newRecord(), NORMAL ).inUse() );
+        assertTrue( nodeStore.getRecord( 2, nodeStore.newRecord(), NORMAL ).inUse() );
+        assertTrue( neoStores.getLabelTokenStore().getRecord( 0,
+                neoStores.getLabelTokenStore().newRecord(), NORMAL ).inUse() );
+    }
+
+    @Test
+    public void shouldConsiderSharedDynamicRecordsAsConflicts() throws Exception
+    {
+        // GIVEN
+        PrimitiveLongSet wave = Primitive.longSet();
+        TouchedRecords first = touchedRecords( createProperty( 1, PropertyType.STRING, 0, 5, 6 ) );
+        first.addTo( wave );
+
+        // WHEN
+        TouchedRecords sharingValueRecord = touchedRecords( createProperty( 2, PropertyType.STRING, 0, 6, 7 ) );
+        TouchedRecords otherProperty = touchedRecords( createProperty( 2, PropertyType.STRING, 0, 7, 8 ) );
+        TouchedRecords sameIdOtherStore = touchedRecords( createRelationship( 1, 10, 11, 0 ) );
+
+        // THEN
+        assertTrue( sharingValueRecord.conflictsWith( wave ) );
+        assertFalse( otherProperty.conflictsWith( wave ) );
+        assertFalse( sameIdOtherStore.conflictsWith( wave ) );
+    }
+
+    @Test
+    public void shouldReuseExecutorOwnedByCallerForConsecutiveBatches() throws Exception
+    {
+        // GIVEN
+        NeoStores neoStores = neoStoresRule.open();
+        ExecutorService executor = Executors.newFixedThreadPool( 2 );
+        try
+        {
+            // WHEN
+            apply( neoStores, new TransactionToApply( transactionRepresentation( createNode( 1 ) ),
+                    BASE_TX_ID + 1 ), executor );
+            apply( neoStores, new TransactionToApply( transactionRepresentation( createNode( 2 ) ),
+                    BASE_TX_ID + 2 ), executor );
+
+            // THEN
+            assertFalse( executor.isShutdown() );
+            NodeStore nodeStore = neoStores.getNodeStore();
+            assertTrue( nodeStore.getRecord( 1, nodeStore.newRecord(), NORMAL ).inUse() );
+            assertTrue( nodeStore.getRecord( 2, nodeStore.newRecord(), NORMAL ).inUse() );
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private static TouchedRecords touchedRecords( Command command ) throws Exception
+    {
+        TouchedRecords records = new TouchedRecords();
+        command.handle( records );
+        return records;
+    }
+
+    private static void apply( NeoStores neoStores, TransactionToApply batch, int parallelism ) throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool( parallelism );
+        try
+        {
+            apply( neoStores, batch, executor );
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private static void apply( NeoStores neoStores, TransactionToApply batch, ExecutorService executor )
+            throws Exception
+    {
+        try ( BatchTransactionApplier applier = new ParallelNeoStoreBatchTransactionApplier( neoStores,
+                mock( CacheAccessBackDoor.class ), new ReentrantLockService(), executor ) )
+        {
+            while ( batch != null )
+            {
+                try ( LockGroup locks = new LockGroup();
+                      TransactionApplier txApplier = applier.startTx( batch, locks ) )
+                {
+                    batch.accept( txApplier );
+                }
+                batch = batch.next();
+            }
+        }
+    }
+}
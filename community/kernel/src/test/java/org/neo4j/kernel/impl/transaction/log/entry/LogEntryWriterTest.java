@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log.entry;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.neo4j.kernel.impl.store.record.DynamicRecord;
+import org.neo4j.kernel.impl.store.record.LabelTokenRecord;
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.kernel.impl.transaction.command.Command;
+import org.neo4j.kernel.impl.transaction.log.InMemoryClosableChannel;
+import org.neo4j.kernel.impl.transaction.log.LogEntryCursor;
+import org.neo4j.storageengine.api.StorageCommand;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LogEntryWriterTest
+{
+    @Test
+    public void shouldWriteCommandsAsCompressedBlockAndReadThemBack() throws Exception
+    {
+        // given
+        List<StorageCommand> commands = nodeCommands( 100 );
+        InMemoryClosableChannel uncompressed = new InMemoryClosableChannel( 100_000 );
+        InMemoryClosableChannel compressed = new InMemoryClosableChannel( 100_000 );
+
+        // when
+        writeTransaction( new LogEntryWriter( uncompressed ), commands );
+        writeTransaction( new LogEntryWriter( compressed, true ), commands );
+
+        // then
+        assertTrue( compressed.writerPosition() < uncompressed.writerPosition() );
+        assertTransaction( compressed, commands );
+        assertTransaction( uncompressed, commands );
+    }
+
+    @Test
+    public void shouldReadCompressedCommandsAsOneEntry() throws Exception
+    {
+        // given
+        List<StorageCommand> commands = nodeCommands( 100 );
+        InMemoryClosableChannel channel = new InMemoryClosableChannel( 100_000 );
+        new LogEntryWriter( channel, true ).serialize( commands );
+
+        // when
+        LogEntry entry = new VersionAwareLogEntryReader<>().readLogEntry( channel );
+
+        // then
+        assertEquals( LogEntryByteCodes.COMPRESSED_COMMANDS, entry.getType() );
+        assertEquals( LogEntryVersion.V3_1, entry.getVersion() );
+        List<LogEntryCommand> entries = entry.<LogEntryCompressedCommands>as().getCommands();
+        assertEquals( commands.size(), entries.size() );
+        for ( int i = 0; i < commands.size(); i++ )
+        {
+            assertEquals( commands.get( i ), entries.get( i ).getXaCommand() );
+        }
+    }
+
+    @Test
+    public void shouldWriteSmallTransactionUncompressed() throws Exception
+    {
+        // given
+        List<StorageCommand> commands = nodeCommands( 1 );
+        InMemoryClosableChannel channel = new InMemoryClosableChannel();
+        new LogEntryWriter( channel, true ).serialize( commands );
+
+        // when
+        LogEntry entry = new VersionAwareLogEntryReader<>().readLogEntry( channel );
+
+        // then
+        assertEquals( new LogEntryCommand( commands.get( 0 ) ), entry );
+        assertEquals( LogEntryVersion.CURRENT, entry.getVersion() );
+    }
+
+    @Test
+    public void shouldWriteIncompressibleCommandsUncompressed() throws Exception
+    {
+        // given
+        List<StorageCommand> commands = new ArrayList<>();
+        commands.add( labelTokenCommandWithRandomName( 4096 ) );
+        InMemoryClosableChannel channel = new InMemoryClosableChannel( 100_000 );
+
+        // when
+        writeTransaction( new LogEntryWriter( channel, true ), commands );
+
+        // then
+        assertTransaction( channel, commands );
+    }
+
+    @Test
+    public void shouldReuseWriterForConsecutiveTransactions() throws Exception
+    {
+        // given
+        List<StorageCommand> large = nodeCommands( 100 );
+        List<StorageCommand> incompressible = new ArrayList<>();
+        incompressible.add( labelTokenCommandWithRandomName( 2048 ) );
+        List<StorageCommand> small = nodeCommands( 1 );
+        InMemoryClosableChannel channel = new InMemoryClosableChannel( 100_000 );
+
+        // when
+        try ( LogEntryWriter writer = new LogEntryWriter( channel, true ) )
+        {
+            writeTransaction( writer, large );
+            writeTransaction( writer, incompressible );
+            writeTransaction( writer, small );
+            writeTransaction( writer, large );
+        }
+
+        // then
+        LogEntryCursor cursor = new LogEntryCursor( new VersionAwareLogEntryReader<>(), channel );
+        assertNextTransaction( cursor, large );
+        assertNextTransaction( cursor, incompressible );
+        assertNextTransaction( cursor, small );
+        assertNextTransaction( cursor, large );
+        assertFalse( cursor.next() );
+    }
+
+    @Test
+    public void shouldNotBufferCommandsLargerThanTheLimit() throws Exception
+    {
+        // given
+        try ( CommandCompressor compressor = new CommandCompressor( 1024 ) )
+        {
+            // when
+            CommandCompressor.SerializedCommands large = compressor.compress( nodeCommands( 100 ) );
+            CommandCompressor.SerializedCommands small = compressor.compress( nodeCommands( 1 ) );
+
+            // then
+            assertNull( large );
+            assertNotNull( small );
+        }
+    }
+
+    @Test
+    public void shouldWriteCommandsCompressedAheadOfTime() throws Exception
+    {
+        // given
+        List<StorageCommand> large = nodeCommands( 100 );
+        List<StorageCommand> incompressible = new ArrayList<>();
+        incompressible.add( labelTokenCommandWithRandomName( 2048 ) );
+        incompressible.add( nodeCommands( 1 ).get( 0 ) );
+        InMemoryClosableChannel channel = new InMemoryClosableChannel( 100_000 );
+        LogEntryWriter writer = new LogEntryWriter( channel );
+
+        // when
+        try ( CommandCompressor compressor = new CommandCompressor() )
+        {
+            CommandCompressor.SerializedCommands compressed = compressor.compress( large );
+            CommandCompressor.SerializedCommands uncompressed = compressor.compress( incompressible );
+            assertTrue( compressed.isCompressed() );
+            assertFalse( uncompressed.isCompressed() );
+            writer.writeStartEntry( 1, 2, 3, 4, new byte[0] );
+            writer.writeSerializedCommands( compressed );
+            writer.writeCommitEntry( 5, 6 );
+            writer.writeStartEntry( 1, 2, 3, 4, new byte[0] );
+            writer.writeSerializedCommands( uncompressed );
+            writer.writeCommitEntry( 5, 6 );
+        }
+
+        // then
+        LogEntryCursor cursor = new LogEntryCursor( new VersionAwareLogEntryReader<>(), channel );
+        assertNextTransaction( cursor, large );
+        assertNextTransaction( cursor, incompressible );
+        assertFalse( cursor.next() );
+    }
+
+    private static StorageCommand labelTokenCommandWithRandomName( int nameLength )
+    {
+        byte[] name = new byte[nameLength];
+        new Random( 42 ).nextBytes( name );
+        DynamicRecord nameRecord = new DynamicRecord( 1 );
+        nameRecord.setInUse( true );
+        nameRecord.setData( name );
+        LabelTokenRecord after = new LabelTokenRecord( 1 ).initialize( true, 1 );
+        after.addNameRecord( nameRecord );
+        after.setCreated();
+        return new Command.LabelTokenCommand( new LabelTokenRecord( 1 ), after );
+    }
+
+    private static List<StorageCommand> nodeCommands( int count )
+    {
+        List<StorageCommand> commands = new ArrayList<>();
+        for ( int i = 0; i < count; i++ )
+        {
+            NodeRecord before = new NodeRecord( i );
+            NodeRecord after = new NodeRecord( i ).initialize( true, i * 3, false, i * 2, 0 );
+            after.setCreated();
+            commands.add( new Command.NodeCommand( before, after ) );
+        }
+        return commands;
+    }
+
+    private static void writeTransaction( LogEntryWriter writer, List<StorageCommand> commands ) throws IOException
+    {
+        writer.writeStartEntry( 1, 2, 3, 4, new byte[0] );
+        writer.serialize( commands );
+        writer.writeCommitEntry( 5, 6 );
+    }
+
+    private static void assertTransaction( InMemoryClosableChannel channel, List<StorageCommand> commands )
+            throws IOException
+    {
+        LogEntryCursor cursor = new LogEntryCursor( new VersionAwareLogEntryReader<>(), channel );
+        assertNextTransaction( cursor, commands );
+        assertFalse( cursor.next() );
+    }
+
+    private static void assertNextTransaction( LogEntryCursor cursor, List<StorageCommand> commands )
+            throws IOException
+    {
+        assertTrue( cursor.next() );
+        assertTrue( cursor.get() instanceof LogEntryStart );
+        for ( StorageCommand command : commands )
+        {
+            assertTrue( cursor.next() );
+            assertEquals( new LogEntryCommand( command ), cursor.get() );
+        }
+        assertTrue( cursor.next() );
+        assertTrue( cursor.get() instanceof LogEntryCommit );
+    }
+}
@@ -21,6 +21,8 @@ package org.neo4j.kernel.impl.transaction.state;
 
 import org.junit.Test;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
 import org.neo4j.kernel.impl.api.index.StoreScan;
@@ -31,7 +33,9 @@ import org.neo4j.kernel.impl.store.record.RecordLoad;
 import org.neo4j.storageengine.api.schema.PopulationProgress;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.RETURNS_MOCKS;
@@ -78,6 +82,44 @@ public class NodeStoreScanTest
         scan.run();
     }
 
+    @Test
+    public void shouldVisitEveryNodeOnceWhenScanningRangesConcurrently() throws Throwable
+    {
+        // given
+        final int total = 1000;
+        when( nodeStore.getHighId() ).thenReturn( (long) total );
+        when( nodeStore.newRecord() ).thenAnswer( invocation -> new NodeRecord( -1 ) );
+        when( nodeStore.getRecord( anyLong(), any( NodeRecord.class ), any( RecordLoad.class ) ) ).thenAnswer(
+                invocation -> {
+                    NodeRecord record = (NodeRecord) invocation.getArguments()[1];
+                    record.setId( (Long) invocation.getArguments()[0] );
+                    record.setInUse( true );
+                    return record;
+                } );
+        Set<Long> visited = ConcurrentHashMap.newKeySet();
+
+        final NeoStoreIndexStoreView.NodeStoreScan<RuntimeException> scan =
+                new NeoStoreIndexStoreView.NodeStoreScan<RuntimeException>( nodeStore, locks, total, 4 )
+        {
+            @Override
+            protected void process( NodeRecord node )
+            {
+                assertFalse( "Node " + node.getId() + " visited twice", visited.contains( node.getId() ) );
+                assertTrue( isVisited( node.getId() - 1, node.getId() ) || node.getId() % (total / 4) == 0 );
+                assertFalse( isVisited( node.getId(), node.getId() ) );
+                visited.add( node.getId() );
+            }
+        };
+
+        // when
+        scan.run();
+
+        // then
+        assertEquals( total, visited.size() );
+        assertEquals( total, scan.getProgress().getCompleted() );
+        assertTrue( scan.isVisited( total + 10, 0 ) );
+    }
+
     private static class PercentageSupplier implements Supplier<Float>
     {
         private StoreScan storeScan;
@@ -19,8 +19,11 @@
  */
 package org.neo4j.unsafe.impl.batchimport.cache;
 
+import org.junit.Rule;
 import org.junit.Test;
 
+import org.neo4j.test.rule.TestDirectory;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -36,6 +39,9 @@ public class NumberArrayFactoryTest
     private static final long KILO = 1024;
     private static final long MEGA = KILO*KILO;
 
+    @Rule
+    public final TestDirectory directory = TestDirectory.testDirectory( getClass() );
+
     @Test
     public void shouldPickFirstAvailableCandidateLongArray() throws Exception
     {
@@ -121,4 +127,43 @@ public class NumberArrayFactoryTest
         assertTrue( array instanceof HeapIntArray );
         assertEquals( 12345, array.get( 1*KILO-10 ) );
     }
+
+    @Test
+    public void shouldSplitMappedArrayLargerThanOneFileIntoMultipleFiles() throws Exception
+    {
+        // GIVEN
+        NumberArrayFactory factory = new MappedFileNumberArrayFactory( directory.directory(), 1*KILO );
+
+        // WHEN
+        LongArray array = factory.newLongArray( 1*KILO, -1 );
+        for ( int i = 0; i < 1*KILO; i++ )
+        {
+            array.set( i, i * 3 );
+        }
+
+        // THEN
+        assertTrue( array instanceof DynamicLongArray );
+        for ( int i = 0; i < 1*KILO; i++ )
+        {
+            assertEquals( i * 3, array.get( i ) );
+        }
+        array.close();
+        assertEquals( 0, directory.directory().list().length );
+    }
+
+    @Test
+    public void shouldNotLeaveMappedFilesBehindWhileArrayIsInUse() throws Exception
+    {
+        // GIVEN
+        NumberArrayFactory factory = new MappedFileNumberArrayFactory( directory.directory(), 1*KILO );
+
+        // WHEN
+        LongArray array = factory.newLongArray( 1*KILO, -1 );
+        array.set( 1*KILO-1, 5 );
+
+        // THEN
+        assertEquals( 0, directory.directory().list().length );
+        assertEquals( 5, array.get( 1*KILO-1 ) );
+        array.close();
+    }
 }
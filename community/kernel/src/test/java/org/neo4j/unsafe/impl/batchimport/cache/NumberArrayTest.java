@@ -27,6 +27,7 @@ import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameter;
 import org.junit.runners.Parameterized.Parameters;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -63,7 +64,9 @@ public class NumberArrayTest
     public static Collection<Object[]> arrays()
     {
         Collection<Object[]> list = new ArrayList<>();
-        for ( NumberArrayFactory factory : array( HEAP, OFF_HEAP, AUTO, CHUNKED_FIXED_SIZE ) )
+        NumberArrayFactory mappedFiles = new MappedFileNumberArrayFactory(
+                new File( System.getProperty( "java.io.tmpdir" ) ) );
+        for ( NumberArrayFactory factory : array( HEAP, OFF_HEAP, AUTO, CHUNKED_FIXED_SIZE, mappedFiles ) )
         {
             list.add( line(
                     factory.newIntArray( INDEXES, -1 ),
@@ -289,6 +289,20 @@ public abstract class AbstractLuceneIndex
         }
     }
 
+    /**
+     * Mark all partitions as changed, so that newly inserted data becomes visible for readers without waiting for a
+     * refresh.
+     *
+     * @throws IOException
+     */
+    public void markForRefresh() throws IOException
+    {
+        for ( AbstractIndexPartition partition : getPartitions() )
+        {
+            partition.markForRefresh();
+        }
+    }
+
     private void maybeRefreshPartition( AbstractIndexPartition partition )
     {
         try
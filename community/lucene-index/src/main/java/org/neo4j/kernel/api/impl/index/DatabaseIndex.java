@@ -118,6 +118,14 @@ public interface DatabaseIndex extends Closeable
      */
     void maybeRefreshBlocking() throws IOException;
 
+    /**
+     * Make newly inserted data visible for readers without waiting for partitions to be refreshed now.
+     *
+     * @throws IOException
+     * @see AbstractIndexPartition#markForRefresh()
+     */
+    void markForRefresh() throws IOException;
+
     /**
      * Get index partitions
      * @return list of index partition
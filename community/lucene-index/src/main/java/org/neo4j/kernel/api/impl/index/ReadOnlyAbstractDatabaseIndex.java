@@ -148,6 +148,15 @@ public abstract class ReadOnlyAbstractDatabaseIndex<T extends AbstractLuceneInde
         //nothing to refresh in read only mode
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void markForRefresh() throws IOException
+    {
+        //nothing to refresh in read only mode
+    }
+
     /**
      * {@inheritDoc}
      */
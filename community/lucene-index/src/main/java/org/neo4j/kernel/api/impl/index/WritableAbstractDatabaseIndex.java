@@ -202,6 +202,23 @@ public class WritableAbstractDatabaseIndex<T extends AbstractLuceneIndex> implem
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void markForRefresh() throws IOException
+    {
+        partitionsLock.lock();
+        try
+        {
+            luceneIndex.markForRefresh();
+        }
+        finally
+        {
+            partitionsLock.unlock();
+        }
+    }
+
     /**
      * Add new partition to the index.
      *
@@ -19,15 +19,20 @@
  */
 package org.neo4j.kernel.api.impl.index.builder;
 
+import org.apache.lucene.index.IndexWriterConfig;
+
 import java.io.File;
 
+import org.neo4j.function.Factory;
 import org.neo4j.graphdb.config.Setting;
 import org.neo4j.graphdb.factory.GraphDatabaseSettings;
 import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.kernel.api.impl.index.partition.WritableIndexPartitionFactory;
 import org.neo4j.kernel.api.impl.index.storage.DirectoryFactory;
 import org.neo4j.kernel.api.impl.index.storage.PartitionedIndexStorage;
 import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.impl.factory.OperationalMode;
+import org.neo4j.kernel.impl.util.JobScheduler;
 
 /**
  * Base class for lucene index builders.
@@ -39,6 +44,7 @@ public abstract class AbstractLuceneIndexBuilder<T extends AbstractLuceneIndexBu
     protected LuceneIndexStorageBuilder storageBuilder = LuceneIndexStorageBuilder.create();
     private Config config = Config.defaults();
     private OperationalMode operationalMode = OperationalMode.single;
+    private JobScheduler scheduler;
 
     /**
      * Specify index storage
@@ -122,6 +128,28 @@ public abstract class AbstractLuceneIndexBuilder<T extends AbstractLuceneIndexBu
         return (T) this;
     }
 
+    /**
+     * Specify scheduler of background work, like making changes visible to searchers. Without one that work is done
+     * right away, in the thread causing it.
+     * @param scheduler job scheduler
+     * @return index builder
+     */
+    public T withScheduler( JobScheduler scheduler )
+    {
+        this.scheduler = scheduler;
+        return (T) this;
+    }
+
+    /**
+     * Create factory of writable partitions, using the scheduler if one was specified.
+     * @param writerConfigFactory the supplier of writer configs
+     * @return partition factory
+     */
+    protected WritableIndexPartitionFactory writablePartitionFactory( Factory<IndexWriterConfig> writerConfigFactory )
+    {
+        return new WritableIndexPartitionFactory( writerConfigFactory, scheduler );
+    }
+
     /**
      * Check if index should be read only
      * @return true if index should be read only
@@ -77,6 +77,14 @@ public abstract class AbstractIndexPartition implements Closeable
      */
     public abstract void maybeRefreshBlocking() throws IOException;
 
+    /**
+     * Record that partition has changed, so that the changes become visible for readers soon, and at the latest for
+     * searchers acquired after this call, without waiting for a refresh now.
+     *
+     * @throws IOException if refreshing fails.
+     */
+    public abstract void markForRefresh() throws IOException;
+
     /**
      * Retrieve list of consistent Lucene index files for this partition.
      *
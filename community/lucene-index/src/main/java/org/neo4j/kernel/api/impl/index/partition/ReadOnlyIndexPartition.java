@@ -73,6 +73,17 @@ public class ReadOnlyIndexPartition extends AbstractIndexPartition
         // nothing to refresh in read only partition
     }
 
+    /**
+     *  Mark partition as changed. No-op in read only partition.
+     *
+     * @throws IOException if refreshing fails.
+     */
+    @Override
+    public void markForRefresh() throws IOException
+    {
+        // nothing changes in read only partition
+    }
+
     @Override
     public void close() throws IOException
     {
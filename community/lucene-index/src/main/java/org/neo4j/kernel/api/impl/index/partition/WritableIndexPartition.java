@@ -25,28 +25,70 @@ import org.apache.lucene.search.SearcherFactory;
 import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.store.Directory;
 
+import org.apache.lucene.store.AlreadyClosedException;
+
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.neo4j.graphdb.ResourceIterator;
 import org.neo4j.io.IOUtils;
 import org.neo4j.kernel.api.impl.index.backup.LuceneIndexSnapshots;
+import org.neo4j.kernel.impl.util.JobScheduler;
+import org.neo4j.kernel.impl.util.JobScheduler.JobHandle;
+import org.neo4j.unsafe.impl.internal.dragons.FeatureToggles;
+
+import static org.neo4j.kernel.impl.util.JobScheduler.Groups.indexRefresh;
 
 /**
  * Represents a single writable partition of a partitioned lucene index.
+ * <p>
+ * Changes are made visible to searchers lazily: {@link #markForRefresh()} only records that the partition has changed
+ * and schedules a refresh with the database {@link JobScheduler}, after at most {@link #REFRESH_DELAY_MILLIS}. Changes
+ * made by many transactions within that window are thereby made visible by a single refresh. A searcher acquired
+ * before the background refresh has happened refreshes the partition first, so searchers always see every change that
+ * was marked before they were acquired. Partitions created without a scheduler refresh right away instead.
  * @see AbstractIndexPartition
  */
 public class WritableIndexPartition extends AbstractIndexPartition
 {
+    /**
+     * Longest time, in milliseconds, that a change may stay invisible to searchers when no searcher is acquired. Zero
+     * makes every change visible right away, in the thread that marks the partition.
+     */
+    static final long REFRESH_DELAY_MILLIS =
+            FeatureToggles.getLong( WritableIndexPartition.class, "refresh_delay_millis", 100 );
+
     private final IndexWriter indexWriter;
     private final SearcherManager searcherManager;
+    private final JobScheduler scheduler;
+    private final AtomicLong markedGeneration = new AtomicLong();
+    private final AtomicLong refreshedGeneration = new AtomicLong();
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+    private final Lock refreshLock = new ReentrantLock();
+    private volatile JobHandle scheduledRefresh;
+    private volatile boolean closed;
 
     public WritableIndexPartition( File partitionFolder, Directory directory, IndexWriterConfig writerConfig )
             throws IOException
+    {
+        this( partitionFolder, directory, writerConfig, null );
+    }
+
+    /**
+     * @param scheduler scheduler of the background refreshes, or {@code null} to refresh in the marking thread.
+     */
+    public WritableIndexPartition( File partitionFolder, Directory directory, IndexWriterConfig writerConfig,
+            JobScheduler scheduler ) throws IOException
     {
         super( partitionFolder, directory );
         this.indexWriter = new IndexWriter( directory, writerConfig );
         this.searcherManager = new SearcherManager( indexWriter, new SearcherFactory() );
+        this.scheduler = scheduler;
     }
 
     /**
@@ -64,6 +106,7 @@ public class WritableIndexPartition extends AbstractIndexPartition
     @Override
     public PartitionSearcher acquireSearcher() throws IOException
     {
+        refreshUpTo( markedGeneration.get() );
         return new PartitionSearcher( searcherManager );
     }
 
@@ -73,7 +116,85 @@ public class WritableIndexPartition extends AbstractIndexPartition
     @Override
     public void maybeRefreshBlocking() throws IOException
     {
+        refreshLock.lock();
+        try
+        {
+            refresh();
+        }
+        finally
+        {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void markForRefresh() throws IOException
+    {
+        markedGeneration.incrementAndGet();
+        if ( scheduler == null || REFRESH_DELAY_MILLIS <= 0 )
+        {
+            maybeRefreshBlocking();
+        }
+        else if ( refreshScheduled.compareAndSet( false, true ) )
+        {
+            scheduledRefresh = scheduler.schedule( indexRefresh, this::refreshInBackground, REFRESH_DELAY_MILLIS,
+                    TimeUnit.MILLISECONDS );
+            if ( closed )
+            {
+                scheduledRefresh.cancel( false );
+            }
+        }
+    }
+
+    private void refreshInBackground()
+    {
+        refreshScheduled.set( false );
+        if ( closed )
+        {
+            return;
+        }
+        try
+        {
+            refreshUpTo( markedGeneration.get() );
+        }
+        catch ( IOException | AlreadyClosedException e )
+        {
+            // searchers will try again when they are acquired
+        }
+    }
+
+    /**
+     * Makes sure that changes marked up to the given generation are visible. A refresh that is already running
+     * is waited for, but another one is only started if that refresh didn't cover the generation.
+     */
+    private void refreshUpTo( long generation ) throws IOException
+    {
+        if ( refreshedGeneration.get() >= generation )
+        {
+            return;
+        }
+        refreshLock.lock();
+        try
+        {
+            if ( refreshedGeneration.get() < generation )
+            {
+                refresh();
+            }
+        }
+        finally
+        {
+            refreshLock.unlock();
+        }
+    }
+
+    private void refresh() throws IOException
+    {
+        long generation = markedGeneration.get();
         searcherManager.maybeRefreshBlocking();
+        refreshedGeneration.accumulateAndGet( generation, Math::max );
     }
 
     /**
@@ -82,6 +203,12 @@ public class WritableIndexPartition extends AbstractIndexPartition
     @Override
     public void close() throws IOException
     {
+        closed = true;
+        JobHandle refresh = scheduledRefresh;
+        if ( refresh != null )
+        {
+            refresh.cancel( false );
+        }
         IOUtils.closeAll( searcherManager, indexWriter, getDirectory() );
     }
 
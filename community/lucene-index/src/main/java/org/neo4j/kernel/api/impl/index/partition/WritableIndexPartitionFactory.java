@@ -26,6 +26,7 @@ import java.io.File;
 import java.io.IOException;
 
 import org.neo4j.function.Factory;
+import org.neo4j.kernel.impl.util.JobScheduler;
 
 /**
  * Factory to create writable partitions for partitioned index.
@@ -33,15 +34,25 @@ import org.neo4j.function.Factory;
 public class WritableIndexPartitionFactory implements IndexPartitionFactory
 {
     private Factory<IndexWriterConfig> writerConfigFactory;
+    private final JobScheduler scheduler;
 
     public WritableIndexPartitionFactory( Factory<IndexWriterConfig> writerConfigFactory )
+    {
+        this( writerConfigFactory, null );
+    }
+
+    /**
+     * @param scheduler scheduler of background searcher refreshes, or {@code null} to refresh partitions right away.
+     */
+    public WritableIndexPartitionFactory( Factory<IndexWriterConfig> writerConfigFactory, JobScheduler scheduler )
     {
         this.writerConfigFactory = writerConfigFactory;
+        this.scheduler = scheduler;
     }
 
     @Override
     public AbstractIndexPartition createPartition( File partitionFolder, Directory directory ) throws IOException
     {
-        return new WritableIndexPartition( partitionFolder, directory, writerConfigFactory.newInstance() );
+        return new WritableIndexPartition( partitionFolder, directory, writerConfigFactory.newInstance(), scheduler );
     }
 }
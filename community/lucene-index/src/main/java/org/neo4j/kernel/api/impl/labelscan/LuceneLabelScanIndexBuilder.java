@@ -19,6 +19,7 @@
  */
 package org.neo4j.kernel.api.impl.labelscan;
 
+import org.neo4j.kernel.api.impl.index.IndexWriterConfigs;
 import org.neo4j.kernel.api.impl.index.builder.AbstractLuceneIndexBuilder;
 import org.neo4j.kernel.api.impl.labelscan.storestrategy.BitmapDocumentFormat;
 
@@ -69,6 +70,7 @@ public class LuceneLabelScanIndexBuilder extends AbstractLuceneIndexBuilder<Luce
     public LabelScanIndex build()
     {
         return isReadOnly() ? new ReadOnlyDatabaseLabelScanIndex( format, storageBuilder.build() )
-                            : new WritableDatabaseLabelScanIndex( format, storageBuilder.build() );
+                            : new WritableDatabaseLabelScanIndex( format, storageBuilder.build(),
+                                    writablePartitionFactory( IndexWriterConfigs::standard ) );
     }
 }
@@ -31,6 +31,7 @@ import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider;
 import org.neo4j.kernel.impl.factory.GraphDatabaseFacadeFactory;
 import org.neo4j.kernel.impl.logging.LogService;
 import org.neo4j.kernel.impl.spi.KernelContext;
+import org.neo4j.kernel.impl.util.JobScheduler;
 import org.neo4j.kernel.lifecycle.Lifecycle;
 
 import static org.neo4j.kernel.api.impl.index.LuceneKernelExtensions.directoryFactory;
@@ -56,6 +57,8 @@ public class LuceneLabelScanStoreExtension extends KernelExtensionFactory<Lucene
         Supplier<IndexStoreView> indexStoreView();
 
         LogService getLogService();
+
+        JobScheduler scheduler();
     }
 
     public LuceneLabelScanStoreExtension()
@@ -76,7 +79,7 @@ public class LuceneLabelScanStoreExtension extends KernelExtensionFactory<Lucene
         boolean ephemeral = dependencies.getConfig().get( GraphDatabaseFacadeFactory.Configuration.ephemeral );
         DirectoryFactory directoryFactory = directoryFactory( ephemeral, context.fileSystem() );
 
-        LabelScanIndex index = getLuceneIndex( context, directoryFactory );
+        LabelScanIndex index = getLuceneIndex( context, directoryFactory, dependencies.scheduler() );
         LuceneLabelScanStore scanStore = new LuceneLabelScanStore( index,
                 fullStoreLabelUpdateStream( dependencies.indexStoreView() ),
                 dependencies.getLogService().getInternalLogProvider(), monitor );
@@ -84,12 +87,14 @@ public class LuceneLabelScanStoreExtension extends KernelExtensionFactory<Lucene
         return new LabelScanStoreProvider( scanStore, priority );
     }
 
-    private LabelScanIndex getLuceneIndex( KernelContext context, DirectoryFactory directoryFactory )
+    private LabelScanIndex getLuceneIndex( KernelContext context, DirectoryFactory directoryFactory,
+            JobScheduler scheduler )
     {
         return LuceneLabelScanIndexBuilder.create()
                 .withDirectoryFactory( directoryFactory )
                 .withFileSystem( context.fileSystem() )
                 .withIndexRootFolder( LabelScanStoreProvider.getStoreDirectory( context.storeDir() ) )
+                .withScheduler( scheduler )
                 .build();
     }
 
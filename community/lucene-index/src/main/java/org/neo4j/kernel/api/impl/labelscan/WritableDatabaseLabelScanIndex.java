@@ -37,8 +37,13 @@ public class WritableDatabaseLabelScanIndex extends WritableAbstractDatabaseInde
 
     public WritableDatabaseLabelScanIndex( BitmapDocumentFormat format, PartitionedIndexStorage indexStorage )
     {
-        super( new LuceneLabelScanIndex( indexStorage,
-                new WritableIndexPartitionFactory( IndexWriterConfigs::standard ), format ) );
+        this( format, indexStorage, new WritableIndexPartitionFactory( IndexWriterConfigs::standard ) );
+    }
+
+    public WritableDatabaseLabelScanIndex( BitmapDocumentFormat format, PartitionedIndexStorage indexStorage,
+            WritableIndexPartitionFactory partitionFactory )
+    {
+        super( new LuceneLabelScanIndex( indexStorage, partitionFactory, format ) );
     }
 
     @Override
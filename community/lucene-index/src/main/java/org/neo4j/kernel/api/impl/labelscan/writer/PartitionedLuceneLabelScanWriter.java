@@ -97,7 +97,7 @@ public class PartitionedLuceneLabelScanWriter implements LabelScanWriter
     public void close() throws IOException
     {
         flush();
-        index.maybeRefreshBlocking();
+        index.markForRefresh();
     }
 
     private Map<Long/*range*/,Bitmap> readLabelBitMapsInRange( IndexSearcher searcher, long range ) throws IOException
@@ -155,7 +155,7 @@ public class LuceneIndexAccessor implements IndexAccessor
         @Override
         public void close() throws IOException, IndexEntryConflictException
         {
-            luceneIndex.maybeRefreshBlocking();
+            luceneIndex.markForRefresh();
         }
 
         @Override
@@ -27,7 +27,6 @@ import org.neo4j.graphdb.factory.GraphDatabaseSettings;
 import org.neo4j.kernel.api.impl.index.IndexWriterConfigs;
 import org.neo4j.kernel.api.impl.index.builder.AbstractLuceneIndexBuilder;
 import org.neo4j.kernel.api.impl.index.partition.ReadOnlyIndexPartitionFactory;
-import org.neo4j.kernel.api.impl.index.partition.WritableIndexPartitionFactory;
 import org.neo4j.kernel.api.impl.index.storage.PartitionedIndexStorage;
 import org.neo4j.kernel.api.index.IndexConfiguration;
 import org.neo4j.kernel.configuration.Config;
@@ -125,7 +124,7 @@ public class LuceneSchemaIndexBuilder extends AbstractLuceneIndexBuilder<LuceneS
             Boolean archiveFailed = getConfig( GraphDatabaseSettings.archive_failed_index );
             PartitionedIndexStorage storage = storageBuilder.archivingFailed( archiveFailed ).build();
             return new WritableDatabaseSchemaIndex( storage, indexConfig, samplingConfig,
-                    new WritableIndexPartitionFactory( writerConfigFactory ) );
+                    writablePartitionFactory( writerConfigFactory ) );
         }
     }
 
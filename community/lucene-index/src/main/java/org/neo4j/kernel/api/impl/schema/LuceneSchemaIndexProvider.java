@@ -43,6 +43,7 @@ import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider;
 import org.neo4j.kernel.impl.factory.OperationalMode;
 import org.neo4j.kernel.impl.storemigration.StoreMigrationParticipant;
 import org.neo4j.kernel.impl.storemigration.participant.SchemaIndexMigrator;
+import org.neo4j.kernel.impl.util.JobScheduler;
 import org.neo4j.logging.Log;
 import org.neo4j.logging.LogProvider;
 
@@ -52,19 +53,55 @@ public class LuceneSchemaIndexProvider extends SchemaIndexProvider
     private final Log log;
     private Config config;
     private OperationalMode operationalMode;
+    private final JobScheduler scheduler;
 
     public LuceneSchemaIndexProvider( FileSystemAbstraction fileSystem, DirectoryFactory directoryFactory,
                                       File storeDir, LogProvider logging, Config config,
                                       OperationalMode operationalMode )
+    {
+        this( fileSystem, directoryFactory, storeDir, logging, config, operationalMode, null );
+    }
+
+    /**
+     * Creates a provider that makes changes to its indexes visible to searchers in the background, using the given
+     * scheduler.
+     */
+    public LuceneSchemaIndexProvider( FileSystemAbstraction fileSystem, DirectoryFactory directoryFactory,
+                                      File storeDir, LogProvider logging, Config config,
+                                      OperationalMode operationalMode, JobScheduler scheduler )
+    {
+        this( fileSystem, directoryFactory, logging, config, operationalMode,
+                defaultSchemaIndexStoreFolder( storeDir ), scheduler );
+    }
+
+    /**
+     * Creates a provider keeping its indexes in the given folder, instead of the default folder
+     * for lucene schema indexes in the store directory. Used when a lucene provider is a part of another provider.
+     */
+    public LuceneSchemaIndexProvider( FileSystemAbstraction fileSystem, DirectoryFactory directoryFactory,
+                                      LogProvider logging, Config config, OperationalMode operationalMode,
+                                      File schemaIndexStoreFolder )
+    {
+        this( fileSystem, directoryFactory, logging, config, operationalMode, schemaIndexStoreFolder, null );
+    }
+
+    public LuceneSchemaIndexProvider( FileSystemAbstraction fileSystem, DirectoryFactory directoryFactory,
+                                      LogProvider logging, Config config, OperationalMode operationalMode,
+                                      File schemaIndexStoreFolder, JobScheduler scheduler )
     {
         super( LuceneSchemaIndexProviderFactory.PROVIDER_DESCRIPTOR, 1 );
-        File schemaIndexStoreFolder = getSchemaIndexStoreDirectory( storeDir );
         this.indexStorageFactory = buildIndexStorageFactory( fileSystem, directoryFactory, schemaIndexStoreFolder );
         this.config = config;
         this.operationalMode = operationalMode;
+        this.scheduler = scheduler;
         this.log = logging.getLog( getClass() );
     }
 
+    private static File defaultSchemaIndexStoreFolder( File storeDir )
+    {
+        return new File( new File( new File( storeDir, "schema" ), "index" ), LuceneSchemaIndexProviderFactory.KEY );
+    }
+
     /**
      * Visible <b>only</b> for testing.
      */
@@ -86,6 +123,7 @@ public class LuceneSchemaIndexProvider extends SchemaIndexProvider
                                         .withSamplingConfig( samplingConfig )
                                         .withIndexStorage( getIndexStorage( indexId ) )
                                         .withWriterConfig( IndexWriterConfigs::population )
+                                        .withScheduler( scheduler )
                                         .build();
         if ( luceneIndex.isReadOnly() )
         {
@@ -111,6 +149,7 @@ public class LuceneSchemaIndexProvider extends SchemaIndexProvider
                                             .withOperationalMode( operationalMode )
                                             .withSamplingConfig( samplingConfig )
                                             .withIndexStorage( getIndexStorage( indexId ) )
+                                            .withScheduler( scheduler )
                                             .build();
         luceneIndex.open();
         return new LuceneIndexAccessor( luceneIndex );
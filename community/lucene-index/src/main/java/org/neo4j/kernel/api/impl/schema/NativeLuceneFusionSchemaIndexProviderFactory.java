@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.api.impl.schema;
+
+import java.io.File;
+
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.helpers.Service;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.api.impl.index.storage.DirectoryFactory;
+import org.neo4j.kernel.api.index.SchemaIndexProvider;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.extension.KernelExtensionFactory;
+import org.neo4j.kernel.impl.factory.GraphDatabaseFacadeFactory;
+import org.neo4j.kernel.impl.index.schema.NativeSchemaNumberIndexProvider;
+import org.neo4j.kernel.impl.index.schema.fusion.FusionSchemaIndexProvider;
+import org.neo4j.kernel.impl.index.schema.fusion.NativeSelector;
+import org.neo4j.kernel.impl.logging.LogService;
+import org.neo4j.kernel.impl.spi.KernelContext;
+import org.neo4j.kernel.impl.util.JobScheduler;
+import org.neo4j.logging.LogProvider;
+
+import static org.neo4j.kernel.api.impl.index.LuceneKernelExtensions.directoryFactory;
+
+/**
+ * Provides a {@link FusionSchemaIndexProvider} where numbers are kept in native indexes, see
+ * {@link NativeSchemaNumberIndexProvider}, and all other values in lucene indexes. This provider is used for
+ * new indexes if {@link GraphDatabaseSettings#default_schema_provider} says so, otherwise it's only
+ * there for indexes created with it previously.
+ */
+@Service.Implementation( KernelExtensionFactory.class )
+public class NativeLuceneFusionSchemaIndexProviderFactory
+        extends KernelExtensionFactory<NativeLuceneFusionSchemaIndexProviderFactory.Dependencies>
+{
+    public static final String KEY = LuceneSchemaIndexProviderFactory.KEY + "+" + NativeSchemaNumberIndexProvider.KEY;
+
+    public static final SchemaIndexProvider.Descriptor DESCRIPTOR = new SchemaIndexProvider.Descriptor( KEY, "1.0" );
+
+    /**
+     * Above {@link LuceneSchemaIndexProvider} when configured as the default provider, otherwise below.
+     */
+    static final int PRIORITY_DEFAULT = 2;
+    static final int PRIORITY_NOT_DEFAULT = 0;
+
+    public interface Dependencies
+    {
+        PageCache pageCache();
+
+        Config getConfig();
+
+        LogService getLogging();
+
+        JobScheduler scheduler();
+    }
+
+    public NativeLuceneFusionSchemaIndexProviderFactory()
+    {
+        super( KEY );
+    }
+
+    @Override
+    public FusionSchemaIndexProvider newInstance( KernelContext context, Dependencies dependencies ) throws Throwable
+    {
+        PageCache pageCache = dependencies.pageCache();
+        Config config = dependencies.getConfig();
+        LogProvider logging = dependencies.getLogging().getInternalLogProvider();
+        boolean ephemeral = config.get( GraphDatabaseFacadeFactory.Configuration.ephemeral );
+        FileSystemAbstraction fs = context.fileSystem();
+        DirectoryFactory directoryFactory = directoryFactory( ephemeral, fs );
+        File rootDirectory = new File( new File( new File( context.storeDir(), "schema" ), "index" ), KEY );
+
+        NativeSchemaNumberIndexProvider nativeProvider = new NativeSchemaNumberIndexProvider( pageCache, fs,
+                new File( rootDirectory, NativeSchemaNumberIndexProvider.KEY ), logging );
+        LuceneSchemaIndexProvider luceneProvider = new LuceneSchemaIndexProvider( fs, directoryFactory, logging,
+                config, context.databaseInfo().operationalMode,
+                new File( rootDirectory, LuceneSchemaIndexProviderFactory.KEY ), dependencies.scheduler() );
+
+        String defaultProvider = config.get( GraphDatabaseSettings.default_schema_provider );
+        boolean isDefault = (DESCRIPTOR.getKey() + "-" + DESCRIPTOR.getVersion()).equals( defaultProvider );
+        int priority = isDefault ? PRIORITY_DEFAULT : PRIORITY_NOT_DEFAULT;
+        return new FusionSchemaIndexProvider( nativeProvider, luceneProvider, new NativeSelector(), DESCRIPTOR,
+                priority );
+    }
+}
@@ -29,12 +29,21 @@ import org.junit.rules.ExpectedException;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 import org.neo4j.kernel.api.impl.index.IndexWriterConfigs;
 import org.neo4j.kernel.api.impl.index.storage.DirectoryFactory;
+import org.neo4j.kernel.impl.util.JobScheduler;
+import org.neo4j.kernel.impl.util.JobScheduler.Group;
+import org.neo4j.kernel.impl.util.JobScheduler.JobHandle;
 import org.neo4j.test.rule.TestDirectory;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class IndexPartitionFactoryTest
 {
@@ -87,6 +96,41 @@ public class IndexPartitionFactoryTest
         }
     }
 
+    @Test
+    public void writablePartitionSearchersSeeChangesMarkedForRefresh() throws Exception
+    {
+        try ( AbstractIndexPartition indexPartition =
+                      new WritableIndexPartitionFactory( IndexWriterConfigs::standard )
+                              .createPartition( testDirectory.directory(), directory ) )
+        {
+            IndexWriter indexWriter = indexPartition.getIndexWriter();
+            indexWriter.addDocument( new Document() );
+            indexPartition.markForRefresh();
+            try ( PartitionSearcher searcher = indexPartition.acquireSearcher() )
+            {
+                assertEquals( "We should be able to see document added before marking the partition",
+                        1, searcher.getIndexSearcher().getIndexReader().numDocs() );
+            }
+        }
+    }
+
+    @Test
+    public void writablePartitionCancelsScheduledRefreshWhenClosed() throws Exception
+    {
+        JobScheduler scheduler = mock( JobScheduler.class );
+        JobHandle scheduledRefresh = mock( JobHandle.class );
+        when( scheduler.schedule( any( Group.class ), any( Runnable.class ), anyLong(), any( TimeUnit.class ) ) )
+                .thenReturn( scheduledRefresh );
+        AbstractIndexPartition indexPartition = new WritableIndexPartitionFactory( IndexWriterConfigs::standard,
+                scheduler ).createPartition( testDirectory.directory(), directory );
+
+        indexPartition.getIndexWriter().addDocument( new Document() );
+        indexPartition.markForRefresh();
+        indexPartition.close();
+
+        verify( scheduledRefresh ).cancel( false );
+    }
+
     private void prepareIndex() throws IOException
     {
         File location = testDirectory.directory();
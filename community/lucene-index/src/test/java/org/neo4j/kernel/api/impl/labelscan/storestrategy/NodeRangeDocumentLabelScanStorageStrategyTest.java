@@ -129,7 +129,7 @@ public class NodeRangeDocumentLabelScanStorageStrategyTest
                         format.labelField( 7, 0x1 ),
                         format.labelSearchField( 7 ) ) ) );
 
-        verify( index ).maybeRefreshBlocking();
+        verify( index ).markForRefresh();
         verifyNoMoreInteractions( partition );
     }
 
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2002-2016 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.api.impl.schema;
+
+import org.junit.AfterClass;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.neo4j.graphdb.mockfs.EphemeralFileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.kernel.api.impl.index.storage.DirectoryFactory;
+import org.neo4j.kernel.api.index.IndexProviderCompatibilityTestSuite;
+import org.neo4j.kernel.api.index.SchemaIndexProvider;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.factory.OperationalMode;
+import org.neo4j.kernel.impl.index.schema.NativeSchemaNumberIndexProvider;
+import org.neo4j.kernel.impl.index.schema.fusion.FusionSchemaIndexProvider;
+import org.neo4j.kernel.impl.index.schema.fusion.NativeSelector;
+import org.neo4j.kernel.impl.pagecache.StandalonePageCacheFactory;
+import org.neo4j.logging.NullLogProvider;
+
+public class NativeLuceneFusionSchemaIndexProviderTest extends IndexProviderCompatibilityTestSuite
+{
+    // High enough to be selected over the providers loaded as kernel extensions in the databases of this suite
+    private static final int PRIORITY = 100;
+
+    private static final EphemeralFileSystemAbstraction fileSystem = new EphemeralFileSystemAbstraction();
+    private static final PageCache pageCache = StandalonePageCacheFactory.createPageCache( fileSystem );
+    private static final AtomicInteger providers = new AtomicInteger();
+
+    @AfterClass
+    public static void closePageCache() throws Exception
+    {
+        pageCache.close();
+        fileSystem.shutdown();
+    }
+
+    @Override
+    protected SchemaIndexProvider createIndexProvider()
+    {
+        File rootDirectory = new File( "fusion-" + providers.incrementAndGet() );
+        NativeSchemaNumberIndexProvider nativeProvider = new NativeSchemaNumberIndexProvider( pageCache, fileSystem,
+                new File( rootDirectory, NativeSchemaNumberIndexProvider.KEY ), NullLogProvider.getInstance() );
+        LuceneSchemaIndexProvider luceneProvider = new LuceneSchemaIndexProvider( fileSystem,
+                new DirectoryFactory.InMemoryDirectoryFactory(), NullLogProvider.getInstance(), Config.defaults(),
+                OperationalMode.single, new File( rootDirectory, LuceneSchemaIndexProviderFactory.KEY ) );
+        return new FusionSchemaIndexProvider( nativeProvider, luceneProvider, new NativeSelector(),
+                NativeLuceneFusionSchemaIndexProviderFactory.DESCRIPTOR, PRIORITY );
+    }
+}
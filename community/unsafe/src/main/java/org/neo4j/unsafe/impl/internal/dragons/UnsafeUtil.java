@@ -25,6 +25,7 @@ import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
@@ -865,6 +866,35 @@ public final class UnsafeUtil
         return (ByteBuffer) directByteBufferCtor.newInstance( addr, cap );
     }
 
+    /**
+     * Get the native address of the memory of the given direct ByteBuffer, which can also be a MappedByteBuffer.
+     */
+    public static long getDirectByteBufferAddress( ByteBuffer buffer )
+    {
+        if ( !buffer.isDirect() )
+        {
+            throw new IllegalArgumentException( "Not a direct buffer: " + buffer );
+        }
+        return unsafe.getLong( buffer, directByteBufferAddressOffset );
+    }
+
+    /**
+     * Free the memory of the given direct ByteBuffer, or unmap it if it's a MappedByteBuffer, right away instead of
+     * when it's garbage collected. The buffer must not be accessed afterwards.
+     */
+    public static void freeDirectByteBuffer( ByteBuffer buffer ) throws Exception
+    {
+        Method cleanerMethod = buffer.getClass().getMethod( "cleaner" );
+        cleanerMethod.setAccessible( true );
+        Object cleaner = cleanerMethod.invoke( buffer );
+        if ( cleaner != null )
+        {
+            Method cleanMethod = cleaner.getClass().getMethod( "clean" );
+            cleanMethod.setAccessible( true );
+            cleanMethod.invoke( cleaner );
+        }
+    }
+
     /**
      * Initialize (simulate calling the constructor of) the given DirectByteBuffer.
      */